@@ -1143,6 +1143,57 @@ public final class InMemoryDirectoryServer
 
 
 
+  /**
+   * Retrieves the number of searches for which indexes were used to obtain the
+   * set of candidate entries.  Searches with a base object scope are not
+   * included in this count.  This may be compared with the value returned by
+   * the {@link #getIndexMissCount} method to help determine whether the
+   * indexes defined in the server configuration are appropriate for the
+   * searches being processed.
+   *
+   * @return  The number of searches for which indexes were used to obtain the
+   *          set of candidate entries.
+   */
+  public long getIndexHitCount()
+  {
+    return inMemoryHandler.getIndexHitCount();
+  }
+
+
+
+  /**
+   * Retrieves the number of searches for which it was necessary to examine
+   * every entry in the target subtree because the filter could not be
+   * processed using indexes.  Searches with a base object scope are not
+   * included in this count.
+   *
+   * @return  The number of searches for which it was necessary to examine
+   *          every entry in the target subtree.
+   */
+  public long getIndexMissCount()
+  {
+    return inMemoryHandler.getIndexMissCount();
+  }
+
+
+
+  /**
+   * Retrieves a map with the number of times that each index defined in the
+   * server has been used to obtain a set of candidate entries for a search.
+   * The keys of the map will be the index type (which will be one of
+   * "equality", "presence", "substring", or "ordering"), followed by a colon
+   * and the name or OID of the indexed attribute type (e.g., "equality:uid").
+   *
+   * @return  A map with the number of times that each index defined in the
+   *          server has been used, or an empty map if no indexes are defined.
+   */
+  public Map<String,Long> getIndexHitCounts()
+  {
+    return inMemoryHandler.getIndexHitCounts();
+  }
+
+
+
   /**
    * Removes all entries currently held in the server.  If a changelog is
    * enabled, then all changelog entries will also be cleared but the base
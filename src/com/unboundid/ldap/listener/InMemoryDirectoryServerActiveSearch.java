@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.unboundid.util.Mutable;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+
+
+/**
+ * This class provides a data structure that holds information about a search
+ * operation in progress in the in-memory directory server, so that the search
+ * may be stopped in response to an abandon or cancel request from the client.
+ */
+@Mutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class InMemoryDirectoryServerActiveSearch
+{
+  // Indicates whether the search has been stopped as a result of a request to
+  // cancel it.
+  private final AtomicBoolean canceled;
+
+  // Indicates whether a request has been received to cancel the search.
+  private final AtomicBoolean cancelRequested;
+
+  // The latch that will be released when the search has completed.
+  private final CountDownLatch completionLatch;
+
+
+
+  /**
+   * Creates a new active search object.
+   */
+  InMemoryDirectoryServerActiveSearch()
+  {
+    canceled        = new AtomicBoolean(false);
+    cancelRequested = new AtomicBoolean(false);
+    completionLatch = new CountDownLatch(1);
+  }
+
+
+
+  /**
+   * Indicates that the search should be stopped as soon as possible.
+   */
+  void requestCancel()
+  {
+    cancelRequested.set(true);
+  }
+
+
+
+  /**
+   * Indicates whether the search should be stopped because a request has been
+   * received to cancel it.  If this method returns {@code true}, then the
+   * search is considered to have been canceled and must not return any more
+   * results.
+   *
+   * @return  {@code true} if the search should be stopped, or {@code false} if
+   *          it should continue.
+   */
+  boolean isCanceled()
+  {
+    if (cancelRequested.get())
+    {
+      canceled.set(true);
+      return true;
+    }
+
+    return false;
+  }
+
+
+
+  /**
+   * Indicates that processing has completed for the search.
+   */
+  void complete()
+  {
+    completionLatch.countDown();
+  }
+
+
+
+  /**
+   * Waits for processing to complete for the search.
+   *
+   * @return  {@code true} if the search was stopped as a result of a request to
+   *          cancel it, or {@code false} if it completed normally.
+   *
+   * @throws  InterruptedException  If the thread is interrupted while waiting.
+   */
+  boolean awaitCompletion()
+          throws InterruptedException
+  {
+    completionLatch.await();
+    return canceled.get();
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.schema.AttributeTypeDefinition;
+import com.unboundid.ldap.sdk.schema.Schema;
+import com.unboundid.util.Mutable;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+
+
+/**
+ * This class defines the common behavior for all types of attribute indexes
+ * that may be maintained by the in-memory directory server.  An index may be
+ * used to obtain a set of candidate entries for a search filter component
+ * that targets the associated attribute without needing to examine every entry
+ * in the server.
+ */
+@Mutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+abstract class InMemoryDirectoryServerAttributeIndex
+{
+  // The number of times this index has been used to obtain a candidate list.
+  private final AtomicLong hitCount;
+
+  // The attribute type with which this index is associated.
+  private final AttributeTypeDefinition attributeType;
+
+  // The schema for the server.
+  private final Schema schema;
+
+
+
+  /**
+   * Creates a new attribute index for the specified attribute type.
+   *
+   * @param  attributeType              The name or OID of the attribute type
+   *                                    with which this index is associated.
+   *                                    It must be defined in the schema.
+   * @param  schema                     The schema for the server.  It must
+   *                                    not be {@code null}.
+   * @param  noSchemaMessage            The message to use if no schema was
+   *                                    provided.
+   * @param  undefinedAttributeMessage  The message to use if the attribute
+   *                                    type is not defined in the schema.
+   *
+   * @throws  LDAPException  If the specified attribute type is not defined in
+   *                         the schema.
+   */
+  InMemoryDirectoryServerAttributeIndex(final String attributeType,
+       final Schema schema, final ListenerMessages noSchemaMessage,
+       final ListenerMessages undefinedAttributeMessage)
+       throws LDAPException
+  {
+    this.schema = schema;
+    if (schema == null)
+    {
+      throw new LDAPException(ResultCode.PARAM_ERROR,
+           noSchemaMessage.get(attributeType));
+    }
+
+    this.attributeType = schema.getAttributeType(attributeType);
+    if (this.attributeType == null)
+    {
+      throw new LDAPException(ResultCode.PARAM_ERROR,
+           undefinedAttributeMessage.get(attributeType));
+    }
+
+    hitCount = new AtomicLong(0L);
+  }
+
+
+
+  /**
+   * Retrieves the attribute type definition for this index.
+   *
+   * @return  The attribute type definition for this index.
+   */
+  final AttributeTypeDefinition getAttributeType()
+  {
+    return attributeType;
+  }
+
+
+
+  /**
+   * Retrieves the schema for the server.
+   *
+   * @return  The schema for the server.
+   */
+  final Schema getSchema()
+  {
+    return schema;
+  }
+
+
+
+  /**
+   * Retrieves the associated attribute from the provided entry.
+   *
+   * @param  entry  The entry from which to retrieve the attribute.
+   *
+   * @return  The associated attribute from the provided entry, or {@code null}
+   *          if the entry does not contain that attribute.
+   */
+  final Attribute getAttribute(final Entry entry)
+  {
+    return entry.getAttribute(attributeType.getNameOrOID(), schema);
+  }
+
+
+
+  /**
+   * Retrieves the number of times that this index has been used to obtain a
+   * set of candidate entries for a search.
+   *
+   * @return  The number of times that this index has been used to obtain a set
+   *          of candidate entries for a search.
+   */
+  final long getHitCount()
+  {
+    return hitCount.get();
+  }
+
+
+
+  /**
+   * Indicates that this index has been used to obtain a set of candidate
+   * entries for a search.
+   */
+  final void incrementHitCount()
+  {
+    hitCount.incrementAndGet();
+  }
+
+
+
+  /**
+   * Retrieves a name for the type of this index (e.g., "equality").
+   *
+   * @return  A name for the type of this index.
+   */
+  abstract String getIndexType();
+
+
+
+  /**
+   * Clears all index data for the associated attribute.
+   */
+  abstract void clear();
+
+
+
+  /**
+   * Performs the necessary processing for adding the given entry.
+   *
+   * @param  entry  The entry to be added.
+   *
+   * @throws  LDAPException  If a problem is encountered (e.g., the entry has
+   *                         one or more values that are not acceptable for the
+   *                         associated attribute type).
+   */
+  abstract void processAdd(Entry entry)
+           throws LDAPException;
+
+
+
+  /**
+   * Performs the necessary processing for deleting the given entry.
+   *
+   * @param  entry  The entry to be deleted.
+   *
+   * @throws  LDAPException  If a problem is encountered (e.g., the entry has
+   *                         one or more values that are not acceptable for the
+   *                         associated attribute type).
+   */
+  abstract void processDelete(Entry entry)
+           throws LDAPException;
+}
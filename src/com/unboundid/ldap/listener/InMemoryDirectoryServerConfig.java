@@ -157,6 +157,16 @@ public class InMemoryDirectoryServerConfig
   // The names or OIDs of the attributes for which to maintain equality indexes.
   private final List<String> equalityIndexAttributes;
 
+  // The names or OIDs of the attributes for which to maintain presence indexes.
+  private final List<String> presenceIndexAttributes;
+
+  // The names or OIDs of the attributes for which to maintain substring
+  // indexes.
+  private final List<String> substringIndexAttributes;
+
+  // The names or OIDs of the attributes for which to maintain ordering indexes.
+  private final List<String> orderingIndexAttributes;
+
   // A set of additional credentials that can be used for binding without
   // requiring a corresponding entry in the data set.
   private final Map<DN,byte[]> additionalBindCredentials;
@@ -241,6 +251,9 @@ public class InMemoryDirectoryServerConfig
     maxSizeLimit                         = 0;
     exceptionHandler                     = null;
     equalityIndexAttributes              = new ArrayList<String>(10);
+    presenceIndexAttributes              = new ArrayList<String>(10);
+    substringIndexAttributes             = new ArrayList<String>(10);
+    orderingIndexAttributes              = new ArrayList<String>(10);
     rootDSEEntry                         = null;
     schema                               = Schema.getDefaultStandardSchema();
     allowedOperationTypes                = EnumSet.allOf(OperationType.class);
@@ -305,6 +318,12 @@ public class InMemoryDirectoryServerConfig
 
     equalityIndexAttributes =
          new ArrayList<String>(cfg.equalityIndexAttributes);
+    presenceIndexAttributes =
+         new ArrayList<String>(cfg.presenceIndexAttributes);
+    substringIndexAttributes =
+         new ArrayList<String>(cfg.substringIndexAttributes);
+    orderingIndexAttributes =
+         new ArrayList<String>(cfg.orderingIndexAttributes);
 
     enforceAttributeSyntaxCompliance   = cfg.enforceAttributeSyntaxCompliance;
     enforceSingleStructuralObjectClass = cfg.enforceSingleStructuralObjectClass;
@@ -1216,6 +1235,183 @@ public class InMemoryDirectoryServerConfig
 
 
 
+  /**
+   * Retrieves a list containing the names or OIDs of the attribute types for
+   * which to maintain a presence index to improve the performance of certain
+   * kinds of searches.
+   *
+   * @return  A list containing the names or OIDs of the attribute types for
+   *          which to maintain a presence index to improve the performance of
+   *          certain kinds of searches, or an empty list if no presence indexes
+   *          should be created.
+   */
+  public List<String> getPresenceIndexAttributes()
+  {
+    return presenceIndexAttributes;
+  }
+
+
+
+  /**
+   * Specifies the names or OIDs of the attribute types for which to maintain a
+   * presence index to improve the performance of certain kinds of searches.
+   *
+   * @param  presenceIndexAttributes  The names or OIDs of the attributes for
+   *                                  which to maintain a presence index to
+   *                                  improve the performance of certain kinds
+   *                                  of searches.  It may be {@code null} or
+   *                                  empty to indicate that no presence indexes
+   *                                  should be maintained.
+   */
+  public void setPresenceIndexAttributes(
+                   final String... presenceIndexAttributes)
+  {
+    setPresenceIndexAttributes(StaticUtils.toList(presenceIndexAttributes));
+  }
+
+
+
+  /**
+   * Specifies the names or OIDs of the attribute types for which to maintain a
+   * presence index to improve the performance of certain kinds of searches.
+   *
+   * @param  presenceIndexAttributes  The names or OIDs of the attributes for
+   *                                  which to maintain a presence index to
+   *                                  improve the performance of certain kinds
+   *                                  of searches.  It may be {@code null} or
+   *                                  empty to indicate that no presence indexes
+   *                                  should be maintained.
+   */
+  public void setPresenceIndexAttributes(
+                   final Collection<String> presenceIndexAttributes)
+  {
+    this.presenceIndexAttributes.clear();
+    if (presenceIndexAttributes != null)
+    {
+      this.presenceIndexAttributes.addAll(presenceIndexAttributes);
+    }
+  }
+
+
+
+  /**
+   * Retrieves a list containing the names or OIDs of the attribute types for
+   * which to maintain a substring index to improve the performance of certain
+   * kinds of searches.
+   *
+   * @return  A list containing the names or OIDs of the attribute types for
+   *          which to maintain a substring index to improve the performance of
+   *          certain kinds of searches, or an empty list if no substring
+   *          indexes should be created.
+   */
+  public List<String> getSubstringIndexAttributes()
+  {
+    return substringIndexAttributes;
+  }
+
+
+
+  /**
+   * Specifies the names or OIDs of the attribute types for which to maintain a
+   * substring index to improve the performance of certain kinds of searches.
+   *
+   * @param  substringIndexAttributes  The names or OIDs of the attributes for
+   *                                   which to maintain a substring index to
+   *                                   improve the performance of certain kinds
+   *                                   of searches.  It may be {@code null} or
+   *                                   empty to indicate that no substring
+   *                                   indexes should be maintained.
+   */
+  public void setSubstringIndexAttributes(
+                   final String... substringIndexAttributes)
+  {
+    setSubstringIndexAttributes(StaticUtils.toList(substringIndexAttributes));
+  }
+
+
+
+  /**
+   * Specifies the names or OIDs of the attribute types for which to maintain a
+   * substring index to improve the performance of certain kinds of searches.
+   *
+   * @param  substringIndexAttributes  The names or OIDs of the attributes for
+   *                                   which to maintain a substring index to
+   *                                   improve the performance of certain kinds
+   *                                   of searches.  It may be {@code null} or
+   *                                   empty to indicate that no substring
+   *                                   indexes should be maintained.
+   */
+  public void setSubstringIndexAttributes(
+                   final Collection<String> substringIndexAttributes)
+  {
+    this.substringIndexAttributes.clear();
+    if (substringIndexAttributes != null)
+    {
+      this.substringIndexAttributes.addAll(substringIndexAttributes);
+    }
+  }
+
+
+
+  /**
+   * Retrieves a list containing the names or OIDs of the attribute types for
+   * which to maintain an ordering index to improve the performance of certain
+   * kinds of searches.
+   *
+   * @return  A list containing the names or OIDs of the attribute types for
+   *          which to maintain an ordering index to improve the performance of
+   *          certain kinds of searches, or an empty list if no ordering indexes
+   *          should be created.
+   */
+  public List<String> getOrderingIndexAttributes()
+  {
+    return orderingIndexAttributes;
+  }
+
+
+
+  /**
+   * Specifies the names or OIDs of the attribute types for which to maintain an
+   * ordering index to improve the performance of certain kinds of searches.
+   *
+   * @param  orderingIndexAttributes  The names or OIDs of the attributes for
+   *                                  which to maintain an ordering index to
+   *                                  improve the performance of certain kinds
+   *                                  of searches.  It may be {@code null} or
+   *                                  empty to indicate that no ordering indexes
+   *                                  should be maintained.
+   */
+  public void setOrderingIndexAttributes(
+                   final String... orderingIndexAttributes)
+  {
+    setOrderingIndexAttributes(StaticUtils.toList(orderingIndexAttributes));
+  }
+
+
+
+  /**
+   * Specifies the names or OIDs of the attribute types for which to maintain an
+   * ordering index to improve the performance of certain kinds of searches.
+   *
+   * @param  orderingIndexAttributes  The names or OIDs of the attributes for
+   *                                  which to maintain an ordering index to
+   *                                  improve the performance of certain kinds
+   *                                  of searches.  It may be {@code null} or
+   *                                  empty to indicate that no ordering indexes
+   *                                  should be maintained.
+   */
+  public void setOrderingIndexAttributes(
+                   final Collection<String> orderingIndexAttributes)
+  {
+    this.orderingIndexAttributes.clear();
+    if (orderingIndexAttributes != null)
+    {
+      this.orderingIndexAttributes.addAll(orderingIndexAttributes);
+    }
+  }
+
+
+
   /**
    * Retrieves the names of the attributes for which referential integrity
    * should be maintained.  If referential integrity is to be provided and an
@@ -1514,6 +1710,60 @@ public class InMemoryDirectoryServerConfig
       buffer.append('}');
     }
 
+    if (! presenceIndexAttributes.isEmpty())
+    {
+      buffer.append(", presenceIndexAttributes={");
+
+      final Iterator<String> attrIterator = presenceIndexAttributes.iterator();
+      while (attrIterator.hasNext())
+      {
+        buffer.append('\'');
+        buffer.append(attrIterator.next());
+        buffer.append('\'');
+        if (attrIterator.hasNext())
+        {
+          buffer.append(", ");
+        }
+      }
+      buffer.append('}');
+    }
+
+    if (! substringIndexAttributes.isEmpty())
+    {
+      buffer.append(", substringIndexAttributes={");
+
+      final Iterator<String> attrIterator = substringIndexAttributes.iterator();
+      while (attrIterator.hasNext())
+      {
+        buffer.append('\'');
+        buffer.append(attrIterator.next());
+        buffer.append('\'');
+        if (attrIterator.hasNext())
+        {
+          buffer.append(", ");
+        }
+      }
+      buffer.append('}');
+    }
+
+    if (! orderingIndexAttributes.isEmpty())
+    {
+      buffer.append(", orderingIndexAttributes={");
+
+      final Iterator<String> attrIterator = orderingIndexAttributes.iterator();
+      while (attrIterator.hasNext())
+      {
+        buffer.append('\'');
+        buffer.append(attrIterator.next());
+        buffer.append('\'');
+        if (attrIterator.hasNext())
+        {
+          buffer.append(", ");
+        }
+      }
+      buffer.append('}');
+    }
+
     if (! referentialIntegrityAttributes.isEmpty())
     {
       buffer.append(", referentialIntegrityAttributes={");
@@ -34,8 +34,6 @@ import com.unboundid.ldap.sdk.Attribute;
 import com.unboundid.ldap.sdk.DN;
 import com.unboundid.ldap.sdk.Entry;
 import com.unboundid.ldap.sdk.LDAPException;
-import com.unboundid.ldap.sdk.ResultCode;
-import com.unboundid.ldap.sdk.schema.AttributeTypeDefinition;
 import com.unboundid.ldap.sdk.schema.Schema;
 import com.unboundid.util.InternalUseOnly;
 import com.unboundid.util.Mutable;
@@ -53,19 +51,14 @@ import static com.unboundid.ldap.listener.ListenerMessages.*;
 @Mutable()
 @ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
 final class InMemoryDirectoryServerEqualityAttributeIndex
+      extends InMemoryDirectoryServerAttributeIndex
 {
-  // The attribute type with which this index is associated.
-  private final AttributeTypeDefinition attributeType;
-
   // A map from normalized values to the DNs of entries with those values.
   private final Map<ASN1OctetString,TreeSet<DN>> indexMap;
 
   // The matching rule used to normalize values.
   private final MatchingRule matchingRule;
 
-  // The schema for the server.
-  private final Schema schema;
-
 
 
   /**
@@ -84,19 +77,8 @@ final class InMemoryDirectoryServerEqualityAttributeIndex
                                                 final Schema schema)
        throws LDAPException
   {
-    this.schema = schema;
-    if (schema == null)
-    {
-      throw new LDAPException(ResultCode.PARAM_ERROR,
-           ERR_DS_EQ_INDEX_NO_SCHEMA.get(attributeType));
-    }
-
-    this.attributeType = schema.getAttributeType(attributeType);
-    if (this.attributeType == null)
-    {
-      throw new LDAPException(ResultCode.PARAM_ERROR,
-           ERR_DS_EQ_INDEX_UNDEFINED_ATTRIBUTE_TYPE.get(attributeType));
-    }
+    super(attributeType, schema, ERR_DS_EQ_INDEX_NO_SCHEMA,
+         ERR_DS_EQ_INDEX_UNDEFINED_ATTRIBUTE_TYPE);
 
     matchingRule = MatchingRule.selectEqualityMatchingRule(attributeType,
          schema);
@@ -107,20 +89,20 @@ final class InMemoryDirectoryServerEqualityAttributeIndex
 
 
   /**
-   * Retrieves the attribute type definition for this index.
-   *
-   * @return  The attribute type definition for this index.
+   * {@inheritDoc}
    */
-  AttributeTypeDefinition getAttributeType()
+  @Override()
+  String getIndexType()
   {
-    return attributeType;
+    return "equality";
   }
 
 
 
   /**
-   * Clears all index data for the associated attribute.
+   * {@inheritDoc}
    */
+  @Override()
   synchronized void clear()
   {
     indexMap.clear();
@@ -179,19 +161,13 @@ final class InMemoryDirectoryServerEqualityAttributeIndex
 
 
   /**
-   * Performs the necessary processing for adding the given entry.
-   *
-   * @param  entry  The entry to be added.
-   *
-   * @throws  LDAPException  If a problem is encountered (e.g., the entry has
-   *                         one or more values that are not acceptable for the
-   *                         associated attribute type).
+   * {@inheritDoc}
    */
+  @Override()
   synchronized void processAdd(final Entry entry)
                throws LDAPException
   {
-    final Attribute a =
-         entry.getAttribute(attributeType.getNameOrOID(), schema);
+    final Attribute a = getAttribute(entry);
     if (a != null)
     {
       final DN dn = entry.getParsedDN();
@@ -220,19 +196,13 @@ final class InMemoryDirectoryServerEqualityAttributeIndex
 
 
   /**
-   * Performs the necessary processing for deleting the given entry.
-   *
-   * @param  entry  The entry to be deleted.
-   *
-   * @throws  LDAPException  If a problem is encountered (e.g., the entry has
-   *                         one or more values that are not acceptable for the
-   *                         associated attribute type).
+   * {@inheritDoc}
    */
+  @Override()
   synchronized void processDelete(final Entry entry)
                throws LDAPException
   {
-    final Attribute a =
-         entry.getAttribute(attributeType.getNameOrOID(), schema);
+    final Attribute a = getAttribute(entry);
     if (a != null)
     {
       final DN dn = entry.getParsedDN();
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.ldap.matchingrules.MatchingRule;
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.schema.Schema;
+import com.unboundid.util.Debug;
+import com.unboundid.util.Mutable;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+import static com.unboundid.ldap.listener.ListenerMessages.*;
+
+
+
+/**
+ * This class provides a data structure for maintaining an ordering index for a
+ * specified attribute.  Values are held in a sorted map in the order defined by
+ * the attribute's ordering matching rule, so that greater-or-equal and
+ * less-or-equal filters can be processed by retrieving a range of that map.
+ */
+@Mutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class InMemoryDirectoryServerOrderingAttributeIndex
+      extends InMemoryDirectoryServerAttributeIndex
+{
+  // The matching rule used to normalize and order values.
+  private final MatchingRule matchingRule;
+
+  // A map from normalized values to the DNs of entries with those values,
+  // sorted using the ordering matching rule.
+  private final TreeMap<ASN1OctetString,TreeSet<DN>> indexMap;
+
+
+
+  /**
+   * Creates a new ordering attribute index for the specified attribute type.
+   *
+   * @param  attributeType  The name or OID of the attribute type with which
+   *                        this index is associated.  It must be defined in the
+   *                        schema.
+   * @param  schema         The schema for the server.  It must not be
+   *                        {@code null}.
+   *
+   * @throws  LDAPException  If the specified attribute type is not defined in
+   *                         the schema.
+   */
+  InMemoryDirectoryServerOrderingAttributeIndex(final String attributeType,
+                                                final Schema schema)
+       throws LDAPException
+  {
+    super(attributeType, schema, ERR_DS_ORDERING_INDEX_NO_SCHEMA,
+         ERR_DS_ORDERING_INDEX_UNDEFINED_ATTRIBUTE_TYPE);
+
+    matchingRule = MatchingRule.selectOrderingMatchingRule(attributeType,
+         schema);
+
+    indexMap = new TreeMap<ASN1OctetString,TreeSet<DN>>(
+         new ValueComparator(matchingRule));
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  String getIndexType()
+  {
+    return "ordering";
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  synchronized void clear()
+  {
+    indexMap.clear();
+  }
+
+
+
+  /**
+   * Retrieves the DNs of the entries that have at least one value for the
+   * associated attribute that is greater than or equal to, or less than or
+   * equal to, the provided value.
+   *
+   * @param  value           The assertion value for which to retrieve the
+   *                         corresponding entry DNs.
+   * @param  greaterOrEqual  Indicates whether to retrieve entries with values
+   *                         greater than or equal to the provided value
+   *                         ({@code true}) or less than or equal to the
+   *                         provided value ({@code false}).
+   *
+   * @return  A set containing the DNs of the matching entries, or an empty set
+   *          if there are none.
+   *
+   * @throws  LDAPException  If a problem is encountered while attempting to
+   *                         make the determination (e.g., if the given value is
+   *                         not acceptable for the associated attribute type).
+   */
+  synchronized Set<DN> getMatchingEntries(final ASN1OctetString value,
+                                          final boolean greaterOrEqual)
+               throws LDAPException
+  {
+    final ASN1OctetString normalizedValue = matchingRule.normalize(value);
+
+    final SortedMap<ASN1OctetString,TreeSet<DN>> subMap;
+    if (greaterOrEqual)
+    {
+      subMap = indexMap.tailMap(normalizedValue, true);
+    }
+    else
+    {
+      subMap = indexMap.headMap(normalizedValue, true);
+    }
+
+    final TreeSet<DN> dnSet = new TreeSet<DN>();
+    for (final TreeSet<DN> s : subMap.values())
+    {
+      dnSet.addAll(s);
+    }
+
+    return dnSet;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  synchronized void processAdd(final Entry entry)
+               throws LDAPException
+  {
+    final Attribute a = getAttribute(entry);
+    if (a != null)
+    {
+      final DN dn = entry.getParsedDN();
+      for (final ASN1OctetString v : a.getRawValues())
+      {
+        final ASN1OctetString normalizedValue = normalize(v);
+        if (normalizedValue == null)
+        {
+          continue;
+        }
+
+        TreeSet<DN> dnSet = indexMap.get(normalizedValue);
+        if (dnSet == null)
+        {
+          dnSet = new TreeSet<DN>();
+          indexMap.put(normalizedValue, dnSet);
+        }
+        dnSet.add(dn);
+      }
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  synchronized void processDelete(final Entry entry)
+               throws LDAPException
+  {
+    final Attribute a = getAttribute(entry);
+    if (a != null)
+    {
+      final DN dn = entry.getParsedDN();
+      for (final ASN1OctetString v : a.getRawValues())
+      {
+        final ASN1OctetString normalizedValue = normalize(v);
+        if (normalizedValue == null)
+        {
+          continue;
+        }
+
+        final TreeSet<DN> dnSet = indexMap.get(normalizedValue);
+        if (dnSet != null)
+        {
+          dnSet.remove(dn);
+          if (dnSet.isEmpty())
+          {
+            indexMap.remove(normalizedValue);
+          }
+        }
+      }
+    }
+  }
+
+
+
+  /**
+   * Normalizes the provided value so that it may be held in the index.  Values
+   * that cannot be ordered by the matching rule will not be indexed, since
+   * they cannot match any ordering filter.
+   *
+   * @param  value  The value to be normalized.
+   *
+   * @return  The normalized value, or {@code null} if the value cannot be
+   *          ordered by the matching rule.
+   */
+  private ASN1OctetString normalize(final ASN1OctetString value)
+  {
+    try
+    {
+      final ASN1OctetString normalizedValue = matchingRule.normalize(value);
+      matchingRule.compareValues(normalizedValue, normalizedValue);
+      return normalizedValue;
+    }
+    catch (final LDAPException le)
+    {
+      Debug.debugException(le);
+      return null;
+    }
+  }
+
+
+
+  /**
+   * This class provides a comparator that orders normalized values using an
+   * ordering matching rule.
+   */
+  private static final class ValueComparator
+          implements Comparator<ASN1OctetString>, Serializable
+  {
+    /**
+     * The serial version UID for this serializable class.
+     */
+    private static final long serialVersionUID = -4027306817240938176L;
+
+
+
+    // The matching rule used to order values.
+    private final MatchingRule matchingRule;
+
+
+
+    /**
+     * Creates a new value comparator that uses the provided matching rule.
+     *
+     * @param  matchingRule  The matching rule used to order values.
+     */
+    private ValueComparator(final MatchingRule matchingRule)
+    {
+      this.matchingRule = matchingRule;
+    }
+
+
+
+    /**
+     * Compares the provided normalized values.  If the matching rule cannot
+     * compare them, then their bytes will be compared instead so that the
+     * ordering remains consistent.
+     *
+     * @param  v1  The first value to compare.
+     * @param  v2  The second value to compare.
+     *
+     * @return  A negative value if the first value should be ordered before
+     *          the second, a positive value if the first value should be
+     *          ordered after the second, or zero if they are equal.
+     */
+    @Override()
+    public int compare(final ASN1OctetString v1, final ASN1OctetString v2)
+    {
+      try
+      {
+        return matchingRule.compareValues(v1, v2);
+      }
+      catch (final LDAPException le)
+      {
+        Debug.debugException(le);
+
+        final byte[] b1 = v1.getValue();
+        final byte[] b2 = v2.getValue();
+        final int minLength = Math.min(b1.length, b2.length);
+        for (int i=0; i < minLength; i++)
+        {
+          if (b1[i] != b2[i])
+          {
+            return (b1[i] & 0xFF) - (b2[i] & 0xFF);
+          }
+        }
+
+        return b1.length - b2.length;
+      }
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.schema.Schema;
+import com.unboundid.util.Mutable;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+import static com.unboundid.ldap.listener.ListenerMessages.*;
+
+
+
+/**
+ * This class provides a data structure for maintaining a presence index for a
+ * specified attribute.
+ */
+@Mutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class InMemoryDirectoryServerPresenceAttributeIndex
+      extends InMemoryDirectoryServerAttributeIndex
+{
+  // The DNs of the entries that contain the associated attribute.
+  private final TreeSet<DN> dnSet;
+
+
+
+  /**
+   * Creates a new presence attribute index for the specified attribute type.
+   *
+   * @param  attributeType  The name or OID of the attribute type with which
+   *                        this index is associated.  It must be defined in the
+   *                        schema.
+   * @param  schema         The schema for the server.  It must not be
+   *                        {@code null}.
+   *
+   * @throws  LDAPException  If the specified attribute type is not defined in
+   *                         the schema.
+   */
+  InMemoryDirectoryServerPresenceAttributeIndex(final String attributeType,
+                                                final Schema schema)
+       throws LDAPException
+  {
+    super(attributeType, schema, ERR_DS_PRESENCE_INDEX_NO_SCHEMA,
+         ERR_DS_PRESENCE_INDEX_UNDEFINED_ATTRIBUTE_TYPE);
+
+    dnSet = new TreeSet<DN>();
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  String getIndexType()
+  {
+    return "presence";
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  synchronized void clear()
+  {
+    dnSet.clear();
+  }
+
+
+
+  /**
+   * Retrieves the DNs of the entries that contain the associated attribute.
+   *
+   * @return  A set containing the DNs of the entries that contain the
+   *          associated attribute, or an empty set if there are none.
+   */
+  synchronized Set<DN> getMatchingEntries()
+  {
+    return Collections.unmodifiableSet(dnSet);
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  synchronized void processAdd(final Entry entry)
+               throws LDAPException
+  {
+    if (getAttribute(entry) != null)
+    {
+      dnSet.add(entry.getParsedDN());
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  synchronized void processDelete(final Entry entry)
+               throws LDAPException
+  {
+    if (getAttribute(entry) != null)
+    {
+      dnSet.remove(entry.getParsedDN());
+    }
+  }
+}
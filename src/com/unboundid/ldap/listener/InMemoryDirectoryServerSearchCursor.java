@@ -0,0 +1,296 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.unboundid.asn1.ASN1Constants;
+import com.unboundid.asn1.ASN1Element;
+import com.unboundid.asn1.ASN1Integer;
+import com.unboundid.asn1.ASN1Long;
+import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.asn1.ASN1Sequence;
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.Filter;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.SearchResultReference;
+import com.unboundid.ldap.sdk.SearchScope;
+import com.unboundid.ldap.sdk.controls.ServerSideSortRequestControl;
+import com.unboundid.ldap.sdk.controls.SortKey;
+import com.unboundid.util.Debug;
+import com.unboundid.util.Mutable;
+import com.unboundid.util.ObjectPair;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+import static com.unboundid.ldap.listener.ListenerMessages.*;
+
+
+
+/**
+ * This class provides a data structure that holds the complete, ordered set of
+ * entries and references that matched a search request, so that subsequent
+ * requests in a simple paged results or virtual list view series can retrieve
+ * a portion of the results without needing to search and sort the data again.
+ * Each cursor is identified by a unique ID that is encoded in the cookie or
+ * context ID returned to the client, along with the position of the next
+ * entry to return.
+ */
+@Mutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class InMemoryDirectoryServerSearchCursor
+{
+  /**
+   * The counter used to assign cursor IDs.
+   */
+  private static final AtomicLong NEXT_CURSOR_ID = new AtomicLong(0L);
+
+
+
+  // The time that this cursor was last accessed.
+  private volatile long lastAccessTime;
+
+  // The unique identifier for this cursor.
+  private final long cursorID;
+
+  // The matching entries, in the order that they should be returned.
+  private final List<Entry> entries;
+
+  // The matching search result references.
+  private final List<SearchResultReference> references;
+
+  // A string that identifies the search request for which the cursor was
+  // created.
+  private final String requestKey;
+
+
+
+  /**
+   * Creates a new search cursor with the provided information.
+   *
+   * @param  requestKey  A string that identifies the search request for which
+   *                     the cursor was created, as returned by the
+   *                     {@link #getRequestKey} method.
+   * @param  entries     The matching entries, in the order that they should be
+   *                     returned.  It will not be copied, so it must not be
+   *                     altered after the cursor has been created.
+   * @param  references  The matching search result references.
+   */
+  InMemoryDirectoryServerSearchCursor(final String requestKey,
+       final List<Entry> entries,
+       final List<SearchResultReference> references)
+  {
+    this.requestKey = requestKey;
+    this.entries    = Collections.unmodifiableList(entries);
+    this.references = Collections.unmodifiableList(
+         new ArrayList<SearchResultReference>(references));
+
+    cursorID       = NEXT_CURSOR_ID.incrementAndGet();
+    lastAccessTime = System.currentTimeMillis();
+  }
+
+
+
+  /**
+   * Retrieves the unique identifier for this cursor.
+   *
+   * @return  The unique identifier for this cursor.
+   */
+  long getCursorID()
+  {
+    return cursorID;
+  }
+
+
+
+  /**
+   * Retrieves a string that identifies the search request for which this
+   * cursor was created.
+   *
+   * @return  A string that identifies the search request for which this cursor
+   *          was created.
+   */
+  String getRequestKey()
+  {
+    return requestKey;
+  }
+
+
+
+  /**
+   * Retrieves the matching entries, in the order that they should be returned.
+   *
+   * @return  The matching entries, in the order that they should be returned.
+   */
+  List<Entry> getEntries()
+  {
+    return entries;
+  }
+
+
+
+  /**
+   * Retrieves the matching search result references.
+   *
+   * @return  The matching search result references.
+   */
+  List<SearchResultReference> getReferences()
+  {
+    return references;
+  }
+
+
+
+  /**
+   * Retrieves the time that this cursor was last accessed.
+   *
+   * @return  The time that this cursor was last accessed.
+   */
+  long getLastAccessTime()
+  {
+    return lastAccessTime;
+  }
+
+
+
+  /**
+   * Updates the time that this cursor was last accessed to the current time.
+   */
+  void updateLastAccessTime()
+  {
+    lastAccessTime = System.currentTimeMillis();
+  }
+
+
+
+  /**
+   * Encodes a cookie that refers to this cursor and the provided position.
+   *
+   * @param  offset  The position of the next entry to return.
+   *
+   * @return  The encoded cookie.
+   */
+  ASN1OctetString encodeCookie(final int offset)
+  {
+    final ASN1Sequence cookieSequence = new ASN1Sequence(
+         new ASN1Long(cursorID),
+         new ASN1Integer(offset));
+    return new ASN1OctetString(cookieSequence.encode());
+  }
+
+
+
+  /**
+   * Decodes the provided cookie.  The cookie may have been created by the
+   * {@link #encodeCookie} method, or it may simply be the encoded
+   * representation of an integer offset.
+   *
+   * @param  cookie  The cookie to be decoded.  It must not be {@code null}.
+   *
+   * @return  An object pair in which the first element is the cursor ID (or
+   *          {@code null} if the cookie does not refer to a cursor) and the
+   *          second element is the position of the next entry to return.
+   *
+   * @throws  LDAPException  If the provided cookie cannot be decoded.
+   */
+  static ObjectPair<Long,Integer> decodeCookie(final ASN1OctetString cookie)
+         throws LDAPException
+  {
+    try
+    {
+      final ASN1Element element = ASN1Element.decode(cookie.getValue());
+      if (element.getType() == ASN1Constants.UNIVERSAL_INTEGER_TYPE)
+      {
+        final int offset = ASN1Integer.decodeAsInteger(element).intValue();
+        return new ObjectPair<Long,Integer>(null, offset);
+      }
+
+      final ASN1Element[] elements =
+           ASN1Sequence.decodeAsSequence(element).elements();
+      final long cursorID = ASN1Long.decodeAsLong(elements[0]).longValue();
+      final int offset = ASN1Integer.decodeAsInteger(elements[1]).intValue();
+      return new ObjectPair<Long,Integer>(cursorID, offset);
+    }
+    catch (final Exception e)
+    {
+      Debug.debugException(e);
+      throw new LDAPException(ResultCode.PROTOCOL_ERROR,
+           ERR_MEM_HANDLER_MALFORMED_PAGED_RESULTS_COOKIE.get(), e);
+    }
+  }
+
+
+
+  /**
+   * Retrieves a string that identifies the set and order of entries that would
+   * be returned for a search request with the provided criteria.  A cursor may
+   * only be used for a request with the same key as the request for which it
+   * was created.
+   *
+   * @param  baseDN              The base DN for the search request.
+   * @param  scope               The scope for the search request.
+   * @param  filter              The filter for the search request.
+   * @param  sortRequestControl  The server-side sort request control included
+   *                             in the search request, if any.
+   * @param  includeSubEntries   Indicates whether LDAP subentries should be
+   *                             included in the results.
+   * @param  hasManageDsaIT      Indicates whether the request included the
+   *                             ManageDsaIT control.
+   *
+   * @return  A string that identifies the set and order of entries that would
+   *          be returned for a search request with the provided criteria.
+   */
+  static String getRequestKey(final DN baseDN, final SearchScope scope,
+                    final Filter filter,
+                    final ServerSideSortRequestControl sortRequestControl,
+                    final boolean includeSubEntries,
+                    final boolean hasManageDsaIT)
+  {
+    final StringBuilder buffer = new StringBuilder();
+    buffer.append(baseDN.toNormalizedString());
+    buffer.append('\u0000');
+    buffer.append(scope.intValue());
+    buffer.append('\u0000');
+    filter.toNormalizedString(buffer);
+    buffer.append('\u0000');
+    buffer.append(includeSubEntries);
+    buffer.append('\u0000');
+    buffer.append(hasManageDsaIT);
+
+    if (sortRequestControl != null)
+    {
+      for (final SortKey k : sortRequestControl.getSortKeys())
+      {
+        buffer.append('\u0000');
+        k.toString(buffer);
+      }
+    }
+
+    return buffer.toString();
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import com.unboundid.util.Mutable;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+
+
+/**
+ * This class provides a data structure that holds the search cursors created
+ * for a single client connection.  Cursors that have not been accessed within
+ * a configurable length of time will be discarded, and if the maximum number
+ * of cursors is reached then the least recently used cursor will be discarded
+ * to make room for a new one.  Because the cookie for each cursor also holds
+ * the position of the next entry to return, a request that refers to a cursor
+ * that has been discarded can still be processed by searching again.
+ */
+@Mutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class InMemoryDirectoryServerSearchCursorCache
+{
+  /**
+   * The default maximum number of cursors to maintain for a connection.
+   */
+  static final int DEFAULT_MAX_CURSORS = 10;
+
+
+
+  /**
+   * The default length of time in milliseconds that a cursor may remain unused
+   * before it is discarded.
+   */
+  static final long DEFAULT_CURSOR_TIMEOUT_MILLIS = 300000L;
+
+
+
+  // The maximum number of cursors to maintain.
+  private final int maxCursors;
+
+  // The cursors held in this cache, in order of least to most recent use.
+  private final LinkedHashMap<Long,InMemoryDirectoryServerSearchCursor>
+       cursors;
+
+  // The length of time in milliseconds that a cursor may remain unused before
+  // it is discarded.
+  private final long cursorTimeoutMillis;
+
+
+
+  /**
+   * Creates a new search cursor cache with the default settings.
+   */
+  InMemoryDirectoryServerSearchCursorCache()
+  {
+    this(DEFAULT_MAX_CURSORS, DEFAULT_CURSOR_TIMEOUT_MILLIS);
+  }
+
+
+
+  /**
+   * Creates a new search cursor cache with the provided settings.
+   *
+   * @param  maxCursors           The maximum number of cursors to maintain.
+   * @param  cursorTimeoutMillis  The length of time in milliseconds that a
+   *                              cursor may remain unused before it is
+   *                              discarded.
+   */
+  InMemoryDirectoryServerSearchCursorCache(final int maxCursors,
+                                           final long cursorTimeoutMillis)
+  {
+    this.maxCursors          = maxCursors;
+    this.cursorTimeoutMillis = cursorTimeoutMillis;
+
+    cursors = new LinkedHashMap<Long,InMemoryDirectoryServerSearchCursor>(
+         16, 0.75f, true);
+  }
+
+
+
+  /**
+   * Retrieves the cursor with the specified ID, if it is available and was
+   * created for a search request with the provided key.
+   *
+   * @param  cursorID    The ID of the cursor to retrieve.
+   * @param  requestKey  The key for the search request being processed.
+   *
+   * @return  The requested cursor, or {@code null} if it is not available or
+   *          was created for a different search request.
+   */
+  synchronized InMemoryDirectoryServerSearchCursor get(final long cursorID,
+                                                       final String requestKey)
+  {
+    removeExpiredCursors();
+
+    final InMemoryDirectoryServerSearchCursor cursor = cursors.get(cursorID);
+    if ((cursor == null) || (! cursor.getRequestKey().equals(requestKey)))
+    {
+      return null;
+    }
+
+    cursor.updateLastAccessTime();
+    return cursor;
+  }
+
+
+
+  /**
+   * Adds the provided cursor to this cache, discarding the least recently used
+   * cursor if necessary to remain within the maximum number of cursors.
+   *
+   * @param  cursor  The cursor to add.
+   */
+  synchronized void put(final InMemoryDirectoryServerSearchCursor cursor)
+  {
+    removeExpiredCursors();
+
+    if (maxCursors <= 0)
+    {
+      return;
+    }
+
+    while (cursors.size() >= maxCursors)
+    {
+      final Iterator<Long> iterator = cursors.keySet().iterator();
+      iterator.next();
+      iterator.remove();
+    }
+
+    cursors.put(cursor.getCursorID(), cursor);
+  }
+
+
+
+  /**
+   * Removes the provided cursor from this cache.
+   *
+   * @param  cursor  The cursor to remove.
+   */
+  synchronized void remove(final InMemoryDirectoryServerSearchCursor cursor)
+  {
+    cursors.remove(cursor.getCursorID());
+  }
+
+
+
+  /**
+   * Retrieves the number of cursors currently held in this cache.
+   *
+   * @return  The number of cursors currently held in this cache.
+   */
+  synchronized int size()
+  {
+    return cursors.size();
+  }
+
+
+
+  /**
+   * Removes all cursors from this cache.
+   */
+  synchronized void clear()
+  {
+    cursors.clear();
+  }
+
+
+
+  /**
+   * Removes any cursors that have not been accessed within the cursor timeout.
+   */
+  private void removeExpiredCursors()
+  {
+    final long minAccessTime = System.currentTimeMillis() - cursorTimeoutMillis;
+
+    final Iterator<InMemoryDirectoryServerSearchCursor> iterator =
+         cursors.values().iterator();
+    while (iterator.hasNext())
+    {
+      if (iterator.next().getLastAccessTime() < minAccessTime)
+      {
+        iterator.remove();
+      }
+      else
+      {
+        // The cursors are ordered by last access time, so there can't be any
+        // more expired cursors.
+        return;
+      }
+    }
+  }
+}
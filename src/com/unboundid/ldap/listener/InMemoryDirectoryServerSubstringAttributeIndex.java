@@ -0,0 +1,371 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.ldap.matchingrules.MatchingRule;
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.schema.Schema;
+import com.unboundid.util.Debug;
+import com.unboundid.util.Mutable;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+import static com.unboundid.ldap.listener.ListenerMessages.*;
+
+
+
+/**
+ * This class provides a data structure for maintaining a substring index for a
+ * specified attribute.  The index maps each three-byte sequence (trigram) of
+ * the normalized values to the DNs of the entries that contain it.  The start
+ * and end of each value are marked so that subInitial and subFinal components
+ * can be matched against the corresponding position.  A substring filter is
+ * processed by intersecting the sets for all of the trigrams of its
+ * components, which yields a set of candidate entries that must still be
+ * checked against the filter.
+ */
+@Mutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class InMemoryDirectoryServerSubstringAttributeIndex
+      extends InMemoryDirectoryServerAttributeIndex
+{
+  /**
+   * The value used to represent the start or end of a value in a trigram.  It
+   * is outside the range of byte values.
+   */
+  private static final int BOUNDARY = 256;
+
+
+
+  /**
+   * The number of distinct values that may appear in each position of a
+   * trigram.
+   */
+  private static final int RADIX = 257;
+
+
+
+  // A map from trigrams to the DNs of entries with values that contain them.
+  private final Map<Integer,TreeSet<DN>> indexMap;
+
+  // The matching rule used to normalize values.
+  private final MatchingRule matchingRule;
+
+
+
+  /**
+   * Creates a new substring attribute index for the specified attribute type.
+   *
+   * @param  attributeType  The name or OID of the attribute type with which
+   *                        this index is associated.  It must be defined in the
+   *                        schema.
+   * @param  schema         The schema for the server.  It must not be
+   *                        {@code null}.
+   *
+   * @throws  LDAPException  If the specified attribute type is not defined in
+   *                         the schema.
+   */
+  InMemoryDirectoryServerSubstringAttributeIndex(final String attributeType,
+                                                 final Schema schema)
+       throws LDAPException
+  {
+    super(attributeType, schema, ERR_DS_SUBSTRING_INDEX_NO_SCHEMA,
+         ERR_DS_SUBSTRING_INDEX_UNDEFINED_ATTRIBUTE_TYPE);
+
+    matchingRule = MatchingRule.selectSubstringMatchingRule(attributeType,
+         schema);
+
+    indexMap = new HashMap<Integer,TreeSet<DN>>(100);
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  String getIndexType()
+  {
+    return "substring";
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  synchronized void clear()
+  {
+    indexMap.clear();
+  }
+
+
+
+  /**
+   * Retrieves the number of distinct trigrams held in this index.  This is
+   * only intended for testing purposes.
+   *
+   * @return  The number of distinct trigrams held in this index.
+   */
+  synchronized int getNumTrigrams()
+  {
+    return indexMap.size();
+  }
+
+
+
+  /**
+   * Retrieves the DNs of the entries that may have a value for the associated
+   * attribute that matches the provided substring components.  Every entry that
+   * matches will be included in the set, but the set may also include entries
+   * that do not match.
+   *
+   * @param  subInitial  The subInitial component, or {@code null} if there is
+   *                     none.
+   * @param  subAny      The subAny components, or {@code null} or empty if
+   *                     there are none.
+   * @param  subFinal    The subFinal component, or {@code null} if there is
+   *                     none.
+   *
+   * @return  A set containing the DNs of the candidate entries, or
+   *          {@code null} if the components are too short to be used to
+   *          narrow the set of candidates.
+   *
+   * @throws  LDAPException  If a problem is encountered while attempting to
+   *                         normalize the substring components.
+   */
+  synchronized Set<DN> getCandidateEntries(final ASN1OctetString subInitial,
+                                           final ASN1OctetString[] subAny,
+                                           final ASN1OctetString subFinal)
+               throws LDAPException
+  {
+    final LinkedHashSet<Integer> trigrams = new LinkedHashSet<Integer>(20);
+    if (subInitial != null)
+    {
+      addTrigrams(matchingRule.normalizeSubstring(subInitial,
+           MatchingRule.SUBSTRING_TYPE_SUBINITIAL).getValue(), true, false,
+           trigrams);
+    }
+
+    if (subAny != null)
+    {
+      for (final ASN1OctetString s : subAny)
+      {
+        addTrigrams(matchingRule.normalizeSubstring(s,
+             MatchingRule.SUBSTRING_TYPE_SUBANY).getValue(), false, false,
+             trigrams);
+      }
+    }
+
+    if (subFinal != null)
+    {
+      addTrigrams(matchingRule.normalizeSubstring(subFinal,
+           MatchingRule.SUBSTRING_TYPE_SUBFINAL).getValue(), false, true,
+           trigrams);
+    }
+
+    if (trigrams.isEmpty())
+    {
+      return null;
+    }
+
+    final List<TreeSet<DN>> dnSets =
+         new ArrayList<TreeSet<DN>>(trigrams.size());
+    for (final Integer t : trigrams)
+    {
+      final TreeSet<DN> dnSet = indexMap.get(t);
+      if (dnSet == null)
+      {
+        return Collections.emptySet();
+      }
+      dnSets.add(dnSet);
+    }
+
+
+    // Start with the smallest set so that the intersection is as cheap as
+    // possible.
+    Collections.sort(dnSets, new Comparator<Set<DN>>()
+    {
+      @Override()
+      public int compare(final Set<DN> s1, final Set<DN> s2)
+      {
+        return (s1.size() - s2.size());
+      }
+    });
+
+    final TreeSet<DN> candidates = new TreeSet<DN>(dnSets.get(0));
+    for (int i=1; i < dnSets.size(); i++)
+    {
+      if (candidates.isEmpty())
+      {
+        break;
+      }
+      candidates.retainAll(dnSets.get(i));
+    }
+
+    return candidates;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  synchronized void processAdd(final Entry entry)
+               throws LDAPException
+  {
+    final Attribute a = getAttribute(entry);
+    if (a != null)
+    {
+      final DN dn = entry.getParsedDN();
+      for (final Integer t : getTrigrams(a))
+      {
+        TreeSet<DN> dnSet = indexMap.get(t);
+        if (dnSet == null)
+        {
+          dnSet = new TreeSet<DN>();
+          indexMap.put(t, dnSet);
+        }
+        dnSet.add(dn);
+      }
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  synchronized void processDelete(final Entry entry)
+               throws LDAPException
+  {
+    final Attribute a = getAttribute(entry);
+    if (a != null)
+    {
+      final DN dn = entry.getParsedDN();
+      for (final Integer t : getTrigrams(a))
+      {
+        final TreeSet<DN> dnSet = indexMap.get(t);
+        if (dnSet != null)
+        {
+          dnSet.remove(dn);
+          if (dnSet.isEmpty())
+          {
+            indexMap.remove(t);
+          }
+        }
+      }
+    }
+  }
+
+
+
+  /**
+   * Retrieves the set of trigrams for all values of the provided attribute.
+   * Values that cannot be normalized will be ignored.
+   *
+   * @param  a  The attribute for which to retrieve the trigrams.
+   *
+   * @return  The set of trigrams for all values of the provided attribute.
+   */
+  private Set<Integer> getTrigrams(final Attribute a)
+  {
+    final LinkedHashSet<Integer> trigrams = new LinkedHashSet<Integer>(50);
+    for (final ASN1OctetString v : a.getRawValues())
+    {
+      try
+      {
+        addTrigrams(matchingRule.normalize(v).getValue(), true, true,
+             trigrams);
+      }
+      catch (final LDAPException le)
+      {
+        Debug.debugException(le);
+      }
+    }
+
+    return trigrams;
+  }
+
+
+
+  /**
+   * Adds the trigrams for the provided normalized bytes to the given set.
+   *
+   * @param  b         The normalized bytes for which to add the trigrams.
+   * @param  atStart   Indicates whether the bytes are anchored at the start of
+   *                   a value.
+   * @param  atEnd     Indicates whether the bytes are anchored at the end of a
+   *                   value.
+   * @param  trigrams  The set to which the trigrams should be added.
+   */
+  private static void addTrigrams(final byte[] b, final boolean atStart,
+                                  final boolean atEnd,
+                                  final Set<Integer> trigrams)
+  {
+    final int length = b.length + (atStart ? 1 : 0) + (atEnd ? 1 : 0);
+    if (length < 3)
+    {
+      return;
+    }
+
+    final int[] values = new int[length];
+    int pos = 0;
+    if (atStart)
+    {
+      values[pos++] = BOUNDARY;
+    }
+
+    for (final byte x : b)
+    {
+      values[pos++] = (x & 0xFF);
+    }
+
+    if (atEnd)
+    {
+      values[pos] = BOUNDARY;
+    }
+
+    for (int i=2; i < length; i++)
+    {
+      trigrams.add(((values[i-2] * RADIX) + values[i-1]) * RADIX + values[i]);
+    }
+  }
+}
@@ -132,6 +132,11 @@ import static com.unboundid.ldap.listener.ListenerMessages.*;
  *       index should be maintained for the specified attribute.  The equality
  *       index may be used to speed up certain kinds of searches, although it
  *       will cause the server to consume more memory.</LI>
+ *   <LI>"--presenceIndex {attr}", "--substringIndex {attr}", and
+ *       "--orderingIndex {attr}" -- specify that a presence, substring, or
+ *       ordering index, respectively, should be maintained for the specified
+ *       attribute.  Like equality indexes, these indexes may be used to speed
+ *       up certain kinds of searches at the cost of additional memory.</LI>
  *   <LI>"-Z" or "--useSSL" -- indicates that the server should encrypt all
  *       communication using SSL.  If this is provided, then the
  *       "--keyStorePath" and "--keyStorePassword" arguments must also be
@@ -267,6 +272,18 @@ public final class InMemoryDirectoryServerTool
   // indexes.
   private StringArgument equalityIndexArgument;
 
+  // The argument used to specify the attributes for which to maintain presence
+  // indexes.
+  private StringArgument presenceIndexArgument;
+
+  // The argument used to specify the attributes for which to maintain substring
+  // indexes.
+  private StringArgument substringIndexArgument;
+
+  // The argument used to specify the attributes for which to maintain ordering
+  // indexes.
+  private StringArgument orderingIndexArgument;
+
   // The argument used to specify the password to use to access the contents of
   // the SSL key store
   private StringArgument keyStorePasswordArgument;
@@ -370,6 +387,9 @@ public final class InMemoryDirectoryServerTool
     portArgument                      = null;
     additionalBindPasswordArgument    = null;
     equalityIndexArgument             = null;
+    presenceIndexArgument             = null;
+    substringIndexArgument            = null;
+    orderingIndexArgument             = null;
     keyStorePasswordArgument          = null;
     keyStoreTypeArgument              = null;
     trustStorePasswordArgument        = null;
@@ -569,6 +589,30 @@ public final class InMemoryDirectoryServerTool
     equalityIndexArgument.addLongIdentifier("equality-index");
     parser.addArgument(equalityIndexArgument);
 
+    presenceIndexArgument = new StringArgument(null, "presenceIndex", false, 0,
+         INFO_MEM_DS_TOOL_ARG_PLACEHOLDER_ATTR.get(),
+         INFO_MEM_DS_TOOL_ARG_DESC_PRESENCE_INDEX.get());
+    presenceIndexArgument.setArgumentGroupName(
+         INFO_MEM_DS_TOOL_GROUP_DATA.get());
+    presenceIndexArgument.addLongIdentifier("presence-index");
+    parser.addArgument(presenceIndexArgument);
+
+    substringIndexArgument = new StringArgument(null, "substringIndex", false,
+         0, INFO_MEM_DS_TOOL_ARG_PLACEHOLDER_ATTR.get(),
+         INFO_MEM_DS_TOOL_ARG_DESC_SUBSTRING_INDEX.get());
+    substringIndexArgument.setArgumentGroupName(
+         INFO_MEM_DS_TOOL_GROUP_DATA.get());
+    substringIndexArgument.addLongIdentifier("substring-index");
+    parser.addArgument(substringIndexArgument);
+
+    orderingIndexArgument = new StringArgument(null, "orderingIndex", false, 0,
+         INFO_MEM_DS_TOOL_ARG_PLACEHOLDER_ATTR.get(),
+         INFO_MEM_DS_TOOL_ARG_DESC_ORDERING_INDEX.get());
+    orderingIndexArgument.setArgumentGroupName(
+         INFO_MEM_DS_TOOL_GROUP_DATA.get());
+    orderingIndexArgument.addLongIdentifier("ordering-index");
+    parser.addArgument(orderingIndexArgument);
+
     maxChangeLogEntriesArgument = new IntegerArgument('c',
          "maxChangeLogEntries", false, 1,
          INFO_MEM_DS_TOOL_ARG_PLACEHOLDER_COUNT.get(),
@@ -1050,13 +1094,31 @@ public final class InMemoryDirectoryServerTool
     }
 
 
-    // If equality indexing is to be performed, then configure it.
+    // If indexing is to be performed, then configure it.
     if (equalityIndexArgument.isPresent())
     {
       serverConfig.setEqualityIndexAttributes(
            equalityIndexArgument.getValues());
     }
 
+    if (presenceIndexArgument.isPresent())
+    {
+      serverConfig.setPresenceIndexAttributes(
+           presenceIndexArgument.getValues());
+    }
+
+    if (substringIndexArgument.isPresent())
+    {
+      serverConfig.setSubstringIndexAttributes(
+           substringIndexArgument.getValues());
+    }
+
+    if (orderingIndexArgument.isPresent())
+    {
+      serverConfig.setOrderingIndexAttributes(
+           orderingIndexArgument.getValues());
+    }
+
     return serverConfig;
   }
 
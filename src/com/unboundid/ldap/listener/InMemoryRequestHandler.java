@@ -38,12 +38,15 @@ import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-import com.unboundid.asn1.ASN1Integer;
 import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.ldap.protocol.AbandonRequestProtocolOp;
 import com.unboundid.ldap.protocol.AddRequestProtocolOp;
 import com.unboundid.ldap.protocol.AddResponseProtocolOp;
 import com.unboundid.ldap.protocol.BindRequestProtocolOp;
@@ -71,6 +74,7 @@ import com.unboundid.ldap.protocol.SearchResultReferenceProtocolOp;
 import com.unboundid.ldap.sdk.Attribute;
 import com.unboundid.ldap.sdk.BindResult;
 import com.unboundid.ldap.sdk.ChangeLogEntry;
+import com.unboundid.ldap.sdk.CompiledFilter;
 import com.unboundid.ldap.sdk.Control;
 import com.unboundid.ldap.sdk.DN;
 import com.unboundid.ldap.sdk.Entry;
@@ -121,6 +125,7 @@ import com.unboundid.ldap.sdk.controls.VirtualListViewResponseControl;
 import com.unboundid.ldap.sdk.experimental.
             DraftZeilengaLDAPNoOp12RequestControl;
 import com.unboundid.ldap.sdk.extensions.AbortedTransactionExtendedResult;
+import com.unboundid.ldap.sdk.extensions.CancelExtendedRequest;
 import com.unboundid.ldap.sdk.extensions.StartTLSExtendedRequest;
 import com.unboundid.ldif.LDIFAddChangeRecord;
 import com.unboundid.ldif.LDIFDeleteChangeRecord;
@@ -223,6 +228,30 @@ public final class InMemoryRequestHandler
   private final Map<AttributeTypeDefinition,
      InMemoryDirectoryServerEqualityAttributeIndex> equalityIndexes;
 
+  // The set of presence indexes defined for the server.
+  private final Map<AttributeTypeDefinition,
+     InMemoryDirectoryServerPresenceAttributeIndex> presenceIndexes;
+
+  // The set of substring indexes defined for the server.
+  private final Map<AttributeTypeDefinition,
+     InMemoryDirectoryServerSubstringAttributeIndex> substringIndexes;
+
+  // The set of ordering indexes defined for the server.
+  private final Map<AttributeTypeDefinition,
+     InMemoryDirectoryServerOrderingAttributeIndex> orderingIndexes;
+
+  // All of the indexes defined for the server.
+  private final List<InMemoryDirectoryServerAttributeIndex> indexes;
+
+  // The number of searches for which indexes were used to obtain the set of
+  // candidate entries.
+  private final AtomicLong indexHitCount;
+
+  // The number of searches for which it was necessary to examine every entry
+  // in the target subtree because the filter could not be processed using
+  // indexes.
+  private final AtomicLong indexMissCount;
+
   // An additional set of credentials that may be used for bind operations.
   private final Map<DN,byte[]> additionalBindCredentials;
 
@@ -233,6 +262,15 @@ public final class InMemoryRequestHandler
   // A map of the available SASL bind handlers by mechanism name.
   private final Map<String,InMemorySASLBindHandler> saslBindHandlers;
 
+  // The cursors for simple paged results and virtual list view searches
+  // processed on the associated connection.
+  private final InMemoryDirectoryServerSearchCursorCache searchCursors;
+
+  // The searches currently in progress on the associated connection, indexed
+  // by message ID.
+  private final ConcurrentHashMap<Integer,InMemoryDirectoryServerActiveSearch>
+       activeSearches;
+
   // A map of state information specific to the associated connection.
   private final Map<String,Object> connectionState;
 
@@ -242,8 +280,16 @@ public final class InMemoryRequestHandler
   // The set of referential integrity attributes for the server.
   private final Set<String> referentialIntegrityAttributes;
 
-  // The map of entries currently held in the server.
-  private final Map<DN,ReadOnlyEntry> entryMap;
+  // The map of entries currently held in the server.  Because DNs are ordered
+  // hierarchically, the entries in any subtree will be held contiguously in
+  // this map, starting with the base entry of that subtree.
+  private final TreeMap<DN,ReadOnlyEntry> entryMap;
+
+  // The lock used to protect the entry map and the associated indexes and
+  // changelog.  Operations that only read data will hold the read lock so that
+  // they may be processed concurrently, while operations that may alter the
+  // data will hold the write lock.
+  private final ReentrantReadWriteLock entryMapLock;
 
 
 
@@ -286,6 +332,7 @@ public final class InMemoryRequestHandler
     }
 
     entryMap = new TreeMap<DN,ReadOnlyEntry>();
+    entryMapLock = new ReentrantReadWriteLock();
 
     final LinkedHashSet<DN> baseDNSet =
          new LinkedHashSet<DN>(Arrays.asList(baseDNArray));
@@ -353,6 +400,9 @@ public final class InMemoryRequestHandler
     additionalBindCredentials = Collections.unmodifiableMap(
          config.getAdditionalBindCredentials());
 
+    final ArrayList<InMemoryDirectoryServerAttributeIndex> indexList =
+         new ArrayList<InMemoryDirectoryServerAttributeIndex>(10);
+
     final List<String> eqIndexAttrs = config.getEqualityIndexAttributes();
     equalityIndexes = new HashMap<AttributeTypeDefinition,
          InMemoryDirectoryServerEqualityAttributeIndex>(eqIndexAttrs.size());
@@ -361,8 +411,46 @@ public final class InMemoryRequestHandler
       final InMemoryDirectoryServerEqualityAttributeIndex i =
            new InMemoryDirectoryServerEqualityAttributeIndex(s, schema);
       equalityIndexes.put(i.getAttributeType(), i);
+      indexList.add(i);
+    }
+
+    final List<String> presIndexAttrs = config.getPresenceIndexAttributes();
+    presenceIndexes = new HashMap<AttributeTypeDefinition,
+         InMemoryDirectoryServerPresenceAttributeIndex>(presIndexAttrs.size());
+    for (final String s : presIndexAttrs)
+    {
+      final InMemoryDirectoryServerPresenceAttributeIndex i =
+           new InMemoryDirectoryServerPresenceAttributeIndex(s, schema);
+      presenceIndexes.put(i.getAttributeType(), i);
+      indexList.add(i);
     }
 
+    final List<String> subIndexAttrs = config.getSubstringIndexAttributes();
+    substringIndexes = new HashMap<AttributeTypeDefinition,
+         InMemoryDirectoryServerSubstringAttributeIndex>(subIndexAttrs.size());
+    for (final String s : subIndexAttrs)
+    {
+      final InMemoryDirectoryServerSubstringAttributeIndex i =
+           new InMemoryDirectoryServerSubstringAttributeIndex(s, schema);
+      substringIndexes.put(i.getAttributeType(), i);
+      indexList.add(i);
+    }
+
+    final List<String> ordIndexAttrs = config.getOrderingIndexAttributes();
+    orderingIndexes = new HashMap<AttributeTypeDefinition,
+         InMemoryDirectoryServerOrderingAttributeIndex>(ordIndexAttrs.size());
+    for (final String s : ordIndexAttrs)
+    {
+      final InMemoryDirectoryServerOrderingAttributeIndex i =
+           new InMemoryDirectoryServerOrderingAttributeIndex(s, schema);
+      orderingIndexes.put(i.getAttributeType(), i);
+      indexList.add(i);
+    }
+
+    indexes = Collections.unmodifiableList(indexList);
+    indexHitCount = new AtomicLong(0L);
+    indexMissCount = new AtomicLong(0L);
+
     referentialIntegrityAttributes = Collections.unmodifiableSet(
          config.getReferentialIntegrityAttributes());
 
@@ -371,6 +459,9 @@ public final class InMemoryRequestHandler
     authenticatedDN               = new DN("cn=Internal Root User", schema);
     connection                    = null;
     connectionState               = Collections.emptyMap();
+    searchCursors = new InMemoryDirectoryServerSearchCursorCache();
+    activeSearches =
+         new ConcurrentHashMap<Integer,InMemoryDirectoryServerActiveSearch>();
     firstChangeNumber             = new AtomicLong(0L);
     lastChangeNumber              = new AtomicLong(0L);
     processingDelayMillis         = new AtomicLong(0L);
@@ -436,6 +527,9 @@ public final class InMemoryRequestHandler
     authenticatedDN = DN.NULL_DN;
     connectionState =
          Collections.synchronizedMap(new LinkedHashMap<String,Object>(0));
+    searchCursors = new InMemoryDirectoryServerSearchCursorCache();
+    activeSearches =
+         new ConcurrentHashMap<Integer,InMemoryDirectoryServerActiveSearch>();
 
     config                         = parent.config;
     generateOperationalAttributes  = parent.generateOperationalAttributes;
@@ -448,8 +542,15 @@ public final class InMemoryRequestHandler
     maxChangelogEntries            = parent.maxChangelogEntries;
     maxSizeLimit                   = parent.maxSizeLimit;
     equalityIndexes                = parent.equalityIndexes;
+    presenceIndexes                = parent.presenceIndexes;
+    substringIndexes               = parent.substringIndexes;
+    orderingIndexes                = parent.orderingIndexes;
+    indexes                        = parent.indexes;
+    indexHitCount                  = parent.indexHitCount;
+    indexMissCount                 = parent.indexMissCount;
     referentialIntegrityAttributes = parent.referentialIntegrityAttributes;
     entryMap                       = parent.entryMap;
+    entryMapLock                   = parent.entryMapLock;
     entryValidatorRef              = parent.entryValidatorRef;
     extendedRequestHandlers        = parent.extendedRequestHandlers;
     saslBindHandlers               = parent.saslBindHandlers;
@@ -493,11 +594,16 @@ public final class InMemoryRequestHandler
    */
   public InMemoryDirectoryServerSnapshot createSnapshot()
   {
-    synchronized (entryMap)
+    entryMapLock.readLock().lock();
+    try
     {
       return new InMemoryDirectoryServerSnapshot(entryMap,
            firstChangeNumber.get(), lastChangeNumber.get());
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
   }
 
 
@@ -511,13 +617,13 @@ public final class InMemoryRequestHandler
    */
   public void restoreSnapshot(final InMemoryDirectoryServerSnapshot snapshot)
   {
-    synchronized (entryMap)
+    entryMapLock.writeLock().lock();
+    try
     {
       entryMap.clear();
       entryMap.putAll(snapshot.getEntryMap());
 
-      for (final InMemoryDirectoryServerEqualityAttributeIndex i :
-           equalityIndexes.values())
+      for (final InMemoryDirectoryServerAttributeIndex i : indexes)
       {
         i.clear();
         for (final Entry e : entryMap.values())
@@ -536,6 +642,10 @@ public final class InMemoryRequestHandler
       firstChangeNumber.set(snapshot.getFirstChangeNumber());
       lastChangeNumber.set(snapshot.getLastChangeNumber());
     }
+    finally
+    {
+      entryMapLock.writeLock().unlock();
+    }
   }
 
 
@@ -708,6 +818,34 @@ public final class InMemoryRequestHandler
 
 
 
+  /**
+   * Attempts to stop processing for the search operation targeted by the
+   * provided abandon request, if it is still in progress on the associated
+   * connection.  Other types of operations cannot be abandoned.
+   *
+   * @param  messageID  The message ID of the LDAP message containing the
+   *                    abandon request.
+   * @param  request    The abandon request that was included in the LDAP
+   *                    message that was received.
+   * @param  controls   The set of controls included in the LDAP message.  It
+   *                    may be empty if there were no controls, but will not be
+   *                    {@code null}.
+   */
+  @Override()
+  public void processAbandonRequest(final int messageID,
+                                    final AbandonRequestProtocolOp request,
+                                    final List<Control> controls)
+  {
+    final InMemoryDirectoryServerActiveSearch activeSearch =
+         activeSearches.get(request.getIDToAbandon());
+    if (activeSearch != null)
+    {
+      activeSearch.requestCancel();
+    }
+  }
+
+
+
   /**
    * Attempts to add an entry to the in-memory data set.  The attempt will fail
    * if any of the following conditions is true:
@@ -745,7 +883,8 @@ public final class InMemoryRequestHandler
                                        final AddRequestProtocolOp request,
                                        final List<Control> controls)
   {
-    synchronized (entryMap)
+    entryMapLock.writeLock().lock();
+    try
     {
       // Sleep before processing, if appropriate.
       sleepBeforeProcessing();
@@ -1094,6 +1233,10 @@ public final class InMemoryRequestHandler
                 dn.getParentString()),
            null));
     }
+    finally
+    {
+      entryMapLock.writeLock().unlock();
+    }
   }
 
 
@@ -1129,7 +1272,21 @@ public final class InMemoryRequestHandler
                                         final BindRequestProtocolOp request,
                                         final List<Control> controls)
   {
-    synchronized (entryMap)
+    final Lock lock;
+    if (request.getCredentialsType() ==
+         BindRequestProtocolOp.CRED_TYPE_SASL)
+    {
+      // SASL bind handlers may call back into this request handler to
+      // perform any kind of operation, so they need the write lock.
+      lock = entryMapLock.writeLock();
+    }
+    else
+    {
+      lock = entryMapLock.readLock();
+    }
+
+    lock.lock();
+    try
     {
       // Sleep before processing, if appropriate.
       sleepBeforeProcessing();
@@ -1348,6 +1505,10 @@ public final class InMemoryRequestHandler
              null));
       }
     }
+    finally
+    {
+      lock.unlock();
+    }
   }
 
 
@@ -1378,7 +1539,8 @@ public final class InMemoryRequestHandler
                           final CompareRequestProtocolOp request,
                           final List<Control> controls)
   {
-    synchronized (entryMap)
+    entryMapLock.readLock().lock();
+    try
     {
       // Sleep before processing, if appropriate.
       sleepBeforeProcessing();
@@ -1505,6 +1667,10 @@ public final class InMemoryRequestHandler
            new CompareResponseProtocolOp(resultCode, null, null, null),
            responseControls);
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
   }
 
 
@@ -1539,7 +1705,8 @@ public final class InMemoryRequestHandler
                                           final DeleteRequestProtocolOp request,
                                           final List<Control> controls)
   {
-    synchronized (entryMap)
+    entryMapLock.writeLock().lock();
+    try
     {
       // Sleep before processing, if appropriate.
       sleepBeforeProcessing();
@@ -1673,13 +1840,15 @@ public final class InMemoryRequestHandler
       // Create a list with the DN of the target entry, and all the DNs of its
       // subordinates.  If the entry has subordinates and the subtree delete
       // control was not provided, then fail.
-      final ArrayList<DN> subordinateDNs = new ArrayList<DN>(entryMap.size());
-      for (final DN mapEntryDN : entryMap.keySet())
+      final ArrayList<DN> subordinateDNs = new ArrayList<DN>(10);
+      for (final DN mapEntryDN : entryMap.tailMap(dn, false).keySet())
       {
-        if (mapEntryDN.isDescendantOf(dn, false))
+        if (! mapEntryDN.isDescendantOf(dn, false))
         {
-          subordinateDNs.add(mapEntryDN);
+          break;
         }
+
+        subordinateDNs.add(mapEntryDN);
       }
 
       if ((! subordinateDNs.isEmpty()) &&
@@ -1738,6 +1907,10 @@ public final class InMemoryRequestHandler
                 null, null),
            responseControls);
     }
+    finally
+    {
+      entryMapLock.writeLock().unlock();
+    }
   }
 
 
@@ -1812,7 +1985,16 @@ public final class InMemoryRequestHandler
                           final ExtendedRequestProtocolOp request,
                           final List<Control> controls)
   {
-    synchronized (entryMap)
+    // Cancel requests must be processed without holding the lock, since the
+    // search to be canceled may be holding it.
+    if (request.getOID().equals(CancelExtendedRequest.CANCEL_REQUEST_OID) &&
+        (! extendedRequestHandlers.containsKey(request.getOID())))
+    {
+      return processCancelRequest(messageID, request, controls);
+    }
+
+    entryMapLock.writeLock().lock();
+    try
     {
       // Sleep before processing, if appropriate.
       sleepBeforeProcessing();
@@ -1893,6 +2075,114 @@ public final class InMemoryRequestHandler
              null, null, null));
       }
     }
+    finally
+    {
+      entryMapLock.writeLock().unlock();
+    }
+  }
+
+
+
+  /**
+   * Attempts to process the provided cancel extended request.  Only search
+   * operations in progress on the associated connection may be canceled.  The
+   * response will not be returned until processing has completed for the
+   * search operation.
+   *
+   * @param  messageID  The message ID of the LDAP message containing the
+   *                    cancel request.
+   * @param  request    The cancel request that was included in the LDAP
+   *                    message that was received.
+   * @param  controls   The set of controls included in the LDAP message.  It
+   *                    may be empty if there were no controls, but will not be
+   *                    {@code null}.
+   *
+   * @return  The {@link LDAPMessage} containing the response to send to the
+   *          client.
+   */
+  private LDAPMessage processCancelRequest(final int messageID,
+                           final ExtendedRequestProtocolOp request,
+                           final List<Control> controls)
+  {
+    // If this operation type is not allowed, then reject it.
+    if (! config.getAllowedOperationTypes().contains(OperationType.EXTENDED))
+    {
+      return new LDAPMessage(messageID, new ExtendedResponseProtocolOp(
+           ResultCode.UNWILLING_TO_PERFORM_INT_VALUE, null,
+           ERR_MEM_HANDLER_EXTENDED_NOT_ALLOWED.get(), null, null, null));
+    }
+
+
+    // If this operation type requires authentication, then ensure that the
+    // client is authenticated.
+    if ((getAuthenticatedDN().isNullDN() &&
+         config.getAuthenticationRequiredOperationTypes().contains(
+              OperationType.EXTENDED)))
+    {
+      return new LDAPMessage(messageID, new ExtendedResponseProtocolOp(
+           ResultCode.INSUFFICIENT_ACCESS_RIGHTS_INT_VALUE, null,
+           ERR_MEM_HANDLER_EXTENDED_REQUIRES_AUTH.get(), null, null, null));
+    }
+
+
+    final int targetMessageID;
+    try
+    {
+      final Control[] controlArray = new Control[controls.size()];
+      controls.toArray(controlArray);
+
+      final CancelExtendedRequest cancelRequest = new CancelExtendedRequest(
+           request.toExtendedRequest(controlArray));
+      targetMessageID = cancelRequest.getTargetMessageID();
+    }
+    catch (final LDAPException le)
+    {
+      Debug.debugException(le);
+      return new LDAPMessage(messageID, new ExtendedResponseProtocolOp(
+           le.getResultCode().intValue(), null, le.getMessage(), null, null,
+           null));
+    }
+
+    final InMemoryDirectoryServerActiveSearch activeSearch =
+         activeSearches.get(targetMessageID);
+    if (activeSearch == null)
+    {
+      return new LDAPMessage(messageID, new ExtendedResponseProtocolOp(
+           ResultCode.NO_SUCH_OPERATION_INT_VALUE, null,
+           ERR_MEM_HANDLER_CANCEL_NO_SUCH_OPERATION.get(targetMessageID),
+           null, null, null));
+    }
+
+    activeSearch.requestCancel();
+
+    final boolean canceled;
+    try
+    {
+      canceled = activeSearch.awaitCompletion();
+    }
+    catch (final InterruptedException ie)
+    {
+      Debug.debugException(ie);
+      Thread.currentThread().interrupt();
+      return new LDAPMessage(messageID, new ExtendedResponseProtocolOp(
+           ResultCode.OTHER_INT_VALUE, null,
+           ERR_MEM_HANDLER_EXTENDED_OP_FAILURE.get(
+                StaticUtils.getExceptionMessage(ie)),
+           null, null, null));
+    }
+
+    if (canceled)
+    {
+      return new LDAPMessage(messageID, new ExtendedResponseProtocolOp(
+           ResultCode.SUCCESS_INT_VALUE, null, null, null, null, null));
+    }
+    else
+    {
+      return new LDAPMessage(messageID, new ExtendedResponseProtocolOp(
+           ResultCode.TOO_LATE_INT_VALUE, null,
+           ERR_MEM_HANDLER_CANCEL_TOO_LATE.get(targetMessageID), null, null,
+           null));
+    }
   }
 
 
@@ -1928,7 +2218,8 @@ public final class InMemoryRequestHandler
                                           final ModifyRequestProtocolOp request,
                                           final List<Control> controls)
   {
-    synchronized (entryMap)
+    entryMapLock.writeLock().lock();
+    try
     {
       // Sleep before processing, if appropriate.
       sleepBeforeProcessing();
@@ -2190,6 +2481,10 @@ public final class InMemoryRequestHandler
                 null, null),
            responseControls);
     }
+    finally
+    {
+      entryMapLock.writeLock().unlock();
+    }
   }
 
 
@@ -2361,7 +2656,8 @@ public final class InMemoryRequestHandler
                           final ModifyDNRequestProtocolOp request,
                           final List<Control> controls)
   {
-    synchronized (entryMap)
+    entryMapLock.writeLock().lock();
+    try
     {
       // Sleep before processing, if appropriate.
       sleepBeforeProcessing();
@@ -2761,37 +3057,44 @@ public final class InMemoryRequestHandler
       // If the target entry had any subordinates, then rename them as well.
       final RDN[] oldDNComps = dn.getRDNs();
       final RDN[] newDNComps = newDN.getRDNs();
-      final Set<DN> dnSet = new LinkedHashSet<DN>(entryMap.keySet());
-      for (final DN mapEntryDN : dnSet)
+      final ArrayList<DN> dnList = new ArrayList<DN>(10);
+      for (final DN mapEntryDN : entryMap.tailMap(dn, false).keySet())
       {
-        if (mapEntryDN.isDescendantOf(dn, false))
+        if (! mapEntryDN.isDescendantOf(dn, false))
         {
-          final Entry o = entryMap.remove(mapEntryDN);
-          final Entry e = o.duplicate();
+          break;
+        }
 
-          final RDN[] oldMapEntryComps = mapEntryDN.getRDNs();
-          final int compsToSave = oldMapEntryComps.length - oldDNComps.length;
+        dnList.add(mapEntryDN);
+      }
 
-          final RDN[] newMapEntryComps =
-               new RDN[compsToSave + newDNComps.length];
-          System.arraycopy(oldMapEntryComps, 0, newMapEntryComps, 0,
-               compsToSave);
-          System.arraycopy(newDNComps, 0, newMapEntryComps, compsToSave,
-               newDNComps.length);
+      for (final DN mapEntryDN : dnList)
+      {
+        final Entry o = entryMap.remove(mapEntryDN);
+        final Entry e = o.duplicate();
 
-          final DN newMapEntryDN = new DN(newMapEntryComps);
-          e.setDN(newMapEntryDN);
-          if (generateOperationalAttributes)
-          {
-            e.setAttribute(new Attribute("entryDN",
-                 DistinguishedNameMatchingRule.getInstance(),
-                 newMapEntryDN.toNormalizedString()));
-          }
-          entryMap.put(newMapEntryDN, new ReadOnlyEntry(e));
-          indexDelete(o);
-          indexAdd(e);
-          handleReferentialIntegrityModifyDN(mapEntryDN, newMapEntryDN);
+        final RDN[] oldMapEntryComps = mapEntryDN.getRDNs();
+        final int compsToSave = oldMapEntryComps.length - oldDNComps.length;
+
+        final RDN[] newMapEntryComps =
+             new RDN[compsToSave + newDNComps.length];
+        System.arraycopy(oldMapEntryComps, 0, newMapEntryComps, 0,
+             compsToSave);
+        System.arraycopy(newDNComps, 0, newMapEntryComps, compsToSave,
+             newDNComps.length);
+
+        final DN newMapEntryDN = new DN(newMapEntryComps);
+        e.setDN(newMapEntryDN);
+        if (generateOperationalAttributes)
+        {
+          e.setAttribute(new Attribute("entryDN",
+               DistinguishedNameMatchingRule.getInstance(),
+               newMapEntryDN.toNormalizedString()));
         }
+        entryMap.put(newMapEntryDN, new ReadOnlyEntry(e));
+        indexDelete(o);
+        indexAdd(e);
+        handleReferentialIntegrityModifyDN(mapEntryDN, newMapEntryDN);
       }
 
       addChangeLogEntry(request, authzDN);
@@ -2801,6 +3104,10 @@ public final class InMemoryRequestHandler
                 null, null),
            responseControls);
     }
+    finally
+    {
+      entryMapLock.writeLock().unlock();
+    }
   }
 
 
@@ -2891,55 +3198,110 @@ public final class InMemoryRequestHandler
                                           final SearchRequestProtocolOp request,
                                           final List<Control> controls)
   {
-    synchronized (entryMap)
+    final InMemoryDirectoryServerActiveSearch activeSearch =
+         new InMemoryDirectoryServerActiveSearch();
+    activeSearches.put(messageID, activeSearch);
+
+    // The search may have been abandoned before it was registered.
+    if ((connection != null) && connection.isAbandoned(messageID))
+    {
+      activeSearch.requestCancel();
+    }
+
+    try
     {
-      final List<SearchResultEntry> entryList =
-           new ArrayList<SearchResultEntry>(entryMap.size());
-      final List<SearchResultReference> referenceList =
-           new ArrayList<SearchResultReference>(entryMap.size());
+      return processSearchRequest(messageID, request, controls, activeSearch);
+    }
+    finally
+    {
+      activeSearches.remove(messageID, activeSearch);
+      activeSearch.complete();
+    }
+  }
+
+
+
+  /**
+   * Attempts to process the provided search request and send the matching
+   * entries and references to the client.
+   *
+   * @param  messageID     The message ID of the LDAP message containing the
+   *                       search request.
+   * @param  request       The search request that was included in the LDAP
+   *                       message that was received.
+   * @param  controls      The set of controls included in the LDAP message.
+   *                       It may be empty if there were no controls, but will
+   *                       not be {@code null}.
+   * @param  activeSearch  The object used to determine whether the search has
+   *                       been abandoned or canceled.
+   *
+   * @return  The {@link LDAPMessage} containing the response to send to the
+   *          client.  The protocol op in the {@code LDAPMessage} must be an
+   *          {@code SearchResultDoneProtocolOp}.
+   */
+  private LDAPMessage processSearchRequest(final int messageID,
+               final SearchRequestProtocolOp request,
+               final List<Control> controls,
+               final InMemoryDirectoryServerActiveSearch activeSearch)
+  {
+    // The entry map must not be accessed without holding the read lock, so the
+    // lists are created with the default capacity.
+    final List<SearchResultEntry> entryList =
+         new ArrayList<SearchResultEntry>();
+    final List<SearchResultReference> referenceList =
+         new ArrayList<SearchResultReference>();
+
+    final LDAPMessage returnMessage = processSearchRequest(messageID, request,
+         controls, entryList, referenceList);
 
-      final LDAPMessage returnMessage = processSearchRequest(messageID, request,
-           controls, entryList, referenceList);
+    for (final SearchResultEntry e : entryList)
+    {
+      if (activeSearch.isCanceled())
+      {
+        return createCanceledSearchResponse(messageID);
+      }
 
-      for (final SearchResultEntry e : entryList)
+      try
       {
-        try
-        {
-          connection.sendSearchResultEntry(messageID, e, e.getControls());
-        }
-        catch (final LDAPException le)
-        {
-          Debug.debugException(le);
-          return new LDAPMessage(messageID,
-               new SearchResultDoneProtocolOp(le.getResultCode().intValue(),
-                    le.getMatchedDN(), le.getDiagnosticMessage(),
-                    StaticUtils.toList(le.getReferralURLs())),
-               le.getResponseControls());
-        }
+        connection.sendSearchResultEntry(messageID, e, e.getControls());
       }
+      catch (final LDAPException le)
+      {
+        Debug.debugException(le);
+        return new LDAPMessage(messageID,
+             new SearchResultDoneProtocolOp(le.getResultCode().intValue(),
+                  le.getMatchedDN(), le.getDiagnosticMessage(),
+                  StaticUtils.toList(le.getReferralURLs())),
+             le.getResponseControls());
+      }
+    }
 
-      for (final SearchResultReference r : referenceList)
+    for (final SearchResultReference r : referenceList)
+    {
+      if (activeSearch.isCanceled())
       {
-        try
-        {
-          connection.sendSearchResultReference(messageID,
-               new SearchResultReferenceProtocolOp(
-                    StaticUtils.toList(r.getReferralURLs())),
-               r.getControls());
-        }
-        catch (final LDAPException le)
-        {
-          Debug.debugException(le);
-          return new LDAPMessage(messageID,
-               new SearchResultDoneProtocolOp(le.getResultCode().intValue(),
-                    le.getMatchedDN(), le.getDiagnosticMessage(),
-                    StaticUtils.toList(le.getReferralURLs())),
-               le.getResponseControls());
-        }
+        return createCanceledSearchResponse(messageID);
       }
 
-      return returnMessage;
+      try
+      {
+        connection.sendSearchResultReference(messageID,
+             new SearchResultReferenceProtocolOp(
+                  StaticUtils.toList(r.getReferralURLs())),
+             r.getControls());
+      }
+      catch (final LDAPException le)
+      {
+        Debug.debugException(le);
+        return new LDAPMessage(messageID,
+             new SearchResultDoneProtocolOp(le.getResultCode().intValue(),
+                  le.getMatchedDN(), le.getDiagnosticMessage(),
+                  StaticUtils.toList(le.getReferralURLs())),
+             le.getResponseControls());
+      }
     }
+
+    return returnMessage;
   }
 
 
@@ -2983,7 +3345,11 @@ public final class InMemoryRequestHandler
                    final List<SearchResultEntry> entryList,
                    final List<SearchResultReference> referenceList)
   {
-    synchronized (entryMap)
+    final InMemoryDirectoryServerActiveSearch activeSearch =
+         activeSearches.get(messageID);
+
+    entryMapLock.readLock().lock();
+    try
     {
       // Sleep before processing, if appropriate.
       final long processingStartTime = System.currentTimeMillis();
@@ -3123,21 +3489,106 @@ public final class InMemoryRequestHandler
              le.getResultCode().intValue(), null, le.getMessage(), null));
       }
 
+      // Get the server-side sort, simple paged results, and virtual list view
+      // request controls, if they were provided.
+      final ServerSideSortRequestControl sortRequestControl =
+           (ServerSideSortRequestControl) controlMap.get(
+                ServerSideSortRequestControl.SERVER_SIDE_SORT_REQUEST_OID);
+      final SimplePagedResultsControl pagedResultsControl =
+           (SimplePagedResultsControl)
+                controlMap.get(SimplePagedResultsControl.PAGED_RESULTS_OID);
+      final VirtualListViewRequestControl vlvRequest =
+           (VirtualListViewRequestControl) controlMap.get(
+                VirtualListViewRequestControl.VIRTUAL_LIST_VIEW_REQUEST_OID);
+
+      final Filter filter = request.getFilter();
+      final SearchScope scope = request.getScope();
+      final boolean includeSubEntries = ((scope == SearchScope.BASE) ||
+           controlMap.containsKey(
+                SubentriesRequestControl.SUBENTRIES_REQUEST_OID));
+
+      // If the request is part of a simple paged results or virtual list view
+      // series, then see if the cookie or context ID refers to a cursor that
+      // holds the results from an earlier request in the series.  If so, then
+      // we can use those results rather than searching and sorting again.
+      String cursorKey = null;
+      InMemoryDirectoryServerSearchCursor cursor = null;
+      int pagedResultsOffset = 0;
+      if ((pagedResultsControl != null) || (vlvRequest != null))
+      {
+        cursorKey = InMemoryDirectoryServerSearchCursor.getRequestKey(baseDN,
+             scope, filter, sortRequestControl, includeSubEntries,
+             hasManageDsaIT);
+
+        final ASN1OctetString cookie;
+        if (pagedResultsControl == null)
+        {
+          cookie = vlvRequest.getContextID();
+        }
+        else
+        {
+          cookie = pagedResultsControl.getCookie();
+        }
+
+        if ((cookie != null) && (cookie.getValueLength() > 0))
+        {
+          ObjectPair<Long,Integer> cookieElements = null;
+          try
+          {
+            cookieElements =
+                 InMemoryDirectoryServerSearchCursor.decodeCookie(cookie);
+          }
+          catch (final LDAPException le)
+          {
+            Debug.debugException(le);
+
+            // A malformed paged results cookie is an error, but an
+            // unrecognized VLV context ID can simply be ignored.
+            if (pagedResultsControl != null)
+            {
+              return new LDAPMessage(messageID,
+                   new SearchResultDoneProtocolOp(
+                        ResultCode.PROTOCOL_ERROR_INT_VALUE, null,
+                        le.getMessage(), null),
+                   responseControls);
+            }
+          }
+
+          if (cookieElements != null)
+          {
+            pagedResultsOffset = Math.max(0, cookieElements.getSecond());
+            if (cookieElements.getFirst() != null)
+            {
+              cursor = searchCursors.get(cookieElements.getFirst(), cursorKey);
+            }
+          }
+        }
+      }
+
       // Create a temporary list to hold all of the entries to be returned.
       // These entries will not have been pared down based on the requested
-      // attributes.
-      final List<Entry> fullEntryList = new ArrayList<Entry>(entryMap.size());
+      // attributes.  If we have a cursor, then it will already hold the
+      // complete, sorted list.
+      final List<Entry> fullEntryList;
+      if (cursor == null)
+      {
+        fullEntryList = new ArrayList<Entry>(entryMap.size());
+      }
+      else
+      {
+        fullEntryList = cursor.getEntries();
+      }
 
 findEntriesAndRefs:
       {
+        if (cursor != null)
+        {
+          referenceList.addAll(cursor.getReferences());
+          break findEntriesAndRefs;
+        }
+
         // Check the scope.  If it is a base-level search, then we only need to
-        // examine the base entry.  Otherwise, we'll have to scan the entire
-        // entry map.
-        final Filter filter = request.getFilter();
-        final SearchScope scope = request.getScope();
-        final boolean includeSubEntries = ((scope == SearchScope.BASE) ||
-             controlMap.containsKey(
-                  SubentriesRequestControl.SUBENTRIES_REQUEST_OID));
+        // examine the base entry.  Otherwise, we'll have to scan the entry map.
         if (scope == SearchScope.BASE)
         {
           try
@@ -3187,19 +3638,32 @@ findEntriesAndRefs:
 
         // Try to use indexes to process the request.  If we can't use any
         // indexes to get a candidate list, then just iterate over all the
-        // entries.  It's not necessary to consider the root DSE for non-base
-        // scopes.
+        // entries in the target subtree.  It's not necessary to consider the
+        // root DSE for non-base scopes.
         final Set<DN> candidateDNs = indexSearch(filter);
+        final CompiledFilter compiledFilter = filter.compile(schema);
         if (candidateDNs == null)
         {
-          for (final Map.Entry<DN,ReadOnlyEntry> me : entryMap.entrySet())
+          indexMissCount.incrementAndGet();
+          for (final Map.Entry<DN,ReadOnlyEntry> me :
+               entryMap.tailMap(baseDN, true).entrySet())
           {
             final DN dn = me.getKey();
+            if (! dn.isDescendantOf(baseDN, true))
+            {
+              break;
+            }
+
+            if ((activeSearch != null) && activeSearch.isCanceled())
+            {
+              return createCanceledSearchResponse(messageID);
+            }
+
             final Entry entry = me.getValue();
             try
             {
               if (dn.matchesBaseAndScope(baseDN, scope) &&
-                   filter.matchesEntry(entry, schema))
+                   compiledFilter.matchesEntry(entry))
               {
                 processSearchEntry(entry, includeSubEntries, includeChangeLog,
                      hasManageDsaIT, fullEntryList, referenceList);
@@ -3213,8 +3677,14 @@ findEntriesAndRefs:
         }
         else
         {
+          indexHitCount.incrementAndGet();
           for (final DN dn : candidateDNs)
           {
+            if ((activeSearch != null) && activeSearch.isCanceled())
+            {
+              return createCanceledSearchResponse(messageID);
+            }
+
             try
             {
               if (! dn.matchesBaseAndScope(baseDN, scope))
@@ -3223,7 +3693,7 @@ findEntriesAndRefs:
               }
 
               final Entry entry = entryMap.get(dn);
-              if (filter.matchesEntry(entry, schema))
+              if (compiledFilter.matchesEntry(entry))
               {
                 processSearchEntry(entry, includeSubEntries, includeChangeLog,
                      hasManageDsaIT, fullEntryList, referenceList);
@@ -3240,16 +3710,17 @@ findEntriesAndRefs:
 
       // If the request included the server-side sort request control, then sort
       // the matching entries appropriately.
-      final ServerSideSortRequestControl sortRequestControl =
-           (ServerSideSortRequestControl) controlMap.get(
-                ServerSideSortRequestControl.SERVER_SIDE_SORT_REQUEST_OID);
       if (sortRequestControl != null)
       {
-        final EntrySorter entrySorter = new EntrySorter(false, schema,
-             sortRequestControl.getSortKeys());
-        final SortedSet<Entry> sortedEntrySet = entrySorter.sort(fullEntryList);
-        fullEntryList.clear();
-        fullEntryList.addAll(sortedEntrySet);
+        if (cursor == null)
+        {
+          final EntrySorter entrySorter = new EntrySorter(false, schema,
+               sortRequestControl.getSortKeys());
+          final SortedSet<Entry> sortedEntrySet =
+               entrySorter.sort(fullEntryList);
+          fullEntryList.clear();
+          fullEntryList.addAll(sortedEntrySet);
+        }
 
         responseControls.add(new ServerSideSortResponseControl(
              ResultCode.SUCCESS, null));
@@ -3257,82 +3728,37 @@ findEntriesAndRefs:
 
 
       // If the request included the simple paged results control, then handle
-      // it.
-      final SimplePagedResultsControl pagedResultsControl =
-           (SimplePagedResultsControl)
-                controlMap.get(SimplePagedResultsControl.PAGED_RESULTS_OID);
+      // it.  Only the requested page of results will be returned, and if there
+      // are more results then the cookie will refer to a cursor holding the
+      // full result set so that it will not be necessary to search again.
+      List<Entry> resultEntryList = fullEntryList;
       if (pagedResultsControl != null)
       {
         final int totalSize = fullEntryList.size();
-        final int pageSize = pagedResultsControl.getSize();
-        final ASN1OctetString cookie = pagedResultsControl.getCookie();
+        final int pageSize = Math.max(0, pagedResultsControl.getSize());
+        final int offset = Math.min(totalSize, pagedResultsOffset);
+        final int end = (int) Math.min(totalSize, ((long) offset + pageSize));
+        resultEntryList = fullEntryList.subList(offset, end);
 
-        final int offset;
-        if ((cookie == null) || (cookie.getValueLength() == 0))
-        {
-          // This is the first request in the series, so start at the beginning
-          // of the list.
-          offset = 0;
-        }
-        else
+        if (end < totalSize)
         {
-          // The cookie value will simply be an integer representation of the
-          // offset within the result list at which to start the next batch.
-          try
+          if (cursor == null)
           {
-            final ASN1Integer offsetInteger =
-                 ASN1Integer.decodeAsInteger(cookie.getValue());
-            offset = offsetInteger.intValue();
+            cursor = new InMemoryDirectoryServerSearchCursor(cursorKey,
+                 fullEntryList, referenceList);
+            searchCursors.put(cursor);
           }
-          catch (final Exception e)
-          {
-            Debug.debugException(e);
-            return new LDAPMessage(messageID,
-                 new SearchResultDoneProtocolOp(
-                      ResultCode.PROTOCOL_ERROR_INT_VALUE, null,
-                      ERR_MEM_HANDLER_MALFORMED_PAGED_RESULTS_COOKIE.get(),
-                      null),
-                 responseControls);
-          }
-        }
-
-        // Create an iterator that will be used to remove entries from the
-        // result set that are outside of the requested page of results.
-        int pos = 0;
-        final Iterator<Entry> iterator = fullEntryList.iterator();
-
-        // First, remove entries at the beginning of the list until we hit the
-        // offset.
-        while (iterator.hasNext() && (pos < offset))
-        {
-          iterator.next();
-          iterator.remove();
-          pos++;
-        }
-
-        // Next, skip over the entries that should be returned.
-        int keptEntries = 0;
-        while (iterator.hasNext() && (keptEntries < pageSize))
-        {
-          iterator.next();
-          pos++;
-          keptEntries++;
-        }
 
-        // If there are still entries left, then remove them and create a cookie
-        // to include in the response.  Otherwise, use an empty cookie.
-        if (iterator.hasNext())
-        {
           responseControls.add(new SimplePagedResultsControl(totalSize,
-               new ASN1OctetString(new ASN1Integer(pos).encode()), false));
-          while (iterator.hasNext())
-          {
-            iterator.next();
-            iterator.remove();
-          }
+               cursor.encodeCookie(end), false));
         }
         else
         {
+          if (cursor != null)
+          {
+            searchCursors.remove(cursor);
+          }
+
           responseControls.add(new SimplePagedResultsControl(totalSize,
                new ASN1OctetString(), false));
         }
@@ -3340,13 +3766,13 @@ findEntriesAndRefs:
 
 
       // If the request includes the virtual list view request control, then
-      // handle it.
-      final VirtualListViewRequestControl vlvRequest =
-           (VirtualListViewRequestControl) controlMap.get(
-                VirtualListViewRequestControl.VIRTUAL_LIST_VIEW_REQUEST_OID);
+      // handle it.  The response will include a context ID that refers to a
+      // cursor holding the full sorted result set, so that subsequent requests
+      // that include that context ID will not need to search again.
       if (vlvRequest != null)
       {
-        final int totalEntries = fullEntryList.size();
+        final List<Entry> vlvEntryList = resultEntryList;
+        final int totalEntries = vlvEntryList.size();
         final ASN1OctetString assertionValue = vlvRequest.getAssertionValue();
 
         // Figure out the position of the target entry in the list.
@@ -3358,7 +3784,7 @@ findEntriesAndRefs:
           // the list.
           offset--;
           offset = Math.max(0, offset);
-          offset = Math.min(fullEntryList.size(), offset);
+          offset = Math.min(totalEntries, offset);
         }
         else
         {
@@ -3371,15 +3797,24 @@ findEntriesAndRefs:
           final EntrySorter entrySorter =
                new EntrySorter(false, schema, primarySortKey);
 
-          offset = fullEntryList.size();
-          for (int i=0; i < fullEntryList.size(); i++)
+          // The list is sorted with the primary sort key, so we can use a
+          // binary search to find the first entry that is greater than or
+          // equal to the assertion value.
+          int low = 0;
+          int high = totalEntries;
+          while (low < high)
           {
-            if (entrySorter.compare(fullEntryList.get(i), testEntry) >= 0)
+            final int mid = (low + high) >>> 1;
+            if (entrySorter.compare(vlvEntryList.get(mid), testEntry) >= 0)
             {
-              offset = i;
-              break;
+              high = mid;
+            }
+            else
+            {
+              low = mid + 1;
             }
           }
+          offset = low;
         }
 
         // Get the start and end positions based on the before and after counts.
@@ -3387,26 +3822,32 @@ findEntriesAndRefs:
         final int afterCount  = Math.max(0, vlvRequest.getAfterCount());
 
         final int start = Math.max(0, (offset - beforeCount));
-        final int end =
-             Math.min(fullEntryList.size(), (offset + afterCount + 1));
+        final int end = (int)
+             Math.min(totalEntries, ((long) offset + afterCount + 1L));
+        resultEntryList = vlvEntryList.subList(start, end);
 
-        // Create an iterator to use to alter the list so that it only contains
-        // the appropriate set of entries.
-        int pos = 0;
-        final Iterator<Entry> iterator = fullEntryList.iterator();
-        while (iterator.hasNext())
+        // Create the cursor for the context ID if appropriate.  This isn't
+        // necessary if the simple paged results control was also provided.
+        final ASN1OctetString contextID;
+        if (pagedResultsControl == null)
         {
-          iterator.next();
-          if ((pos < start) || (pos >= end))
+          if (cursor == null)
           {
-            iterator.remove();
+            cursor = new InMemoryDirectoryServerSearchCursor(cursorKey,
+                 fullEntryList, referenceList);
+            searchCursors.put(cursor);
           }
-          pos++;
+
+          contextID = cursor.encodeCookie(0);
+        }
+        else
+        {
+          contextID = null;
         }
 
         // Create the appropriate response control.
         responseControls.add(new VirtualListViewResponseControl((offset+1),
-             totalEntries, ResultCode.SUCCESS, null));
+             totalEntries, ResultCode.SUCCESS, contextID));
       }
 
 
@@ -3429,8 +3870,13 @@ findEntriesAndRefs:
       }
 
       int entryCount = 0;
-      for (final Entry e : fullEntryList)
+      for (final Entry e : resultEntryList)
       {
+        if ((activeSearch != null) && activeSearch.isCanceled())
+        {
+          return createCanceledSearchResponse(messageID);
+        }
+
         entryCount++;
         if (entryCount > sizeLimit)
         {
@@ -3463,6 +3909,27 @@ findEntriesAndRefs:
                 null, null),
            responseControls);
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
+  }
+
+
+
+  /**
+   * Creates a search result done message indicating that the search was
+   * stopped because it was abandoned or canceled.
+   *
+   * @param  messageID  The message ID for the search operation.
+   *
+   * @return  The search result done message.
+   */
+  private static LDAPMessage createCanceledSearchResponse(final int messageID)
+  {
+    return new LDAPMessage(messageID, new SearchResultDoneProtocolOp(
+         ResultCode.CANCELED_INT_VALUE, null,
+         INFO_MEM_HANDLER_SEARCH_CANCELED.get(), null));
   }
 
 
@@ -3474,8 +3941,7 @@ findEntriesAndRefs:
    */
   private void indexAdd(final Entry entry)
   {
-    for (final InMemoryDirectoryServerEqualityAttributeIndex i :
-         equalityIndexes.values())
+    for (final InMemoryDirectoryServerAttributeIndex i : indexes)
     {
       try
       {
@@ -3497,8 +3963,7 @@ findEntriesAndRefs:
    */
   private void indexDelete(final Entry entry)
   {
-    for (final InMemoryDirectoryServerEqualityAttributeIndex i :
-         equalityIndexes.values())
+    for (final InMemoryDirectoryServerAttributeIndex i : indexes)
     {
       try
       {
@@ -3538,8 +4003,23 @@ findEntriesAndRefs:
         else
         {
           Set<DN> candidateSet = null;
+          final ArrayList<Set<DN>> excludedSets = new ArrayList<Set<DN>>(1);
           for (final Filter f : comps)
           {
+            // A NOT component can't be used to obtain candidates on its own,
+            // but if the index for the embedded filter identifies exactly the
+            // entries that match it, then those entries can be removed from
+            // the candidates identified by the other components.
+            if (f.getFilterType() == Filter.FILTER_TYPE_NOT)
+            {
+              final Set<DN> dnSet = exactIndexSearch(f.getNOTComponent());
+              if (dnSet != null)
+              {
+                excludedSets.add(dnSet);
+              }
+              continue;
+            }
+
             final Set<DN> dnSet = indexSearch(f);
             if (dnSet != null)
             {
@@ -3553,6 +4033,14 @@ findEntriesAndRefs:
               }
             }
           }
+
+          if (candidateSet != null)
+          {
+            for (final Set<DN> dnSet : excludedSets)
+            {
+              candidateSet.removeAll(dnSet);
+            }
+          }
           return candidateSet;
         }
 
@@ -3590,26 +4078,67 @@ findEntriesAndRefs:
         }
 
       case Filter.FILTER_TYPE_EQUALITY:
-        final Schema schema = schemaRef.get();
-        if (schema == null)
+        AttributeTypeDefinition at = getIndexAttributeType(filter);
+        if (at == null)
         {
           return null;
         }
-        final AttributeTypeDefinition at =
-             schema.getAttributeType(filter.getAttributeName());
+        final InMemoryDirectoryServerEqualityAttributeIndex eqIndex =
+             equalityIndexes.get(at);
+        if (eqIndex == null)
+        {
+          return null;
+        }
+        try
+        {
+          final Set<DN> dnSet =
+               eqIndex.getMatchingEntries(filter.getRawAssertionValue());
+          eqIndex.incrementHitCount();
+          return dnSet;
+        }
+        catch (final Exception e)
+        {
+          Debug.debugException(e);
+          return null;
+        }
+
+      case Filter.FILTER_TYPE_PRESENCE:
+        at = getIndexAttributeType(filter);
         if (at == null)
         {
           return null;
         }
-        final InMemoryDirectoryServerEqualityAttributeIndex i =
-             equalityIndexes.get(at);
-        if (i == null)
+        final InMemoryDirectoryServerPresenceAttributeIndex presIndex =
+             presenceIndexes.get(at);
+        if (presIndex == null)
+        {
+          return null;
+        }
+        presIndex.incrementHitCount();
+        return presIndex.getMatchingEntries();
+
+      case Filter.FILTER_TYPE_SUBSTRING:
+        at = getIndexAttributeType(filter);
+        if (at == null)
+        {
+          return null;
+        }
+        final InMemoryDirectoryServerSubstringAttributeIndex subIndex =
+             substringIndexes.get(at);
+        if (subIndex == null)
         {
           return null;
         }
         try
         {
-          return i.getMatchingEntries(filter.getRawAssertionValue());
+          final Set<DN> dnSet = subIndex.getCandidateEntries(
+               filter.getRawSubInitialValue(), filter.getRawSubAnyValues(),
+               filter.getRawSubFinalValue());
+          if (dnSet != null)
+          {
+            subIndex.incrementHitCount();
+          }
+          return dnSet;
         }
         catch (final Exception e)
         {
@@ -3617,6 +4146,63 @@ findEntriesAndRefs:
           return null;
         }
 
+      case Filter.FILTER_TYPE_GREATER_OR_EQUAL:
+      case Filter.FILTER_TYPE_LESS_OR_EQUAL:
+        at = getIndexAttributeType(filter);
+        if (at == null)
+        {
+          return null;
+        }
+        final InMemoryDirectoryServerOrderingAttributeIndex ordIndex =
+             orderingIndexes.get(at);
+        if (ordIndex == null)
+        {
+          return null;
+        }
+        try
+        {
+          final Set<DN> dnSet = ordIndex.getMatchingEntries(
+               filter.getRawAssertionValue(),
+               (filter.getFilterType() ==
+                    Filter.FILTER_TYPE_GREATER_OR_EQUAL));
+          ordIndex.incrementHitCount();
+          return dnSet;
+        }
+        catch (final Exception e)
+        {
+          Debug.debugException(e);
+          return null;
+        }
+
+      default:
+        return null;
+    }
+  }
+
+
+
+  /**
+   * Attempts to use indexes to obtain the exact set of entries that match the
+   * provided filter.  This is only possible for equality, presence, and
+   * ordering filters, since the indexes for those filter types do not contain
+   * any entries that would not match the filter.
+   *
+   * @param  filter  The filter to be processed.
+   *
+   * @return  The DNs of the entries that match the given filter, or
+   *          {@code null} if the exact set of matching entries cannot be
+   *          determined from indexes.
+   */
+  private Set<DN> exactIndexSearch(final Filter filter)
+  {
+    switch (filter.getFilterType())
+    {
+      case Filter.FILTER_TYPE_EQUALITY:
+      case Filter.FILTER_TYPE_PRESENCE:
+      case Filter.FILTER_TYPE_GREATER_OR_EQUAL:
+      case Filter.FILTER_TYPE_LESS_OR_EQUAL:
+        return indexSearch(filter);
+
       default:
         return null;
     }
@@ -3624,6 +4210,28 @@ findEntriesAndRefs:
 
 
 
+  /**
+   * Retrieves the attribute type definition for the attribute targeted by the
+   * provided filter, which may be used to find an associated index.
+   *
+   * @param  filter  The filter for which to retrieve the attribute type.
+   *
+   * @return  The attribute type definition for the attribute targeted by the
+   *          provided filter, or {@code null} if it cannot be determined.
+   */
+  private AttributeTypeDefinition getIndexAttributeType(final Filter filter)
+  {
+    final Schema schema = schemaRef.get();
+    if (schema == null)
+    {
+      return null;
+    }
+
+    return schema.getAttributeType(filter.getAttributeName());
+  }
+
+
+
   /**
    * Determines whether the provided set of controls includes a transaction
    * specification request control.  If so, then it will verify that it
@@ -3728,6 +4336,62 @@ findEntriesAndRefs:
 
 
 
+  /**
+   * Retrieves the number of searches for which indexes were used to obtain the
+   * set of candidate entries.  Searches with a base object scope are not
+   * included in this count.
+   *
+   * @return  The number of searches for which indexes were used to obtain the
+   *          set of candidate entries.
+   */
+  public long getIndexHitCount()
+  {
+    return indexHitCount.get();
+  }
+
+
+
+  /**
+   * Retrieves the number of searches for which it was necessary to examine
+   * every entry in the target subtree because the filter could not be
+   * processed using indexes.  Searches with a base object scope are not
+   * included in this count.
+   *
+   * @return  The number of searches for which it was necessary to examine
+   *          every entry in the target subtree.
+   */
+  public long getIndexMissCount()
+  {
+    return indexMissCount.get();
+  }
+
+
+
+  /**
+   * Retrieves a map with the number of times that each index defined in the
+   * server has been used to obtain a set of candidate entries for a search.
+   * The keys of the map will be the index type (which will be one of
+   * "equality", "presence", "substring", or "ordering"), followed by a colon
+   * and the name or OID of the indexed attribute type (e.g., "equality:uid").
+   *
+   * @return  A map with the number of times that each index defined in the
+   *          server has been used, or an empty map if no indexes are defined.
+   */
+  public Map<String,Long> getIndexHitCounts()
+  {
+    final LinkedHashMap<String,Long> m =
+         new LinkedHashMap<String,Long>(indexes.size());
+    for (final InMemoryDirectoryServerAttributeIndex i : indexes)
+    {
+      m.put(i.getIndexType() + ':' + i.getAttributeType().getNameOrOID(),
+           i.getHitCount());
+    }
+
+    return Collections.unmodifiableMap(m);
+  }
+
+
+
   /**
    * Retrieves the number of entries currently held in the server.
    *
@@ -3738,7 +4402,8 @@ findEntriesAndRefs:
    */
   public int countEntries(final boolean includeChangeLog)
   {
-    synchronized (entryMap)
+    entryMapLock.readLock().lock();
+    try
     {
       if (includeChangeLog || (maxChangelogEntries == 0))
       {
@@ -3759,6 +4424,10 @@ findEntriesAndRefs:
         return count;
       }
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
   }
 
 
@@ -3778,21 +4447,28 @@ findEntriesAndRefs:
   public int countEntriesBelow(final String baseDN)
          throws LDAPException
   {
-    synchronized (entryMap)
+    entryMapLock.readLock().lock();
+    try
     {
       final DN parsedBaseDN = new DN(baseDN, schemaRef.get());
 
       int count = 0;
-      for (final DN dn : entryMap.keySet())
+      for (final DN dn : entryMap.tailMap(parsedBaseDN, true).keySet())
       {
-        if (dn.isDescendantOf(parsedBaseDN, true))
+        if (! dn.isDescendantOf(parsedBaseDN, true))
         {
-          count++;
+          break;
         }
+
+        count++;
       }
 
       return count;
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
   }
 
 
@@ -3804,10 +4480,15 @@ findEntriesAndRefs:
    */
   public void clear()
   {
-    synchronized (entryMap)
+    entryMapLock.writeLock().lock();
+    try
     {
       restoreSnapshot(initialSnapshot);
     }
+    finally
+    {
+      entryMapLock.writeLock().unlock();
+    }
   }
 
 
@@ -3832,7 +4513,8 @@ findEntriesAndRefs:
   public int importFromLDIF(final boolean clear, final LDIFReader ldifReader)
          throws LDAPException
   {
-    synchronized (entryMap)
+    entryMapLock.writeLock().lock();
+    try
     {
       final InMemoryDirectoryServerSnapshot snapshot = createSnapshot();
       boolean restoreSnapshot = true;
@@ -3894,6 +4576,10 @@ findEntriesAndRefs:
         }
       }
     }
+    finally
+    {
+      entryMapLock.writeLock().unlock();
+    }
   }
 
 
@@ -3923,7 +4609,8 @@ findEntriesAndRefs:
                           final boolean closeWriter)
          throws LDAPException
   {
-    synchronized (entryMap)
+    entryMapLock.readLock().lock();
+    try
     {
       boolean exceptionThrown = false;
 
@@ -3996,6 +4683,10 @@ findEntriesAndRefs:
         }
       }
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
   }
 
 
@@ -4073,7 +4764,8 @@ findEntriesAndRefs:
   public void addEntries(final List<? extends Entry> entries)
          throws LDAPException
   {
-    synchronized (entryMap)
+    entryMapLock.writeLock().lock();
+    try
     {
       final InMemoryDirectoryServerSnapshot snapshot = createSnapshot();
       boolean restoreSnapshot = true;
@@ -4094,6 +4786,10 @@ findEntriesAndRefs:
         }
       }
     }
+    finally
+    {
+      entryMapLock.writeLock().unlock();
+    }
   }
 
 
@@ -4115,7 +4811,8 @@ findEntriesAndRefs:
   public int deleteSubtree(final String baseDN)
          throws LDAPException
   {
-    synchronized (entryMap)
+    entryMapLock.writeLock().lock();
+    try
     {
       final DN dn = new DN(baseDN, schemaRef.get());
       if (dn.isNullDN())
@@ -4127,19 +4824,25 @@ findEntriesAndRefs:
       int numDeleted = 0;
 
       final Iterator<Map.Entry<DN,ReadOnlyEntry>> iterator =
-           entryMap.entrySet().iterator();
+           entryMap.tailMap(dn, true).entrySet().iterator();
       while (iterator.hasNext())
       {
         final Map.Entry<DN,ReadOnlyEntry> e = iterator.next();
-        if (e.getKey().isDescendantOf(dn, true))
+        if (! e.getKey().isDescendantOf(dn, true))
         {
-          iterator.remove();
-          numDeleted++;
+          break;
         }
+
+        iterator.remove();
+        numDeleted++;
       }
 
       return numDeleted;
     }
+    finally
+    {
+      entryMapLock.writeLock().unlock();
+    }
   }
 
 
@@ -4215,7 +4918,8 @@ findEntriesAndRefs:
    */
   public ReadOnlyEntry getEntry(final DN dn)
   {
-    synchronized (entryMap)
+    entryMapLock.readLock().lock();
+    try
     {
       if (dn.isNullDN())
       {
@@ -4238,6 +4942,10 @@ findEntriesAndRefs:
         }
       }
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
   }
 
 
@@ -4263,7 +4971,8 @@ findEntriesAndRefs:
                                     final Filter filter)
          throws LDAPException
   {
-    synchronized (entryMap)
+    entryMapLock.readLock().lock();
+    try
     {
       final DN parsedDN;
       final Schema schema = schemaRef.get();
@@ -4344,10 +5053,17 @@ findEntriesAndRefs:
         return Collections.unmodifiableList(entryList);
       }
 
+      final CompiledFilter compiledFilter = filter.compile(schema);
       final List<ReadOnlyEntry> entryList = new ArrayList<ReadOnlyEntry>(10);
-      for (final Map.Entry<DN,ReadOnlyEntry> me : entryMap.entrySet())
+      for (final Map.Entry<DN,ReadOnlyEntry> me :
+           entryMap.tailMap(parsedDN, true).entrySet())
       {
         final DN dn = me.getKey();
+        if (! dn.isDescendantOf(parsedDN, true))
+        {
+          break;
+        }
+
         if (dn.matchesBaseAndScope(parsedDN, scope))
         {
           // We don't want to return changelog entries searches based at the
@@ -4360,7 +5076,7 @@ findEntriesAndRefs:
           try
           {
             final Entry entry = me.getValue();
-            if (filter.matchesEntry(entry, schema))
+            if (compiledFilter.matchesEntry(entry))
             {
               entryList.add(new ReadOnlyEntry(entry));
             }
@@ -4374,6 +5090,10 @@ findEntriesAndRefs:
 
       return Collections.unmodifiableList(entryList);
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
   }
 
 
@@ -5160,7 +5880,7 @@ findEntriesAndRefs:
   /**
    * Adds the provided changelog entry to the data set, removing an old entry if
    * necessary to remain within the maximum allowed number of changes.  This
-   * must only be called from a synchronized method, and the change number for
+   * must only be called while holding the write lock, and the change number for
    * the changelog entry must have been obtained by calling
    * {@code lastChangeNumber.incrementAndGet()}.
    *
@@ -5299,7 +6019,8 @@ findEntriesAndRefs:
   public DN getDNForAuthzID(final String authzID)
          throws LDAPException
   {
-    synchronized (entryMap)
+    entryMapLock.readLock().lock();
+    try
     {
       final String lowerAuthzID = StaticUtils.toLowerCase(authzID);
       if (lowerAuthzID.startsWith("dn:"))
@@ -5344,6 +6065,10 @@ findEntriesAndRefs:
              ERR_MEM_HANDLER_NO_SUCH_IDENTITY.get(authzID));
       }
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
   }
 
 
@@ -5601,7 +6326,8 @@ findEntriesAndRefs:
   public boolean entryExists(final String dn, final String filter)
          throws LDAPException
   {
-    synchronized (entryMap)
+    entryMapLock.readLock().lock();
+    try
     {
       final Entry e = getEntry(dn);
       if (e == null)
@@ -5620,6 +6346,10 @@ findEntriesAndRefs:
         return false;
       }
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
   }
 
 
@@ -5641,7 +6371,8 @@ findEntriesAndRefs:
   public boolean entryExists(final Entry entry)
          throws LDAPException
   {
-    synchronized (entryMap)
+    entryMapLock.readLock().lock();
+    try
     {
       final Entry e = getEntry(entry.getDN());
       if (e == null)
@@ -5662,6 +6393,10 @@ findEntriesAndRefs:
 
       return true;
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
   }
 
 
@@ -5703,7 +6438,8 @@ findEntriesAndRefs:
   public void assertEntryExists(final String dn, final String filter)
          throws LDAPException, AssertionError
   {
-    synchronized (entryMap)
+    entryMapLock.readLock().lock();
+    try
     {
       final Entry e = getEntry(dn);
       if (e == null)
@@ -5728,6 +6464,10 @@ findEntriesAndRefs:
              ERR_MEM_HANDLER_TEST_ENTRY_DOES_NOT_MATCH_FILTER.get(dn, filter));
       }
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
   }
 
 
@@ -5749,7 +6489,8 @@ findEntriesAndRefs:
   public void assertEntryExists(final Entry entry)
          throws LDAPException, AssertionError
   {
-    synchronized (entryMap)
+    entryMapLock.readLock().lock();
+    try
     {
       final Entry e = getEntry(entry.getDN());
       if (e == null)
@@ -5790,6 +6531,10 @@ findEntriesAndRefs:
         throw new AssertionError(StaticUtils.concatenateStrings(messages));
       }
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
   }
 
 
@@ -5809,7 +6554,8 @@ findEntriesAndRefs:
   public List<String> getMissingEntryDNs(final Collection<String> dns)
          throws LDAPException
   {
-    synchronized (entryMap)
+    entryMapLock.readLock().lock();
+    try
     {
       final List<String> missingDNs = new ArrayList<String>(dns.size());
       for (final String dn : dns)
@@ -5823,6 +6569,10 @@ findEntriesAndRefs:
 
       return missingDNs;
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
   }
 
 
@@ -5841,7 +6591,8 @@ findEntriesAndRefs:
   public void assertEntriesExist(final Collection<String> dns)
          throws LDAPException, AssertionError
   {
-    synchronized (entryMap)
+    entryMapLock.readLock().lock();
+    try
     {
       final List<String> missingDNs = getMissingEntryDNs(dns);
       if (missingDNs.isEmpty())
@@ -5857,6 +6608,10 @@ findEntriesAndRefs:
 
       throw new AssertionError(StaticUtils.concatenateStrings(messages));
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
   }
 
 
@@ -5881,7 +6636,8 @@ findEntriesAndRefs:
                            final Collection<String> attributeNames)
          throws LDAPException
   {
-    synchronized (entryMap)
+    entryMapLock.readLock().lock();
+    try
     {
       final Entry e = getEntry(dn);
       if (e == null)
@@ -5903,6 +6659,10 @@ findEntriesAndRefs:
 
       return missingAttrs;
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
   }
 
 
@@ -5925,7 +6685,8 @@ findEntriesAndRefs:
                                     final Collection<String> attributeNames)
         throws LDAPException, AssertionError
   {
-    synchronized (entryMap)
+    entryMapLock.readLock().lock();
+    try
     {
       final List<String> missingAttrs =
            getMissingAttributeNames(dn, attributeNames);
@@ -5946,6 +6707,10 @@ findEntriesAndRefs:
 
       throw new AssertionError(StaticUtils.concatenateStrings(messages));
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
   }
 
 
@@ -5973,7 +6738,8 @@ findEntriesAndRefs:
                            final Collection<String> attributeValues)
        throws LDAPException
   {
-    synchronized (entryMap)
+    entryMapLock.readLock().lock();
+    try
     {
       final Entry e = getEntry(dn);
       if (e == null)
@@ -5995,6 +6761,10 @@ findEntriesAndRefs:
 
       return missingValues;
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
   }
 
 
@@ -6021,7 +6791,8 @@ findEntriesAndRefs:
                                 final Collection<String> attributeValues)
         throws LDAPException, AssertionError
   {
-    synchronized (entryMap)
+    entryMapLock.readLock().lock();
+    try
     {
       final List<String> missingValues =
            getMissingAttributeValues(dn, attributeName, attributeValues);
@@ -6052,6 +6823,10 @@ findEntriesAndRefs:
 
       throw new AssertionError(StaticUtils.concatenateStrings(messages));
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
   }
 
 
@@ -6096,7 +6871,8 @@ findEntriesAndRefs:
                                      final Collection<String> attributeNames)
          throws LDAPException, AssertionError
   {
-    synchronized (entryMap)
+    entryMapLock.readLock().lock();
+    try
     {
       final Entry e = getEntry(dn);
       if (e == null)
@@ -6121,6 +6897,10 @@ findEntriesAndRefs:
         throw new AssertionError(StaticUtils.concatenateStrings(messages));
       }
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
   }
 
 
@@ -6145,7 +6925,8 @@ findEntriesAndRefs:
                                  final Collection<String> attributeValues)
          throws LDAPException, AssertionError
   {
-    synchronized (entryMap)
+    entryMapLock.readLock().lock();
+    try
     {
       final Entry e = getEntry(dn);
       if (e == null)
@@ -6171,5 +6952,9 @@ findEntriesAndRefs:
         throw new AssertionError(StaticUtils.concatenateStrings(messages));
       }
     }
+    finally
+    {
+      entryMapLock.readLock().unlock();
+    }
   }
 }
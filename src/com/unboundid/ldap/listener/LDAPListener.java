@@ -30,6 +30,9 @@ import java.net.SocketException;
 import java.util.ArrayList;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -40,6 +43,7 @@ import com.unboundid.ldap.sdk.ResultCode;
 import com.unboundid.ldap.sdk.extensions.NoticeOfDisconnectionExtendedResult;
 import com.unboundid.util.Debug;
 import com.unboundid.util.InternalUseOnly;
+import com.unboundid.util.LDAPSDKThreadFactory;
 import com.unboundid.util.ThreadSafety;
 import com.unboundid.util.ThreadSafetyLevel;
 
@@ -115,6 +119,16 @@ public final class LDAPListener
   // The latch used to wait for the listener to have started.
   private final CountDownLatch startLatch;
 
+  // The executor that will be used to process requests concurrently, if
+  // appropriate.
+  private final Executor requestExecutor;
+
+  // The executor created by this listener, if any.  It will be shut down
+  // whenever the listener is shut down, regardless of whether existing
+  // connections are closed.  An executor provided in the configuration will
+  // never be shut down by the listener.
+  private final ExecutorService listenerExecutor;
+
   // The configuration to use for this listener.
   private final LDAPListenerConfig config;
 
@@ -138,6 +152,24 @@ public final class LDAPListener
     startLatch = new CountDownLatch(1);
     establishedConnections =
          new ConcurrentHashMap<Long,LDAPListenerClientConnection>();
+
+    if (this.config.getMaxConcurrentOperationsPerConnection() <= 1)
+    {
+      requestExecutor  = null;
+      listenerExecutor = null;
+    }
+    else if (this.config.getRequestExecutor() == null)
+    {
+      listenerExecutor = Executors.newCachedThreadPool(
+           new LDAPSDKThreadFactory("LDAPListener Request Processor", true));
+      requestExecutor = listenerExecutor;
+    }
+    else
+    {
+      requestExecutor  = this.config.getRequestExecutor();
+      listenerExecutor = null;
+    }
+
     setName("LDAP Listener Thread (not listening");
   }
 
@@ -389,6 +421,15 @@ public final class LDAPListener
     {
       closeAllConnections(false);
     }
+
+    // Operations that have already been handed off to the executor will be
+    // allowed to complete.  Any connections that remain established will
+    // process subsequent requests in their own threads once the executor
+    // starts rejecting new tasks.
+    if (listenerExecutor != null)
+    {
+      listenerExecutor.shutdown();
+    }
   }
 
 
@@ -454,6 +495,21 @@ public final class LDAPListener
 
 
 
+  /**
+   * Retrieves the executor that should be used to process requests received
+   * on connections accepted by this listener.
+   *
+   * @return  The executor that should be used to process requests received on
+   *          connections accepted by this listener, or {@code null} if requests
+   *          should be processed by the thread that reads them.
+   */
+  Executor getRequestExecutor()
+  {
+    return requestExecutor;
+  }
+
+
+
   /**
    * Retrieves the connection ID that should be used for the next connection
    * accepted by this listener.
@@ -28,13 +28,18 @@ import java.io.OutputStream;
 import java.net.Socket;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 
 import com.unboundid.asn1.ASN1Buffer;
 import com.unboundid.asn1.ASN1StreamReader;
+import com.unboundid.ldap.protocol.AbandonRequestProtocolOp;
 import com.unboundid.ldap.protocol.AddResponseProtocolOp;
 import com.unboundid.ldap.protocol.BindResponseProtocolOp;
 import com.unboundid.ldap.protocol.CompareResponseProtocolOp;
@@ -55,6 +60,7 @@ import com.unboundid.ldap.sdk.LDAPException;
 import com.unboundid.ldap.sdk.LDAPRuntimeException;
 import com.unboundid.ldap.sdk.ResultCode;
 import com.unboundid.ldap.sdk.extensions.NoticeOfDisconnectionExtendedResult;
+import com.unboundid.ldap.sdk.extensions.StartTLSExtendedRequest;
 import com.unboundid.util.Debug;
 import com.unboundid.util.InternalUseOnly;
 import com.unboundid.util.ObjectPair;
@@ -74,6 +80,13 @@ import static com.unboundid.ldap.listener.ListenerMessages.*;
  * connection has its own thread that will be used to read requests from the
  * client, and connections created outside of an {@code LDAPListener} instance,
  * then the thread must be explicitly started.
+ * <BR><BR>
+ * By default, each request will be processed by the connection's thread
+ * before the next request is read.  If the listener is configured to allow
+ * multiple concurrent operations per connection, then requests will be
+ * processed by the listener's request executor so that a client may have
+ * several operations in progress at the same time, and so that abandon
+ * requests can be read while those operations are being processed.
  */
 @ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
 public final class LDAPListenerClientConnection
@@ -97,6 +110,14 @@ public final class LDAPListenerClientConnection
   // response to the client.
   private final AtomicBoolean suppressNextResponse;
 
+  // Indicates whether this connection has been closed.
+  private volatile boolean closed;
+
+  // The operations that have been handed off to the request executor and are
+  // still in progress, mapped from message ID to a flag that indicates whether
+  // the operation has been abandoned.
+  private final ConcurrentHashMap<Integer,AtomicBoolean> activeOperations;
+
   // The set of intermediate response transformers for this connection.
   private final CopyOnWriteArrayList<IntermediateResponseTransformer>
        intermediateResponseTransformers;
@@ -118,12 +139,24 @@ public final class LDAPListenerClientConnection
   // The request handler to use for this connection.
   private final LDAPListenerRequestHandler requestHandler;
 
+  // The maximum number of operations that may be in progress at the same time
+  // on this connection.
+  private final int maxConcurrentOperations;
+
   // The connection ID assigned to this connection.
   private final long connectionID;
 
+  // The executor that will be used to process requests, or null if requests
+  // should be processed by the thread that reads them.
+  private final Executor requestExecutor;
+
   // The output stream used to write responses to the client.
   private volatile OutputStream outputStream;
 
+  // The semaphore used to limit the number of operations in progress on this
+  // connection, if requests will be processed by the request executor.
+  private final Semaphore operationPermits;
+
   // The socket used to communicate with the client.
   private volatile Socket socket;
 
@@ -187,18 +220,33 @@ public final class LDAPListenerClientConnection
       connectionID = listener.nextConnectionID();
     }
 
-    try
+    final LDAPListenerConfig config;
+    if (listener == null)
     {
-      final LDAPListenerConfig config;
-      if (listener == null)
-      {
-        config = new LDAPListenerConfig(0, requestHandler);
-      }
-      else
-      {
-        config = listener.getConfig();
-      }
+      config = new LDAPListenerConfig(0, requestHandler);
+      requestExecutor = null;
+    }
+    else
+    {
+      config = listener.getConfig();
+      requestExecutor = listener.getRequestExecutor();
+    }
+
+    activeOperations = new ConcurrentHashMap<Integer,AtomicBoolean>();
+    if (requestExecutor == null)
+    {
+      maxConcurrentOperations = 1;
+      operationPermits = null;
+    }
+    else
+    {
+      maxConcurrentOperations =
+           config.getMaxConcurrentOperationsPerConnection();
+      operationPermits = new Semaphore(maxConcurrentOperations);
+    }
 
+    try
+    {
       socket.setKeepAlive(config.useKeepAlive());
       socket.setReuseAddress(config.useReuseAddress());
       socket.setSoLinger(config.useLinger(), config.getLingerTimeoutSeconds());
@@ -315,6 +363,8 @@ public final class LDAPListenerClientConnection
   public synchronized void close()
          throws IOException
   {
+    closed = true;
+
     try
     {
       requestHandler.closeInstance();
@@ -396,7 +446,11 @@ public final class LDAPListenerClientConnection
 
   /**
    * Operates in a loop, waiting for a request to arrive from the client and
-   * handing it off to the request handler for processing.  This method is for
+   * handing it off to the request handler for processing.  If the listener was
+   * configured to allow multiple concurrent operations per connection, then
+   * requests that may be processed concurrently will be handed off to the
+   * request executor so that this thread can continue reading requests (and in
+   * particular, abandon requests) from the client.  This method is for
    * internal use only and must not be invoked by external callers.
    */
   @InternalUseOnly()
@@ -435,200 +489,34 @@ public final class LDAPListenerClientConnection
           return;
         }
 
-        try
+        if (requestExecutor != null)
         {
-          final int messageID = requestMessage.getMessageID();
-          final List<Control> controls = requestMessage.getControls();
-
-          LDAPMessage responseMessage;
-          switch (requestMessage.getProtocolOpType())
+          final byte protocolOpType = requestMessage.getProtocolOpType();
+          if (mayProcessConcurrently(requestMessage))
           {
-            case LDAPMessage.PROTOCOL_OP_TYPE_ABANDON_REQUEST:
-              requestHandler.processAbandonRequest(messageID,
-                   requestMessage.getAbandonRequestProtocolOp(), controls);
-              responseMessage = null;
-              break;
-
-            case LDAPMessage.PROTOCOL_OP_TYPE_ADD_REQUEST:
-              try
-              {
-                responseMessage = requestHandler.processAddRequest(messageID,
-                     requestMessage.getAddRequestProtocolOp(), controls);
-              }
-              catch (final Exception e)
-              {
-                Debug.debugException(e);
-                responseMessage = new LDAPMessage(messageID,
-                     new AddResponseProtocolOp(
-                          ResultCode.OTHER_INT_VALUE, null,
-                          ERR_CONN_REQUEST_HANDLER_FAILURE.get(
-                               StaticUtils.getExceptionMessage(e)),
-                          null));
-              }
-              break;
-
-            case LDAPMessage.PROTOCOL_OP_TYPE_BIND_REQUEST:
-              try
-              {
-                responseMessage = requestHandler.processBindRequest(messageID,
-                     requestMessage.getBindRequestProtocolOp(), controls);
-              }
-              catch (final Exception e)
-              {
-                Debug.debugException(e);
-                responseMessage = new LDAPMessage(messageID,
-                     new BindResponseProtocolOp(
-                          ResultCode.OTHER_INT_VALUE, null,
-                          ERR_CONN_REQUEST_HANDLER_FAILURE.get(
-                               StaticUtils.getExceptionMessage(e)),
-                          null, null));
-              }
-              break;
-
-            case LDAPMessage.PROTOCOL_OP_TYPE_COMPARE_REQUEST:
-              try
-              {
-                responseMessage = requestHandler.processCompareRequest(
-                     messageID, requestMessage.getCompareRequestProtocolOp(),
-                     controls);
-              }
-              catch (final Exception e)
-              {
-                Debug.debugException(e);
-                responseMessage = new LDAPMessage(messageID,
-                     new CompareResponseProtocolOp(
-                          ResultCode.OTHER_INT_VALUE, null,
-                          ERR_CONN_REQUEST_HANDLER_FAILURE.get(
-                               StaticUtils.getExceptionMessage(e)),
-                          null));
-              }
-              break;
-
-            case LDAPMessage.PROTOCOL_OP_TYPE_DELETE_REQUEST:
-              try
-              {
-                responseMessage = requestHandler.processDeleteRequest(messageID,
-                     requestMessage.getDeleteRequestProtocolOp(), controls);
-              }
-              catch (final Exception e)
-              {
-                Debug.debugException(e);
-                responseMessage = new LDAPMessage(messageID,
-                     new DeleteResponseProtocolOp(
-                          ResultCode.OTHER_INT_VALUE, null,
-                          ERR_CONN_REQUEST_HANDLER_FAILURE.get(
-                               StaticUtils.getExceptionMessage(e)),
-                          null));
-              }
-              break;
-
-            case LDAPMessage.PROTOCOL_OP_TYPE_EXTENDED_REQUEST:
-              try
-              {
-                responseMessage = requestHandler.processExtendedRequest(
-                     messageID, requestMessage.getExtendedRequestProtocolOp(),
-                     controls);
-              }
-              catch (final Exception e)
-              {
-                Debug.debugException(e);
-                responseMessage = new LDAPMessage(messageID,
-                     new ExtendedResponseProtocolOp(
-                          ResultCode.OTHER_INT_VALUE, null,
-                          ERR_CONN_REQUEST_HANDLER_FAILURE.get(
-                               StaticUtils.getExceptionMessage(e)),
-                          null, null, null));
-              }
-              break;
-
-            case LDAPMessage.PROTOCOL_OP_TYPE_MODIFY_REQUEST:
-              try
-              {
-                responseMessage = requestHandler.processModifyRequest(messageID,
-                     requestMessage.getModifyRequestProtocolOp(), controls);
-              }
-              catch (final Exception e)
-              {
-                Debug.debugException(e);
-                responseMessage = new LDAPMessage(messageID,
-                     new ModifyResponseProtocolOp(
-                          ResultCode.OTHER_INT_VALUE, null,
-                          ERR_CONN_REQUEST_HANDLER_FAILURE.get(
-                               StaticUtils.getExceptionMessage(e)),
-                          null));
-              }
-              break;
-
-            case LDAPMessage.PROTOCOL_OP_TYPE_MODIFY_DN_REQUEST:
-              try
-              {
-                responseMessage = requestHandler.processModifyDNRequest(
-                     messageID, requestMessage.getModifyDNRequestProtocolOp(),
-                     controls);
-              }
-              catch (final Exception e)
-              {
-                Debug.debugException(e);
-                responseMessage = new LDAPMessage(messageID,
-                     new ModifyDNResponseProtocolOp(
-                          ResultCode.OTHER_INT_VALUE, null,
-                          ERR_CONN_REQUEST_HANDLER_FAILURE.get(
-                               StaticUtils.getExceptionMessage(e)),
-                          null));
-              }
-              break;
-
-            case LDAPMessage.PROTOCOL_OP_TYPE_SEARCH_REQUEST:
-              try
-              {
-                responseMessage = requestHandler.processSearchRequest(messageID,
-                     requestMessage.getSearchRequestProtocolOp(), controls);
-              }
-              catch (final Exception e)
-              {
-                Debug.debugException(e);
-                responseMessage = new LDAPMessage(messageID,
-                     new SearchResultDoneProtocolOp(
-                          ResultCode.OTHER_INT_VALUE, null,
-                          ERR_CONN_REQUEST_HANDLER_FAILURE.get(
-                               StaticUtils.getExceptionMessage(e)),
-                          null));
-              }
-              break;
-
-            case LDAPMessage.PROTOCOL_OP_TYPE_UNBIND_REQUEST:
-              requestHandler.processUnbindRequest(messageID,
-                   requestMessage.getUnbindRequestProtocolOp(), controls);
-              close();
+            if (! dispatchRequest(requestMessage))
+            {
               return;
+            }
 
-            default:
-              close(new LDAPException(ResultCode.PROTOCOL_ERROR,
-                   ERR_CONN_INVALID_PROTOCOL_OP_TYPE.get(StaticUtils.toHex(
-                        requestMessage.getProtocolOpType()))));
-              return;
+            continue;
           }
-
-          if (responseMessage != null)
+          else if ((protocolOpType !=
+                    LDAPMessage.PROTOCOL_OP_TYPE_ABANDON_REQUEST) &&
+                   (protocolOpType !=
+                    LDAPMessage.PROTOCOL_OP_TYPE_UNBIND_REQUEST))
           {
-            try
-            {
-              sendMessage(responseMessage);
-            }
-            catch (final LDAPException le)
+            // Bind and StartTLS requests must not be processed until all
+            // outstanding operations have completed.
+            if (! waitForOutstandingOperations())
             {
-              Debug.debugException(le);
-              close(le);
               return;
             }
           }
         }
-        catch (final Exception e)
+
+        if (! processRequest(requestMessage))
         {
-          close(new LDAPException(ResultCode.LOCAL_ERROR,
-               ERR_CONN_EXCEPTION_IN_REQUEST_HANDLER.get(
-                    String.valueOf(requestMessage),
-                    StaticUtils.getExceptionMessage(e))));
           return;
         }
       }
@@ -644,6 +532,394 @@ public final class LDAPListenerClientConnection
 
 
 
+  /**
+   * Indicates whether the provided request may be processed concurrently with
+   * other requests on this connection.
+   *
+   * @param  requestMessage  The request message to examine.
+   *
+   * @return  {@code true} if the provided request may be processed concurrently
+   *          with other requests on this connection, or {@code false} if not.
+   */
+  private static boolean mayProcessConcurrently(
+                              final LDAPMessage requestMessage)
+  {
+    switch (requestMessage.getProtocolOpType())
+    {
+      case LDAPMessage.PROTOCOL_OP_TYPE_ADD_REQUEST:
+      case LDAPMessage.PROTOCOL_OP_TYPE_COMPARE_REQUEST:
+      case LDAPMessage.PROTOCOL_OP_TYPE_DELETE_REQUEST:
+      case LDAPMessage.PROTOCOL_OP_TYPE_MODIFY_REQUEST:
+      case LDAPMessage.PROTOCOL_OP_TYPE_MODIFY_DN_REQUEST:
+      case LDAPMessage.PROTOCOL_OP_TYPE_SEARCH_REQUEST:
+        return true;
+
+      case LDAPMessage.PROTOCOL_OP_TYPE_EXTENDED_REQUEST:
+        return (! requestMessage.getExtendedRequestProtocolOp().getOID().equals(
+             StartTLSExtendedRequest.STARTTLS_REQUEST_OID));
+
+      default:
+        return false;
+    }
+  }
+
+
+
+  /**
+   * Hands off the provided request to the request executor for processing,
+   * waiting if necessary until the number of outstanding operations on this
+   * connection is below the configured maximum.  If the request has the same
+   * message ID as an operation that is still in progress, then the connection
+   * will be closed with a protocol error.
+   *
+   * @param  requestMessage  The request message to be processed.
+   *
+   * @return  {@code true} if the connection should continue reading requests,
+   *          or {@code false} if the connection has been closed.
+   */
+  private boolean dispatchRequest(final LDAPMessage requestMessage)
+  {
+    try
+    {
+      operationPermits.acquire();
+    }
+    catch (final InterruptedException ie)
+    {
+      Debug.debugException(ie);
+      Thread.currentThread().interrupt();
+      close(new LDAPException(ResultCode.LOCAL_ERROR,
+           ERR_CONN_INTERRUPTED_WHILE_WAITING_FOR_OPERATIONS.get(), ie));
+      return false;
+    }
+
+    // A client must not reuse the message ID of an operation that is still in
+    // progress.  Treat that as a protocol error rather than losing track of
+    // the operation that is already using it.
+    final int messageID = requestMessage.getMessageID();
+    if (activeOperations.putIfAbsent(messageID, new AtomicBoolean(false)) !=
+        null)
+    {
+      operationPermits.release();
+      close(new LDAPException(ResultCode.PROTOCOL_ERROR,
+           ERR_CONN_DUPLICATE_MESSAGE_ID.get(messageID)));
+      return false;
+    }
+
+    try
+    {
+      requestExecutor.execute(
+           new LDAPListenerClientConnectionRequestProcessor(this,
+                requestMessage));
+      return true;
+    }
+    catch (final RejectedExecutionException ree)
+    {
+      // The executor won't accept any more tasks, so we'll process the request
+      // in this thread.
+      Debug.debugException(ree);
+      try
+      {
+        return processRequest(requestMessage);
+      }
+      finally
+      {
+        operationComplete(messageID);
+      }
+    }
+  }
+
+
+
+  /**
+   * Waits for all outstanding operations on this connection to complete.
+   *
+   * @return  {@code true} if all outstanding operations have completed, or
+   *          {@code false} if the connection has been closed.
+   */
+  private boolean waitForOutstandingOperations()
+  {
+    try
+    {
+      operationPermits.acquire(maxConcurrentOperations);
+      operationPermits.release(maxConcurrentOperations);
+      return true;
+    }
+    catch (final InterruptedException ie)
+    {
+      Debug.debugException(ie);
+      Thread.currentThread().interrupt();
+      close(new LDAPException(ResultCode.LOCAL_ERROR,
+           ERR_CONN_INTERRUPTED_WHILE_WAITING_FOR_OPERATIONS.get(), ie));
+      return false;
+    }
+  }
+
+
+
+  /**
+   * Indicates that processing has completed for the operation with the
+   * specified message ID that was handed off to the request executor.
+   *
+   * @param  messageID  The message ID for the operation that has completed.
+   */
+  void operationComplete(final int messageID)
+  {
+    activeOperations.remove(messageID);
+    operationPermits.release();
+  }
+
+
+
+  /**
+   * Indicates whether the operation with the specified message ID has been
+   * abandoned by the client.  No further responses should be sent to the
+   * client for an operation that has been abandoned.
+   *
+   * @param  messageID  The message ID for the operation to examine.
+   *
+   * @return  {@code true} if the specified operation is in progress and has
+   *          been abandoned, or {@code false} if not.
+   */
+  boolean isAbandoned(final int messageID)
+  {
+    final AtomicBoolean abandoned = activeOperations.get(messageID);
+    return ((abandoned != null) && abandoned.get());
+  }
+
+
+
+  /**
+   * Hands off the provided request to the request handler for processing and
+   * sends the response (if any) to the client.
+   *
+   * @param  requestMessage  The request message to be processed.
+   *
+   * @return  {@code true} if the connection should continue reading requests,
+   *          or {@code false} if the connection has been closed.
+   */
+  boolean processRequest(final LDAPMessage requestMessage)
+  {
+    try
+    {
+      final int messageID = requestMessage.getMessageID();
+      final List<Control> controls = requestMessage.getControls();
+
+      // If the request was abandoned before processing started, then there's
+      // nothing more to do.
+      if (isAbandoned(messageID))
+      {
+        return true;
+      }
+
+      LDAPMessage responseMessage;
+      switch (requestMessage.getProtocolOpType())
+      {
+        case LDAPMessage.PROTOCOL_OP_TYPE_ABANDON_REQUEST:
+          final AbandonRequestProtocolOp abandonRequest =
+               requestMessage.getAbandonRequestProtocolOp();
+          final AtomicBoolean abandoned =
+               activeOperations.get(abandonRequest.getIDToAbandon());
+          if (abandoned != null)
+          {
+            abandoned.set(true);
+          }
+
+          requestHandler.processAbandonRequest(messageID, abandonRequest,
+               controls);
+          responseMessage = null;
+          break;
+
+        case LDAPMessage.PROTOCOL_OP_TYPE_ADD_REQUEST:
+          try
+          {
+            responseMessage = requestHandler.processAddRequest(messageID,
+                 requestMessage.getAddRequestProtocolOp(), controls);
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+            responseMessage = new LDAPMessage(messageID,
+                 new AddResponseProtocolOp(
+                      ResultCode.OTHER_INT_VALUE, null,
+                      ERR_CONN_REQUEST_HANDLER_FAILURE.get(
+                           StaticUtils.getExceptionMessage(e)),
+                      null));
+          }
+          break;
+
+        case LDAPMessage.PROTOCOL_OP_TYPE_BIND_REQUEST:
+          try
+          {
+            responseMessage = requestHandler.processBindRequest(messageID,
+                 requestMessage.getBindRequestProtocolOp(), controls);
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+            responseMessage = new LDAPMessage(messageID,
+                 new BindResponseProtocolOp(
+                      ResultCode.OTHER_INT_VALUE, null,
+                      ERR_CONN_REQUEST_HANDLER_FAILURE.get(
+                           StaticUtils.getExceptionMessage(e)),
+                      null, null));
+          }
+          break;
+
+        case LDAPMessage.PROTOCOL_OP_TYPE_COMPARE_REQUEST:
+          try
+          {
+            responseMessage = requestHandler.processCompareRequest(
+                 messageID, requestMessage.getCompareRequestProtocolOp(),
+                 controls);
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+            responseMessage = new LDAPMessage(messageID,
+                 new CompareResponseProtocolOp(
+                      ResultCode.OTHER_INT_VALUE, null,
+                      ERR_CONN_REQUEST_HANDLER_FAILURE.get(
+                           StaticUtils.getExceptionMessage(e)),
+                      null));
+          }
+          break;
+
+        case LDAPMessage.PROTOCOL_OP_TYPE_DELETE_REQUEST:
+          try
+          {
+            responseMessage = requestHandler.processDeleteRequest(messageID,
+                 requestMessage.getDeleteRequestProtocolOp(), controls);
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+            responseMessage = new LDAPMessage(messageID,
+                 new DeleteResponseProtocolOp(
+                      ResultCode.OTHER_INT_VALUE, null,
+                      ERR_CONN_REQUEST_HANDLER_FAILURE.get(
+                           StaticUtils.getExceptionMessage(e)),
+                      null));
+          }
+          break;
+
+        case LDAPMessage.PROTOCOL_OP_TYPE_EXTENDED_REQUEST:
+          try
+          {
+            responseMessage = requestHandler.processExtendedRequest(
+                 messageID, requestMessage.getExtendedRequestProtocolOp(),
+                 controls);
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+            responseMessage = new LDAPMessage(messageID,
+                 new ExtendedResponseProtocolOp(
+                      ResultCode.OTHER_INT_VALUE, null,
+                      ERR_CONN_REQUEST_HANDLER_FAILURE.get(
+                           StaticUtils.getExceptionMessage(e)),
+                      null, null, null));
+          }
+          break;
+
+        case LDAPMessage.PROTOCOL_OP_TYPE_MODIFY_REQUEST:
+          try
+          {
+            responseMessage = requestHandler.processModifyRequest(messageID,
+                 requestMessage.getModifyRequestProtocolOp(), controls);
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+            responseMessage = new LDAPMessage(messageID,
+                 new ModifyResponseProtocolOp(
+                      ResultCode.OTHER_INT_VALUE, null,
+                      ERR_CONN_REQUEST_HANDLER_FAILURE.get(
+                           StaticUtils.getExceptionMessage(e)),
+                      null));
+          }
+          break;
+
+        case LDAPMessage.PROTOCOL_OP_TYPE_MODIFY_DN_REQUEST:
+          try
+          {
+            responseMessage = requestHandler.processModifyDNRequest(
+                 messageID, requestMessage.getModifyDNRequestProtocolOp(),
+                 controls);
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+            responseMessage = new LDAPMessage(messageID,
+                 new ModifyDNResponseProtocolOp(
+                      ResultCode.OTHER_INT_VALUE, null,
+                      ERR_CONN_REQUEST_HANDLER_FAILURE.get(
+                           StaticUtils.getExceptionMessage(e)),
+                      null));
+          }
+          break;
+
+        case LDAPMessage.PROTOCOL_OP_TYPE_SEARCH_REQUEST:
+          try
+          {
+            responseMessage = requestHandler.processSearchRequest(messageID,
+                 requestMessage.getSearchRequestProtocolOp(), controls);
+          }
+          catch (final Exception e)
+          {
+            Debug.debugException(e);
+            responseMessage = new LDAPMessage(messageID,
+                 new SearchResultDoneProtocolOp(
+                      ResultCode.OTHER_INT_VALUE, null,
+                      ERR_CONN_REQUEST_HANDLER_FAILURE.get(
+                           StaticUtils.getExceptionMessage(e)),
+                      null));
+          }
+          break;
+
+        case LDAPMessage.PROTOCOL_OP_TYPE_UNBIND_REQUEST:
+          requestHandler.processUnbindRequest(messageID,
+               requestMessage.getUnbindRequestProtocolOp(), controls);
+          close();
+          return false;
+
+        default:
+          close(new LDAPException(ResultCode.PROTOCOL_ERROR,
+               ERR_CONN_INVALID_PROTOCOL_OP_TYPE.get(StaticUtils.toHex(
+                    requestMessage.getProtocolOpType()))));
+          return false;
+      }
+
+      if ((responseMessage != null) && (! isAbandoned(messageID)))
+      {
+        try
+        {
+          sendMessage(responseMessage);
+        }
+        catch (final LDAPException le)
+        {
+          Debug.debugException(le);
+          if (! closed)
+          {
+            close(le);
+          }
+          return false;
+        }
+      }
+
+      return true;
+    }
+    catch (final Exception e)
+    {
+      close(new LDAPException(ResultCode.LOCAL_ERROR,
+           ERR_CONN_EXCEPTION_IN_REQUEST_HANDLER.get(
+                String.valueOf(requestMessage),
+                StaticUtils.getExceptionMessage(e))));
+      return false;
+    }
+  }
+
+
+
   /**
    * Sends the provided message to the client.
    *
@@ -701,7 +977,8 @@ public final class LDAPListenerClientConnection
 
   /**
    * Sends a search result entry message to the client with the provided
-   * information.
+   * information.  Nothing will be sent if the associated search operation has
+   * been abandoned.
    *
    * @param  messageID   The message ID for the LDAP message to send to the
    *                     client.  It must match the message ID of the associated
@@ -723,6 +1000,11 @@ public final class LDAPListenerClientConnection
                    final Control... controls)
          throws LDAPException
   {
+    if (isAbandoned(messageID))
+    {
+      return;
+    }
+
     if (searchEntryTransformers.isEmpty())
     {
       sendMessage(new LDAPMessage(messageID, protocolOp, controls));
@@ -774,7 +1056,8 @@ public final class LDAPListenerClientConnection
 
   /**
    * Sends a search result entry message to the client with the provided
-   * information.
+   * information.  Nothing will be sent if the associated search operation has
+   * been abandoned.
    *
    * @param  messageID  The message ID for the LDAP message to send to the
    *                    client.  It must match the message ID of the associated
@@ -804,7 +1087,8 @@ public final class LDAPListenerClientConnection
 
   /**
    * Sends a search result reference message to the client with the provided
-   * information.
+   * information.  Nothing will be sent if the associated search operation has
+   * been abandoned.
    *
    * @param  messageID   The message ID for the LDAP message to send to the
    *                     client.  It must match the message ID of the associated
@@ -825,6 +1109,11 @@ public final class LDAPListenerClientConnection
                    final Control... controls)
          throws LDAPException
   {
+    if (isAbandoned(messageID))
+    {
+      return;
+    }
+
     if (searchReferenceTransformers.isEmpty())
     {
       sendMessage(new LDAPMessage(messageID, protocolOp, controls));
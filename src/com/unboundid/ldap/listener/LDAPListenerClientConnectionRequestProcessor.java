@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import com.unboundid.ldap.protocol.LDAPMessage;
+import com.unboundid.util.NotMutable;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+
+
+/**
+ * This class provides a task that will be used to process a single request
+ * read from a client connection when the listener is configured to allow
+ * multiple concurrent operations per connection.  The response will be sent to
+ * the client by the thread that runs this task.
+ */
+@NotMutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class LDAPListenerClientConnectionRequestProcessor
+      implements Runnable
+{
+  // The client connection from which the request was read.
+  private final LDAPListenerClientConnection connection;
+
+  // The request to be processed.
+  private final LDAPMessage requestMessage;
+
+
+
+  /**
+   * Creates a new request processor with the provided information.
+   *
+   * @param  connection      The client connection from which the request was
+   *                         read.
+   * @param  requestMessage  The request to be processed.
+   */
+  LDAPListenerClientConnectionRequestProcessor(
+       final LDAPListenerClientConnection connection,
+       final LDAPMessage requestMessage)
+  {
+    this.connection     = connection;
+    this.requestMessage = requestMessage;
+  }
+
+
+
+  /**
+   * Processes the request and sends the response to the client.
+   */
+  @Override()
+  public void run()
+  {
+    try
+    {
+      connection.processRequest(requestMessage);
+    }
+    finally
+    {
+      connection.operationComplete(requestMessage.getMessageID());
+    }
+  }
+}
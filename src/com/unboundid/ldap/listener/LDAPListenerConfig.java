@@ -23,6 +23,7 @@ package com.unboundid.ldap.listener;
 
 
 import java.net.InetAddress;
+import java.util.concurrent.Executor;
 import javax.net.ServerSocketFactory;
 
 import com.unboundid.util.Mutable;
@@ -66,6 +67,10 @@ public final class LDAPListenerConfig
   // The linger timeout in seconds to use for sockets accepted by the listener.
   private int lingerTimeout;
 
+  // The maximum number of operations that may be in progress at the same time
+  // on any single client connection.
+  private int maxConcurrentOperationsPerConnection;
+
   // The port on which to listen for client connections.
   private int listenPort;
 
@@ -85,6 +90,9 @@ public final class LDAPListenerConfig
   // clients.
   private LDAPListenerRequestHandler requestHandler;
 
+  // The executor that will be used to process requests concurrently.
+  private Executor requestExecutor;
+
   // The factory that will be used to create server sockets.
   private ServerSocketFactory serverSocketFactory;
 
@@ -120,7 +128,10 @@ public final class LDAPListenerConfig
     receiveBufferSize   = 0;
     sendBufferSize      = 0;
     exceptionHandler    = null;
+    requestExecutor     = null;
     serverSocketFactory = ServerSocketFactory.getDefault();
+
+    maxConcurrentOperationsPerConnection = 1;
   }
 
 
@@ -400,6 +411,91 @@ public final class LDAPListenerConfig
 
 
 
+  /**
+   * Retrieves the maximum number of operations that may be in progress at the
+   * same time on any single client connection.  A value of one indicates that
+   * each request will be processed by the thread that reads it from the client
+   * before the next request is read.
+   *
+   * @return  The maximum number of operations that may be in progress at the
+   *          same time on any single client connection.
+   */
+  public int getMaxConcurrentOperationsPerConnection()
+  {
+    return maxConcurrentOperationsPerConnection;
+  }
+
+
+
+  /**
+   * Specifies the maximum number of operations that may be in progress at the
+   * same time on any single client connection.  If this is greater than one,
+   * then add, compare, delete, extended, modify, modify DN, and search requests
+   * will be handed off to the request executor so that multiple requests from
+   * the same client may be processed concurrently, and so that abandon requests
+   * may be read while those operations are in progress.  Bind and StartTLS
+   * requests will only be processed after all outstanding operations on the
+   * connection have completed.
+   *
+   * @param  maxConcurrentOperationsPerConnection
+   *              The maximum number of operations that may be in progress at
+   *              the same time on any single client connection.  A value that
+   *              is less than or equal to one indicates that requests should
+   *              be processed one at a time.
+   */
+  public void setMaxConcurrentOperationsPerConnection(
+                   final int maxConcurrentOperationsPerConnection)
+  {
+    if (maxConcurrentOperationsPerConnection > 1)
+    {
+      this.maxConcurrentOperationsPerConnection =
+           maxConcurrentOperationsPerConnection;
+    }
+    else
+    {
+      this.maxConcurrentOperationsPerConnection = 1;
+    }
+  }
+
+
+
+  /**
+   * Retrieves the executor that will be used to process requests when the
+   * maximum number of concurrent operations per connection is greater than
+   * one.
+   *
+   * @return  The executor that will be used to process requests, or
+   *          {@code null} if the listener should create its own executor when
+   *          one is needed.
+   */
+  public Executor getRequestExecutor()
+  {
+    return requestExecutor;
+  }
+
+
+
+  /**
+   * Specifies the executor that will be used to process requests when the
+   * maximum number of concurrent operations per connection is greater than
+   * one.  The executor will be shared by all connections accepted by the
+   * listener.  An executor provided through this method will not be shut down
+   * when the listener is shut down.  If no executor is provided, then the
+   * listener will create its own, and that executor will be shut down whenever
+   * the listener is shut down, even if existing connections are left open.
+   *
+   * @param  requestExecutor  The executor that will be used to process
+   *                          requests.  It may be {@code null} if the listener
+   *                          should create its own executor when one is
+   *                          needed.
+   */
+  public void setRequestExecutor(final Executor requestExecutor)
+  {
+    this.requestExecutor = requestExecutor;
+  }
+
+
+
   /**
    * Retrieves the receive buffer size that should be used for sockets accepted
    * by the listener.
@@ -567,8 +663,12 @@ public final class LDAPListenerConfig
     copy.receiveBufferSize   = receiveBufferSize;
     copy.sendBufferSize      = sendBufferSize;
     copy.exceptionHandler    = exceptionHandler;
+    copy.requestExecutor     = requestExecutor;
     copy.serverSocketFactory = serverSocketFactory;
 
+    copy.maxConcurrentOperationsPerConnection =
+         maxConcurrentOperationsPerConnection;
+
     return copy;
   }
 
@@ -642,6 +742,16 @@ public final class LDAPListenerConfig
 
     buffer.append(", maxConnections=");
     buffer.append(maxConnections);
+    buffer.append(", maxConcurrentOperationsPerConnection=");
+    buffer.append(maxConcurrentOperationsPerConnection);
+
+    if (requestExecutor != null)
+    {
+      buffer.append(", requestExecutorClass='");
+      buffer.append(requestExecutor.getClass().getName());
+      buffer.append('\'');
+    }
+
     buffer.append(", useReuseAddress=");
     buffer.append(useReuseAddress);
     buffer.append(", receiveBufferSize=");
@@ -24,7 +24,9 @@ package com.unboundid.ldap.listener;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
+import com.unboundid.ldap.protocol.AbandonRequestProtocolOp;
 import com.unboundid.ldap.protocol.AddRequestProtocolOp;
 import com.unboundid.ldap.protocol.AddResponseProtocolOp;
 import com.unboundid.ldap.protocol.BindRequestProtocolOp;
@@ -44,6 +46,7 @@ import com.unboundid.ldap.protocol.ModifyDNResponseProtocolOp;
 import com.unboundid.ldap.protocol.SearchRequestProtocolOp;
 import com.unboundid.ldap.protocol.SearchResultDoneProtocolOp;
 import com.unboundid.ldap.sdk.AddRequest;
+import com.unboundid.ldap.sdk.AsyncRequestID;
 import com.unboundid.ldap.sdk.BindRequest;
 import com.unboundid.ldap.sdk.CompareRequest;
 import com.unboundid.ldap.sdk.Control;
@@ -59,10 +62,13 @@ import com.unboundid.ldap.sdk.LDAPResult;
 import com.unboundid.ldap.sdk.ModifyRequest;
 import com.unboundid.ldap.sdk.ModifyDNRequest;
 import com.unboundid.ldap.sdk.SearchRequest;
+import com.unboundid.ldap.sdk.ResultCode;
 import com.unboundid.ldap.sdk.ServerSet;
 import com.unboundid.ldap.sdk.SimpleBindRequest;
+import com.unboundid.ldap.sdk.extensions.CancelExtendedRequest;
 import com.unboundid.util.Debug;
 import com.unboundid.util.NotMutable;
+import com.unboundid.util.ObjectPair;
 import com.unboundid.util.StaticUtils;
 import com.unboundid.util.ThreadSafety;
 import com.unboundid.util.ThreadSafetyLevel;
@@ -75,7 +81,9 @@ import static com.unboundid.ldap.listener.ListenerMessages.*;
 /**
  * This class provides an implementation of a simple LDAP listener request
  * handler that may be used to forward the request to another LDAP directory
- * server.
+ * server.  If the connection to that server is not operating in synchronous
+ * mode, then search requests will be forwarded asynchronously so that they may
+ * be abandoned or canceled by the client.
  */
 @NotMutable()
 @ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
@@ -93,6 +101,11 @@ public final class ProxyRequestHandler
   // The connection to the LDAP server to which requests will be forwarded.
   private final LDAPConnection ldapConnection;
 
+  // The searches that have been forwarded asynchronously and are still in
+  // progress, indexed by the message ID of the client request.
+  private final ConcurrentHashMap<Integer,ObjectPair<AsyncRequestID,
+       ProxySearchResultListener>> activeSearches;
+
   // The client connection that has been established.
   private final LDAPListenerClientConnection listenerConnection;
 
@@ -117,6 +130,7 @@ public final class ProxyRequestHandler
 
     ldapConnection = null;
     listenerConnection = null;
+    activeSearches = null;
   }
 
 
@@ -140,6 +154,9 @@ public final class ProxyRequestHandler
     this.serverSet          = serverSet;
     this.ldapConnection     = ldapConnection;
     this.listenerConnection = listenerConnection;
+
+    activeSearches = new ConcurrentHashMap<Integer,
+         ObjectPair<AsyncRequestID,ProxySearchResultListener>>();
   }
 
 
@@ -169,6 +186,53 @@ public final class ProxyRequestHandler
 
 
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void processAbandonRequest(final int messageID,
+                                    final AbandonRequestProtocolOp request,
+                                    final List<Control> controls)
+  {
+    final Control[] controlArray = new Control[controls.size()];
+    controls.toArray(controlArray);
+    abandonSearch(request.getIDToAbandon(), controlArray);
+  }
+
+
+
+  /**
+   * Abandons the specified search if it has been forwarded asynchronously and
+   * is still in progress.
+   *
+   * @param  messageID  The message ID of the client request for the search to
+   *                    abandon.
+   * @param  controls   The set of controls to include in the abandon request
+   *                    sent to the server.
+   */
+  private void abandonSearch(final int messageID, final Control[] controls)
+  {
+    final ObjectPair<AsyncRequestID,ProxySearchResultListener> p =
+         activeSearches.remove(messageID);
+    if (p == null)
+    {
+      return;
+    }
+
+    try
+    {
+      ldapConnection.abandon(p.getFirst(), controls);
+    }
+    catch (final LDAPException le)
+    {
+      Debug.debugException(le);
+    }
+
+    p.getSecond().searchAbandoned();
+  }
+
+
+
   /**
    * {@inheritDoc}
    */
@@ -347,7 +411,7 @@ public final class ProxyRequestHandler
                           final ExtendedRequestProtocolOp request,
                           final List<Control> controls)
   {
-    final ExtendedRequest extendedRequest;
+    ExtendedRequest extendedRequest;
     if (controls.isEmpty())
     {
       extendedRequest = new ExtendedRequest(request.getOID(),
@@ -360,6 +424,39 @@ public final class ProxyRequestHandler
       extendedRequest = new ExtendedRequest(request.getOID(),
            request.getValue(), controlArray);
     }
+
+    // The message ID targeted by a cancel request must be mapped to the
+    // message ID of the corresponding request sent to the server.
+    if (request.getOID().equals(CancelExtendedRequest.CANCEL_REQUEST_OID))
+    {
+      try
+      {
+        final CancelExtendedRequest cancelRequest =
+             new CancelExtendedRequest(extendedRequest);
+        final ObjectPair<AsyncRequestID,ProxySearchResultListener> p =
+             activeSearches.get(cancelRequest.getTargetMessageID());
+        if (p == null)
+        {
+          return new LDAPMessage(messageID, new ExtendedResponseProtocolOp(
+               ResultCode.NO_SUCH_OPERATION_INT_VALUE, null,
+               ERR_PROXY_HANDLER_CANCEL_NO_SUCH_OPERATION.get(
+                    cancelRequest.getTargetMessageID()),
+               null, null, null));
+        }
+
+        extendedRequest = new CancelExtendedRequest(p.getFirst(),
+             cancelRequest.getControls());
+      }
+      catch (final LDAPException le)
+      {
+        Debug.debugException(le);
+        return new LDAPMessage(messageID, new ExtendedResponseProtocolOp(
+             le.getResultCode().intValue(), le.getMatchedDN(),
+             le.getMessage(), Arrays.asList(le.getReferralURLs()), null,
+             null));
+      }
+    }
+
     extendedRequest.setIntermediateResponseListener(this);
 
     try
@@ -508,13 +605,46 @@ public final class ProxyRequestHandler
     LDAPResult searchResult;
     try
     {
-      searchResult = ldapConnection.search(searchRequest);
+      if (ldapConnection.synchronousMode())
+      {
+        searchResult = ldapConnection.search(searchRequest);
+      }
+      else
+      {
+        final ObjectPair<AsyncRequestID,ProxySearchResultListener> p =
+             new ObjectPair<AsyncRequestID,ProxySearchResultListener>(
+                  ldapConnection.asyncSearch(searchRequest), searchListener);
+        activeSearches.put(messageID, p);
+
+        // The search may have been abandoned before it was registered.
+        if (listenerConnection.isAbandoned(messageID))
+        {
+          abandonSearch(messageID, StaticUtils.NO_CONTROLS);
+        }
+
+        try
+        {
+          searchResult = searchListener.awaitResult();
+        }
+        finally
+        {
+          activeSearches.remove(messageID, p);
+        }
+      }
     }
     catch (final LDAPException le)
     {
       Debug.debugException(le);
       searchResult = le.toLDAPResult();
     }
+    catch (final InterruptedException ie)
+    {
+      Debug.debugException(ie);
+      Thread.currentThread().interrupt();
+      searchResult = new LDAPResult(messageID, ResultCode.LOCAL_ERROR,
+           ERR_PROXY_HANDLER_SEARCH_INTERRUPTED.get(), null,
+           StaticUtils.NO_STRINGS, StaticUtils.NO_CONTROLS);
+    }
 
     final SearchResultDoneProtocolOp searchResultDoneProtocolOp =
          new SearchResultDoneProtocolOp(searchResult.getResultCode().intValue(),
@@ -23,22 +23,31 @@ package com.unboundid.ldap.listener;
 
 
 import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
 
 import com.unboundid.ldap.protocol.SearchResultReferenceProtocolOp;
+import com.unboundid.ldap.sdk.AsyncRequestID;
+import com.unboundid.ldap.sdk.AsyncSearchResultListener;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.SearchResult;
 import com.unboundid.ldap.sdk.SearchResultEntry;
-import com.unboundid.ldap.sdk.SearchResultListener;
 import com.unboundid.ldap.sdk.SearchResultReference;
 import com.unboundid.util.Debug;
+import com.unboundid.util.StaticUtils;
+
+import static com.unboundid.ldap.listener.ListenerMessages.*;
 
 
 
 /**
  * This class provides an implementation of a search result listener that will
  * be used by the {@link ProxyRequestHandler} class in the course of returning
- * entries to the client.
+ * entries to the client.  If the search is processed asynchronously, then the
+ * listener will also make the result available through the
+ * {@link #awaitResult} method.
  */
 final class ProxySearchResultListener
-      implements SearchResultListener
+      implements AsyncSearchResultListener
 {
   /**
    * The serial version UID for this serializable class.
@@ -50,6 +59,9 @@ final class ProxySearchResultListener
   // The message ID for the associated search request.
   private final int messageID;
 
+  // The queue that will hold the result of an asynchronous search.
+  private final ArrayBlockingQueue<SearchResult> resultQueue;
+
   // The client connection that will be used to return the results.
   private final LDAPListenerClientConnection clientConnection;
 
@@ -68,6 +80,8 @@ final class ProxySearchResultListener
   {
     this.clientConnection = clientConnection;
     this.messageID        = messageID;
+
+    resultQueue = new ArrayBlockingQueue<SearchResult>(1);
   }
 
 
@@ -112,4 +126,45 @@ final class ProxySearchResultListener
       Debug.debugException(e);
     }
   }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void searchResultReceived(final AsyncRequestID requestID,
+                                   final SearchResult searchResult)
+  {
+    resultQueue.offer(searchResult);
+  }
+
+
+
+  /**
+   * Indicates that the search has been abandoned by the client, so that any
+   * thread waiting for the result will no longer need to wait.
+   */
+  void searchAbandoned()
+  {
+    resultQueue.offer(new SearchResult(messageID, ResultCode.CANCELED,
+         INFO_PROXY_HANDLER_SEARCH_ABANDONED.get(), null,
+         StaticUtils.NO_STRINGS, 0, 0, StaticUtils.NO_CONTROLS));
+  }
+
+
+
+  /**
+   * Waits for the result of an asynchronous search to be received, or for the
+   * search to be abandoned.
+   *
+   * @return  The result of the search.
+   *
+   * @throws  InterruptedException  If the thread is interrupted while waiting.
+   */
+  SearchResult awaitResult()
+         throws InterruptedException
+  {
+    return resultQueue.take();
+  }
 }
@@ -113,6 +113,38 @@ public final class RateLimiterRequestHandler
 
 
 
+  /**
+   * Creates a new rate limiter request handler that will limit the rate of
+   * operations to the specified maximum number per second using a lock-free
+   * token bucket, which can reduce contention when there are many concurrent
+   * clients.  The rate limiting will be enforced for all types of operations
+   * except abandon and unbind.  No rate limiting will be enforced for abandon
+   * or unbind operations.
+   *
+   * @param  downstreamRequestHandler  The downstream request handler that will
+   *                                   be used to actually process the requests
+   *                                   after any appropriate rate limiting has
+   *                                   been performed.  It must not be
+   *                                   {@code null}.
+   * @param  maxPerSecond              The maximum number of operations that
+   *                                   will be allowed per second, across all
+   *                                   types of operations except abandon and
+   *                                   unbind.  It must be greater than zero.
+   * @param  burstSize                 The maximum number of operations that
+   *                                   may be released at once in an attempt to
+   *                                   catch up after falling behind the target
+   *                                   rate.  It must be greater than zero.
+   */
+  public RateLimiterRequestHandler(
+              final LDAPListenerRequestHandler downstreamRequestHandler,
+              final int maxPerSecond, final int burstSize)
+  {
+    this(downstreamRequestHandler,
+         new FixedRateBarrier(1000L, maxPerSecond, burstSize));
+  }
+
+
+
   /**
    * Creates a new rate limiter request handler that will use the provided
    * {@link FixedRateBarrier} to perform rate limiting for all types of
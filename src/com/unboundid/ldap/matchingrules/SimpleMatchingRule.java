@@ -75,11 +75,75 @@ public abstract class SimpleMatchingRule
   {
     final byte[] normValue = normalize(value).getValue();
 
-    int pos = 0;
-    if (subInitial != null)
+    final byte[] normSubInitial;
+    if (subInitial == null)
+    {
+      normSubInitial = null;
+    }
+    else
     {
-      final byte[] normSubInitial =
+      normSubInitial =
            normalizeSubstring(subInitial, SUBSTRING_TYPE_SUBINITIAL).getValue();
+    }
+
+    final byte[][] normSubAny;
+    if (subAny == null)
+    {
+      normSubAny = null;
+    }
+    else
+    {
+      normSubAny = new byte[subAny.length][];
+      for (int i=0; i < subAny.length; i++)
+      {
+        normSubAny[i] =
+             normalizeSubstring(subAny[i],SUBSTRING_TYPE_SUBANY).getValue();
+      }
+    }
+
+    final byte[] normSubFinal;
+    if (subFinal == null)
+    {
+      normSubFinal = null;
+    }
+    else
+    {
+      normSubFinal =
+           normalizeSubstring(subFinal, SUBSTRING_TYPE_SUBFINAL).getValue();
+    }
+
+    return matchesNormalizedSubstring(normValue, normSubInitial, normSubAny,
+         normSubFinal);
+  }
+
+
+
+  /**
+   * Indicates whether the provided normalized value matches the given
+   * normalized substring components.  This may be used to avoid normalizing
+   * the substring components again when the same assertion will be evaluated
+   * against a number of values.
+   *
+   * @param  normValue       The normalized value for which to make the
+   *                         determination.  It must not be {@code null}.
+   * @param  normSubInitial  The normalized subInitial component.  It may be
+   *                         {@code null} if there is no subInitial element.
+   * @param  normSubAny      The normalized subAny components.  It may be
+   *                         {@code null} if there are no subAny elements.
+   * @param  normSubFinal    The normalized subFinal component.  It may be
+   *                         {@code null} if there is no subFinal element.
+   *
+   * @return  {@code true} if the provided value matches the substring
+   *          components, or {@code false} if not.
+   */
+  public static boolean matchesNormalizedSubstring(final byte[] normValue,
+                                                   final byte[] normSubInitial,
+                                                   final byte[][] normSubAny,
+                                                   final byte[] normSubFinal)
+  {
+    int pos = 0;
+    if (normSubInitial != null)
+    {
       if (normValue.length < normSubInitial.length)
       {
         return false;
@@ -96,15 +160,8 @@ public abstract class SimpleMatchingRule
       pos = normSubInitial.length;
     }
 
-    if (subAny != null)
+    if (normSubAny != null)
     {
-      final byte[][] normSubAny = new byte[subAny.length][];
-      for (int i=0; i < subAny.length; i++)
-      {
-        normSubAny[i] =
-             normalizeSubstring(subAny[i],SUBSTRING_TYPE_SUBANY).getValue();
-      }
-
       for (final byte[] b : normSubAny)
       {
         if (b.length == 0)
@@ -144,10 +201,8 @@ public abstract class SimpleMatchingRule
       }
     }
 
-    if (subFinal != null)
+    if (normSubFinal != null)
     {
-      final byte[] normSubFinal =
-           normalizeSubstring(subFinal, SUBSTRING_TYPE_SUBFINAL).getValue();
       int finalStartPos = normValue.length - normSubFinal.length;
       if (finalStartPos < pos)
       {
@@ -2585,6 +2585,7 @@ requestLoop:
       {
         try
         {
+          conn.ensureAllowedIfShared(request);
           final LDAPResult result = request.process(conn, 1);
           results.add(result);
           switch (result.getResultCode().intValue())
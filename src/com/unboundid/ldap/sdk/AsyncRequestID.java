@@ -92,6 +92,9 @@ public final class AsyncRequestID
   // The connection used to process the asynchronous operation.
   private final LDAPConnection connection;
 
+  // Indicates whether the result for the associated operation has been set.
+  private volatile boolean resultSet;
+
   // The timer task that will allow the associated request to be cancelled.
   private volatile AsyncTimeoutTimerTask timerTask;
 
@@ -112,6 +115,7 @@ public final class AsyncRequestID
     resultQueue     = new ArrayBlockingQueue<LDAPResult>(1);
     cancelRequested = new AtomicBoolean(false);
     result          = new AtomicReference<LDAPResult>();
+    resultSet       = false;
     timerTask       = null;
   }
 
@@ -323,6 +327,14 @@ public final class AsyncRequestID
   void setTimerTask(final AsyncTimeoutTimerTask timerTask)
   {
     this.timerTask = timerTask;
+
+    // The result may have been received before the timer task was set, in
+    // which case it will not have been cancelled by setResult.
+    if ((timerTask != null) && resultSet)
+    {
+      timerTask.cancel();
+      this.timerTask = null;
+    }
   }
 
 
@@ -335,15 +347,17 @@ public final class AsyncRequestID
    */
   void setResult(final LDAPResult result)
   {
-    resultQueue.offer(result);
-
+    // Cancel the timeout before making the result available, so that a caller
+    // that gets the result will not see the timeout still pending.
+    resultSet = true;
     final AsyncTimeoutTimerTask t = timerTask;
     if (t != null)
     {
       t.cancel();
-      connection.getTimer().purge();
       timerTask = null;
     }
+
+    resultQueue.offer(result);
   }
 
 
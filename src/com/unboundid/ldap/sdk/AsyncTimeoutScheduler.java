@@ -0,0 +1,598 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.unboundid.util.InternalUseOnly;
+
+import static com.unboundid.util.Debug.*;
+
+
+
+/**
+ * This class provides a hashed timing wheel that may be used to schedule
+ * timeouts for asynchronous operations.  A single process-wide instance is
+ * shared by all connections, so that the number of threads needed to enforce
+ * timeouts does not grow with the number of connections.
+ * <BR><BR>
+ * Scheduling and cancelling a task are both constant-time operations that do
+ * not require any locking.  New and cancelled tasks are placed in lock-free
+ * queues, and the scheduler thread moves them into or out of the wheel on each
+ * tick.  Because the wheel only advances once per tick, a task may be invoked
+ * up to one tick later than requested, but it will never be invoked early.
+ * <BR><BR>
+ * Tasks are invoked by the scheduler thread itself, so they should complete
+ * quickly.  When there are no outstanding tasks, the scheduler thread will
+ * park until a new task is scheduled rather than waking up on every tick.
+ */
+@InternalUseOnly()
+final class AsyncTimeoutScheduler
+      implements Runnable
+{
+  /**
+   * The default duration in milliseconds for each tick of the wheel.
+   */
+  static final long DEFAULT_TICK_DURATION_MILLIS = 10L;
+
+
+
+  /**
+   * The default number of buckets in the wheel.
+   */
+  static final int DEFAULT_WHEEL_SIZE = 512;
+
+
+
+  /**
+   * The process-wide scheduler instance.
+   */
+  private static final AsyncTimeoutScheduler INSTANCE =
+       new AsyncTimeoutScheduler("LDAP SDK Async Timeout Scheduler",
+            DEFAULT_TICK_DURATION_MILLIS, DEFAULT_WHEEL_SIZE);
+
+
+
+  // The number of tasks that are currently scheduled and have been neither
+  // invoked nor cancelled.
+  private final AtomicLong numPending;
+
+  // The buckets that comprise the wheel.  They will only be accessed by the
+  // scheduler thread.
+  private final Bucket[] wheel;
+
+  // The queue of tasks that have been cancelled and may need to be removed from
+  // the wheel.
+  private final ConcurrentLinkedQueue<Task> cancelledTasks;
+
+  // The queue of tasks that have been scheduled but not yet added to the wheel.
+  private final ConcurrentLinkedQueue<Task> newTasks;
+
+  // Indicates whether the scheduler thread is parked waiting for new tasks.
+  private volatile boolean idle;
+
+  // The scheduler thread, if it has been started.
+  private volatile Thread thread;
+
+  // The mask that will be used to map a tick to a bucket.
+  private final int mask;
+
+  // The time, in nanoseconds, that will be used as the basis for all ticks.
+  private final long startTimeNanos;
+
+  // The duration in nanoseconds for each tick.
+  private final long tickNanos;
+
+  // The name to use for the scheduler thread.
+  private final String threadName;
+
+
+
+  /**
+   * Creates a new timeout scheduler with the provided settings.  The
+   * scheduler thread will not be started until the first task is scheduled.
+   *
+   * @param  threadName          The name to use for the scheduler thread.
+   * @param  tickDurationMillis  The duration in milliseconds for each tick of
+   *                             the wheel.  It must be greater than zero.
+   * @param  wheelSize           The minimum number of buckets in the wheel.
+   *                             It will be rounded up to the next power of
+   *                             two.
+   */
+  AsyncTimeoutScheduler(final String threadName,
+                        final long tickDurationMillis, final int wheelSize)
+  {
+    this.threadName = threadName;
+
+    int size = 1;
+    while (size < wheelSize)
+    {
+      size <<= 1;
+    }
+
+    wheel = new Bucket[size];
+    for (int i=0; i < size; i++)
+    {
+      wheel[i] = new Bucket();
+    }
+
+    mask           = size - 1;
+    tickNanos      = TimeUnit.MILLISECONDS.toNanos(
+         Math.max(1L, tickDurationMillis));
+    startTimeNanos = System.nanoTime();
+    numPending     = new AtomicLong(0L);
+    newTasks       = new ConcurrentLinkedQueue<Task>();
+    cancelledTasks = new ConcurrentLinkedQueue<Task>();
+    idle           = false;
+    thread         = null;
+  }
+
+
+
+  /**
+   * Retrieves the process-wide scheduler instance.
+   *
+   * @return  The process-wide scheduler instance.
+   */
+  static AsyncTimeoutScheduler getInstance()
+  {
+    return INSTANCE;
+  }
+
+
+
+  /**
+   * Schedules the provided task to be invoked after the specified delay unless
+   * it is cancelled first.  A task may only be scheduled once.
+   *
+   * @param  task         The task to be scheduled.  It must not be
+   *                      {@code null}.
+   * @param  delayMillis  The length of time in milliseconds to wait before
+   *                      invoking the task.
+   *
+   * @throws  IllegalStateException  If the provided task has already been
+   *                                 scheduled or cancelled.
+   */
+  void schedule(final Task task, final long delayMillis)
+       throws IllegalStateException
+  {
+    if (task.state != Task.STATE_NEW)
+    {
+      throw new IllegalStateException();
+    }
+
+    task.scheduler = this;
+    task.deadlineNanos = System.nanoTime() +
+         TimeUnit.MILLISECONDS.toNanos(Math.max(0L, delayMillis)) -
+         startTimeNanos;
+
+    numPending.incrementAndGet();
+    if (! Task.STATE_UPDATER.compareAndSet(task, Task.STATE_NEW,
+         Task.STATE_PENDING))
+    {
+      numPending.decrementAndGet();
+      throw new IllegalStateException();
+    }
+
+    newTasks.offer(task);
+
+    final Thread t = thread;
+    if (t == null)
+    {
+      startThread();
+    }
+    else if (idle)
+    {
+      LockSupport.unpark(t);
+    }
+  }
+
+
+
+  /**
+   * Starts the scheduler thread if it has not already been started.
+   */
+  private synchronized void startThread()
+  {
+    if (thread == null)
+    {
+      final Thread t = new Thread(this, threadName);
+      t.setDaemon(true);
+      t.start();
+      thread = t;
+    }
+  }
+
+
+
+  /**
+   * Indicates that the provided task has been cancelled.
+   *
+   * @param  task  The task that has been cancelled.
+   */
+  private void cancelled(final Task task)
+  {
+    numPending.decrementAndGet();
+    cancelledTasks.offer(task);
+  }
+
+
+
+  /**
+   * Retrieves the number of tasks that are currently scheduled and have not yet
+   * been invoked or cancelled.
+   *
+   * @return  The number of tasks that are currently scheduled and have not yet
+   *          been invoked or cancelled.
+   */
+  long getNumPendingTasks()
+  {
+    return numPending.get();
+  }
+
+
+
+  /**
+   * Operates in a loop, advancing the wheel on each tick and invoking any tasks
+   * whose deadlines have been reached.
+   */
+  @Override()
+  public void run()
+  {
+    long tick = currentTick();
+    while (true)
+    {
+      removeCancelledTasks();
+
+      if ((numPending.get() == 0L) && newTasks.isEmpty())
+      {
+        idle = true;
+        if (newTasks.isEmpty())
+        {
+          LockSupport.park(this);
+        }
+        idle = false;
+
+        tick = currentTick();
+        continue;
+      }
+
+      final long tickDeadline = (tick + 1L) * tickNanos;
+      while (true)
+      {
+        final long sleepNanos =
+             tickDeadline - (System.nanoTime() - startTimeNanos);
+        if (sleepNanos <= 0L)
+        {
+          break;
+        }
+
+        LockSupport.parkNanos(this, sleepNanos);
+      }
+
+      removeCancelledTasks();
+      transferNewTasks(tick);
+      expireTasks(wheel[(int) (tick & mask)]);
+      tick++;
+    }
+  }
+
+
+
+  /**
+   * Retrieves the current tick for this scheduler.
+   *
+   * @return  The current tick for this scheduler.
+   */
+  private long currentTick()
+  {
+    return (System.nanoTime() - startTimeNanos) / tickNanos;
+  }
+
+
+
+  /**
+   * Removes any cancelled tasks from the wheel.
+   */
+  private void removeCancelledTasks()
+  {
+    while (true)
+    {
+      final Task task = cancelledTasks.poll();
+      if (task == null)
+      {
+        return;
+      }
+
+      if (task.bucket != null)
+      {
+        task.bucket.remove(task);
+      }
+    }
+  }
+
+
+
+  /**
+   * Moves any newly-scheduled tasks into the appropriate buckets in the wheel.
+   *
+   * @param  tick  The tick that is about to be processed.
+   */
+  private void transferNewTasks(final long tick)
+  {
+    while (true)
+    {
+      final Task task = newTasks.poll();
+      if (task == null)
+      {
+        return;
+      }
+
+      if (task.state != Task.STATE_PENDING)
+      {
+        continue;
+      }
+
+      final long deadlineTick =
+           Math.max(tick, (task.deadlineNanos - 1L) / tickNanos);
+      task.remainingRounds = (deadlineTick - tick) / wheel.length;
+      wheel[(int) (deadlineTick & mask)].add(task);
+    }
+  }
+
+
+
+  /**
+   * Invokes any tasks in the provided bucket whose deadlines have been reached,
+   * and decrements the remaining rounds for all other tasks in that bucket.
+   *
+   * @param  bucket  The bucket to process.
+   */
+  private void expireTasks(final Bucket bucket)
+  {
+    Task task = bucket.head;
+    while (task != null)
+    {
+      final Task next = task.next;
+      if (task.state != Task.STATE_PENDING)
+      {
+        bucket.remove(task);
+      }
+      else if (task.remainingRounds <= 0L)
+      {
+        bucket.remove(task);
+        if (Task.STATE_UPDATER.compareAndSet(task, Task.STATE_PENDING,
+             Task.STATE_EXPIRED))
+        {
+          numPending.decrementAndGet();
+
+          try
+          {
+            task.run();
+          }
+          catch (final Throwable t)
+          {
+            debugException(t);
+          }
+        }
+      }
+      else
+      {
+        task.remainingRounds--;
+      }
+
+      task = next;
+    }
+  }
+
+
+
+  /**
+   * This class provides a doubly-linked list of the tasks in a single bucket
+   * of the wheel.  It will only be accessed by the scheduler thread.
+   */
+  private static final class Bucket
+  {
+    // The first task in this bucket.
+    private Task head;
+
+    // The last task in this bucket.
+    private Task tail;
+
+
+
+    /**
+     * Adds the provided task to the end of this bucket.
+     *
+     * @param  task  The task to add.
+     */
+    private void add(final Task task)
+    {
+      task.bucket = this;
+      task.prev = tail;
+      task.next = null;
+      if (tail == null)
+      {
+        head = task;
+      }
+      else
+      {
+        tail.next = task;
+      }
+      tail = task;
+    }
+
+
+
+    /**
+     * Removes the provided task from this bucket.
+     *
+     * @param  task  The task to remove.
+     */
+    private void remove(final Task task)
+    {
+      if (task.prev == null)
+      {
+        head = task.next;
+      }
+      else
+      {
+        task.prev.next = task.next;
+      }
+
+      if (task.next == null)
+      {
+        tail = task.prev;
+      }
+      else
+      {
+        task.next.prev = task.prev;
+      }
+
+      task.bucket = null;
+      task.prev = null;
+      task.next = null;
+    }
+  }
+
+
+
+  /**
+   * This class provides the base class for tasks that may be scheduled with an
+   * {@link AsyncTimeoutScheduler}.
+   */
+  abstract static class Task
+           implements Runnable
+  {
+    /**
+     * The state for a task that has not yet been scheduled.
+     */
+    private static final int STATE_NEW = 0;
+
+
+
+    /**
+     * The state for a task that has been scheduled but not yet invoked or
+     * cancelled.
+     */
+    private static final int STATE_PENDING = 1;
+
+
+
+    /**
+     * The state for a task that has been cancelled.
+     */
+    private static final int STATE_CANCELLED = 2;
+
+
+
+    /**
+     * The state for a task that has been invoked.
+     */
+    private static final int STATE_EXPIRED = 3;
+
+
+
+    /**
+     * The updater that will be used to make atomic changes to task states.
+     */
+    private static final AtomicIntegerFieldUpdater<Task> STATE_UPDATER =
+         AtomicIntegerFieldUpdater.newUpdater(Task.class, "state");
+
+
+
+    // The current state for this task.
+    private volatile int state = STATE_NEW;
+
+    // The scheduler with which this task has been scheduled.
+    private volatile AsyncTimeoutScheduler scheduler;
+
+    // The bucket that currently holds this task, and the adjacent tasks in that
+    // bucket.  These will only be accessed by the scheduler thread.
+    private Bucket bucket;
+    private Task next;
+    private Task prev;
+
+    // The deadline for this task, in nanoseconds relative to the scheduler
+    // start time.
+    private long deadlineNanos;
+
+    // The number of full rotations of the wheel that must elapse before this
+    // task should be invoked.
+    private long remainingRounds;
+
+
+
+    /**
+     * Cancels this task so that it will not be invoked.
+     *
+     * @return  {@code true} if the task was cancelled before it was invoked, or
+     *          {@code false} if it had already been invoked or cancelled.
+     */
+    boolean cancel()
+    {
+      if (STATE_UPDATER.compareAndSet(this, STATE_NEW, STATE_CANCELLED))
+      {
+        return true;
+      }
+
+      if (STATE_UPDATER.compareAndSet(this, STATE_PENDING, STATE_CANCELLED))
+      {
+        scheduler.cancelled(this);
+        return true;
+      }
+
+      return false;
+    }
+
+
+
+    /**
+     * Indicates whether this task has been cancelled.
+     *
+     * @return  {@code true} if this task has been cancelled, or {@code false}
+     *          if not.
+     */
+    boolean isCancelled()
+    {
+      return (state == STATE_CANCELLED);
+    }
+
+
+
+    /**
+     * Indicates whether this task has been invoked.
+     *
+     * @return  {@code true} if this task has been invoked, or {@code false} if
+     *          not.
+     */
+    boolean isExpired()
+    {
+      return (state == STATE_EXPIRED);
+    }
+  }
+}
@@ -22,8 +22,6 @@ package com.unboundid.ldap.sdk;
 
 
 
-import java.util.TimerTask;
-
 import com.unboundid.ldap.protocol.LDAPResponse;
 import com.unboundid.util.Debug;
 import com.unboundid.util.StaticUtils;
@@ -37,7 +35,7 @@ import static com.unboundid.ldap.sdk.LDAPMessages.*;
  * timeouts for asynchronous operations are properly respected.
  */
 final class AsyncTimeoutTimerTask
-      extends TimerTask
+      extends AsyncTimeoutScheduler.Task
 {
   // The async helper with which this task is associated.
   private final CommonAsyncHelper helper;
@@ -57,12 +55,26 @@ final class AsyncTimeoutTimerTask
 
 
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  boolean cancel()
+  {
+    helper.getConnection().asyncTimeoutCompleted(this);
+    return super.cancel();
+  }
+
+
+
   /**
    * Generates a timeout response for the associated operation.
    */
   @Override()
   public void run()
   {
+    helper.getConnection().asyncTimeoutCompleted(this);
+
     final long waitTimeNanos = System.nanoTime() - helper.getCreateTimeNanos();
     final long waitTimeMillis = waitTimeNanos / 1000000L;
 
@@ -125,6 +125,15 @@ public final class Attribute
 
 
 
+  /**
+   * The minimum number of values that an attribute must have before a hash set
+   * of normalized values will be used to determine whether it contains a given
+   * value, rather than comparing that value against each existing value.
+   */
+  static final int NORMALIZED_VALUE_SET_THRESHOLD = 32;
+
+
+
   // The set of values for this attribute.
   private final ASN1OctetString[] values;
 
@@ -137,6 +146,10 @@ public final class Attribute
   // The attribute description for this attribute.
   private final String name;
 
+  // The normalized representations of the values for this attribute, if they
+  // have been computed.
+  private transient volatile NormalizedAttributeValues normalizedValues;
+
 
 
   /**
@@ -577,6 +590,12 @@ public final class Attribute
       mr = matchingRule;
     }
 
+    if ((attr1.values.length + attr2.values.length) >=
+        NORMALIZED_VALUE_SET_THRESHOLD)
+    {
+      return mergeNormalizedAttributes(name, attr1, attr2, mr);
+    }
+
     ASN1OctetString[] mergedValues =
          new ASN1OctetString[attr1.values.length + attr2.values.length];
     System.arraycopy(attr1.values, 0, mergedValues, 0, attr1.values.length);
@@ -620,6 +639,68 @@ public final class Attribute
 
 
 
+  /**
+   * Creates a new attribute containing the merged values of the provided
+   * attributes, using a hash set of normalized values to identify duplicates
+   * rather than comparing each pair of values.  The normalized values of the
+   * first attribute will be reused if they are already available, and the
+   * normalized values of the resulting attribute will be retained so that they
+   * do not need to be recomputed if the attribute is subsequently altered.
+   *
+   * @param  name          The name to use for the merged attribute.
+   * @param  attr1         The first attribute containing the values to merge.
+   * @param  attr2         The second attribute containing the values to merge.
+   * @param  matchingRule  The matching rule to use to locate matching values.
+   *
+   * @return  The new attribute containing the values of both of the
+   *          provided attributes.
+   */
+  private static Attribute mergeNormalizedAttributes(final String name,
+                                final Attribute attr1, final Attribute attr2,
+                                final MatchingRule matchingRule)
+  {
+    final int maxAdded = attr2.values.length;
+    final ASN1OctetString[] addedValues = new ASN1OctetString[maxAdded];
+    final ASN1OctetString[] addedNormalizedValues =
+         new ASN1OctetString[maxAdded];
+
+    // As with the pairwise comparison, each value from the second attribute is
+    // only checked against the values of the first attribute.  A value that
+    // can't be normalized will only be considered a duplicate if there is an
+    // existing value that is exactly the same.
+    NormalizedAttributeValues current =
+         attr1.getNormalizedValues(matchingRule);
+
+    int numAdded = 0;
+    for (final ASN1OctetString v : attr2.values)
+    {
+      final ASN1OctetString n =
+           NormalizedAttributeValues.normalize(matchingRule, v);
+      if (current.contains(v, n))
+      {
+        continue;
+      }
+
+      addedValues[numAdded] = v;
+      addedNormalizedValues[numAdded] = n;
+      numAdded++;
+    }
+
+    if (numAdded == 0)
+    {
+      final Attribute a = new Attribute(name, matchingRule, attr1.values);
+      a.normalizedValues = current;
+      return a;
+    }
+
+    current = current.add(addedValues, addedNormalizedValues, numAdded);
+    final Attribute a = new Attribute(name, matchingRule, current.getValues());
+    a.normalizedValues = current;
+    return a;
+  }
+
+
+
   /**
    * Creates a new attribute containing all of the values of the first attribute
    * that are not contained in the second attribute.  Any values contained in
@@ -682,6 +763,15 @@ public final class Attribute
       mr = matchingRule;
     }
 
+    if (attr1.values.length >= NORMALIZED_VALUE_SET_THRESHOLD)
+    {
+      final NormalizedAttributeValues remaining =
+           attr1.getNormalizedValues(mr).remove(attr2.getNormalizedValues(mr));
+      final Attribute a = new Attribute(name, mr, remaining.getValues());
+      a.normalizedValues = remaining;
+      return a;
+    }
+
     final ArrayList<ASN1OctetString> newValues =
          new ArrayList<ASN1OctetString>(Arrays.asList(attr1.values));
 
@@ -1378,6 +1468,11 @@ public final class Attribute
    */
   boolean hasValue(final ASN1OctetString value, final MatchingRule matchingRule)
   {
+    if (values.length >= NORMALIZED_VALUE_SET_THRESHOLD)
+    {
+      return getNormalizedValues(matchingRule).contains(value);
+    }
+
     for (final ASN1OctetString existingValue : values)
     {
       try
@@ -1406,6 +1501,31 @@ public final class Attribute
 
 
 
+  /**
+   * Retrieves the normalized representations of the values for this attribute
+   * using the provided matching rule.  The normalized values will be computed
+   * the first time they are needed and retained for subsequent use with the
+   * same matching rule.
+   *
+   * @param  matchingRule  The matching rule to use to normalize the values.
+   *
+   * @return  The normalized representations of the values for this attribute.
+   */
+  NormalizedAttributeValues getNormalizedValues(
+                                 final MatchingRule matchingRule)
+  {
+    NormalizedAttributeValues nv = normalizedValues;
+    if ((nv == null) || (nv.getMatchingRule() != matchingRule))
+    {
+      nv = NormalizedAttributeValues.create(matchingRule, values);
+      normalizedValues = nv;
+    }
+
+    return nv;
+  }
+
+
+
   /**
    * Retrieves the number of values for this attribute.
    *
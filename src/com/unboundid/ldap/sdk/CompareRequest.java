@@ -24,7 +24,6 @@ package com.unboundid.ldap.sdk;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Timer;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
@@ -672,10 +671,9 @@ public final class CompareRequest
       final long timeout = getResponseTimeoutMillis(connection);
       if (timeout > 0L)
       {
-        final Timer timer = connection.getTimer();
         final AsyncTimeoutTimerTask timerTask =
              new AsyncTimeoutTimerTask(compareHelper);
-        timer.schedule(timerTask, timeout);
+        connection.scheduleAsyncTimeout(timerTask, timeout);
         asyncRequestID.setTimerTask(timerTask);
       }
     }
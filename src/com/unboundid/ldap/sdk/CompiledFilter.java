@@ -0,0 +1,654 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.util.ArrayList;
+
+import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.ldap.matchingrules.MatchingRule;
+import com.unboundid.ldap.matchingrules.SimpleMatchingRule;
+import com.unboundid.ldap.sdk.schema.AttributeTypeDefinition;
+import com.unboundid.ldap.sdk.schema.Schema;
+import com.unboundid.util.NotMutable;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+import static com.unboundid.ldap.sdk.LDAPMessages.*;
+import static com.unboundid.util.Debug.*;
+import static com.unboundid.util.StaticUtils.*;
+import static com.unboundid.util.Validator.*;
+
+
+
+/**
+ * This class provides a reusable representation of a search filter that has
+ * been prepared for evaluating against a number of entries with a given
+ * schema.  It provides the same matching behavior as the
+ * {@link Filter#matchesEntry(Entry,Schema)} method, but the work that does not
+ * depend on the entry being examined is only performed once, when the filter
+ * is compiled, rather than for every entry.  This includes:
+ * <UL>
+ *   <LI>Determining the names under which the target attribute may appear in
+ *       an entry, including any alternate names defined in the schema.</LI>
+ *   <LI>Selecting the equality, ordering, and substring matching rules that
+ *       should be used for each attribute.</LI>
+ *   <LI>Normalizing the assertion values for equality components and the
+ *       subInitial, subAny, and subFinal elements for substring
+ *       components.</LI>
+ *   <LI>Ordering the components of AND and OR filters so that those that are
+ *       expected to be cheaper to evaluate (e.g., presence and equality
+ *       components) are evaluated before those that are expected to be more
+ *       expensive (e.g., substring components and nested AND, OR, and NOT
+ *       filters).  Because an AND or OR filter does not need to evaluate its
+ *       remaining components once the result is known, this may mean that an
+ *       exception that would have been thrown by a component later in the
+ *       original filter will not be thrown.</LI>
+ * </UL>
+ * A compiled filter may be obtained using the {@link Filter#compile(Schema)}
+ * method, and it may be used concurrently by multiple threads.
+ * <BR><BR>
+ * <H2>Example</H2>
+ * The following example demonstrates the process for compiling a filter and
+ * using it to identify matching entries read from an LDIF file:
+ * <PRE>
+ * CompiledFilter compiledFilter =
+ *      Filter.create("(&amp;(objectClass=person)(cn=*john*))").compile(schema);
+ * while (true)
+ * {
+ *   Entry entry = ldifReader.readEntry();
+ *   if (entry == null)
+ *   {
+ *     break;
+ *   }
+ *
+ *   if (compiledFilter.matchesEntry(entry))
+ *   {
+ *     matchingEntries.add(entry);
+ *   }
+ * }
+ * </PRE>
+ */
+@NotMutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+public final class CompiledFilter
+{
+  /**
+   * The relative cost that will be used for filter types that cannot be
+   * evaluated, so that they will be examined after all other components of an
+   * AND or OR filter.
+   */
+  private static final int COST_UNSUPPORTED = Integer.MAX_VALUE / 2;
+
+
+
+  // The normalized representation of the assertion value for an equality
+  // component, or null if it is not available.
+  private final ASN1OctetString normalizedAssertionValue;
+
+  // Indicates whether the substring components were successfully normalized.
+  private final boolean substringsNormalized;
+
+  // The normalized representations of the subAny elements.
+  private final byte[][] normSubAny;
+
+  // The normalized representation of the subFinal element.
+  private final byte[] normSubFinal;
+
+  // The normalized representation of the subInitial element.
+  private final byte[] normSubInitial;
+
+  // The compiled components for an AND or OR filter, in the order in which
+  // they should be evaluated.
+  private final CompiledFilter[] components;
+
+  // The compiled component for a NOT filter.
+  private final CompiledFilter notComponent;
+
+  // The filter that was compiled.
+  private final Filter filter;
+
+  // The relative cost of evaluating this filter.
+  private final int cost;
+
+  // The matching rule to use when evaluating this filter.
+  private final MatchingRule matchingRule;
+
+  // The schema with which this filter was compiled.
+  private final Schema schema;
+
+  // The lowercase names under which the target attribute may appear in an
+  // entry.  The first element will be the name used in the filter, and any
+  // subsequent elements will be alternate names defined in the schema.
+  private final String[] attributeKeys;
+
+
+
+  /**
+   * Creates a new compiled representation of the provided filter.
+   *
+   * @param  filter  The filter to be compiled.  It must not be {@code null}.
+   * @param  schema  The schema to use when evaluating the filter.  It may be
+   *                 {@code null} if all matching should be performed using a
+   *                 case-ignore matching rule.
+   */
+  CompiledFilter(final Filter filter, final Schema schema)
+  {
+    ensureNotNull(filter);
+
+    this.filter = filter;
+    this.schema = schema;
+
+    CompiledFilter[] comps = null;
+    CompiledFilter notComp = null;
+    MatchingRule mr = null;
+    ASN1OctetString normAssertion = null;
+    boolean subNormalized = false;
+    byte[] subInitial = null;
+    byte[][] subAny = null;
+    byte[] subFinal = null;
+    String[] keys = null;
+    int c;
+
+    switch (filter.getFilterType())
+    {
+      case Filter.FILTER_TYPE_AND:
+      case Filter.FILTER_TYPE_OR:
+        final Filter[] filterComps = filter.getComponents();
+        comps = new CompiledFilter[filterComps.length];
+        c = 1;
+        for (int i=0; i < filterComps.length; i++)
+        {
+          final CompiledFilter cf = new CompiledFilter(filterComps[i], schema);
+          c = Math.min(COST_UNSUPPORTED, c + cf.cost);
+
+          // Insert the component so that the array remains sorted by cost.
+          // Components with the same cost will remain in their original order.
+          int pos = i;
+          while ((pos > 0) && (comps[pos-1].cost > cf.cost))
+          {
+            comps[pos] = comps[pos-1];
+            pos--;
+          }
+          comps[pos] = cf;
+        }
+        break;
+
+      case Filter.FILTER_TYPE_NOT:
+        notComp = new CompiledFilter(filter.getNOTComponent(), schema);
+        c = Math.min(COST_UNSUPPORTED, notComp.cost + 1);
+        break;
+
+      case Filter.FILTER_TYPE_EQUALITY:
+        keys = getAttributeKeys(filter.getAttributeName(), schema);
+        mr = MatchingRule.selectEqualityMatchingRule(filter.getAttributeName(),
+             schema);
+        try
+        {
+          normAssertion = mr.normalize(filter.getRawAssertionValue());
+        }
+        catch (final LDAPException le)
+        {
+          // The assertion value will be normalized along with each entry value
+          // so that the same exception will be thrown as when the filter is
+          // evaluated directly.
+          debugException(le);
+        }
+        c = 2;
+        break;
+
+      case Filter.FILTER_TYPE_SUBSTRING:
+        keys = getAttributeKeys(filter.getAttributeName(), schema);
+        mr = MatchingRule.selectSubstringMatchingRule(
+             filter.getAttributeName(), schema);
+        if (mr instanceof SimpleMatchingRule)
+        {
+          try
+          {
+            final ASN1OctetString rawSubInitial =
+                 filter.getRawSubInitialValue();
+            if (rawSubInitial != null)
+            {
+              subInitial = mr.normalizeSubstring(rawSubInitial,
+                   MatchingRule.SUBSTRING_TYPE_SUBINITIAL).getValue();
+            }
+
+            final ASN1OctetString[] rawSubAny = filter.getRawSubAnyValues();
+            if ((rawSubAny != null) && (rawSubAny.length > 0))
+            {
+              subAny = new byte[rawSubAny.length][];
+              for (int i=0; i < rawSubAny.length; i++)
+              {
+                subAny[i] = mr.normalizeSubstring(rawSubAny[i],
+                     MatchingRule.SUBSTRING_TYPE_SUBANY).getValue();
+              }
+            }
+
+            final ASN1OctetString rawSubFinal = filter.getRawSubFinalValue();
+            if (rawSubFinal != null)
+            {
+              subFinal = mr.normalizeSubstring(rawSubFinal,
+                   MatchingRule.SUBSTRING_TYPE_SUBFINAL).getValue();
+            }
+
+            subNormalized = true;
+          }
+          catch (final LDAPException le)
+          {
+            debugException(le);
+          }
+        }
+        c = 4;
+        break;
+
+      case Filter.FILTER_TYPE_GREATER_OR_EQUAL:
+      case Filter.FILTER_TYPE_LESS_OR_EQUAL:
+        keys = getAttributeKeys(filter.getAttributeName(), schema);
+        mr = MatchingRule.selectOrderingMatchingRule(filter.getAttributeName(),
+             schema);
+        c = 3;
+        break;
+
+      case Filter.FILTER_TYPE_PRESENCE:
+        keys = getAttributeKeys(filter.getAttributeName(), schema);
+        c = 1;
+        break;
+
+      default:
+        c = COST_UNSUPPORTED;
+        break;
+    }
+
+    components               = comps;
+    notComponent             = notComp;
+    matchingRule             = mr;
+    normalizedAssertionValue = normAssertion;
+    substringsNormalized     = subNormalized;
+    normSubInitial           = subInitial;
+    normSubAny               = subAny;
+    normSubFinal             = subFinal;
+    attributeKeys            = keys;
+    cost                     = c;
+  }
+
+
+
+  /**
+   * Retrieves the lowercase names under which the specified attribute may
+   * appear in an entry.
+   *
+   * @param  attributeName  The name of the attribute, which may include
+   *                        attribute options.
+   * @param  schema         The schema to use to identify alternate names for
+   *                        the attribute.  It may be {@code null} if no schema
+   *                        is available.
+   *
+   * @return  The lowercase names under which the specified attribute may
+   *          appear in an entry, with the provided name first.
+   */
+  private static String[] getAttributeKeys(final String attributeName,
+                                           final Schema schema)
+  {
+    final String lowerName = toLowerCase(attributeName);
+    if (schema == null)
+    {
+      return new String[] { lowerName };
+    }
+
+    final String baseName;
+    final String options;
+    final int semicolonPos = attributeName.indexOf(';');
+    if (semicolonPos > 0)
+    {
+      baseName = attributeName.substring(0, semicolonPos);
+      options  = toLowerCase(attributeName.substring(semicolonPos));
+    }
+    else
+    {
+      baseName = attributeName;
+      options  = "";
+    }
+
+    final AttributeTypeDefinition at = schema.getAttributeType(baseName);
+    if (at == null)
+    {
+      return new String[] { lowerName };
+    }
+
+    final ArrayList<String> keys =
+         new ArrayList<String>(at.getNames().length + 2);
+    keys.add(lowerName);
+    keys.add(toLowerCase(at.getOID() + options));
+    for (final String name : at.getNames())
+    {
+      keys.add(toLowerCase(name) + options);
+    }
+
+    return keys.toArray(new String[keys.size()]);
+  }
+
+
+
+  /**
+   * Retrieves the filter that was compiled.
+   *
+   * @return  The filter that was compiled.
+   */
+  public Filter getFilter()
+  {
+    return filter;
+  }
+
+
+
+  /**
+   * Retrieves the schema with which the filter was compiled.
+   *
+   * @return  The schema with which the filter was compiled, or {@code null} if
+   *          it was compiled without a schema.
+   */
+  public Schema getSchema()
+  {
+    return schema;
+  }
+
+
+
+  /**
+   * Indicates whether this filter matches the provided entry.  The result will
+   * be the same as that of the {@link Filter#matchesEntry(Entry,Schema)}
+   * method when called with the schema used to compile this filter, and the
+   * same limitations apply.
+   *
+   * @param  entry  The entry for which to make the determination.  It must not
+   *                be {@code null}.
+   *
+   * @return  {@code true} if this filter appears to match the provided entry,
+   *          or {@code false} if not.
+   *
+   * @throws  LDAPException  If a problem occurs while trying to make the
+   *                         determination.
+   */
+  public boolean matchesEntry(final Entry entry)
+         throws LDAPException
+  {
+    ensureNotNull(entry);
+
+    switch (filter.getFilterType())
+    {
+      case Filter.FILTER_TYPE_AND:
+        for (final CompiledFilter f : components)
+        {
+          if (! f.matchesEntry(entry))
+          {
+            return false;
+          }
+        }
+        return true;
+
+      case Filter.FILTER_TYPE_OR:
+        for (final CompiledFilter f : components)
+        {
+          if (f.matchesEntry(entry))
+          {
+            return true;
+          }
+        }
+        return false;
+
+      case Filter.FILTER_TYPE_NOT:
+        return (! notComponent.matchesEntry(entry));
+
+      case Filter.FILTER_TYPE_EQUALITY:
+        Attribute a = getAttribute(entry);
+        if (a == null)
+        {
+          return false;
+        }
+        return matchesEquality(a);
+
+      case Filter.FILTER_TYPE_SUBSTRING:
+        a = getAttribute(entry);
+        if (a == null)
+        {
+          return false;
+        }
+
+        for (final ASN1OctetString v : a.getRawValues())
+        {
+          if (substringsNormalized)
+          {
+            if (SimpleMatchingRule.matchesNormalizedSubstring(
+                 matchingRule.normalize(v).getValue(), normSubInitial,
+                 normSubAny, normSubFinal))
+            {
+              return true;
+            }
+          }
+          else if (matchingRule.matchesSubstring(v,
+                        filter.getRawSubInitialValue(),
+                        filter.getRawSubAnyValues(),
+                        filter.getRawSubFinalValue()))
+          {
+            return true;
+          }
+        }
+        return false;
+
+      case Filter.FILTER_TYPE_GREATER_OR_EQUAL:
+        a = getAttribute(entry);
+        if (a == null)
+        {
+          return false;
+        }
+
+        for (final ASN1OctetString v : a.getRawValues())
+        {
+          if (matchingRule.compareValues(v, filter.getRawAssertionValue()) >= 0)
+          {
+            return true;
+          }
+        }
+        return false;
+
+      case Filter.FILTER_TYPE_LESS_OR_EQUAL:
+        a = getAttribute(entry);
+        if (a == null)
+        {
+          return false;
+        }
+
+        for (final ASN1OctetString v : a.getRawValues())
+        {
+          if (matchingRule.compareValues(v, filter.getRawAssertionValue()) <= 0)
+          {
+            return true;
+          }
+        }
+        return false;
+
+      case Filter.FILTER_TYPE_PRESENCE:
+        if (entry.getSchema() != schema)
+        {
+          // Presence is determined using the entry's own schema.
+          return entry.hasAttribute(filter.getAttributeName());
+        }
+
+        for (final String key : attributeKeys)
+        {
+          if (entry.containsAttribute(key))
+          {
+            return true;
+          }
+        }
+        return false;
+
+      case Filter.FILTER_TYPE_APPROXIMATE_MATCH:
+        throw new LDAPException(ResultCode.NOT_SUPPORTED,
+             ERR_FILTER_APPROXIMATE_MATCHING_NOT_SUPPORTED.get());
+
+      case Filter.FILTER_TYPE_EXTENSIBLE_MATCH:
+        throw new LDAPException(ResultCode.NOT_SUPPORTED,
+             ERR_FILTER_EXTENSIBLE_MATCHING_NOT_SUPPORTED.get());
+
+      default:
+        throw new LDAPException(ResultCode.PARAM_ERROR,
+                                ERR_FILTER_INVALID_TYPE.get());
+    }
+  }
+
+
+
+  /**
+   * Retrieves the target attribute from the provided entry.
+   *
+   * @param  entry  The entry from which to retrieve the attribute.
+   *
+   * @return  The target attribute from the provided entry, or {@code null} if
+   *          the entry does not contain that attribute.
+   */
+  private Attribute getAttribute(final Entry entry)
+  {
+    for (final String key : attributeKeys)
+    {
+      final Attribute a = entry.lookupAttribute(key);
+      if (a != null)
+      {
+        return a;
+      }
+    }
+
+    return null;
+  }
+
+
+
+  /**
+   * Indicates whether the provided attribute has a value that matches the
+   * assertion value for this equality filter.
+   *
+   * @param  a  The attribute for which to make the determination.
+   *
+   * @return  {@code true} if the attribute has a matching value, or
+   *          {@code false} if not.
+   *
+   * @throws  LDAPException  If a problem occurs while trying to make the
+   *                         determination.
+   */
+  private boolean matchesEquality(final Attribute a)
+          throws LDAPException
+  {
+    if (normalizedAssertionValue == null)
+    {
+      for (final ASN1OctetString v : a.getRawValues())
+      {
+        if (matchingRule.valuesMatch(v, filter.getRawAssertionValue()))
+        {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    // For attributes with a large number of values, use the attribute's set of
+    // normalized values, unless it has a value that can't be normalized, in
+    // which case each value must be examined so that the same exception will
+    // be thrown.
+    if (a.size() >= Attribute.NORMALIZED_VALUE_SET_THRESHOLD)
+    {
+      final NormalizedAttributeValues nv = a.getNormalizedValues(matchingRule);
+      if (! nv.hasUnnormalizedValues())
+      {
+        return nv.contains(filter.getRawAssertionValue(),
+             normalizedAssertionValue);
+      }
+    }
+
+    for (final ASN1OctetString v : a.getRawValues())
+    {
+      if (matchingRule.normalize(v).equals(normalizedAssertionValue))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+
+  /**
+   * Retrieves a string representation of this compiled filter.
+   *
+   * @return  A string representation of this compiled filter.
+   */
+  @Override()
+  public String toString()
+  {
+    final StringBuilder buffer = new StringBuilder();
+    toString(buffer);
+    return buffer.toString();
+  }
+
+
+
+  /**
+   * Appends a string representation of this compiled filter to the provided
+   * buffer.  The components of AND and OR filters will be listed in the order
+   * in which they will be evaluated.
+   *
+   * @param  buffer  The buffer to which to append a string representation of
+   *                 this compiled filter.
+   */
+  public void toString(final StringBuilder buffer)
+  {
+    switch (filter.getFilterType())
+    {
+      case Filter.FILTER_TYPE_AND:
+      case Filter.FILTER_TYPE_OR:
+        if (filter.getFilterType() == Filter.FILTER_TYPE_AND)
+        {
+          buffer.append("(&");
+        }
+        else
+        {
+          buffer.append("(|");
+        }
+
+        for (final CompiledFilter f : components)
+        {
+          f.toString(buffer);
+        }
+        buffer.append(')');
+        break;
+
+      case Filter.FILTER_TYPE_NOT:
+        buffer.append("(!");
+        notComponent.toString(buffer);
+        buffer.append(')');
+        break;
+
+      default:
+        filter.toString(buffer);
+        break;
+    }
+  }
+}
@@ -23,7 +23,6 @@ package com.unboundid.ldap.sdk;
 
 
 import java.util.List;
-import java.util.Timer;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
@@ -356,10 +355,9 @@ public final class DeleteRequest
       final long timeout = getResponseTimeoutMillis(connection);
       if (timeout > 0L)
       {
-        final Timer timer = connection.getTimer();
         final AsyncTimeoutTimerTask timerTask =
              new AsyncTimeoutTimerTask(helper);
-        timer.schedule(timerTask, timeout);
+        connection.scheduleAsyncTimeout(timerTask, timeout);
         asyncRequestID.setTimerTask(timerTask);
       }
     }
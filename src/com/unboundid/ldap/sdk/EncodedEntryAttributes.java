@@ -0,0 +1,409 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.io.ByteArrayInputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+import com.unboundid.asn1.ASN1StreamReader;
+import com.unboundid.ldap.sdk.schema.Schema;
+import com.unboundid.util.Mutable;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+import static com.unboundid.ldap.sdk.LDAPMessages.*;
+import static com.unboundid.util.Debug.*;
+import static com.unboundid.util.StaticUtils.*;
+
+
+
+/**
+ * This class provides a data structure that holds the encoded set of
+ * attributes for a search result entry that was read with lazy decoding
+ * enabled.  When it is created, the encoded representation is scanned to
+ * determine the name and position of each attribute, but no attribute values
+ * are decoded.  An individual attribute will only be decoded when it is
+ * requested, and the entire set of attributes will only be decoded when an
+ * operation needs to access all of them.
+ */
+@Mutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class EncodedEntryAttributes
+      implements Serializable
+{
+  /**
+   * The serial version UID for this serializable class.
+   */
+  private static final long serialVersionUID = 7106853337126587095L;
+
+
+
+  // Indicates whether all of the attributes have been decoded.
+  private volatile boolean fullyDecoded;
+
+  // The encoded value of the attribute list sequence.
+  private final byte[] encodedAttributes;
+
+  // The position within the encoded value at which each attribute starts.
+  private final int[] offsets;
+
+  // The number of bytes in the encoded representation of each attribute.
+  private final int[] lengths;
+
+  // The position of the first attribute with each lowercase name.
+  private final HashMap<String,Integer> firstPositions;
+
+  // The attributes that have already been decoded, indexed by lowercase name.
+  private final HashMap<String,Attribute> decodedAttributes;
+
+  // The schema to use when decoding attributes.
+  private final Schema schema;
+
+  // The lowercase name of each attribute.
+  private final String[] lowerNames;
+
+
+
+  /**
+   * Creates a new set of encoded entry attributes from the provided encoded
+   * value of an LDAP attribute list sequence.
+   *
+   * @param  encodedAttributes  The encoded value of the attribute list
+   *                            sequence.  It must not be {@code null}.
+   * @param  schema             The schema to use when decoding attributes.  It
+   *                            may be {@code null} if no schema is available.
+   *
+   * @throws  LDAPException  If the provided value cannot be parsed as a
+   *                         sequence of LDAP attributes.
+   */
+  EncodedEntryAttributes(final byte[] encodedAttributes, final Schema schema)
+       throws LDAPException
+  {
+    this.encodedAttributes = encodedAttributes;
+    this.schema            = schema;
+
+    // Count the attributes so that the index arrays can be allocated with the
+    // right size.
+    int numAttributes = 0;
+    int pos = 0;
+    while (pos < encodedAttributes.length)
+    {
+      pos = skipElement(pos, encodedAttributes.length);
+      numAttributes++;
+    }
+
+    offsets           = new int[numAttributes];
+    lengths           = new int[numAttributes];
+    lowerNames        = new String[numAttributes];
+    firstPositions    = new HashMap<String,Integer>(numAttributes * 2);
+    decodedAttributes = new HashMap<String,Attribute>(10);
+    fullyDecoded      = false;
+
+    // Validate the structure of each attribute and capture its name and
+    // position.  The values will not be decoded.
+    pos = 0;
+    for (int i=0; i < numAttributes; i++)
+    {
+      final int end = skipElement(pos, encodedAttributes.length);
+      offsets[i] = pos;
+      lengths[i] = end - pos;
+
+      final int attrValueStart = getValueOffset(pos);
+      final int nameValueStart = getValueOffset(attrValueStart);
+      final int nameEnd = skipElement(attrValueStart, end);
+      lowerNames[i] = toLowerCase(toUTF8String(encodedAttributes,
+           nameValueStart, (nameEnd - nameValueStart)));
+      if (! firstPositions.containsKey(lowerNames[i]))
+      {
+        firstPositions.put(lowerNames[i], i);
+      }
+
+      final int valueSetEnd = skipElement(nameEnd, end);
+      if (valueSetEnd != end)
+      {
+        throw new LDAPException(ResultCode.DECODING_ERROR,
+             ERR_ENCODED_ENTRY_ATTRS_MALFORMED_ELEMENT.get(valueSetEnd));
+      }
+
+      int valuePos = getValueOffset(nameEnd);
+      while (valuePos < valueSetEnd)
+      {
+        valuePos = skipElement(valuePos, valueSetEnd);
+      }
+
+      pos = end;
+    }
+  }
+
+
+
+  /**
+   * Retrieves the position immediately after the end of the element that
+   * starts at the specified position.
+   *
+   * @param  pos    The position at which the element starts.
+   * @param  limit  The position that the element must not extend beyond.
+   *
+   * @return  The position immediately after the end of the element.
+   *
+   * @throws  LDAPException  If the element is malformed or extends beyond the
+   *                         limit.
+   */
+  private int skipElement(final int pos, final int limit)
+          throws LDAPException
+  {
+    final int valueOffset = getValueOffset(pos);
+    final int end = valueOffset + getValueLength(pos);
+    if ((end < valueOffset) || (end > limit))
+    {
+      throw new LDAPException(ResultCode.DECODING_ERROR,
+           ERR_ENCODED_ENTRY_ATTRS_MALFORMED_ELEMENT.get(pos));
+    }
+
+    return end;
+  }
+
+
+
+  /**
+   * Retrieves the position of the first byte of the value of the element that
+   * starts at the specified position.
+   *
+   * @param  pos  The position at which the element starts.
+   *
+   * @return  The position of the first byte of the value of the element.
+   *
+   * @throws  LDAPException  If the element is malformed.
+   */
+  private int getValueOffset(final int pos)
+          throws LDAPException
+  {
+    if ((pos + 1) >= encodedAttributes.length)
+    {
+      throw new LDAPException(ResultCode.DECODING_ERROR,
+           ERR_ENCODED_ENTRY_ATTRS_MALFORMED_ELEMENT.get(pos));
+    }
+
+    final int firstLengthByte = encodedAttributes[pos + 1] & 0xFF;
+    if ((firstLengthByte & 0x80) == 0)
+    {
+      return pos + 2;
+    }
+    else
+    {
+      return pos + 2 + (firstLengthByte & 0x7F);
+    }
+  }
+
+
+
+  /**
+   * Retrieves the number of bytes in the value of the element that starts at
+   * the specified position.
+   *
+   * @param  pos  The position at which the element starts.
+   *
+   * @return  The number of bytes in the value of the element.
+   *
+   * @throws  LDAPException  If the element is malformed.
+   */
+  private int getValueLength(final int pos)
+          throws LDAPException
+  {
+    final int firstLengthByte = encodedAttributes[pos + 1] & 0xFF;
+    if ((firstLengthByte & 0x80) == 0)
+    {
+      return firstLengthByte;
+    }
+
+    final int numLengthBytes = firstLengthByte & 0x7F;
+    if ((numLengthBytes < 1) || (numLengthBytes > 4) ||
+        ((pos + 2 + numLengthBytes) > encodedAttributes.length))
+    {
+      throw new LDAPException(ResultCode.DECODING_ERROR,
+           ERR_ENCODED_ENTRY_ATTRS_MALFORMED_ELEMENT.get(pos));
+    }
+
+    int length = 0;
+    for (int i=0; i < numLengthBytes; i++)
+    {
+      length = (length << 8) | (encodedAttributes[pos + 2 + i] & 0xFF);
+    }
+
+    if (length < 0)
+    {
+      throw new LDAPException(ResultCode.DECODING_ERROR,
+           ERR_ENCODED_ENTRY_ATTRS_MALFORMED_ELEMENT.get(pos));
+    }
+
+    return length;
+  }
+
+
+
+  /**
+   * Retrieves the number of attributes in the encoded representation.  If the
+   * same attribute appears multiple times, then each occurrence will be
+   * counted separately.
+   *
+   * @return  The number of attributes in the encoded representation.
+   */
+  int getNumAttributes()
+  {
+    return offsets.length;
+  }
+
+
+
+  /**
+   * Indicates whether all of the attributes have been decoded into an entry's
+   * attribute map.
+   *
+   * @return  {@code true} if all of the attributes have been decoded, or
+   *          {@code false} if not.
+   */
+  boolean isFullyDecoded()
+  {
+    return fullyDecoded;
+  }
+
+
+
+  /**
+   * Indicates whether there is an attribute with the specified lowercase name.
+   *
+   * @param  lowerName  The lowercase name of the attribute for which to make
+   *                    the determination.
+   *
+   * @return  {@code true} if there is an attribute with the specified name, or
+   *          {@code false} if not.
+   */
+  boolean containsAttribute(final String lowerName)
+  {
+    return firstPositions.containsKey(lowerName);
+  }
+
+
+
+  /**
+   * Retrieves the attribute with the specified lowercase name, decoding it if
+   * necessary.  If the attribute appears multiple times, then the values from
+   * all occurrences will be merged.
+   *
+   * @param  lowerName  The lowercase name of the attribute to retrieve.
+   *
+   * @return  The requested attribute, or {@code null} if it is not present.
+   */
+  synchronized Attribute getAttribute(final String lowerName)
+  {
+    Attribute a = decodedAttributes.get(lowerName);
+    if (a != null)
+    {
+      return a;
+    }
+
+    final Integer firstPosition = firstPositions.get(lowerName);
+    if (firstPosition == null)
+    {
+      return null;
+    }
+
+    for (int i=firstPosition; i < lowerNames.length; i++)
+    {
+      if (lowerNames[i].equals(lowerName))
+      {
+        final Attribute decoded = decodeAttribute(i);
+        if (a == null)
+        {
+          a = decoded;
+        }
+        else
+        {
+          a = Attribute.mergeAttributes(a, decoded);
+        }
+      }
+    }
+
+    decodedAttributes.put(lowerName, a);
+    return a;
+  }
+
+
+
+  /**
+   * Decodes all of the attributes that have not yet been decoded and adds them
+   * to the provided map, in the order in which they appear in the encoded
+   * representation.  This method will have no effect if it has already been
+   * called.
+   *
+   * @param  attributeMap  The map to which the attributes should be added.
+   */
+  synchronized void decodeAll(
+                         final LinkedHashMap<String,Attribute> attributeMap)
+  {
+    if (fullyDecoded)
+    {
+      return;
+    }
+
+    for (final String lowerName : lowerNames)
+    {
+      if (! attributeMap.containsKey(lowerName))
+      {
+        attributeMap.put(lowerName, getAttribute(lowerName));
+      }
+    }
+
+    decodedAttributes.clear();
+    fullyDecoded = true;
+  }
+
+
+
+  /**
+   * Decodes the attribute at the specified position.
+   *
+   * @param  position  The position of the attribute to decode.
+   *
+   * @return  The decoded attribute.
+   */
+  private Attribute decodeAttribute(final int position)
+  {
+    try
+    {
+      final ASN1StreamReader reader = new ASN1StreamReader(
+           new ByteArrayInputStream(encodedAttributes, offsets[position],
+                lengths[position]));
+      return Attribute.readFrom(reader, schema);
+    }
+    catch (final LDAPException le)
+    {
+      // This should never happen, since the structure of the attribute was
+      // validated when this object was created.
+      debugException(le);
+      throw new LDAPRuntimeException(le);
+    }
+  }
+}
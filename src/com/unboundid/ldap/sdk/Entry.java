@@ -113,6 +113,10 @@ public class Entry
   // The set of attributes for this entry.
   private final LinkedHashMap<String,Attribute> attributes;
 
+  // The encoded attributes that have not yet been decoded into the attribute
+  // map, if the entry was read from the server with lazy decoding enabled.
+  private volatile EncodedEntryAttributes encodedAttributes;
+
   // The schema to use for this entry.
   private final Schema schema;
 
@@ -129,13 +133,45 @@ public class Entry
   protected Entry(final Entry e)
   {
     parsedDN = e.parsedDN;
+
+    // The wrapper shares both the attribute map and any not-yet-decoded
+    // attributes with the wrapped entry.  Decoding is idempotent and adds to
+    // the shared map, so whichever entry decodes first does so for both.
     attributes = e.attributes;
+    encodedAttributes = e.encodedAttributes;
     schema = e.schema;
     dn = e.dn;
   }
 
 
 
+  /**
+   * Creates a new entry with the provided DN and set of encoded attributes.
+   * The attributes will not be decoded until they are needed.
+   *
+   * @param  dn                 The DN for this entry.  It must not be
+   *                            {@code null}.
+   * @param  schema             The schema to use for operations involving this
+   *                            entry.  It may be {@code null} if no schema is
+   *                            available.
+   * @param  encodedAttributes  The encoded attributes for this entry.  It must
+   *                            not be {@code null}.
+   */
+  Entry(final String dn, final Schema schema,
+        final EncodedEntryAttributes encodedAttributes)
+  {
+    ensureNotNull(dn, encodedAttributes);
+
+    this.dn                = dn;
+    this.schema            = schema;
+    this.encodedAttributes = encodedAttributes;
+
+    attributes = new LinkedHashMap<String,Attribute>(
+         encodedAttributes.getNumAttributes());
+  }
+
+
+
   /**
    * Creates a new entry with the provided DN and no attributes.
    *
@@ -433,7 +469,7 @@ public class Entry
 
     dn         = e.dn;
     parsedDN   = e.parsedDN;
-    attributes = e.attributes;
+    attributes = e.getAttributeMap();
   }
 
 
@@ -578,6 +614,71 @@ public class Entry
 
 
 
+  /**
+   * Retrieves the map of attributes for this entry, decoding any attributes
+   * that have not yet been decoded.
+   *
+   * @return  The map of attributes for this entry.
+   */
+  private LinkedHashMap<String,Attribute> getAttributeMap()
+  {
+    final EncodedEntryAttributes encoded = encodedAttributes;
+    if (encoded != null)
+    {
+      encoded.decodeAll(attributes);
+      encodedAttributes = null;
+    }
+
+    return attributes;
+  }
+
+
+
+  /**
+   * Retrieves the attribute with the specified lowercase name, without decoding
+   * any other attributes that have not yet been decoded.
+   *
+   * @param  lowerName  The lowercase name of the attribute to retrieve.
+   *
+   * @return  The requested attribute, or {@code null} if it is not present.
+   */
+  Attribute lookupAttribute(final String lowerName)
+  {
+    final EncodedEntryAttributes encoded = encodedAttributes;
+    if ((encoded != null) && (! encoded.isFullyDecoded()))
+    {
+      return encoded.getAttribute(lowerName);
+    }
+
+    return getAttributeMap().get(lowerName);
+  }
+
+
+
+  /**
+   * Indicates whether this entry contains an attribute with the specified
+   * lowercase name, without decoding any attributes that have not yet been
+   * decoded.
+   *
+   * @param  lowerName  The lowercase name of the attribute for which to make
+   *                    the determination.
+   *
+   * @return  {@code true} if this entry contains the specified attribute, or
+   *          {@code false} if not.
+   */
+  boolean containsAttribute(final String lowerName)
+  {
+    final EncodedEntryAttributes encoded = encodedAttributes;
+    if ((encoded != null) && (! encoded.isFullyDecoded()))
+    {
+      return encoded.containsAttribute(lowerName);
+    }
+
+    return getAttributeMap().containsKey(lowerName);
+  }
+
+
+
   /**
    * Indicates whether this entry contains the specified attribute.
    *
@@ -611,7 +712,7 @@ public class Entry
   {
     ensureNotNull(attributeName);
 
-    if (attributes.containsKey(toLowerCase(attributeName)))
+    if (containsAttribute(toLowerCase(attributeName)))
     {
       return true;
     }
@@ -635,14 +736,14 @@ public class Entry
       final AttributeTypeDefinition at = schema.getAttributeType(baseName);
       if (at != null)
       {
-        if (attributes.containsKey(toLowerCase(at.getOID()) + options))
+        if (containsAttribute(toLowerCase(at.getOID()) + options))
         {
           return true;
         }
 
         for (final String name : at.getNames())
         {
-          if (attributes.containsKey(toLowerCase(name) + options))
+          if (containsAttribute(toLowerCase(name) + options))
           {
             return true;
           }
@@ -671,7 +772,7 @@ public class Entry
     ensureNotNull(attribute);
 
     final String lowerName = toLowerCase(attribute.getName());
-    final Attribute attr = attributes.get(lowerName);
+    final Attribute attr = lookupAttribute(lowerName);
     return ((attr != null) && attr.equals(attribute));
   }
 
@@ -694,7 +795,7 @@ public class Entry
   {
     ensureNotNull(attributeName, attributeValue);
 
-    final Attribute attr = attributes.get(toLowerCase(attributeName));
+    final Attribute attr = lookupAttribute(toLowerCase(attributeName));
     return ((attr != null) && attr.hasValue(attributeValue));
   }
 
@@ -720,7 +821,7 @@ public class Entry
   {
     ensureNotNull(attributeName, attributeValue);
 
-    final Attribute attr = attributes.get(toLowerCase(attributeName));
+    final Attribute attr = lookupAttribute(toLowerCase(attributeName));
     return ((attr != null) && attr.hasValue(attributeValue, matchingRule));
   }
 
@@ -743,7 +844,7 @@ public class Entry
   {
     ensureNotNull(attributeName, attributeValue);
 
-    final Attribute attr = attributes.get(toLowerCase(attributeName));
+    final Attribute attr = lookupAttribute(toLowerCase(attributeName));
     return ((attr != null) && attr.hasValue(attributeValue));
   }
 
@@ -769,7 +870,7 @@ public class Entry
   {
     ensureNotNull(attributeName, attributeValue);
 
-    final Attribute attr = attributes.get(toLowerCase(attributeName));
+    final Attribute attr = lookupAttribute(toLowerCase(attributeName));
     return ((attr != null) && attr.hasValue(attributeValue, matchingRule));
   }
 
@@ -798,7 +899,7 @@ public class Entry
    */
   public final Collection<Attribute> getAttributes()
   {
-    return Collections.unmodifiableCollection(attributes.values());
+    return Collections.unmodifiableCollection(getAttributeMap().values());
   }
 
 
@@ -836,7 +937,7 @@ public class Entry
   {
     ensureNotNull(attributeName);
 
-    Attribute a = attributes.get(toLowerCase(attributeName));
+    Attribute a = lookupAttribute(toLowerCase(attributeName));
     if ((a == null) && (schema != null))
     {
       final String baseName;
@@ -859,12 +960,12 @@ public class Entry
         return null;
       }
 
-      a = attributes.get(toLowerCase(at.getOID() + options));
+      a = lookupAttribute(toLowerCase(at.getOID() + options));
       if (a == null)
       {
         for (final String name : at.getNames())
         {
-          a = attributes.get(toLowerCase(name) + options);
+          a = lookupAttribute(toLowerCase(name) + options);
           if (a != null)
           {
             return a;
@@ -905,7 +1006,7 @@ public class Entry
 
     final ArrayList<Attribute> attrList = new ArrayList<Attribute>(10);
 
-    for (final Attribute a : attributes.values())
+    for (final Attribute a : getAttributeMap().values())
     {
       if (a.getBaseName().equalsIgnoreCase(baseName))
       {
@@ -952,7 +1053,7 @@ public class Entry
   {
     ensureNotNull(attributeName);
 
-    final Attribute a = attributes.get(toLowerCase(attributeName));
+    final Attribute a = lookupAttribute(toLowerCase(attributeName));
     if (a == null)
     {
       return null;
@@ -980,7 +1081,7 @@ public class Entry
   {
     ensureNotNull(attributeName);
 
-    final Attribute a = attributes.get(toLowerCase(attributeName));
+    final Attribute a = lookupAttribute(toLowerCase(attributeName));
     if (a == null)
     {
       return null;
@@ -1011,7 +1112,7 @@ public class Entry
   {
     ensureNotNull(attributeName);
 
-    final Attribute a = attributes.get(toLowerCase(attributeName));
+    final Attribute a = lookupAttribute(toLowerCase(attributeName));
     if (a == null)
     {
       return null;
@@ -1040,7 +1141,7 @@ public class Entry
   {
     ensureNotNull(attributeName);
 
-    final Attribute a = attributes.get(toLowerCase(attributeName));
+    final Attribute a = lookupAttribute(toLowerCase(attributeName));
     if (a == null)
     {
       return null;
@@ -1069,7 +1170,7 @@ public class Entry
   {
     ensureNotNull(attributeName);
 
-    final Attribute a = attributes.get(toLowerCase(attributeName));
+    final Attribute a = lookupAttribute(toLowerCase(attributeName));
     if (a == null)
     {
       return null;
@@ -1098,7 +1199,7 @@ public class Entry
   {
     ensureNotNull(attributeName);
 
-    final Attribute a = attributes.get(toLowerCase(attributeName));
+    final Attribute a = lookupAttribute(toLowerCase(attributeName));
     if (a == null)
     {
       return null;
@@ -1127,7 +1228,7 @@ public class Entry
   {
     ensureNotNull(attributeName);
 
-    final Attribute a = attributes.get(toLowerCase(attributeName));
+    final Attribute a = lookupAttribute(toLowerCase(attributeName));
     if (a == null)
     {
       return null;
@@ -1153,7 +1254,7 @@ public class Entry
   {
     ensureNotNull(attributeName);
 
-    final Attribute a = attributes.get(toLowerCase(attributeName));
+    final Attribute a = lookupAttribute(toLowerCase(attributeName));
     if (a == null)
     {
       return null;
@@ -1180,7 +1281,7 @@ public class Entry
   {
     ensureNotNull(attributeName);
 
-    final Attribute a = attributes.get(toLowerCase(attributeName));
+    final Attribute a = lookupAttribute(toLowerCase(attributeName));
     if (a == null)
     {
       return null;
@@ -1234,16 +1335,16 @@ public class Entry
     ensureNotNull(attribute);
 
     final String lowerName = toLowerCase(attribute.getName());
-    final Attribute attr = attributes.get(lowerName);
+    final Attribute attr = getAttributeMap().get(lowerName);
     if (attr == null)
     {
-      attributes.put(lowerName, attribute);
+      getAttributeMap().put(lowerName, attribute);
       return true;
     }
     else
     {
       final Attribute newAttr = Attribute.mergeAttributes(attr, attribute);
-      attributes.put(lowerName, newAttr);
+      getAttributeMap().put(lowerName, newAttr);
       return (attr.getRawValues().length != newAttr.getRawValues().length);
     }
   }
@@ -1370,7 +1471,7 @@ public class Entry
 
     if (schema == null)
     {
-      return (attributes.remove(toLowerCase(attributeName)) != null);
+      return (getAttributeMap().remove(toLowerCase(attributeName)) != null);
     }
     else
     {
@@ -1381,7 +1482,7 @@ public class Entry
       }
       else
       {
-        attributes.remove(toLowerCase(a.getName()));
+        getAttributeMap().remove(toLowerCase(a.getName()));
         return true;
       }
     }
@@ -1446,11 +1547,11 @@ public class Entry
            new Attribute(attributeName, attributeValue), matchingRule);
       if (newAttr.hasValue())
       {
-        attributes.put(lowerName, newAttr);
+        getAttributeMap().put(lowerName, newAttr);
       }
       else
       {
-        attributes.remove(lowerName);
+        getAttributeMap().remove(lowerName);
       }
 
       return (attr.getRawValues().length != newAttr.getRawValues().length);
@@ -1516,11 +1617,11 @@ public class Entry
            new Attribute(attributeName, attributeValue), matchingRule);
       if (newAttr.hasValue())
       {
-        attributes.put(lowerName, newAttr);
+        getAttributeMap().put(lowerName, newAttr);
       }
       else
       {
-        attributes.remove(lowerName);
+        getAttributeMap().remove(lowerName);
       }
 
       return (attr.getRawValues().length != newAttr.getRawValues().length);
@@ -1560,11 +1661,11 @@ public class Entry
            new Attribute(attributeName, attributeValues));
       if (newAttr.hasValue())
       {
-        attributes.put(lowerName, newAttr);
+        getAttributeMap().put(lowerName, newAttr);
       }
       else
       {
-        attributes.remove(lowerName);
+        getAttributeMap().remove(lowerName);
       }
 
       return (attr.getRawValues().length != newAttr.getRawValues().length);
@@ -1604,11 +1705,11 @@ public class Entry
            new Attribute(attributeName, attributeValues));
       if (newAttr.hasValue())
       {
-        attributes.put(lowerName, newAttr);
+        getAttributeMap().put(lowerName, newAttr);
       }
       else
       {
-        attributes.remove(lowerName);
+        getAttributeMap().remove(lowerName);
       }
 
       return (attr.getRawValues().length != newAttr.getRawValues().length);
@@ -1639,7 +1740,7 @@ public class Entry
       lowerName = toLowerCase(a.getName());
     }
 
-    attributes.put(lowerName, attribute);
+    getAttributeMap().put(lowerName, attribute);
   }
 
 
@@ -1873,7 +1974,7 @@ public class Entry
          new LinkedHashMap<String,Attribute>();
 
     for (final Map.Entry<String,Attribute> e :
-         sourceEntry.attributes.entrySet())
+         sourceEntry.getAttributeMap().entrySet())
     {
       final String lowerName = toLowerCase(e.getKey());
       if ((compareAttrs != null) &&
@@ -1887,7 +1988,7 @@ public class Entry
     }
 
     for (final Map.Entry<String,Attribute> e :
-         targetEntry.attributes.entrySet())
+         targetEntry.getAttributeMap().entrySet())
     {
       final String lowerName = toLowerCase(e.getKey());
       if ((compareAttrs != null) &&
@@ -2139,7 +2240,7 @@ public class Entry
 
     for (int i=1; i < entries.length; i++)
     {
-      for (final Attribute a : entries[i].attributes.values())
+      for (final Attribute a : entries[i].getAttributeMap().values())
       {
         newEntry.addAttribute(a);
       }
@@ -2168,7 +2269,7 @@ public class Entry
 
     final Entry newEntry = entries[0].duplicate();
 
-    for (final Attribute a : entries[0].attributes.values())
+    for (final Attribute a : entries[0].getAttributeMap().values())
     {
       final String name = a.getName();
       for (final byte[] v : a.getValueByteArrays())
@@ -2608,7 +2709,7 @@ public class Entry
       hashCode += dn.hashCode();
     }
 
-    for (final Attribute a : attributes.values())
+    for (final Attribute a : getAttributeMap().values())
     {
       hashCode += a.hashCode();
     }
@@ -2666,12 +2767,12 @@ public class Entry
       }
     }
 
-    if (attributes.size() != e.attributes.size())
+    if (getAttributeMap().size() != e.getAttributeMap().size())
     {
       return false;
     }
 
-    for (final Attribute a : attributes.values())
+    for (final Attribute a : getAttributeMap().values())
     {
       if (! e.hasAttribute(a))
       {
@@ -2691,7 +2792,7 @@ public class Entry
    */
   public Entry duplicate()
   {
-    return new Entry(dn, schema, attributes.values());
+    return new Entry(dn, schema, getAttributeMap().values());
   }
 
 
@@ -2723,10 +2824,10 @@ public class Entry
   @Override()
   public final String[] toLDIF(final int wrapColumn)
   {
-    List<String> ldifLines = new ArrayList<String>(2*attributes.size());
+    List<String> ldifLines = new ArrayList<String>(2*getAttributeMap().size());
     encodeNameAndValue("dn", new ASN1OctetString(dn), ldifLines);
 
-    for (final Attribute a : attributes.values())
+    for (final Attribute a : getAttributeMap().values())
     {
       final String name = a.getName();
       if (a.hasValue())
@@ -2817,7 +2918,7 @@ public class Entry
                        wrapColumn);
     buffer.append(EOL_BYTES);
 
-    for (final Attribute a : attributes.values())
+    for (final Attribute a : getAttributeMap().values())
     {
       final String name = a.getName();
       if (a.hasValue())
@@ -2909,7 +3010,7 @@ public class Entry
                                   wrapColumn);
     buffer.append(EOL);
 
-    for (final Attribute a : attributes.values())
+    for (final Attribute a : getAttributeMap().values())
     {
       final String name = a.getName();
       if (a.hasValue())
@@ -2959,7 +3060,7 @@ public class Entry
     buffer.append(dn);
     buffer.append("', attributes={");
 
-    final Iterator<Attribute> iterator = attributes.values().iterator();
+    final Iterator<Attribute> iterator = getAttributeMap().values().iterator();
 
     while (iterator.hasNext())
     {
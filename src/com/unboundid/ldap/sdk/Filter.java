@@ -3286,6 +3286,28 @@ attrNameLoop:
 
 
 
+  /**
+   * Creates a compiled representation of this filter that may be used to
+   * efficiently determine whether it matches each of a number of entries using
+   * the provided schema.  The compiled filter will provide the same results as
+   * the {@link #matchesEntry(Entry,Schema)} method, but the attribute types,
+   * matching rules, and normalized assertion values will only be determined
+   * once rather than for each entry.  See the {@link CompiledFilter} class
+   * documentation for more information.
+   *
+   * @param  schema  The schema to use when evaluating the filter.  If this is
+   *                 {@code null}, then all matching will be performed using a
+   *                 case-ignore matching rule.
+   *
+   * @return  The compiled representation of this filter.
+   */
+  public CompiledFilter compile(final Schema schema)
+  {
+    return new CompiledFilter(this, schema);
+  }
+
+
+
   /**
    * Attempts to simplify the provided filter to allow it to be more efficiently
    * processed by the server.  The simplifications it will make include:
@@ -299,6 +299,43 @@ public final class InternalSDKHelper
 
 
 
+  /**
+   * Creates a new search result entry object with the protocol op and controls
+   * read from the given ASN.1 stream reader.
+   *
+   * @param  messageID        The LDAP message ID for the LDAP message that is
+   *                          associated with this search result entry.
+   * @param  messageSequence  The ASN.1 stream reader sequence used in the
+   *                          course of reading the LDAP message elements.
+   * @param  reader           The ASN.1 stream reader from which to read the
+   *                          protocol op and controls.
+   * @param  schema           The schema to use to select the appropriate
+   *                          matching rule to use for each attribute.  It may
+   *                          be {@code null} if the default matching rule
+   *                          should always be used.
+   * @param  lazilyDecode     Indicates whether to retain the encoded
+   *                          attributes and only decode them as they are
+   *                          needed, rather than decoding all of them
+   *                          immediately.
+   *
+   * @return  The decoded search result entry object.
+   *
+   * @throws  LDAPException  If a problem occurs while reading or decoding data
+   *                         from the ASN.1 stream reader.
+   */
+  @InternalUseOnly()
+  public static SearchResultEntry readSearchResultEntryFrom(final int messageID,
+                     final ASN1StreamReaderSequence messageSequence,
+                     final ASN1StreamReader reader, final Schema schema,
+                     final boolean lazilyDecode)
+         throws LDAPException
+  {
+    return SearchResultEntry.readSearchEntryFrom(messageID, messageSequence,
+                                                 reader, schema, lazilyDecode);
+  }
+
+
+
   /**
    * Creates a new search result reference object with the protocol op and
    * controls read from the given ASN.1 stream reader.
@@ -26,10 +26,12 @@ import java.io.Closeable;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -47,6 +49,7 @@ import com.unboundid.ldap.protocol.LDAPResponse;
 import com.unboundid.ldap.protocol.UnbindRequestProtocolOp;
 import com.unboundid.ldap.sdk.extensions.StartTLSExtendedRequest;
 import com.unboundid.ldap.sdk.schema.Schema;
+import com.unboundid.ldap.sdk.schema.SchemaCache;
 import com.unboundid.ldap.sdk.unboundidds.controls.RetainIdentityRequestControl;
 import com.unboundid.ldif.LDIFException;
 import com.unboundid.util.DebugType;
@@ -307,8 +310,14 @@ public final class LDAPConnection
   // The address of the server to which a connection should be re-established.
   private String reconnectAddress;
 
-  // A timer that may be used to enforce timeouts for asynchronous operations.
-  private Timer timer;
+  // The timeouts scheduled for asynchronous operations on this connection that
+  // have been neither invoked nor cancelled.
+  private final Set<AsyncTimeoutTimerTask> asyncTimeoutTasks;
+
+  // Indicates whether this connection may be shared by multiple threads through
+  // a multiplexed connection pool, in which case operations that would alter
+  // its state will be rejected.
+  private volatile boolean sharedByMultiplexedPool;
 
 
 
@@ -416,7 +425,8 @@ public final class LDAPConnection
     connectionName       = null;
     connectionPoolName   = null;
     cachedSchema         = null;
-    timer                = null;
+    asyncTimeoutTasks    = Collections.newSetFromMap(
+         new ConcurrentHashMap<AsyncTimeoutTimerTask,Boolean>());
 
     referralConnector = this.connectionOptions.getReferralConnector();
     if (referralConnector == null)
@@ -1601,6 +1611,18 @@ public final class LDAPConnection
   void setConnectionPool(final AbstractConnectionPool connectionPool)
   {
     this.connectionPool = connectionPool;
+
+    ResponseTimeHistogramSet poolHistograms = null;
+    if (connectionPool != null)
+    {
+      final LDAPConnectionPoolStatistics poolStatistics =
+           connectionPool.getConnectionPoolStatistics();
+      if (poolStatistics != null)
+      {
+        poolHistograms = poolStatistics.getResponseTimeHistogramStripe();
+      }
+    }
+    connectionStatistics.setPoolResponseTimeHistograms(poolHistograms);
   }
 
 
@@ -2132,6 +2154,7 @@ public final class LDAPConnection
          throws LDAPException
   {
     ensureNotNull(bindRequest);
+    ensureAllowedIfShared(bindRequest);
 
     // We don't want to update the last bind request or update the cached
     // schema for this connection if it included the retain identity control.
@@ -2604,6 +2627,7 @@ public final class LDAPConnection
          throws LDAPException
   {
     ensureNotNull(extendedRequest);
+    ensureAllowedIfShared(extendedRequest);
 
     final ExtendedResult extendedResult = extendedRequest.process(this, 1);
 
@@ -4179,11 +4203,77 @@ public final class LDAPConnection
   public LDAPResult processOperation(final LDAPRequest request)
          throws LDAPException
   {
+    ensureAllowedIfShared(request);
     return request.process(this, 1);
   }
 
 
 
+  /**
+   * Indicates whether this connection may be shared by multiple threads through
+   * a multiplexed connection pool.
+   *
+   * @return  {@code true} if this connection may be shared by multiple threads
+   *          through a multiplexed connection pool, or {@code false} if not.
+   */
+  boolean isSharedByMultiplexedPool()
+  {
+    return sharedByMultiplexedPool;
+  }
+
+
+
+  /**
+   * Specifies whether this connection may be shared by multiple threads through
+   * a multiplexed connection pool.  Once a connection is shared, bind and
+   * StartTLS operations will be rejected, since they would alter the state of
+   * the connection for all of the threads using it.
+   *
+   * @param  sharedByMultiplexedPool  Indicates whether this connection may be
+   *                                  shared by multiple threads through a
+   *                                  multiplexed connection pool.
+   */
+  void setSharedByMultiplexedPool(final boolean sharedByMultiplexedPool)
+  {
+    this.sharedByMultiplexedPool = sharedByMultiplexedPool;
+  }
+
+
+
+  /**
+   * Ensures that the provided request may be processed on this connection.  If
+   * the connection is shared by a multiplexed connection pool, then bind and
+   * StartTLS requests will be rejected.
+   *
+   * @param  request  The request to be processed.
+   *
+   * @throws  LDAPException  If the provided request may not be processed on
+   *                         this connection.
+   */
+  void ensureAllowedIfShared(final LDAPRequest request)
+       throws LDAPException
+  {
+    if (! sharedByMultiplexedPool)
+    {
+      return;
+    }
+
+    if (request instanceof BindRequest)
+    {
+      throw new LDAPException(ResultCode.NOT_SUPPORTED,
+           ERR_CONN_SHARED_BIND_NOT_ALLOWED.get());
+    }
+    else if ((request instanceof ExtendedRequest) &&
+             ((ExtendedRequest) request).getOID().equals(
+                  StartTLSExtendedRequest.STARTTLS_REQUEST_OID))
+    {
+      throw new LDAPException(ResultCode.NOT_SUPPORTED,
+           ERR_CONN_SHARED_STARTTLS_NOT_ALLOWED.get());
+    }
+  }
+
+
+
   /**
    * Retrieves the referral connector that should be used to establish
    * connections for use when following referrals.
@@ -4433,6 +4523,14 @@ public final class LDAPConnection
     }
 
     connectionStatistics.incrementNumDisconnects();
+
+    // Cancel any outstanding async timeouts so that they do not remain in the
+    // shared scheduler until they expire.
+    for (final AsyncTimeoutTimerTask task : asyncTimeoutTasks)
+    {
+      task.cancel();
+    }
+
     final LDAPConnectionInternals internals = connectionInternals;
     if (internals != null)
     {
@@ -4442,17 +4540,50 @@ public final class LDAPConnection
 
     cachedSchema = null;
     lastCommunicationTime = -1L;
+  }
 
-    synchronized (this)
-    {
-      final Timer t = timer;
-      timer = null;
 
-      if (t != null)
-      {
-        t.cancel();
-      }
-    }
+
+  /**
+   * Schedules the provided task to enforce the response timeout for an
+   * asynchronous operation on this connection.  The task will be cancelled if
+   * the connection is closed before it is invoked.
+   *
+   * @param  task           The task to be scheduled.
+   * @param  timeoutMillis  The response timeout in milliseconds.
+   */
+  void scheduleAsyncTimeout(final AsyncTimeoutTimerTask task,
+                            final long timeoutMillis)
+  {
+    asyncTimeoutTasks.add(task);
+    AsyncTimeoutScheduler.getInstance().schedule(task, timeoutMillis);
+  }
+
+
+
+  /**
+   * Indicates that the provided async timeout task has been invoked or
+   * cancelled and no longer needs to be tracked by this connection.
+   *
+   * @param  task  The task that has been invoked or cancelled.
+   */
+  void asyncTimeoutCompleted(final AsyncTimeoutTimerTask task)
+  {
+    asyncTimeoutTasks.remove(task);
+  }
+
+
+
+  /**
+   * Retrieves the number of async timeouts scheduled for this connection that
+   * have been neither invoked nor cancelled.
+   *
+   * @return  The number of async timeouts scheduled for this connection that
+   *          have been neither invoked nor cancelled.
+   */
+  int getNumPendingAsyncTimeouts()
+  {
+    return asyncTimeoutTasks.size();
   }
 
 
@@ -4507,23 +4638,6 @@ public final class LDAPConnection
 
 
 
-  /**
-   * Retrieves a timer for use with this connection, creating one if necessary.
-   *
-   * @return  A timer for use with this connection.
-   */
-  synchronized Timer getTimer()
-  {
-    if (timer == null)
-    {
-      timer = new Timer("Timer thread for " + toString(), true);
-    }
-
-    return timer;
-  }
-
-
-
   /**
    * {@inheritDoc}
    */
@@ -4854,9 +4968,10 @@ public final class LDAPConnection
 
 
   /**
-   * Retrieves the schema from the provided connection.  If the retrieved schema
-   * matches schema that's already in use by other connections, the common
-   * schema will be used instead of the newly-retrieved version.
+   * Retrieves the schema from the provided connection, using the shared
+   * {@link SchemaCache} if it is enabled.  If the retrieved schema matches
+   * schema that's already in use by other connections, the common schema will
+   * be used instead of the newly-retrieved version.
    *
    * @param  c  The connection for which to retrieve the schema.
    *
@@ -4869,7 +4984,7 @@ public final class LDAPConnection
   private static Schema getCachedSchema(final LDAPConnection c)
          throws LDAPException
   {
-    final Schema s = c.getSchema();
+    final Schema s = SchemaCache.getSchema(c);
 
     synchronized (SCHEMA_SET)
     {
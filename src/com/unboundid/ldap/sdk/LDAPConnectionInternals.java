@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
 import java.util.logging.Level;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -40,6 +41,7 @@ import com.unboundid.asn1.ASN1Buffer;
 import com.unboundid.ldap.protocol.LDAPMessage;
 import com.unboundid.util.DebugType;
 import com.unboundid.util.InternalUseOnly;
+import com.unboundid.util.SynchronizedSocketFactory;
 
 import static com.unboundid.ldap.sdk.LDAPMessages.*;
 import static com.unboundid.util.Debug.*;
@@ -93,6 +95,10 @@ final class LDAPConnectionInternals
   // associated.
   private final LDAPConnectionReader connectionReader;
 
+  // The write coalescer used to combine requests sent concurrently by multiple
+  // threads, if write coalescing is enabled.
+  private final LDAPConnectionWriteCoalescer writeCoalescer;
+
   // The output stream used to send requests to the server.
   private volatile OutputStream outputStream;
 
@@ -153,10 +159,39 @@ final class LDAPConnectionInternals
     synchronousMode = options.useSynchronousMode();
     saslClient      = null;
 
+    if (options.useWriteCoalescing() && (! synchronousMode))
+    {
+      writeCoalescer = new LDAPConnectionWriteCoalescer(
+           options.getWriteCoalescingMaxDelayMicros());
+    }
+    else
+    {
+      writeCoalescer = null;
+    }
+
+    // If the connection should use a shared selector thread rather than a
+    // dedicated reader thread, and if the default socket factory would
+    // otherwise be used, then create a socket that is backed by a channel.
+    SocketFactory connectSocketFactory = socketFactory;
+    if (options.useSharedConnectionReaders() && (! synchronousMode))
+    {
+      SocketFactory f = socketFactory;
+      if (f instanceof SynchronizedSocketFactory)
+      {
+        f = ((SynchronizedSocketFactory) f).getWrappedSocketFactory();
+      }
+
+      if (f.getClass().equals(SocketFactory.getDefault().getClass()))
+      {
+        connectSocketFactory =
+             LDAPConnectionSelector.SOCKET_CHANNEL_SOCKET_FACTORY;
+      }
+    }
+
     try
     {
-      final ConnectThread connectThread =
-           new ConnectThread(socketFactory, inetAddress, port, timeout);
+      final ConnectThread connectThread = new ConnectThread(
+           connectSocketFactory, inetAddress, port, timeout);
       connectThread.start();
       socket = connectThread.getConnectedSocket();
 
@@ -191,8 +226,21 @@ final class LDAPConnectionInternals
                          options.getLingerTimeoutSeconds());
       socket.setTcpNoDelay(options.useTCPNoDelay());
 
-      outputStream     = new BufferedOutputStream(socket.getOutputStream());
       connectionReader = new LDAPConnectionReader(connection, this);
+
+      final SocketChannel socketChannel = connectionReader.getSocketChannel();
+      if (socketChannel == null)
+      {
+        outputStream = new BufferedOutputStream(socket.getOutputStream());
+      }
+      else
+      {
+        // The socket's own output stream cannot be used while the channel is
+        // in non-blocking mode.
+        outputStream = new BufferedOutputStream(
+             new LDAPConnectionSelector.SocketChannelOutputStream(
+                  socketChannel));
+      }
     }
     catch (final IOException ioe)
     {
@@ -217,12 +265,33 @@ final class LDAPConnectionInternals
   /**
    * Starts the connection reader for this connection internals.  This will
    * have no effect if the connection is operating in synchronous mode.
+   *
+   * @throws  IOException  If a problem occurs while registering the connection
+   *                       with a shared selector thread.
    */
   void startConnectionReader()
+       throws IOException
   {
     if (! synchronousMode)
     {
-      connectionReader.start();
+      try
+      {
+        connectionReader.startReading();
+      }
+      catch (final IOException ioe)
+      {
+        debugException(ioe);
+        try
+        {
+          socket.close();
+        }
+        catch (final Exception e)
+        {
+          debugException(e);
+        }
+
+        throw ioe;
+      }
     }
   }
 
@@ -332,6 +401,21 @@ final class LDAPConnectionInternals
 
 
 
+  /**
+   * Retrieves the write coalescer used to combine requests sent concurrently
+   * by multiple threads.
+   *
+   * @return  The write coalescer used to combine requests sent concurrently by
+   *          multiple threads, or {@code null} if write coalescing is not
+   *          enabled.
+   */
+  LDAPConnectionWriteCoalescer getWriteCoalescer()
+  {
+    return writeCoalescer;
+  }
+
+
+
   /**
    * Indicates whether the socket is currently connected.
    *
@@ -520,7 +604,13 @@ final class LDAPConnectionInternals
     try
     {
       final OutputStream os = outputStream;
-      if (saslClient == null)
+      if (writeCoalescer != null)
+      {
+        // The buffer will be reused by this thread, so the coalescer needs its
+        // own copy of the encoded message.
+        writeCoalescer.write(buffer.toByteArray(), os, saslClient);
+      }
+      else if (saslClient == null)
       {
         buffer.writeTo(os);
       }
@@ -540,7 +630,11 @@ final class LDAPConnectionInternals
         os.write(lengthBytes);
         os.write(saslBytes);
       }
-      os.flush();
+
+      if (writeCoalescer == null)
+      {
+        os.flush();
+      }
     }
     catch (final IOException ioe)
     {
@@ -135,6 +135,13 @@ import static com.unboundid.util.Validator.*;
  *  <LI>A class that may be used to perform additional verification (e.g.,
  *      hostname validation) for any {@code SSLSocket} instances created.  By
  *      default, no special verification will be performed.</LI>
+ *  <LI>A flag which indicates whether connections not operating in synchronous
+ *      mode should use a small, process-wide set of shared selector threads
+ *      to read responses from the server using non-blocking I/O rather than
+ *      having a dedicated reader thread for each connection, and the maximum
+ *      number of selector threads that may be used for this purpose.  By
+ *      default, each connection will use its own dedicated reader
+ *      thread.</LI>
  * </UL>
  */
 @Mutable()
@@ -240,6 +247,53 @@ public final class LDAPConnectionOptions
 
 
 
+  /**
+   * The default value ({@code false}) for the setting that controls whether
+   * connections should use shared selector threads to read responses rather
+   * than a dedicated reader thread per connection.
+   */
+  static final boolean DEFAULT_USE_SHARED_CONNECTION_READERS = false;
+
+
+
+  /**
+   * The default value ({@code false}) for the setting that controls whether
+   * the attributes of search result entries should only be decoded as they are
+   * needed.
+   */
+  static final boolean DEFAULT_LAZILY_DECODE_SEARCH_RESULT_ENTRIES = false;
+
+
+
+  /**
+   * The default value ({@code false}) for the setting that controls whether
+   * requests sent concurrently over the same connection should be coalesced
+   * into a single write.
+   */
+  static final boolean DEFAULT_USE_WRITE_COALESCING = false;
+
+
+
+  /**
+   * The default value ({@code 0L}) for the setting that controls the maximum
+   * length of time in microseconds that a write may be delayed to allow other
+   * requests to be coalesced with it.
+   */
+  static final long DEFAULT_WRITE_COALESCING_MAX_DELAY_MICROS = 0L;
+
+
+
+  /**
+   * The default value for the setting that controls the maximum number of
+   * shared selector threads that may be used to read responses.  It will be
+   * the number of available processors, with a minimum of one and a maximum of
+   * eight.
+   */
+  static final int DEFAULT_SHARED_CONNECTION_READER_THREAD_COUNT =
+       Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+
+
   /**
    * The default value (60000) for the setting that controls the timeout in
    * milliseconds when trying to establish a new connection.
@@ -352,12 +406,20 @@ public final class LDAPConnectionOptions
   // Indicates whether to attempt to follow any referrals that are encountered.
   private boolean followReferrals;
 
+  // Indicates whether the attributes of search result entries should only be
+  // decoded as they are needed.
+  private boolean lazilyDecodeSearchResultEntries;
+
   // Indicates whether to use SO_KEEPALIVE for the underlying sockets.
   private boolean useKeepAlive;
 
   // Indicates whether to use SO_LINGER for the underlying sockets.
   private boolean useLinger;
 
+  // Indicates whether to coalesce requests sent concurrently over the same
+  // connection into a single write.
+  private boolean useWriteCoalescing;
+
   // Indicates whether to use SO_REUSEADDR for the underlying sockets.
   private boolean useReuseAddress;
 
@@ -376,6 +438,10 @@ public final class LDAPConnectionOptions
   // Indicates whether to use TCP_NODELAY for the underlying sockets.
   private boolean useTCPNoDelay;
 
+  // Indicates whether to use shared selector threads rather than a dedicated
+  // reader thread for each connection.
+  private boolean useSharedConnectionReaders;
+
   // The disconnect handler for associated connections.
   private DisconnectHandler disconnectHandler;
 
@@ -398,12 +464,19 @@ public final class LDAPConnectionOptions
   // The socket send buffer size to request.
   private int sendBufferSize;
 
+  // The maximum number of shared selector threads to use to read responses.
+  private int sharedConnectionReaderThreadCount;
+
   // The pooled schema timeout, in milliseconds.
   private long pooledSchemaTimeout;
 
   // The response timeout, in milliseconds.
   private long responseTimeout;
 
+  // The maximum length of time in microseconds that a write may be delayed to
+  // allow other requests to be coalesced with it.
+  private long writeCoalescingMaxDelayMicros;
+
   // Tne default referral connector that should be used for associated
   // connections.
   private ReferralConnector referralConnector;
@@ -434,6 +507,8 @@ public final class LDAPConnectionOptions
     useSchema                      = DEFAULT_USE_SCHEMA;
     useSynchronousMode             = DEFAULT_USE_SYNCHRONOUS_MODE;
     useTCPNoDelay                  = DEFAULT_USE_TCP_NODELAY;
+    useSharedConnectionReaders     = DEFAULT_USE_SHARED_CONNECTION_READERS;
+    useWriteCoalescing             = DEFAULT_USE_WRITE_COALESCING;
     connectTimeout                 = DEFAULT_CONNECT_TIMEOUT_MILLIS;
     lingerTimeout                  = DEFAULT_LINGER_TIMEOUT_SECONDS;
     maxMessageSize                 = DEFAULT_MAX_MESSAGE_SIZE;
@@ -442,6 +517,7 @@ public final class LDAPConnectionOptions
     responseTimeout                = DEFAULT_RESPONSE_TIMEOUT_MILLIS;
     receiveBufferSize              = DEFAULT_RECEIVE_BUFFER_SIZE;
     sendBufferSize                 = DEFAULT_SEND_BUFFER_SIZE;
+    writeCoalescingMaxDelayMicros  = DEFAULT_WRITE_COALESCING_MAX_DELAY_MICROS;
     disconnectHandler              = null;
     referralConnector              = null;
     sslSocketVerifier              = DEFAULT_SSL_SOCKET_VERIFIER;
@@ -449,6 +525,10 @@ public final class LDAPConnectionOptions
 
     allowConcurrentSocketFactoryUse =
          DEFAULT_ALLOW_CONCURRENT_SOCKET_FACTORY_USE;
+    lazilyDecodeSearchResultEntries =
+         DEFAULT_LAZILY_DECODE_SEARCH_RESULT_ENTRIES;
+    sharedConnectionReaderThreadCount =
+         DEFAULT_SHARED_CONNECTION_READER_THREAD_COUNT;
   }
 
 
@@ -464,31 +544,36 @@ public final class LDAPConnectionOptions
   {
     final LDAPConnectionOptions o = new LDAPConnectionOptions();
 
-    o.abandonOnTimeout                = abandonOnTimeout;
-    o.allowConcurrentSocketFactoryUse = allowConcurrentSocketFactoryUse;
-    o.autoReconnect                   = autoReconnect;
-    o.bindWithDNRequiresPassword      = bindWithDNRequiresPassword;
-    o.captureConnectStackTrace        = captureConnectStackTrace;
-    o.followReferrals                 = followReferrals;
-    o.useKeepAlive                    = useKeepAlive;
-    o.useLinger                       = useLinger;
-    o.useReuseAddress                 = useReuseAddress;
-    o.usePooledSchema                 = usePooledSchema;
-    o.useSchema                       = useSchema;
-    o.useSynchronousMode              = useSynchronousMode;
-    o.useTCPNoDelay                   = useTCPNoDelay;
-    o.connectTimeout                  = connectTimeout;
-    o.lingerTimeout                   = lingerTimeout;
-    o.maxMessageSize                  = maxMessageSize;
-    o.pooledSchemaTimeout             = pooledSchemaTimeout;
-    o.responseTimeout                 = responseTimeout;
-    o.referralConnector               = referralConnector;
-    o.referralHopLimit                = referralHopLimit;
-    o.disconnectHandler               = disconnectHandler;
-    o.unsolicitedNotificationHandler  = unsolicitedNotificationHandler;
-    o.receiveBufferSize               = receiveBufferSize;
-    o.sendBufferSize                  = sendBufferSize;
-    o.sslSocketVerifier               = sslSocketVerifier;
+    o.abandonOnTimeout                  = abandonOnTimeout;
+    o.allowConcurrentSocketFactoryUse   = allowConcurrentSocketFactoryUse;
+    o.autoReconnect                     = autoReconnect;
+    o.bindWithDNRequiresPassword        = bindWithDNRequiresPassword;
+    o.captureConnectStackTrace          = captureConnectStackTrace;
+    o.followReferrals                   = followReferrals;
+    o.useKeepAlive                      = useKeepAlive;
+    o.useLinger                         = useLinger;
+    o.useReuseAddress                   = useReuseAddress;
+    o.usePooledSchema                   = usePooledSchema;
+    o.useSchema                         = useSchema;
+    o.useSynchronousMode                = useSynchronousMode;
+    o.useTCPNoDelay                     = useTCPNoDelay;
+    o.connectTimeout                    = connectTimeout;
+    o.lingerTimeout                     = lingerTimeout;
+    o.maxMessageSize                    = maxMessageSize;
+    o.pooledSchemaTimeout               = pooledSchemaTimeout;
+    o.responseTimeout                   = responseTimeout;
+    o.referralConnector                 = referralConnector;
+    o.referralHopLimit                  = referralHopLimit;
+    o.disconnectHandler                 = disconnectHandler;
+    o.unsolicitedNotificationHandler    = unsolicitedNotificationHandler;
+    o.receiveBufferSize                 = receiveBufferSize;
+    o.sendBufferSize                    = sendBufferSize;
+    o.sslSocketVerifier                 = sslSocketVerifier;
+    o.useSharedConnectionReaders        = useSharedConnectionReaders;
+    o.sharedConnectionReaderThreadCount = sharedConnectionReaderThreadCount;
+    o.lazilyDecodeSearchResultEntries   = lazilyDecodeSearchResultEntries;
+    o.useWriteCoalescing                = useWriteCoalescing;
+    o.writeCoalescingMaxDelayMicros     = writeCoalescingMaxDelayMicros;
 
     return o;
   }
@@ -1016,6 +1101,244 @@ public final class LDAPConnectionOptions
 
 
 
+  /**
+   * Indicates whether connections that are not operating in synchronous mode
+   * should use a process-wide set of shared selector threads to read responses
+   * from the server, rather than a dedicated reader thread for each connection.
+   * This can dramatically reduce the number of threads required by
+   * applications that maintain a large number of connections (e.g., in
+   * connection pools).  Responses read by a selector thread are delivered by a
+   * thread from a shared pool, so a result listener that blocks only delays
+   * the processing for the connection on which it is used.
+   * <BR><BR>
+   * Shared selector threads can only be used for connections whose sockets are
+   * backed by a {@code SocketChannel}.  If a connection is created with the
+   * default socket factory, then an appropriate socket will be created
+   * automatically.  For connections created with other socket factories (e.g.,
+   * SSL socket factories), or connections that are later secured using
+   * StartTLS or a SASL mechanism that provides integrity or confidentiality,
+   * a dedicated reader thread will be used.
+   * <BR><BR>
+   * Note that this connection option must be set on the connection before any
+   * attempt is made to establish the connection.
+   *
+   * @return  {@code true} if associated connections should use shared selector
+   *          threads to read responses when possible, or {@code false} if each
+   *          connection should use a dedicated reader thread.
+   */
+  public boolean useSharedConnectionReaders()
+  {
+    return useSharedConnectionReaders;
+  }
+
+
+
+  /**
+   * Specifies whether connections that are not operating in synchronous mode
+   * should use a process-wide set of shared selector threads to read responses
+   * from the server, rather than a dedicated reader thread for each connection.
+   * See the {@link #useSharedConnectionReaders} method for more information.
+   *
+   * @param  useSharedConnectionReaders  Indicates whether associated
+   *                                     connections should use shared selector
+   *                                     threads to read responses when
+   *                                     possible.
+   */
+  public void setUseSharedConnectionReaders(
+                   final boolean useSharedConnectionReaders)
+  {
+    this.useSharedConnectionReaders = useSharedConnectionReaders;
+  }
+
+
+
+  /**
+   * Indicates whether the attributes of search result entries read from the
+   * server should only be decoded as they are needed.  If this is
+   * {@code true}, then the reader will retain the encoded representation of
+   * each entry's attributes and will only determine the name and position of
+   * each one.  An attribute will be decoded the first time it is retrieved by
+   * name (e.g., using the {@code getAttribute}, {@code hasAttribute}, or
+   * {@code getAttributeValue} methods), and all attributes will be decoded
+   * the first time that an operation needs to access all of them (e.g., using
+   * the {@code getAttributes} method, or when the entry is altered, compared,
+   * or converted to LDIF).
+   * <BR><BR>
+   * This can significantly reduce the processing and memory allocation needed
+   * for searches that return entries with many attributes or large values,
+   * when the application only needs to access a few of those attributes.  It
+   * will not provide any benefit, and may add a small amount of overhead, if
+   * the application accesses all of the attributes in each entry.
+   *
+   * @return  {@code true} if the attributes of search result entries should
+   *          only be decoded as they are needed, or {@code false} if they
+   *          should all be decoded as soon as each entry is read.
+   */
+  public boolean lazilyDecodeSearchResultEntries()
+  {
+    return lazilyDecodeSearchResultEntries;
+  }
+
+
+
+  /**
+   * Specifies whether the attributes of search result entries read from the
+   * server should only be decoded as they are needed.  See the
+   * {@link #lazilyDecodeSearchResultEntries} method for more information.
+   *
+   * @param  lazilyDecodeSearchResultEntries  Indicates whether the attributes
+   *                                          of search result entries should
+   *                                          only be decoded as they are
+   *                                          needed.
+   */
+  public void setLazilyDecodeSearchResultEntries(
+                   final boolean lazilyDecodeSearchResultEntries)
+  {
+    this.lazilyDecodeSearchResultEntries = lazilyDecodeSearchResultEntries;
+  }
+
+
+
+  /**
+   * Indicates whether requests sent concurrently over the same connection
+   * should be coalesced into a single write.  If this is {@code true}, then
+   * each thread sending a request will add the encoded request to a queue, and
+   * one of those threads will write all of the queued requests to the socket
+   * and flush it once, rather than each request being written and flushed
+   * individually.  If the connection uses SASL integrity or confidentiality,
+   * then queued requests will also be combined into a single wrapped unit when
+   * that does not exceed the maximum size negotiated with the server.
+   * <BR><BR>
+   * This can significantly reduce the number of system calls and network
+   * packets needed by applications that send a large number of asynchronous
+   * requests, or that share a connection among many threads, but it will not
+   * provide any benefit for a connection that is only used to send one request
+   * at a time.  This setting must be configured before the connection is
+   * established to have any effect.
+   *
+   * @return  {@code true} if requests sent concurrently over the same
+   *          connection should be coalesced into a single write, or
+   *          {@code false} if each request should be written and flushed
+   *          individually.
+   */
+  public boolean useWriteCoalescing()
+  {
+    return useWriteCoalescing;
+  }
+
+
+
+  /**
+   * Specifies whether requests sent concurrently over the same connection
+   * should be coalesced into a single write.  See the
+   * {@link #useWriteCoalescing} method for more information.
+   *
+   * @param  useWriteCoalescing  Indicates whether requests sent concurrently
+   *                             over the same connection should be coalesced
+   *                             into a single write.
+   */
+  public void setUseWriteCoalescing(final boolean useWriteCoalescing)
+  {
+    this.useWriteCoalescing = useWriteCoalescing;
+  }
+
+
+
+  /**
+   * Retrieves the maximum length of time in microseconds that the thread
+   * writing coalesced requests may wait for additional requests to be queued
+   * before writing them.  This will only be used if write coalescing is
+   * enabled.  A value of zero indicates that the requests should be written
+   * without any added delay, in which case only requests queued while another
+   * write is in progress will be coalesced.
+   *
+   * @return  The maximum length of time in microseconds that the thread
+   *          writing coalesced requests may wait for additional requests to be
+   *          queued before writing them.
+   */
+  public long getWriteCoalescingMaxDelayMicros()
+  {
+    return writeCoalescingMaxDelayMicros;
+  }
+
+
+
+  /**
+   * Specifies the maximum length of time in microseconds that the thread
+   * writing coalesced requests may wait for additional requests to be queued
+   * before writing them.  This will only be used if write coalescing is
+   * enabled, and it should generally be kept very small (no more than a few
+   * microseconds), since it will be added to the response time of every
+   * request.
+   *
+   * @param  writeCoalescingMaxDelayMicros  The maximum length of time in
+   *                                        microseconds that the thread
+   *                                        writing coalesced requests may wait
+   *                                        for additional requests to be
+   *                                        queued.  A value less than or equal
+   *                                        to zero indicates that there should
+   *                                        not be any added delay.
+   */
+  public void setWriteCoalescingMaxDelayMicros(
+                   final long writeCoalescingMaxDelayMicros)
+  {
+    if (writeCoalescingMaxDelayMicros > 0L)
+    {
+      this.writeCoalescingMaxDelayMicros = writeCoalescingMaxDelayMicros;
+    }
+    else
+    {
+      this.writeCoalescingMaxDelayMicros = 0L;
+    }
+  }
+
+
+
+  /**
+   * Retrieves the maximum number of shared selector threads that may be used to
+   * read responses for connections configured to use shared connection readers.
+   * The selector threads are shared across the entire JVM, and a new thread
+   * will only be created if fewer than this number of threads have already been
+   * created.
+   *
+   * @return  The maximum number of shared selector threads that may be used to
+   *          read responses.
+   */
+  public int getSharedConnectionReaderThreadCount()
+  {
+    return sharedConnectionReaderThreadCount;
+  }
+
+
+
+  /**
+   * Specifies the maximum number of shared selector threads that may be used
+   * to read responses for connections configured to use shared connection
+   * readers.
+   *
+   * @param  sharedConnectionReaderThreadCount  The maximum number of shared
+   *                                            selector threads that may be
+   *                                            used.  A value less than or
+   *                                            equal to zero will cause the
+   *                                            default value to be used.
+   */
+  public void setSharedConnectionReaderThreadCount(
+                   final int sharedConnectionReaderThreadCount)
+  {
+    if (sharedConnectionReaderThreadCount <= 0)
+    {
+      this.sharedConnectionReaderThreadCount =
+           DEFAULT_SHARED_CONNECTION_READER_THREAD_COUNT;
+    }
+    else
+    {
+      this.sharedConnectionReaderThreadCount =
+           sharedConnectionReaderThreadCount;
+    }
+  }
+
+
+
   /**
    * Indicates whether to use the TCP_NODELAY option for the underlying sockets
    * used by associated connections.
@@ -1469,6 +1792,22 @@ public final class LDAPConnectionOptions
     buffer.append(useSynchronousMode);
     buffer.append(", useTCPNoDelay=");
     buffer.append(useTCPNoDelay);
+    buffer.append(", useSharedConnectionReaders=");
+    buffer.append(useSharedConnectionReaders);
+    if (useSharedConnectionReaders)
+    {
+      buffer.append(", sharedConnectionReaderThreadCount=");
+      buffer.append(sharedConnectionReaderThreadCount);
+    }
+    buffer.append(", lazilyDecodeSearchResultEntries=");
+    buffer.append(lazilyDecodeSearchResultEntries);
+    buffer.append(", useWriteCoalescing=");
+    buffer.append(useWriteCoalescing);
+    if (useWriteCoalescing)
+    {
+      buffer.append(", writeCoalescingMaxDelayMicros=");
+      buffer.append(writeCoalescingMaxDelayMicros);
+    }
     buffer.append(", captureConnectStackTrace=");
     buffer.append(captureConnectStackTrace);
     buffer.append(", connectTimeoutMillis=");
@@ -34,6 +34,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import javax.net.ssl.SSLSession;
 
 import com.unboundid.ldap.protocol.LDAPResponse;
 import com.unboundid.ldap.sdk.schema.Schema;
@@ -232,6 +233,11 @@ public final class LDAPConnectionPool
   // back to the pool.
   private volatile boolean checkConnectionAgeOnRelease;
 
+  // Indicates whether to try to establish a connection that replaces a
+  // TLS-secured connection to the same server so that its session may be
+  // resumed.
+  private volatile boolean preferSessionResumption;
+
   // Indicates whether health check processing for connections in synchronous
   // mode should include attempting to read with a very short timeout to attempt
   // to detect closures and unsolicited notifications in a more timely manner.
@@ -745,6 +751,7 @@ public final class LDAPConnectionPool
          new AtomicInteger(maxConnections - availableConnections.size());
     createIfNecessary                  = true;
     checkConnectionAgeOnRelease        = false;
+    preferSessionResumption            = false;
     maxConnectionAge                   = 0L;
     maxDefunctReplacementConnectionAge = null;
     minDisconnectInterval              = 0L;
@@ -1148,6 +1155,7 @@ public final class LDAPConnectionPool
          new AtomicInteger(maxConnections - availableConnections.size());
     createIfNecessary                  = true;
     checkConnectionAgeOnRelease        = false;
+    preferSessionResumption            = false;
     maxConnectionAge                   = 0L;
     maxDefunctReplacementConnectionAge = null;
     minDisconnectInterval              = 0L;
@@ -1174,7 +1182,7 @@ public final class LDAPConnectionPool
   LDAPConnection createConnection()
                  throws LDAPException
   {
-    return createConnection(healthCheck);
+    return createConnection(healthCheck, null);
   }
 
 
@@ -1182,10 +1190,18 @@ public final class LDAPConnectionPool
   /**
    * Creates a new LDAP connection for use in this pool.
    *
-   * @param  healthCheck  The health check to use to determine whether the
-   *                      newly-created connection is valid.  It may be
-   *                      {@code null} if no additional health checking should
-   *                      be performed for the newly-created connection.
+   * @param  healthCheck          The health check to use to determine
+   *                              whether the newly-created connection is
+   *                              valid.  It may be {@code null} if no
+   *                              additional health checking should be
+   *                              performed for the newly-created connection.
+   * @param  resumptionServerSet  A server set that should be tried before the
+   *                              pool's server set in order to establish a
+   *                              connection that may resume a previously
+   *                              negotiated TLS session, as obtained from the
+   *                              {@link #getResumptionServerSet} method.  It
+   *                              may be {@code null} if the pool's server set
+   *                              should be used.
    *
    * @return  A new connection created for use in this pool.
    *
@@ -1195,19 +1211,39 @@ public final class LDAPConnectionPool
    */
   @SuppressWarnings("deprecation")
   private LDAPConnection createConnection(
-                              final LDAPConnectionPoolHealthCheck healthCheck)
+                              final LDAPConnectionPoolHealthCheck healthCheck,
+                              final ServerSet resumptionServerSet)
           throws LDAPException
   {
-    final LDAPConnection c;
-    try
+    final long connectStartTime = System.currentTimeMillis();
+
+    LDAPConnection c = null;
+    if (resumptionServerSet != null)
     {
-      c = serverSet.getConnection(healthCheck);
+      try
+      {
+        c = resumptionServerSet.getConnection(healthCheck);
+      }
+      catch (final LDAPException le)
+      {
+        // We couldn't re-establish a connection to the same server, so fall
+        // back to using the pool's server set.
+        debugException(le);
+      }
     }
-    catch (final LDAPException le)
+
+    if (c == null)
     {
-      debugException(le);
-      poolStatistics.incrementNumFailedConnectionAttempts();
-      throw le;
+      try
+      {
+        c = serverSet.getConnection(healthCheck);
+      }
+      catch (final LDAPException le)
+      {
+        debugException(le);
+        poolStatistics.incrementNumFailedConnectionAttempts();
+        throw le;
+      }
     }
     c.setConnectionPool(this);
 
@@ -1258,6 +1294,24 @@ public final class LDAPConnectionPool
     }
 
 
+    // If the connection is secured with TLS (either when it was established or
+    // via pre-authentication post-connect processing), then determine whether
+    // that required a full handshake or whether an existing session was
+    // resumed.
+    final SSLSession sslSession = c.getSSLSession();
+    if (sslSession != null)
+    {
+      if (sslSession.getCreationTime() < connectStartTime)
+      {
+        poolStatistics.incrementNumAbbreviatedTLSHandshakes();
+      }
+      else
+      {
+        poolStatistics.incrementNumFullTLSHandshakes();
+      }
+    }
+
+
     // Authenticate the connection if appropriate.
     BindResult bindResult = null;
     try
@@ -1864,7 +1918,8 @@ public final class LDAPConnectionPool
     {
       try
       {
-        final LDAPConnection newConnection = createConnection();
+        final LDAPConnection newConnection = createConnection(healthCheck,
+             getResumptionServerSet(connection));
         if (availableConnections.offer(newConnection))
         {
           connection.setDisconnectInfo(DisconnectType.POOLED_CONNECTION_EXPIRED,
@@ -2065,6 +2120,8 @@ public final class LDAPConnectionPool
   private LDAPConnection handleDefunctConnection(
                               final LDAPConnection connection)
   {
+    final ServerSet resumptionServerSet = getResumptionServerSet(connection);
+
     connection.setDisconnectInfo(DisconnectType.POOLED_CONNECTION_DEFUNCT, null,
                                  null);
     connection.terminate(null);
@@ -2081,7 +2138,8 @@ public final class LDAPConnectionPool
 
     try
     {
-      final LDAPConnection conn = createConnection();
+      final LDAPConnection conn =
+           createConnection(healthCheck, resumptionServerSet);
       if (maxDefunctReplacementConnectionAge != null)
       {
         // Only set the maximum age if there isn't one already set for the
@@ -2125,6 +2183,8 @@ public final class LDAPConnectionPool
                              final LDAPConnection connection)
          throws LDAPException
   {
+    final ServerSet resumptionServerSet = getResumptionServerSet(connection);
+
     poolStatistics.incrementNumConnectionsClosedDefunct();
     connection.setDisconnectInfo(DisconnectType.POOLED_CONNECTION_DEFUNCT, null,
                                  null);
@@ -2137,7 +2197,7 @@ public final class LDAPConnectionPool
 
     try
     {
-      return createConnection();
+      return createConnection(healthCheck, resumptionServerSet);
     }
     catch (final LDAPException le)
     {
@@ -2182,6 +2242,39 @@ public final class LDAPConnectionPool
 
 
 
+  /**
+   * Retrieves a server set that may be used to establish a connection to the
+   * same server as the provided connection, with the same socket factory, so
+   * that the TLS session used by that connection may be resumed.  This must be
+   * called before the provided connection is closed.
+   *
+   * @param  connection  The connection that is to be replaced.
+   *
+   * @return  A server set that may be used to establish a connection to the
+   *          same server as the provided connection, or {@code null} if the
+   *          pool does not prefer session resumption or the provided
+   *          connection is not secured with TLS.
+   */
+  private ServerSet getResumptionServerSet(final LDAPConnection connection)
+  {
+    if ((! preferSessionResumption) || (connection.getSSLSession() == null))
+    {
+      return null;
+    }
+
+    final String address = connection.getConnectedAddress();
+    final int port = connection.getConnectedPort();
+    if ((address == null) || (port <= 0))
+    {
+      return null;
+    }
+
+    return new SingleServerSet(address, port, connection.getSocketFactory(),
+         connection.getConnectionOptions());
+  }
+
+
+
   /**
    * Indicates whether the provided connection should be considered expired.
    *
@@ -2507,6 +2600,55 @@ public final class LDAPConnectionPool
 
 
 
+  /**
+   * Indicates whether the connection pool should prefer TLS session resumption
+   * when creating a connection to replace one that is defunct or expired.  If
+   * so, and if the connection being replaced was secured with TLS, then the
+   * pool will first try to establish the new connection to the same server
+   * with the same socket factory so that the JVM can resume the earlier
+   * session with an abbreviated handshake, and will only fall back to the
+   * pool's server set if that fails.  The
+   * {@link LDAPConnectionPoolStatistics#getNumAbbreviatedTLSHandshakes} method
+   * may be used to determine how often sessions were actually resumed.
+   * <BR><BR>
+   * Note that this may cause replacement connections to be distributed across
+   * servers differently than the pool's server set would otherwise choose.
+   *
+   * @return  {@code true} if the connection pool should prefer TLS session
+   *          resumption when replacing connections, or {@code false} if
+   *          replacement connections should always be created using the
+   *          pool's server set.
+   */
+  public boolean preferSessionResumption()
+  {
+    return preferSessionResumption;
+  }
+
+
+
+  /**
+   * Specifies whether the connection pool should prefer TLS session resumption
+   * when creating a connection to replace one that is defunct or expired.  If
+   * so, and if the connection being replaced was secured with TLS, then the
+   * pool will first try to establish the new connection to the same server
+   * with the same socket factory so that the JVM can resume the earlier
+   * session with an abbreviated handshake, and will only fall back to the
+   * pool's server set if that fails.
+   * <BR><BR>
+   * Note that this may cause replacement connections to be distributed across
+   * servers differently than the pool's server set would otherwise choose.
+   *
+   * @param  preferSessionResumption  Indicates whether the connection pool
+   *                                  should prefer TLS session resumption when
+   *                                  replacing connections.
+   */
+  public void setPreferSessionResumption(final boolean preferSessionResumption)
+  {
+    this.preferSessionResumption = preferSessionResumption;
+  }
+
+
+
   /**
    * Retrieves the minimum length of time in milliseconds that should pass
    * between connections closed because they have been established for longer
@@ -2777,7 +2919,8 @@ public final class LDAPConnectionPool
 
           try
           {
-            final LDAPConnection newConnection = createConnection();
+            final LDAPConnection newConnection =
+                 createConnection(hc, getResumptionServerSet(conn));
             if (availableConnections.offer(newConnection))
             {
               examinedConnections.add(newConnection);
@@ -2967,7 +3110,7 @@ public final class LDAPConnectionPool
              minConnectionGoal - availableConnections.size();
         for (int i=0; i < neededConnections; i++)
         {
-          final LDAPConnection conn = createConnection(hc);
+          final LDAPConnection conn = createConnection(hc, null);
           if (! availableConnections.offer(conn))
           {
             conn.setDisconnectInfo(DisconnectType.POOLED_CONNECTION_UNNEEDED,
@@ -23,6 +23,7 @@ package com.unboundid.ldap.sdk;
 
 
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.unboundid.util.Mutable;
@@ -65,6 +66,12 @@ import com.unboundid.util.ThreadSafetyLevel;
  *       the pool.</LI>
  *   <LI>The number of failed attempts to create a new connection for use in the
  *       pool.</LI>
+ *   <LI>The number of full and abbreviated (i.e., resumed session) TLS
+ *       handshakes performed while creating new connections for use in the
+ *       pool.</LI>
+ *   <LI>A histogram of the response times for each type of operation processed
+ *       on connections in the pool, which may be used to determine response
+ *       time percentiles.</LI>
  * </UL>
  */
 @Mutable()
@@ -79,6 +86,22 @@ public final class LDAPConnectionPoolStatistics
 
 
 
+  /**
+   * The number of stripes to use for the response time histograms.  Each
+   * connection records response times in a single stripe so that connections
+   * processing responses concurrently will generally not contend with each
+   * other.
+   */
+  private static final int NUM_HISTOGRAM_STRIPES = Integer.highestOneBit(
+       Math.max(1, Math.min(16, Runtime.getRuntime().availableProcessors())));
+
+
+
+  // The counter used to assign histogram stripes to connections.
+  private final AtomicInteger nextHistogramStripe;
+
+
+
   // The number of connections that have been closed as defunct.
   private final AtomicLong numConnectionsClosedDefunct;
 
@@ -95,6 +118,13 @@ public final class LDAPConnectionPoolStatistics
   // The number of failed attempts to create a connection for use in the pool.
   private final AtomicLong numFailedConnectionAttempts;
 
+  // The number of new connections secured with a TLS session that was resumed
+  // from an earlier connection.
+  private final AtomicLong numAbbreviatedTLSHandshakes;
+
+  // The number of new connections secured with a newly-negotiated TLS session.
+  private final AtomicLong numFullTLSHandshakes;
+
   // The number of valid connections released back to the pool.
   private final AtomicLong numReleasedValid;
 
@@ -119,6 +149,9 @@ public final class LDAPConnectionPoolStatistics
   // The connection pool with which these statistics are associated.
   private final AbstractConnectionPool pool;
 
+  // The stripes of response time histograms for connections in the pool.
+  private final ResponseTimeHistogramSet[] responseTimeHistograms;
+
 
 
   /**
@@ -143,6 +176,16 @@ public final class LDAPConnectionPoolStatistics
     numSuccessfulCheckoutsWithoutWait   = new AtomicLong(0L);
     numFailedCheckouts                  = new AtomicLong(0L);
     numReleasedValid                    = new AtomicLong(0L);
+    numFullTLSHandshakes                = new AtomicLong(0L);
+    numAbbreviatedTLSHandshakes         = new AtomicLong(0L);
+    nextHistogramStripe                 = new AtomicInteger(0);
+
+    responseTimeHistograms =
+         new ResponseTimeHistogramSet[NUM_HISTOGRAM_STRIPES];
+    for (int i=0; i < responseTimeHistograms.length; i++)
+    {
+      responseTimeHistograms[i] = new ResponseTimeHistogramSet();
+    }
   }
 
 
@@ -163,6 +206,13 @@ public final class LDAPConnectionPoolStatistics
     numSuccessfulCheckoutsWithoutWait.set(0L);
     numFailedCheckouts.set(0L);
     numReleasedValid.set(0L);
+    numFullTLSHandshakes.set(0L);
+    numAbbreviatedTLSHandshakes.set(0L);
+
+    for (final ResponseTimeHistogramSet histograms : responseTimeHistograms)
+    {
+      histograms.reset();
+    }
   }
 
 
@@ -436,6 +486,62 @@ public final class LDAPConnectionPoolStatistics
 
 
 
+  /**
+   * Retrieves the number of connections created for use in the pool that were
+   * secured with a full TLS handshake (i.e., one that negotiated a new session
+   * rather than resuming a session from an earlier connection).
+   *
+   * @return  The number of connections created for use in the pool that were
+   *          secured with a full TLS handshake.
+   */
+  public long getNumFullTLSHandshakes()
+  {
+    return numFullTLSHandshakes.get();
+  }
+
+
+
+  /**
+   * Increments the number of connections created for use in the pool that were
+   * secured with a full TLS handshake.
+   */
+  void incrementNumFullTLSHandshakes()
+  {
+    numFullTLSHandshakes.incrementAndGet();
+  }
+
+
+
+  /**
+   * Retrieves the number of connections created for use in the pool that were
+   * secured with an abbreviated TLS handshake (i.e., one that resumed a session
+   * established by an earlier connection).  A handshake will be considered
+   * abbreviated if the session used to secure the connection was created before
+   * the attempt to establish the connection began.  Note that TLSv1.3 session
+   * resumption results in a new session object and will therefore be counted
+   * as a full handshake.
+   *
+   * @return  The number of connections created for use in the pool that were
+   *          secured with an abbreviated TLS handshake.
+   */
+  public long getNumAbbreviatedTLSHandshakes()
+  {
+    return numAbbreviatedTLSHandshakes.get();
+  }
+
+
+
+  /**
+   * Increments the number of connections created for use in the pool that were
+   * secured with an abbreviated TLS handshake.
+   */
+  void incrementNumAbbreviatedTLSHandshakes()
+  {
+    numAbbreviatedTLSHandshakes.incrementAndGet();
+  }
+
+
+
   /**
    * Retrieves the number of connections currently available for use in the
    * pool, if that information is available.
@@ -466,6 +572,82 @@ public final class LDAPConnectionPoolStatistics
 
 
 
+  /**
+   * Retrieves a histogram with the response times for all operations of the
+   * specified type processed on connections in the pool.
+   *
+   * @param  operationType  The type of operation for which to retrieve the
+   *                        response times.  It may be {@code null} to retrieve
+   *                        a histogram with the response times for all types
+   *                        of operations.
+   *
+   * @return  A histogram with the response times for all operations of the
+   *          specified type processed on connections in the pool.  It will not
+   *          be updated as additional operations are processed.
+   */
+  public ResponseTimeHistogram getResponseTimeHistogram(
+                                    final OperationType operationType)
+  {
+    final ResponseTimeHistogram histogram = new ResponseTimeHistogram();
+    for (final ResponseTimeHistogramSet histograms : responseTimeHistograms)
+    {
+      histograms.addTo(operationType, false, histogram);
+    }
+
+    return histogram;
+  }
+
+
+
+  /**
+   * Retrieves a histogram with the response times for all operations of the
+   * specified type processed on connections in the pool since the last call to
+   * this method (or since the statistics were reset), and then removes those
+   * response times so that the next call will only include operations
+   * completed after this call.  This may be used to obtain interval-based
+   * response time information.  Note that response times retrieved by this
+   * method will no longer be included in the histograms returned by the
+   * {@link #getResponseTimeHistogram} method.
+   *
+   * @param  operationType  The type of operation for which to retrieve the
+   *                        response times.  It may be {@code null} to retrieve
+   *                        a histogram with the response times for all types
+   *                        of operations.
+   *
+   * @return  A histogram with the response times for all operations of the
+   *          specified type processed on connections in the pool since the
+   *          last call to this method.
+   */
+  public ResponseTimeHistogram getAndResetResponseTimeHistogram(
+                                    final OperationType operationType)
+  {
+    final ResponseTimeHistogram histogram = new ResponseTimeHistogram();
+    for (final ResponseTimeHistogramSet histograms : responseTimeHistograms)
+    {
+      histograms.addTo(operationType, true, histogram);
+    }
+
+    return histogram;
+  }
+
+
+
+  /**
+   * Retrieves the set of response time histograms in which a newly-created
+   * connection in the pool should record its response times.
+   *
+   * @return  The set of response time histograms in which a newly-created
+   *          connection in the pool should record its response times.
+   */
+  ResponseTimeHistogramSet getResponseTimeHistogramStripe()
+  {
+    final int stripe = nextHistogramStripe.getAndIncrement() &
+         (responseTimeHistograms.length - 1);
+    return responseTimeHistograms[stripe];
+  }
+
+
+
   /**
    * Retrieves a string representation of this LDAP connection pool statistics
    * object.
@@ -502,6 +684,8 @@ public final class LDAPConnectionPoolStatistics
     final long successfulCheckouts = numSuccessfulCheckouts.get();
     final long failedCheckouts     = numFailedCheckouts.get();
     final long releasedValid       = numReleasedValid.get();
+    final long fullHandshakes      = numFullTLSHandshakes.get();
+    final long abbrevHandshakes    = numAbbreviatedTLSHandshakes.get();
 
     buffer.append("LDAPConnectionPoolStatistics(numAvailableConnections=");
     buffer.append(availableConns);
@@ -523,6 +707,10 @@ public final class LDAPConnectionPoolStatistics
     buffer.append(failedCheckouts);
     buffer.append(", numReleasedValid=");
     buffer.append(releasedValid);
+    buffer.append(", numFullTLSHandshakes=");
+    buffer.append(fullHandshakes);
+    buffer.append(", numAbbreviatedTLSHandshakes=");
+    buffer.append(abbrevHandshakes);
     buffer.append(')');
   }
 }
@@ -23,12 +23,15 @@ package com.unboundid.ldap.sdk;
 
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.nio.channels.SocketChannel;
 import java.util.Iterator;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
@@ -42,6 +45,7 @@ import com.unboundid.asn1.InternalASN1Helper;
 import com.unboundid.ldap.protocol.LDAPMessage;
 import com.unboundid.ldap.protocol.LDAPResponse;
 import com.unboundid.ldap.sdk.extensions.NoticeOfDisconnectionExtendedResult;
+import com.unboundid.ldap.sdk.schema.Schema;
 import com.unboundid.ldap.sdk.unboundidds.extensions.
             InteractiveTransactionAbortedExtendedResult;
 import com.unboundid.util.DebugType;
@@ -57,7 +61,11 @@ import static com.unboundid.util.StaticUtils.*;
 /**
  * This class provides a thread that will read data from the socket associated
  * with an LDAP connection.  It will accept messages from the server, and
- * associate responses with their corresponding requests.
+ * associate responses with their corresponding requests.  If the connection is
+ * configured to use shared connection readers, then the thread will not be
+ * started and data will instead be read by an {@link LDAPConnectionSelector}
+ * thread, and the complete responses will be handed off to this reader for
+ * processing by a thread from a shared dispatcher pool.
  */
 @InternalUseOnly()
 final class LDAPConnectionReader
@@ -105,6 +113,14 @@ final class LDAPConnectionReader
   // The thread that is used to read data from the client.
   private volatile Thread thread;
 
+  // The selector thread that is responsible for reading data for this
+  // connection, if a dedicated reader thread is not being used.
+  private volatile LDAPConnectionSelector selectorThread;
+
+  // The socket channel that will be used to read data through a selector
+  // thread.  It will be null if a dedicated reader thread should be used.
+  private volatile SocketChannel socketChannel;
+
   // The wakeable sleeper that will be used during StartTLS processing.
   private final WakeableSleeper startTLSSleeper;
 
@@ -143,6 +159,20 @@ final class LDAPConnectionReader
     startTLSException    = null;
     startTLSOutputStream = null;
     startTLSSleeper      = new WakeableSleeper();
+    selectorThread       = null;
+
+    if (connectionInternals.synchronousMode() ||
+        (! connection.getConnectionOptions().useSharedConnectionReaders()))
+    {
+      socketChannel = null;
+    }
+    else
+    {
+      // A selector can only be used if the socket is backed by a channel.  If
+      // it isn't (e.g., because it was created by an SSL socket factory), then
+      // we'll fall back to using a dedicated reader thread.
+      socketChannel = socket.getChannel();
+    }
 
     if (! connectionInternals.synchronousMode())
     {
@@ -215,6 +245,220 @@ final class LDAPConnectionReader
 
 
 
+  /**
+   * Begins reading data from the server, either by starting this thread or by
+   * registering the connection with a shared selector thread.  This should
+   * only be called for connections that are not operating in synchronous mode.
+   *
+   * @throws  IOException  If a problem occurs while registering the connection
+   *                       with a selector thread.
+   */
+  void startReading()
+       throws IOException
+  {
+    final SocketChannel channel = socketChannel;
+    if (channel == null)
+    {
+      start();
+    }
+    else
+    {
+      selectorThread = LDAPConnectionSelector.register(this, channel,
+           connection.getConnectionOptions().
+                getSharedConnectionReaderThreadCount());
+    }
+  }
+
+
+
+  /**
+   * Retrieves the socket channel that will be used to read data through a
+   * shared selector thread, if applicable.
+   *
+   * @return  The socket channel that will be used to read data through a
+   *          shared selector thread, or {@code null} if a dedicated reader
+   *          thread (or synchronous mode) is used for the connection.
+   */
+  SocketChannel getSocketChannel()
+  {
+    return socketChannel;
+  }
+
+
+
+  /**
+   * Retrieves the maximum size of an LDAP message that will be allowed to be
+   * read from the server.
+   *
+   * @return  The maximum size of an LDAP message that will be allowed to be
+   *          read from the server.
+   */
+  int getMaxMessageSize()
+  {
+    return connection.getConnectionOptions().getMaxMessageSize();
+  }
+
+
+
+  /**
+   * Retrieves the schema that should be used when decoding responses read from
+   * the server.
+   *
+   * @return  The schema that should be used when decoding responses read from
+   *          the server, or {@code null} if none is available.
+   */
+  Schema getCachedSchema()
+  {
+    return connection.getCachedSchema();
+  }
+
+
+
+  /**
+   * Indicates whether the attributes of search result entries read by this
+   * connection reader should only be decoded as they are needed.
+   *
+   * @return  {@code true} if the attributes of search result entries should be
+   *          lazily decoded, or {@code false} if they should all be decoded
+   *          immediately.
+   */
+  boolean lazilyDecodeSearchResultEntries()
+  {
+    return connection.getConnectionOptions().lazilyDecodeSearchResultEntries();
+  }
+
+
+
+  /**
+   * Indicates that the selector thread responsible for this connection has
+   * encountered the end of the input stream or a problem while reading or
+   * decoding data from the server.  The channel will already have been removed
+   * from the selector.
+   *
+   * @param  e  The exception that was caught, or {@code null} if the server
+   *            closed the connection.
+   */
+  void selectorReadFailed(final Exception e)
+  {
+    selectorThread = null;
+
+    if (e == null)
+    {
+      // This should only happen if the socket has been closed.
+      connection.setDisconnectInfo(
+           DisconnectType.SERVER_CLOSED_WITHOUT_NOTICE, null, null);
+      @SuppressWarnings("deprecation")
+      final boolean autoReconnect =
+           connection.getConnectionOptions().autoReconnect();
+      if ((! closeRequested) && (! connection.unbindRequestSent()) &&
+          autoReconnect && (! connection.closeRequested()))
+      {
+        connection.setNeedsReconnect();
+      }
+      else
+      {
+        closeRequested = true;
+        closeInternal(true, null);
+      }
+      return;
+    }
+
+    if (closeRequested || connection.closeRequested() ||
+        (connection.getDisconnectType() != null))
+    {
+      // This exception resulted from the connection being closed in a way that
+      // we already knew about.  We don't want to debug it at the same level as
+      // a newly-detected invalidity.
+      closeRequested = true;
+      debugException(Level.FINEST, e);
+    }
+    else
+    {
+      debugException(e);
+    }
+
+    Throwable t = e;
+    if ((e instanceof LDAPException) && (e.getCause() != null))
+    {
+      t = e.getCause();
+    }
+
+    final String message;
+    Level debugLevel = Level.SEVERE;
+    if (t instanceof IOException)
+    {
+      connection.setDisconnectInfo(DisconnectType.IO_ERROR, e.getMessage(), t);
+      message = ERR_READER_CLOSING_DUE_TO_IO_EXCEPTION.get(
+           connection.getHostPort(), getExceptionMessage(t));
+      debugLevel = Level.WARNING;
+    }
+    else if (t instanceof ASN1Exception)
+    {
+      connection.setDisconnectInfo(DisconnectType.DECODE_ERROR, e.getMessage(),
+           t);
+      message = ERR_READER_CLOSING_DUE_TO_ASN1_EXCEPTION.get(
+           connection.getHostPort(), getExceptionMessage(t));
+    }
+    else if (t instanceof LDAPException)
+    {
+      connection.setDisconnectInfo(DisconnectType.DECODE_ERROR, e.getMessage(),
+           null);
+      message = e.getMessage();
+      debugLevel = Level.WARNING;
+    }
+    else
+    {
+      connection.setDisconnectInfo(DisconnectType.LOCAL_ERROR, e.getMessage(),
+           t);
+      message = ERR_READER_CLOSING_DUE_TO_EXCEPTION.get(
+           connection.getHostPort(), getExceptionMessage(t));
+    }
+
+    debug(debugLevel, DebugType.LDAP, message, t);
+
+    @SuppressWarnings("deprecation")
+    final boolean autoReconnect =
+         connection.getConnectionOptions().autoReconnect();
+    if ((! closeRequested) && autoReconnect)
+    {
+      connection.setNeedsReconnect();
+    }
+    else
+    {
+      closeRequested = true;
+      closeInternal(true, message);
+    }
+  }
+
+
+
+  /**
+   * Removes this connection from the selector thread responsible for reading
+   * data from it, if applicable, so that a dedicated reader thread may be used
+   * for all subsequent reads.
+   *
+   * @return  Any data that was read by the selector thread but has not yet been
+   *          processed, or {@code null} if this connection was not being
+   *          managed by a selector thread.
+   *
+   * @throws  LDAPException  If a problem occurs while removing the connection
+   *                         from the selector.
+   */
+  private byte[] stopUsingSelector()
+          throws LDAPException
+  {
+    final LDAPConnectionSelector s = selectorThread;
+    if (s == null)
+    {
+      return null;
+    }
+
+    selectorThread = null;
+    return s.deregister(socketChannel);
+  }
+
+
+
   /**
    * Retrieves the number of outstanding operations on the LDAP connection,
    * which are operations for which the request has been sent but the final
@@ -250,7 +494,8 @@ final class LDAPConnectionReader
         try
         {
           response = LDAPMessage.readLDAPResponseFrom(asn1StreamReader, true,
-               connection.getCachedSchema());
+               connection.getCachedSchema(),
+               lazilyDecodeSearchResultEntries());
         }
         catch (final LDAPException le)
         {
@@ -447,122 +692,7 @@ final class LDAPConnectionReader
           }
         }
 
-        debugLDAPResult(response, connection);
-        connection.setLastCommunicationTime();
-
-        final ResponseAcceptor responseAcceptor;
-        if ((response instanceof SearchResultEntry) ||
-            (response instanceof SearchResultReference))
-        {
-          responseAcceptor = acceptorMap.get(response.getMessageID());
-        }
-        else if (response instanceof IntermediateResponse)
-        {
-          final IntermediateResponse ir = (IntermediateResponse) response;
-          responseAcceptor = acceptorMap.get(response.getMessageID());
-           IntermediateResponseListener l = null;
-          if (responseAcceptor instanceof LDAPRequest)
-          {
-            final LDAPRequest r = (LDAPRequest) responseAcceptor;
-            l = r.getIntermediateResponseListener();
-
-          }
-          else if (responseAcceptor instanceof IntermediateResponseListener)
-          {
-            l = (IntermediateResponseListener) responseAcceptor;
-          }
-
-          if (l == null)
-          {
-            debug(Level.WARNING, DebugType.LDAP,
-                  WARN_INTERMEDIATE_RESPONSE_WITH_NO_LISTENER.get(
-                       String.valueOf(ir)));
-          }
-          else
-          {
-            try
-            {
-              l.intermediateResponseReturned(ir);
-            }
-            catch (final Exception e)
-            {
-              debugException(e);
-            }
-          }
-          continue;
-        }
-        else
-        {
-          responseAcceptor = acceptorMap.remove(response.getMessageID());
-        }
-
-
-        if (responseAcceptor == null)
-        {
-          if ((response instanceof ExtendedResult) &&
-              (response.getMessageID() == 0))
-          {
-            // This is an intermediate response message, so handle it
-            // appropriately.
-            ExtendedResult extendedResult = (ExtendedResult) response;
-
-            final String oid = extendedResult.getOID();
-            if (NoticeOfDisconnectionExtendedResult.
-                     NOTICE_OF_DISCONNECTION_RESULT_OID.equals(oid))
-            {
-              extendedResult = new NoticeOfDisconnectionExtendedResult(
-                                        extendedResult);
-              connection.setDisconnectInfo(
-                   DisconnectType.SERVER_CLOSED_WITH_NOTICE,
-                   extendedResult.getDiagnosticMessage(), null);
-            }
-            else if (InteractiveTransactionAbortedExtendedResult.
-                          INTERACTIVE_TRANSACTION_ABORTED_RESULT_OID.equals(
-                               oid))
-            {
-              extendedResult = new InteractiveTransactionAbortedExtendedResult(
-                                        extendedResult);
-            }
-
-            final UnsolicitedNotificationHandler handler =
-                 connection.getConnectionOptions().
-                      getUnsolicitedNotificationHandler();
-            if (handler == null)
-            {
-              if (debugEnabled(DebugType.LDAP))
-              {
-                debug(Level.WARNING, DebugType.LDAP,
-                     WARN_READER_UNHANDLED_UNSOLICITED_NOTIFICATION.get(
-                          response));
-              }
-            }
-            else
-            {
-              handler.handleUnsolicitedNotification(connection,
-                                                    extendedResult);
-            }
-            continue;
-          }
-
-          if (debugEnabled(DebugType.LDAP))
-          {
-            debug(Level.WARNING, DebugType.LDAP,
-                  WARN_READER_NO_ACCEPTOR.get(response));
-          }
-          continue;
-        }
-
-        try
-        {
-          responseAcceptor.responseReceived(response);
-        }
-        catch (final LDAPException le)
-        {
-          debugException(le);
-          debug(Level.WARNING, DebugType.LDAP,
-                ERR_READER_ACCEPTOR_ERROR.get(String.valueOf(response),
-                     connection.getHostPort(), getExceptionMessage(le)), le);
-        }
+        processResponse(response);
       }
       catch (final Exception e)
       {
@@ -644,6 +774,136 @@ final class LDAPConnectionReader
 
 
 
+  /**
+   * Processes the provided response that has been read from the server,
+   * associating it with the corresponding request or handling it as an
+   * unsolicited notification as appropriate.
+   *
+   * @param  response  The response that has been read from the server.  It
+   *                   must not be {@code null}.
+   */
+  void processResponse(final LDAPResponse response)
+  {
+    debugLDAPResult(response, connection);
+    connection.setLastCommunicationTime();
+
+    final ResponseAcceptor responseAcceptor;
+    if ((response instanceof SearchResultEntry) ||
+        (response instanceof SearchResultReference))
+    {
+      responseAcceptor = acceptorMap.get(response.getMessageID());
+    }
+    else if (response instanceof IntermediateResponse)
+    {
+      final IntermediateResponse ir = (IntermediateResponse) response;
+      responseAcceptor = acceptorMap.get(response.getMessageID());
+      IntermediateResponseListener l = null;
+      if (responseAcceptor instanceof LDAPRequest)
+      {
+        final LDAPRequest r = (LDAPRequest) responseAcceptor;
+        l = r.getIntermediateResponseListener();
+
+      }
+      else if (responseAcceptor instanceof IntermediateResponseListener)
+      {
+        l = (IntermediateResponseListener) responseAcceptor;
+      }
+
+      if (l == null)
+      {
+        debug(Level.WARNING, DebugType.LDAP,
+              WARN_INTERMEDIATE_RESPONSE_WITH_NO_LISTENER.get(
+                   String.valueOf(ir)));
+      }
+      else
+      {
+        try
+        {
+          l.intermediateResponseReturned(ir);
+        }
+        catch (final Exception e)
+        {
+          debugException(e);
+        }
+      }
+      return;
+    }
+    else
+    {
+      responseAcceptor = acceptorMap.remove(response.getMessageID());
+    }
+
+
+    if (responseAcceptor == null)
+    {
+      if ((response instanceof ExtendedResult) &&
+          (response.getMessageID() == 0))
+      {
+        // This is an intermediate response message, so handle it
+        // appropriately.
+        ExtendedResult extendedResult = (ExtendedResult) response;
+
+        final String oid = extendedResult.getOID();
+        if (NoticeOfDisconnectionExtendedResult.
+                 NOTICE_OF_DISCONNECTION_RESULT_OID.equals(oid))
+        {
+          extendedResult = new NoticeOfDisconnectionExtendedResult(
+                                    extendedResult);
+          connection.setDisconnectInfo(
+               DisconnectType.SERVER_CLOSED_WITH_NOTICE,
+               extendedResult.getDiagnosticMessage(), null);
+        }
+        else if (InteractiveTransactionAbortedExtendedResult.
+                      INTERACTIVE_TRANSACTION_ABORTED_RESULT_OID.equals(
+                           oid))
+        {
+          extendedResult = new InteractiveTransactionAbortedExtendedResult(
+                                    extendedResult);
+        }
+
+        final UnsolicitedNotificationHandler handler =
+             connection.getConnectionOptions().
+                  getUnsolicitedNotificationHandler();
+        if (handler == null)
+        {
+          if (debugEnabled(DebugType.LDAP))
+          {
+            debug(Level.WARNING, DebugType.LDAP,
+                 WARN_READER_UNHANDLED_UNSOLICITED_NOTIFICATION.get(
+                      response));
+          }
+        }
+        else
+        {
+          handler.handleUnsolicitedNotification(connection,
+                                                extendedResult);
+        }
+        return;
+      }
+
+      if (debugEnabled(DebugType.LDAP))
+      {
+        debug(Level.WARNING, DebugType.LDAP,
+              WARN_READER_NO_ACCEPTOR.get(response));
+      }
+      return;
+    }
+
+    try
+    {
+      responseAcceptor.responseReceived(response);
+    }
+    catch (final LDAPException le)
+    {
+      debugException(le);
+      debug(Level.WARNING, DebugType.LDAP,
+            ERR_READER_ACCEPTOR_ERROR.get(String.valueOf(response),
+                 connection.getHostPort(), getExceptionMessage(le)), le);
+    }
+  }
+
+
+
   /**
    * Reads a response from the server, blocking if necessary until the response
    * has been received.  This should only be used for connections operating in
@@ -667,7 +927,8 @@ final class LDAPConnectionReader
       try
       {
         final LDAPResponse response = LDAPMessage.readLDAPResponseFrom(
-             asn1StreamReader, false, connection.getCachedSchema());
+             asn1StreamReader, false, connection.getCachedSchema(),
+             lazilyDecodeSearchResultEntries());
         if (response == null)
         {
           return new ConnectionClosedResponse(ResultCode.SERVER_DOWN, null);
@@ -884,10 +1145,24 @@ final class LDAPConnectionReader
   {
     final LDAPConnectionOptions connectionOptions =
          connection.getConnectionOptions();
-    if (connection.synchronousMode())
+    final boolean usingSelector = (selectorThread != null);
+    if (connection.synchronousMode() || usingSelector)
     {
       try
       {
+        if (usingSelector)
+        {
+          // The TLS negotiation must be performed using a blocking socket, and
+          // the connection will use a dedicated reader thread from now on.
+          final byte[] unreadData = stopUsingSelector();
+          if ((unreadData != null) && (unreadData.length > 0))
+          {
+            throw new LDAPException(ResultCode.LOCAL_ERROR,
+                 ERR_CONNREADER_SELECTOR_UNEXPECTED_DATA.get(
+                      unreadData.length));
+          }
+        }
+
         final int connectTimeout = connectionOptions.getConnectTimeoutMillis();
         if (connectTimeout > 0)
         {
@@ -932,6 +1207,13 @@ final class LDAPConnectionReader
         connection.getConnectionInternals(true).setSocket(sslSocket);
         final OutputStream outputStream = startTLSOutputStream;
         startTLSOutputStream = null;
+
+        if (usingSelector)
+        {
+          socketChannel = null;
+          start();
+        }
+
         return outputStream;
       }
       catch (final Exception e)
@@ -984,14 +1266,51 @@ final class LDAPConnectionReader
 
   /**
    * Updates this connection reader to ensure that any subsequent data read
-   * over this connection will be decoded using the provided SASL client.
+   * over this connection will be decoded using the provided SASL client.  If
+   * the connection is currently being read by a selector thread, then it will
+   * be converted to use a dedicated reader thread.
    *
    * @param  saslClient  The SASL client to use to decode data read over this
    *                     connection.
+   *
+   * @throws  LDAPException  If a problem occurs while preparing to read data
+   *                         with the provided SASL client.
    */
   void applySASLQoP(final SaslClient saslClient)
+       throws LDAPException
   {
-    InternalASN1Helper.setSASLClient(asn1StreamReader, saslClient);
+    if (selectorThread == null)
+    {
+      InternalASN1Helper.setSASLClient(asn1StreamReader, saslClient);
+      return;
+    }
+
+    try
+    {
+      final byte[] unreadData = stopUsingSelector();
+      InputStream is = socket.getInputStream();
+      if ((unreadData != null) && (unreadData.length > 0))
+      {
+        is = new SequenceInputStream(new ByteArrayInputStream(unreadData), is);
+      }
+
+      inputStream = new BufferedInputStream(is, DEFAULT_INPUT_BUFFER_SIZE);
+      asn1StreamReader = new ASN1StreamReader(inputStream,
+           connection.getConnectionOptions().getMaxMessageSize());
+      InternalASN1Helper.setSASLClient(asn1StreamReader, saslClient);
+      socketChannel = null;
+      start();
+    }
+    catch (final Exception e)
+    {
+      debugException(e);
+      connection.setDisconnectInfo(DisconnectType.SECURITY_PROBLEM,
+           getExceptionMessage(e), e);
+      closeRequested = true;
+      closeInternal(true, getExceptionMessage(e));
+      throw new LDAPException(ResultCode.LOCAL_ERROR,
+           ERR_CONNREADER_SASL_QOP_FAILED.get(getExceptionMessage(e)), e);
+    }
   }
 
 
@@ -1064,6 +1383,21 @@ final class LDAPConnectionReader
        debugException(e);
      }
 
+     final SocketChannel channel = socketChannel;
+     if (channel != null)
+     {
+       // Closing the channel will also remove it from any selector.
+       selectorThread = null;
+       try
+       {
+         channel.close();
+       }
+       catch (final Exception e)
+       {
+         debugException(e);
+       }
+     }
+
      if (notifyConnection)
      {
        connection.setClosed();
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+
+
+/**
+ * This interface defines a method that may be used to be notified of the
+ * response time for each operation processed on an LDAP connection, as it is
+ * recorded in the connection's {@link LDAPConnectionStatistics}.
+ */
+@ThreadSafety(level=ThreadSafetyLevel.INTERFACE_THREADSAFE)
+interface LDAPConnectionResponseTimeListener
+{
+  /**
+   * Indicates that a response has been received for an operation processed on
+   * the associated connection.  This method will be invoked by the thread that
+   * received the response, so it must return quickly.
+   *
+   * @param  responseTimeNanos  The length of time in nanoseconds between
+   *                            sending the request and receiving the response.
+   */
+  void responseTimeRecorded(long responseTimeNanos);
+}
@@ -0,0 +1,1077 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.net.SocketFactory;
+
+import com.unboundid.asn1.ASN1StreamReader;
+import com.unboundid.ldap.protocol.LDAPMessage;
+import com.unboundid.ldap.protocol.LDAPResponse;
+import com.unboundid.util.InternalUseOnly;
+import com.unboundid.util.LDAPSDKThreadFactory;
+
+import static com.unboundid.ldap.sdk.LDAPMessages.*;
+import static com.unboundid.util.Debug.*;
+import static com.unboundid.util.StaticUtils.*;
+
+
+
+/**
+ * This class provides a thread that uses a {@code Selector} to read responses
+ * for any number of LDAP connections using non-blocking I/O.  It may be used
+ * as an alternative to having a separate {@link LDAPConnectionReader} thread
+ * for each connection.  A process-wide set of these threads will be shared
+ * across all connections that are configured to use them, and each connection
+ * will be assigned to the thread that is currently responsible for the fewest
+ * connections.
+ * <BR><BR>
+ * Each selector thread will read data from a connection until it has one or
+ * more complete LDAP messages and will decode those messages.  The selector
+ * thread never delivers responses itself, because the code that accepts a
+ * response (for example, a search result listener or the bounded queue used
+ * for a synchronous search) may block.  Instead, the decoded responses are
+ * added to a queue for the connection, and a thread from a shared pool hands
+ * them, in order, to the {@link LDAPConnectionReader#processResponse} method
+ * for that connection so that they will be handled in exactly the same way as
+ * if they had been read by a dedicated reader thread.  A consumer that is slow
+ * or blocked only delays the connection that it is using.  If too many
+ * responses are waiting to be delivered for a connection, then the selector
+ * thread will stop reading from that connection until the backlog has been
+ * reduced, so that the server is slowed down in the same way as for a
+ * dedicated reader thread.
+ * <BR><BR>
+ * Selector-based reading is only possible for connections that use a socket
+ * that is backed by a {@code SocketChannel}, which is not the case for sockets
+ * created by an {@code SSLSocketFactory}.  If a connection that is initially
+ * managed by a selector is later secured using StartTLS or a SASL mechanism
+ * that provides integrity or confidentiality, then it will be removed from the
+ * selector and will revert to using a dedicated reader thread.
+ */
+@InternalUseOnly()
+final class LDAPConnectionSelector
+      extends Thread
+{
+  /**
+   * The initial size that will be used for per-connection read buffers.
+   */
+  private static final int INITIAL_READ_BUFFER_SIZE = 4096;
+
+
+
+  /**
+   * The maximum number of decoded responses that may be waiting to be
+   * delivered for a single connection before the selector thread stops
+   * reading from it.
+   */
+  private static final int MAX_QUEUED_RESPONSES = 256;
+
+
+
+  /**
+   * The number of queued responses at or below which the selector thread will
+   * resume reading from a connection for which reading has been suspended.
+   */
+  private static final int RESUME_QUEUED_RESPONSES = MAX_QUEUED_RESPONSES / 2;
+
+
+
+  /**
+   * The executor that will be used to deliver decoded responses for the
+   * connections managed by all selector threads.  Threads will be created as
+   * needed and will exit after they have been idle for a minute.
+   */
+  private static final ExecutorService RESPONSE_DISPATCHER =
+       new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+            new SynchronousQueue<Runnable>(),
+            new LDAPSDKThreadFactory("LDAP Connection Selector Dispatcher",
+                 true));
+
+
+
+  /**
+   * A socket factory that will create sockets backed by a
+   * {@code SocketChannel}.
+   */
+  static final SocketFactory SOCKET_CHANNEL_SOCKET_FACTORY =
+       new SocketChannelSocketFactory();
+
+
+
+  /**
+   * The counter that will be used to assign a unique identifier to each
+   * selector thread.
+   */
+  private static final AtomicInteger NEXT_THREAD_ID = new AtomicInteger(0);
+
+
+
+  /**
+   * The set of selector threads that have been created.  It will only grow,
+   * and all updates will be made while synchronized on the class.
+   */
+  private static final AtomicReference<List<LDAPConnectionSelector>>
+       SELECTORS = new AtomicReference<List<LDAPConnectionSelector>>(
+            new ArrayList<LDAPConnectionSelector>(0));
+
+
+
+  // The number of connections currently registered with this thread.
+  private final AtomicInteger numRegistered;
+
+  // The queue of tasks that must be invoked by the selector thread before its
+  // next select.
+  private final ConcurrentLinkedQueue<Runnable> pendingTasks;
+
+  // The selector used by this thread.
+  private final Selector selector;
+
+
+
+  /**
+   * Creates a new selector thread.
+   *
+   * @throws  IOException  If a problem occurs while opening the selector.
+   */
+  private LDAPConnectionSelector()
+          throws IOException
+  {
+    super("LDAP Connection Selector Reader " +
+          NEXT_THREAD_ID.incrementAndGet());
+    setDaemon(true);
+
+    selector      = Selector.open();
+    numRegistered = new AtomicInteger(0);
+    pendingTasks  = new ConcurrentLinkedQueue<Runnable>();
+  }
+
+
+
+  /**
+   * Registers the provided connection reader with the selector thread that is
+   * currently responsible for the fewest connections.  If there are fewer than
+   * the specified maximum number of selector threads, then a new one will be
+   * created.
+   *
+   * @param  reader      The connection reader that should be notified of
+   *                     responses read from the channel.
+   * @param  channel     The channel from which to read the data.
+   * @param  maxThreads  The maximum number of selector threads that may be
+   *                     used.
+   *
+   * @return  The selector thread with which the channel has been registered.
+   *
+   * @throws  IOException  If a problem occurs while registering the channel.
+   */
+  static LDAPConnectionSelector register(final LDAPConnectionReader reader,
+                                         final SocketChannel channel,
+                                         final int maxThreads)
+         throws IOException
+  {
+    final LDAPConnectionSelector selectorThread = getSelector(maxThreads);
+
+    channel.configureBlocking(false);
+
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicReference<IOException> failure =
+         new AtomicReference<IOException>();
+    selectorThread.numRegistered.incrementAndGet();
+    selectorThread.invoke(new Runnable()
+    {
+      @Override()
+      public void run()
+      {
+        try
+        {
+          final ReadState state = selectorThread.new ReadState(reader, channel);
+          state.key = channel.register(selectorThread.selector,
+               SelectionKey.OP_READ, state);
+        }
+        catch (final IOException ioe)
+        {
+          debugException(ioe);
+          failure.set(ioe);
+        }
+        finally
+        {
+          latch.countDown();
+        }
+      }
+    }, latch);
+
+    final IOException ioe = failure.get();
+    if (ioe != null)
+    {
+      selectorThread.numRegistered.decrementAndGet();
+      throw ioe;
+    }
+
+    return selectorThread;
+  }
+
+
+
+  /**
+   * Retrieves the selector thread that should be used for a new connection,
+   * creating a new thread if appropriate.
+   *
+   * @param  maxThreads  The maximum number of selector threads that may be
+   *                     used.
+   *
+   * @return  The selector thread that should be used for a new connection.
+   *
+   * @throws  IOException  If a problem occurs while creating a new selector.
+   */
+  private static LDAPConnectionSelector getSelector(final int maxThreads)
+          throws IOException
+  {
+    final int limit = Math.max(1, maxThreads);
+    List<LDAPConnectionSelector> selectors = SELECTORS.get();
+    if (selectors.size() < limit)
+    {
+      synchronized (LDAPConnectionSelector.class)
+      {
+        selectors = SELECTORS.get();
+        if (selectors.size() < limit)
+        {
+          final LDAPConnectionSelector s = new LDAPConnectionSelector();
+          s.start();
+
+          final ArrayList<LDAPConnectionSelector> newList =
+               new ArrayList<LDAPConnectionSelector>(selectors.size() + 1);
+          newList.addAll(selectors);
+          newList.add(s);
+          SELECTORS.set(newList);
+          return s;
+        }
+      }
+    }
+
+    LDAPConnectionSelector best = null;
+    int bestCount = Integer.MAX_VALUE;
+    for (int i=0; i < limit; i++)
+    {
+      final LDAPConnectionSelector s = selectors.get(i);
+      final int count = s.numRegistered.get();
+      if (count < bestCount)
+      {
+        best = s;
+        bestCount = count;
+      }
+    }
+
+    return best;
+  }
+
+
+
+  /**
+   * Removes the provided channel from this selector and reverts it to blocking
+   * mode so that it may be used with a dedicated reader thread.  This method
+   * will block until the channel has been removed.
+   *
+   * @param  channel  The channel to be removed.
+   *
+   * @return  Any data that has already been read from the channel but has not
+   *          yet been processed as a complete LDAP message.  It may be empty
+   *          but will not be {@code null}.
+   *
+   * @throws  LDAPException  If a problem occurs while removing the channel.
+   */
+  byte[] deregister(final SocketChannel channel)
+         throws LDAPException
+  {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicReference<byte[]> unreadData = new AtomicReference<byte[]>();
+    final AtomicReference<Exception> failure =
+         new AtomicReference<Exception>();
+    invoke(new Runnable()
+    {
+      @Override()
+      public void run()
+      {
+        try
+        {
+          final SelectionKey key = channel.keyFor(selector);
+          if (key != null)
+          {
+            final ReadState state = (ReadState) key.attachment();
+            final ByteBuffer buffer = state.buffer;
+            buffer.flip();
+            final byte[] data = new byte[buffer.remaining()];
+            buffer.get(data);
+            unreadData.set(data);
+
+            key.cancel();
+            selector.selectNow();
+            numRegistered.set(selector.keys().size());
+          }
+          else
+          {
+            unreadData.set(NO_BYTES);
+          }
+
+          channel.configureBlocking(true);
+        }
+        catch (final Exception e)
+        {
+          debugException(e);
+          failure.set(e);
+        }
+        finally
+        {
+          latch.countDown();
+        }
+      }
+    }, latch);
+
+    final Exception e = failure.get();
+    if (e != null)
+    {
+      throw new LDAPException(ResultCode.LOCAL_ERROR,
+           ERR_CONNREADER_SELECTOR_DEREGISTER_FAILED.get(
+                getExceptionMessage(e)),
+           e);
+    }
+
+    return unreadData.get();
+  }
+
+
+
+  /**
+   * Ensures that the provided task is invoked by the selector thread, and
+   * waits for the given latch to be released.  If this method is called by the
+   * selector thread itself, then the task will be invoked directly.
+   *
+   * @param  task   The task to be invoked.
+   * @param  latch  The latch that the task will release when it has
+   *                completed.
+   */
+  private void invoke(final Runnable task, final CountDownLatch latch)
+  {
+    if (Thread.currentThread() == this)
+    {
+      task.run();
+      return;
+    }
+
+    pendingTasks.add(task);
+    selector.wakeup();
+
+    boolean interrupted = false;
+    while (true)
+    {
+      try
+      {
+        latch.await();
+        break;
+      }
+      catch (final InterruptedException ie)
+      {
+        debugException(ie);
+        interrupted = true;
+      }
+    }
+
+    if (interrupted)
+    {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+
+
+  /**
+   * Retrieves the number of connections currently registered with this
+   * selector thread.
+   *
+   * @return  The number of connections currently registered with this selector
+   *          thread.
+   */
+  int getNumRegisteredConnections()
+  {
+    return numRegistered.get();
+  }
+
+
+
+  /**
+   * Retrieves the number of selector threads that have been created.
+   *
+   * @return  The number of selector threads that have been created.
+   */
+  static int getNumSelectorThreads()
+  {
+    return SELECTORS.get().size();
+  }
+
+
+
+  /**
+   * Operates in a loop, waiting for data to become available on any of the
+   * registered channels and processing any complete messages that have been
+   * read.
+   */
+  @Override()
+  public void run()
+  {
+    while (true)
+    {
+      try
+      {
+        Runnable task = pendingTasks.poll();
+        while (task != null)
+        {
+          task.run();
+          task = pendingTasks.poll();
+        }
+
+        selector.select();
+
+        final Iterator<SelectionKey> iterator =
+             selector.selectedKeys().iterator();
+        while (iterator.hasNext())
+        {
+          final SelectionKey key = iterator.next();
+          iterator.remove();
+          if (key.isValid() && key.isReadable())
+          {
+            readFrom(key);
+          }
+        }
+
+        numRegistered.set(selector.keys().size());
+      }
+      catch (final Throwable t)
+      {
+        // This should never happen, but we don't want a single unexpected
+        // problem to take down all of the connections using this thread.
+        debugException(t);
+      }
+    }
+  }
+
+
+
+  /**
+   * Reads data from the channel associated with the provided key and processes
+   * any complete LDAP messages that are available.
+   *
+   * @param  key  The selection key for the channel with data to read.
+   */
+  private void readFrom(final SelectionKey key)
+  {
+    final ReadState state = (ReadState) key.attachment();
+    final LDAPConnectionReader reader = state.reader;
+
+    try
+    {
+      final int bytesRead = state.channel.read(state.buffer);
+      if (bytesRead < 0)
+      {
+        key.cancel();
+        state.setReadFailed(null);
+        return;
+      }
+
+      final ByteBuffer buffer = state.buffer;
+      buffer.flip();
+      while (true)
+      {
+        final int messageLength = getMessageLength(buffer,
+             reader.getMaxMessageSize());
+        if ((messageLength < 0) || (messageLength > buffer.remaining()))
+        {
+          break;
+        }
+
+        final byte[] messageBytes = new byte[messageLength];
+        buffer.get(messageBytes);
+
+        final LDAPResponse response = LDAPMessage.readLDAPResponseFrom(
+             new ASN1StreamReader(new ByteArrayInputStream(messageBytes)),
+             true, reader.getCachedSchema(),
+             reader.lazilyDecodeSearchResultEntries());
+        state.enqueue(response);
+      }
+      state.scheduleDispatch();
+
+      final int messageLength = getMessageLength(buffer,
+           reader.getMaxMessageSize());
+      buffer.compact();
+      if ((messageLength > buffer.capacity()) ||
+          ((messageLength < 0) && (! buffer.hasRemaining())))
+      {
+        final ByteBuffer newBuffer = ByteBuffer.allocate(
+             Math.max(messageLength, (buffer.capacity() << 1)));
+        buffer.flip();
+        newBuffer.put(buffer);
+        state.buffer = newBuffer;
+      }
+      else if ((buffer.position() == 0) &&
+               (buffer.capacity() > INITIAL_READ_BUFFER_SIZE))
+      {
+        // Don't hang on to an unusually large buffer after the large message
+        // has been processed.
+        state.buffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+      }
+
+      if (state.numQueued.get() >= MAX_QUEUED_RESPONSES)
+      {
+        state.suspendReading();
+      }
+    }
+    catch (final Exception e)
+    {
+      debugException(e);
+      key.cancel();
+      state.setReadFailed(e);
+    }
+  }
+
+
+
+  /**
+   * Determines the total encoded length (including the BER type and length)
+   * of the LDAP message at the current position of the provided buffer.  The
+   * position of the buffer will not be altered.
+   *
+   * @param  buffer          The buffer containing the data to examine.
+   * @param  maxMessageSize  The maximum message size that will be allowed.
+   *
+   * @return  The total encoded length of the message, or -1 if the buffer does
+   *          not yet contain enough data to determine the length.
+   *
+   * @throws  LDAPException  If the data in the buffer cannot represent a valid
+   *                         LDAP message, or if the message is too large.
+   */
+  static int getMessageLength(final ByteBuffer buffer, final int maxMessageSize)
+         throws LDAPException
+  {
+    final int position = buffer.position();
+    final int available = buffer.remaining();
+    if (available < 2)
+    {
+      return -1;
+    }
+
+    final int firstLengthByte = buffer.get(position + 1) & 0xFF;
+    if ((firstLengthByte & 0x80) == 0)
+    {
+      return 2 + firstLengthByte;
+    }
+
+    final int numLengthBytes = firstLengthByte & 0x7F;
+    if ((numLengthBytes < 1) || (numLengthBytes > 4))
+    {
+      throw new LDAPException(ResultCode.DECODING_ERROR,
+           ERR_CONNREADER_SELECTOR_INVALID_LENGTH.get(numLengthBytes));
+    }
+
+    if (available < (2 + numLengthBytes))
+    {
+      return -1;
+    }
+
+    long length = 0L;
+    for (int i=0; i < numLengthBytes; i++)
+    {
+      length = (length << 8) | (buffer.get(position + 2 + i) & 0xFFL);
+    }
+
+    if ((maxMessageSize > 0) && (length > maxMessageSize))
+    {
+      throw new LDAPException(ResultCode.DECODING_ERROR,
+           ERR_CONNREADER_SELECTOR_MESSAGE_TOO_LARGE.get(length,
+                maxMessageSize));
+    }
+
+    if (length > (Integer.MAX_VALUE - 6))
+    {
+      throw new LDAPException(ResultCode.DECODING_ERROR,
+           ERR_CONNREADER_SELECTOR_MESSAGE_TOO_LARGE.get(length,
+                Integer.MAX_VALUE - 6));
+    }
+
+    return (int) (2 + numLengthBytes + length);
+  }
+
+
+
+  /**
+   * This class holds the state for a channel registered with a selector, and
+   * delivers the responses decoded from that channel using a thread from the
+   * shared dispatcher pool.  At most one dispatcher thread will deliver
+   * responses for a given connection at any time, so that they will be
+   * delivered in the order in which they were read.
+   */
+  private final class ReadState
+          implements Runnable
+  {
+    // Indicates whether a dispatcher thread has been scheduled to deliver the
+    // queued responses.
+    private final AtomicBoolean dispatchScheduled;
+
+    // Indicates whether the selector thread has stopped reading from the
+    // channel because too many responses are waiting to be delivered.
+    private final AtomicBoolean readSuspended;
+
+    // The number of responses that are waiting to be delivered.
+    private final AtomicInteger numQueued;
+
+    // The buffer holding data that has been read but not yet processed.
+    private ByteBuffer buffer;
+
+    // The responses that have been decoded but not yet delivered.
+    private final ConcurrentLinkedQueue<LDAPResponse> responses;
+
+    // The exception caught while reading from the channel, if any.
+    private volatile Exception failureCause;
+
+    // Indicates whether the connection reader has been notified that reading
+    // from the channel failed.
+    private volatile boolean failureReported;
+
+    // Indicates whether reading from the channel has failed or the end of the
+    // input has been reached.
+    private volatile boolean readFailed;
+
+    // The connection reader that will process responses.
+    private final LDAPConnectionReader reader;
+
+    // The selection key for the channel.  It will only be accessed by the
+    // selector thread.
+    private SelectionKey key;
+
+    // The channel from which data will be read.
+    private final SocketChannel channel;
+
+
+
+    /**
+     * Creates a new read state object.
+     *
+     * @param  reader   The connection reader that will process responses.
+     * @param  channel  The channel from which data will be read.
+     */
+    private ReadState(final LDAPConnectionReader reader,
+                      final SocketChannel channel)
+    {
+      this.reader  = reader;
+      this.channel = channel;
+
+      buffer            = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+      responses         = new ConcurrentLinkedQueue<LDAPResponse>();
+      numQueued         = new AtomicInteger(0);
+      dispatchScheduled = new AtomicBoolean(false);
+      readSuspended     = new AtomicBoolean(false);
+      failureCause      = null;
+      failureReported   = false;
+      readFailed        = false;
+    }
+
+
+
+    /**
+     * Adds the provided response to the queue of responses to be delivered.
+     * This must only be called by the selector thread, which must call
+     * {@link #scheduleDispatch} after it has added all of the responses that
+     * are currently available.
+     *
+     * @param  response  The response to be delivered.
+     */
+    private void enqueue(final LDAPResponse response)
+    {
+      responses.add(response);
+      numQueued.incrementAndGet();
+    }
+
+
+
+    /**
+     * Indicates that reading from the channel has failed or that the end of
+     * the input has been reached.  The connection reader will be notified
+     * after all of the responses that have already been decoded have been
+     * delivered.  This must only be called by the selector thread after the
+     * key for the channel has been cancelled.
+     *
+     * @param  e  The exception that was caught, or {@code null} if the server
+     *            closed the connection.
+     */
+    private void setReadFailed(final Exception e)
+    {
+      failureCause = e;
+      readFailed = true;
+      scheduleDispatch();
+    }
+
+
+
+    /**
+     * Ensures that a dispatcher thread will deliver any queued responses.
+     */
+    private void scheduleDispatch()
+    {
+      if (dispatchScheduled.compareAndSet(false, true))
+      {
+        RESPONSE_DISPATCHER.execute(this);
+      }
+    }
+
+
+
+    /**
+     * Stops reading from the channel until enough of the queued responses
+     * have been delivered.  This must only be called by the selector thread.
+     */
+    private void suspendReading()
+    {
+      key.interestOps(0);
+      readSuspended.set(true);
+
+      // The dispatcher may have delivered the responses before it could see
+      // that reading was suspended, so check again.
+      if (numQueued.get() <= RESUME_QUEUED_RESPONSES)
+      {
+        resumeReading();
+      }
+    }
+
+
+
+    /**
+     * Resumes reading from the channel if it has been suspended.  This must
+     * only be called by the selector thread.
+     */
+    private void resumeReading()
+    {
+      if (readSuspended.compareAndSet(true, false) && key.isValid())
+      {
+        key.interestOps(SelectionKey.OP_READ);
+      }
+    }
+
+
+
+    /**
+     * Delivers all of the queued responses to the connection reader, followed
+     * by any notification that reading from the channel has failed.
+     */
+    @Override()
+    public void run()
+    {
+      while (true)
+      {
+        final LDAPResponse response = responses.poll();
+        if (response != null)
+        {
+          try
+          {
+            reader.processResponse(response);
+          }
+          catch (final Throwable t)
+          {
+            debugException(t);
+          }
+
+          if ((numQueued.decrementAndGet() <= RESUME_QUEUED_RESPONSES) &&
+              readSuspended.get())
+          {
+            pendingTasks.add(new Runnable()
+            {
+              @Override()
+              public void run()
+              {
+                resumeReading();
+              }
+            });
+            selector.wakeup();
+          }
+          continue;
+        }
+
+        if (readFailed && (! failureReported))
+        {
+          // Responses are always queued before the failure is recorded, so
+          // make sure that none were added after the queue was checked.
+          if (! responses.isEmpty())
+          {
+            continue;
+          }
+
+          failureReported = true;
+          try
+          {
+            reader.selectorReadFailed(failureCause);
+          }
+          catch (final Throwable t)
+          {
+            debugException(t);
+          }
+          continue;
+        }
+
+        dispatchScheduled.set(false);
+        if ((responses.isEmpty() && ((! readFailed) || failureReported)) ||
+            (! dispatchScheduled.compareAndSet(false, true)))
+        {
+          return;
+        }
+      }
+    }
+  }
+
+
+
+  /**
+   * This class provides an output stream that writes to a socket channel,
+   * regardless of whether that channel is configured for blocking or
+   * non-blocking mode.
+   */
+  static final class SocketChannelOutputStream
+        extends OutputStream
+  {
+    // The channel to which the data will be written.
+    private final SocketChannel channel;
+
+    // A selector that will be used to wait for the channel to become writable
+    // if it is in non-blocking mode and its send buffer is full.
+    private Selector writeSelector;
+
+
+
+    /**
+     * Creates a new output stream that will write to the provided channel.
+     *
+     * @param  channel  The channel to which the data will be written.
+     */
+    SocketChannelOutputStream(final SocketChannel channel)
+    {
+      this.channel = channel;
+
+      writeSelector = null;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public void write(final int b)
+           throws IOException
+    {
+      write(new byte[] { (byte) b }, 0, 1);
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public synchronized void write(final byte[] b, final int off,
+                                   final int len)
+           throws IOException
+    {
+      final ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+      while (buffer.hasRemaining())
+      {
+        if (channel.write(buffer) == 0)
+        {
+          awaitWritable();
+        }
+      }
+    }
+
+
+
+    /**
+     * Waits for the channel to become writable.
+     *
+     * @throws  IOException  If a problem occurs while waiting.
+     */
+    private void awaitWritable()
+            throws IOException
+    {
+      if (channel.isBlocking())
+      {
+        return;
+      }
+
+      if (writeSelector == null)
+      {
+        writeSelector = Selector.open();
+      }
+
+      final SelectionKey key;
+      try
+      {
+        key = channel.register(writeSelector, SelectionKey.OP_WRITE);
+      }
+      catch (final ClosedChannelException cce)
+      {
+        debugException(cce);
+        throw cce;
+      }
+
+      try
+      {
+        writeSelector.select(1000L);
+      }
+      finally
+      {
+        key.cancel();
+        writeSelector.selectNow();
+      }
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public synchronized void close()
+           throws IOException
+    {
+      try
+      {
+        channel.close();
+      }
+      finally
+      {
+        if (writeSelector != null)
+        {
+          writeSelector.close();
+          writeSelector = null;
+        }
+      }
+    }
+  }
+
+
+
+  /**
+   * This class provides a socket factory that creates sockets backed by a
+   * {@code SocketChannel}.
+   */
+  private static final class SocketChannelSocketFactory
+          extends SocketFactory
+  {
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public Socket createSocket()
+           throws IOException
+    {
+      return SocketChannel.open().socket();
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public Socket createSocket(final String host, final int port)
+           throws IOException
+    {
+      final Socket s = createSocket();
+      s.connect(new InetSocketAddress(host, port));
+      return s;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public Socket createSocket(final String host, final int port,
+                               final InetAddress localAddress,
+                               final int localPort)
+           throws IOException
+    {
+      final Socket s = createSocket();
+      s.bind(new InetSocketAddress(localAddress, localPort));
+      s.connect(new InetSocketAddress(host, port));
+      return s;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public Socket createSocket(final InetAddress address, final int port)
+           throws IOException
+    {
+      final Socket s = createSocket();
+      s.connect(new InetSocketAddress(address, port));
+      return s;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public Socket createSocket(final InetAddress address, final int port,
+                               final InetAddress localAddress,
+                               final int localPort)
+           throws IOException
+    {
+      final Socket s = createSocket();
+      s.bind(new InetSocketAddress(localAddress, localPort));
+      s.connect(new InetSocketAddress(address, port));
+      return s;
+    }
+  }
+}
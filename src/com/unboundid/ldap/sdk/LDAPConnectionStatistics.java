@@ -49,6 +49,9 @@ import com.unboundid.util.ThreadSafetyLevel;
  *       connection.</LI>
  *   <LI>The average response time (in milliseconds or nanoseconds) for each
  *       type of operation processed on the connection.</LI>
+ *   <LI>A histogram of the response times for each type of operation processed
+ *       on the connection, which may be used to determine response time
+ *       percentiles.</LI>
  * </UL>
  */
 @Mutable()
@@ -158,6 +161,20 @@ public final class LDAPConnectionStatistics
   // The total length of time spent waiting for search done responses.
   private final AtomicLong totalSearchResponseTime;
 
+  // The response time histograms for each type of operation processed on the
+  // associated connection.
+  private final ResponseTimeHistogramSet responseTimeHistograms;
+
+  // The response time histograms for the connection pool with which the
+  // associated connection is associated, if any.
+  private transient volatile ResponseTimeHistogramSet
+       poolResponseTimeHistograms;
+
+  // The listener that should be notified of each response time recorded in
+  // this statistics object, if any.
+  private transient volatile LDAPConnectionResponseTimeListener
+       responseTimeListener;
+
 
 
   /**
@@ -196,6 +213,7 @@ public final class LDAPConnectionStatistics
     totalModifyResponseTime     = new AtomicLong(0L);
     totalModifyDNResponseTime   = new AtomicLong(0L);
     totalSearchResponseTime     = new AtomicLong(0L);
+    responseTimeHistograms      = new ResponseTimeHistogramSet();
   }
 
 
@@ -235,6 +253,138 @@ public final class LDAPConnectionStatistics
     totalModifyResponseTime.set(0L);
     totalModifyDNResponseTime.set(0L);
     totalSearchResponseTime.set(0L);
+    responseTimeHistograms.reset();
+  }
+
+
+
+  /**
+   * Retrieves the listener that will be notified of each response time recorded
+   * in this statistics object.
+   *
+   * @return  The listener that will be notified of each response time recorded
+   *          in this statistics object, or {@code null} if there is none.
+   */
+  LDAPConnectionResponseTimeListener getResponseTimeListener()
+  {
+    return responseTimeListener;
+  }
+
+
+
+  /**
+   * Specifies the listener that should be notified of each response time
+   * recorded in this statistics object.  Any previously-configured listener
+   * will be replaced.
+   *
+   * @param  responseTimeListener  The listener that should be notified of each
+   *                               response time recorded in this statistics
+   *                               object.  It may be {@code null} if no
+   *                               listener should be notified.
+   */
+  void setResponseTimeListener(
+            final LDAPConnectionResponseTimeListener responseTimeListener)
+  {
+    this.responseTimeListener = responseTimeListener;
+  }
+
+
+
+  /**
+   * Records the provided response time in the response time histograms and
+   * notifies the response time listener, if any.
+   *
+   * @param  operationType  The type of operation for which the response was
+   *                        received.
+   * @param  responseTime   The length of time in nanoseconds between sending
+   *                        the request and receiving the response.
+   */
+  private void recordResponseTime(final OperationType operationType,
+                                  final long responseTime)
+  {
+    responseTimeHistograms.recordValue(operationType, responseTime);
+
+    final ResponseTimeHistogramSet poolHistograms = poolResponseTimeHistograms;
+    if (poolHistograms != null)
+    {
+      poolHistograms.recordValue(operationType, responseTime);
+    }
+
+    final LDAPConnectionResponseTimeListener l = responseTimeListener;
+    if (l != null)
+    {
+      l.responseTimeRecorded(responseTime);
+    }
+  }
+
+
+
+  /**
+   * Specifies the set of histograms maintained by the connection pool with
+   * which the associated connection is associated, in which response times
+   * should also be recorded.
+   *
+   * @param  poolResponseTimeHistograms  The set of histograms in which
+   *                                     response times should also be
+   *                                     recorded.  It may be {@code null} if
+   *                                     the connection is not part of a pool.
+   */
+  void setPoolResponseTimeHistograms(
+            final ResponseTimeHistogramSet poolResponseTimeHistograms)
+  {
+    this.poolResponseTimeHistograms = poolResponseTimeHistograms;
+  }
+
+
+
+  /**
+   * Retrieves a histogram with the response times for all operations of the
+   * specified type processed on the associated connection.
+   *
+   * @param  operationType  The type of operation for which to retrieve the
+   *                        response times.  It may be {@code null} to retrieve
+   *                        a histogram with the response times for all types
+   *                        of operations.
+   *
+   * @return  A histogram with the response times for all operations of the
+   *          specified type processed on the associated connection.  It will
+   *          not be updated as additional operations are processed.
+   */
+  public ResponseTimeHistogram getResponseTimeHistogram(
+                                    final OperationType operationType)
+  {
+    final ResponseTimeHistogram histogram = new ResponseTimeHistogram();
+    responseTimeHistograms.addTo(operationType, false, histogram);
+    return histogram;
+  }
+
+
+
+  /**
+   * Retrieves a histogram with the response times for all operations of the
+   * specified type processed on the associated connection since the last call
+   * to this method (or since the statistics were reset), and then removes
+   * those response times so that the next call will only include operations
+   * completed after this call.  This may be used to obtain interval-based
+   * response time information.  Note that response times retrieved by this
+   * method will no longer be included in the histograms returned by the
+   * {@link #getResponseTimeHistogram} method.
+   *
+   * @param  operationType  The type of operation for which to retrieve the
+   *                        response times.  It may be {@code null} to retrieve
+   *                        a histogram with the response times for all types
+   *                        of operations.
+   *
+   * @return  A histogram with the response times for all operations of the
+   *          specified type processed on the associated connection since the
+   *          last call to this method.
+   */
+  public ResponseTimeHistogram getAndResetResponseTimeHistogram(
+                                    final OperationType operationType)
+  {
+    final ResponseTimeHistogram histogram = new ResponseTimeHistogram();
+    responseTimeHistograms.addTo(operationType, true, histogram);
+    return histogram;
   }
 
 
@@ -360,6 +510,7 @@ public final class LDAPConnectionStatistics
     if (responseTime > 0)
     {
       totalAddResponseTime.addAndGet(responseTime);
+      recordResponseTime(OperationType.ADD, responseTime);
     }
   }
 
@@ -490,6 +641,7 @@ public final class LDAPConnectionStatistics
     if (responseTime > 0)
     {
       totalBindResponseTime.addAndGet(responseTime);
+      recordResponseTime(OperationType.BIND, responseTime);
     }
   }
 
@@ -623,6 +775,7 @@ public final class LDAPConnectionStatistics
     if (responseTime > 0)
     {
       totalCompareResponseTime.addAndGet(responseTime);
+      recordResponseTime(OperationType.COMPARE, responseTime);
     }
   }
 
@@ -756,6 +909,7 @@ public final class LDAPConnectionStatistics
     if (responseTime > 0)
     {
       totalDeleteResponseTime.addAndGet(responseTime);
+      recordResponseTime(OperationType.DELETE, responseTime);
     }
   }
 
@@ -893,6 +1047,7 @@ public final class LDAPConnectionStatistics
     if (responseTime > 0)
     {
       totalExtendedResponseTime.addAndGet(responseTime);
+      recordResponseTime(OperationType.EXTENDED, responseTime);
     }
   }
 
@@ -1026,6 +1181,7 @@ public final class LDAPConnectionStatistics
     if (responseTime > 0)
     {
       totalModifyResponseTime.addAndGet(responseTime);
+      recordResponseTime(OperationType.MODIFY, responseTime);
     }
   }
 
@@ -1164,6 +1320,7 @@ public final class LDAPConnectionStatistics
     if (responseTime > 0)
     {
       totalModifyDNResponseTime.addAndGet(responseTime);
+      recordResponseTime(OperationType.MODIFY_DN, responseTime);
     }
   }
 
@@ -1337,6 +1494,7 @@ public final class LDAPConnectionStatistics
     if (responseTime > 0)
     {
       totalSearchResponseTime.addAndGet(responseTime);
+      recordResponseTime(OperationType.SEARCH, responseTime);
     }
   }
 
@@ -0,0 +1,500 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.security.sasl.Sasl;
+import javax.security.sasl.SaslClient;
+
+import com.unboundid.util.ByteStringBuffer;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+import static com.unboundid.util.Debug.*;
+
+
+
+/**
+ * This class provides a mechanism for coalescing the encoded requests sent
+ * concurrently by multiple threads over the same connection so that they may
+ * be written to the socket and flushed together.  Each sending thread adds its
+ * encoded request to a queue, and whichever thread is able to obtain the write
+ * lock will write every request in the queue before a single flush, waking up
+ * the threads whose requests it wrote.  A sending thread that is unable to
+ * obtain the write lock will wait for its request to be written by another
+ * thread.
+ * <BR><BR>
+ * If a maximum delay is configured, then the writing thread will park for up
+ * to that length of time before draining the queue, so that more requests may
+ * be added to the batch.  It will be woken up early if the queue reaches the
+ * maximum batch size.  Other sending threads are parked while they wait, and
+ * an interrupt will not cause any thread to spin.
+ */
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class LDAPConnectionWriteCoalescer
+{
+  /**
+   * The maximum number of requests that will be written in a single batch.
+   */
+  private static final int MAX_BATCH_SIZE = 1024;
+
+
+
+  /**
+   * The maximum length of time in nanoseconds that a waiting thread will park
+   * at once before checking whether its request has been written.
+   */
+  private static final long MAX_PARK_NANOS = 10000000L;
+
+
+
+  // The number of requests currently held in the queue.
+  private final AtomicInteger queueSize;
+
+  // The queue of requests that are waiting to be written.
+  private final ConcurrentLinkedQueue<PendingWrite> queue;
+
+  // The maximum length of time in nanoseconds that the writing thread may wait
+  // for additional requests to be queued.
+  private final long maxDelayNanos;
+
+  // The lock that must be held by the thread writing queued requests.
+  private final ReentrantLock writeLock;
+
+  // The total number of batches that have been written.
+  private volatile long numBatches;
+
+  // The total number of requests that have been written.
+  private volatile long numRequests;
+
+  // The thread that is holding the write lock and waiting for additional
+  // requests to be queued, if any.
+  private volatile Thread delayingThread;
+
+
+
+  /**
+   * Creates a new write coalescer with the provided maximum delay.
+   *
+   * @param  maxDelayMicros  The maximum length of time in microseconds that
+   *                         the writing thread may wait for additional
+   *                         requests to be queued before writing them.  A value
+   *                         less than or equal to zero indicates that there
+   *                         should not be any added delay.
+   */
+  LDAPConnectionWriteCoalescer(final long maxDelayMicros)
+  {
+    if (maxDelayMicros > 0L)
+    {
+      maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+    }
+    else
+    {
+      maxDelayNanos = 0L;
+    }
+
+    queue          = new ConcurrentLinkedQueue<PendingWrite>();
+    queueSize      = new AtomicInteger(0);
+    writeLock      = new ReentrantLock();
+    numBatches     = 0L;
+    numRequests    = 0L;
+    delayingThread = null;
+  }
+
+
+
+  /**
+   * Writes the provided encoded request to the given output stream, possibly
+   * along with requests queued by other threads.  This method will not return
+   * until the request has been written and the output stream has been flushed.
+   * If the calling thread is interrupted while it is waiting, then it will
+   * continue to wait, and its interrupt status will be restored before this
+   * method returns.
+   *
+   * @param  requestBytes  The bytes that comprise the encoded request.  The
+   *                       array must not be altered after it has been
+   *                       provided to this method.
+   * @param  outputStream  The output stream to which the request should be
+   *                       written.
+   * @param  saslClient    The SASL client that should be used to wrap the
+   *                       data before it is written, or {@code null} if the
+   *                       data should be written in the clear.
+   *
+   * @throws  IOException  If a problem occurs while writing the request or
+   *                       flushing the output stream.
+   */
+  void write(final byte[] requestBytes, final OutputStream outputStream,
+             final SaslClient saslClient)
+       throws IOException
+  {
+    final PendingWrite pendingWrite =
+         new PendingWrite(requestBytes, Thread.currentThread());
+    queue.add(pendingWrite);
+    if (queueSize.incrementAndGet() >= MAX_BATCH_SIZE)
+    {
+      final Thread t = delayingThread;
+      if (t != null)
+      {
+        LockSupport.unpark(t);
+      }
+    }
+
+    // A thread whose interrupt flag is set would return from park immediately,
+    // so clear the flag while waiting and restore it before returning.
+    boolean interrupted = Thread.interrupted();
+    while (! pendingWrite.done)
+    {
+      if (writeLock.tryLock())
+      {
+        try
+        {
+          interrupted |= writeBatch(outputStream, saslClient);
+        }
+        finally
+        {
+          writeLock.unlock();
+        }
+
+        // If another request was queued after we drained the queue but before
+        // we released the lock, then its thread may not be able to obtain the
+        // lock, so wake it up to make sure that it will be written.
+        final PendingWrite next = queue.peek();
+        if (next != null)
+        {
+          LockSupport.unpark(next.thread);
+        }
+      }
+      else
+      {
+        LockSupport.parkNanos(this, MAX_PARK_NANOS);
+        interrupted |= Thread.interrupted();
+      }
+    }
+
+    if (interrupted)
+    {
+      Thread.currentThread().interrupt();
+    }
+
+    final Exception failure = pendingWrite.failure;
+    if (failure != null)
+    {
+      if (failure instanceof IOException)
+      {
+        throw (IOException) failure;
+      }
+      else
+      {
+        throw (RuntimeException) failure;
+      }
+    }
+  }
+
+
+
+  /**
+   * Writes a batch of queued requests to the provided output stream and
+   * flushes it.  The caller must hold the write lock.
+   *
+   * @param  outputStream  The output stream to which the requests should be
+   *                       written.
+   * @param  saslClient    The SASL client that should be used to wrap the
+   *                       data before it is written, or {@code null} if the
+   *                       data should be written in the clear.
+   *
+   * @return  {@code true} if the calling thread was interrupted while waiting
+   *          for additional requests to be queued, or {@code false} if not.
+   *          The interrupt status of the thread will have been cleared.
+   */
+  private boolean writeBatch(final OutputStream outputStream,
+                             final SaslClient saslClient)
+  {
+    boolean interrupted = false;
+    if (maxDelayNanos > 0L)
+    {
+      delayingThread = Thread.currentThread();
+      try
+      {
+        final long stopTime = System.nanoTime() + maxDelayNanos;
+        while (queueSize.get() < MAX_BATCH_SIZE)
+        {
+          final long remainingNanos = stopTime - System.nanoTime();
+          if (remainingNanos <= 0L)
+          {
+            break;
+          }
+
+          LockSupport.parkNanos(this, remainingNanos);
+          interrupted |= Thread.interrupted();
+        }
+      }
+      finally
+      {
+        delayingThread = null;
+      }
+    }
+
+    final ArrayList<PendingWrite> batch = new ArrayList<PendingWrite>(
+         Math.min(MAX_BATCH_SIZE, 16));
+    while (batch.size() < MAX_BATCH_SIZE)
+    {
+      final PendingWrite w = queue.poll();
+      if (w == null)
+      {
+        break;
+      }
+
+      queueSize.decrementAndGet();
+      batch.add(w);
+    }
+
+    if (batch.isEmpty())
+    {
+      return interrupted;
+    }
+
+    Exception failure = null;
+    try
+    {
+      if (saslClient == null)
+      {
+        for (final PendingWrite w : batch)
+        {
+          outputStream.write(w.requestBytes);
+        }
+      }
+      else
+      {
+        writeSASLWrapped(batch, outputStream, saslClient);
+      }
+
+      outputStream.flush();
+    }
+    catch (final Exception e)
+    {
+      debugException(e);
+      failure = e;
+    }
+    finally
+    {
+      numBatches++;
+      numRequests += batch.size();
+
+      for (final PendingWrite w : batch)
+      {
+        w.failure = failure;
+        w.done    = true;
+        LockSupport.unpark(w.thread);
+      }
+    }
+
+    return interrupted;
+  }
+
+
+
+  /**
+   * Wraps the provided requests with the given SASL client and writes them to
+   * the output stream.  Consecutive requests will be combined into a single
+   * wrapped unit as long as that does not exceed the maximum raw send size
+   * negotiated by the SASL client.  If the SASL client does not provide a
+   * maximum raw send size, then each request will be wrapped individually.
+   *
+   * @param  batch         The requests to be written.
+   * @param  outputStream  The output stream to which the requests should be
+   *                       written.
+   * @param  saslClient    The SASL client that should be used to wrap the
+   *                       data.
+   *
+   * @throws  IOException  If a problem occurs while wrapping or writing the
+   *                       data.
+   */
+  private static void writeSASLWrapped(final ArrayList<PendingWrite> batch,
+                                       final OutputStream outputStream,
+                                       final SaslClient saslClient)
+          throws IOException
+  {
+    final int maxRawSendSize = getMaxRawSendSize(saslClient);
+    final ByteStringBuffer clearBuffer = new ByteStringBuffer();
+    for (final PendingWrite w : batch)
+    {
+      final byte[] b = w.requestBytes;
+      if ((clearBuffer.length() > 0) &&
+          ((clearBuffer.length() + b.length) > maxRawSendSize))
+      {
+        writeSASLWrapped(clearBuffer.getBackingArray(), clearBuffer.length(),
+             outputStream, saslClient);
+        clearBuffer.clear();
+      }
+
+      if ((clearBuffer.length() == 0) && (b.length >= maxRawSendSize))
+      {
+        writeSASLWrapped(b, b.length, outputStream, saslClient);
+      }
+      else
+      {
+        clearBuffer.append(b);
+      }
+    }
+
+    if (clearBuffer.length() > 0)
+    {
+      writeSASLWrapped(clearBuffer.getBackingArray(), clearBuffer.length(),
+           outputStream, saslClient);
+    }
+  }
+
+
+
+  /**
+   * Wraps the provided data with the given SASL client and writes it to the
+   * output stream, preceded by four bytes that specify the number of bytes of
+   * wrapped data.
+   *
+   * @param  clearBytes    The array containing the data to be wrapped.
+   * @param  length        The number of bytes at the beginning of the array
+   *                       to be wrapped.
+   * @param  outputStream  The output stream to which the data should be
+   *                       written.
+   * @param  saslClient    The SASL client that should be used to wrap the
+   *                       data.
+   *
+   * @throws  IOException  If a problem occurs while wrapping or writing the
+   *                       data.
+   */
+  private static void writeSASLWrapped(final byte[] clearBytes,
+                                       final int length,
+                                       final OutputStream outputStream,
+                                       final SaslClient saslClient)
+          throws IOException
+  {
+    final byte[] saslBytes = saslClient.wrap(clearBytes, 0, length);
+    final byte[] lengthBytes = new byte[4];
+    lengthBytes[0] = (byte) ((saslBytes.length >> 24) & 0xFF);
+    lengthBytes[1] = (byte) ((saslBytes.length >> 16) & 0xFF);
+    lengthBytes[2] = (byte) ((saslBytes.length >> 8) & 0xFF);
+    lengthBytes[3] = (byte) (saslBytes.length & 0xFF);
+    outputStream.write(lengthBytes);
+    outputStream.write(saslBytes);
+  }
+
+
+
+  /**
+   * Retrieves the maximum number of bytes of clear-text data that may be
+   * wrapped in a single unit by the provided SASL client.
+   *
+   * @param  saslClient  The SASL client for which to make the determination.
+   *
+   * @return  The maximum number of bytes of clear-text data that may be
+   *          wrapped in a single unit, or zero if it is not known.
+   */
+  static int getMaxRawSendSize(final SaslClient saslClient)
+  {
+    try
+    {
+      final Object rawSendSize =
+           saslClient.getNegotiatedProperty(Sasl.RAW_SEND_SIZE);
+      if (rawSendSize != null)
+      {
+        return Math.max(0, Integer.parseInt(String.valueOf(rawSendSize)));
+      }
+    }
+    catch (final Exception e)
+    {
+      debugException(e);
+    }
+
+    return 0;
+  }
+
+
+
+  /**
+   * Retrieves the total number of batches that have been written.  Each batch
+   * corresponds to a single flush of the output stream.
+   *
+   * @return  The total number of batches that have been written.
+   */
+  long getNumBatches()
+  {
+    return numBatches;
+  }
+
+
+
+  /**
+   * Retrieves the total number of requests that have been written.
+   *
+   * @return  The total number of requests that have been written.
+   */
+  long getNumRequests()
+  {
+    return numRequests;
+  }
+
+
+
+  /**
+   * This class holds information about a request that is waiting to be
+   * written.
+   */
+  private static final class PendingWrite
+  {
+    // The bytes that comprise the encoded request.
+    private final byte[] requestBytes;
+
+    // The thread waiting for the request to be written.
+    private final Thread thread;
+
+    // Indicates whether the attempt to write the request has completed.
+    private volatile boolean done;
+
+    // The exception caught while attempting to write the request, if any.
+    private volatile Exception failure;
+
+
+
+    /**
+     * Creates a new pending write with the provided information.
+     *
+     * @param  requestBytes  The bytes that comprise the encoded request.
+     * @param  thread        The thread waiting for the request to be written.
+     */
+    private PendingWrite(final byte[] requestBytes, final Thread thread)
+    {
+      this.requestBytes = requestBytes;
+      this.thread       = thread;
+
+      done    = false;
+      failure = null;
+    }
+  }
+}
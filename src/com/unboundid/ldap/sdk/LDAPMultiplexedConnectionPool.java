@@ -0,0 +1,1894 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.unboundid.ldap.sdk.schema.Schema;
+import com.unboundid.util.ObjectPair;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+import static com.unboundid.ldap.sdk.LDAPMessages.*;
+import static com.unboundid.util.Debug.*;
+import static com.unboundid.util.StaticUtils.*;
+import static com.unboundid.util.Validator.*;
+
+
+
+/**
+ * This class provides an implementation of an LDAP connection pool in which
+ * each connection may be used by multiple threads at the same time.  Rather
+ * than giving a connection exclusively to a single caller until it is
+ * released, this pool maintains a fixed number of connections and spreads
+ * concurrent operations across them, relying on the ability of a connection to
+ * have multiple operations in progress with different message IDs.  This can
+ * make it possible to keep a large number of requests in progress against a
+ * server with only a small number of connections.
+ * <BR><BR>
+ * Whenever a connection is needed, the pool will select the connection with
+ * the fewest outstanding operations.  Each connection may have at most a
+ * configurable number of outstanding operations, and if every connection has
+ * already reached that limit, then the attempt to obtain a connection will
+ * wait for an operation to complete, for up to the configured maximum wait
+ * time.
+ * <BR><BR>
+ * The capabilities offered by this class are generally the same as those
+ * provided by the {@link LDAPConnectionPool} class, as is the manner in which
+ * applications should interact with it, including support for health checks
+ * and connection pool statistics.  However, because connections are shared,
+ * there are some important restrictions on how it may be used:
+ * <UL>
+ *   <LI>Connections used by this pool must not operate in synchronous mode,
+ *       since a connection operating in synchronous mode may only be used to
+ *       process one operation at a time.</LI>
+ *   <LI>Any connection obtained from this pool with the
+ *       {@link #getConnection} method may also be in use by other threads, so
+ *       it must not be used to perform any processing that would alter its
+ *       state (for example, changing its authentication identity with a bind
+ *       operation).  It should be released with the
+ *       {@link #releaseConnection} method once the caller is done with it, just
+ *       as for any other connection pool.</LI>
+ *   <LI>Because a bind operation would alter the authentication identity of a
+ *       connection that may be in use by other threads, and a StartTLS
+ *       operation would alter its security layer, neither may be processed on
+ *       a connection that belongs to this pool.  Any attempt to do so, whether
+ *       through this pool or on a connection obtained from it, will be
+ *       rejected with a {@code NOT_SUPPORTED} result.</LI>
+ * </UL>
+ * <BR>
+ * If a connection is found to be defunct or has reached the maximum connection
+ * age, then it will be removed from the set of connections that may be
+ * selected for new operations and a replacement connection will be created.
+ * The connection that was removed will not be closed until all of the
+ * operations already in progress on it have completed, unless it is no longer
+ * established.
+ * <BR><BR>
+ * <H2>Example</H2>
+ * The following example demonstrates the process for creating a multiplexed
+ * connection pool that uses four connections, each of which may have up to
+ * 100 operations in progress at any time, and using it to process a search
+ * operation:
+ * <PRE>
+ * LDAPMultiplexedConnectionPool pool = new LDAPMultiplexedConnectionPool(
+ *      serverSet, bindRequest, 4, 100);
+ * SearchResult searchResult = pool.search("dc=example,dc=com",
+ *      SearchScope.SUB, Filter.createEqualityFilter("uid", "john.doe"));
+ * pool.close();
+ * </PRE>
+ */
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+public final class LDAPMultiplexedConnectionPool
+       extends AbstractConnectionPool
+{
+  /**
+   * The default health check interval for this connection pool, which is set to
+   * 60000 milliseconds (60 seconds).
+   */
+  private static final long DEFAULT_HEALTH_CHECK_INTERVAL = 60000L;
+
+
+
+  /**
+   * The default maximum length of time in milliseconds to wait for a
+   * connection to become available when all connections already have the
+   * maximum number of outstanding operations, which is set to 60000
+   * milliseconds (60 seconds).
+   */
+  private static final long DEFAULT_MAX_WAIT_TIME = 60000L;
+
+
+
+  // The types of operations that should be retried if they fail in a manner
+  // that may be the result of a connection that is no longer valid.
+  private final AtomicReference<Set<OperationType>> retryOperationTypes;
+
+  // The connections that may be selected for use in new operations.  An
+  // element may be null if it was not possible to create a replacement for a
+  // connection that was removed from the pool.
+  private final AtomicReferenceArray<LDAPConnection> connections;
+
+  // Indicates whether this connection pool has been closed.
+  private volatile boolean closed;
+
+  // The bind request to use to perform authentication whenever a new connection
+  // is established.
+  private final BindRequest bindRequest;
+
+  // The number of operations currently in progress for each connection
+  // maintained by this pool, including connections that have been removed from
+  // the set of selectable connections but still have operations in progress.
+  private final ConcurrentHashMap<LDAPConnection,AtomicInteger>
+       outstandingOperations;
+
+  // The maximum number of operations that may be in progress on a single
+  // connection at any time.
+  private final int maxOutstandingOperationsPerConnection;
+
+  // The number of connections maintained by this pool.
+  private final int numConnections;
+
+  // The health check implementation that should be used for this connection
+  // pool.
+  private LDAPConnectionPoolHealthCheck healthCheck;
+
+  // The thread that will be used to perform periodic background health checks
+  // for this connection pool.
+  private final LDAPConnectionPoolHealthCheckThread healthCheckThread;
+
+  // The statistics for this connection pool.
+  private final LDAPConnectionPoolStatistics poolStatistics;
+
+  // The length of time in milliseconds between periodic health checks against
+  // the connections in this pool.
+  private volatile long healthCheckInterval;
+
+  // The time that the last expired connection was closed.
+  private volatile long lastExpiredDisconnectTime;
+
+  // The maximum length of time in milliseconds that a connection should be
+  // allowed to be established before terminating and re-establishing the
+  // connection.
+  private volatile long maxConnectionAge;
+
+  // The maximum length of time in milliseconds to wait for a connection to
+  // become available.
+  private volatile long maxWaitTime;
+
+  // The minimum length of time in milliseconds that must pass between
+  // disconnects of connections that have exceeded the maximum connection age.
+  private volatile long minDisconnectInterval;
+
+  // The schema that should be shared for connections in this pool, along with
+  // its expiration time.
+  private volatile ObjectPair<Long,Schema> pooledSchema;
+
+  // The post-connect processor for this connection pool, if any.
+  private final PostConnectProcessor postConnectProcessor;
+
+  // A semaphore with a permit for each operation that may be in progress
+  // across all of the connections in this pool.
+  private final Semaphore operationPermits;
+
+  // The server set to use for establishing connections for use by this pool.
+  private final ServerSet serverSet;
+
+  // The user-friendly name assigned to this connection pool.
+  private String connectionPoolName;
+
+
+
+  /**
+   * Creates a new LDAP multiplexed connection pool in which the provided
+   * connection will be one of the connections maintained by the pool, and any
+   * additional connections will be established to the same server using the
+   * same bind request.
+   *
+   * @param  connection        The connection to use to provide the template
+   *                           for the other connections to be created.  This
+   *                           connection will be included in the pool.  It
+   *                           must not be {@code null}, it must be established
+   *                           to the target server, and it must not be
+   *                           operating in synchronous mode.  It does not
+   *                           necessarily need to be authenticated, but if it
+   *                           is then all other connections in the pool will
+   *                           also be authenticated as the same user.
+   * @param  numConnections    The total number of connections to maintain in
+   *                           the pool.  It must be greater than zero.
+   * @param  maxOutstandingOperationsPerConnection
+   *                           The maximum number of operations that may be in
+   *                           progress on a single connection at any time.  It
+   *                           must be greater than zero.
+   *
+   * @throws  LDAPException  If the provided connection cannot be used to
+   *                         initialize the pool, or if a problem occurs while
+   *                         attempting to establish any of the connections.
+   */
+  public LDAPMultiplexedConnectionPool(final LDAPConnection connection,
+              final int numConnections,
+              final int maxOutstandingOperationsPerConnection)
+         throws LDAPException
+  {
+    this(connection, numConnections, maxOutstandingOperationsPerConnection,
+         null);
+  }
+
+
+
+  /**
+   * Creates a new LDAP multiplexed connection pool in which the provided
+   * connection will be one of the connections maintained by the pool, and any
+   * additional connections will be established to the same server using the
+   * same bind request.
+   *
+   * @param  connection            The connection to use to provide the
+   *                               template for the other connections to be
+   *                               created.  This connection will be included
+   *                               in the pool.  It must not be {@code null},
+   *                               it must be established to the target server,
+   *                               and it must not be operating in synchronous
+   *                               mode.  It does not necessarily need to be
+   *                               authenticated, but if it is then all other
+   *                               connections in the pool will also be
+   *                               authenticated as the same user.
+   * @param  numConnections        The total number of connections to maintain
+   *                               in the pool.  It must be greater than zero.
+   * @param  maxOutstandingOperationsPerConnection
+   *                               The maximum number of operations that may be
+   *                               in progress on a single connection at any
+   *                               time.  It must be greater than zero.
+   * @param  postConnectProcessor  A processor that should be used to perform
+   *                               any post-connect processing for connections
+   *                               in this pool.  It may be {@code null} if no
+   *                               special processing is needed.  Note that
+   *                               this processing will not be invoked on the
+   *                               provided connection that will be used as the
+   *                               first connection in the pool.
+   *
+   * @throws  LDAPException  If the provided connection cannot be used to
+   *                         initialize the pool, or if a problem occurs while
+   *                         attempting to establish any of the connections.
+   */
+  public LDAPMultiplexedConnectionPool(final LDAPConnection connection,
+              final int numConnections,
+              final int maxOutstandingOperationsPerConnection,
+              final PostConnectProcessor postConnectProcessor)
+         throws LDAPException
+  {
+    ensureNotNull(connection);
+    ensureTrue(numConnections > 0,
+         "LDAPMultiplexedConnectionPool.numConnections must be greater " +
+              "than zero.");
+    ensureTrue(maxOutstandingOperationsPerConnection > 0,
+         "LDAPMultiplexedConnectionPool." +
+              "maxOutstandingOperationsPerConnection must be greater than " +
+              "zero.");
+
+    this.numConnections                        = numConnections;
+    this.maxOutstandingOperationsPerConnection =
+         maxOutstandingOperationsPerConnection;
+    this.postConnectProcessor                  = postConnectProcessor;
+
+    healthCheck         = new LDAPConnectionPoolHealthCheck();
+    healthCheckInterval = DEFAULT_HEALTH_CHECK_INTERVAL;
+    poolStatistics      = new LDAPConnectionPoolStatistics(this);
+    connectionPoolName  = null;
+    retryOperationTypes = new AtomicReference<Set<OperationType>>(
+         Collections.unmodifiableSet(EnumSet.noneOf(OperationType.class)));
+
+    if (! connection.isConnected())
+    {
+      throw new LDAPException(ResultCode.PARAM_ERROR,
+                              ERR_POOL_CONN_NOT_ESTABLISHED.get());
+    }
+
+    if (connection.synchronousMode())
+    {
+      throw new LDAPException(ResultCode.PARAM_ERROR,
+                              ERR_MULTIPLEXED_POOL_SYNCHRONOUS_MODE.get());
+    }
+
+
+    serverSet = new SingleServerSet(connection.getConnectedAddress(),
+                                    connection.getConnectedPort(),
+                                    connection.getLastUsedSocketFactory(),
+                                    connection.getConnectionOptions());
+    bindRequest = connection.getLastBindRequest();
+
+    connections = new AtomicReferenceArray<LDAPConnection>(numConnections);
+    outstandingOperations =
+         new ConcurrentHashMap<LDAPConnection,AtomicInteger>(numConnections);
+    operationPermits = new Semaphore(getMaxTotalOutstandingOperations());
+
+    lastExpiredDisconnectTime = 0L;
+    maxConnectionAge          = 0L;
+    maxWaitTime               = DEFAULT_MAX_WAIT_TIME;
+    minDisconnectInterval     = 0L;
+    closed                    = false;
+
+    final LDAPConnectionOptions opts = connection.getConnectionOptions();
+    if (opts.usePooledSchema())
+    {
+      try
+      {
+        final Schema schema = connection.getSchema();
+        if (schema != null)
+        {
+          connection.setCachedSchema(schema);
+
+          final long currentTime = System.currentTimeMillis();
+          final long timeout = opts.getPooledSchemaTimeoutMillis();
+          if ((timeout <= 0L) || (timeout+currentTime <= 0L))
+          {
+            pooledSchema = new ObjectPair<Long,Schema>(Long.MAX_VALUE, schema);
+          }
+          else
+          {
+            pooledSchema =
+                 new ObjectPair<Long,Schema>(timeout+currentTime, schema);
+          }
+        }
+      }
+      catch (final Exception e)
+      {
+        debugException(e);
+      }
+    }
+
+    connection.setConnectionPool(this);
+    connection.setSharedByMultiplexedPool(true);
+    outstandingOperations.put(connection, new AtomicInteger(0));
+    connections.set(0, connection);
+    createInitialConnections(1);
+
+    healthCheckThread = new LDAPConnectionPoolHealthCheckThread(this);
+    healthCheckThread.start();
+  }
+
+
+
+  /**
+   * Creates a new LDAP multiplexed connection pool which will use the provided
+   * server set and bind request for creating new connections.
+   *
+   * @param  serverSet       The server set to use to create the connections.
+   *                         It must not be {@code null}, and the connections
+   *                         that it creates must not operate in synchronous
+   *                         mode.
+   * @param  bindRequest     The bind request to use to authenticate the
+   *                         connections that are established.  It may be
+   *                         {@code null} if no authentication should be
+   *                         performed on the connections.
+   * @param  numConnections  The total number of connections to maintain in the
+   *                         pool.  It must be greater than zero.
+   * @param  maxOutstandingOperationsPerConnection
+   *                         The maximum number of operations that may be in
+   *                         progress on a single connection at any time.  It
+   *                         must be greater than zero.
+   *
+   * @throws  LDAPException  If a problem occurs while attempting to establish
+   *                         any of the connections.
+   */
+  public LDAPMultiplexedConnectionPool(final ServerSet serverSet,
+              final BindRequest bindRequest, final int numConnections,
+              final int maxOutstandingOperationsPerConnection)
+         throws LDAPException
+  {
+    this(serverSet, bindRequest, numConnections,
+         maxOutstandingOperationsPerConnection, null);
+  }
+
+
+
+  /**
+   * Creates a new LDAP multiplexed connection pool which will use the provided
+   * server set and bind request for creating new connections.
+   *
+   * @param  serverSet             The server set to use to create the
+   *                               connections.  It must not be {@code null},
+   *                               and the connections that it creates must not
+   *                               operate in synchronous mode.
+   * @param  bindRequest           The bind request to use to authenticate the
+   *                               connections that are established.  It may be
+   *                               {@code null} if no authentication should be
+   *                               performed on the connections.
+   * @param  numConnections        The total number of connections to maintain
+   *                               in the pool.  It must be greater than zero.
+   * @param  maxOutstandingOperationsPerConnection
+   *                               The maximum number of operations that may be
+   *                               in progress on a single connection at any
+   *                               time.  It must be greater than zero.
+   * @param  postConnectProcessor  A processor that should be used to perform
+   *                               any post-connect processing for connections
+   *                               in this pool.  It may be {@code null} if no
+   *                               special processing is needed.
+   *
+   * @throws  LDAPException  If a problem occurs while attempting to establish
+   *                         any of the connections.
+   */
+  public LDAPMultiplexedConnectionPool(final ServerSet serverSet,
+              final BindRequest bindRequest, final int numConnections,
+              final int maxOutstandingOperationsPerConnection,
+              final PostConnectProcessor postConnectProcessor)
+         throws LDAPException
+  {
+    ensureNotNull(serverSet);
+    ensureTrue(numConnections > 0,
+         "LDAPMultiplexedConnectionPool.numConnections must be greater " +
+              "than zero.");
+    ensureTrue(maxOutstandingOperationsPerConnection > 0,
+         "LDAPMultiplexedConnectionPool." +
+              "maxOutstandingOperationsPerConnection must be greater than " +
+              "zero.");
+
+    this.serverSet                             = serverSet;
+    this.bindRequest                           = bindRequest;
+    this.numConnections                        = numConnections;
+    this.maxOutstandingOperationsPerConnection =
+         maxOutstandingOperationsPerConnection;
+    this.postConnectProcessor                  = postConnectProcessor;
+
+    healthCheck         = new LDAPConnectionPoolHealthCheck();
+    healthCheckInterval = DEFAULT_HEALTH_CHECK_INTERVAL;
+    poolStatistics      = new LDAPConnectionPoolStatistics(this);
+    connectionPoolName  = null;
+    retryOperationTypes = new AtomicReference<Set<OperationType>>(
+         Collections.unmodifiableSet(EnumSet.noneOf(OperationType.class)));
+
+    connections = new AtomicReferenceArray<LDAPConnection>(numConnections);
+    outstandingOperations =
+         new ConcurrentHashMap<LDAPConnection,AtomicInteger>(numConnections);
+    operationPermits = new Semaphore(getMaxTotalOutstandingOperations());
+
+    lastExpiredDisconnectTime = 0L;
+    maxConnectionAge          = 0L;
+    maxWaitTime               = DEFAULT_MAX_WAIT_TIME;
+    minDisconnectInterval     = 0L;
+    closed                    = false;
+
+    createInitialConnections(0);
+
+    healthCheckThread = new LDAPConnectionPoolHealthCheckThread(this);
+    healthCheckThread.start();
+  }
+
+
+
+  /**
+   * Retrieves the maximum number of operations that may be in progress across
+   * all connections in this pool at any time.
+   *
+   * @return  The maximum number of operations that may be in progress across
+   *          all connections in this pool at any time.
+   */
+  private int getMaxTotalOutstandingOperations()
+  {
+    final long total =
+         ((long) numConnections) * maxOutstandingOperationsPerConnection;
+    return (int) Math.min(total, (Integer.MAX_VALUE / 2));
+  }
+
+
+
+  /**
+   * Establishes the connections that should be included in this pool when it
+   * is created.  If a problem is encountered while creating any of the
+   * connections, then all connections that have already been created will be
+   * closed.
+   *
+   * @param  startIndex  The index of the first connection to create.
+   *
+   * @throws  LDAPException  If a problem is encountered while establishing any
+   *                         of the connections.
+   */
+  private void createInitialConnections(final int startIndex)
+          throws LDAPException
+  {
+    try
+    {
+      for (int i=startIndex; i < numConnections; i++)
+      {
+        final LDAPConnection conn = createConnection();
+        outstandingOperations.put(conn, new AtomicInteger(0));
+        connections.set(i, conn);
+      }
+    }
+    catch (final LDAPException le)
+    {
+      debugException(le);
+
+      closed = true;
+      for (int i=0; i < numConnections; i++)
+      {
+        final LDAPConnection conn = connections.getAndSet(i, null);
+        if (conn != null)
+        {
+          outstandingOperations.remove(conn);
+          conn.setDisconnectInfo(DisconnectType.POOL_CREATION_FAILURE, null,
+               le);
+          conn.setClosed();
+        }
+      }
+
+      throw new LDAPException(le.getResultCode(),
+           ERR_POOL_CONNECT_ERROR.get(le.getMessage()), le);
+    }
+  }
+
+
+
+  /**
+   * Creates a new LDAP connection for use in this pool.
+   *
+   * @return  A new connection created for use in this pool.
+   *
+   * @throws  LDAPException  If a problem occurs while attempting to establish
+   *                         the connection.  If a connection had been created,
+   *                         it will be closed.
+   */
+  @SuppressWarnings("deprecation")
+  private LDAPConnection createConnection()
+          throws LDAPException
+  {
+    final LDAPConnection c;
+    try
+    {
+      c = serverSet.getConnection(healthCheck);
+    }
+    catch (final LDAPException le)
+    {
+      debugException(le);
+      poolStatistics.incrementNumFailedConnectionAttempts();
+      throw le;
+    }
+    c.setConnectionPool(this);
+
+
+    // Connections that operate in synchronous mode cannot be shared by
+    // multiple threads, and it is not possible to change that once the
+    // connection has been established.
+    if (c.synchronousMode())
+    {
+      poolStatistics.incrementNumFailedConnectionAttempts();
+      c.setDisconnectInfo(DisconnectType.POOL_CREATION_FAILURE, null, null);
+      c.terminate(null);
+      throw new LDAPException(ResultCode.PARAM_ERROR,
+           ERR_MULTIPLEXED_POOL_SYNCHRONOUS_MODE.get());
+    }
+
+
+    // Auto-reconnect must be disabled for pooled connections, so turn it off
+    // if the associated connection options have it enabled for some reason.
+    LDAPConnectionOptions opts = c.getConnectionOptions();
+    if (opts.autoReconnect())
+    {
+      opts = opts.duplicate();
+      opts.setAutoReconnect(false);
+      c.setConnectionOptions(opts);
+    }
+
+
+    // Invoke pre-authentication post-connect processing.
+    if (postConnectProcessor != null)
+    {
+      try
+      {
+        postConnectProcessor.processPreAuthenticatedConnection(c);
+      }
+      catch (final Exception e)
+      {
+        debugException(e);
+
+        try
+        {
+          poolStatistics.incrementNumFailedConnectionAttempts();
+          c.setDisconnectInfo(DisconnectType.POOL_CREATION_FAILURE, null, e);
+          c.terminate(null);
+        }
+        catch (final Exception e2)
+        {
+          debugException(e2);
+        }
+
+        if (e instanceof LDAPException)
+        {
+          throw ((LDAPException) e);
+        }
+        else
+        {
+          throw new LDAPException(ResultCode.CONNECT_ERROR,
+               ERR_POOL_POST_CONNECT_ERROR.get(getExceptionMessage(e)), e);
+        }
+      }
+    }
+
+
+    // Authenticate the connection if appropriate.
+    BindResult bindResult = null;
+    try
+    {
+      if (bindRequest != null)
+      {
+        bindResult = c.bind(bindRequest.duplicate());
+      }
+    }
+    catch (final LDAPBindException lbe)
+    {
+      debugException(lbe);
+      bindResult = lbe.getBindResult();
+    }
+    catch (final LDAPException le)
+    {
+      debugException(le);
+      bindResult = new BindResult(le);
+    }
+
+    if (bindResult != null)
+    {
+      try
+      {
+        healthCheck.ensureConnectionValidAfterAuthentication(c, bindResult);
+        if (bindResult.getResultCode() != ResultCode.SUCCESS)
+        {
+          throw new LDAPBindException(bindResult);
+        }
+      }
+      catch (final LDAPException le)
+      {
+        debugException(le);
+
+        try
+        {
+          poolStatistics.incrementNumFailedConnectionAttempts();
+          c.setDisconnectInfo(DisconnectType.BIND_FAILED, null, le);
+          c.terminate(null);
+        }
+        catch (final Exception e)
+        {
+          debugException(e);
+        }
+
+        throw le;
+      }
+    }
+
+
+    // Invoke post-authentication post-connect processing.
+    if (postConnectProcessor != null)
+    {
+      try
+      {
+        postConnectProcessor.processPostAuthenticatedConnection(c);
+      }
+      catch (final Exception e)
+      {
+        debugException(e);
+        try
+        {
+          poolStatistics.incrementNumFailedConnectionAttempts();
+          c.setDisconnectInfo(DisconnectType.POOL_CREATION_FAILURE, null, e);
+          c.terminate(null);
+        }
+        catch (final Exception e2)
+        {
+          debugException(e2);
+        }
+
+        if (e instanceof LDAPException)
+        {
+          throw ((LDAPException) e);
+        }
+        else
+        {
+          throw new LDAPException(ResultCode.CONNECT_ERROR,
+               ERR_POOL_POST_CONNECT_ERROR.get(getExceptionMessage(e)), e);
+        }
+      }
+    }
+
+
+    // Get the pooled schema if appropriate.
+    if (opts.usePooledSchema())
+    {
+      final long currentTime = System.currentTimeMillis();
+      if ((pooledSchema == null) || (currentTime > pooledSchema.getFirst()))
+      {
+        try
+        {
+          final Schema schema = c.getSchema();
+          if (schema != null)
+          {
+            c.setCachedSchema(schema);
+
+            final long timeout = opts.getPooledSchemaTimeoutMillis();
+            if ((timeout <= 0L) || (currentTime + timeout <= 0L))
+            {
+              pooledSchema =
+                   new ObjectPair<Long,Schema>(Long.MAX_VALUE, schema);
+            }
+            else
+            {
+              pooledSchema =
+                   new ObjectPair<Long,Schema>((currentTime+timeout), schema);
+            }
+          }
+        }
+        catch (final Exception e)
+        {
+          debugException(e);
+
+          // There was a problem retrieving the schema from the server, but if
+          // we have an earlier copy then we can assume it's still valid.
+          if (pooledSchema != null)
+          {
+            c.setCachedSchema(pooledSchema.getSecond());
+          }
+        }
+      }
+      else
+      {
+        c.setCachedSchema(pooledSchema.getSecond());
+      }
+    }
+
+
+    // Finish setting up the connection.  Once it is shared, it will reject any
+    // bind or StartTLS operation.
+    c.setConnectionPoolName(connectionPoolName);
+    c.setSharedByMultiplexedPool(true);
+    poolStatistics.incrementNumSuccessfulConnectionAttempts();
+
+    return c;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void close()
+  {
+    close(true, 1);
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void close(final boolean unbind, final int numThreads)
+  {
+    closed = true;
+    healthCheckThread.stopRunning();
+
+    final LinkedHashSet<LDAPConnection> connSet =
+         new LinkedHashSet<LDAPConnection>(numConnections);
+    for (int i=0; i < numConnections; i++)
+    {
+      final LDAPConnection conn = connections.getAndSet(i, null);
+      if (conn != null)
+      {
+        connSet.add(conn);
+      }
+    }
+
+    connSet.addAll(outstandingOperations.keySet());
+    outstandingOperations.keySet().removeAll(connSet);
+
+    // Wake up any threads that may be waiting for a connection so that they
+    // will see that the pool has been closed.
+    operationPermits.release(operationPermits.getQueueLength());
+
+    if (numThreads > 1)
+    {
+      if (! connSet.isEmpty())
+      {
+        for (final LDAPConnection conn : connSet)
+        {
+          poolStatistics.incrementNumConnectionsClosedUnneeded();
+          conn.setDisconnectInfo(DisconnectType.POOL_CLOSED, null, null);
+        }
+
+        final ParallelPoolCloser closer =
+             new ParallelPoolCloser(connSet, unbind, numThreads);
+        closer.closeConnections();
+      }
+    }
+    else
+    {
+      for (final LDAPConnection conn : connSet)
+      {
+        poolStatistics.incrementNumConnectionsClosedUnneeded();
+        conn.setDisconnectInfo(DisconnectType.POOL_CLOSED, null, null);
+        if (unbind)
+        {
+          conn.terminate(null);
+        }
+        else
+        {
+          conn.setClosed();
+        }
+      }
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public boolean isClosed()
+  {
+    return closed;
+  }
+
+
+
+  /**
+   * Retrieves a connection from the connection pool.  The connection with the
+   * fewest outstanding operations will be selected, and the returned
+   * connection may also be in use by other threads, so it must not be used to
+   * perform any processing that would alter its state.  The connection must
+   * be released with the {@link #releaseConnection} or
+   * {@link #releaseDefunctConnection} method once the caller is done with it.
+   *
+   * @return  A connection from the connection pool.
+   *
+   * @throws  LDAPException  If the pool has been closed, if a problem occurs
+   *                         while attempting to establish a connection, or if
+   *                         all connections already have the maximum number of
+   *                         outstanding operations and none became available
+   *                         within the maximum wait time.
+   */
+  @Override()
+  public LDAPConnection getConnection()
+         throws LDAPException
+  {
+    if (closed)
+    {
+      poolStatistics.incrementNumFailedCheckouts();
+      throw new LDAPException(ResultCode.CONNECT_ERROR, ERR_POOL_CLOSED.get());
+    }
+
+    boolean waited = false;
+    if (! operationPermits.tryAcquire())
+    {
+      waited = true;
+
+      final long waitTime = maxWaitTime;
+      boolean acquired = false;
+      if (waitTime > 0L)
+      {
+        try
+        {
+          acquired =
+               operationPermits.tryAcquire(waitTime, TimeUnit.MILLISECONDS);
+        }
+        catch (final InterruptedException ie)
+        {
+          debugException(ie);
+          Thread.currentThread().interrupt();
+          poolStatistics.incrementNumFailedCheckouts();
+          throw new LDAPException(ResultCode.LOCAL_ERROR,
+               ERR_POOL_CHECKOUT_INTERRUPTED.get(), ie);
+        }
+      }
+
+      if (! acquired)
+      {
+        poolStatistics.incrementNumFailedCheckouts();
+        throw new LDAPException(ResultCode.CONNECT_ERROR,
+             ERR_MULTIPLEXED_POOL_MAX_OUTSTANDING_OPERATIONS.get(
+                  maxOutstandingOperationsPerConnection));
+      }
+    }
+
+    if (closed)
+    {
+      operationPermits.release();
+      poolStatistics.incrementNumFailedCheckouts();
+      throw new LDAPException(ResultCode.CONNECT_ERROR, ERR_POOL_CLOSED.get());
+    }
+
+
+    // Holding a permit guarantees that the connections in the pool have the
+    // capacity for another operation, but it may take more than one attempt to
+    // claim it if other threads are selecting connections at the same time.
+    // A connection will only be considered invalid for checkout a limited
+    // number of times to avoid looping forever with a broken health check.
+    boolean createAttempted = false;
+    int invalidCount = 0;
+    while (true)
+    {
+      LDAPConnection selectedConn = null;
+      AtomicInteger selectedCounter = null;
+      int selectedCount = Integer.MAX_VALUE;
+      int selectedIndex = -1;
+      int emptyIndex = -1;
+      for (int i=0; i < numConnections; i++)
+      {
+        final LDAPConnection conn = connections.get(i);
+        if (conn == null)
+        {
+          emptyIndex = i;
+          continue;
+        }
+
+        final AtomicInteger counter = outstandingOperations.get(conn);
+        if (counter == null)
+        {
+          continue;
+        }
+
+        final int count = counter.get();
+        if (count < selectedCount)
+        {
+          selectedConn    = conn;
+          selectedCounter = counter;
+          selectedCount   = count;
+          selectedIndex   = i;
+        }
+      }
+
+
+      // If there is an empty slot and no idle connection, then try to create a
+      // new connection to fill it.  Only do this once per checkout unless none
+      // of the existing connections has capacity for another operation.
+      if ((emptyIndex >= 0) &&
+          ((selectedCount >= maxOutstandingOperationsPerConnection) ||
+           ((selectedCount > 0) && (! createAttempted))))
+      {
+        createAttempted = true;
+
+        LDAPConnection newConn;
+        try
+        {
+          newConn = createReplacementConnection(emptyIndex);
+        }
+        catch (final LDAPException le)
+        {
+          debugException(le);
+          if (selectedCount >= maxOutstandingOperationsPerConnection)
+          {
+            operationPermits.release();
+            poolStatistics.incrementNumFailedCheckouts();
+            throw le;
+          }
+
+          newConn = null;
+        }
+
+        if (newConn != null)
+        {
+          poolStatistics.incrementNumSuccessfulCheckoutsNewConnection();
+          return newConn;
+        }
+        else if (selectedConn == null)
+        {
+          // Another thread filled the slot, so try again.
+          continue;
+        }
+      }
+
+      if ((selectedConn == null) ||
+          (selectedCount >= maxOutstandingOperationsPerConnection) ||
+          (! selectedCounter.compareAndSet(selectedCount, selectedCount+1)))
+      {
+        Thread.yield();
+        continue;
+      }
+
+
+      // Make sure that the connection wasn't removed from the pool while we
+      // were claiming it.  If it was, then give it back.
+      if (connections.get(selectedIndex) != selectedConn)
+      {
+        decrementOutstandingOperations(selectedConn, selectedCounter);
+        continue;
+      }
+
+      try
+      {
+        healthCheck.ensureConnectionValidForCheckout(selectedConn);
+      }
+      catch (final LDAPException le)
+      {
+        debugException(le);
+        decrementOutstandingOperations(selectedConn, selectedCounter);
+        if (removeConnection(selectedConn,
+             DisconnectType.POOLED_CONNECTION_DEFUNCT,
+             (! selectedConn.isConnected())))
+        {
+          poolStatistics.incrementNumConnectionsClosedDefunct();
+        }
+
+        invalidCount++;
+        if (invalidCount > numConnections)
+        {
+          operationPermits.release();
+          poolStatistics.incrementNumFailedCheckouts();
+          throw le;
+        }
+
+        continue;
+      }
+
+      if (waited)
+      {
+        poolStatistics.incrementNumSuccessfulCheckoutsAfterWaiting();
+      }
+      else
+      {
+        poolStatistics.incrementNumSuccessfulCheckoutsWithoutWaiting();
+      }
+      return selectedConn;
+    }
+  }
+
+
+
+  /**
+   * Creates a new connection for the specified empty slot and claims it for
+   * use in a single operation.
+   *
+   * @param  index  The index of the slot for which to create the connection.
+   *
+   * @return  The connection that was created, or {@code null} if the slot was
+   *          filled by another thread.
+   *
+   * @throws  LDAPException  If a problem occurs while creating the connection.
+   */
+  private LDAPConnection createReplacementConnection(final int index)
+          throws LDAPException
+  {
+    final LDAPConnection conn = createConnection();
+    outstandingOperations.put(conn, new AtomicInteger(1));
+    if (connections.compareAndSet(index, null, conn))
+    {
+      if (closed)
+      {
+        // The pool was closed while we were creating the connection, so make
+        // sure that it won't be left open.
+        close();
+      }
+
+      return conn;
+    }
+
+    outstandingOperations.remove(conn);
+    poolStatistics.incrementNumConnectionsClosedUnneeded();
+    conn.setDisconnectInfo(DisconnectType.POOLED_CONNECTION_UNNEEDED, null,
+         null);
+    conn.terminate(null);
+    return null;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void releaseConnection(final LDAPConnection connection)
+  {
+    if (connection == null)
+    {
+      return;
+    }
+
+    connection.setConnectionPoolName(connectionPoolName);
+
+    try
+    {
+      healthCheck.ensureConnectionValidForRelease(connection);
+    }
+    catch (final LDAPException le)
+    {
+      debugException(le);
+      releaseDefunctConnection(connection);
+      return;
+    }
+
+    operationPermits.release();
+    poolStatistics.incrementNumReleasedValid();
+
+    final AtomicInteger counter = outstandingOperations.get(connection);
+    if (counter != null)
+    {
+      decrementOutstandingOperations(connection, counter);
+    }
+
+    if (connectionIsExpired(connection))
+    {
+      if (removeConnection(connection,
+           DisconnectType.POOLED_CONNECTION_EXPIRED, false))
+      {
+        poolStatistics.incrementNumConnectionsClosedExpired();
+        lastExpiredDisconnectTime = System.currentTimeMillis();
+      }
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void releaseDefunctConnection(final LDAPConnection connection)
+  {
+    if (connection == null)
+    {
+      return;
+    }
+
+    connection.setConnectionPoolName(connectionPoolName);
+    operationPermits.release();
+
+    final AtomicInteger counter = outstandingOperations.get(connection);
+    if (counter != null)
+    {
+      decrementOutstandingOperations(connection, counter);
+    }
+
+    if (removeConnection(connection, DisconnectType.POOLED_CONNECTION_DEFUNCT,
+         (! connection.isConnected())))
+    {
+      poolStatistics.incrementNumConnectionsClosedDefunct();
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public LDAPConnection replaceDefunctConnection(
+                             final LDAPConnection connection)
+         throws LDAPException
+  {
+    final AtomicInteger counter = outstandingOperations.get(connection);
+    if (counter != null)
+    {
+      decrementOutstandingOperations(connection, counter);
+    }
+
+    if (removeConnection(connection, DisconnectType.POOLED_CONNECTION_DEFUNCT,
+         (! connection.isConnected())))
+    {
+      poolStatistics.incrementNumConnectionsClosedDefunct();
+    }
+
+    // Release the permit held for the defunct connection before obtaining a
+    // replacement, which will acquire a permit of its own.
+    operationPermits.release();
+    return getConnection();
+  }
+
+
+
+  /**
+   * Decrements the number of outstanding operations for the provided
+   * connection, and closes the connection if it has been removed from the pool
+   * and no longer has any outstanding operations.
+   *
+   * @param  connection  The connection for which to decrement the number of
+   *                     outstanding operations.
+   * @param  counter     The counter holding the number of outstanding
+   *                     operations for the connection.
+   */
+  private void decrementOutstandingOperations(final LDAPConnection connection,
+                                              final AtomicInteger counter)
+  {
+    if (counter.decrementAndGet() <= 0)
+    {
+      closeIfRemovedAndIdle(connection, counter);
+    }
+  }
+
+
+
+  /**
+   * Closes the provided connection if it has been removed from the set of
+   * selectable connections and it does not have any outstanding operations.
+   *
+   * @param  connection  The connection to examine.
+   * @param  counter     The counter holding the number of outstanding
+   *                     operations for the connection.
+   */
+  private void closeIfRemovedAndIdle(final LDAPConnection connection,
+                                     final AtomicInteger counter)
+  {
+    if ((counter.get() > 0) || (getConnectionIndex(connection) >= 0))
+    {
+      return;
+    }
+
+    if (outstandingOperations.remove(connection, counter))
+    {
+      connection.terminate(null);
+    }
+  }
+
+
+
+  /**
+   * Retrieves the index of the provided connection in the set of selectable
+   * connections.
+   *
+   * @param  connection  The connection for which to retrieve the index.
+   *
+   * @return  The index of the provided connection in the set of selectable
+   *          connections, or -1 if it is not one of the selectable
+   *          connections.
+   */
+  private int getConnectionIndex(final LDAPConnection connection)
+  {
+    for (int i=0; i < numConnections; i++)
+    {
+      if (connections.get(i) == connection)
+      {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+
+
+  /**
+   * Removes the provided connection from the set of selectable connections and
+   * attempts to create a replacement for it.  The connection will be closed
+   * immediately if requested, or otherwise once all of its outstanding
+   * operations have completed.
+   *
+   * @param  connection      The connection to be removed.
+   * @param  disconnectType  The disconnect type to use for the connection.
+   * @param  closeNow        Indicates whether to close the connection
+   *                         immediately, even if it has outstanding
+   *                         operations.
+   *
+   * @return  {@code true} if the connection was removed by this method, or
+   *          {@code false} if it had already been removed.
+   */
+  private boolean removeConnection(final LDAPConnection connection,
+                                   final DisconnectType disconnectType,
+                                   final boolean closeNow)
+  {
+    final int index = getConnectionIndex(connection);
+    if ((index < 0) || (! connections.compareAndSet(index, connection, null)))
+    {
+      return false;
+    }
+
+    connection.setDisconnectInfo(disconnectType, null, null);
+    if (closeNow)
+    {
+      outstandingOperations.remove(connection);
+      connection.terminate(null);
+    }
+    else
+    {
+      final AtomicInteger counter = outstandingOperations.get(connection);
+      if (counter != null)
+      {
+        closeIfRemovedAndIdle(connection, counter);
+      }
+    }
+
+    if (closed)
+    {
+      return true;
+    }
+
+    try
+    {
+      final LDAPConnection newConnection = createConnection();
+      outstandingOperations.put(newConnection, new AtomicInteger(0));
+      if (connections.compareAndSet(index, null, newConnection))
+      {
+        if (closed)
+        {
+          close();
+        }
+      }
+      else
+      {
+        outstandingOperations.remove(newConnection);
+        poolStatistics.incrementNumConnectionsClosedUnneeded();
+        newConnection.setDisconnectInfo(
+             DisconnectType.POOLED_CONNECTION_UNNEEDED, null, null);
+        newConnection.terminate(null);
+      }
+    }
+    catch (final LDAPException le)
+    {
+      debugException(le);
+    }
+
+    return true;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public Set<OperationType> getOperationTypesToRetryDueToInvalidConnections()
+  {
+    return retryOperationTypes.get();
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void setRetryFailedOperationsDueToInvalidConnections(
+                   final Set<OperationType> operationTypes)
+  {
+    if ((operationTypes == null) || operationTypes.isEmpty())
+    {
+      retryOperationTypes.set(
+           Collections.unmodifiableSet(EnumSet.noneOf(OperationType.class)));
+    }
+    else
+    {
+      final EnumSet<OperationType> s = EnumSet.noneOf(OperationType.class);
+      s.addAll(operationTypes);
+      retryOperationTypes.set(Collections.unmodifiableSet(s));
+    }
+  }
+
+
+
+  /**
+   * Indicates whether the provided connection should be considered expired.
+   *
+   * @param  connection  The connection for which to make the determination.
+   *
+   * @return  {@code true} if the provided connection should be considered
+   *          expired, or {@code false} if not.
+   */
+  private boolean connectionIsExpired(final LDAPConnection connection)
+  {
+    // If connection expiration is not enabled, then there is nothing to do.
+    if (maxConnectionAge <= 0L)
+    {
+      return false;
+    }
+
+    // If there is a minimum disconnect interval, then make sure that we have
+    // not closed another expired connection too recently.
+    final long currentTime = System.currentTimeMillis();
+    if ((currentTime - lastExpiredDisconnectTime) < minDisconnectInterval)
+    {
+      return false;
+    }
+
+    // Get the age of the connection and see if it is expired.
+    final long connectionAge = currentTime - connection.getConnectTime();
+    return (connectionAge > maxConnectionAge);
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public String getConnectionPoolName()
+  {
+    return connectionPoolName;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void setConnectionPoolName(final String connectionPoolName)
+  {
+    this.connectionPoolName = connectionPoolName;
+    for (int i=0; i < numConnections; i++)
+    {
+      final LDAPConnection conn = connections.get(i);
+      if (conn != null)
+      {
+        conn.setConnectionPoolName(connectionPoolName);
+      }
+    }
+  }
+
+
+
+  /**
+   * Retrieves the number of connections maintained by this pool.
+   *
+   * @return  The number of connections maintained by this pool.
+   */
+  public int getNumConnections()
+  {
+    return numConnections;
+  }
+
+
+
+  /**
+   * Retrieves the maximum number of operations that may be in progress on a
+   * single connection in this pool at any time.
+   *
+   * @return  The maximum number of operations that may be in progress on a
+   *          single connection in this pool at any time.
+   */
+  public int getMaxOutstandingOperationsPerConnection()
+  {
+    return maxOutstandingOperationsPerConnection;
+  }
+
+
+
+  /**
+   * Retrieves the total number of operations currently in progress across all
+   * connections in this pool, including connections that have been removed
+   * from the pool but still have operations in progress.
+   *
+   * @return  The total number of operations currently in progress across all
+   *          connections in this pool.
+   */
+  public int getCurrentOutstandingOperations()
+  {
+    int total = 0;
+    for (final AtomicInteger counter : outstandingOperations.values())
+    {
+      total += Math.max(0, counter.get());
+    }
+
+    return total;
+  }
+
+
+
+  /**
+   * Retrieves the maximum length of time in milliseconds to wait for a
+   * connection to become available when all connections in the pool already
+   * have the maximum number of outstanding operations.
+   *
+   * @return  The maximum length of time in milliseconds to wait for a
+   *          connection to become available, or 0 if an attempt to obtain a
+   *          connection should fail immediately if none is available.
+   */
+  public long getMaxWaitTimeMillis()
+  {
+    return maxWaitTime;
+  }
+
+
+
+  /**
+   * Specifies the maximum length of time in milliseconds to wait for a
+   * connection to become available when all connections in the pool already
+   * have the maximum number of outstanding operations.  The default value is
+   * 60000 milliseconds (60 seconds).
+   *
+   * @param  maxWaitTime  The maximum length of time in milliseconds to wait for
+   *                      a connection to become available.  A value of zero
+   *                      or less indicates that an attempt to obtain a
+   *                      connection should fail immediately if none is
+   *                      available.
+   */
+  public void setMaxWaitTimeMillis(final long maxWaitTime)
+  {
+    if (maxWaitTime > 0L)
+    {
+      this.maxWaitTime = maxWaitTime;
+    }
+    else
+    {
+      this.maxWaitTime = 0L;
+    }
+  }
+
+
+
+  /**
+   * Retrieves the maximum length of time in milliseconds that a connection in
+   * this pool may be established before it is closed and replaced with another
+   * connection.
+   *
+   * @return  The maximum length of time in milliseconds that a connection in
+   *          this pool may be established before it is closed and replaced
+   *          with another connection, or {@code 0L} if no maximum age should
+   *          be enforced.
+   */
+  public long getMaxConnectionAgeMillis()
+  {
+    return maxConnectionAge;
+  }
+
+
+
+  /**
+   * Specifies the maximum length of time in milliseconds that a connection in
+   * this pool may be established before it should be closed and replaced with
+   * another connection.  An expired connection will not be selected for any
+   * new operations, and it will be closed once all of its outstanding
+   * operations have completed.
+   *
+   * @param  maxConnectionAge  The maximum length of time in milliseconds that
+   *                           a connection in this pool may be established
+   *                           before it should be closed and replaced with
+   *                           another connection.  A value of zero or less
+   *                           indicates that no maximum age should be
+   *                           enforced.
+   */
+  public void setMaxConnectionAgeMillis(final long maxConnectionAge)
+  {
+    if (maxConnectionAge > 0L)
+    {
+      this.maxConnectionAge = maxConnectionAge;
+    }
+    else
+    {
+      this.maxConnectionAge = 0L;
+    }
+  }
+
+
+
+  /**
+   * Retrieves the minimum length of time in milliseconds that should pass
+   * between connections closed because they have been established for longer
+   * than the maximum connection age.
+   *
+   * @return  The minimum length of time in milliseconds that should pass
+   *          between connections closed because they have been established
+   *          for longer than the maximum connection age, or {@code 0L} if
+   *          expired connections may be closed as quickly as they are
+   *          identified.
+   */
+  public long getMinDisconnectIntervalMillis()
+  {
+    return minDisconnectInterval;
+  }
+
+
+
+  /**
+   * Specifies the minimum length of time in milliseconds that should pass
+   * between connections closed because they have been established for longer
+   * than the maximum connection age.
+   *
+   * @param  minDisconnectInterval  The minimum length of time in milliseconds
+   *                                that should pass between connections closed
+   *                                because they have been established for
+   *                                longer than the maximum connection age.  A
+   *                                value less than or equal to zero indicates
+   *                                that no minimum time should be enforced.
+   */
+  public void setMinDisconnectIntervalMillis(final long minDisconnectInterval)
+  {
+    if (minDisconnectInterval > 0)
+    {
+      this.minDisconnectInterval = minDisconnectInterval;
+    }
+    else
+    {
+      this.minDisconnectInterval = 0L;
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public LDAPConnectionPoolHealthCheck getHealthCheck()
+  {
+    return healthCheck;
+  }
+
+
+
+  /**
+   * Sets the health check implementation for this connection pool.
+   *
+   * @param  healthCheck  The health check implementation for this connection
+   *                      pool.  It must not be {@code null}.
+   */
+  public void setHealthCheck(final LDAPConnectionPoolHealthCheck healthCheck)
+  {
+    ensureNotNull(healthCheck);
+    this.healthCheck = healthCheck;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public long getHealthCheckIntervalMillis()
+  {
+    return healthCheckInterval;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void setHealthCheckIntervalMillis(final long healthCheckInterval)
+  {
+    ensureTrue(healthCheckInterval > 0L,
+         "LDAPMultiplexedConnectionPool.healthCheckInterval must be greater " +
+              "than 0.");
+    this.healthCheckInterval = healthCheckInterval;
+    healthCheckThread.wakeUp();
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  protected void doHealthCheck()
+  {
+    invokeHealthCheck(null, true);
+  }
+
+
+
+  /**
+   * Invokes a synchronous one-time health-check against the connections in
+   * this pool.  Because the connections are shared, they will be examined
+   * without interrupting any operations that may be in progress on them.  Any
+   * connection found to be defunct or expired will be removed from the pool
+   * and replaced, and an attempt will be made to create a connection for any
+   * position in the pool that does not currently have one.
+   *
+   * @param  healthCheck         The health check to use.  If this is
+   *                             {@code null}, then the pool's
+   *                             currently-configured health check (if any)
+   *                             will be used.
+   * @param  checkForExpiration  Indicates whether to check to see if any
+   *                             connections have been established for longer
+   *                             than the maximum connection age.
+   *
+   * @return  An object with information about the result of the health check
+   *          processing.
+   */
+  public LDAPConnectionPoolHealthCheckResult invokeHealthCheck(
+              final LDAPConnectionPoolHealthCheck healthCheck,
+              final boolean checkForExpiration)
+  {
+    // Determine which health check to use.
+    final LDAPConnectionPoolHealthCheck hc;
+    if (healthCheck == null)
+    {
+      hc = this.healthCheck;
+    }
+    else
+    {
+      hc = healthCheck;
+    }
+
+    int numExamined = 0;
+    int numDefunct = 0;
+    int numExpired = 0;
+
+    for (int i=0; i < numConnections; i++)
+    {
+      if (closed)
+      {
+        break;
+      }
+
+      final LDAPConnection conn = connections.get(i);
+      if (conn == null)
+      {
+        try
+        {
+          final LDAPConnection newConnection = createConnection();
+          outstandingOperations.put(newConnection, new AtomicInteger(0));
+          if (! connections.compareAndSet(i, null, newConnection))
+          {
+            outstandingOperations.remove(newConnection);
+            poolStatistics.incrementNumConnectionsClosedUnneeded();
+            newConnection.setDisconnectInfo(
+                 DisconnectType.POOLED_CONNECTION_UNNEEDED, null, null);
+            newConnection.terminate(null);
+          }
+        }
+        catch (final LDAPException le)
+        {
+          debugException(le);
+        }
+
+        continue;
+      }
+
+      numExamined++;
+      if (! conn.isConnected())
+      {
+        numDefunct++;
+        if (removeConnection(conn, DisconnectType.POOLED_CONNECTION_DEFUNCT,
+             true))
+        {
+          poolStatistics.incrementNumConnectionsClosedDefunct();
+        }
+        continue;
+      }
+
+      if (checkForExpiration && connectionIsExpired(conn))
+      {
+        numExpired++;
+        if (removeConnection(conn, DisconnectType.POOLED_CONNECTION_EXPIRED,
+             false))
+        {
+          poolStatistics.incrementNumConnectionsClosedExpired();
+          lastExpiredDisconnectTime = System.currentTimeMillis();
+        }
+        continue;
+      }
+
+      try
+      {
+        hc.ensureConnectionValidForContinuedUse(conn);
+      }
+      catch (final Exception e)
+      {
+        debugException(e);
+        numDefunct++;
+        if (removeConnection(conn, DisconnectType.POOLED_CONNECTION_DEFUNCT,
+             (! conn.isConnected())))
+        {
+          poolStatistics.incrementNumConnectionsClosedDefunct();
+        }
+      }
+    }
+
+    return new LDAPConnectionPoolHealthCheckResult(numExamined, numExpired,
+         numDefunct);
+  }
+
+
+
+  /**
+   * Retrieves the number of connections in this pool that are currently able
+   * to accept another operation without exceeding the maximum number of
+   * outstanding operations.
+   *
+   * @return  The number of connections in this pool that are currently able to
+   *          accept another operation.
+   */
+  @Override()
+  public int getCurrentAvailableConnections()
+  {
+    int available = 0;
+    for (int i=0; i < numConnections; i++)
+    {
+      final LDAPConnection conn = connections.get(i);
+      if (conn == null)
+      {
+        continue;
+      }
+
+      final AtomicInteger counter = outstandingOperations.get(conn);
+      if ((counter != null) &&
+          (counter.get() < maxOutstandingOperationsPerConnection))
+      {
+        available++;
+      }
+    }
+
+    return available;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public int getMaximumAvailableConnections()
+  {
+    return numConnections;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public LDAPConnectionPoolStatistics getConnectionPoolStatistics()
+  {
+    return poolStatistics;
+  }
+
+
+
+  /**
+   * Closes this connection pool in the event that it becomes unreferenced.
+   *
+   * @throws  Throwable  If an unexpected problem occurs.
+   */
+  @Override()
+  protected void finalize()
+            throws Throwable
+  {
+    super.finalize();
+
+    close();
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void toString(final StringBuilder buffer)
+  {
+    buffer.append("LDAPMultiplexedConnectionPool(");
+
+    final String name = connectionPoolName;
+    if (name != null)
+    {
+      buffer.append("name='");
+      buffer.append(name);
+      buffer.append("', ");
+    }
+
+    buffer.append("serverSet=");
+    serverSet.toString(buffer);
+    buffer.append(", numConnections=");
+    buffer.append(numConnections);
+    buffer.append(", maxOutstandingOperationsPerConnection=");
+    buffer.append(maxOutstandingOperationsPerConnection);
+    buffer.append(", currentOutstandingOperations=");
+    buffer.append(getCurrentOutstandingOperations());
+    buffer.append(')');
+  }
+}
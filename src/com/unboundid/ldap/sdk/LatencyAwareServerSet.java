@@ -0,0 +1,609 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import javax.net.SocketFactory;
+
+import com.unboundid.util.NotMutable;
+import com.unboundid.util.ObjectPair;
+import com.unboundid.util.ThreadLocalRandom;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+import static com.unboundid.util.Debug.*;
+import static com.unboundid.util.Validator.*;
+
+
+
+/**
+ * This class provides a server set implementation that will establish
+ * connections based on the operation response times observed for the servers
+ * in the set.  The response time for each operation processed on a connection
+ * created by this server set (as recorded in the connection's
+ * {@link LDAPConnectionStatistics}) is used to maintain an
+ * exponentially-decayed latency score for the associated server.  A response
+ * time that is greater than the current score for a server will replace it
+ * immediately, so that a server whose performance has degraded will quickly be
+ * avoided, while the score for a server that has not been used recently will
+ * decay toward zero so that it will eventually be tried again.
+ * <BR><BR>
+ * When a new connection is needed, two different servers will be chosen at
+ * random, and the connection will be established to the one with the lower
+ * latency score.  This "power of two choices" approach avoids sending all new
+ * connections to a single server when multiple servers have similar
+ * performance.  If a server is unavailable when an attempt is made to establish
+ * a connection to it, then the remaining servers will be tried in order of
+ * increasing latency score.
+ * <BR><BR>
+ * This server set implementation is primarily intended for use with connection
+ * pools, so that connections created to replace connections that have been
+ * closed (for example, because they have reached the maximum connection age)
+ * will be established to the servers that are currently responding fastest.
+ * <BR><BR>
+ * <H2>Example</H2>
+ * The following example demonstrates the process for creating a latency-aware
+ * server set that may be used to establish connections to either of two
+ * servers.
+ * <PRE>
+ * // Create arrays with the addresses and ports of the directory server
+ * // instances.
+ * String[] addresses =
+ * {
+ *   server1Address,
+ *   server2Address
+ * };
+ * int[] ports =
+ * {
+ *   server1Port,
+ *   server2Port
+ * };
+ *
+ * // Create the server set using the address and port arrays.
+ * LatencyAwareServerSet latencyAwareSet =
+ *      new LatencyAwareServerSet(addresses, ports);
+ *
+ * // Verify that we can establish a single connection using the server set.
+ * LDAPConnection connection = latencyAwareSet.getConnection();
+ * RootDSE rootDSEFromConnection = connection.getRootDSE();
+ * connection.close();
+ *
+ * // Verify that we can establish a connection pool using the server set.
+ * SimpleBindRequest bindRequest =
+ *      new SimpleBindRequest("uid=pool.user,dc=example,dc=com", "password");
+ * LDAPConnectionPool pool =
+ *      new LDAPConnectionPool(latencyAwareSet, bindRequest, 10);
+ * pool.setMaxConnectionAgeMillis(300000L);
+ * RootDSE rootDSEFromPool = pool.getRootDSE();
+ * pool.close();
+ * </PRE>
+ */
+@NotMutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+public final class LatencyAwareServerSet
+       extends ServerSet
+{
+  /**
+   * The default length of time in milliseconds over which the weight of a
+   * recorded response time will be halved.
+   */
+  public static final long DEFAULT_DECAY_HALF_LIFE_MILLIS = 10000L;
+
+
+
+  // The port numbers of the target servers.
+  private final int[] ports;
+
+  // The trackers used to maintain the latency score for each server.
+  private final LatencyAwareServerSetLatencyTracker[] trackers;
+
+  // The set of connection options to use for new connections.
+  private final LDAPConnectionOptions connectionOptions;
+
+  // The length of time in milliseconds over which the weight of a recorded
+  // response time will be halved.
+  private final long decayHalfLifeMillis;
+
+  // The socket factory to use to establish connections.
+  private final SocketFactory socketFactory;
+
+  // The addresses of the target servers.
+  private final String[] addresses;
+
+
+
+  /**
+   * Creates a new latency-aware server set with the specified set of directory
+   * server addresses and port numbers.  It will use the default socket factory
+   * provided by the JVM to create the underlying sockets.
+   *
+   * @param  addresses  The addresses of the directory servers to which the
+   *                    connections should be established.  It must not be
+   *                    {@code null} or empty.
+   * @param  ports      The ports of the directory servers to which the
+   *                    connections should be established.  It must not be
+   *                    {@code null}, and it must have the same number of
+   *                    elements as the {@code addresses} array.  The order of
+   *                    elements in the {@code addresses} array must correspond
+   *                    to the order of elements in the {@code ports} array.
+   */
+  public LatencyAwareServerSet(final String[] addresses, final int[] ports)
+  {
+    this(addresses, ports, null, null, DEFAULT_DECAY_HALF_LIFE_MILLIS);
+  }
+
+
+
+  /**
+   * Creates a new latency-aware server set with the specified set of directory
+   * server addresses and port numbers.  It will use the default socket factory
+   * provided by the JVM to create the underlying sockets.
+   *
+   * @param  addresses          The addresses of the directory servers to which
+   *                            the connections should be established.  It must
+   *                            not be {@code null} or empty.
+   * @param  ports              The ports of the directory servers to which the
+   *                            connections should be established.  It must not
+   *                            be {@code null}, and it must have the same
+   *                            number of elements as the {@code addresses}
+   *                            array.  The order of elements in the
+   *                            {@code addresses} array must correspond to the
+   *                            order of elements in the {@code ports} array.
+   * @param  connectionOptions  The set of connection options to use for the
+   *                            underlying connections.
+   */
+  public LatencyAwareServerSet(final String[] addresses, final int[] ports,
+                               final LDAPConnectionOptions connectionOptions)
+  {
+    this(addresses, ports, null, connectionOptions,
+         DEFAULT_DECAY_HALF_LIFE_MILLIS);
+  }
+
+
+
+  /**
+   * Creates a new latency-aware server set with the specified set of directory
+   * server addresses and port numbers.  It will use the provided socket factory
+   * to create the underlying sockets.
+   *
+   * @param  addresses      The addresses of the directory servers to which the
+   *                        connections should be established.  It must not be
+   *                        {@code null} or empty.
+   * @param  ports          The ports of the directory servers to which the
+   *                        connections should be established.  It must not be
+   *                        {@code null}, and it must have the same number of
+   *                        elements as the {@code addresses} array.  The order
+   *                        of elements in the {@code addresses} array must
+   *                        correspond to the order of elements in the
+   *                        {@code ports} array.
+   * @param  socketFactory  The socket factory to use to create the underlying
+   *                        connections.
+   */
+  public LatencyAwareServerSet(final String[] addresses, final int[] ports,
+                               final SocketFactory socketFactory)
+  {
+    this(addresses, ports, socketFactory, null,
+         DEFAULT_DECAY_HALF_LIFE_MILLIS);
+  }
+
+
+
+  /**
+   * Creates a new latency-aware server set with the specified set of directory
+   * server addresses and port numbers.  It will use the provided socket factory
+   * to create the underlying sockets.
+   *
+   * @param  addresses          The addresses of the directory servers to which
+   *                            the connections should be established.  It must
+   *                            not be {@code null} or empty.
+   * @param  ports              The ports of the directory servers to which the
+   *                            connections should be established.  It must not
+   *                            be {@code null}, and it must have the same
+   *                            number of elements as the {@code addresses}
+   *                            array.  The order of elements in the
+   *                            {@code addresses} array must correspond to the
+   *                            order of elements in the {@code ports} array.
+   * @param  socketFactory      The socket factory to use to create the
+   *                            underlying connections.
+   * @param  connectionOptions  The set of connection options to use for the
+   *                            underlying connections.
+   */
+  public LatencyAwareServerSet(final String[] addresses, final int[] ports,
+                               final SocketFactory socketFactory,
+                               final LDAPConnectionOptions connectionOptions)
+  {
+    this(addresses, ports, socketFactory, connectionOptions,
+         DEFAULT_DECAY_HALF_LIFE_MILLIS);
+  }
+
+
+
+  /**
+   * Creates a new latency-aware server set with the specified set of directory
+   * server addresses and port numbers.  It will use the provided socket factory
+   * to create the underlying sockets.
+   *
+   * @param  addresses            The addresses of the directory servers to
+   *                              which the connections should be established.
+   *                              It must not be {@code null} or empty.
+   * @param  ports                The ports of the directory servers to which
+   *                              the connections should be established.  It
+   *                              must not be {@code null}, and it must have the
+   *                              same number of elements as the
+   *                              {@code addresses} array.  The order of
+   *                              elements in the {@code addresses} array must
+   *                              correspond to the order of elements in the
+   *                              {@code ports} array.
+   * @param  socketFactory        The socket factory to use to create the
+   *                              underlying connections.
+   * @param  connectionOptions    The set of connection options to use for the
+   *                              underlying connections.
+   * @param  decayHalfLifeMillis  The length of time in milliseconds over which
+   *                              the weight of a recorded response time will be
+   *                              halved.  It must be greater than zero.
+   */
+  public LatencyAwareServerSet(final String[] addresses, final int[] ports,
+                               final SocketFactory socketFactory,
+                               final LDAPConnectionOptions connectionOptions,
+                               final long decayHalfLifeMillis)
+  {
+    ensureNotNull(addresses, ports);
+    ensureTrue(addresses.length > 0,
+               "LatencyAwareServerSet.addresses must not be empty.");
+    ensureTrue(addresses.length == ports.length,
+               "LatencyAwareServerSet addresses and ports arrays must be " +
+                    "the same size.");
+    ensureTrue(decayHalfLifeMillis > 0L,
+               "LatencyAwareServerSet.decayHalfLifeMillis must be greater " +
+                    "than zero.");
+
+    this.addresses           = addresses;
+    this.ports               = ports;
+    this.decayHalfLifeMillis = decayHalfLifeMillis;
+
+    trackers = new LatencyAwareServerSetLatencyTracker[addresses.length];
+    for (int i=0; i < addresses.length; i++)
+    {
+      trackers[i] = new LatencyAwareServerSetLatencyTracker(addresses[i],
+           ports[i], decayHalfLifeMillis);
+    }
+
+    if (socketFactory == null)
+    {
+      this.socketFactory = SocketFactory.getDefault();
+    }
+    else
+    {
+      this.socketFactory = socketFactory;
+    }
+
+    if (connectionOptions == null)
+    {
+      this.connectionOptions = new LDAPConnectionOptions();
+    }
+    else
+    {
+      this.connectionOptions = connectionOptions;
+    }
+  }
+
+
+
+  /**
+   * Retrieves the addresses of the directory servers to which the connections
+   * should be established.
+   *
+   * @return  The addresses of the directory servers to which the connections
+   *          should be established.
+   */
+  public String[] getAddresses()
+  {
+    return addresses;
+  }
+
+
+
+  /**
+   * Retrieves the ports of the directory servers to which the connections
+   * should be established.
+   *
+   * @return  The ports of the directory servers to which the connections should
+   *          be established.
+   */
+  public int[] getPorts()
+  {
+    return ports;
+  }
+
+
+
+  /**
+   * Retrieves the socket factory that will be used to establish connections.
+   *
+   * @return  The socket factory that will be used to establish connections.
+   */
+  public SocketFactory getSocketFactory()
+  {
+    return socketFactory;
+  }
+
+
+
+  /**
+   * Retrieves the set of connection options that will be used for underlying
+   * connections.
+   *
+   * @return  The set of connection options that will be used for underlying
+   *          connections.
+   */
+  public LDAPConnectionOptions getConnectionOptions()
+  {
+    return connectionOptions;
+  }
+
+
+
+  /**
+   * Retrieves the length of time in milliseconds over which the weight of a
+   * recorded response time will be halved.
+   *
+   * @return  The length of time in milliseconds over which the weight of a
+   *          recorded response time will be halved.
+   */
+  public long getDecayHalfLifeMillis()
+  {
+    return decayHalfLifeMillis;
+  }
+
+
+
+  /**
+   * Retrieves the current latency score for each of the servers in this set.
+   * The order of elements in the returned array will correspond to the order
+   * of elements in the {@code addresses} and {@code ports} arrays.
+   *
+   * @return  The current latency score, in milliseconds, for each of the
+   *          servers in this set.  The score for a server will be zero if no
+   *          response times have been recorded for it.
+   */
+  public double[] getLatencyScoresMillis()
+  {
+    final long currentTime = System.nanoTime();
+    final double[] scores = new double[trackers.length];
+    for (int i=0; i < trackers.length; i++)
+    {
+      scores[i] = trackers[i].getScoreNanos(currentTime) / 1000000.0d;
+    }
+
+    return scores;
+  }
+
+
+
+  /**
+   * Retrieves the latency trackers for the servers in this set.
+   *
+   * @return  The latency trackers for the servers in this set.
+   */
+  LatencyAwareServerSetLatencyTracker[] getLatencyTrackers()
+  {
+    return trackers;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public LDAPConnection getConnection()
+         throws LDAPException
+  {
+    return getConnection(null);
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public LDAPConnection getConnection(
+                             final LDAPConnectionPoolHealthCheck healthCheck)
+         throws LDAPException
+  {
+    // Compute the current score for each server.
+    final long currentTime = System.nanoTime();
+    final double[] scores = new double[trackers.length];
+    for (int i=0; i < trackers.length; i++)
+    {
+      scores[i] = trackers[i].getScoreNanos(currentTime);
+    }
+
+
+    // Choose two different servers at random, and try the one with the lower
+    // score first.
+    final int firstChoice = selectServer(scores, ThreadLocalRandom.get());
+    LDAPException lastException;
+    try
+    {
+      return connect(trackers[firstChoice], healthCheck);
+    }
+    catch (final LDAPException le)
+    {
+      debugException(le);
+      lastException = le;
+    }
+
+
+    // If that failed, then try the remaining servers in order of increasing
+    // score.
+    final List<ObjectPair<Double,Integer>> remaining =
+         new ArrayList<ObjectPair<Double,Integer>>(trackers.length);
+    for (int i=0; i < trackers.length; i++)
+    {
+      if (i != firstChoice)
+      {
+        remaining.add(new ObjectPair<Double,Integer>(scores[i], i));
+      }
+    }
+    Collections.sort(remaining, new Comparator<ObjectPair<Double,Integer>>()
+    {
+      @Override()
+      public int compare(final ObjectPair<Double,Integer> p1,
+                         final ObjectPair<Double,Integer> p2)
+      {
+        return p1.getFirst().compareTo(p2.getFirst());
+      }
+    });
+
+    for (final ObjectPair<Double,Integer> p : remaining)
+    {
+      try
+      {
+        return connect(trackers[p.getSecond()], healthCheck);
+      }
+      catch (final LDAPException le)
+      {
+        debugException(le);
+        lastException = le;
+      }
+    }
+
+
+    // If we've gotten here, then we've tried all servers without any success,
+    // so throw the last exception that was encountered.
+    throw lastException;
+  }
+
+
+
+  /**
+   * Selects the server to which the first connection attempt should be made
+   * by choosing two different servers at random and picking the one with the
+   * lower score.
+   *
+   * @param  scores  The current scores for each of the servers.
+   * @param  random  The random number generator to use.
+   *
+   * @return  The index of the selected server.
+   */
+  static int selectServer(final double[] scores, final Random random)
+  {
+    if (scores.length == 1)
+    {
+      return 0;
+    }
+
+    final int i = random.nextInt(scores.length);
+    int j = random.nextInt(scores.length - 1);
+    if (j >= i)
+    {
+      j++;
+    }
+
+    if (scores[j] < scores[i])
+    {
+      return j;
+    }
+    else
+    {
+      return i;
+    }
+  }
+
+
+
+  /**
+   * Establishes a connection to the server associated with the provided
+   * tracker, and arranges for the response times of operations processed on
+   * that connection to be recorded in the tracker.
+   *
+   * @param  tracker      The tracker for the server to which the connection
+   *                      should be established.
+   * @param  healthCheck  The health check to use to validate the connection,
+   *                      or {@code null} if no health check should be
+   *                      performed.
+   *
+   * @return  The established connection.
+   *
+   * @throws  LDAPException  If a problem occurs while establishing or
+   *                         validating the connection.
+   */
+  private LDAPConnection connect(
+                              final LatencyAwareServerSetLatencyTracker tracker,
+                              final LDAPConnectionPoolHealthCheck healthCheck)
+          throws LDAPException
+  {
+    final LDAPConnection conn = new LDAPConnection(socketFactory,
+         connectionOptions, tracker.getAddress(), tracker.getPort());
+    conn.getConnectionStatistics().setResponseTimeListener(tracker);
+
+    if (healthCheck != null)
+    {
+      try
+      {
+        healthCheck.ensureNewConnectionValid(conn);
+      }
+      catch (final LDAPException le)
+      {
+        debugException(le);
+        conn.close();
+        throw le;
+      }
+    }
+
+    return conn;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void toString(final StringBuilder buffer)
+  {
+    buffer.append("LatencyAwareServerSet(servers={");
+
+    for (int i=0; i < addresses.length; i++)
+    {
+      if (i > 0)
+      {
+        buffer.append(", ");
+      }
+
+      buffer.append(addresses[i]);
+      buffer.append(':');
+      buffer.append(ports[i]);
+    }
+
+    buffer.append("}, decayHalfLifeMillis=");
+    buffer.append(decayHalfLifeMillis);
+    buffer.append(')');
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.util.concurrent.TimeUnit;
+
+import com.unboundid.util.Mutable;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+
+
+/**
+ * This class provides a data structure that maintains an exponentially-decayed
+ * latency score for a single server in a {@link LatencyAwareServerSet}.  The
+ * score is a peak-sensitive moving average:  a response time that is greater
+ * than the current score will immediately replace it, so that a server whose
+ * performance has degraded will be avoided right away, while a response time
+ * that is less than the current score will be blended into it with a weight
+ * that depends on the time elapsed since the last update.  When no responses
+ * are received, the score decays toward zero so that a server that had been
+ * slow will eventually be tried again.
+ */
+@Mutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class LatencyAwareServerSetLatencyTracker
+      implements LDAPConnectionResponseTimeListener
+{
+  // The decay half-life, in nanoseconds.
+  private final double halfLifeNanos;
+
+  // The current score, in nanoseconds, as of the last update time.
+  private double score;
+
+  // The total number of response times that have been recorded.
+  private long numSamples;
+
+  // The value of System.nanoTime at the last update.
+  private long lastUpdateTime;
+
+  // The port of the associated server.
+  private final int port;
+
+  // The address of the associated server.
+  private final String address;
+
+
+
+  /**
+   * Creates a new latency tracker for the specified server.
+   *
+   * @param  address              The address of the associated server.
+   * @param  port                 The port of the associated server.
+   * @param  decayHalfLifeMillis  The length of time in milliseconds over which
+   *                              the weight of a recorded response time will be
+   *                              halved.  It must be greater than zero.
+   */
+  LatencyAwareServerSetLatencyTracker(final String address, final int port,
+                                      final long decayHalfLifeMillis)
+  {
+    this.address = address;
+    this.port    = port;
+
+    halfLifeNanos  = TimeUnit.MILLISECONDS.toNanos(decayHalfLifeMillis);
+    score          = 0.0d;
+    numSamples     = 0L;
+    lastUpdateTime = System.nanoTime();
+  }
+
+
+
+  /**
+   * Retrieves the address of the associated server.
+   *
+   * @return  The address of the associated server.
+   */
+  String getAddress()
+  {
+    return address;
+  }
+
+
+
+  /**
+   * Retrieves the port of the associated server.
+   *
+   * @return  The port of the associated server.
+   */
+  int getPort()
+  {
+    return port;
+  }
+
+
+
+  /**
+   * Retrieves the number of response times that have been recorded for the
+   * associated server.
+   *
+   * @return  The number of response times that have been recorded for the
+   *          associated server.
+   */
+  synchronized long getNumSamples()
+  {
+    return numSamples;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void responseTimeRecorded(final long responseTimeNanos)
+  {
+    if (responseTimeNanos <= 0L)
+    {
+      return;
+    }
+
+    recordResponseTime(responseTimeNanos, System.nanoTime());
+  }
+
+
+
+  /**
+   * Records the provided response time as of the given time.
+   *
+   * @param  responseTimeNanos  The response time to record, in nanoseconds.
+   * @param  currentTime        The current value of {@code System.nanoTime}.
+   */
+  synchronized void recordResponseTime(final long responseTimeNanos,
+                                       final long currentTime)
+  {
+    final double decayedScore = getDecayedScore(currentTime);
+    if ((numSamples == 0L) || (responseTimeNanos >= decayedScore))
+    {
+      score = responseTimeNanos;
+    }
+    else
+    {
+      final double weight = getWeight(currentTime);
+      score = (score * weight) + (responseTimeNanos * (1.0d - weight));
+    }
+
+    numSamples++;
+    lastUpdateTime = currentTime;
+  }
+
+
+
+  /**
+   * Retrieves the current latency score for the associated server.
+   *
+   * @return  The current latency score for the associated server, in
+   *          nanoseconds.  It will be zero if no response times have been
+   *          recorded.
+   */
+  double getScoreNanos()
+  {
+    return getScoreNanos(System.nanoTime());
+  }
+
+
+
+  /**
+   * Retrieves the latency score for the associated server as of the given
+   * time.
+   *
+   * @param  currentTime  The current value of {@code System.nanoTime}.
+   *
+   * @return  The latency score for the associated server, in nanoseconds.  It
+   *          will be zero if no response times have been recorded.
+   */
+  synchronized double getScoreNanos(final long currentTime)
+  {
+    return getDecayedScore(currentTime);
+  }
+
+
+
+  /**
+   * Retrieves the score decayed for the time elapsed since the last update.
+   * The caller must hold the lock on this object.
+   *
+   * @param  currentTime  The current value of {@code System.nanoTime}.
+   *
+   * @return  The decayed score.
+   */
+  private double getDecayedScore(final long currentTime)
+  {
+    if (numSamples == 0L)
+    {
+      return 0.0d;
+    }
+
+    return score * getWeight(currentTime);
+  }
+
+
+
+  /**
+   * Retrieves the weight that the current score should be given based on the
+   * time elapsed since the last update.  The caller must hold the lock on this
+   * object.
+   *
+   * @param  currentTime  The current value of {@code System.nanoTime}.
+   *
+   * @return  The weight that the current score should be given, between zero
+   *          and one.
+   */
+  private double getWeight(final long currentTime)
+  {
+    final long elapsed = currentTime - lastUpdateTime;
+    if (elapsed <= 0L)
+    {
+      return 1.0d;
+    }
+
+    return Math.pow(0.5d, (elapsed / halfLifeNanos));
+  }
+}
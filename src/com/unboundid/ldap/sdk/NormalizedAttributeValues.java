@@ -0,0 +1,352 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.ldap.matchingrules.MatchingRule;
+import com.unboundid.util.NotMutable;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+import static com.unboundid.util.Debug.*;
+
+
+
+/**
+ * This class provides a data structure that holds the normalized
+ * representations of the values of an attribute, as determined by a given
+ * matching rule, along with a hash set of those normalized values that may be
+ * used to determine whether the attribute contains a given value without the
+ * need to compare it against each of the values individually.  Any value that
+ * cannot be normalized with the matching rule will only be considered to match
+ * a value with exactly the same bytes, which is consistent with the behavior
+ * of the {@link Attribute#hasValue(String,MatchingRule)} method.
+ */
+@NotMutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class NormalizedAttributeValues
+{
+  // The raw values of the attribute.
+  private final ASN1OctetString[] values;
+
+  // The normalized representations of the attribute values, in the same order
+  // as the raw values.  An element will be null if the corresponding raw value
+  // could not be normalized.
+  private final ASN1OctetString[] normalizedValues;
+
+  // The matching rule used to normalize the values.
+  private final MatchingRule matchingRule;
+
+  // The set of normalized values.
+  private final Set<ASN1OctetString> normalizedValueSet;
+
+  // The set of raw values that could not be normalized.
+  private final Set<ASN1OctetString> unnormalizedValueSet;
+
+
+
+  /**
+   * Creates a new set of normalized attribute values with the provided
+   * information.
+   *
+   * @param  matchingRule      The matching rule used to normalize the values.
+   * @param  values            The raw values of the attribute.
+   * @param  normalizedValues  The normalized representations of the attribute
+   *                           values, in the same order as the raw values.  An
+   *                           element should be {@code null} if the
+   *                           corresponding raw value could not be normalized.
+   */
+  private NormalizedAttributeValues(final MatchingRule matchingRule,
+                                    final ASN1OctetString[] values,
+                                    final ASN1OctetString[] normalizedValues)
+  {
+    this.matchingRule     = matchingRule;
+    this.values           = values;
+    this.normalizedValues = normalizedValues;
+
+    normalizedValueSet = new HashSet<ASN1OctetString>(
+         Math.max(16, ((normalizedValues.length * 4) / 3) + 1));
+
+    HashSet<ASN1OctetString> unnormalizedValues = null;
+    for (int i=0; i < values.length; i++)
+    {
+      if (normalizedValues[i] == null)
+      {
+        if (unnormalizedValues == null)
+        {
+          unnormalizedValues = new HashSet<ASN1OctetString>(10);
+        }
+
+        unnormalizedValues.add(values[i]);
+      }
+      else
+      {
+        normalizedValueSet.add(normalizedValues[i]);
+      }
+    }
+
+    if (unnormalizedValues == null)
+    {
+      unnormalizedValueSet = Collections.emptySet();
+    }
+    else
+    {
+      unnormalizedValueSet = unnormalizedValues;
+    }
+  }
+
+
+
+  /**
+   * Creates a new set of normalized attribute values for the provided values.
+   *
+   * @param  matchingRule  The matching rule to use to normalize the values.
+   * @param  values        The raw values of the attribute.
+   *
+   * @return  The set of normalized attribute values that was created.
+   */
+  static NormalizedAttributeValues create(final MatchingRule matchingRule,
+                                          final ASN1OctetString[] values)
+  {
+    final ASN1OctetString[] normalizedValues =
+         new ASN1OctetString[values.length];
+    for (int i=0; i < values.length; i++)
+    {
+      normalizedValues[i] = normalize(matchingRule, values[i]);
+    }
+
+    return new NormalizedAttributeValues(matchingRule, values,
+         normalizedValues);
+  }
+
+
+
+  /**
+   * Retrieves the normalized representation of the provided value.
+   *
+   * @param  matchingRule  The matching rule to use to normalize the value.
+   * @param  value         The value to be normalized.
+   *
+   * @return  The normalized representation of the provided value, or
+   *          {@code null} if it cannot be normalized.
+   */
+  static ASN1OctetString normalize(final MatchingRule matchingRule,
+                                   final ASN1OctetString value)
+  {
+    try
+    {
+      return matchingRule.normalize(value);
+    }
+    catch (final LDAPException le)
+    {
+      debugException(le);
+      return null;
+    }
+  }
+
+
+
+  /**
+   * Retrieves the matching rule used to normalize the values.
+   *
+   * @return  The matching rule used to normalize the values.
+   */
+  MatchingRule getMatchingRule()
+  {
+    return matchingRule;
+  }
+
+
+
+  /**
+   * Indicates whether the attribute has any values that could not be
+   * normalized with the matching rule.
+   *
+   * @return  {@code true} if the attribute has at least one value that could
+   *          not be normalized, or {@code false} if all of the values were
+   *          normalized.
+   */
+  boolean hasUnnormalizedValues()
+  {
+    return (! unnormalizedValueSet.isEmpty());
+  }
+
+
+
+  /**
+   * Indicates whether the attribute has a value that matches the provided
+   * value.
+   *
+   * @param  value  The value for which to make the determination.
+   *
+   * @return  {@code true} if the attribute has a value that matches the
+   *          provided value, or {@code false} if not.
+   */
+  boolean contains(final ASN1OctetString value)
+  {
+    return contains(value, normalize(matchingRule, value));
+  }
+
+
+
+  /**
+   * Indicates whether the attribute has a value that matches the provided
+   * value.
+   *
+   * @param  value            The value for which to make the determination.
+   * @param  normalizedValue  The normalized representation of the provided
+   *                          value, or {@code null} if it cannot be
+   *                          normalized.
+   *
+   * @return  {@code true} if the attribute has a value that matches the
+   *          provided value, or {@code false} if not.
+   */
+  boolean contains(final ASN1OctetString value,
+                   final ASN1OctetString normalizedValue)
+  {
+    if (normalizedValue == null)
+    {
+      // The value can't be normalized, so it can only match a value that is
+      // exactly the same.
+      for (final ASN1OctetString v : values)
+      {
+        if (v.equals(value))
+        {
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    if (normalizedValueSet.contains(normalizedValue))
+    {
+      return true;
+    }
+
+    return ((! unnormalizedValueSet.isEmpty()) &&
+            unnormalizedValueSet.contains(value));
+  }
+
+
+
+  /**
+   * Creates a new set of normalized attribute values that contains all of the
+   * values in this set followed by the provided values.  The normalized
+   * representations of the values in this set will not be recomputed.
+   *
+   * @param  addedValues            The raw values to add.
+   * @param  addedNormalizedValues  The normalized representations of the
+   *                                values to add, in the same order as the
+   *                                raw values.
+   * @param  numAdded               The number of elements from the provided
+   *                                arrays to add.
+   *
+   * @return  The new set of normalized attribute values.
+   */
+  NormalizedAttributeValues add(final ASN1OctetString[] addedValues,
+                                final ASN1OctetString[] addedNormalizedValues,
+                                final int numAdded)
+  {
+    final int newLength = values.length + numAdded;
+    final ASN1OctetString[] newValues = new ASN1OctetString[newLength];
+    final ASN1OctetString[] newNormalizedValues =
+         new ASN1OctetString[newLength];
+
+    System.arraycopy(values, 0, newValues, 0, values.length);
+    System.arraycopy(addedValues, 0, newValues, values.length, numAdded);
+    System.arraycopy(normalizedValues, 0, newNormalizedValues, 0,
+         values.length);
+    System.arraycopy(addedNormalizedValues, 0, newNormalizedValues,
+         values.length, numAdded);
+
+    return new NormalizedAttributeValues(matchingRule, newValues,
+         newNormalizedValues);
+  }
+
+
+
+  /**
+   * Creates a new set of normalized attribute values that contains all of the
+   * values in this set that do not match any of the values in the provided
+   * set.  The normalized representations of the remaining values will not be
+   * recomputed.
+   *
+   * @param  valuesToRemove  The set of normalized values to remove.  It must
+   *                         use the same matching rule as this set.
+   *
+   * @return  The new set of normalized attribute values, or this set if none
+   *          of the values were removed.
+   */
+  NormalizedAttributeValues remove(
+       final NormalizedAttributeValues valuesToRemove)
+  {
+    final ASN1OctetString[] remainingValues =
+         new ASN1OctetString[values.length];
+    final ASN1OctetString[] remainingNormalizedValues =
+         new ASN1OctetString[values.length];
+
+    int numRemaining = 0;
+    for (int i=0; i < values.length; i++)
+    {
+      if (! valuesToRemove.contains(values[i], normalizedValues[i]))
+      {
+        remainingValues[numRemaining] = values[i];
+        remainingNormalizedValues[numRemaining] = normalizedValues[i];
+        numRemaining++;
+      }
+    }
+
+    if (numRemaining == values.length)
+    {
+      return this;
+    }
+
+    final ASN1OctetString[] newValues = new ASN1OctetString[numRemaining];
+    final ASN1OctetString[] newNormalizedValues =
+         new ASN1OctetString[numRemaining];
+    System.arraycopy(remainingValues, 0, newValues, 0, numRemaining);
+    System.arraycopy(remainingNormalizedValues, 0, newNormalizedValues, 0,
+         numRemaining);
+
+    return new NormalizedAttributeValues(matchingRule, newValues,
+         newNormalizedValues);
+  }
+
+
+
+  /**
+   * Retrieves the raw values of the attribute.  The returned array must not be
+   * altered.
+   *
+   * @return  The raw values of the attribute.
+   */
+  ASN1OctetString[] getValues()
+  {
+    return values;
+  }
+}
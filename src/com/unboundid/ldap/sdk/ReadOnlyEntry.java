@@ -145,6 +145,26 @@ public class ReadOnlyEntry
 
 
 
+  /**
+   * Creates a new read-only entry with the provided DN and set of encoded
+   * attributes, which will be decoded as they are needed.
+   *
+   * @param  dn                 The DN for this entry.  It must not be
+   *                            {@code null}.
+   * @param  schema             The schema to use for operations involving this
+   *                            entry.  It may be {@code null} if no schema is
+   *                            available.
+   * @param  encodedAttributes  The encoded attributes for this entry.  It must
+   *                            not be {@code null}.
+   */
+  ReadOnlyEntry(final String dn, final Schema schema,
+                final EncodedEntryAttributes encodedAttributes)
+  {
+    super(dn, schema, encodedAttributes);
+  }
+
+
+
   /**
    * Creates a new read-only entry with the provided DN and set of attributes.
    *
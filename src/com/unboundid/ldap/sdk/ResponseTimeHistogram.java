@@ -0,0 +1,629 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.unboundid.util.Mutable;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+import com.unboundid.util.Validator;
+
+
+
+/**
+ * This class provides a histogram that may be used to track the distribution
+ * of operation response times, so that percentiles (e.g., the 99th or 99.9th
+ * percentile response time) may be determined in addition to the averages
+ * provided by {@link LDAPConnectionStatistics}.
+ * <BR><BR>
+ * The histogram uses a log-linear bucketing scheme similar to that of
+ * HdrHistogram:  response times less than 64 nanoseconds are tracked exactly,
+ * and larger response times are tracked in buckets whose width is 1/32 of the
+ * power of two in which they fall, so that any value reported by this
+ * histogram will be within about three percent of the actual value.  Response
+ * times greater than {@link #MAX_TRACKABLE_VALUE_NANOS} (about 36 minutes)
+ * will be recorded as that value.
+ * <BR><BR>
+ * Recording a value requires only a single atomic increment and does not
+ * allocate any memory, so it is suitable for use in the path that processes
+ * responses.  Histograms may be merged with the {@link #add} method, and the
+ * {@link #getSnapshotAndReset} method may be used to obtain the values
+ * recorded since the previous snapshot for interval-based reporting.  The
+ * {@link #writePercentileDistribution} method may be used to write the full
+ * distribution in the percentile distribution format used by HdrHistogram, so
+ * that it may be examined with tools that support that format.
+ */
+@Mutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+public final class ResponseTimeHistogram
+       implements Serializable
+{
+  /**
+   * The maximum response time, in nanoseconds, that may be tracked with full
+   * precision.  Larger response times will be recorded as this value.
+   */
+  public static final long MAX_TRACKABLE_VALUE_NANOS = (1L << 41) - 1L;
+
+
+
+  /**
+   * The number of bits used to identify the bucket within a power of two.
+   */
+  private static final int SUB_BUCKET_BITS = 5;
+
+
+
+  /**
+   * The number of buckets within each power of two.
+   */
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+
+
+  /**
+   * The number of values that are tracked exactly.
+   */
+  private static final long EXACT_VALUE_LIMIT = 2L * SUB_BUCKET_COUNT;
+
+
+
+  /**
+   * The total number of buckets in the histogram.
+   */
+  private static final int NUM_BUCKETS =
+       getBucketIndex(MAX_TRACKABLE_VALUE_NANOS) + 1;
+
+
+
+  /**
+   * The serial version UID for this serializable class.
+   */
+  private static final long serialVersionUID = 6106244419575339245L;
+
+
+
+  // The number of values recorded in each bucket.
+  private final AtomicLongArray counts;
+
+
+
+  /**
+   * Creates a new, empty response time histogram.
+   */
+  public ResponseTimeHistogram()
+  {
+    counts = new AtomicLongArray(NUM_BUCKETS);
+  }
+
+
+
+  /**
+   * Creates a new response time histogram with the provided counts.
+   *
+   * @param  counts  The number of values recorded in each bucket.
+   */
+  private ResponseTimeHistogram(final long[] counts)
+  {
+    this.counts = new AtomicLongArray(counts);
+  }
+
+
+
+  /**
+   * Records the provided response time in this histogram.
+   *
+   * @param  responseTimeNanos  The response time to record, in nanoseconds.  A
+   *                            negative value will be recorded as zero.
+   */
+  public void recordValue(final long responseTimeNanos)
+  {
+    counts.incrementAndGet(getBucketIndex(responseTimeNanos));
+  }
+
+
+
+  /**
+   * Adds all of the values recorded in the provided histogram to this
+   * histogram.
+   *
+   * @param  histogram  The histogram whose values should be added to this
+   *                    histogram.  It must not be {@code null}.
+   */
+  public void add(final ResponseTimeHistogram histogram)
+  {
+    Validator.ensureNotNull(histogram);
+
+    for (int i=0; i < NUM_BUCKETS; i++)
+    {
+      final long count = histogram.counts.get(i);
+      if (count != 0L)
+      {
+        counts.addAndGet(i, count);
+      }
+    }
+  }
+
+
+
+  /**
+   * Retrieves a copy of this histogram.  The copy will not be affected by any
+   * values subsequently recorded in this histogram.
+   *
+   * @return  A copy of this histogram.
+   */
+  public ResponseTimeHistogram getSnapshot()
+  {
+    return new ResponseTimeHistogram(getCounts());
+  }
+
+
+
+  /**
+   * Retrieves a copy of this histogram and removes the values it contains from
+   * this histogram, so that this histogram will subsequently contain only
+   * values recorded after the snapshot was taken.  No values recorded
+   * concurrently with this method will be lost:  each will be included either
+   * in the snapshot or in this histogram.
+   *
+   * @return  A histogram containing the values that had been recorded in this
+   *          histogram.
+   */
+  public ResponseTimeHistogram getSnapshotAndReset()
+  {
+    final long[] snapshotCounts = new long[NUM_BUCKETS];
+    for (int i=0; i < NUM_BUCKETS; i++)
+    {
+      if (counts.get(i) != 0L)
+      {
+        snapshotCounts[i] = counts.getAndSet(i, 0L);
+      }
+    }
+
+    return new ResponseTimeHistogram(snapshotCounts);
+  }
+
+
+
+  /**
+   * Removes all values from this histogram.
+   */
+  public void reset()
+  {
+    for (int i=0; i < NUM_BUCKETS; i++)
+    {
+      counts.set(i, 0L);
+    }
+  }
+
+
+
+  /**
+   * Retrieves the total number of values recorded in this histogram.
+   *
+   * @return  The total number of values recorded in this histogram.
+   */
+  public long getTotalCount()
+  {
+    long total = 0L;
+    for (int i=0; i < NUM_BUCKETS; i++)
+    {
+      total += counts.get(i);
+    }
+
+    return total;
+  }
+
+
+
+  /**
+   * Retrieves the response time at the specified percentile.  That is, the
+   * smallest value for which the given percentage of the recorded values are
+   * less than or equal to it (to within the precision of this histogram).
+   *
+   * @param  percentile  The percentile for which to retrieve the value.  It
+   *                     must be between 0 and 100, inclusive.
+   *
+   * @return  The response time in nanoseconds at the specified percentile, or
+   *          zero if no values have been recorded.
+   */
+  public long getValueAtPercentile(final double percentile)
+  {
+    Validator.ensureTrue(((percentile >= 0.0d) && (percentile <= 100.0d)),
+         "ResponseTimeHistogram.percentile must be between 0 and 100.");
+
+    final long[] snapshotCounts = getCounts();
+    long total = 0L;
+    for (final long count : snapshotCounts)
+    {
+      total += count;
+    }
+
+    if (total == 0L)
+    {
+      return 0L;
+    }
+
+    final long targetCount =
+         Math.max(1L, (long) Math.ceil((percentile / 100.0d) * total));
+    long cumulativeCount = 0L;
+    for (int i=0; i < NUM_BUCKETS; i++)
+    {
+      cumulativeCount += snapshotCounts[i];
+      if (cumulativeCount >= targetCount)
+      {
+        return getBucketUpperBound(i);
+      }
+    }
+
+    return MAX_TRACKABLE_VALUE_NANOS;
+  }
+
+
+
+  /**
+   * Retrieves the response time at the specified percentile, in milliseconds.
+   *
+   * @param  percentile  The percentile for which to retrieve the value.  It
+   *                     must be between 0 and 100, inclusive.
+   *
+   * @return  The response time in milliseconds at the specified percentile, or
+   *          zero if no values have been recorded.
+   */
+  public double getValueAtPercentileMillis(final double percentile)
+  {
+    return getValueAtPercentile(percentile) / 1000000.0d;
+  }
+
+
+
+  /**
+   * Retrieves the largest response time recorded in this histogram (to within
+   * the precision of this histogram).
+   *
+   * @return  The largest response time in nanoseconds recorded in this
+   *          histogram, or zero if no values have been recorded.
+   */
+  public long getMaxValue()
+  {
+    for (int i=(NUM_BUCKETS - 1); i >= 0; i--)
+    {
+      if (counts.get(i) != 0L)
+      {
+        return getBucketUpperBound(i);
+      }
+    }
+
+    return 0L;
+  }
+
+
+
+  /**
+   * Retrieves the number of buckets in this histogram.
+   *
+   * @return  The number of buckets in this histogram.
+   */
+  public int getNumBuckets()
+  {
+    return NUM_BUCKETS;
+  }
+
+
+
+  /**
+   * Retrieves the number of values recorded in the specified bucket.
+   *
+   * @param  bucketIndex  The index of the bucket for which to retrieve the
+   *                      count.  It must be greater than or equal to zero and
+   *                      less than the value returned by
+   *                      {@link #getNumBuckets}.
+   *
+   * @return  The number of values recorded in the specified bucket.
+   */
+  public long getBucketCount(final int bucketIndex)
+  {
+    return counts.get(bucketIndex);
+  }
+
+
+
+  /**
+   * Retrieves the smallest response time, in nanoseconds, that will be
+   * recorded in the specified bucket.
+   *
+   * @param  bucketIndex  The index of the bucket for which to retrieve the
+   *                      lower bound.  It must be greater than or equal to
+   *                      zero and less than the value returned by
+   *                      {@link #getNumBuckets}.
+   *
+   * @return  The smallest response time that will be recorded in the specified
+   *          bucket.
+   */
+  public long getBucketLowerBound(final int bucketIndex)
+  {
+    if (bucketIndex < EXACT_VALUE_LIMIT)
+    {
+      return bucketIndex;
+    }
+
+    final int shift = (bucketIndex >> SUB_BUCKET_BITS) - 1;
+    final long subBucket = (bucketIndex & (SUB_BUCKET_COUNT - 1)) +
+         SUB_BUCKET_COUNT;
+    return subBucket << shift;
+  }
+
+
+
+  /**
+   * Retrieves the largest response time, in nanoseconds, that will be
+   * recorded in the specified bucket.
+   *
+   * @param  bucketIndex  The index of the bucket for which to retrieve the
+   *                      upper bound.  It must be greater than or equal to
+   *                      zero and less than the value returned by
+   *                      {@link #getNumBuckets}.
+   *
+   * @return  The largest response time that will be recorded in the specified
+   *          bucket.
+   */
+  public long getBucketUpperBound(final int bucketIndex)
+  {
+    if (bucketIndex < EXACT_VALUE_LIMIT)
+    {
+      return bucketIndex;
+    }
+
+    final int shift = (bucketIndex >> SUB_BUCKET_BITS) - 1;
+    final long subBucket = (bucketIndex & (SUB_BUCKET_COUNT - 1)) +
+         SUB_BUCKET_COUNT;
+    return ((subBucket + 1L) << shift) - 1L;
+  }
+
+
+
+  /**
+   * Writes the full distribution of values in this histogram to the provided
+   * print stream in the percentile distribution format used by HdrHistogram
+   * (i.e., the format of ".hgrm" files).  Values will be written in
+   * milliseconds.  As with HdrHistogram, the number of percentile levels
+   * reported doubles for each halving of the distance to the 100th
+   * percentile, with five levels reported in each half-distance.
+   *
+   * @param  printStream  The print stream to which the distribution should be
+   *                      written.  It must not be {@code null}.
+   */
+  public void writePercentileDistribution(final PrintStream printStream)
+  {
+    Validator.ensureNotNull(printStream);
+
+    final long[] snapshotCounts = getCounts();
+    long total = 0L;
+    double sum = 0.0d;
+    long maxValue = 0L;
+    for (int i=0; i < NUM_BUCKETS; i++)
+    {
+      final long count = snapshotCounts[i];
+      if (count != 0L)
+      {
+        total += count;
+        sum += count * getMedianEquivalentValueMillis(i);
+        maxValue = getBucketUpperBound(i);
+      }
+    }
+
+    printStream.print(String.format(Locale.US, "%12s %14s %10s %14s\n\n",
+         "Value", "Percentile", "TotalCount", "1/(1-Percentile)"));
+
+    final double mean;
+    double variance = 0.0d;
+    if (total > 0L)
+    {
+      mean = sum / total;
+
+      double percentileLevel = 0.0d;
+      long cumulativeCount = 0L;
+      long lastValue = 0L;
+      for (int i=0; i < NUM_BUCKETS; i++)
+      {
+        final long count = snapshotCounts[i];
+        if (count == 0L)
+        {
+          continue;
+        }
+
+        final double deviation = getMedianEquivalentValueMillis(i) - mean;
+        variance += count * deviation * deviation;
+
+        cumulativeCount += count;
+        lastValue = getBucketUpperBound(i);
+        if (cumulativeCount >= total)
+        {
+          // Only a single level is reported for the last bucket.  The 100th
+          // percentile is reported separately below.
+          if ((100.0d * cumulativeCount / total) >= percentileLevel)
+          {
+            printPercentileLine(printStream, lastValue, percentileLevel,
+                 cumulativeCount);
+          }
+          break;
+        }
+
+        while ((100.0d * cumulativeCount / total) >= percentileLevel)
+        {
+          printPercentileLine(printStream, lastValue, percentileLevel,
+               cumulativeCount);
+
+          final long halfDistances = (long) (Math.log(
+               100.0d / (100.0d - percentileLevel)) / Math.log(2.0d)) + 1L;
+          percentileLevel += 100.0d / (5L * (1L << halfDistances));
+        }
+      }
+
+      printStream.print(String.format(Locale.US, "%12.3f %2.12f %10d\n",
+           (lastValue / 1000000.0d), 1.0d, total));
+      variance /= total;
+    }
+    else
+    {
+      mean = 0.0d;
+    }
+
+    printStream.print(String.format(Locale.US,
+         "#[Mean    = %12.3f, StdDeviation   = %12.3f]\n", mean,
+         Math.sqrt(variance)));
+    printStream.print(String.format(Locale.US,
+         "#[Max     = %12.3f, Total count    = %12d]\n",
+         (maxValue / 1000000.0d), total));
+    printStream.print(String.format(Locale.US,
+         "#[Buckets = %12d, SubBuckets     = %12d]\n",
+         ((NUM_BUCKETS >> SUB_BUCKET_BITS) - 1), EXACT_VALUE_LIMIT));
+  }
+
+
+
+  /**
+   * Prints a single line of a percentile distribution.
+   *
+   * @param  printStream      The print stream to which the line should be
+   *                          written.
+   * @param  valueNanos       The value, in nanoseconds, at the percentile.
+   * @param  percentileLevel  The percentile level, between 0 and 100.
+   * @param  totalCount       The number of values less than or equal to the
+   *                          value at the percentile.
+   */
+  private static void printPercentileLine(final PrintStream printStream,
+                                          final long valueNanos,
+                                          final double percentileLevel,
+                                          final long totalCount)
+  {
+    final double fraction = percentileLevel / 100.0d;
+    printStream.print(String.format(Locale.US, "%12.3f %2.12f %10d %14.2f\n",
+         (valueNanos / 1000000.0d), fraction, totalCount,
+         (1.0d / (1.0d - fraction))));
+  }
+
+
+
+  /**
+   * Retrieves the value, in milliseconds, in the middle of the range of values
+   * that will be recorded in the specified bucket.
+   *
+   * @param  bucketIndex  The index of the bucket.
+   *
+   * @return  The value in the middle of the range of values that will be
+   *          recorded in the specified bucket.
+   */
+  private double getMedianEquivalentValueMillis(final int bucketIndex)
+  {
+    final long lowerBound = getBucketLowerBound(bucketIndex);
+    final long upperBound = getBucketUpperBound(bucketIndex);
+    return (lowerBound + ((upperBound - lowerBound + 1L) >> 1)) / 1000000.0d;
+  }
+
+
+
+  /**
+   * Retrieves the index of the bucket in which the provided value should be
+   * recorded.
+   *
+   * @param  value  The value for which to retrieve the bucket index.
+   *
+   * @return  The index of the bucket in which the provided value should be
+   *          recorded.
+   */
+  static int getBucketIndex(final long value)
+  {
+    if (value < EXACT_VALUE_LIMIT)
+    {
+      return (value <= 0L) ? 0 : (int) value;
+    }
+
+    final long v = Math.min(value, MAX_TRACKABLE_VALUE_NANOS);
+    final int shift = (63 - Long.numberOfLeadingZeros(v)) - SUB_BUCKET_BITS;
+    final int subBucket = (int) (v >>> shift);
+    return (shift << SUB_BUCKET_BITS) + subBucket;
+  }
+
+
+
+  /**
+   * Retrieves a copy of the current bucket counts.
+   *
+   * @return  A copy of the current bucket counts.
+   */
+  private long[] getCounts()
+  {
+    final long[] snapshotCounts = new long[NUM_BUCKETS];
+    for (int i=0; i < NUM_BUCKETS; i++)
+    {
+      snapshotCounts[i] = counts.get(i);
+    }
+
+    return snapshotCounts;
+  }
+
+
+
+  /**
+   * Retrieves a string representation of this response time histogram.
+   *
+   * @return  A string representation of this response time histogram.
+   */
+  @Override()
+  public String toString()
+  {
+    final StringBuilder buffer = new StringBuilder();
+    toString(buffer);
+    return buffer.toString();
+  }
+
+
+
+  /**
+   * Appends a string representation of this response time histogram to the
+   * provided buffer.
+   *
+   * @param  buffer  The buffer to which the string representation should be
+   *                 appended.
+   */
+  public void toString(final StringBuilder buffer)
+  {
+    buffer.append("ResponseTimeHistogram(totalCount=");
+    buffer.append(getTotalCount());
+    buffer.append(", p50Nanos=");
+    buffer.append(getValueAtPercentile(50.0d));
+    buffer.append(", p90Nanos=");
+    buffer.append(getValueAtPercentile(90.0d));
+    buffer.append(", p99Nanos=");
+    buffer.append(getValueAtPercentile(99.0d));
+    buffer.append(", p999Nanos=");
+    buffer.append(getValueAtPercentile(99.9d));
+    buffer.append(", maxNanos=");
+    buffer.append(getMaxValue());
+    buffer.append(')');
+  }
+}
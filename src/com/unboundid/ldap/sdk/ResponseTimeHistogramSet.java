@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.unboundid.util.Mutable;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+
+
+/**
+ * This class provides a data structure that holds a response time histogram
+ * for each type of operation.  The histogram for an operation type will not be
+ * allocated until the first response time is recorded for that type of
+ * operation.
+ */
+@Mutable()
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class ResponseTimeHistogramSet
+      implements Serializable
+{
+  /**
+   * The serial version UID for this serializable class.
+   */
+  private static final long serialVersionUID = -3290475116924436187L;
+
+
+
+  // The histograms for each operation type, indexed by ordinal.
+  private final AtomicReferenceArray<ResponseTimeHistogram> histograms;
+
+
+
+  /**
+   * Creates a new, empty response time histogram set.
+   */
+  ResponseTimeHistogramSet()
+  {
+    histograms = new AtomicReferenceArray<ResponseTimeHistogram>(
+         OperationType.values().length);
+  }
+
+
+
+  /**
+   * Records the provided response time for the specified type of operation.
+   *
+   * @param  operationType      The type of operation for which to record the
+   *                            response time.
+   * @param  responseTimeNanos  The response time to record, in nanoseconds.
+   */
+  void recordValue(final OperationType operationType,
+                   final long responseTimeNanos)
+  {
+    final int slot = operationType.ordinal();
+    ResponseTimeHistogram histogram = histograms.get(slot);
+    if (histogram == null)
+    {
+      histograms.compareAndSet(slot, null, new ResponseTimeHistogram());
+      histogram = histograms.get(slot);
+    }
+
+    histogram.recordValue(responseTimeNanos);
+  }
+
+
+
+  /**
+   * Adds the response times recorded for the specified type of operation to
+   * the provided histogram, optionally removing them from this set.
+   *
+   * @param  operationType  The type of operation for which to retrieve the
+   *                        response times.  It may be {@code null} to include
+   *                        the response times for all types of operations.
+   * @param  reset          Indicates whether to remove the response times from
+   *                        this set after they have been retrieved.
+   * @param  target         The histogram to which the response times should be
+   *                        added.
+   */
+  void addTo(final OperationType operationType, final boolean reset,
+             final ResponseTimeHistogram target)
+  {
+    for (int i=0; i < histograms.length(); i++)
+    {
+      if ((operationType != null) && (operationType.ordinal() != i))
+      {
+        continue;
+      }
+
+      final ResponseTimeHistogram histogram = histograms.get(i);
+      if (histogram == null)
+      {
+        continue;
+      }
+
+      if (reset)
+      {
+        target.add(histogram.getSnapshotAndReset());
+      }
+      else
+      {
+        target.add(histogram);
+      }
+    }
+  }
+
+
+
+  /**
+   * Removes all response times from this set.
+   */
+  void reset()
+  {
+    for (int i=0; i < histograms.length(); i++)
+    {
+      final ResponseTimeHistogram histogram = histograms.get(i);
+      if (histogram != null)
+      {
+        histogram.reset();
+      }
+    }
+  }
+}
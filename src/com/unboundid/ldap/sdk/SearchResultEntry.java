@@ -203,6 +203,37 @@ public final class SearchResultEntry
 
 
 
+  /**
+   * Creates a new search result entry with the provided information.
+   *
+   * @param  messageID          The message ID for the LDAP message containing
+   *                            this response.
+   * @param  dn                 The DN for this search result entry.  It must
+   *                            not be {@code null}.
+   * @param  schema             The schema to use for operations involving this
+   *                            entry.  It may be {@code null} if no schema is
+   *                            available.
+   * @param  encodedAttributes  The encoded attributes for this search result
+   *                            entry, which will be decoded as needed.  It
+   *                            must not be {@code null}.
+   * @param  controls           The set of controls for this search result
+   *                            entry.  It must not be {@code null}.
+   */
+  private SearchResultEntry(final int messageID, final String dn,
+                            final Schema schema,
+                            final EncodedEntryAttributes encodedAttributes,
+                            final Control... controls)
+  {
+    super(dn, schema, encodedAttributes);
+
+    ensureNotNull(controls);
+
+    this.messageID = messageID;
+    this.controls  = controls;
+  }
+
+
+
   /**
    * Creates a new search result entry from the provided entry.
    *
@@ -265,17 +296,65 @@ public final class SearchResultEntry
               final ASN1StreamReaderSequence messageSequence,
               final ASN1StreamReader reader, final Schema schema)
          throws LDAPException
+  {
+    return readSearchEntryFrom(messageID, messageSequence, reader, schema,
+         false);
+  }
+
+
+
+  /**
+   * Creates a new search result entry object with the protocol op and controls
+   * read from the given ASN.1 stream reader.
+   *
+   * @param  messageID        The message ID for the LDAP message containing
+   *                          this response.
+   * @param  messageSequence  The ASN.1 stream reader sequence used in the
+   *                          course of reading the LDAP message elements.
+   * @param  reader           The ASN.1 stream reader from which to read the
+   *                          protocol op and controls.
+   * @param  schema           The schema to use to select the appropriate
+   *                          matching rule to use for each attribute.  It may
+   *                          be {@code null} if the default matching rule
+   *                          should always be used.
+   * @param  lazilyDecode     Indicates whether to retain the encoded
+   *                          attributes and only decode them as they are
+   *                          needed, rather than decoding all of them
+   *                          immediately.
+   *
+   * @return  The decoded search result entry object.
+   *
+   * @throws  LDAPException  If a problem occurs while reading or decoding data
+   *                         from the ASN.1 stream reader.
+   */
+  static SearchResultEntry readSearchEntryFrom(final int messageID,
+              final ASN1StreamReaderSequence messageSequence,
+              final ASN1StreamReader reader, final Schema schema,
+              final boolean lazilyDecode)
+         throws LDAPException
   {
     try
     {
       reader.beginSequence();
       final String dn = reader.readString();
 
-      final ArrayList<Attribute> attrList = new ArrayList<Attribute>(10);
-      final ASN1StreamReaderSequence attrSequence = reader.beginSequence();
-      while (attrSequence.hasMoreElements())
+      final ArrayList<Attribute> attrList;
+      final EncodedEntryAttributes encodedAttributes;
+      if (lazilyDecode)
+      {
+        attrList = null;
+        encodedAttributes =
+             new EncodedEntryAttributes(reader.readBytes(), schema);
+      }
+      else
       {
-        attrList.add(Attribute.readFrom(reader, schema));
+        encodedAttributes = null;
+        attrList = new ArrayList<Attribute>(10);
+        final ASN1StreamReaderSequence attrSequence = reader.beginSequence();
+        while (attrSequence.hasMoreElements())
+        {
+          attrList.add(Attribute.readFrom(reader, schema));
+        }
       }
 
       Control[] controls = NO_CONTROLS;
@@ -292,7 +371,16 @@ public final class SearchResultEntry
         controlList.toArray(controls);
       }
 
-      return new SearchResultEntry(messageID, dn, schema, attrList, controls);
+      if (encodedAttributes == null)
+      {
+        return new SearchResultEntry(messageID, dn, schema, attrList,
+             controls);
+      }
+      else
+      {
+        return new SearchResultEntry(messageID, dn, schema, encodedAttributes,
+             controls);
+      }
     }
     catch (final LDAPException le)
     {
@@ -24,6 +24,7 @@ package com.unboundid.ldap.sdk.examples;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.PrintStream;
 import java.io.Serializable;
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -38,6 +39,7 @@ import com.unboundid.ldap.sdk.Control;
 import com.unboundid.ldap.sdk.LDAPConnection;
 import com.unboundid.ldap.sdk.LDAPConnectionOptions;
 import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.ResponseTimeHistogram;
 import com.unboundid.ldap.sdk.ResultCode;
 import com.unboundid.ldap.sdk.SearchScope;
 import com.unboundid.ldap.sdk.Version;
@@ -143,6 +145,12 @@ import static com.unboundid.util.StaticUtils.*;
  *       If this option is not provided, then the tool will either use a fixed
  *       target rate as specified by the "--ratePerSecond" argument, or it will
  *       run at the maximum rate.</LI>
+ *   <LI>"--rateLimiterBurstSize {num}" -- specifies that the target rate
+ *       should be enforced with a lock-free token bucket rather than a
+ *       synchronized barrier, and the maximum number of operations that may
+ *       be released at once in an attempt to catch up after falling behind
+ *       the target rate.  This may only be used in conjunction with the
+ *       "--ratePerSecond" or "--variableRateData" arguments.</LI>
  *   <LI>"--generateSampleRateFile {path}" -- specifies the path to a file to
  *       which sample data will be written illustrating and describing the
  *       format of the file expected to be used in conjunction with the
@@ -153,6 +161,18 @@ import static com.unboundid.util.StaticUtils.*;
  *       timestamps included before each output line.  The format may be one of
  *       "none" (for no timestamps), "with-date" (to include both the date and
  *       the time), or "without-date" (to include only time time).</LI>
+ *   <LI>"--openLoop" -- Indicates that the duration of each authentication
+ *       should be measured from the time that it was scheduled to start rather
+ *       than the time that it actually started, so that delays in starting
+ *       authentications are reflected in the durations that are reported.
+ *       Authentications will still be processed synchronously by each thread
+ *       because bind requests cannot be multiplexed on a connection.  This may
+ *       only be used in conjunction with the "--ratePerSecond" or
+ *       "--variableRateData" arguments.</LI>
+ *   <LI>"--latencyHistogramFile {path}" -- specifies the path to a file to
+ *       which the full distribution of authentication durations will be
+ *       written in the percentile distribution format used by
+ *       HdrHistogram.</LI>
  *   <LI>"--suppressErrorResultCodes" -- Indicates that information about the
  *       result codes for failed operations should not be displayed.</LI>
  *   <LI>"-c" or "--csv" -- Generate output in CSV format rather than a
@@ -185,6 +205,10 @@ public final class AuthRate
   // The argument used to indicate whether to generate output in CSV format.
   private BooleanArgument csvFormat;
 
+  // The argument used to indicate whether to operate as an open-loop load
+  // generator.
+  private BooleanArgument openLoop;
+
   // The argument used to indicate that bind requests should include the
   // password policy request control.
   private BooleanArgument passwordPolicyRequestControl;
@@ -201,6 +225,10 @@ public final class AuthRate
   // requests.
   private ControlArgument searchControl;
 
+  // The argument used to specify the file to which the distribution of
+  // authentication durations should be written.
+  private FileArgument latencyHistogramFile;
+
   // The argument used to specify a variable rate file.
   private FileArgument sampleRateFile;
 
@@ -220,6 +248,10 @@ public final class AuthRate
   // generator.
   private IntegerArgument randomSeed;
 
+  // The maximum number of operations that may be released at once when using
+  // a token bucket to enforce the target rate.
+  private IntegerArgument rateLimiterBurstSize;
+
   // The target rate of authentications per second.
   private IntegerArgument ratePerSecond;
 
@@ -654,6 +686,22 @@ public final class AuthRate
     variableRateData.addLongIdentifier("variable-rate-data");
     parser.addArgument(variableRateData);
 
+    description = "Indicates that the target rate should be enforced with a " +
+                  "lock-free token bucket rather than a synchronized " +
+                  "barrier, which can reduce contention at high rates and " +
+                  "with many threads, and specifies the maximum number of " +
+                  "operations that may be released at once in an attempt " +
+                  "to catch up after falling behind the target rate.  This " +
+                  "may only be used in conjunction with either the " +
+                  "--ratePerSecond or --variableRateData argument.";
+    rateLimiterBurstSize = new IntegerArgument(null, "rateLimiterBurstSize",
+         false, 1, "{num}", description, 1, Integer.MAX_VALUE);
+    rateLimiterBurstSize.setArgumentGroupName("Rate Management Arguments");
+    rateLimiterBurstSize.addLongIdentifier("rate-limiter-burst-size");
+    parser.addArgument(rateLimiterBurstSize);
+    parser.addDependentArgumentSet(rateLimiterBurstSize, ratePerSecond,
+         variableRateData);
+
     description = RateAdjustor.getGenerateSampleVariableRateFileDescription(
          variableRateDataArgName);
     sampleRateFile = new FileArgument(null, generateSampleRateFileArgName,
@@ -690,6 +738,34 @@ public final class AuthRate
     timestampFormat.addLongIdentifier("timestamp-format");
     parser.addArgument(timestampFormat);
 
+    description = "Indicates that the duration of each authentication " +
+                  "should be measured from the time that it was scheduled " +
+                  "to start rather than the time that it actually started, " +
+                  "so that delays in starting authentications (for " +
+                  "example, because the server is slow to respond) are " +
+                  "reflected in the durations that are reported.  Because " +
+                  "bind requests cannot be multiplexed on a connection, " +
+                  "authentications will still be processed synchronously " +
+                  "by each thread, so a sufficient number of threads should " +
+                  "be used to achieve the target rate.  This may only be " +
+                  "used in conjunction with either the --ratePerSecond or " +
+                  "--variableRateData argument.";
+    openLoop = new BooleanArgument(null, "openLoop", 1, description);
+    openLoop.setArgumentGroupName("Rate Management Arguments");
+    openLoop.addLongIdentifier("open-loop");
+    parser.addArgument(openLoop);
+    parser.addDependentArgumentSet(openLoop, ratePerSecond, variableRateData);
+
+    description = "The path to a file to which the full distribution of " +
+                  "authentication durations will be written when the tool " +
+                  "completes, in the percentile distribution format used by " +
+                  "HdrHistogram.  Durations recorded during warm-up " +
+                  "intervals will not be included.";
+    latencyHistogramFile = new FileArgument(null, "latencyHistogramFile",
+         false, 1, "{path}", description, false, true, true, false);
+    latencyHistogramFile.addLongIdentifier("latency-histogram-file");
+    parser.addArgument(latencyHistogramFile);
+
     description = "Indicates that information about the result codes for " +
                   "failed operations should not be displayed.";
     suppressErrorsArgument = new BooleanArgument(null,
@@ -863,8 +939,33 @@ public final class AuthRate
            (ratePerSecond.getValue() == null)
            ? Integer.MAX_VALUE
            : ratePerSecond.getValue() * intervalSeconds;
-      fixedRateBarrier =
-           new FixedRateBarrier(1000L * intervalSeconds, ratePerInterval);
+      if (openLoop.isPresent())
+      {
+        // In open-loop mode, operations that fall behind schedule should
+        // still be started rather than skipped unless a burst size is given.
+        final int burstSize;
+        if (rateLimiterBurstSize.isPresent())
+        {
+          burstSize = rateLimiterBurstSize.getValue();
+        }
+        else
+        {
+          burstSize = Integer.MAX_VALUE;
+        }
+
+        fixedRateBarrier = new FixedRateBarrier(1000L * intervalSeconds,
+             ratePerInterval, burstSize);
+      }
+      else if (rateLimiterBurstSize.isPresent())
+      {
+        fixedRateBarrier = new FixedRateBarrier(1000L * intervalSeconds,
+             ratePerInterval, rateLimiterBurstSize.getValue());
+      }
+      else
+      {
+        fixedRateBarrier =
+             new FixedRateBarrier(1000L * intervalSeconds, ratePerInterval);
+      }
     }
 
 
@@ -975,6 +1076,16 @@ public final class AuthRate
     final AtomicLong        authDurations = new AtomicLong(0L);
     final ResultCodeCounter rcCounter     = new ResultCodeCounter();
 
+    final ResponseTimeHistogram latencyHistogram;
+    if (latencyHistogramFile.isPresent())
+    {
+      latencyHistogram = new ResponseTimeHistogram();
+    }
+    else
+    {
+      latencyHistogram = null;
+    }
+
 
     // Determine the length of each interval in milliseconds.
     final long intervalMillis = 1000L * collectionInterval.getValue();
@@ -1004,7 +1115,8 @@ public final class AuthRate
            dnPattern, scopeArg.getValue(), filterPattern, attrs,
            userPassword.getValue(), bindOnly.isPresent(), authType.getValue(),
            searchControl.getValues(), bindControls, barrier, authCounter,
-           authDurations, errorCounter, rcCounter, fixedRateBarrier);
+           authDurations, errorCounter, rcCounter, fixedRateBarrier,
+           openLoop.isPresent(), latencyHistogram);
       threads[i].start();
     }
 
@@ -1080,6 +1192,11 @@ public final class AuthRate
         numAuths      = authCounter.getAndSet(0L);
         numErrors     = errorCounter.getAndSet(0L);
         totalDuration = authDurations.getAndSet(0L);
+
+        if (latencyHistogram != null)
+        {
+          latencyHistogram.reset();
+        }
       }
       else
       {
@@ -1185,6 +1302,36 @@ public final class AuthRate
       }
     }
 
+
+    // If appropriate, write the distribution of authentication durations.
+    if (latencyHistogram != null)
+    {
+      try
+      {
+        final PrintStream printStream =
+             new PrintStream(latencyHistogramFile.getValue());
+        try
+        {
+          latencyHistogram.writePercentileDistribution(printStream);
+        }
+        finally
+        {
+          printStream.close();
+        }
+      }
+      catch (final IOException e)
+      {
+        debugException(e);
+        err("Unable to write the authentication duration distribution to ",
+             "file '", latencyHistogramFile.getValue().getAbsolutePath(),
+             "':  ", getExceptionMessage(e));
+        if (resultCode == ResultCode.SUCCESS)
+        {
+          resultCode = ResultCode.LOCAL_ERROR;
+        }
+      }
+    }
+
     return resultCode;
   }
 
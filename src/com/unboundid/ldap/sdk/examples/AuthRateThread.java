@@ -36,6 +36,7 @@ import com.unboundid.ldap.sdk.Filter;
 import com.unboundid.ldap.sdk.LDAPConnection;
 import com.unboundid.ldap.sdk.LDAPException;
 import com.unboundid.ldap.sdk.PLAINBindRequest;
+import com.unboundid.ldap.sdk.ResponseTimeHistogram;
 import com.unboundid.ldap.sdk.ResultCode;
 import com.unboundid.ldap.sdk.SearchRequest;
 import com.unboundid.ldap.sdk.SearchResult;
@@ -113,6 +114,10 @@ final class AuthRateThread
   // operations without the initial search.
   private final boolean bindOnly;
 
+  // Indicates whether the duration of each authentication should be measured
+  // from the time that it was scheduled to start.
+  private final boolean openLoop;
+
   // The set of controls to include in bind requests.
   private final Control[] bindControls;
 
@@ -128,6 +133,10 @@ final class AuthRateThread
   // The connection to use for the searches.
   private LDAPConnection searchConnection;
 
+  // The histogram used to track the distribution of authentication durations,
+  // if any.
+  private final ResponseTimeHistogram latencyHistogram;
+
   // The result code counter to use for failed operations.
   private final ResultCodeCounter rcCounter;
 
@@ -181,6 +190,14 @@ final class AuthRateThread
    * @param  rateBarrier       The barrier to use for controlling the rate of
    *                           authorizations.  {@code null} if no rate-limiting
    *                           should be used.
+   * @param  openLoop          Indicates whether the duration of each
+   *                           authentication should be measured from the time
+   *                           that it was scheduled to start rather than from
+   *                           the time that it actually started.
+   * @param  latencyHistogram  The histogram used to track the distribution of
+   *                           authentication durations.  It may be
+   *                           {@code null} if the distribution should not be
+   *                           tracked.
    */
   AuthRateThread(final AuthRate authRate, final int threadNumber,
                  final LDAPConnection searchConnection,
@@ -194,7 +211,8 @@ final class AuthRateThread
                  final AtomicLong authCounter, final AtomicLong authDurations,
                  final AtomicLong errorCounter,
                  final ResultCodeCounter rcCounter,
-                 final FixedRateBarrier rateBarrier)
+                 final FixedRateBarrier rateBarrier, final boolean openLoop,
+                 final ResponseTimeHistogram latencyHistogram)
   {
     setName("AuthRate Thread " + threadNumber);
     setDaemon(true);
@@ -211,6 +229,8 @@ final class AuthRateThread
     this.errorCounter     = errorCounter;
     this.rcCounter        = rcCounter;
     this.startBarrier     = startBarrier;
+    this.openLoop         = openLoop;
+    this.latencyHistogram = latencyHistogram;
     fixedRateBarrier      = rateBarrier;
 
     searchConnection.setConnectionName("search-" + threadNumber);
@@ -342,14 +362,23 @@ final class AuthRateThread
       }
 
       // If we're trying for a specific target rate, then we might need to
-      // wait until starting the next authorization.
-      if (fixedRateBarrier != null)
+      // wait until starting the next authorization.  In open-loop mode, the
+      // duration is measured from the time it was scheduled to start.
+      final long startTime;
+      if (fixedRateBarrier == null)
+      {
+        startTime = System.nanoTime();
+      }
+      else if (openLoop)
+      {
+        startTime = fixedRateBarrier.awaitAndGetScheduledTime();
+      }
+      else
       {
         fixedRateBarrier.await();
+        startTime = System.nanoTime();
       }
 
-      final long startTime = System.nanoTime();
-
       try
       {
         final String bindDN;
@@ -427,8 +456,13 @@ final class AuthRateThread
       }
       finally
       {
+        final long duration = System.nanoTime() - startTime;
         authCounter.incrementAndGet();
-        authDurations.addAndGet(System.nanoTime() - startTime);
+        authDurations.addAndGet(duration);
+        if (latencyHistogram != null)
+        {
+          latencyHistogram.recordValue(duration);
+        }
       }
     }
 
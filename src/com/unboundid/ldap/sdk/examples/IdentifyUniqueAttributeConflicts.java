@@ -22,6 +22,8 @@ package com.unboundid.ldap.sdk.examples;
 
 
 
+import java.io.File;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -29,13 +31,19 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.ldap.matchingrules.MatchingRule;
 import com.unboundid.ldap.sdk.Attribute;
 import com.unboundid.ldap.sdk.DereferencePolicy;
 import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
 import com.unboundid.ldap.sdk.Filter;
 import com.unboundid.ldap.sdk.LDAPConnectionOptions;
 import com.unboundid.ldap.sdk.LDAPConnectionPool;
@@ -51,14 +59,20 @@ import com.unboundid.ldap.sdk.SearchScope;
 import com.unboundid.ldap.sdk.Version;
 import com.unboundid.ldap.sdk.controls.SimplePagedResultsControl;
 import com.unboundid.ldap.sdk.extensions.CancelExtendedRequest;
+import com.unboundid.ldap.sdk.schema.Schema;
+import com.unboundid.ldif.LDIFException;
+import com.unboundid.ldif.LDIFReader;
 import com.unboundid.util.Debug;
 import com.unboundid.util.LDAPCommandLineTool;
+import com.unboundid.util.LDAPSDKThreadFactory;
 import com.unboundid.util.StaticUtils;
 import com.unboundid.util.ThreadSafety;
 import com.unboundid.util.ThreadSafetyLevel;
 import com.unboundid.util.args.ArgumentException;
 import com.unboundid.util.args.ArgumentParser;
+import com.unboundid.util.args.BooleanArgument;
 import com.unboundid.util.args.DNArgument;
+import com.unboundid.util.args.FileArgument;
 import com.unboundid.util.args.FilterArgument;
 import com.unboundid.util.args.IntegerArgument;
 import com.unboundid.util.args.StringArgument;
@@ -94,7 +108,25 @@ import com.unboundid.util.args.StringArgument;
  *       results control to iterate across entries in fixed-size pages rather
  *       than trying to use a single search to identify all entries containing
  *       unique attributes.</LI>
+ *   <LI>"--singlePass" -- indicates that conflicts should be identified by
+ *       keeping track of the normalized values seen while examining the
+ *       entries, rather than by issuing a separate search for each value.</LI>
+ *   <LI>"--ldifFile {path}" -- specifies the path to an LDIF file containing
+ *       the entries to examine, rather than retrieving them from a directory
+ *       server.  This implies "--singlePass".</LI>
+ *   <LI>"--maxMemoryMB {num}" -- specifies the approximate maximum amount of
+ *       memory to use to hold unique values in single-pass mode before
+ *       writing them to temporary files.</LI>
+ *   <LI>"--tempDirectory {path}" -- specifies the directory in which to
+ *       write temporary files in single-pass mode.</LI>
+ *   <LI>"--numThreads {num}" -- specifies the number of threads to use to
+ *       normalize unique values in single-pass mode.</LI>
  * </UL>
+ * <BR><BR>
+ * In single-pass mode, each entry will only be retrieved once.  A conflict
+ * will be reported for each entry containing a value that is also present in
+ * a different entry, just as when searching for each value, but the tool will
+ * not need to send any additional requests to the server.
  */
 @ThreadSafety(level=ThreadSafetyLevel.NOT_THREADSAFE)
 public final class IdentifyUniqueAttributeConflicts
@@ -137,6 +169,13 @@ public final class IdentifyUniqueAttributeConflicts
 
 
 
+  /**
+   * The default value for the maxMemoryMB argument.
+   */
+  private static final int DEFAULT_MAX_MEMORY_MB = 256;
+
+
+
   /**
    * The serial version UID for this serializable class.
    */
@@ -151,6 +190,13 @@ public final class IdentifyUniqueAttributeConflicts
   // The number of entries examined so far.
   private final AtomicLong entriesExamined;
 
+  // The first error encountered while adding values to the value map.
+  private final AtomicReference<Exception> valueMapError;
+
+  // The argument used to indicate that conflicts should be identified in a
+  // single pass.
+  private BooleanArgument singlePassArgument;
+
   // Indicates whether cross-attribute uniqueness conflicts should be allowed
   // in the same entry.
   private boolean allowConflictsInSameEntry;
@@ -162,9 +208,24 @@ public final class IdentifyUniqueAttributeConflicts
   // The argument used to specify the base DNs to use for searches.
   private DNArgument baseDNArgument;
 
+  // The argument used to specify an LDIF file containing the entries to
+  // examine.
+  private FileArgument ldifFileArgument;
+
+  // The argument used to specify the directory for temporary files.
+  private FileArgument tempDirectoryArgument;
+
   // The argument used to specify a filter indicating which entries to examine.
   private FilterArgument filterArgument;
 
+  // The argument used to specify the maximum amount of memory to use to hold
+  // values in single-pass mode.
+  private IntegerArgument maxMemoryArgument;
+
+  // The argument used to specify the number of threads to use to normalize
+  // values in single-pass mode.
+  private IntegerArgument numThreadsArgument;
+
   // The argument used to specify the search page size.
   private IntegerArgument pageSizeArgument;
 
@@ -184,6 +245,17 @@ public final class IdentifyUniqueAttributeConflicts
   // The set of base DNs to use for the searches.
   private String[] baseDNs;
 
+  // The equality matching rules to use to normalize values of each unique
+  // attribute in single-pass mode.
+  private MatchingRule[] matchingRules;
+
+  // The executor used to normalize values in single-pass mode, if multiple
+  // threads should be used.
+  private ThreadPoolExecutor valueMapExecutor;
+
+  // The map used to keep track of unique values in single-pass mode.
+  private UniqueAttributeValueMap valueMap;
+
   // The argument used to specify the attributes for which to find uniqueness
   // conflicts.
   private StringArgument attributeArgument;
@@ -261,9 +333,18 @@ public final class IdentifyUniqueAttributeConflicts
     attributes = null;
     baseDNs = null;
     timeLimitArgument = null;
+    singlePassArgument = null;
+    ldifFileArgument = null;
+    maxMemoryArgument = null;
+    numThreadsArgument = null;
+    tempDirectoryArgument = null;
+    matchingRules = null;
+    valueMap = null;
+    valueMapExecutor = null;
 
     timeLimitExceeded = new AtomicBoolean(false);
     entriesExamined = new AtomicLong(0L);
+    valueMapError = new AtomicReference<Exception>();
     conflictCounts = new TreeMap<String, AtomicLong>();
   }
 
@@ -508,6 +589,56 @@ public final class IdentifyUniqueAttributeConflicts
     timeLimitArgument.addLongIdentifier("time-limit");
 
     parser.addArgument(timeLimitArgument);
+
+    description = "Indicates that the tool should identify conflicts by " +
+         "examining each entry only once and keeping track of the " +
+         "normalized unique attribute values that it has seen, rather than " +
+         "by issuing a separate search for each value.  This does not " +
+         "require the unique attributes to be indexed, and it can " +
+         "significantly reduce the load on the server when there are many " +
+         "entries to examine.";
+    singlePassArgument = new BooleanArgument(null, "singlePass", 1,
+         description);
+    singlePassArgument.addLongIdentifier("single-pass");
+    parser.addArgument(singlePassArgument);
+
+    description = "The path to an LDIF file containing the entries to " +
+         "examine.  If this is provided, then the tool will not communicate " +
+         "with a directory server, and conflicts will be identified in a " +
+         "single pass.  Only entries below one of the base DNs that match " +
+         "the filter (if any) will be examined.";
+    ldifFileArgument = new FileArgument(null, "ldifFile", false, 1, "{path}",
+         description, true, true, true, false);
+    ldifFileArgument.addLongIdentifier("ldif-file");
+    parser.addArgument(ldifFileArgument);
+
+    description = "The approximate maximum amount of memory, in megabytes, " +
+         "to use to hold unique attribute values when identifying conflicts " +
+         "in a single pass.  If there are more values than will fit in this " +
+         "amount of memory, they will be written to temporary files.  If " +
+         "this is not specified, a default of " + DEFAULT_MAX_MEMORY_MB +
+         " megabytes will be used.";
+    maxMemoryArgument = new IntegerArgument(null, "maxMemoryMB", false, 1,
+         "{num}", description, 1, Integer.MAX_VALUE, DEFAULT_MAX_MEMORY_MB);
+    maxMemoryArgument.addLongIdentifier("max-memory-mb");
+    parser.addArgument(maxMemoryArgument);
+
+    description = "The path to the directory in which to write temporary " +
+         "files when identifying conflicts in a single pass.  If this is " +
+         "not specified, then the JVM's default temporary directory will be " +
+         "used.";
+    tempDirectoryArgument = new FileArgument(null, "tempDirectory", false, 1,
+         "{path}", description, true, true, false, true);
+    tempDirectoryArgument.addLongIdentifier("temp-directory");
+    parser.addArgument(tempDirectoryArgument);
+
+    description = "The number of threads to use to normalize unique " +
+         "attribute values when identifying conflicts in a single pass.  If " +
+         "this is not specified, a single thread will be used.";
+    numThreadsArgument = new IntegerArgument('t', "numThreads", false, 1,
+         "{num}", description, 1, Integer.MAX_VALUE, 1);
+    numThreadsArgument.addLongIdentifier("num-threads");
+    parser.addArgument(numThreadsArgument);
   }
 
 
@@ -581,6 +712,44 @@ public final class IdentifyUniqueAttributeConflicts
       baseDNs[i] = dnList.get(i).toString();
     }
 
+    // Get the set of attributes for which to ensure uniqueness.
+    attributes = new String[attrList.size()];
+    attrList.toArray(attributes);
+
+
+    // Construct a search filter that will be used to find all entries with
+    // unique attributes.
+    Filter filter;
+    if (attributes.length == 1)
+    {
+      filter = Filter.createPresenceFilter(attributes[0]);
+      conflictCounts.put(attributes[0], new AtomicLong(0L));
+    }
+    else
+    {
+      final Filter[] orComps = new Filter[attributes.length];
+      for (int i=0; i < attributes.length; i++)
+      {
+        orComps[i] = Filter.createPresenceFilter(attributes[i]);
+        conflictCounts.put(attributes[i], new AtomicLong(0L));
+      }
+      filter = Filter.createORFilter(orComps);
+    }
+
+    if (filterArgument.isPresent())
+    {
+      filter = Filter.createANDFilter(filterArgument.getValue(), filter);
+    }
+
+
+    // If the entries should be read from an LDIF file, then do that without
+    // communicating with a directory server.
+    if (ldifFileArgument.isPresent())
+    {
+      return identifyConflictsInLDIFFile(dnList, filter);
+    }
+
+
     // Establish a connection to the target directory server to use for finding
     // entries with unique attributes.
     final LDAPConnectionPool findUniqueAttributesPool;
@@ -614,33 +783,36 @@ public final class IdentifyUniqueAttributeConflicts
         return le.getResultCode();
       }
 
-      // Get the set of attributes for which to ensure uniqueness.
-      attributes = new String[attrList.size()];
-      attrList.toArray(attributes);
-
-
-      // Construct a search filter that will be used to find all entries with
-      // unique attributes.
-      Filter filter;
-      if (attributes.length == 1)
+      // If conflicts should be identified in a single pass, then get the
+      // schema to use to normalize values and prepare the value map.
+      if (singlePassArgument.isPresent())
       {
-        filter = Filter.createPresenceFilter(attributes[0]);
-        conflictCounts.put(attributes[0], new AtomicLong(0L));
-      }
-      else
-      {
-        final Filter[] orComps = new Filter[attributes.length];
-        for (int i=0; i < attributes.length; i++)
+        Schema schema = null;
+        try
         {
-          orComps[i] = Filter.createPresenceFilter(attributes[i]);
-          conflictCounts.put(attributes[i], new AtomicLong(0L));
+          schema = findUniqueAttributesPool.getSchema();
+        }
+        catch (final LDAPException le)
+        {
+          Debug.debugException(le);
         }
-        filter = Filter.createORFilter(orComps);
-      }
 
-      if (filterArgument.isPresent())
-      {
-        filter = Filter.createANDFilter(filterArgument.getValue(), filter);
+        if (schema == null)
+        {
+          try
+          {
+            schema = Schema.getDefaultStandardSchema();
+          }
+          catch (final LDAPException le)
+          {
+            Debug.debugException(le);
+            err("Unable to obtain the schema to use to normalize values:  ",
+                 StaticUtils.getExceptionMessage(le));
+            return le.getResultCode();
+          }
+        }
+
+        startSinglePass(schema);
       }
 
       // Iterate across all of the search base DNs and perform searches to find
@@ -721,47 +893,420 @@ public final class IdentifyUniqueAttributeConflicts
       }
 
 
+      // If conflicts are being identified in a single pass, then identify any
+      // conflicts among values that didn't fit in memory.
+      if (valueMap != null)
+      {
+        final ResultCode resultCode = finishSinglePass();
+        if (resultCode != ResultCode.SUCCESS)
+        {
+          return resultCode;
+        }
+      }
+
+
       // See if there were any uniqueness conflicts found.
-      boolean conflictFound = false;
-      for (final Map.Entry<String,AtomicLong> e : conflictCounts.entrySet())
+      return reportConflicts();
+    }
+    finally
+    {
+      findUniqueAttributesPool.close();
+
+      if (findConflictsPool != null)
+      {
+        findConflictsPool.close();
+      }
+
+      closeValueMap();
+    }
+  }
+
+
+
+  /**
+   * Identifies unique attribute conflicts in the entries contained in the LDIF
+   * file specified by the ldifFile argument.  Each entry will be read only
+   * once, and conflicts will be identified using the value map.
+   *
+   * @param  baseDNList  The base DNs below which entries should be examined.
+   * @param  filter      The filter that entries must match to be examined.
+   *
+   * @return  A result code that indicates whether the processing completed
+   *          successfully.
+   */
+  private ResultCode identifyConflictsInLDIFFile(final List<DN> baseDNList,
+                                                 final Filter filter)
+  {
+    final Schema schema;
+    try
+    {
+      schema = Schema.getDefaultStandardSchema();
+    }
+    catch (final LDAPException le)
+    {
+      Debug.debugException(le);
+      err("Unable to obtain the schema to use to normalize values:  ",
+           StaticUtils.getExceptionMessage(le));
+      return le.getResultCode();
+    }
+
+    final File ldifFile = ldifFileArgument.getValue();
+    final int numThreads = numThreadsArgument.getValue();
+    final LDIFReader ldifReader;
+    try
+    {
+      ldifReader = new LDIFReader(new File[] { ldifFile },
+           ((numThreads > 1) ? numThreads : 0), null);
+    }
+    catch (final IOException ioe)
+    {
+      Debug.debugException(ioe);
+      err("Unable to open LDIF file '", ldifFile.getAbsolutePath(),
+           "' for reading:  ", StaticUtils.getExceptionMessage(ioe));
+      return ResultCode.LOCAL_ERROR;
+    }
+
+    try
+    {
+      startSinglePass(schema);
+
+      while (true)
       {
-        final long numConflicts = e.getValue().get();
-        if (numConflicts > 0L)
+        final Entry entry;
+        try
         {
-          if (! conflictFound)
+          entry = ldifReader.readEntry();
+        }
+        catch (final LDIFException le)
+        {
+          Debug.debugException(le);
+          err("An error occurred while attempting to read an entry from " +
+               "LDIF file '", ldifFile.getAbsolutePath(), "':  ",
+               StaticUtils.getExceptionMessage(le));
+          if (le.mayContinueReading())
           {
-            err();
-            conflictFound = true;
+            continue;
           }
+          else
+          {
+            return ResultCode.DECODING_ERROR;
+          }
+        }
+        catch (final IOException ioe)
+        {
+          Debug.debugException(ioe);
+          err("An error occurred while attempting to read from LDIF file '",
+               ldifFile.getAbsolutePath(), "':  ",
+               StaticUtils.getExceptionMessage(ioe));
+          return ResultCode.LOCAL_ERROR;
+        }
 
-          err("Found " + numConflicts +
-               " unique value conflicts in attribute " + e.getKey());
+        if (entry == null)
+        {
+          break;
+        }
+
+        try
+        {
+          boolean inScope = false;
+          final DN entryDN = entry.getParsedDN();
+          for (final DN baseDN : baseDNList)
+          {
+            if (entryDN.isDescendantOf(baseDN, true))
+            {
+              inScope = true;
+              break;
+            }
+          }
+
+          if ((! inScope) || (! filter.matchesEntry(entry, schema)))
+          {
+            continue;
+          }
+        }
+        catch (final LDAPException le)
+        {
+          Debug.debugException(le);
+          continue;
+        }
+
+        try
+        {
+          submitSinglePassEntry(entry);
+        }
+        finally
+        {
+          entryExamined();
         }
       }
 
-      if (conflictFound)
+      final ResultCode resultCode = finishSinglePass();
+      if (resultCode != ResultCode.SUCCESS)
       {
-        return ResultCode.CONSTRAINT_VIOLATION;
+        return resultCode;
       }
-      else if (timeLimitExceeded.get())
+
+      return reportConflicts();
+    }
+    finally
+    {
+      try
       {
-        return ResultCode.TIME_LIMIT_EXCEEDED;
+        ldifReader.close();
       }
-      else
+      catch (final Exception e)
       {
-        out("No unique attribute conflicts were found.");
-        return ResultCode.SUCCESS;
+        Debug.debugException(e);
       }
+
+      closeValueMap();
     }
-    finally
+  }
+
+
+
+  /**
+   * Prepares to identify conflicts in a single pass by creating the value map
+   * and, if appropriate, the executor used to normalize values.
+   *
+   * @param  schema  The schema to use to select the equality matching rule for
+   *                 each unique attribute.
+   */
+  private void startSinglePass(final Schema schema)
+  {
+    matchingRules = new MatchingRule[attributes.length];
+    for (int i=0; i < attributes.length; i++)
     {
-      findUniqueAttributesPool.close();
+      matchingRules[i] =
+           MatchingRule.selectEqualityMatchingRule(attributes[i], schema);
+    }
 
-      if (findConflictsPool != null)
+    valueMap = new UniqueAttributeValueMap(this,
+         (maxMemoryArgument.getValue() * 1024L * 1024L),
+         tempDirectoryArgument.getValue());
+
+    final int numThreads = numThreadsArgument.getValue();
+    if (numThreads > 1)
+    {
+      valueMapExecutor = new ThreadPoolExecutor(numThreads, numThreads, 0L,
+           TimeUnit.MILLISECONDS,
+           new ArrayBlockingQueue<Runnable>(numThreads * 100),
+           new LDAPSDKThreadFactory(
+                "identify-unique-attribute-conflicts value normalizer", true),
+           new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+  }
+
+
+
+  /**
+   * Arranges for the values in the provided entry to be added to the value
+   * map, either in a worker thread or in the current thread.
+   *
+   * @param  entry  The entry whose values should be added.
+   */
+  private void submitSinglePassEntry(final Entry entry)
+  {
+    if (valueMapExecutor == null)
+    {
+      addValuesToMap(entry);
+    }
+    else
+    {
+      valueMapExecutor.execute(new AddValuesTask(entry));
+    }
+  }
+
+
+
+  /**
+   * Adds the unique attribute values contained in the provided entry to the
+   * value map.  Any conflicts that are found will be reported through the
+   * {@link #valueConflictFound} method.
+   *
+   * @param  entry  The entry whose values should be added.
+   */
+  private void addValuesToMap(final Entry entry)
+  {
+    if ((! allowConflictsInSameEntry) && hasConflictsInSameEntry(entry))
+    {
+      return;
+    }
+
+    final String dn = entry.getDN();
+    try
+    {
+      for (int i=0; i < attributes.length; i++)
       {
-        findConflictsPool.close();
+        final String attrName = attributes[i];
+        final String lowerName = StaticUtils.toLowerCase(attrName);
+        for (final Attribute a : entry.getAttributesWithOptions(attrName, null))
+        {
+          for (final ASN1OctetString value : a.getRawValues())
+          {
+            String normalizedValue;
+            try
+            {
+              normalizedValue = matchingRules[i].normalize(value).stringValue();
+            }
+            catch (final LDAPException le)
+            {
+              Debug.debugException(le);
+              normalizedValue = StaticUtils.toLowerCase(value.stringValue());
+            }
+
+            if (uniqueAcrossAttributes)
+            {
+              valueMap.add(normalizedValue, dn, attrName, value.stringValue());
+            }
+            else
+            {
+              valueMap.add(lowerName + ':' + normalizedValue, dn, attrName,
+                   value.stringValue());
+            }
+          }
+        }
+      }
+    }
+    catch (final IOException ioe)
+    {
+      Debug.debugException(ioe);
+      valueMapError.compareAndSet(null, ioe);
+    }
+  }
+
+
+
+  /**
+   * Waits for all values to be added to the value map and identifies any
+   * conflicts among values that did not fit in memory.
+   *
+   * @return  A result code that indicates whether the processing completed
+   *          successfully.
+   */
+  private ResultCode finishSinglePass()
+  {
+    if (valueMapExecutor != null)
+    {
+      valueMapExecutor.shutdown();
+      try
+      {
+        while (! valueMapExecutor.awaitTermination(1L, TimeUnit.SECONDS))
+        {
+          // Keep waiting until all values have been added.
+        }
+      }
+      catch (final InterruptedException ie)
+      {
+        Debug.debugException(ie);
+        Thread.currentThread().interrupt();
+        valueMapError.compareAndSet(null, ie);
+      }
+    }
+
+    if (valueMapError.get() == null)
+    {
+      try
+      {
+        valueMap.finish();
+      }
+      catch (final IOException ioe)
+      {
+        Debug.debugException(ioe);
+        valueMapError.compareAndSet(null, ioe);
+      }
+    }
+
+    final Exception e = valueMapError.get();
+    if (e != null)
+    {
+      err("An error occurred while attempting to identify unique attribute " +
+           "conflicts:  ", StaticUtils.getExceptionMessage(e));
+      return ResultCode.LOCAL_ERROR;
+    }
+
+    return ResultCode.SUCCESS;
+  }
+
+
+
+  /**
+   * Stops any value normalization threads and closes the value map, if they
+   * were created.
+   */
+  private void closeValueMap()
+  {
+    if (valueMapExecutor != null)
+    {
+      valueMapExecutor.shutdownNow();
+    }
+
+    if (valueMap != null)
+    {
+      valueMap.close();
+    }
+  }
+
+
+
+  /**
+   * Indicates that a unique attribute value conflict was found while
+   * identifying conflicts in a single pass.
+   *
+   * @param  attributeName  The name of the unique attribute in which the value
+   *                        was found.
+   * @param  value          The conflicting value.
+   * @param  dn             The DN of the entry containing the value.
+   * @param  conflictingDN  The DN of another entry that contains the same
+   *                        value.
+   */
+  void valueConflictFound(final String attributeName, final String value,
+                          final String dn, final String conflictingDN)
+  {
+    err("Value '", value, "' in attribute ", attributeName, " of entry '" + dn,
+         "' is also present in entry '", conflictingDN, "'.");
+    conflictCounts.get(attributeName).incrementAndGet();
+  }
+
+
+
+  /**
+   * Displays a summary of the uniqueness conflicts that were found.
+   *
+   * @return  A result code that indicates whether any conflicts were found.
+   */
+  private ResultCode reportConflicts()
+  {
+    boolean conflictFound = false;
+    for (final Map.Entry<String,AtomicLong> e : conflictCounts.entrySet())
+    {
+      final long numConflicts = e.getValue().get();
+      if (numConflicts > 0L)
+      {
+        if (! conflictFound)
+        {
+          err();
+          conflictFound = true;
+        }
+
+        err("Found " + numConflicts +
+             " unique value conflicts in attribute " + e.getKey());
       }
     }
+
+    if (conflictFound)
+    {
+      return ResultCode.CONSTRAINT_VIOLATION;
+    }
+    else if (timeLimitExceeded.get())
+    {
+      return ResultCode.TIME_LIMIT_EXCEEDED;
+    }
+    else
+    {
+      out("No unique attribute conflicts were found.");
+      return ResultCode.SUCCESS;
+    }
   }
 
 
@@ -833,50 +1378,20 @@ public final class IdentifyUniqueAttributeConflicts
 
     try
     {
+      // If conflicts are being identified in a single pass, then the entry
+      // just needs to be added to the value map.
+      if (valueMap != null)
+      {
+        submitSinglePassEntry(searchEntry);
+        return;
+      }
+
       // If we need to check for conflicts in the same entry, then do that
       // first.
-      if (! allowConflictsInSameEntry)
+      if ((! allowConflictsInSameEntry) &&
+          hasConflictsInSameEntry(searchEntry))
       {
-        boolean conflictFound = false;
-        for (int i=0; i < attributes.length; i++)
-        {
-          final List<Attribute> l1 =
-               searchEntry.getAttributesWithOptions(attributes[i], null);
-          if (l1 != null)
-          {
-            for (int j=i+1; j < attributes.length; j++)
-            {
-              final List<Attribute> l2 =
-                   searchEntry.getAttributesWithOptions(attributes[j], null);
-              if (l2 != null)
-              {
-                for (final Attribute a1 : l1)
-                {
-                  for (final String value : a1.getValues())
-                  {
-                    for (final Attribute a2 : l2)
-                    {
-                      if (a2.hasValue(value))
-                      {
-                        err("Value '", value, "' in attribute ", a1.getName(),
-                             " of entry '", searchEntry.getDN(),
-                             " is also present in attribute ", a2.getName(),
-                             " of the same entry.");
-                        conflictFound = true;
-                        conflictCounts.get(attributes[i]).incrementAndGet();
-                      }
-                    }
-                  }
-                }
-              }
-            }
-          }
-        }
-
-        if (conflictFound)
-        {
-          return;
-        }
+        return;
       }
 
 
@@ -1013,12 +1528,111 @@ baseDNLoop:
     }
     finally
     {
-      final long count = entriesExamined.incrementAndGet();
-      if ((count % 1000L) == 0L)
+      entryExamined();
+    }
+  }
+
+
+
+  /**
+   * Checks the provided entry for values that appear in more than one of the
+   * unique attributes, reporting each one that is found.
+   *
+   * @param  entry  The entry to examine.
+   *
+   * @return  {@code true} if any conflicts were found in the entry, or
+   *          {@code false} if not.
+   */
+  private boolean hasConflictsInSameEntry(final Entry entry)
+  {
+    boolean conflictFound = false;
+    for (int i=0; i < attributes.length; i++)
+    {
+      final List<Attribute> l1 =
+           entry.getAttributesWithOptions(attributes[i], null);
+      if (l1 != null)
       {
-        out(count, " entries examined");
+        for (int j=i+1; j < attributes.length; j++)
+        {
+          final List<Attribute> l2 =
+               entry.getAttributesWithOptions(attributes[j], null);
+          if (l2 != null)
+          {
+            for (final Attribute a1 : l1)
+            {
+              for (final String value : a1.getValues())
+              {
+                for (final Attribute a2 : l2)
+                {
+                  if (a2.hasValue(value))
+                  {
+                    err("Value '", value, "' in attribute ", a1.getName(),
+                         " of entry '", entry.getDN(),
+                         " is also present in attribute ", a2.getName(),
+                         " of the same entry.");
+                    conflictFound = true;
+                    conflictCounts.get(attributes[i]).incrementAndGet();
+                  }
+                }
+              }
+            }
+          }
+        }
       }
     }
+
+    return conflictFound;
+  }
+
+
+
+  /**
+   * Increments the number of entries examined, and displays a progress message
+   * after every thousand entries.
+   */
+  private void entryExamined()
+  {
+    final long count = entriesExamined.incrementAndGet();
+    if ((count % 1000L) == 0L)
+    {
+      out(count, " entries examined");
+    }
+  }
+
+
+
+  /**
+   * This class provides a task that may be used to add the values of an entry
+   * to the value map in a worker thread.
+   */
+  private final class AddValuesTask
+          implements Runnable
+  {
+    // The entry whose values should be added.
+    private final Entry entry;
+
+
+
+    /**
+     * Creates a new task for the provided entry.
+     *
+     * @param  entry  The entry whose values should be added.
+     */
+    private AddValuesTask(final Entry entry)
+    {
+      this.entry = entry;
+    }
+
+
+
+    /**
+     * Adds the values of the entry to the value map.
+     */
+    @Override()
+    public void run()
+    {
+      addValuesToMap(entry);
+    }
   }
 
 
@@ -24,6 +24,7 @@ package com.unboundid.ldap.sdk.examples;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.PrintStream;
 import java.io.Serializable;
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -39,6 +40,7 @@ import com.unboundid.ldap.sdk.Control;
 import com.unboundid.ldap.sdk.LDAPConnection;
 import com.unboundid.ldap.sdk.LDAPConnectionOptions;
 import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.ResponseTimeHistogram;
 import com.unboundid.ldap.sdk.ResultCode;
 import com.unboundid.ldap.sdk.Version;
 import com.unboundid.ldap.sdk.controls.AssertionRequestControl;
@@ -134,6 +136,12 @@ import static com.unboundid.util.StaticUtils.*;
  *       If this option is not provided, then the tool will either use a fixed
  *       target rate as specified by the "--ratePerSecond" argument, or it will
  *       run at the maximum rate.</LI>
+ *   <LI>"--rateLimiterBurstSize {num}" -- specifies that the target rate
+ *       should be enforced with a lock-free token bucket rather than a
+ *       synchronized barrier, and the maximum number of operations that may
+ *       be released at once in an attempt to catch up after falling behind
+ *       the target rate.  This may only be used in conjunction with the
+ *       "--ratePerSecond" or "--variableRateData" arguments.</LI>
  *   <LI>"--generateSampleRateFile {path}" -- specifies the path to a file to
  *       which sample data will be written illustrating and describing the
  *       format of the file expected to be used in conjunction with the
@@ -149,6 +157,18 @@ import static com.unboundid.util.StaticUtils.*;
  *       using an alternate authorization identity.  In this case, the bind DN
  *       should be that of a user that has permission to use this control.  The
  *       authorization identity may be a value pattern.</LI>
+ *   <LI>"--openLoop" -- Indicates that the tool should operate as an open-loop
+ *       load generator, in which modify requests will be issued
+ *       asynchronously at the target rate regardless of whether responses to
+ *       earlier requests have been received, and the duration of each
+ *       modification will be measured from the time that it was scheduled to
+ *       start rather than the time that it actually started.  This may only
+ *       be used in conjunction with the "--ratePerSecond" or
+ *       "--variableRateData" arguments.</LI>
+ *   <LI>"--latencyHistogramFile {path}" -- specifies the path to a file to
+ *       which the full distribution of modification durations will be
+ *       written in the percentile distribution format used by
+ *       HdrHistogram.</LI>
  *   <LI>"--suppressErrorResultCodes" -- Indicates that information about the
  *       result codes for failed operations should not be displayed.</LI>
  *   <LI>"-c" or "--csv" -- Generate output in CSV format rather than a
@@ -177,6 +197,10 @@ public final class ModRate
   // of replace.
   private BooleanArgument increment;
 
+  // The argument used to indicate whether to operate as an open-loop load
+  // generator.
+  private BooleanArgument openLoop;
+
   // Indicates that modify requests should include the permissive modify request
   // control.
   private BooleanArgument permissiveModify;
@@ -189,6 +213,10 @@ public final class ModRate
   // the request.
   private ControlArgument control;
 
+  // The argument used to specify the file to which the distribution of
+  // modification durations should be written.
+  private FileArgument latencyHistogramFile;
+
   // The argument used to specify a variable rate file.
   private FileArgument sampleRateFile;
 
@@ -220,6 +248,10 @@ public final class ModRate
   // generator.
   private IntegerArgument randomSeed;
 
+  // The maximum number of operations that may be released at once when using
+  // a token bucket to enforce the target rate.
+  private IntegerArgument rateLimiterBurstSize;
+
   // The target rate of modifies per second.
   private IntegerArgument ratePerSecond;
 
@@ -689,6 +721,22 @@ public final class ModRate
     variableRateData.addLongIdentifier("variable-rate-data");
     parser.addArgument(variableRateData);
 
+    description = "Indicates that the target rate should be enforced with a " +
+                  "lock-free token bucket rather than a synchronized " +
+                  "barrier, which can reduce contention at high rates and " +
+                  "with many threads, and specifies the maximum number of " +
+                  "operations that may be released at once in an attempt " +
+                  "to catch up after falling behind the target rate.  This " +
+                  "may only be used in conjunction with either the " +
+                  "--ratePerSecond or --variableRateData argument.";
+    rateLimiterBurstSize = new IntegerArgument(null, "rateLimiterBurstSize",
+         false, 1, "{num}", description, 1, Integer.MAX_VALUE);
+    rateLimiterBurstSize.setArgumentGroupName("Rate Management Arguments");
+    rateLimiterBurstSize.addLongIdentifier("rate-limiter-burst-size");
+    parser.addArgument(rateLimiterBurstSize);
+    parser.addDependentArgumentSet(rateLimiterBurstSize, ratePerSecond,
+         variableRateData);
+
     description = RateAdjustor.getGenerateSampleVariableRateFileDescription(
          variableRateDataArgName);
     sampleRateFile = new FileArgument(null, generateSampleRateFileArgName,
@@ -725,6 +773,34 @@ public final class ModRate
     timestampFormat.addLongIdentifier("timestamp-format");
     parser.addArgument(timestampFormat);
 
+    description = "Indicates that the tool should operate as an open-loop " +
+                  "load generator.  Modify requests will be issued " +
+                  "asynchronously at the target rate regardless of whether " +
+                  "responses to earlier requests have been received, and " +
+                  "the duration of each modification will be measured from " +
+                  "the time that it was scheduled to start rather than the " +
+                  "time that it actually started, so that delays in " +
+                  "starting modifications (for example, because the server " +
+                  "is slow to respond) are reflected in the durations that " +
+                  "are reported.  This may only be used in conjunction with " +
+                  "either the --ratePerSecond or --variableRateData " +
+                  "argument.";
+    openLoop = new BooleanArgument(null, "openLoop", 1, description);
+    openLoop.setArgumentGroupName("Rate Management Arguments");
+    openLoop.addLongIdentifier("open-loop");
+    parser.addArgument(openLoop);
+    parser.addDependentArgumentSet(openLoop, ratePerSecond, variableRateData);
+
+    description = "The path to a file to which the full distribution of " +
+                  "modification durations will be written when the tool " +
+                  "completes, in the percentile distribution format used by " +
+                  "HdrHistogram.  Durations recorded during warm-up " +
+                  "intervals will not be included.";
+    latencyHistogramFile = new FileArgument(null, "latencyHistogramFile",
+         false, 1, "{path}", description, false, true, true, false);
+    latencyHistogramFile.addLongIdentifier("latency-histogram-file");
+    parser.addArgument(latencyHistogramFile);
+
     description = "Indicates that information about the result codes for " +
                   "failed operations should not be displayed.";
     suppressErrorsArgument = new BooleanArgument(null,
@@ -786,7 +862,7 @@ public final class ModRate
   public LDAPConnectionOptions getConnectionOptions()
   {
     final LDAPConnectionOptions options = new LDAPConnectionOptions();
-    options.setUseSynchronousMode(true);
+    options.setUseSynchronousMode(! openLoop.isPresent());
     return options;
   }
 
@@ -950,8 +1026,33 @@ public final class ModRate
            (ratePerSecond.getValue() == null)
            ? Integer.MAX_VALUE
            : ratePerSecond.getValue() * intervalSeconds;
-      fixedRateBarrier =
-           new FixedRateBarrier(1000L * intervalSeconds, ratePerInterval);
+      if (openLoop.isPresent())
+      {
+        // In open-loop mode, operations that fall behind schedule should
+        // still be started rather than skipped unless a burst size is given.
+        final int burstSize;
+        if (rateLimiterBurstSize.isPresent())
+        {
+          burstSize = rateLimiterBurstSize.getValue();
+        }
+        else
+        {
+          burstSize = Integer.MAX_VALUE;
+        }
+
+        fixedRateBarrier = new FixedRateBarrier(1000L * intervalSeconds,
+             ratePerInterval, burstSize);
+      }
+      else if (rateLimiterBurstSize.isPresent())
+      {
+        fixedRateBarrier = new FixedRateBarrier(1000L * intervalSeconds,
+             ratePerInterval, rateLimiterBurstSize.getValue());
+      }
+      else
+      {
+        fixedRateBarrier =
+             new FixedRateBarrier(1000L * intervalSeconds, ratePerInterval);
+      }
     }
 
 
@@ -1047,6 +1148,16 @@ public final class ModRate
     final AtomicLong        modDurations = new AtomicLong(0L);
     final ResultCodeCounter rcCounter    = new ResultCodeCounter();
 
+    final ResponseTimeHistogram latencyHistogram;
+    if (latencyHistogramFile.isPresent())
+    {
+      latencyHistogram = new ResponseTimeHistogram();
+    }
+    else
+    {
+      latencyHistogram = null;
+    }
+
 
     // Determine the length of each interval in milliseconds.
     final long intervalMillis = 1000L * collectionInterval.getValue();
@@ -1080,7 +1191,8 @@ public final class ModRate
            increment.isPresent(), incrementAmount.getValue(), controlArray,
            authzIDPattern, random.nextLong(),
            iterationsBeforeReconnect.getValue(), barrier, modCounter,
-           modDurations, errorCounter, rcCounter, fixedRateBarrier);
+           modDurations, errorCounter, rcCounter, fixedRateBarrier,
+           openLoop.isPresent(), latencyHistogram);
       threads[i].start();
     }
 
@@ -1156,6 +1268,11 @@ public final class ModRate
         numMods       = modCounter.getAndSet(0L);
         numErrors     = errorCounter.getAndSet(0L);
         totalDuration = modDurations.getAndSet(0L);
+
+        if (latencyHistogram != null)
+        {
+          latencyHistogram.reset();
+        }
       }
       else
       {
@@ -1259,6 +1376,36 @@ public final class ModRate
       }
     }
 
+
+    // If appropriate, write the distribution of modification durations.
+    if (latencyHistogram != null)
+    {
+      try
+      {
+        final PrintStream printStream =
+             new PrintStream(latencyHistogramFile.getValue());
+        try
+        {
+          latencyHistogram.writePercentileDistribution(printStream);
+        }
+        finally
+        {
+          printStream.close();
+        }
+      }
+      catch (final IOException e)
+      {
+        debugException(e);
+        err("Unable to write the modification duration distribution to file '",
+             latencyHistogramFile.getValue().getAbsolutePath(), "':  ",
+             getExceptionMessage(e));
+        if (resultCode == ResultCode.SUCCESS)
+        {
+          resultCode = ResultCode.LOCAL_ERROR;
+        }
+      }
+    }
+
     return resultCode;
   }
 
@@ -35,6 +35,7 @@ import com.unboundid.ldap.sdk.LDAPException;
 import com.unboundid.ldap.sdk.Modification;
 import com.unboundid.ldap.sdk.ModificationType;
 import com.unboundid.ldap.sdk.ModifyRequest;
+import com.unboundid.ldap.sdk.ResponseTimeHistogram;
 import com.unboundid.ldap.sdk.ResultCode;
 import com.unboundid.ldap.sdk.controls.ProxiedAuthorizationV2RequestControl;
 import com.unboundid.util.Debug;
@@ -64,6 +65,10 @@ final class ModRateThread
   // The value that will be updated with total duration of the modifications.
   private final AtomicLong modDurations;
 
+  // The counter used to track the number of outstanding asynchronous requests
+  // in open-loop mode.
+  private final AtomicLong outstandingRequests;
+
   // The counter used to track the number of iterations remaining on the
   // current connection.
   private final AtomicLong remainingIterationsBeforeReconnect;
@@ -75,6 +80,11 @@ final class ModRateThread
   // modifications.
   private final boolean increment;
 
+  // Indicates whether to operate in open-loop mode, in which modifications are
+  // issued asynchronously and the duration of each is measured from the time
+  // it was scheduled to be issued.
+  private final boolean openLoop;
+
   // The set of characters to use for the generated values.
   private final byte[] charSet;
 
@@ -104,6 +114,10 @@ final class ModRateThread
   // to establish connections.
   private final ModRate modRate;
 
+  // The histogram used to track the distribution of modification durations, if
+  // any.
+  private final ResponseTimeHistogram latencyHistogram;
+
   // The result code counter to use for failed operations.
   private final ResultCodeCounter rcCounter;
 
@@ -180,6 +194,17 @@ final class ModRateThread
    * @param  rateBarrier                The barrier to use for controlling the
    *                                    rate of modifies.  {@code null} if no
    *                                    rate-limiting should be used.
+   * @param  openLoop                   Indicates whether to operate in
+   *                                    open-loop mode, in which modifications
+   *                                    are issued asynchronously and the
+   *                                    duration of each is measured from the
+   *                                    time that it was scheduled to be issued
+   *                                    rather than from the time that it was
+   *                                    actually issued.
+   * @param  latencyHistogram           The histogram used to track the
+   *                                    distribution of modification durations.
+   *                                    It may be {@code null} if the
+   *                                    distribution should not be tracked.
    */
   ModRateThread(final ModRate modRate, final int threadNumber,
                 final LDAPConnection connection, final ValuePattern entryDN,
@@ -191,7 +216,8 @@ final class ModRateThread
                 final CyclicBarrier startBarrier, final AtomicLong modCounter,
                 final AtomicLong modDurations, final AtomicLong errorCounter,
                 final ResultCodeCounter rcCounter,
-                final FixedRateBarrier rateBarrier)
+                final FixedRateBarrier rateBarrier, final boolean openLoop,
+                final ResponseTimeHistogram latencyHistogram)
   {
     setName("ModRate Thread " + threadNumber);
     setDaemon(true);
@@ -213,6 +239,8 @@ final class ModRateThread
     this.errorCounter              = errorCounter;
     this.rcCounter                 = rcCounter;
     this.startBarrier              = startBarrier;
+    this.openLoop                  = openLoop;
+    this.latencyHistogram          = latencyHistogram;
     fixedRateBarrier               = rateBarrier;
 
     if (iterationsBeforeReconnect > 0L)
@@ -227,10 +255,11 @@ final class ModRateThread
 
     connection.setConnectionName("mod-" + threadNumber);
 
-    resultCode    = new AtomicReference<ResultCode>(null);
-    modThread     = new AtomicReference<Thread>(null);
-    stopRequested = new AtomicBoolean(false);
-    random        = new Random(randomSeed);
+    outstandingRequests = new AtomicLong(0L);
+    resultCode          = new AtomicReference<ResultCode>(null);
+    modThread           = new AtomicReference<Thread>(null);
+    stopRequested       = new AtomicBoolean(false);
+    random              = new Random(randomSeed);
   }
 
 
@@ -339,10 +368,53 @@ final class ModRateThread
 
 
       // If we're trying for a specific target rate, then we might need to
-      // wait until issuing the next modify.
+      // wait until issuing the next modify.  In open-loop mode, we also need
+      // the time that the modify was scheduled to be issued.
+      long scheduledStartTime = 0L;
       if (fixedRateBarrier != null)
       {
-        fixedRateBarrier.await();
+        if (openLoop)
+        {
+          scheduledStartTime = fixedRateBarrier.awaitAndGetScheduledTime();
+        }
+        else
+        {
+          fixedRateBarrier.await();
+        }
+      }
+
+      if (openLoop)
+      {
+        // The request will be referenced until its response is received, so
+        // a separate copy is needed for each asynchronous modification.
+        final ModRateAsyncListener listener = new ModRateAsyncListener(
+             modCounter, modDurations, errorCounter, rcCounter,
+             outstandingRequests, resultCode, scheduledStartTime,
+             latencyHistogram);
+
+        outstandingRequests.incrementAndGet();
+        try
+        {
+          connection.asyncModify(modifyRequest.duplicate(), listener);
+        }
+        catch (final LDAPException le)
+        {
+          Debug.debugException(le);
+          outstandingRequests.decrementAndGet();
+          errorCounter.incrementAndGet();
+
+          final ResultCode rc = le.getResultCode();
+          rcCounter.increment(rc);
+          resultCode.compareAndSet(null, rc);
+
+          if (! le.getResultCode().isConnectionUsable())
+          {
+            connection.close();
+            connection = null;
+          }
+        }
+
+        continue;
       }
 
       final long startTime = System.nanoTime();
@@ -366,8 +438,33 @@ final class ModRateThread
         }
       }
 
+      final long duration = System.nanoTime() - startTime;
       modCounter.incrementAndGet();
-      modDurations.addAndGet(System.nanoTime() - startTime);
+      modDurations.addAndGet(duration);
+      if (latencyHistogram != null)
+      {
+        latencyHistogram.recordValue(duration);
+      }
+    }
+
+    // Wait for all outstanding asynchronous modifications to complete before
+    // closing the connection.
+    while ((connection != null) && (outstandingRequests.get() > 0L))
+    {
+      try
+      {
+        Thread.sleep(1L);
+      }
+      catch (final Exception e)
+      {
+        Debug.debugException(e);
+
+        if (e instanceof InterruptedException)
+        {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
     }
 
     if (connection != null)
@@ -157,6 +157,12 @@ import static com.unboundid.util.StaticUtils.*;
  *       If this option is not provided, then the tool will either use a fixed
  *       target rate as specified by the "--ratePerSecond" argument, or it will
  *       run at the maximum rate.</LI>
+ *   <LI>"--rateLimiterBurstSize {num}" -- specifies that the target rate
+ *       should be enforced with a lock-free token bucket rather than a
+ *       synchronized barrier, and the maximum number of operations that may
+ *       be released at once in an attempt to catch up after falling behind
+ *       the target rate.  This may only be used in conjunction with the
+ *       "--ratePerSecond" or "--variableRateData" arguments.</LI>
  *   <LI>"--generateSampleRateFile {path}" -- specifies the path to a file to
  *       which sample data will be written illustrating and describing the
  *       format of the file expected to be used in conjunction with the
@@ -241,6 +247,10 @@ public final class SearchAndModRate
   // generator.
   private IntegerArgument randomSeed;
 
+  // The maximum number of operations that may be released at once when using
+  // a token bucket to enforce the target rate.
+  private IntegerArgument rateLimiterBurstSize;
+
   // The target rate of operations per second.
   private IntegerArgument ratePerSecond;
 
@@ -756,6 +766,22 @@ public final class SearchAndModRate
     variableRateData.addLongIdentifier("variable-rate-data");
     parser.addArgument(variableRateData);
 
+    description = "Indicates that the target rate should be enforced with a " +
+                  "lock-free token bucket rather than a synchronized " +
+                  "barrier, which can reduce contention at high rates and " +
+                  "with many threads, and specifies the maximum number of " +
+                  "operations that may be released at once in an attempt " +
+                  "to catch up after falling behind the target rate.  This " +
+                  "may only be used in conjunction with either the " +
+                  "--ratePerSecond or --variableRateData argument.";
+    rateLimiterBurstSize = new IntegerArgument(null, "rateLimiterBurstSize",
+         false, 1, "{num}", description, 1, Integer.MAX_VALUE);
+    rateLimiterBurstSize.setArgumentGroupName("Rate Management Arguments");
+    rateLimiterBurstSize.addLongIdentifier("rate-limiter-burst-size");
+    parser.addArgument(rateLimiterBurstSize);
+    parser.addDependentArgumentSet(rateLimiterBurstSize, ratePerSecond,
+         variableRateData);
+
     description = RateAdjustor.getGenerateSampleVariableRateFileDescription(
          variableRateDataArgName);
     sampleRateFile = new FileArgument(null, generateSampleRateFileArgName,
@@ -1044,8 +1070,16 @@ public final class SearchAndModRate
            (ratePerSecond.getValue() == null)
            ? Integer.MAX_VALUE
            : ratePerSecond.getValue() * intervalSeconds;
-      fixedRateBarrier =
-           new FixedRateBarrier(1000L * intervalSeconds, ratePerInterval);
+      if (rateLimiterBurstSize.isPresent())
+      {
+        fixedRateBarrier = new FixedRateBarrier(1000L * intervalSeconds,
+             ratePerInterval, rateLimiterBurstSize.getValue());
+      }
+      else
+      {
+        fixedRateBarrier =
+             new FixedRateBarrier(1000L * intervalSeconds, ratePerInterval);
+      }
     }
 
 
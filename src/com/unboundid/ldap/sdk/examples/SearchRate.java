@@ -24,6 +24,7 @@ package com.unboundid.ldap.sdk.examples;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.PrintStream;
 import java.io.Serializable;
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -40,6 +41,7 @@ import com.unboundid.ldap.sdk.Control;
 import com.unboundid.ldap.sdk.LDAPConnection;
 import com.unboundid.ldap.sdk.LDAPConnectionOptions;
 import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.ResponseTimeHistogram;
 import com.unboundid.ldap.sdk.ResultCode;
 import com.unboundid.ldap.sdk.SearchScope;
 import com.unboundid.ldap.sdk.Version;
@@ -139,6 +141,12 @@ import static com.unboundid.util.StaticUtils.*;
  *       If this option is not provided, then the tool will either use a fixed
  *       target rate as specified by the "--ratePerSecond" argument, or it will
  *       run at the maximum rate.</LI>
+ *   <LI>"--rateLimiterBurstSize {num}" -- specifies that the target rate
+ *       should be enforced with a lock-free token bucket rather than a
+ *       synchronized barrier, and the maximum number of operations that may
+ *       be released at once in an attempt to catch up after falling behind
+ *       the target rate.  This may only be used in conjunction with the
+ *       "--ratePerSecond" or "--variableRateData" arguments.</LI>
  *   <LI>"--generateSampleRateFile {path}" -- specifies the path to a file to
  *       which sample data will be written illustrating and describing the
  *       format of the file expected to be used in conjunction with the
@@ -162,6 +170,16 @@ import static com.unboundid.util.StaticUtils.*;
  *   <LI>"-O {num}" or "--maxOutstandingRequests {num}" -- Specifies the maximum
  *       number of outstanding requests that will be allowed in asynchronous
  *       mode.</LI>
+ *   <LI>"--openLoop" -- Indicates that the tool should operate as an open-loop
+ *       load generator, in which searches will be issued asynchronously at
+ *       the target rate regardless of whether responses to earlier searches
+ *       have been received, and the duration of each search will be measured
+ *       from the time that it was scheduled to start rather than the time that
+ *       it actually started.  This may only be used in conjunction with the
+ *       "--ratePerSecond" or "--variableRateData" arguments.</LI>
+ *   <LI>"--latencyHistogramFile {path}" -- specifies the path to a file to
+ *       which the full distribution of search durations will be written
+ *       in the percentile distribution format used by HdrHistogram.</LI>
  *   <LI>"--suppressErrorResultCodes" -- Indicates that information about the
  *       result codes for failed operations should not be displayed.</LI>
  *   <LI>"-c" or "--csv" -- Generate output in CSV format rather than a
@@ -189,6 +207,10 @@ public final class SearchRate
   // The argument used to indicate whether to generate output in CSV format.
   private BooleanArgument csvFormat;
 
+  // The argument used to indicate whether to operate as an open-loop load
+  // generator.
+  private BooleanArgument openLoop;
+
   // The argument used to indicate whether to suppress information about error
   // result codes.
   private BooleanArgument suppressErrors;
@@ -197,6 +219,10 @@ public final class SearchRate
   // the request.
   private ControlArgument control;
 
+  // The argument used to specify the file to which the distribution of
+  // search durations should be written.
+  private FileArgument latencyHistogramFile;
+
   // The argument used to specify a variable rate file.
   private FileArgument sampleRateFile;
 
@@ -228,6 +254,10 @@ public final class SearchRate
   // generator.
   private IntegerArgument randomSeed;
 
+  // The maximum number of operations that may be released at once when using
+  // a token bucket to enforce the target rate.
+  private IntegerArgument rateLimiterBurstSize;
+
   // The target rate of searches per second.
   private IntegerArgument ratePerSecond;
 
@@ -656,6 +686,22 @@ public final class SearchRate
     variableRateData.addLongIdentifier("variable-rate-data");
     parser.addArgument(variableRateData);
 
+    description = "Indicates that the target rate should be enforced with a " +
+                  "lock-free token bucket rather than a synchronized " +
+                  "barrier, which can reduce contention at high rates and " +
+                  "with many threads, and specifies the maximum number of " +
+                  "operations that may be released at once in an attempt " +
+                  "to catch up after falling behind the target rate.  This " +
+                  "may only be used in conjunction with either the " +
+                  "--ratePerSecond or --variableRateData argument.";
+    rateLimiterBurstSize = new IntegerArgument(null, "rateLimiterBurstSize",
+         false, 1, "{num}", description, 1, Integer.MAX_VALUE);
+    rateLimiterBurstSize.setArgumentGroupName("Rate Management Arguments");
+    rateLimiterBurstSize.addLongIdentifier("rate-limiter-burst-size");
+    parser.addArgument(rateLimiterBurstSize);
+    parser.addDependentArgumentSet(rateLimiterBurstSize, ratePerSecond,
+         variableRateData);
+
     description = RateAdjustor.getGenerateSampleVariableRateFileDescription(
          variableRateDataArgName);
     sampleRateFile = new FileArgument(null, generateSampleRateFileArgName,
@@ -708,6 +754,33 @@ public final class SearchRate
     maxOutstandingRequests.addLongIdentifier("max-outstanding-requests");
     parser.addArgument(maxOutstandingRequests);
 
+    description = "Indicates that the tool should operate as an open-loop " +
+                  "load generator.  Searches will be issued asynchronously " +
+                  "at the target rate regardless of whether responses to " +
+                  "earlier searches have been received, and the duration of " +
+                  "each search will be measured from the time that it was " +
+                  "scheduled to start rather than the time that it actually " +
+                  "started, so that delays in starting searches (for " +
+                  "example, because the server is slow to respond) are " +
+                  "reflected in the durations that are reported.  This may " +
+                  "only be used in conjunction with either the " +
+                  "--ratePerSecond or --variableRateData argument.";
+    openLoop = new BooleanArgument(null, "openLoop", 1, description);
+    openLoop.setArgumentGroupName("Rate Management Arguments");
+    openLoop.addLongIdentifier("open-loop");
+    parser.addArgument(openLoop);
+    parser.addDependentArgumentSet(openLoop, ratePerSecond, variableRateData);
+
+    description = "The path to a file to which the full distribution of " +
+                  "search durations will be written when the tool " +
+                  "completes, in the percentile distribution format used by " +
+                  "HdrHistogram.  Durations recorded during warm-up " +
+                  "intervals will not be included.";
+    latencyHistogramFile = new FileArgument(null, "latencyHistogramFile",
+         false, 1, "{path}", description, false, true, true, false);
+    latencyHistogramFile.addLongIdentifier("latency-histogram-file");
+    parser.addArgument(latencyHistogramFile);
+
     description = "Indicates that information about the result codes for " +
                   "failed operations should not be displayed.";
     suppressErrors = new BooleanArgument(null,
@@ -729,9 +802,11 @@ public final class SearchRate
 
     parser.addDependentArgumentSet(asynchronousMode, ratePerSecond,
          maxOutstandingRequests);
-    parser.addDependentArgumentSet(maxOutstandingRequests, asynchronousMode);
+    parser.addDependentArgumentSet(maxOutstandingRequests, asynchronousMode,
+         openLoop);
 
     parser.addExclusiveArgumentSet(asynchronousMode, simplePageSize);
+    parser.addExclusiveArgumentSet(openLoop, simplePageSize);
   }
 
 
@@ -765,7 +840,8 @@ public final class SearchRate
   public LDAPConnectionOptions getConnectionOptions()
   {
     final LDAPConnectionOptions options = new LDAPConnectionOptions();
-    options.setUseSynchronousMode(! asynchronousMode.isPresent());
+    options.setUseSynchronousMode(! (asynchronousMode.isPresent() ||
+         openLoop.isPresent()));
     return options;
   }
 
@@ -966,8 +1042,33 @@ public final class SearchRate
            (ratePerSecond.getValue() == null)
            ? Integer.MAX_VALUE
            : ratePerSecond.getValue() * intervalSeconds;
-      fixedRateBarrier =
-           new FixedRateBarrier(1000L * intervalSeconds, ratePerInterval);
+      if (openLoop.isPresent())
+      {
+        // In open-loop mode, operations that fall behind schedule should
+        // still be started rather than skipped unless a burst size is given.
+        final int burstSize;
+        if (rateLimiterBurstSize.isPresent())
+        {
+          burstSize = rateLimiterBurstSize.getValue();
+        }
+        else
+        {
+          burstSize = Integer.MAX_VALUE;
+        }
+
+        fixedRateBarrier = new FixedRateBarrier(1000L * intervalSeconds,
+             ratePerInterval, burstSize);
+      }
+      else if (rateLimiterBurstSize.isPresent())
+      {
+        fixedRateBarrier = new FixedRateBarrier(1000L * intervalSeconds,
+             ratePerInterval, rateLimiterBurstSize.getValue());
+      }
+      else
+      {
+        fixedRateBarrier =
+             new FixedRateBarrier(1000L * intervalSeconds, ratePerInterval);
+      }
     }
 
 
@@ -1079,6 +1180,16 @@ public final class SearchRate
     final AtomicLong        searchDurations = new AtomicLong(0L);
     final ResultCodeCounter rcCounter       = new ResultCodeCounter();
 
+    final ResponseTimeHistogram latencyHistogram;
+    if (latencyHistogramFile.isPresent())
+    {
+      latencyHistogram = new ResponseTimeHistogram();
+    }
+    else
+    {
+      latencyHistogram = null;
+    }
+
 
     // Determine the length of each interval in milliseconds.
     final long intervalMillis = 1000L * collectionInterval.getValue();
@@ -1104,11 +1215,12 @@ public final class SearchRate
       }
 
       threads[i] = new SearchRateThread(this, i, connection,
-           asynchronousMode.isPresent(), dnPattern, scopeArg.getValue(),
+           (asynchronousMode.isPresent() || openLoop.isPresent()),
+           openLoop.isPresent(), dnPattern, scopeArg.getValue(),
            filterPattern, attrs, authzIDPattern, simplePageSize.getValue(),
            controlList, iterationsBeforeReconnect.getValue(), barrier,
            searchCounter, entryCounter, searchDurations, errorCounter,
-           rcCounter, fixedRateBarrier, asyncSemaphore);
+           rcCounter, fixedRateBarrier, asyncSemaphore, latencyHistogram);
       threads[i].start();
     }
 
@@ -1187,6 +1299,11 @@ public final class SearchRate
         numEntries    = entryCounter.getAndSet(0L);
         numErrors     = errorCounter.getAndSet(0L);
         totalDuration = searchDurations.getAndSet(0L);
+
+        if (latencyHistogram != null)
+        {
+          latencyHistogram.reset();
+        }
       }
       else
       {
@@ -1305,6 +1422,36 @@ public final class SearchRate
       }
     }
 
+
+    // If appropriate, write the distribution of search durations.
+    if (latencyHistogram != null)
+    {
+      try
+      {
+        final PrintStream printStream =
+             new PrintStream(latencyHistogramFile.getValue());
+        try
+        {
+          latencyHistogram.writePercentileDistribution(printStream);
+        }
+        finally
+        {
+          printStream.close();
+        }
+      }
+      catch (final IOException e)
+      {
+        debugException(e);
+        err("Unable to write the search duration distribution to file '",
+             latencyHistogramFile.getValue().getAbsolutePath(), "':  ",
+             getExceptionMessage(e));
+        if (resultCode == ResultCode.SUCCESS)
+        {
+          resultCode = ResultCode.LOCAL_ERROR;
+        }
+      }
+    }
+
     return resultCode;
   }
 
@@ -28,6 +28,7 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import com.unboundid.ldap.sdk.AsyncRequestID;
 import com.unboundid.ldap.sdk.AsyncSearchResultListener;
+import com.unboundid.ldap.sdk.ResponseTimeHistogram;
 import com.unboundid.ldap.sdk.ResultCode;
 import com.unboundid.ldap.sdk.SearchResult;
 import com.unboundid.ldap.sdk.SearchResultEntry;
@@ -65,9 +66,13 @@ final class SearchRateAsyncListener
   // The result code for the search.
   private final AtomicReference<ResultCode> resultCode;
 
-  // The time that the search was invoked, in nanoseconds.
+  // The time that the search was invoked (or was scheduled to be invoked), in
+  // nanoseconds.
   private final long startTime;
 
+  // The histogram used to track the distribution of search durations, if any.
+  private final ResponseTimeHistogram latencyHistogram;
+
   // The result code counter to use for failed operations.
   private final ResultCodeCounter rcCounter;
 
@@ -80,19 +85,25 @@ final class SearchRateAsyncListener
   /**
    * Creates a new instance of this listener with the provided information.
    *
-   * @param  searchCounter    A value that will be used to keep track of the
-   *                          total number of searches performed.
-   * @param  entryCounter     A value that will be used to keep track of the
-   *                          total number of entries returned.
-   * @param  searchDurations  A value that will be used to keep track of the
-   *                          total duration for all searches.
-   * @param  errorCounter     A value that will be used to keep track of the
-   *                          number of errors encountered while searching.
-   * @param  rcCounter        The result code counter to use for keeping track
-   *                          of the result codes for failed operations.
-   * @param  asyncSemaphore   The semaphore used ot limit the total number of
-   *                          outstanding asynchronous requests.
-   * @param  resultCode       The result code for the search thread.
+   * @param  searchCounter     A value that will be used to keep track of the
+   *                           total number of searches performed.
+   * @param  entryCounter      A value that will be used to keep track of the
+   *                           total number of entries returned.
+   * @param  searchDurations   A value that will be used to keep track of the
+   *                           total duration for all searches.
+   * @param  errorCounter      A value that will be used to keep track of the
+   *                           number of errors encountered while searching.
+   * @param  rcCounter         The result code counter to use for keeping track
+   *                           of the result codes for failed operations.
+   * @param  asyncSemaphore    The semaphore used ot limit the total number of
+   *                           outstanding asynchronous requests.
+   * @param  resultCode        The result code for the search thread.
+   * @param  startTime         The time, in terms of {@code System.nanoTime()},
+   *                           from which the duration of the search should be
+   *                           measured.
+   * @param  latencyHistogram  The histogram used to track the distribution of
+   *                           search durations.  It may be {@code null} if the
+   *                           distribution should not be tracked.
    */
   SearchRateAsyncListener(final AtomicLong searchCounter,
                           final AtomicLong entryCounter,
@@ -100,17 +111,19 @@ final class SearchRateAsyncListener
                           final AtomicLong errorCounter,
                           final ResultCodeCounter rcCounter,
                           final Semaphore asyncSemaphore,
-                          final AtomicReference<ResultCode> resultCode)
+                          final AtomicReference<ResultCode> resultCode,
+                          final long startTime,
+                          final ResponseTimeHistogram latencyHistogram)
   {
-    this.searchCounter   = searchCounter;
-    this.entryCounter    = entryCounter;
-    this.searchDurations = searchDurations;
-    this.errorCounter    = errorCounter;
-    this.rcCounter       = rcCounter;
-    this.asyncSemaphore  = asyncSemaphore;
-    this.resultCode      = resultCode;
-
-    startTime = System.nanoTime();
+    this.searchCounter    = searchCounter;
+    this.entryCounter     = entryCounter;
+    this.searchDurations  = searchDurations;
+    this.errorCounter     = errorCounter;
+    this.rcCounter        = rcCounter;
+    this.asyncSemaphore   = asyncSemaphore;
+    this.resultCode       = resultCode;
+    this.startTime        = startTime;
+    this.latencyHistogram = latencyHistogram;
   }
 
 
@@ -145,7 +158,12 @@ final class SearchRateAsyncListener
   public void searchResultReceived(final AsyncRequestID requestID,
                                    final SearchResult searchResult)
   {
-    searchDurations.addAndGet(System.nanoTime() - startTime);
+    final long duration = System.nanoTime() - startTime;
+    searchDurations.addAndGet(duration);
+    if (latencyHistogram != null)
+    {
+      latencyHistogram.recordValue(duration);
+    }
 
     if (asyncSemaphore != null)
     {
@@ -34,6 +34,7 @@ import com.unboundid.ldap.sdk.Filter;
 import com.unboundid.ldap.sdk.LDAPConnection;
 import com.unboundid.ldap.sdk.LDAPException;
 import com.unboundid.ldap.sdk.LDAPSearchException;
+import com.unboundid.ldap.sdk.ResponseTimeHistogram;
 import com.unboundid.ldap.sdk.ResultCode;
 import com.unboundid.ldap.sdk.SearchRequest;
 import com.unboundid.ldap.sdk.SearchResult;
@@ -89,6 +90,10 @@ final class SearchRateThread
   // Indicates whether to operate in asynchronous mode.
   private final boolean async;
 
+  // Indicates whether to operate in open-loop mode, in which the duration of
+  // each search is measured from the time it was scheduled to be issued.
+  private final boolean openLoop;
+
   // The connection to use for the searches.
   private LDAPConnection connection;
 
@@ -111,6 +116,9 @@ final class SearchRateThread
   // The result code counter to use for failed operations.
   private final ResultCodeCounter rcCounter;
 
+  // The histogram used to track the distribution of search durations, if any.
+  private final ResponseTimeHistogram latencyHistogram;
+
   // A reference to the searchrate tool.
   private final SearchRate searchRate;
 
@@ -151,6 +159,12 @@ final class SearchRateThread
    * @param  connection                 The connection to use for the searches.
    * @param  async                      Indicates whether to operate in
    *                                    asynchronous mode.
+   * @param  openLoop                   Indicates whether to operate in
+   *                                    open-loop mode, in which the duration
+   *                                    of each search is measured from the
+   *                                    time that it was scheduled to be issued
+   *                                    rather than from the time that it was
+   *                                    actually issued.
    * @param  baseDN                     The value pattern to use for the base
    *                                    DNs.
    * @param  scope                      The scope to use for the searches.
@@ -193,9 +207,14 @@ final class SearchRateThread
    * @param  asyncSemaphore             The semaphore used ot limit the total
    *                                    number of outstanding asynchronous
    *                                    requests.
+   * @param  latencyHistogram           The histogram used to track the
+   *                                    distribution of search durations.  It
+   *                                    may be {@code null} if the distribution
+   *                                    should not be tracked.
    */
   SearchRateThread(final SearchRate searchRate, final int threadNumber,
                    final LDAPConnection connection, final boolean async,
+                   final boolean openLoop,
                    final ValuePattern baseDN, final SearchScope scope,
                    final ValuePattern filter, final String[] attributes,
                    final ValuePattern authzID,
@@ -209,7 +228,8 @@ final class SearchRateThread
                    final AtomicLong errorCounter,
                    final ResultCodeCounter rcCounter,
                    final FixedRateBarrier rateBarrier,
-                   final Semaphore asyncSemaphore)
+                   final Semaphore asyncSemaphore,
+                   final ResponseTimeHistogram latencyHistogram)
   {
     setName("SearchRate Thread " + threadNumber);
     setDaemon(true);
@@ -217,6 +237,7 @@ final class SearchRateThread
     this.searchRate                = searchRate;
     this.connection                = connection;
     this.async                     = async;
+    this.openLoop                  = openLoop;
     this.baseDN                    = baseDN;
     this.scope                     = scope;
     this.filter                    = filter;
@@ -232,6 +253,7 @@ final class SearchRateThread
     this.rcCounter                 = rcCounter;
     this.startBarrier              = startBarrier;
     this.asyncSemaphore            = asyncSemaphore;
+    this.latencyHistogram          = latencyHistogram;
     fixedRateBarrier               = rateBarrier;
 
     if (iterationsBeforeReconnect > 0L)
@@ -311,10 +333,19 @@ final class SearchRateThread
       }
 
       // If we're trying for a specific target rate, then we might need to
-      // wait until issuing the next search.
+      // wait until issuing the next search.  In open-loop mode, we also need
+      // the time that the search was scheduled to be issued.
+      long scheduledStartTime = 0L;
       if (fixedRateBarrier != null)
       {
-        fixedRateBarrier.await();
+        if (openLoop)
+        {
+          scheduledStartTime = fixedRateBarrier.awaitAndGetScheduledTime();
+        }
+        else
+        {
+          fixedRateBarrier.await();
+        }
       }
 
       ProxiedAuthorizationV2RequestControl proxyControl = null;
@@ -340,7 +371,9 @@ final class SearchRateThread
 
         final SearchRateAsyncListener listener = new SearchRateAsyncListener(
              searchCounter, entryCounter, searchDurations, errorCounter,
-             rcCounter, asyncSemaphore, resultCode);
+             rcCounter, asyncSemaphore, resultCode,
+             (openLoop ? scheduledStartTime : System.nanoTime()),
+             latencyHistogram);
 
         try
         {
@@ -472,9 +505,14 @@ final class SearchRateThread
           }
         }
 
+        final long duration = System.nanoTime() - startTime;
         searchCounter.incrementAndGet();
-        searchDurations.addAndGet(System.nanoTime() - startTime);
+        searchDurations.addAndGet(duration);
         entryCounter.addAndGet(entriesReturned);
+        if (latencyHistogram != null)
+        {
+          latencyHistogram.recordValue(duration);
+        }
       }
     }
 
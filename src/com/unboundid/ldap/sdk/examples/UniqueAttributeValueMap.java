@@ -0,0 +1,526 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk.examples;
+
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.util.Debug;
+import com.unboundid.util.StaticUtils;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+
+
+/**
+ * This class provides a data structure that will be used by the
+ * {@link IdentifyUniqueAttributeConflicts} tool to keep track of the
+ * normalized unique attribute values that it has seen and the first entry in
+ * which each value was found, so that conflicts can be identified without
+ * issuing a search for each value.  Values are held in memory until a
+ * configurable limit is reached, after which all values (including those that
+ * were already in memory) are written to a set of temporary partition files
+ * based on a hash of the normalized value.  Each partition is then examined
+ * separately once all of the values have been added, so that only one
+ * partition needs to be held in memory at a time.
+ */
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class UniqueAttributeValueMap
+{
+  /**
+   * The number of partitions into which values will be divided when they no
+   * longer fit in memory.
+   */
+  static final int NUM_PARTITIONS = 32;
+
+
+
+  // Indicates whether this map has been closed.
+  private boolean closed;
+
+  // The streams used to write values to the partition files, or null if the
+  // values still fit in memory.
+  private DataOutputStream[] partitionStreams;
+
+  // The partition files, or null if the values still fit in memory.
+  private File[] partitionFiles;
+
+  // The directory in which partition files should be created.
+  private final File tempDirectory;
+
+  // The tool that will be notified about conflicts.
+  private final IdentifyUniqueAttributeConflicts tool;
+
+  // The estimated number of bytes used by the values held in memory.
+  private long bytesInMemory;
+
+  // The maximum number of bytes that may be used by values held in memory.
+  private final long maxBytesInMemory;
+
+  // The values held in memory, mapped from the normalized value to the first
+  // occurrence of that value.
+  private HashMap<String,Occurrence> valueMap;
+
+
+
+  /**
+   * Creates a new unique attribute value map with the provided information.
+   *
+   * @param  tool              The tool that will be notified about conflicts.
+   * @param  maxBytesInMemory  The maximum number of bytes that may be used to
+   *                           hold values in memory.
+   * @param  tempDirectory     The directory in which partition files should be
+   *                           created.  It may be {@code null} if the JVM's
+   *                           default temporary directory should be used.
+   */
+  UniqueAttributeValueMap(final IdentifyUniqueAttributeConflicts tool,
+                          final long maxBytesInMemory,
+                          final File tempDirectory)
+  {
+    this.tool             = tool;
+    this.maxBytesInMemory = maxBytesInMemory;
+    this.tempDirectory    = tempDirectory;
+
+    closed           = false;
+    partitionFiles   = null;
+    partitionStreams = null;
+    bytesInMemory    = 0L;
+    valueMap         = new HashMap<String,Occurrence>(1000);
+  }
+
+
+
+  /**
+   * Adds the provided value to this map.  If the values still fit in memory and
+   * the value has already been seen in a different entry, then the tool will
+   * be notified of the conflict immediately.  Otherwise, conflicts will be
+   * identified when the {@link #finish} method is called.
+   *
+   * @param  normalizedValue  The normalized representation of the value, which
+   *                          should include the attribute name if values only
+   *                          need to be unique within each attribute.
+   * @param  dn               The DN of the entry containing the value.
+   * @param  attributeName    The name of the unique attribute, as provided to
+   *                          the tool.
+   * @param  value            The value as it appeared in the entry.
+   *
+   * @throws  IOException  If a problem occurs while writing to a partition
+   *                       file.
+   */
+  synchronized void add(final String normalizedValue, final String dn,
+                        final String attributeName, final String value)
+          throws IOException
+  {
+    final Occurrence o =
+         new Occurrence(normalizedValue, dn, attributeName, value, false);
+    if (partitionStreams != null)
+    {
+      write(o);
+      return;
+    }
+
+    if (add(valueMap, o))
+    {
+      bytesInMemory += o.estimateSize();
+      if (bytesInMemory > maxBytesInMemory)
+      {
+        spill();
+      }
+    }
+  }
+
+
+
+  /**
+   * Identifies conflicts among any values that were written to partition files
+   * and then closes this map.  This must be called after all values have been
+   * added.
+   *
+   * @throws  IOException  If a problem occurs while reading a partition file.
+   */
+  synchronized void finish()
+          throws IOException
+  {
+    try
+    {
+      valueMap = null;
+      if (partitionStreams == null)
+      {
+        return;
+      }
+
+      for (final DataOutputStream s : partitionStreams)
+      {
+        s.close();
+      }
+      partitionStreams = null;
+
+      for (final File f : partitionFiles)
+      {
+        final HashMap<String,Occurrence> partitionMap =
+             new HashMap<String,Occurrence>(1000);
+        final DataInputStream in = new DataInputStream(
+             new BufferedInputStream(new FileInputStream(f)));
+        try
+        {
+          while (true)
+          {
+            final Occurrence o = Occurrence.read(in);
+            if (o == null)
+            {
+              break;
+            }
+
+            add(partitionMap, o);
+          }
+        }
+        finally
+        {
+          in.close();
+        }
+      }
+    }
+    finally
+    {
+      close();
+    }
+  }
+
+
+
+  /**
+   * Closes this map and removes any partition files.
+   */
+  synchronized void close()
+  {
+    if (closed)
+    {
+      return;
+    }
+
+    closed   = true;
+    valueMap = null;
+
+    if (partitionStreams != null)
+    {
+      for (final DataOutputStream s : partitionStreams)
+      {
+        try
+        {
+          s.close();
+        }
+        catch (final Exception e)
+        {
+          Debug.debugException(e);
+        }
+      }
+      partitionStreams = null;
+    }
+
+    if (partitionFiles != null)
+    {
+      for (final File f : partitionFiles)
+      {
+        if ((f != null) && (! f.delete()))
+        {
+          f.deleteOnExit();
+        }
+      }
+      partitionFiles = null;
+    }
+  }
+
+
+
+  /**
+   * Indicates whether the values have been written to partition files because
+   * they did not fit in memory.
+   *
+   * @return  {@code true} if the values have been written to partition files,
+   *          or {@code false} if they are still held in memory.
+   */
+  synchronized boolean isSpilled()
+  {
+    return (partitionFiles != null);
+  }
+
+
+
+  /**
+   * Adds the provided occurrence to the given map, notifying the tool of any
+   * conflict.
+   *
+   * @param  map  The map to which the occurrence should be added.
+   * @param  o    The occurrence to add.
+   *
+   * @return  {@code true} if the occurrence was added to the map, or
+   *          {@code false} if an occurrence of the same value was already
+   *          present.
+   */
+  private boolean add(final Map<String,Occurrence> map, final Occurrence o)
+  {
+    final Occurrence first = map.get(o.normalizedValue);
+    if (first == null)
+    {
+      map.put(o.normalizedValue, o);
+      return true;
+    }
+
+    try
+    {
+      if (DN.equals(first.dn, o.dn))
+      {
+        // The same value may appear more than once in the same entry (e.g.,
+        // in different unique attributes), and that isn't a conflict.
+        return false;
+      }
+    }
+    catch (final Exception e)
+    {
+      Debug.debugException(e);
+    }
+
+    // Both entries are in conflict with each other, so report the first
+    // entry as well, but only once.
+    if (! first.conflictReported)
+    {
+      first.conflictReported = true;
+      tool.valueConflictFound(first.attributeName, first.value, first.dn,
+           o.dn);
+    }
+
+    tool.valueConflictFound(o.attributeName, o.value, o.dn, first.dn);
+    return false;
+  }
+
+
+
+  /**
+   * Creates the partition files and writes all of the values currently held
+   * in memory to them.
+   *
+   * @throws  IOException  If a problem occurs while creating or writing to
+   *                       the partition files.
+   */
+  private void spill()
+          throws IOException
+  {
+    partitionFiles   = new File[NUM_PARTITIONS];
+    partitionStreams = new DataOutputStream[NUM_PARTITIONS];
+    for (int i=0; i < NUM_PARTITIONS; i++)
+    {
+      partitionFiles[i] =
+           File.createTempFile("unique-values-", ".tmp", tempDirectory);
+      partitionStreams[i] = new DataOutputStream(new BufferedOutputStream(
+           new FileOutputStream(partitionFiles[i])));
+    }
+
+    for (final Occurrence o : valueMap.values())
+    {
+      write(o);
+    }
+
+    valueMap      = null;
+    bytesInMemory = 0L;
+  }
+
+
+
+  /**
+   * Writes the provided occurrence to the appropriate partition file.
+   *
+   * @param  o  The occurrence to write.
+   *
+   * @throws  IOException  If a problem occurs while writing the occurrence.
+   */
+  private void write(final Occurrence o)
+          throws IOException
+  {
+    final int partition =
+         (o.normalizedValue.hashCode() & 0x7FFFFFFF) % NUM_PARTITIONS;
+    o.write(partitionStreams[partition]);
+  }
+
+
+
+  /**
+   * This class holds information about an occurrence of a unique attribute
+   * value.
+   */
+  private static final class Occurrence
+  {
+    // Indicates whether a conflict has been reported for this occurrence.
+    private boolean conflictReported;
+
+    // The name of the unique attribute.
+    private final String attributeName;
+
+    // The DN of the entry containing the value.
+    private final String dn;
+
+    // The normalized representation of the value.
+    private final String normalizedValue;
+
+    // The value as it appeared in the entry.
+    private final String value;
+
+
+
+    /**
+     * Creates a new occurrence with the provided information.
+     *
+     * @param  normalizedValue   The normalized representation of the value.
+     * @param  dn                The DN of the entry containing the value.
+     * @param  attributeName     The name of the unique attribute.
+     * @param  value             The value as it appeared in the entry.
+     * @param  conflictReported  Indicates whether a conflict has been reported
+     *                           for this occurrence.
+     */
+    private Occurrence(final String normalizedValue, final String dn,
+                       final String attributeName, final String value,
+                       final boolean conflictReported)
+    {
+      this.normalizedValue  = normalizedValue;
+      this.dn               = dn;
+      this.attributeName    = attributeName;
+      this.value            = value;
+      this.conflictReported = conflictReported;
+    }
+
+
+
+    /**
+     * Retrieves an estimate of the amount of memory required to hold this
+     * occurrence in a map.
+     *
+     * @return  An estimate of the amount of memory required to hold this
+     *          occurrence in a map.
+     */
+    private long estimateSize()
+    {
+      return 160L + (2L * (normalizedValue.length() + dn.length() +
+           value.length()));
+    }
+
+
+
+    /**
+     * Writes this occurrence to the provided stream.
+     *
+     * @param  out  The stream to which the occurrence should be written.
+     *
+     * @throws  IOException  If a problem occurs while writing the occurrence.
+     */
+    private void write(final DataOutputStream out)
+            throws IOException
+    {
+      writeString(out, normalizedValue);
+      writeString(out, dn);
+      writeString(out, attributeName);
+      writeString(out, value);
+      out.writeBoolean(conflictReported);
+    }
+
+
+
+    /**
+     * Reads an occurrence from the provided stream.
+     *
+     * @param  in  The stream from which to read the occurrence.
+     *
+     * @return  The occurrence that was read, or {@code null} if the end of the
+     *          stream was reached.
+     *
+     * @throws  IOException  If a problem occurs while reading the occurrence.
+     */
+    private static Occurrence read(final DataInputStream in)
+            throws IOException
+    {
+      final String normalizedValue;
+      try
+      {
+        normalizedValue = readString(in);
+      }
+      catch (final EOFException eofe)
+      {
+        Debug.debugException(eofe);
+        return null;
+      }
+
+      final String dn = readString(in);
+      final String attributeName = readString(in);
+      final String value = readString(in);
+      final boolean conflictReported = in.readBoolean();
+      return new Occurrence(normalizedValue, dn, attributeName, value,
+           conflictReported);
+    }
+
+
+
+    /**
+     * Writes the provided string to the given stream as a length followed by
+     * its UTF-8 bytes.
+     *
+     * @param  out  The stream to which the string should be written.
+     * @param  s    The string to write.
+     *
+     * @throws  IOException  If a problem occurs while writing the string.
+     */
+    private static void writeString(final DataOutputStream out, final String s)
+            throws IOException
+    {
+      final byte[] bytes = StaticUtils.getBytes(s);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+
+
+
+    /**
+     * Reads a string written by the {@link #writeString} method.
+     *
+     * @param  in  The stream from which to read the string.
+     *
+     * @return  The string that was read.
+     *
+     * @throws  IOException  If a problem occurs while reading the string.
+     */
+    private static String readString(final DataInputStream in)
+            throws IOException
+    {
+      final byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      return StaticUtils.toUTF8String(bytes);
+    }
+  }
+}
@@ -648,7 +648,7 @@ public final class DefaultObjectEncoder
                                     final String name)
          throws LDAPPersistException
   {
-    return encodeValue(field.getGenericType(), value, name);
+    return encodeValue(new TypeInfo(field.getGenericType()), value, name);
   }
 
 
@@ -661,7 +661,8 @@ public final class DefaultObjectEncoder
                                      final String name)
          throws LDAPPersistException
   {
-    return encodeValue(method.getGenericReturnType(), value, name);
+    return encodeValue(new TypeInfo(method.getGenericReturnType()), value,
+         name);
   }
 
 
@@ -669,9 +670,9 @@ public final class DefaultObjectEncoder
   /**
    * Encodes the provided value to an LDAP attribute.
    *
-   * @param  type   The type for the provided value.
-   * @param  value  The value for the field in the object to be encoded.
-   * @param  name   The name to use for the constructed attribute.
+   * @param  typeInfo  Information about the type for the provided value.
+   * @param  value     The value for the field in the object to be encoded.
+   * @param  name      The name to use for the constructed attribute.
    *
    * @return  The attribute containing the encoded representation of the
    *          provided field.
@@ -679,12 +680,10 @@ public final class DefaultObjectEncoder
    * @throws  LDAPPersistException  If a problem occurs while attempting to
    *                                construct an attribute for the field.
    */
-  private static Attribute encodeValue(final Type type, final Object value,
-                                       final String name)
+  static Attribute encodeValue(final TypeInfo typeInfo, final Object value,
+                               final String name)
          throws LDAPPersistException
   {
-    final TypeInfo typeInfo = new TypeInfo(type);
-
     final Class<?> c = typeInfo.getBaseClass();
     if (c.equals(AtomicInteger.class) ||
         c.equals(AtomicLong.class) ||
@@ -781,7 +780,7 @@ public final class DefaultObjectEncoder
     }
 
     throw new LDAPPersistException(ERR_DEFAULT_ENCODER_UNSUPPORTED_TYPE.get(
-         String.valueOf(type)));
+         String.valueOf(typeInfo.getType())));
   }
 
 
@@ -1027,7 +1026,6 @@ public final class DefaultObjectEncoder
   }
 
 
-
   /**
    * {@inheritDoc}
    */
@@ -1036,102 +1034,13 @@ public final class DefaultObjectEncoder
                           final Attribute attribute)
          throws LDAPPersistException
   {
-    field.setAccessible(true);
-    final TypeInfo typeInfo = new TypeInfo(field.getGenericType());
+    PersistUtils.makeAccessible(field);
+    final Object newValue =
+         decodeValue(new TypeInfo(field.getGenericType()), attribute);
 
     try
     {
-      final Class<?> baseClass = typeInfo.getBaseClass();
-      final Object newValue = getValue(baseClass, attribute, 0);
-      if (newValue != null)
-      {
-        field.set(object, newValue);
-        return;
-      }
-
-      if (typeInfo.isArray())
-      {
-        final Class<?> componentType = typeInfo.getComponentType();
-        final ASN1OctetString[] values = attribute.getRawValues();
-        final Object arrayObject =
-             Array.newInstance(componentType, values.length);
-        for (int i=0; i < values.length; i++)
-        {
-          final Object o = getValue(componentType, attribute, i);
-          if (o == null)
-          {
-            throw new LDAPPersistException(
-                 ERR_DEFAULT_ENCODER_UNSUPPORTED_TYPE.get(
-                      componentType.getName()));
-          }
-          Array.set(arrayObject, i, o);
-        }
-
-        field.set(object, arrayObject);
-        return;
-      }
-      else if (typeInfo.isList() && isSupportedListType(baseClass))
-      {
-        final Class<?> componentType = typeInfo.getComponentType();
-        if (componentType == null)
-        {
-          throw new LDAPPersistException(
-               ERR_DEFAULT_ENCODER_UNSUPPORTED_TYPE.get(baseClass.getName()));
-        }
-
-        final ASN1OctetString[] values = attribute.getRawValues();
-        final List<?> l = createList(baseClass, values.length);
-        for (int i=0; i < values.length; i++)
-        {
-          final Object o = getValue(componentType, attribute, i);
-          if (o == null)
-          {
-            throw new LDAPPersistException(
-                 ERR_DEFAULT_ENCODER_UNSUPPORTED_TYPE.get(
-                      componentType.getName()));
-          }
-
-          invokeAdd(l, o);
-        }
-
-        field.set(object, l);
-        return;
-      }
-      else if (typeInfo.isSet() && isSupportedSetType(baseClass))
-      {
-        final Class<?> componentType = typeInfo.getComponentType();
-        if (componentType == null)
-        {
-          throw new LDAPPersistException(
-               ERR_DEFAULT_ENCODER_UNSUPPORTED_TYPE.get(baseClass.getName()));
-        }
-
-        final ASN1OctetString[] values = attribute.getRawValues();
-        final Set<?> l = createSet(baseClass, values.length);
-        for (int i=0; i < values.length; i++)
-        {
-          final Object o = getValue(componentType, attribute, i);
-          if (o == null)
-          {
-            throw new LDAPPersistException(
-                 ERR_DEFAULT_ENCODER_UNSUPPORTED_TYPE.get(
-                      componentType.getName()));
-          }
-
-          invokeAdd(l, o);
-        }
-
-        field.set(object, l);
-        return;
-      }
-
-      throw new LDAPPersistException(ERR_DEFAULT_ENCODER_UNSUPPORTED_TYPE.get(
-           baseClass.getName()));
-    }
-    catch (final LDAPPersistException lpe)
-    {
-      debugException(lpe);
-      throw lpe;
+      field.set(object, newValue);
     }
     catch (final Exception e)
     {
@@ -1150,18 +1059,56 @@ public final class DefaultObjectEncoder
                            final Attribute attribute)
          throws LDAPPersistException
   {
-    final TypeInfo typeInfo =
-         new TypeInfo(method.getGenericParameterTypes()[0]);
-    final Class<?> baseClass = typeInfo.getBaseClass();
-    method.setAccessible(true);
+    PersistUtils.makeAccessible(method);
+    final Object newValue = decodeValue(
+         new TypeInfo(method.getGenericParameterTypes()[0]), attribute);
 
     try
     {
+      method.invoke(object, newValue);
+    }
+    catch (final Throwable t)
+    {
+      debugException(t);
+
+      if (t instanceof InvocationTargetException)
+      {
+        final Throwable targetException =
+             ((InvocationTargetException) t).getTargetException();
+        throw new LDAPPersistException(getExceptionMessage(targetException),
+             targetException);
+      }
+      else
+      {
+        throw new LDAPPersistException(getExceptionMessage(t), t);
+      }
+    }
+  }
+
+
+
+  /**
+   * Decodes the provided attribute to an object of the given type, which may
+   * then be stored in a field or passed to a setter method.
+   *
+   * @param  typeInfo   Information about the type of object to create.
+   * @param  attribute  The attribute to be decoded.
+   *
+   * @return  The decoded object.  It will not be {@code null}.
+   *
+   * @throws  LDAPPersistException  If a problem occurs while attempting to
+   *                                decode the attribute.
+   */
+  static Object decodeValue(final TypeInfo typeInfo, final Attribute attribute)
+         throws LDAPPersistException
+  {
+    try
+    {
+      final Class<?> baseClass = typeInfo.getBaseClass();
       final Object newValue = getValue(baseClass, attribute, 0);
       if (newValue != null)
       {
-        method.invoke(object, newValue);
-        return;
+        return newValue;
       }
 
       if (typeInfo.isArray())
@@ -1179,11 +1126,10 @@ public final class DefaultObjectEncoder
                  ERR_DEFAULT_ENCODER_UNSUPPORTED_TYPE.get(
                       componentType.getName()));
           }
-          Array.set(arrayObject, i, o);
+          setArrayElement(arrayObject, componentType, i, o);
         }
 
-        method.invoke(object, arrayObject);
-        return;
+        return arrayObject;
       }
       else if (typeInfo.isList() && isSupportedListType(baseClass))
       {
@@ -1209,8 +1155,7 @@ public final class DefaultObjectEncoder
           invokeAdd(l, o);
         }
 
-        method.invoke(object, l);
-        return;
+        return l;
       }
       else if (typeInfo.isSet() && isSupportedSetType(baseClass))
       {
@@ -1236,8 +1181,7 @@ public final class DefaultObjectEncoder
           invokeAdd(s, o);
         }
 
-        method.invoke(object, s);
-        return;
+        return s;
       }
 
       throw new LDAPPersistException(ERR_DEFAULT_ENCODER_UNSUPPORTED_TYPE.get(
@@ -1248,21 +1192,10 @@ public final class DefaultObjectEncoder
       debugException(lpe);
       throw lpe;
     }
-    catch (final Throwable t)
+    catch (final Exception e)
     {
-      debugException(t);
-
-      if (t instanceof InvocationTargetException)
-      {
-        final Throwable targetException =
-             ((InvocationTargetException) t).getTargetException();
-        throw new LDAPPersistException(getExceptionMessage(targetException),
-             targetException);
-      }
-      else
-      {
-        throw new LDAPPersistException(getExceptionMessage(t), t);
-      }
+      debugException(e);
+      throw new LDAPPersistException(getExceptionMessage(e), e);
     }
   }
 
@@ -1518,6 +1451,32 @@ public final class DefaultObjectEncoder
 
 
 
+  /**
+   * Sets the specified element of the provided array.  Arrays of primitive
+   * types will be updated using reflection, but arrays of object types will be
+   * updated directly.
+   *
+   * @param  a              The array to update.
+   * @param  componentType  The component type for the array.
+   * @param  p              The position of the element to set.
+   * @param  o              The value to use for the element.
+   */
+  private static void setArrayElement(final Object a,
+                                      final Class<?> componentType,
+                                      final int p, final Object o)
+  {
+    if (componentType.isPrimitive())
+    {
+      Array.set(a, p, o);
+    }
+    else
+    {
+      ((Object[]) a)[p] = o;
+    }
+  }
+
+
+
   /**
    * Invokes the {@code add} method on the provided {@code List} or {@code Set}
    * object.
@@ -1528,31 +1487,25 @@ public final class DefaultObjectEncoder
    * @throws  LDAPPersistException  If a problem occurs while attempting to
    *                                invoke the {@code add} method.
    */
+  @SuppressWarnings("unchecked")
   private static void invokeAdd(final Object l, final Object o)
           throws LDAPPersistException
   {
-    final Class<?> c = l.getClass();
-
-    for (final Method m : c.getMethods())
+    if (! (l instanceof Collection))
     {
-      if (m.getName().equals("add") &&
-          (m.getGenericParameterTypes().length == 1))
-      {
-        try
-        {
-          m.invoke(l, o);
-          return;
-        }
-        catch (final Exception e)
-        {
-          debugException(e);
-          throw new LDAPPersistException(
-               ERR_DEFAULT_ENCODER_CANNOT_ADD.get(getExceptionMessage(e)), e);
-        }
-      }
+      throw new LDAPPersistException(
+           ERR_DEFAULT_ENCODER_CANNOT_FIND_ADD_METHOD.get());
     }
 
-    throw new LDAPPersistException(
-         ERR_DEFAULT_ENCODER_CANNOT_FIND_ADD_METHOD.get());
+    try
+    {
+      ((Collection<Object>) l).add(o);
+    }
+    catch (final Exception e)
+    {
+      debugException(e);
+      throw new LDAPPersistException(
+           ERR_DEFAULT_ENCODER_CANNOT_ADD.get(getExceptionMessage(e)), e);
+    }
   }
 }
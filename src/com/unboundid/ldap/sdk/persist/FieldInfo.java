@@ -99,6 +99,10 @@ public final class FieldInfo
   // The filter usage for the associated field.
   private final FilterUsage filterUsage;
 
+  // The precomputed codec for this field, or null if the values of this field
+  // are processed with the encoder's reflective API.
+  private final transient MemberCodec codec;
+
   // The encoder used for this field.
   private final ObjectEncoder encoder;
 
@@ -218,6 +222,8 @@ public final class FieldInfo
                 f.getGenericType()));
     }
 
+    codec = MemberCodec.forField(f, encoder);
+
     supportsMultipleValues = encoder.supportsMultipleValues(f);
     if (supportsMultipleValues)
     {
@@ -620,7 +626,15 @@ public final class FieldInfo
   {
     try
     {
-      final Object fieldValue = field.get(o);
+      final Object fieldValue;
+      if (codec == null)
+      {
+        fieldValue = field.get(o);
+      }
+      else
+      {
+        fieldValue = codec.read(o);
+      }
       if (fieldValue == null)
       {
         if (defaultEncodeValues.length > 0)
@@ -638,7 +652,14 @@ public final class FieldInfo
         return null;
       }
 
-      return encoder.encodeFieldValue(field, fieldValue, attributeName);
+      if (codec == null)
+      {
+        return encoder.encodeFieldValue(field, fieldValue, attributeName);
+      }
+      else
+      {
+        return codec.encode(fieldValue, attributeName);
+      }
     }
     catch (final LDAPPersistException lpe)
     {
@@ -715,7 +736,14 @@ public final class FieldInfo
 
     try
     {
-      encoder.decodeField(field, o, a);
+      if (codec == null)
+      {
+        encoder.decodeField(field, o, a);
+      }
+      else
+      {
+        codec.decode(o, a);
+      }
     }
     catch (final LDAPPersistException lpe)
     {
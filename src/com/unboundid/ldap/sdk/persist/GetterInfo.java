@@ -76,6 +76,10 @@ public final class GetterInfo
   // The method with which this object is associated.
   private final Method method;
 
+  // The precomputed codec for this method, or null if the values returned by
+  // this method are processed with the encoder's reflective API.
+  private final transient MemberCodec codec;
+
   // The encoder used for this method.
   private final ObjectEncoder encoder;
 
@@ -158,6 +162,8 @@ public final class GetterInfo
                 String.valueOf(m.getGenericReturnType())));
     }
 
+    codec = MemberCodec.forGetter(m, encoder);
+
     final String structuralClass;
     if (o.structuralClass().length() == 0)
     {
@@ -408,13 +414,24 @@ public final class GetterInfo
   {
     try
     {
-      final Object methodValue = method.invoke(o);
+      if (codec == null)
+      {
+        final Object methodValue = method.invoke(o);
+        if (methodValue == null)
+        {
+          return null;
+        }
+
+        return encoder.encodeMethodValue(method, methodValue, attributeName);
+      }
+
+      final Object methodValue = codec.read(o);
       if (methodValue == null)
       {
         return null;
       }
 
-      return encoder.encodeMethodValue(method, methodValue, attributeName);
+      return codec.encode(methodValue, attributeName);
     }
     catch (final Exception e)
     {
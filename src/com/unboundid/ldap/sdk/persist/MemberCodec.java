@@ -0,0 +1,312 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk.persist;
+
+
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+import static com.unboundid.util.Debug.*;
+import static com.unboundid.util.StaticUtils.*;
+
+
+
+/**
+ * This class provides a precomputed codec for a single field or method of an
+ * object that is encoded or decoded with the {@link DefaultObjectEncoder}.
+ * It is created once, when the {@link LDAPObjectHandler} for the containing
+ * class examines its annotated members, and it binds the member to a method
+ * handle and the type information needed to encode and decode its values.
+ * This avoids repeating the reflective type analysis and access checks for
+ * every value that is encoded or decoded.
+ * <BR><BR>
+ * Codecs are only created for members that use the default object encoder.
+ * Members that use a custom encoder continue to use the reflective
+ * {@link ObjectEncoder} API.
+ */
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class MemberCodec
+{
+  /**
+   * The generic method type to which handles that read a value are adapted.
+   */
+  private static final MethodType READER_TYPE =
+       MethodType.methodType(Object.class, Object.class);
+
+
+
+  /**
+   * The generic method type to which handles that write a value are adapted.
+   */
+  private static final MethodType WRITER_TYPE =
+       MethodType.methodType(void.class, Object.class, Object.class);
+
+
+
+  // The method handle used to read the value of the member, if appropriate.
+  private final MethodHandle reader;
+
+  // The method handle used to write the value of the member, if appropriate.
+  private final MethodHandle writer;
+
+  // Information about the type of value held by the member.
+  private final TypeInfo typeInfo;
+
+
+
+  /**
+   * Creates a new member codec with the provided information.
+   *
+   * @param  typeInfo  Information about the type of value held by the member.
+   * @param  reader    The method handle used to read the value of the member.
+   *                   It may be {@code null} if values are not read.
+   * @param  writer    The method handle used to write the value of the
+   *                   member.  It may be {@code null} if values are not
+   *                   written.
+   */
+  private MemberCodec(final TypeInfo typeInfo, final MethodHandle reader,
+                      final MethodHandle writer)
+  {
+    this.typeInfo = typeInfo;
+    this.reader   = reader;
+    this.writer   = writer;
+  }
+
+
+
+  /**
+   * Creates a codec that may be used to read and write the provided field.
+   *
+   * @param  f  The field for which to create the codec.  It must already have
+   *            been made accessible.
+   * @param  e  The encoder configured for the field.
+   *
+   * @return  The codec for the field, or {@code null} if the field should be
+   *          processed with the reflective encoder API.
+   */
+  static MemberCodec forField(final Field f, final ObjectEncoder e)
+  {
+    final TypeInfo typeInfo = getTypeInfo(f.getGenericType(), e);
+    if (typeInfo == null)
+    {
+      return null;
+    }
+
+    try
+    {
+      final MethodHandles.Lookup lookup = MethodHandles.lookup();
+      return new MemberCodec(typeInfo,
+           lookup.unreflectGetter(f).asType(READER_TYPE),
+           lookup.unreflectSetter(f).asType(WRITER_TYPE));
+    }
+    catch (final Exception ex)
+    {
+      debugException(ex);
+      return null;
+    }
+  }
+
+
+
+  /**
+   * Creates a codec that may be used to invoke the provided getter method and
+   * encode its return value.
+   *
+   * @param  m  The getter method for which to create the codec.  It must
+   *            already have been made accessible.
+   * @param  e  The encoder configured for the method.
+   *
+   * @return  The codec for the method, or {@code null} if the method should be
+   *          processed with the reflective encoder API.
+   */
+  static MemberCodec forGetter(final Method m, final ObjectEncoder e)
+  {
+    final TypeInfo typeInfo = getTypeInfo(m.getGenericReturnType(), e);
+    if (typeInfo == null)
+    {
+      return null;
+    }
+
+    try
+    {
+      return new MemberCodec(typeInfo,
+           MethodHandles.lookup().unreflect(m).asType(READER_TYPE), null);
+    }
+    catch (final Exception ex)
+    {
+      debugException(ex);
+      return null;
+    }
+  }
+
+
+
+  /**
+   * Creates a codec that may be used to decode a value and pass it to the
+   * provided setter method.
+   *
+   * @param  m  The setter method for which to create the codec.  It must
+   *            already have been made accessible.
+   * @param  e  The encoder configured for the method.
+   *
+   * @return  The codec for the method, or {@code null} if the method should be
+   *          processed with the reflective encoder API.
+   */
+  static MemberCodec forSetter(final Method m, final ObjectEncoder e)
+  {
+    final TypeInfo typeInfo =
+         getTypeInfo(m.getGenericParameterTypes()[0], e);
+    if (typeInfo == null)
+    {
+      return null;
+    }
+
+    try
+    {
+      return new MemberCodec(typeInfo, null,
+           MethodHandles.lookup().unreflect(m).asType(WRITER_TYPE));
+    }
+    catch (final Exception ex)
+    {
+      debugException(ex);
+      return null;
+    }
+  }
+
+
+
+  /**
+   * Retrieves information about the provided type if a codec may be used for
+   * members of that type with the given encoder.
+   *
+   * @param  t  The type of value held by the member.
+   * @param  e  The encoder configured for the member.
+   *
+   * @return  Information about the provided type, or {@code null} if a codec
+   *          should not be used.
+   */
+  private static TypeInfo getTypeInfo(final Type t, final ObjectEncoder e)
+  {
+    if (e.getClass() != DefaultObjectEncoder.class)
+    {
+      return null;
+    }
+
+    final TypeInfo typeInfo = new TypeInfo(t);
+    if (! typeInfo.isSupported())
+    {
+      return null;
+    }
+
+    return typeInfo;
+  }
+
+
+
+  /**
+   * Reads the value of the associated field, or invokes the associated getter
+   * method, on the provided object.
+   *
+   * @param  o  The object from which to read the value.
+   *
+   * @return  The value that was read.  It may be {@code null}.
+   *
+   * @throws  Exception  If a problem occurs while reading the value, including
+   *                     any exception thrown by a getter method.
+   */
+  Object read(final Object o)
+         throws Exception
+  {
+    try
+    {
+      return (Object) reader.invokeExact(o);
+    }
+    catch (final Exception e)
+    {
+      throw e;
+    }
+    catch (final Error e)
+    {
+      throw e;
+    }
+    catch (final Throwable t)
+    {
+      throw new LDAPPersistException(getExceptionMessage(t), t);
+    }
+  }
+
+
+
+  /**
+   * Encodes the provided value to an LDAP attribute.
+   *
+   * @param  value  The value to be encoded.  It must not be {@code null}.
+   * @param  name   The name to use for the constructed attribute.
+   *
+   * @return  The attribute containing the encoded representation of the value.
+   *
+   * @throws  LDAPPersistException  If a problem occurs while encoding the
+   *                                value.
+   */
+  Attribute encode(final Object value, final String name)
+            throws LDAPPersistException
+  {
+    return DefaultObjectEncoder.encodeValue(typeInfo, value, name);
+  }
+
+
+
+  /**
+   * Decodes the provided attribute and uses it to set the value of the
+   * associated field, or invoke the associated setter method, on the given
+   * object.
+   *
+   * @param  o  The object to be updated.
+   * @param  a  The attribute to be decoded.  It must have at least one value.
+   *
+   * @throws  LDAPPersistException  If a problem occurs while decoding the
+   *                                attribute or updating the object.
+   */
+  void decode(final Object o, final Attribute a)
+       throws LDAPPersistException
+  {
+    final Object value = DefaultObjectEncoder.decodeValue(typeInfo, a);
+
+    try
+    {
+      writer.invokeExact(o, value);
+    }
+    catch (final Throwable t)
+    {
+      debugException(t);
+      throw new LDAPPersistException(getExceptionMessage(t), t);
+    }
+  }
+}
@@ -272,7 +272,7 @@ public abstract class ObjectEncoder
   {
     try
     {
-      f.setAccessible(true);
+      PersistUtils.makeAccessible(f);
 
       final Class<?> type = f.getType();
       if (type.equals(Boolean.TYPE))
@@ -345,7 +345,7 @@ public abstract class ObjectEncoder
   {
     try
     {
-      m.setAccessible(true);
+      PersistUtils.makeAccessible(m);
 
       final Class<?> type = m.getParameterTypes()[0];
       if (type.equals(Boolean.TYPE))
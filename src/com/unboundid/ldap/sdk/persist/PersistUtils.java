@@ -22,6 +22,7 @@ package com.unboundid.ldap.sdk.persist;
 
 
 
+import java.lang.reflect.AccessibleObject;
 import java.util.UUID;
 
 import com.unboundid.ldap.sdk.DN;
@@ -418,4 +419,25 @@ public final class PersistUtils
          p.getObjectHandler().getAttributesToRequest());
     return new PersistedObjects<T>(p, entrySource);
   }
+
+
+
+  /**
+   * Ensures that the provided field or method is accessible, so that it may be
+   * used to access non-public members.  Enabling access requires a check that
+   * can be expensive, so it will be skipped if the member has already been
+   * made accessible (as is the case for all of the members that the
+   * persistence framework itself provides to object encoders).
+   *
+   * @param  o  The field or method to make accessible.  It must not be
+   *            {@code null}.
+   */
+  @SuppressWarnings("deprecation")
+  static void makeAccessible(final AccessibleObject o)
+  {
+    if (! o.isAccessible())
+    {
+      o.setAccessible(true);
+    }
+  }
 }
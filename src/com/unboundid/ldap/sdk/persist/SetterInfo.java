@@ -76,6 +76,10 @@ public final class SetterInfo
   // The method with which this object is associated.
   private final Method method;
 
+  // The precomputed codec for this method, or null if the values passed to
+  // this method are processed with the encoder's reflective API.
+  private final transient MemberCodec codec;
+
   // The encoder used for this method.
   private final ObjectEncoder encoder;
 
@@ -146,6 +150,8 @@ public final class SetterInfo
                 String.valueOf(params[0])));
     }
 
+    codec = MemberCodec.forSetter(m, encoder);
+
     supportsMultipleValues = encoder.supportsMultipleValues(m);
     if (supportsMultipleValues)
     {
@@ -322,7 +328,14 @@ public final class SetterInfo
 
     try
     {
-      encoder.invokeSetter(method, o, a);
+      if (codec == null)
+      {
+        encoder.invokeSetter(method, o, a);
+      }
+      else
+      {
+        codec.decode(o, a);
+      }
     }
     catch (final LDAPPersistException lpe)
     {
@@ -0,0 +1,665 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk.schema;
+
+
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.Filter;
+import com.unboundid.ldap.sdk.LDAPConnection;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.SearchScope;
+import com.unboundid.ldif.LDIFReader;
+import com.unboundid.ldif.LDIFWriter;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+import static com.unboundid.util.Debug.*;
+import static com.unboundid.util.StaticUtils.*;
+import static com.unboundid.util.Validator.*;
+
+
+
+/**
+ * This class provides a cache of directory server schema that may be shared
+ * across connections and connection pools, so that it is not necessary to
+ * retrieve and parse the complete subschema subentry for each new connection.
+ * Schema is cached separately for each server, as identified by its address
+ * and port.  Whenever the cached schema for a server is requested, it will be
+ * revalidated by retrieving only the {@code modifyTimestamp} and
+ * {@code entryUUID} attributes of the subschema subentry, and the full schema
+ * will only be read again if either of those values has changed.  Servers that
+ * do not expose either attribute for the subschema subentry will not have their
+ * schema cached.
+ * <BR><BR>
+ * The cache may also optionally be persisted to a directory on disk so that a
+ * newly-started process can avoid reading the full schema from a server whose
+ * schema has not changed since it was last cached.  The schema for each server
+ * will be written to a separate file in LDIF form.
+ * <BR><BR>
+ * The cache is disabled by default.  It may be enabled with the
+ * {@link #setEnabled(boolean)} method or the {@link #PROPERTY_ENABLED} system
+ * property, and when it is enabled it will be used by connections for which
+ * {@code LDAPConnectionOptions.useSchema()} returns {@code true}.
+ */
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+public final class SchemaCache
+{
+  /**
+   * The name of the system property that can be used to indicate whether the
+   * schema cache should be enabled.  If this is not set, then the cache will be
+   * disabled.  This can be overridden via the {@link #setEnabled(boolean)}
+   * method.
+   */
+  public static final String PROPERTY_ENABLED =
+       "com.unboundid.ldap.sdk.schema.SchemaCache.enabled";
+
+
+
+  /**
+   * The name of the system property that can be used to specify the path to a
+   * directory in which cached schema should be persisted.  If this is not set,
+   * then the cache will only be held in memory.  This can be overridden via the
+   * {@link #setCacheDirectory(File)} method.
+   */
+  public static final String PROPERTY_CACHE_DIRECTORY =
+       "com.unboundid.ldap.sdk.schema.SchemaCache.cacheDirectory";
+
+
+
+  /**
+   * The name of the attribute used to hold the entry UUID for the subschema
+   * subentry.
+   */
+  private static final String ATTR_ENTRY_UUID = "entryUUID";
+
+
+
+  /**
+   * The name of the attribute used to hold the modify timestamp for the
+   * subschema subentry.
+   */
+  private static final String ATTR_MODIFY_TIMESTAMP = "modifyTimestamp";
+
+
+
+  /**
+   * The maximum number of servers for which schema will be cached.  If this is
+   * exceeded, then the cache will be cleared.
+   */
+  private static final int MAX_CACHED_SERVERS = 100;
+
+
+
+  /**
+   * The set of request attributes that will be used when retrieving the full
+   * subschema subentry.
+   */
+  private static final String[] SCHEMA_REQUEST_ATTRS =
+  {
+    "*",
+    Schema.ATTR_ATTRIBUTE_SYNTAX,
+    Schema.ATTR_ATTRIBUTE_TYPE,
+    Schema.ATTR_DIT_CONTENT_RULE,
+    Schema.ATTR_DIT_STRUCTURE_RULE,
+    Schema.ATTR_MATCHING_RULE,
+    Schema.ATTR_MATCHING_RULE_USE,
+    Schema.ATTR_NAME_FORM,
+    Schema.ATTR_OBJECT_CLASS,
+    ATTR_MODIFY_TIMESTAMP,
+    ATTR_ENTRY_UUID
+  };
+
+
+
+  /**
+   * The set of request attributes that will be used when revalidating cached
+   * schema.
+   */
+  private static final String[] REVALIDATE_REQUEST_ATTRS =
+  {
+    ATTR_MODIFY_TIMESTAMP,
+    ATTR_ENTRY_UUID
+  };
+
+
+
+  /**
+   * Indicates whether the schema cache is enabled.
+   */
+  private static final AtomicBoolean ENABLED = new AtomicBoolean(
+       Boolean.parseBoolean(System.getProperty(PROPERTY_ENABLED)));
+
+
+
+  /**
+   * The directory in which cached schema should be persisted, if any.
+   */
+  private static final AtomicReference<File> CACHE_DIRECTORY =
+       new AtomicReference<File>(getDefaultCacheDirectory());
+
+
+
+  /**
+   * The cached schema information, indexed by server address and port.
+   */
+  private static final ConcurrentHashMap<String,CachedServerSchema> CACHE =
+       new ConcurrentHashMap<String,CachedServerSchema>();
+
+
+
+  /**
+   * Prevent this class from being instantiated.
+   */
+  private SchemaCache()
+  {
+    // No implementation is required.
+  }
+
+
+
+  /**
+   * Indicates whether the schema cache is enabled.
+   *
+   * @return  {@code true} if the schema cache is enabled, or {@code false} if
+   *          not.
+   */
+  public static boolean isEnabled()
+  {
+    return ENABLED.get();
+  }
+
+
+
+  /**
+   * Specifies whether the schema cache is enabled.  Disabling the cache will
+   * also clear any schema held in memory, although schema that has been
+   * persisted to disk will be retained.
+   *
+   * @param  enabled  Indicates whether the schema cache is enabled.
+   */
+  public static void setEnabled(final boolean enabled)
+  {
+    ENABLED.set(enabled);
+    if (! enabled)
+    {
+      CACHE.clear();
+    }
+  }
+
+
+
+  /**
+   * Retrieves the directory in which cached schema will be persisted.
+   *
+   * @return  The directory in which cached schema will be persisted, or
+   *          {@code null} if cached schema will only be held in memory.
+   */
+  public static File getCacheDirectory()
+  {
+    return CACHE_DIRECTORY.get();
+  }
+
+
+
+  /**
+   * Specifies the directory in which cached schema will be persisted.  If the
+   * directory does not exist, then it will be created when schema is first
+   * written to it.
+   *
+   * @param  cacheDirectory  The directory in which cached schema will be
+   *                         persisted.  It may be {@code null} if cached schema
+   *                         should only be held in memory.
+   */
+  public static void setCacheDirectory(final File cacheDirectory)
+  {
+    CACHE_DIRECTORY.set(cacheDirectory);
+    CACHE.clear();
+  }
+
+
+
+  /**
+   * Clears all schema held in memory.  Any schema that has been persisted to
+   * disk will be retained.
+   */
+  public static void clear()
+  {
+    CACHE.clear();
+  }
+
+
+
+  /**
+   * Retrieves the schema for the server to which the provided connection is
+   * established.  If the schema cache is enabled and the cached schema for that
+   * server is still current, then the cached schema will be returned.
+   * Otherwise, the schema will be read from the server (and cached, if
+   * appropriate).
+   *
+   * @param  connection  The connection to use to retrieve the schema.  It must
+   *                     not be {@code null}.
+   *
+   * @return  The schema for the server to which the provided connection is
+   *          established, or {@code null} if it is not available for some
+   *          reason (e.g., the client does not have permission to read the
+   *          server schema).
+   *
+   * @throws  LDAPException  If a problem occurs while retrieving the schema.
+   */
+  public static Schema getSchema(final LDAPConnection connection)
+         throws LDAPException
+  {
+    ensureNotNull(connection);
+
+    final String address = connection.getConnectedAddress();
+    final int port = connection.getConnectedPort();
+    if ((! ENABLED.get()) || (address == null) || (port <= 0))
+    {
+      return Schema.getSchema(connection);
+    }
+
+    final String key = address + ':' + port;
+    CachedServerSchema cached = CACHE.get(key);
+    if (cached == null)
+    {
+      if (CACHE.size() >= MAX_CACHED_SERVERS)
+      {
+        CACHE.clear();
+      }
+
+      final CachedServerSchema newCached = new CachedServerSchema(key);
+      cached = CACHE.putIfAbsent(key, newCached);
+      if (cached == null)
+      {
+        cached = newCached;
+      }
+    }
+
+    if (! cached.revalidationSupported)
+    {
+      return Schema.getSchema(connection);
+    }
+
+    Schema schema = cached.getIfCurrent(connection);
+    if (schema != null)
+    {
+      return schema;
+    }
+
+    // Only allow one thread at a time to read the full schema from a given
+    // server, since any other threads that need it at the same time will be
+    // able to use the version that was read.
+    synchronized (cached)
+    {
+      if (! cached.persistedSchemaChecked)
+      {
+        cached.persistedSchemaChecked = true;
+        cached.readPersistedSchema();
+      }
+
+      schema = cached.getIfCurrent(connection);
+      if (schema != null)
+      {
+        return schema;
+      }
+
+      return cached.readSchema(connection);
+    }
+  }
+
+
+
+  /**
+   * Retrieves the cache directory specified by the
+   * {@link #PROPERTY_CACHE_DIRECTORY} system property.
+   *
+   * @return  The cache directory specified by the system property, or
+   *          {@code null} if the property is not set.
+   */
+  private static File getDefaultCacheDirectory()
+  {
+    final String path = System.getProperty(PROPERTY_CACHE_DIRECTORY);
+    if ((path == null) || (path.length() == 0))
+    {
+      return null;
+    }
+    else
+    {
+      return new File(path);
+    }
+  }
+
+
+
+  /**
+   * Retrieves the file in which schema for the specified server should be
+   * persisted.
+   *
+   * @param  key  The key that identifies the server.
+   *
+   * @return  The file in which schema for the specified server should be
+   *          persisted, or {@code null} if schema should not be persisted.
+   */
+  static File getCacheFile(final String key)
+  {
+    final File cacheDirectory = CACHE_DIRECTORY.get();
+    if (cacheDirectory == null)
+    {
+      return null;
+    }
+
+    final StringBuilder buffer = new StringBuilder(key.length() + 12);
+    buffer.append("schema-");
+    for (int i=0; i < key.length(); i++)
+    {
+      final char c = key.charAt(i);
+      if (((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) ||
+          ((c >= '0') && (c <= '9')) || (c == '.') || (c == '-'))
+      {
+        buffer.append(c);
+      }
+      else
+      {
+        buffer.append('_');
+      }
+    }
+    buffer.append(".ldif");
+
+    return new File(cacheDirectory, buffer.toString());
+  }
+
+
+
+  /**
+   * This class holds the cached schema for a single server, along with the
+   * information needed to determine whether it is still current.
+   */
+  private static final class CachedServerSchema
+  {
+    // Indicates whether an attempt has been made to read persisted schema for
+    // the server.
+    private boolean persistedSchemaChecked;
+
+    // Indicates whether the server exposes information that may be used to
+    // determine whether the cached schema is still current.
+    private volatile boolean revalidationSupported;
+
+    // The cached schema.
+    private Schema schema;
+
+    // The key that identifies the server.
+    private final String key;
+
+    // The entryUUID value of the subschema subentry when the schema was read.
+    private String entryUUID;
+
+    // The modifyTimestamp value of the subschema subentry when the schema was
+    // read.
+    private String modifyTimestamp;
+
+    // The DN of the subschema subentry.
+    private String subschemaSubentryDN;
+
+
+
+    /**
+     * Creates a new cached server schema object without any schema.
+     *
+     * @param  key  The key that identifies the server.
+     */
+    private CachedServerSchema(final String key)
+    {
+      this.key = key;
+
+      revalidationSupported  = true;
+      persistedSchemaChecked = false;
+      schema                 = null;
+    }
+
+
+
+    /**
+     * Retrieves the cached schema if it is still current.
+     *
+     * @param  connection  The connection to use to determine whether the
+     *                     cached schema is still current.
+     *
+     * @return  The cached schema if it is still current, or {@code null} if
+     *          there is no cached schema, it is not current, or it could not
+     *          be revalidated.
+     */
+    private Schema getIfCurrent(final LDAPConnection connection)
+    {
+      final Schema s;
+      final String dn;
+      final String uuid;
+      final String timestamp;
+      synchronized (this)
+      {
+        s         = schema;
+        dn        = subschemaSubentryDN;
+        uuid      = entryUUID;
+        timestamp = modifyTimestamp;
+      }
+
+      if (s == null)
+      {
+        return null;
+      }
+
+      final Entry e;
+      try
+      {
+        e = connection.searchForEntry(dn, SearchScope.BASE,
+             Filter.createEqualityFilter("objectClass", "subschema"),
+             REVALIDATE_REQUEST_ATTRS);
+      }
+      catch (final LDAPException le)
+      {
+        // The subschema subentry may have been moved or removed, so the full
+        // schema will need to be read again.
+        debugException(le);
+        return null;
+      }
+
+      if ((e == null) ||
+          (! bothNullOrEqual(uuid, e.getAttributeValue(ATTR_ENTRY_UUID))) ||
+          (! bothNullOrEqual(timestamp,
+                  e.getAttributeValue(ATTR_MODIFY_TIMESTAMP))))
+      {
+        return null;
+      }
+
+      return s;
+    }
+
+
+
+    /**
+     * Reads the full schema from the server and caches it if appropriate.
+     * This must only be called while holding the lock on this object.
+     *
+     * @param  connection  The connection to use to read the schema.
+     *
+     * @return  The schema read from the server, or {@code null} if it is not
+     *          available.
+     *
+     * @throws  LDAPException  If a problem occurs while reading the schema.
+     */
+    private Schema readSchema(final LDAPConnection connection)
+            throws LDAPException
+    {
+      final String dn = Schema.getSubschemaSubentryDN(connection, "");
+      if (dn == null)
+      {
+        return null;
+      }
+
+      final Entry e = connection.searchForEntry(dn, SearchScope.BASE,
+           Filter.createEqualityFilter("objectClass", "subschema"),
+           SCHEMA_REQUEST_ATTRS);
+      if (e == null)
+      {
+        return null;
+      }
+
+      final Schema s = new Schema(e);
+      if (! setSchema(s))
+      {
+        revalidationSupported = false;
+        return s;
+      }
+
+      final File cacheFile = getCacheFile(key);
+      if (cacheFile != null)
+      {
+        writePersistedSchema(cacheFile, e);
+      }
+
+      return s;
+    }
+
+
+
+    /**
+     * Updates this object to hold the provided schema, if its subschema
+     * subentry includes the information needed for revalidation.
+     *
+     * @param  s  The schema to cache.
+     *
+     * @return  {@code true} if the schema was cached, or {@code false} if not.
+     */
+    private boolean setSchema(final Schema s)
+    {
+      final Entry e = s.getSchemaEntry();
+      final String uuid = e.getAttributeValue(ATTR_ENTRY_UUID);
+      final String timestamp = e.getAttributeValue(ATTR_MODIFY_TIMESTAMP);
+      if ((uuid == null) && (timestamp == null))
+      {
+        return false;
+      }
+
+      synchronized (this)
+      {
+        schema              = s;
+        subschemaSubentryDN = e.getDN();
+        entryUUID           = uuid;
+        modifyTimestamp     = timestamp;
+      }
+
+      return true;
+    }
+
+
+
+    /**
+     * Attempts to read persisted schema for the server.  This must only be
+     * called while holding the lock on this object.
+     */
+    private void readPersistedSchema()
+    {
+      final File cacheFile = getCacheFile(key);
+      if ((cacheFile == null) || (! cacheFile.exists()))
+      {
+        return;
+      }
+
+      try
+      {
+        final LDIFReader reader = new LDIFReader(cacheFile);
+        try
+        {
+          final Entry e = reader.readEntry();
+          if (e != null)
+          {
+            setSchema(new Schema(e));
+          }
+        }
+        finally
+        {
+          reader.close();
+        }
+      }
+      catch (final Exception e)
+      {
+        debugException(e);
+      }
+    }
+
+
+
+    /**
+     * Attempts to persist the provided subschema subentry.  The entry will be
+     * written to a temporary file which will then be renamed, so that other
+     * processes will not see a partially-written file.
+     *
+     * @param  cacheFile  The file to which the entry should be written.
+     * @param  e          The subschema subentry to be written.
+     */
+    private static void writePersistedSchema(final File cacheFile,
+                                             final Entry e)
+    {
+      final File tempFile = new File(cacheFile.getAbsolutePath() + '.' +
+           Thread.currentThread().getId() + ".tmp");
+      try
+      {
+        final File parent = cacheFile.getAbsoluteFile().getParentFile();
+        if (! parent.exists())
+        {
+          parent.mkdirs();
+        }
+
+        final LDIFWriter writer = new LDIFWriter(tempFile);
+        try
+        {
+          writer.writeEntry(e);
+        }
+        finally
+        {
+          writer.close();
+        }
+
+        if (! tempFile.renameTo(cacheFile))
+        {
+          cacheFile.delete();
+          tempFile.renameTo(cacheFile);
+        }
+      }
+      catch (final Exception ex)
+      {
+        debugException(ex);
+      }
+      finally
+      {
+        if (tempFile.exists())
+        {
+          tempFile.delete();
+        }
+      }
+    }
+  }
+}
@@ -47,7 +47,9 @@ import com.unboundid.ldap.sdk.unboundidds.examples.SummarizeAccessLog;
 import com.unboundid.ldap.sdk.unboundidds.tools.GenerateTOTPSharedSecret;
 import com.unboundid.ldap.sdk.unboundidds.tools.LDAPModify;
 import com.unboundid.ldap.sdk.unboundidds.tools.LDAPSearch;
+import com.unboundid.ldap.sdk.unboundidds.tools.LDIFDiff;
 import com.unboundid.ldap.sdk.unboundidds.tools.ManageAccount;
+import com.unboundid.ldap.sdk.unboundidds.tools.SortLDIF;
 import com.unboundid.ldap.sdk.unboundidds.tools.SplitLDIF;
 import com.unboundid.util.StaticUtils;
 import com.unboundid.util.ThreadSafety;
@@ -99,6 +101,7 @@ import com.unboundid.util.ThreadSafetyLevel;
  *   <LI>ldapmodify -- Launch the {@link LDAPModify} tool.</LI>
  *   <LI>ldapsearch -- Launch the {@link LDAPSearch} tool.</LI>
  *   <LI>ldap-debugger -- Launch the {@link LDAPDebugger} tool.</LI>
+ *   <LI>ldif-diff -- Launch the {@link LDIFDiff} tool.</LI>
  *   <LI>manage-account -- Launch the {@link ManageAccount} tool.</LI>
  *   <LI>modrate -- Launch the {@link ModRate} tool.</LI>
  *   <LI>move-subtree -- Launch the {@link MoveSubtree} tool.</LI>
@@ -106,6 +109,7 @@ import com.unboundid.util.ThreadSafetyLevel;
  *       {@link RegisterYubiKeyOTPDevice} tool.</LI>
  *   <LI>searchrate -- Launch the {@link SearchRate} tool.</LI>
  *   <LI>search-and-mod-rate -- Launch the {@link SearchAndModRate} tool.</LI>
+ *   <LI>sort-ldif -- Launch the {@link SortLDIF} tool.</LI>
  *   <LI>split-ldif -- Launch the {@link SplitLDIF} tool.</LI>
  *   <LI>subtree-accessibility -- Launch the {@link SubtreeAccessibility}
  *       tool.</LI>
@@ -243,6 +247,10 @@ public final class Launcher
     {
       return LDAPDebugger.main(remainingArgs, outStream, errStream);
     }
+    else if (firstArg.equals("ldif-diff"))
+    {
+      return LDIFDiff.main(outStream, errStream, remainingArgs);
+    }
     else if (firstArg.equals("manage-account"))
     {
       return ManageAccount.main(outStream, errStream, remainingArgs);
@@ -267,6 +275,10 @@ public final class Launcher
     {
       return SearchAndModRate.main(remainingArgs, outStream, errStream);
     }
+    else if (firstArg.equals("sort-ldif"))
+    {
+      return SortLDIF.main(outStream, errStream, remainingArgs);
+    }
     else if (firstArg.equals("split-ldif"))
     {
       return SplitLDIF.main(outStream, errStream, remainingArgs);
@@ -309,12 +321,14 @@ public final class Launcher
         err.println("     ldapmodify");
         err.println("     ldapsearch");
         err.println("     ldap-debugger");
+        err.println("     ldif-diff");
         err.println("     manage-account");
         err.println("     modrate");
         err.println("     move-subtree");
         err.println("     register-yubikey-otp-device");
         err.println("     searchrate");
         err.println("     search-and-mod-rate");
+        err.println("     sort-ldif");
         err.println("     split-ldif");
         err.println("     subtree-accessibility");
         err.println("     summarize-access-log");
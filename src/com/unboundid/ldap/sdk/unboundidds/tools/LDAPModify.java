@@ -285,6 +285,8 @@ public final class LDAPModify
   private FileArgument rejectFile = null;
   private FilterArgument assertionFilter = null;
   private FilterArgument modifyEntriesMatchingFilter = null;
+  private IntegerArgument numThreads = null;
+  private IntegerArgument rateLimiterBurstSize = null;
   private IntegerArgument ratePerSecond = null;
   private IntegerArgument searchPageSize = null;
   private StringArgument assuredReplicationLocalLevel = null;
@@ -1002,6 +1004,24 @@ public final class LDAPModify
     ratePerSecond.setArgumentGroupName(INFO_LDAPMODIFY_ARG_GROUP_OPS.get());
     parser.addArgument(ratePerSecond);
 
+    rateLimiterBurstSize = new IntegerArgument(null, "rateLimiterBurstSize",
+         false, 1, INFO_PLACEHOLDER_NUM.get(),
+         INFO_LDAPMODIFY_ARG_DESCRIPTION_RATE_LIMITER_BURST_SIZE.get(), 1,
+         Integer.MAX_VALUE);
+    rateLimiterBurstSize.addLongIdentifier("rate-limiter-burst-size");
+    rateLimiterBurstSize.setArgumentGroupName(
+         INFO_LDAPMODIFY_ARG_GROUP_OPS.get());
+    parser.addArgument(rateLimiterBurstSize);
+
+
+    numThreads = new IntegerArgument('t', "numThreads", false, 1,
+         INFO_PLACEHOLDER_NUM.get(),
+         INFO_LDAPMODIFY_ARG_DESCRIPTION_NUM_THREADS.get(), 1,
+         Integer.MAX_VALUE, 1);
+    numThreads.addLongIdentifier("num-threads");
+    numThreads.setArgumentGroupName(INFO_LDAPMODIFY_ARG_GROUP_OPS.get());
+    parser.addArgument(numThreads);
+
 
     // The "--scriptFriendly" argument is provided for compatibility with legacy
     // ldapmodify tools, but is not actually used by this tool.
@@ -1081,6 +1101,9 @@ public final class LDAPModify
     parser.addExclusiveArgumentSet(softDelete, hardDelete);
     parser.addExclusiveArgumentSet(softDelete, subtreeDelete);
 
+    // The rateLimiterBurstSize argument requires the ratePerSecond argument.
+    parser.addDependentArgumentSet(rateLimiterBurstSize, ratePerSecond);
+
     // Password retiring and purging can't be used together.
     parser.addExclusiveArgumentSet(retireCurrentPassword, purgeCurrentPassword);
 
@@ -1171,6 +1194,17 @@ public final class LDAPModify
     parser.addExclusiveArgumentSet(modifyEntriesWithDNsFromFile, deleteControl);
     parser.addExclusiveArgumentSet(modifyEntriesWithDNsFromFile,
          modifyDNControl);
+
+    // Changes processed by multiple threads can't be part of a transaction or
+    // a multi-update request, and the bulk modify arguments have their own
+    // processing loop.
+    parser.addExclusiveArgumentSet(numThreads, useTransaction);
+    parser.addExclusiveArgumentSet(numThreads, multiUpdateErrorBehavior);
+    parser.addExclusiveArgumentSet(numThreads, modifyEntriesMatchingFilter);
+    parser.addExclusiveArgumentSet(numThreads,
+         modifyEntriesMatchingFiltersFromFile);
+    parser.addExclusiveArgumentSet(numThreads, modifyEntryWithDN);
+    parser.addExclusiveArgumentSet(numThreads, modifyEntriesWithDNsFromFile);
   }
 
 
@@ -1289,9 +1323,10 @@ public final class LDAPModify
          modifyDNControls, searchControls);
 
 
-    LDAPConnectionPool connectionPool = null;
-    LDIFReader         ldifReader     = null;
-    LDIFWriter         rejectWriter   = null;
+    LDAPConnectionPool          connectionPool    = null;
+    LDAPModifyParallelProcessor parallelProcessor = null;
+    LDIFReader                  ldifReader        = null;
+    LDIFWriter                  rejectWriter      = null;
     try
     {
       // Create a connection pool that will be used to communicate with the
@@ -1314,7 +1349,9 @@ public final class LDAPModify
 
         if (! dryRun.isPresent())
         {
-          connectionPool = getConnectionPool(1, 2, 0, p, null, true,
+          final int numConnections = numThreads.getValue();
+          connectionPool = getConnectionPool(numConnections,
+               Math.max(2, numConnections), 0, p, null, true,
                new ReportBindResultLDAPConnectionPoolHealthCheck(this, true,
                     verbose.isPresent()));
         }
@@ -1500,7 +1537,12 @@ public final class LDAPModify
 
       // If appropriate, create a rate limiter.
       final FixedRateBarrier rateLimiter;
-      if (ratePerSecond.isPresent())
+      if (rateLimiterBurstSize.isPresent())
+      {
+        rateLimiter = new FixedRateBarrier(1000L, ratePerSecond.getValue(),
+             rateLimiterBurstSize.getValue());
+      }
+      else if (ratePerSecond.isPresent())
       {
         rateLimiter = new FixedRateBarrier(1000L, ratePerSecond.getValue());
       }
@@ -1510,6 +1552,17 @@ public final class LDAPModify
       }
 
 
+      // If the changes should be processed by multiple threads, then create
+      // the parallel processor that will be used to do that.
+      if (numThreads.getValue() > 1)
+      {
+        parallelProcessor = new LDAPModifyParallelProcessor(this,
+             numThreads.getValue(), connectionPool, addControls,
+             deleteControls, modifyControls, modifyDNControls, rejectWriter,
+             continueOnError.isPresent());
+      }
+
+
       // Iterate through the set of changes to process.
       boolean commitTransaction = true;
       ResultCode resultCode = null;
@@ -1832,43 +1885,27 @@ readChangeRecordLoop:
           continue;
         }
 
-        try
+
+        // If the change should be processed by the parallel processor, then
+        // hand it off.  This will block until any earlier changes that affect
+        // the same entry or any of its ancestors or descendants have completed.
+        if (parallelProcessor != null)
         {
-          final ResultCode rc;
-          if (changeRecord instanceof LDIFAddChangeRecord)
-          {
-            rc = doAdd((LDIFAddChangeRecord) changeRecord, addControls,
-                 connectionPool, multiUpdateRequests, rejectWriter);
-          }
-          else if (changeRecord instanceof LDIFDeleteChangeRecord)
-          {
-            rc = doDelete((LDIFDeleteChangeRecord) changeRecord, deleteControls,
-                 connectionPool, multiUpdateRequests, rejectWriter);
-          }
-          else if (changeRecord instanceof LDIFModifyChangeRecord)
-          {
-            rc = doModify((LDIFModifyChangeRecord) changeRecord, modifyControls,
-                 connectionPool, multiUpdateRequests, rejectWriter);
-          }
-          else if (changeRecord instanceof LDIFModifyDNChangeRecord)
+          if (parallelProcessor.submit(changeRecord))
           {
-            rc = doModifyDN((LDIFModifyDNChangeRecord) changeRecord,
-                 modifyDNControls, connectionPool, multiUpdateRequests,
-                 rejectWriter);
+            continue;
           }
           else
           {
-            // This should never happen.
-            commentToErr(ERR_LDAPMODIFY_UNSUPPORTED_CHANGE_RECORD_HEADER.get());
-            for (final String line : changeRecord.toLDIF())
-            {
-              err("#      " + line);
-            }
-            throw new LDAPException(ResultCode.PARAM_ERROR,
-                 ERR_LDAPMODIFY_UNSUPPORTED_CHANGE_RECORD_HEADER.get() +
-                      changeRecord.toString());
+            break;
           }
+        }
 
+        try
+        {
+          final ResultCode rc = processChangeRecord(changeRecord, addControls,
+               deleteControls, modifyControls, modifyDNControls,
+               connectionPool, multiUpdateRequests, rejectWriter);
           if ((resultCode == null) && (rc != ResultCode.SUCCESS))
           {
             resultCode = rc;
@@ -1896,6 +1933,20 @@ readChangeRecordLoop:
       }
 
 
+      // If a parallel processor was used, then wait for all of the changes
+      // that were handed off to it to complete.
+      if (parallelProcessor != null)
+      {
+        final ResultCode rc = parallelProcessor.waitForCompletion();
+        if ((rc != null) && ((resultCode == null) ||
+             (resultCode == ResultCode.SUCCESS) ||
+             (resultCode == ResultCode.NO_OPERATION)))
+        {
+          resultCode = rc;
+        }
+      }
+
+
       // If the operations are part of a transaction, then commit or abort that
       // transaction now.  Otherwise, if they should be part of a multi-update
       // operation, then process that now.
@@ -1988,6 +2039,11 @@ readChangeRecordLoop:
     }
     finally
     {
+      if (parallelProcessor != null)
+      {
+        parallelProcessor.waitForCompletion();
+      }
+
       if (rejectWriter != null)
       {
         try
@@ -2678,6 +2734,81 @@ readChangeRecordLoop:
 
 
 
+  /**
+   * Performs the appropriate processing for the provided LDIF change record.
+   *
+   * @param  changeRecord         The LDIF change record to process.
+   * @param  addControls          The set of controls to include in add
+   *                              requests.
+   * @param  deleteControls       The set of controls to include in delete
+   *                              requests.
+   * @param  modifyControls       The set of controls to include in modify
+   *                              requests.
+   * @param  modifyDNControls     The set of controls to include in modify DN
+   *                              requests.
+   * @param  pool                 The connection pool to use to communicate with
+   *                              the directory server.
+   * @param  multiUpdateRequests  The list to which the request should be added
+   *                              if it is to be processed as part of a
+   *                              multi-update operation.  It may be
+   *                              {@code null} if the operation should not be
+   *                              processed via the multi-update operation.
+   * @param  rejectWriter         The LDIF writer to use for recording
+   *                              information about rejected changes.  It may be
+   *                              {@code null} if no reject writer is
+   *                              configured.
+   *
+   * @return  The result code obtained from processing.
+   *
+   * @throws  LDAPException  If the operation did not complete successfully
+   *                         and processing should not continue.
+   */
+  ResultCode processChangeRecord(final LDIFChangeRecord changeRecord,
+                                 final List<Control> addControls,
+                                 final List<Control> deleteControls,
+                                 final List<Control> modifyControls,
+                                 final List<Control> modifyDNControls,
+                                 final LDAPConnectionPool pool,
+                                 final List<LDAPRequest> multiUpdateRequests,
+                                 final LDIFWriter rejectWriter)
+             throws LDAPException
+  {
+    if (changeRecord instanceof LDIFAddChangeRecord)
+    {
+      return doAdd((LDIFAddChangeRecord) changeRecord, addControls, pool,
+           multiUpdateRequests, rejectWriter);
+    }
+    else if (changeRecord instanceof LDIFDeleteChangeRecord)
+    {
+      return doDelete((LDIFDeleteChangeRecord) changeRecord, deleteControls,
+           pool, multiUpdateRequests, rejectWriter);
+    }
+    else if (changeRecord instanceof LDIFModifyChangeRecord)
+    {
+      return doModify((LDIFModifyChangeRecord) changeRecord, modifyControls,
+           pool, multiUpdateRequests, rejectWriter);
+    }
+    else if (changeRecord instanceof LDIFModifyDNChangeRecord)
+    {
+      return doModifyDN((LDIFModifyDNChangeRecord) changeRecord,
+           modifyDNControls, pool, multiUpdateRequests, rejectWriter);
+    }
+    else
+    {
+      // This should never happen.
+      commentToErr(ERR_LDAPMODIFY_UNSUPPORTED_CHANGE_RECORD_HEADER.get());
+      for (final String line : changeRecord.toLDIF())
+      {
+        writeErr("#      " + line);
+      }
+      throw new LDAPException(ResultCode.PARAM_ERROR,
+           ERR_LDAPMODIFY_UNSUPPORTED_CHANGE_RECORD_HEADER.get() +
+                changeRecord.toString());
+    }
+  }
+
+
+
   /**
    * Performs the appropriate processing for an LDIF add change record.
    *
@@ -2766,9 +2897,9 @@ readChangeRecordLoop:
       for (final String ldifLine :
            addRequest.toLDIFChangeRecord().toLDIF(WRAP_COLUMN))
       {
-        out(ldifLine);
+        writeOut(ldifLine);
       }
-      out();
+      writeOut();
     }
 
     LDAPResult addResult;
@@ -2880,9 +3011,9 @@ readChangeRecordLoop:
       for (final String ldifLine :
            deleteRequest.toLDIFChangeRecord().toLDIF(WRAP_COLUMN))
       {
-        out(ldifLine);
+        writeOut(ldifLine);
       }
-      out();
+      writeOut();
     }
 
 
@@ -3027,9 +3158,9 @@ readChangeRecordLoop:
       for (final String ldifLine :
            modifyRequest.toLDIFChangeRecord().toLDIF(WRAP_COLUMN))
       {
-        out(ldifLine);
+        writeOut(ldifLine);
       }
-      out();
+      writeOut();
     }
 
 
@@ -3210,9 +3341,9 @@ readChangeRecordLoop:
       for (final String ldifLine :
            modifyDNRequest.toLDIFChangeRecord().toLDIF(WRAP_COLUMN))
       {
-        out(ldifLine);
+        writeOut(ldifLine);
       }
-      out();
+      writeOut();
     }
 
 
@@ -3280,17 +3411,17 @@ readChangeRecordLoop:
     {
       for (final String line : resultLines)
       {
-        out(line);
+        writeOut(line);
       }
-      out();
+      writeOut();
     }
     else
     {
       for (final String line : resultLines)
       {
-        err(line);
+        writeErr(line);
       }
-      err();
+      writeErr();
     }
   }
 
@@ -3302,11 +3433,11 @@ readChangeRecordLoop:
    *
    * @param  message  The message to be written.
    */
-  private void commentToOut(final String message)
+  void commentToOut(final String message)
   {
     for (final String line : StaticUtils.wrapLine(message, WRAP_COLUMN - 2))
     {
-      out("# ", line);
+      writeOut("# ", line);
     }
   }
 
@@ -3322,7 +3453,7 @@ readChangeRecordLoop:
   {
     for (final String line : StaticUtils.wrapLine(message, WRAP_COLUMN - 2))
     {
-      err("# ", line);
+      writeErr("# ", line);
     }
   }
 
@@ -3394,6 +3525,30 @@ readChangeRecordLoop:
       return;
     }
 
+    synchronized (writer)
+    {
+      writeRejectedChangeInternal(writer, comment, changeRecord);
+    }
+  }
+
+
+
+  /**
+   * Writes information about the rejected change to the reject writer.  The
+   * caller must hold the lock on the writer.
+   *
+   * @param  writer        The LDIF writer to which the information should be
+   *                       written.  It must not be {@code null}.
+   * @param  comment       The comment to include before the change record.  It
+   *                       may be {@code null} if no comment should be included.
+   * @param  changeRecord  The LDIF change record to be written.  It may be
+   *                       {@code null} if only a comment should be written.
+   */
+  private void writeRejectedChangeInternal(final LDIFWriter writer,
+                                           final String comment,
+                                           final LDIFChangeRecord changeRecord)
+  {
+
     if (rejectWritten.compareAndSet(false, true))
     {
       try
@@ -3430,6 +3585,54 @@ readChangeRecordLoop:
 
 
 
+  /**
+   * Writes the provided message to standard output.  If the current thread is
+   * a parallel processor thread, then the message will be buffered so that it
+   * will be written along with the rest of the output for the change being
+   * processed.
+   *
+   * @param  msg  The message components that will be written to standard
+   *              output.
+   */
+  private void writeOut(final Object... msg)
+  {
+    final Thread t = Thread.currentThread();
+    if (t instanceof LDAPModifyParallelProcessorThread)
+    {
+      ((LDAPModifyParallelProcessorThread) t).bufferOutput(false, msg);
+    }
+    else
+    {
+      out(msg);
+    }
+  }
+
+
+
+  /**
+   * Writes the provided message to standard error.  If the current thread is
+   * a parallel processor thread, then the message will be buffered so that it
+   * will be written along with the rest of the output for the change being
+   * processed.
+   *
+   * @param  msg  The message components that will be written to standard
+   *              error.
+   */
+  private void writeErr(final Object... msg)
+  {
+    final Thread t = Thread.currentThread();
+    if (t instanceof LDAPModifyParallelProcessorThread)
+    {
+      ((LDAPModifyParallelProcessorThread) t).bufferOutput(true, msg);
+    }
+    else
+    {
+      err(msg);
+    }
+  }
+
+
+
   /**
    * {@inheritDoc}
    */
@@ -0,0 +1,644 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk.unboundidds.tools;
+
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.unboundid.ldap.sdk.Control;
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.LDAPConnectionPool;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldif.LDIFChangeRecord;
+import com.unboundid.ldif.LDIFModifyDNChangeRecord;
+import com.unboundid.ldif.LDIFWriter;
+import com.unboundid.util.Debug;
+import com.unboundid.util.ObjectPair;
+import com.unboundid.util.StaticUtils;
+
+import static com.unboundid.ldap.sdk.unboundidds.tools.ToolMessages.*;
+
+
+
+/**
+ * This class provides a mechanism for applying LDIF changes in the ldapmodify
+ * tool using multiple concurrent threads.  Changes are dispatched in the order
+ * in which they are read, but a change will not be dispatched while an earlier
+ * change that targets the same entry, one of its ancestors, or one of its
+ * descendants is still in progress.  This ensures that an entry will be added
+ * before any of its children, that an entry will not be deleted until after
+ * any earlier changes to its children, and that multiple changes to the same
+ * entry will be applied in order.  Changes to unrelated entries will be
+ * processed concurrently.
+ * <BR>
+ * <BLOCKQUOTE>
+ *   <B>NOTE:</B>  This class, and other classes within the
+ *   {@code com.unboundid.ldap.sdk.unboundidds} package structure, are only
+ *   supported for use against Ping Identity, UnboundID, and Alcatel-Lucent 8661
+ *   server products.  These classes provide support for proprietary
+ *   functionality or for external specifications that are not considered stable
+ *   or mature enough to be guaranteed to work in an interoperable way with
+ *   other types of LDAP servers.
+ * </BLOCKQUOTE>
+ */
+final class LDAPModifyParallelProcessor
+{
+  /**
+   * The minimum length of time in milliseconds between progress messages.
+   */
+  static final long PROGRESS_INTERVAL_MILLIS = 10000L;
+
+
+
+  // The number of changes that have completed processing.
+  private final AtomicLong numCompleted;
+
+  // The number of changes that have completed unsuccessfully.
+  private final AtomicLong numFailed;
+
+  // Indicates whether all changes have been submitted for processing.
+  private volatile boolean endOfInput;
+
+  // Indicates whether processing should stop because a change failed and the
+  // tool should not continue on error.
+  private volatile boolean stopRequested;
+
+  // Indicates whether to continue processing after an error.
+  private final boolean continueOnError;
+
+  // The number of changes in progress that could not be associated with a DN,
+  // which must be processed with no other changes in progress.
+  private int numBarriersInProgress;
+
+  // The number of changes that have been dispatched but not yet completed.
+  private int numInProgress;
+
+  // The number of completed changes at the time of the last progress message.
+  private long lastProgressCompleted;
+
+  // The time of the last progress message.
+  private long lastProgressTime;
+
+  // The time that processing started.
+  private final long startTime;
+
+  // The connection pool to use to communicate with the directory server.
+  private final LDAPConnectionPool pool;
+
+  // The ldapmodify tool instance with which this processor is associated.
+  private final LDAPModify ldapModify;
+
+  // The queue of changes that have been dispatched but not yet picked up by a
+  // processing thread.
+  private final LinkedBlockingQueue<ObjectPair<LDIFChangeRecord,List<DN>>>
+       changeQueue;
+
+  // The controls to include in add, delete, modify, and modify DN requests.
+  private final List<Control> addControls;
+  private final List<Control> deleteControls;
+  private final List<Control> modifyControls;
+  private final List<Control> modifyDNControls;
+
+  // The processing threads that have been created.
+  private final List<LDAPModifyParallelProcessorThread> processorThreads;
+
+  // The number of in-progress changes targeting each DN.
+  private final Map<DN,Integer> entryCounts;
+
+  // The number of in-progress changes targeting each DN or any of its
+  // descendants.
+  private final Map<DN,Integer> subtreeCounts;
+
+  // The lock used to protect the dependency information.
+  private final Object dependencyLock;
+
+  // The LDIF writer to use to record information about rejected changes.
+  private final LDIFWriter rejectWriter;
+
+  // The result code to return for the processing.
+  private ResultCode resultCode;
+
+
+
+  /**
+   * Creates a new ldapmodify parallel processor with the provided information
+   * and starts the processing threads.
+   *
+   * @param  ldapModify        The ldapmodify tool instance with which this
+   *                           processor is associated.
+   * @param  numThreads        The number of processing threads to use.
+   * @param  pool              The connection pool to use to communicate with
+   *                           the directory server.  It may be {@code null}
+   *                           if the changes will not actually be applied.
+   * @param  addControls       The controls to include in add requests.
+   * @param  deleteControls    The controls to include in delete requests.
+   * @param  modifyControls    The controls to include in modify requests.
+   * @param  modifyDNControls  The controls to include in modify DN requests.
+   * @param  rejectWriter      The LDIF writer to use to record information
+   *                           about rejected changes.  It may be {@code null}
+   *                           if no reject file is configured.
+   * @param  continueOnError   Indicates whether to continue processing after
+   *                           an error.
+   */
+  LDAPModifyParallelProcessor(final LDAPModify ldapModify,
+                              final int numThreads,
+                              final LDAPConnectionPool pool,
+                              final List<Control> addControls,
+                              final List<Control> deleteControls,
+                              final List<Control> modifyControls,
+                              final List<Control> modifyDNControls,
+                              final LDIFWriter rejectWriter,
+                              final boolean continueOnError)
+  {
+    this.ldapModify       = ldapModify;
+    this.pool             = pool;
+    this.addControls      = addControls;
+    this.deleteControls   = deleteControls;
+    this.modifyControls   = modifyControls;
+    this.modifyDNControls = modifyDNControls;
+    this.rejectWriter     = rejectWriter;
+    this.continueOnError  = continueOnError;
+
+    numCompleted          = new AtomicLong(0L);
+    numFailed             = new AtomicLong(0L);
+    endOfInput            = false;
+    stopRequested         = false;
+    numBarriersInProgress = 0;
+    numInProgress         = 0;
+    lastProgressCompleted = 0L;
+    resultCode            = null;
+    entryCounts           = new HashMap<DN,Integer>(100);
+    subtreeCounts         = new HashMap<DN,Integer>(100);
+    dependencyLock        = new Object();
+    changeQueue           =
+         new LinkedBlockingQueue<ObjectPair<LDIFChangeRecord,List<DN>>>(
+              2 * numThreads);
+
+    startTime        = System.currentTimeMillis();
+    lastProgressTime = startTime;
+
+    processorThreads =
+         new ArrayList<LDAPModifyParallelProcessorThread>(numThreads);
+    for (int i=1; i <= numThreads; i++)
+    {
+      final LDAPModifyParallelProcessorThread processorThread =
+           new LDAPModifyParallelProcessorThread(i, ldapModify, this);
+      processorThread.start();
+      processorThreads.add(processorThread);
+    }
+  }
+
+
+
+  /**
+   * Submits the provided change for processing.  This method will block until
+   * any earlier changes on which the provided change depends have completed.
+   * It must only be called by the thread reading the changes.
+   *
+   * @param  changeRecord  The change record to be processed.
+   *
+   * @return  {@code true} if the change was submitted for processing, or
+   *          {@code false} if it was not because processing should stop as a
+   *          result of an earlier failure.
+   */
+  boolean submit(final LDIFChangeRecord changeRecord)
+  {
+    final List<DN> dns = getTargetDNs(changeRecord);
+
+    synchronized (dependencyLock)
+    {
+      while (hasConflict(dns))
+      {
+        if (stopRequested)
+        {
+          return false;
+        }
+
+        try
+        {
+          dependencyLock.wait(100L);
+        }
+        catch (final InterruptedException ie)
+        {
+          Debug.debugException(ie);
+          Thread.currentThread().interrupt();
+          return false;
+        }
+      }
+
+      if (stopRequested)
+      {
+        return false;
+      }
+
+      addInProgress(dns);
+    }
+
+    final ObjectPair<LDIFChangeRecord,List<DN>> change =
+         new ObjectPair<LDIFChangeRecord,List<DN>>(changeRecord, dns);
+    try
+    {
+      changeQueue.put(change);
+    }
+    catch (final InterruptedException ie)
+    {
+      Debug.debugException(ie);
+      Thread.currentThread().interrupt();
+      changeCompleted(change);
+      return false;
+    }
+
+    reportProgressIfNecessary();
+    return true;
+  }
+
+
+
+  /**
+   * Retrieves the next change to be processed.  This should only be called by
+   * {@link LDAPModifyParallelProcessorThread} instances.
+   *
+   * @return  The next change to be processed, or {@code null} if there are no
+   *          more changes to process.
+   */
+  ObjectPair<LDIFChangeRecord,List<DN>> getChange()
+  {
+    while (true)
+    {
+      final boolean noMoreChanges = endOfInput;
+
+      try
+      {
+        final ObjectPair<LDIFChangeRecord,List<DN>> change =
+             changeQueue.poll(100L, TimeUnit.MILLISECONDS);
+        if (change != null)
+        {
+          return change;
+        }
+      }
+      catch (final InterruptedException ie)
+      {
+        Debug.debugException(ie);
+        Thread.currentThread().interrupt();
+        return null;
+      }
+
+      if (noMoreChanges)
+      {
+        return null;
+      }
+    }
+  }
+
+
+
+  /**
+   * Performs the appropriate processing for the provided change.  This should
+   * only be called by {@link LDAPModifyParallelProcessorThread} instances.
+   *
+   * @param  change  The change to be processed.
+   */
+  void process(final ObjectPair<LDIFChangeRecord,List<DN>> change)
+  {
+    ResultCode rc;
+    boolean abort = false;
+    try
+    {
+      rc = ldapModify.processChangeRecord(change.getFirst(), addControls,
+           deleteControls, modifyControls, modifyDNControls, pool, null,
+           rejectWriter);
+    }
+    catch (final LDAPException le)
+    {
+      Debug.debugException(le);
+      rc = le.getResultCode();
+      abort = (! continueOnError);
+    }
+
+    if ((rc != ResultCode.SUCCESS) && (rc != ResultCode.NO_OPERATION))
+    {
+      numFailed.incrementAndGet();
+    }
+
+    // Use the same logic as the ldapmodify tool uses when processing changes
+    // serially to determine the result code to return.
+    synchronized (dependencyLock)
+    {
+      if (abort)
+      {
+        if ((! stopRequested) || (resultCode == null) ||
+            (resultCode == ResultCode.SUCCESS) ||
+            (resultCode == ResultCode.NO_OPERATION))
+        {
+          resultCode = rc;
+        }
+        stopRequested = true;
+      }
+      else if (rc != ResultCode.SUCCESS)
+      {
+        if ((resultCode == null) || (resultCode == ResultCode.SUCCESS) ||
+            (resultCode == ResultCode.NO_OPERATION))
+        {
+          resultCode = rc;
+        }
+      }
+    }
+
+    numCompleted.incrementAndGet();
+  }
+
+
+
+  /**
+   * Indicates that processing has completed for the provided change, so that
+   * any changes that depend on it may be dispatched.  This should only be
+   * called by {@link LDAPModifyParallelProcessorThread} instances.
+   *
+   * @param  change  The change that has completed.
+   */
+  void changeCompleted(final ObjectPair<LDIFChangeRecord,List<DN>> change)
+  {
+    synchronized (dependencyLock)
+    {
+      removeInProgress(change.getSecond());
+      dependencyLock.notifyAll();
+    }
+  }
+
+
+
+  /**
+   * Indicates that no more changes will be submitted, waits for all submitted
+   * changes to complete, and writes a summary of the processing.  If this
+   * method has already been called, then it will simply return the result
+   * code without writing the summary again.
+   *
+   * @return  The result code for the first change that did not complete
+   *          successfully, or {@code null} if all changes completed
+   *          successfully.
+   */
+  ResultCode waitForCompletion()
+  {
+    if (endOfInput)
+    {
+      synchronized (dependencyLock)
+      {
+        return resultCode;
+      }
+    }
+
+    endOfInput = true;
+
+    for (final LDAPModifyParallelProcessorThread t : processorThreads)
+    {
+      try
+      {
+        t.join();
+      }
+      catch (final InterruptedException ie)
+      {
+        Debug.debugException(ie);
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    final long elapsedMillis =
+         Math.max(1L, (System.currentTimeMillis() - startTime));
+    final long completed = numCompleted.get();
+    final long failed = numFailed.get();
+    ldapModify.commentToOut(INFO_LDAPMODIFY_PARALLEL_SUMMARY.get(completed,
+         (completed - failed), failed, processorThreads.size(),
+         StaticUtils.millisToHumanReadableDuration(elapsedMillis),
+         ((completed * 1000L) / elapsedMillis)));
+
+    synchronized (dependencyLock)
+    {
+      return resultCode;
+    }
+  }
+
+
+
+  /**
+   * Writes a progress message if enough time has passed since the last one.
+   */
+  private void reportProgressIfNecessary()
+  {
+    final long currentTime = System.currentTimeMillis();
+    final long intervalMillis = currentTime - lastProgressTime;
+    if (intervalMillis < PROGRESS_INTERVAL_MILLIS)
+    {
+      return;
+    }
+
+    final long completed = numCompleted.get();
+    final long intervalRate =
+         ((completed - lastProgressCompleted) * 1000L) / intervalMillis;
+    final long overallRate =
+         (completed * 1000L) / Math.max(1L, (currentTime - startTime));
+    ldapModify.commentToOut(INFO_LDAPMODIFY_PARALLEL_PROGRESS.get(completed,
+         numFailed.get(), intervalRate, overallRate));
+
+    lastProgressTime = currentTime;
+    lastProgressCompleted = completed;
+  }
+
+
+
+  /**
+   * Retrieves the DNs of the entries targeted by the provided change record.
+   *
+   * @param  changeRecord  The change record for which to retrieve the target
+   *                       DNs.
+   *
+   * @return  The DNs of the entries targeted by the provided change record, or
+   *          {@code null} if they cannot be determined.
+   */
+  static List<DN> getTargetDNs(final LDIFChangeRecord changeRecord)
+  {
+    try
+    {
+      final DN dn = changeRecord.getParsedDN();
+      if (changeRecord instanceof LDIFModifyDNChangeRecord)
+      {
+        return Arrays.asList(dn,
+             ((LDIFModifyDNChangeRecord) changeRecord).getNewDN());
+      }
+      else
+      {
+        return Collections.singletonList(dn);
+      }
+    }
+    catch (final LDAPException le)
+    {
+      Debug.debugException(le);
+      return null;
+    }
+  }
+
+
+
+  /**
+   * Indicates whether a change targeting the provided DNs conflicts with any
+   * change that is currently in progress.  The caller must hold the dependency
+   * lock.
+   *
+   * @param  dns  The DNs targeted by the change, or {@code null} if they could
+   *              not be determined.
+   *
+   * @return  {@code true} if the change conflicts with an in-progress change,
+   *          or {@code false} if not.
+   */
+  private boolean hasConflict(final List<DN> dns)
+  {
+    if (numBarriersInProgress > 0)
+    {
+      return true;
+    }
+
+    if (dns == null)
+    {
+      return (numInProgress > 0);
+    }
+
+    for (final DN dn : dns)
+    {
+      // See if there are any in-progress changes that target the entry or any
+      // of its descendants.
+      if (subtreeCounts.containsKey(dn))
+      {
+        return true;
+      }
+
+      // See if there are any in-progress changes that target any of the
+      // entry's ancestors.
+      DN ancestor = dn.getParent();
+      while (ancestor != null)
+      {
+        if (entryCounts.containsKey(ancestor))
+        {
+          return true;
+        }
+
+        ancestor = ancestor.getParent();
+      }
+    }
+
+    return false;
+  }
+
+
+
+  /**
+   * Records that a change targeting the provided DNs is in progress.  The
+   * caller must hold the dependency lock.
+   *
+   * @param  dns  The DNs targeted by the change, or {@code null} if they could
+   *              not be determined.
+   */
+  private void addInProgress(final List<DN> dns)
+  {
+    numInProgress++;
+    if (dns == null)
+    {
+      numBarriersInProgress++;
+      return;
+    }
+
+    for (final DN dn : dns)
+    {
+      adjustCount(entryCounts, dn, 1);
+
+      DN d = dn;
+      while (d != null)
+      {
+        adjustCount(subtreeCounts, d, 1);
+        d = d.getParent();
+      }
+    }
+  }
+
+
+
+  /**
+   * Records that a change targeting the provided DNs is no longer in progress.
+   * The caller must hold the dependency lock.
+   *
+   * @param  dns  The DNs targeted by the change, or {@code null} if they could
+   *              not be determined.
+   */
+  private void removeInProgress(final List<DN> dns)
+  {
+    numInProgress--;
+    if (dns == null)
+    {
+      numBarriersInProgress--;
+      return;
+    }
+
+    for (final DN dn : dns)
+    {
+      adjustCount(entryCounts, dn, -1);
+
+      DN d = dn;
+      while (d != null)
+      {
+        adjustCount(subtreeCounts, d, -1);
+        d = d.getParent();
+      }
+    }
+  }
+
+
+
+  /**
+   * Adjusts the count for the specified DN in the given map, removing the DN
+   * from the map if its count drops to zero.
+   *
+   * @param  counts      The map in which to adjust the count.
+   * @param  dn          The DN for which to adjust the count.
+   * @param  adjustment  The amount by which to adjust the count.
+   */
+  private static void adjustCount(final Map<DN,Integer> counts, final DN dn,
+                                  final int adjustment)
+  {
+    final Integer count = counts.get(dn);
+    final int newCount = ((count == null) ? 0 : count) + adjustment;
+    if (newCount <= 0)
+    {
+      counts.remove(dn);
+    }
+    else
+    {
+      counts.put(dn, newCount);
+    }
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk.unboundidds.tools;
+
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldif.LDIFChangeRecord;
+import com.unboundid.util.ObjectPair;
+
+
+
+/**
+ * This class provides a thread that may be used to parallelize the process of
+ * applying LDIF changes in the ldapmodify tool.  Any output generated while
+ * processing a change will be buffered and written as a single block once the
+ * change has completed, so that the output for different changes will not be
+ * interleaved.
+ * <BR>
+ * <BLOCKQUOTE>
+ *   <B>NOTE:</B>  This class, and other classes within the
+ *   {@code com.unboundid.ldap.sdk.unboundidds} package structure, are only
+ *   supported for use against Ping Identity, UnboundID, and Alcatel-Lucent 8661
+ *   server products.  These classes provide support for proprietary
+ *   functionality or for external specifications that are not considered stable
+ *   or mature enough to be guaranteed to work in an interoperable way with
+ *   other types of LDAP servers.
+ * </BLOCKQUOTE>
+ */
+final class LDAPModifyParallelProcessorThread
+       extends Thread
+{
+  // The output buffered while processing the current change.  The first
+  // element of each pair indicates whether the line should be written to
+  // standard error rather than standard output.
+  private final List<ObjectPair<Boolean,String>> bufferedOutput;
+
+  // The ldapmodify tool instance with which this thread is associated.
+  private final LDAPModify ldapModify;
+
+  // The parallel processor that will actually do the majority of the work.
+  private final LDAPModifyParallelProcessor processor;
+
+
+
+  /**
+   * Creates a new ldapmodify parallel processor thread with the provided
+   * information.
+   *
+   * @param  threadNumber  The thread number for this thread.  This will only be
+   *                       used for informational purposes in the thread name.
+   * @param  ldapModify    The ldapmodify tool instance with which this thread
+   *                       is associated.  It must not be {@code null}.
+   * @param  processor     The parallel processor that will actually do the
+   *                       majority of the work.  It must not be {@code null}.
+   */
+  LDAPModifyParallelProcessorThread(final int threadNumber,
+                                    final LDAPModify ldapModify,
+                                    final LDAPModifyParallelProcessor processor)
+  {
+    setName("ldapmodify Processor Thread " + threadNumber);
+
+    this.ldapModify = ldapModify;
+    this.processor  = processor;
+
+    bufferedOutput = new ArrayList<ObjectPair<Boolean,String>>(10);
+  }
+
+
+
+  /**
+   * Buffers the provided message so that it will be written when processing
+   * for the current change has completed.
+   *
+   * @param  toStandardError  Indicates whether the message should be written
+   *                          to standard error rather than standard output.
+   * @param  msg              The message components that will be
+   *                          concatenated together on the same line.
+   */
+  void bufferOutput(final boolean toStandardError, final Object... msg)
+  {
+    final StringBuilder buffer = new StringBuilder();
+    for (final Object o : msg)
+    {
+      buffer.append(o);
+    }
+
+    bufferedOutput.add(new ObjectPair<Boolean,String>(toStandardError,
+         buffer.toString()));
+  }
+
+
+
+  /**
+   * Writes any buffered output.  All lines will be written while holding the
+   * lock on the tool, so that they will not be interleaved with output from
+   * other threads.
+   */
+  private void flushOutput()
+  {
+    if (bufferedOutput.isEmpty())
+    {
+      return;
+    }
+
+    synchronized (ldapModify)
+    {
+      for (final ObjectPair<Boolean,String> p : bufferedOutput)
+      {
+        if (p.getFirst())
+        {
+          ldapModify.err(p.getSecond());
+        }
+        else
+        {
+          ldapModify.out(p.getSecond());
+        }
+      }
+    }
+
+    bufferedOutput.clear();
+  }
+
+
+
+  /**
+   * Performs the processing for this thread.
+   */
+  @Override()
+  public void run()
+  {
+    while (true)
+    {
+      final ObjectPair<LDIFChangeRecord,List<DN>> change =
+           processor.getChange();
+      if (change == null)
+      {
+        return;
+      }
+
+      try
+      {
+        processor.process(change);
+      }
+      finally
+      {
+        flushOutput();
+        processor.changeCompleted(change);
+      }
+    }
+  }
+}
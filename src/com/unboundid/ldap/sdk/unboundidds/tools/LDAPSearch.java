@@ -208,6 +208,7 @@ public final class LDAPSearch
   private FilterArgument joinFilter = null;
   private FilterArgument matchedValuesFilter = null;
   private IntegerArgument joinSizeLimit = null;
+  private IntegerArgument rateLimiterBurstSize = null;
   private IntegerArgument ratePerSecond = null;
   private IntegerArgument scrambleRandomSeed = null;
   private IntegerArgument simplePageSize = null;
@@ -571,6 +572,15 @@ public final class LDAPSearch
     ratePerSecond.setArgumentGroupName(INFO_LDAPSEARCH_ARG_GROUP_OPS.get());
     parser.addArgument(ratePerSecond);
 
+    rateLimiterBurstSize = new IntegerArgument(null, "rateLimiterBurstSize",
+         false, 1, INFO_PLACEHOLDER_NUM.get(),
+         INFO_LDAPSEARCH_ARG_DESCRIPTION_RATE_LIMITER_BURST_SIZE.get(), 1,
+         Integer.MAX_VALUE);
+    rateLimiterBurstSize.addLongIdentifier("rate-limiter-burst-size");
+    rateLimiterBurstSize.setArgumentGroupName(
+         INFO_LDAPSEARCH_ARG_GROUP_OPS.get());
+    parser.addArgument(rateLimiterBurstSize);
+
     useAdministrativeSession = new BooleanArgument(null,
          "useAdministrativeSession", 1,
          INFO_LDAPSEARCH_ARG_DESCRIPTION_USE_ADMIN_SESSION.get());
@@ -1131,6 +1141,9 @@ public final class LDAPSearch
     parser.addExclusiveArgumentSet(countEntries, persistentSearch);
 
 
+    // The rateLimiterBurstSize argument requires the ratePerSecond argument.
+    parser.addDependentArgumentSet(rateLimiterBurstSize, ratePerSecond);
+
     // The hideRedactedValueCount argument requires the redactAttribute
     // argument.
     parser.addDependentArgumentSet(hideRedactedValueCount, redactAttribute);
@@ -2067,7 +2080,12 @@ public final class LDAPSearch
 
       // If appropriate, create a rate limiter.
       final FixedRateBarrier rateLimiter;
-      if (ratePerSecond.isPresent())
+      if (rateLimiterBurstSize.isPresent())
+      {
+        rateLimiter = new FixedRateBarrier(1000L, ratePerSecond.getValue(),
+             rateLimiterBurstSize.getValue());
+      }
+      else if (ratePerSecond.isPresent())
       {
         rateLimiter = new FixedRateBarrier(1000L, ratePerSecond.getValue());
       }
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk.unboundidds.tools;
+
+
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.Version;
+import com.unboundid.ldif.LDIFDiffer;
+import com.unboundid.ldif.LDIFException;
+import com.unboundid.ldif.LDIFExternalSorter;
+import com.unboundid.util.CommandLineTool;
+import com.unboundid.util.Debug;
+import com.unboundid.util.StaticUtils;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+import com.unboundid.util.args.ArgumentException;
+import com.unboundid.util.args.ArgumentParser;
+import com.unboundid.util.args.BooleanArgument;
+import com.unboundid.util.args.FileArgument;
+import com.unboundid.util.args.IntegerArgument;
+
+import static com.unboundid.ldap.sdk.unboundidds.tools.ToolMessages.*;
+
+
+
+/**
+ * This class provides a command-line tool that can be used to identify the
+ * differences between two LDIF files and write them as a set of change records
+ * that can be applied to the data in the source file to make it match the data
+ * in the target file.
+ * <BR>
+ * <BLOCKQUOTE>
+ *   <B>NOTE:</B>  This class, and other classes within the
+ *   {@code com.unboundid.ldap.sdk.unboundidds} package structure, are only
+ *   supported for use against Ping Identity, UnboundID, and Alcatel-Lucent 8661
+ *   server products.  These classes provide support for proprietary
+ *   functionality or for external specifications that are not considered stable
+ *   or mature enough to be guaranteed to work in an interoperable way with
+ *   other types of LDAP servers.
+ * </BLOCKQUOTE>
+ * <BR>
+ * The comparison is performed by the {@link LDIFDiffer} class, which reads
+ * both files in parallel and does not need to hold them in memory.  The
+ * entries in each file must be sorted hierarchically (as with the sort-ldif
+ * tool) unless the tool is asked to sort them first.
+ */
+@ThreadSafety(level=ThreadSafetyLevel.NOT_THREADSAFE)
+public final class LDIFDiff
+     extends CommandLineTool
+{
+  /**
+   * The maximum length of any message to write to standard output or standard
+   * error.
+   */
+  private static final int MAX_OUTPUT_LINE_LENGTH =
+       StaticUtils.TERMINAL_WIDTH_COLUMNS - 1;
+
+
+
+  // The arguments used by this tool.
+  private BooleanArgument nonReversible = null;
+  private BooleanArgument sortInputs = null;
+  private FileArgument outputLDIF = null;
+  private FileArgument sourceLDIF = null;
+  private FileArgument targetLDIF = null;
+  private FileArgument tempDirectory = null;
+  private IntegerArgument maxMemoryMB = null;
+  private IntegerArgument numThreads = null;
+
+
+
+  /**
+   * Runs the tool with the provided set of command-line arguments.
+   *
+   * @param  args  The command-line arguments provided to this tool.
+   */
+  public static void main(final String... args)
+  {
+    final ResultCode resultCode = main(System.out, System.err, args);
+    if (resultCode != ResultCode.SUCCESS)
+    {
+      System.exit(resultCode.intValue());
+    }
+  }
+
+
+
+  /**
+   * Runs the tool with the provided set of command-line arguments.
+   *
+   * @param  out   The output stream used for standard output.  It may be
+   *               {@code null} if standard output should be suppressed.
+   * @param  err   The output stream used for standard error.  It may be
+   *               {@code null} if standard error should be suppressed.
+   * @param  args  The command-line arguments provided to this tool.
+   *
+   * @return  A result code with information about the processing performed.
+   *          Any result code other than {@link ResultCode#SUCCESS} indicates
+   *          that an error occurred.
+   */
+  public static ResultCode main(final OutputStream out, final OutputStream err,
+                                final String... args)
+  {
+    final LDIFDiff tool = new LDIFDiff(out, err);
+    return tool.runTool(args);
+  }
+
+
+
+  /**
+   * Creates a new instance of this tool with the provided information.
+   *
+   * @param  out  The output stream used for standard output.  It may be
+   *              {@code null} if standard output should be suppressed.
+   * @param  err  The output stream used for standard error.  It may be
+   *              {@code null} if standard error should be suppressed.
+   */
+  public LDIFDiff(final OutputStream out, final OutputStream err)
+  {
+    super(out, err);
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public String getToolName()
+  {
+    return "ldif-diff";
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public String getToolDescription()
+  {
+    return INFO_LDIF_DIFF_TOOL_DESCRIPTION.get();
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public String getToolVersion()
+  {
+    return Version.NUMERIC_VERSION_STRING;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public boolean supportsInteractiveMode()
+  {
+    return true;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public boolean defaultsToInteractiveMode()
+  {
+    return true;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public boolean supportsPropertiesFile()
+  {
+    return true;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void addToolArguments(final ArgumentParser parser)
+         throws ArgumentException
+  {
+    sourceLDIF = new FileArgument(null, "sourceLDIF", true, 1, null,
+         INFO_LDIF_DIFF_ARG_DESC_SOURCE_LDIF.get(), true, true, true, false);
+    sourceLDIF.addLongIdentifier("source-ldif");
+    parser.addArgument(sourceLDIF);
+
+    targetLDIF = new FileArgument(null, "targetLDIF", true, 1, null,
+         INFO_LDIF_DIFF_ARG_DESC_TARGET_LDIF.get(), true, true, true, false);
+    targetLDIF.addLongIdentifier("target-ldif");
+    parser.addArgument(targetLDIF);
+
+    outputLDIF = new FileArgument('o', "outputLDIF", true, 1, null,
+         INFO_LDIF_DIFF_ARG_DESC_OUTPUT_LDIF.get(), false, true, true, false);
+    outputLDIF.addLongIdentifier("output-ldif");
+    parser.addArgument(outputLDIF);
+
+    sortInputs = new BooleanArgument(null, "sortInputs", 1,
+         INFO_LDIF_DIFF_ARG_DESC_SORT_INPUTS.get());
+    sortInputs.addLongIdentifier("sort-inputs");
+    parser.addArgument(sortInputs);
+
+    nonReversible = new BooleanArgument(null, "nonReversible", 1,
+         INFO_LDIF_DIFF_ARG_DESC_NON_REVERSIBLE.get());
+    nonReversible.addLongIdentifier("non-reversible");
+    parser.addArgument(nonReversible);
+
+    maxMemoryMB = new IntegerArgument(null, "maxMemoryMB", false, 1, null,
+         INFO_LDIF_DIFF_ARG_DESC_MAX_MEMORY_MB.get(), 1, Integer.MAX_VALUE,
+         (int) (LDIFExternalSorter.DEFAULT_MAX_BYTES_IN_MEMORY /
+              (1024L * 1024L)));
+    maxMemoryMB.addLongIdentifier("max-memory-mb");
+    parser.addArgument(maxMemoryMB);
+
+    tempDirectory = new FileArgument(null, "tempDirectory", false, 1, null,
+         INFO_LDIF_DIFF_ARG_DESC_TEMP_DIR.get(), true, true, false, true);
+    tempDirectory.addLongIdentifier("temp-directory");
+    parser.addArgument(tempDirectory);
+
+    numThreads = new IntegerArgument('t', "numThreads", false, 1, null,
+         INFO_LDIF_DIFF_ARG_DESC_NUM_THREADS.get(), 1, Integer.MAX_VALUE, 1);
+    numThreads.addLongIdentifier("num-threads");
+    parser.addArgument(numThreads);
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public ResultCode doToolProcessing()
+  {
+    final LDIFDiffer differ = new LDIFDiffer();
+    differ.setSortInputs(sortInputs.isPresent());
+    differ.setReversible(! nonReversible.isPresent());
+    differ.setMaxBytesInMemory(maxMemoryMB.getValue() * 1024L * 1024L);
+    differ.setNumThreads(numThreads.getValue());
+    if (tempDirectory.isPresent())
+    {
+      differ.setTempDirectory(tempDirectory.getValue());
+    }
+
+    final File outputFile = outputLDIF.getValue();
+    try
+    {
+      final long changesWritten = differ.diff(sourceLDIF.getValue(),
+           targetLDIF.getValue(), outputFile);
+      wrapOut(0, MAX_OUTPUT_LINE_LENGTH,
+           INFO_LDIF_DIFF_PROCESSING_COMPLETE.get(changesWritten,
+                outputFile.getAbsolutePath()));
+      return ResultCode.SUCCESS;
+    }
+    catch (final LDIFException le)
+    {
+      Debug.debugException(le);
+      wrapErr(0, MAX_OUTPUT_LINE_LENGTH,
+           ERR_LDIF_DIFF_INVALID_LDIF.get(StaticUtils.getExceptionMessage(le)));
+      return ResultCode.DECODING_ERROR;
+    }
+    catch (final Exception e)
+    {
+      Debug.debugException(e);
+      wrapErr(0, MAX_OUTPUT_LINE_LENGTH,
+           ERR_LDIF_DIFF_ERROR_COMPARING.get(
+                StaticUtils.getExceptionMessage(e)));
+      return ResultCode.LOCAL_ERROR;
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public LinkedHashMap<String[],String> getExampleUsages()
+  {
+    final LinkedHashMap<String[],String> exampleMap =
+         new LinkedHashMap<String[],String>(2);
+
+    exampleMap.put(
+         new String[]
+         {
+           "--sourceLDIF", "old.ldif",
+           "--targetLDIF", "new.ldif",
+           "--outputLDIF", "changes.ldif"
+         },
+         INFO_LDIF_DIFF_EXAMPLE_SORTED.get());
+
+    exampleMap.put(
+         new String[]
+         {
+           "--sourceLDIF", "old.ldif",
+           "--targetLDIF", "new.ldif",
+           "--outputLDIF", "changes.ldif",
+           "--sortInputs",
+           "--maxMemoryMB", "1024",
+           "--numThreads", "4"
+         },
+         INFO_LDIF_DIFF_EXAMPLE_UNSORTED.get());
+
+    return exampleMap;
+  }
+}
@@ -0,0 +1,656 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk.unboundidds.tools;
+
+
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.TreeMap;
+
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.EntrySorter;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.Version;
+import com.unboundid.ldap.sdk.controls.SortKey;
+import com.unboundid.ldap.sdk.persist.PersistUtils;
+import com.unboundid.ldap.sdk.schema.Schema;
+import com.unboundid.ldif.LDIFException;
+import com.unboundid.ldif.LDIFExternalSorter;
+import com.unboundid.ldif.LDIFReader;
+import com.unboundid.ldif.LDIFWriter;
+import com.unboundid.util.CommandLineTool;
+import com.unboundid.util.Debug;
+import com.unboundid.util.StaticUtils;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+import com.unboundid.util.args.ArgumentException;
+import com.unboundid.util.args.ArgumentParser;
+import com.unboundid.util.args.BooleanArgument;
+import com.unboundid.util.args.FileArgument;
+import com.unboundid.util.args.IntegerArgument;
+import com.unboundid.util.args.StringArgument;
+
+import static com.unboundid.ldap.sdk.unboundidds.tools.ToolMessages.*;
+
+
+
+/**
+ * This class provides a command-line tool that can be used to sort the entries
+ * in an LDIF file, even if the file is too large to hold in memory.  Entries
+ * may be sorted hierarchically (so that each parent entry appears before any
+ * of its children, which is required when importing data) and/or by the values
+ * of one or more attributes.
+ * <BR>
+ * <BLOCKQUOTE>
+ *   <B>NOTE:</B>  This class, and other classes within the
+ *   {@code com.unboundid.ldap.sdk.unboundidds} package structure, are only
+ *   supported for use against Ping Identity, UnboundID, and Alcatel-Lucent 8661
+ *   server products.  These classes provide support for proprietary
+ *   functionality or for external specifications that are not considered stable
+ *   or mature enough to be guaranteed to work in an interoperable way with
+ *   other types of LDAP servers.
+ * </BLOCKQUOTE>
+ * <BR>
+ * The sorting is performed by the {@link LDIFExternalSorter} class, which
+ * sorts batches of entries that fit within a configurable memory budget,
+ * writes them to temporary files, and merges those files to produce the
+ * sorted output.
+ */
+@ThreadSafety(level=ThreadSafetyLevel.NOT_THREADSAFE)
+public final class SortLDIF
+     extends CommandLineTool
+{
+  /**
+   * The maximum length of any message to write to standard output or standard
+   * error.
+   */
+  private static final int MAX_OUTPUT_LINE_LENGTH =
+       StaticUtils.TERMINAL_WIDTH_COLUMNS - 1;
+
+
+
+  // The arguments used by this tool.
+  private BooleanArgument sortByHierarchy = null;
+  private FileArgument schemaPath = null;
+  private FileArgument sourceLDIF = null;
+  private FileArgument targetLDIF = null;
+  private FileArgument tempDirectory = null;
+  private IntegerArgument maxMemoryMB = null;
+  private IntegerArgument numThreads = null;
+  private StringArgument sortOrder = null;
+
+  // The sort keys parsed from the sortOrder argument.
+  private List<SortKey> sortKeys = null;
+
+
+
+  /**
+   * Runs the tool with the provided set of command-line arguments.
+   *
+   * @param  args  The command-line arguments provided to this tool.
+   */
+  public static void main(final String... args)
+  {
+    final ResultCode resultCode = main(System.out, System.err, args);
+    if (resultCode != ResultCode.SUCCESS)
+    {
+      System.exit(resultCode.intValue());
+    }
+  }
+
+
+
+  /**
+   * Runs the tool with the provided set of command-line arguments.
+   *
+   * @param  out   The output stream used for standard output.  It may be
+   *               {@code null} if standard output should be suppressed.
+   * @param  err   The output stream used for standard error.  It may be
+   *               {@code null} if standard error should be suppressed.
+   * @param  args  The command-line arguments provided to this tool.
+   *
+   * @return  A result code with information about the processing performed.
+   *          Any result code other than {@link ResultCode#SUCCESS} indicates
+   *          that an error occurred.
+   */
+  public static ResultCode main(final OutputStream out, final OutputStream err,
+                                final String... args)
+  {
+    final SortLDIF tool = new SortLDIF(out, err);
+    return tool.runTool(args);
+  }
+
+
+
+  /**
+   * Creates a new instance of this tool with the provided information.
+   *
+   * @param  out  The output stream used for standard output.  It may be
+   *              {@code null} if standard output should be suppressed.
+   * @param  err  The output stream used for standard error.  It may be
+   *              {@code null} if standard error should be suppressed.
+   */
+  public SortLDIF(final OutputStream out, final OutputStream err)
+  {
+    super(out, err);
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public String getToolName()
+  {
+    return "sort-ldif";
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public String getToolDescription()
+  {
+    return INFO_SORT_LDIF_TOOL_DESCRIPTION.get();
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public String getToolVersion()
+  {
+    return Version.NUMERIC_VERSION_STRING;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public boolean supportsInteractiveMode()
+  {
+    return true;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public boolean defaultsToInteractiveMode()
+  {
+    return true;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public boolean supportsPropertiesFile()
+  {
+    return true;
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void addToolArguments(final ArgumentParser parser)
+         throws ArgumentException
+  {
+    sourceLDIF = new FileArgument('l', "sourceLDIF", true, 0, null,
+         INFO_SORT_LDIF_ARG_DESC_SOURCE_LDIF.get(), true, false, true, false);
+    sourceLDIF.addLongIdentifier("inputLDIF");
+    sourceLDIF.addLongIdentifier("source-ldif");
+    sourceLDIF.addLongIdentifier("input-ldif");
+    parser.addArgument(sourceLDIF);
+
+    targetLDIF = new FileArgument('o', "targetLDIF", true, 1, null,
+         INFO_SORT_LDIF_ARG_DESC_TARGET_LDIF.get(), false, true, true, false);
+    targetLDIF.addLongIdentifier("outputLDIF");
+    targetLDIF.addLongIdentifier("target-ldif");
+    targetLDIF.addLongIdentifier("output-ldif");
+    parser.addArgument(targetLDIF);
+
+    sortByHierarchy = new BooleanArgument(null, "sortByHierarchy", 1,
+         INFO_SORT_LDIF_ARG_DESC_SORT_BY_HIERARCHY.get());
+    sortByHierarchy.addLongIdentifier("sort-by-hierarchy");
+    parser.addArgument(sortByHierarchy);
+
+    sortOrder = new StringArgument('S', "sortOrder", false, 1, null,
+         INFO_SORT_LDIF_ARG_DESC_SORT_ORDER.get());
+    sortOrder.addLongIdentifier("sort-order");
+    parser.addArgument(sortOrder);
+
+    schemaPath = new FileArgument(null, "schemaPath", false, 0, null,
+         INFO_SORT_LDIF_ARG_DESC_SCHEMA_PATH.get(), true, false, false, false);
+    schemaPath.addLongIdentifier("schemaFile");
+    schemaPath.addLongIdentifier("schemaDirectory");
+    schemaPath.addLongIdentifier("schema-path");
+    schemaPath.addLongIdentifier("schema-file");
+    schemaPath.addLongIdentifier("schema-directory");
+    parser.addArgument(schemaPath);
+
+    maxMemoryMB = new IntegerArgument(null, "maxMemoryMB", false, 1, null,
+         INFO_SORT_LDIF_ARG_DESC_MAX_MEMORY_MB.get(), 1, Integer.MAX_VALUE,
+         (int) (LDIFExternalSorter.DEFAULT_MAX_BYTES_IN_MEMORY /
+              (1024L * 1024L)));
+    maxMemoryMB.addLongIdentifier("max-memory-mb");
+    parser.addArgument(maxMemoryMB);
+
+    tempDirectory = new FileArgument(null, "tempDirectory", false, 1, null,
+         INFO_SORT_LDIF_ARG_DESC_TEMP_DIR.get(), true, true, false, true);
+    tempDirectory.addLongIdentifier("temp-directory");
+    parser.addArgument(tempDirectory);
+
+    numThreads = new IntegerArgument('t', "numThreads", false, 1, null,
+         INFO_SORT_LDIF_ARG_DESC_NUM_THREADS.get(), 1, Integer.MAX_VALUE, 1);
+    numThreads.addLongIdentifier("num-threads");
+    parser.addArgument(numThreads);
+
+    parser.addRequiredArgumentSet(sortByHierarchy, sortOrder);
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public void doExtendedArgumentValidation()
+         throws ArgumentException
+  {
+    // Parse the sort order, if one was provided.  The format is the same as
+    // for the ldapsearch tool.
+    sortKeys = new ArrayList<SortKey>(5);
+    if (! sortOrder.isPresent())
+    {
+      return;
+    }
+
+    final StringTokenizer tokenizer =
+         new StringTokenizer(sortOrder.getValue(), ", ");
+    while (tokenizer.hasMoreTokens())
+    {
+      final String token = tokenizer.nextToken();
+
+      final boolean ascending;
+      String attributeName;
+      if (token.startsWith("-"))
+      {
+        ascending = false;
+        attributeName = token.substring(1);
+      }
+      else if (token.startsWith("+"))
+      {
+        ascending = true;
+        attributeName = token.substring(1);
+      }
+      else
+      {
+        ascending = true;
+        attributeName = token;
+      }
+
+      final String matchingRuleID;
+      final int colonPos = attributeName.indexOf(':');
+      if (colonPos >= 0)
+      {
+        matchingRuleID = attributeName.substring(colonPos+1);
+        attributeName = attributeName.substring(0, colonPos);
+      }
+      else
+      {
+        matchingRuleID = null;
+      }
+
+      final StringBuilder invalidReason = new StringBuilder();
+      if (! PersistUtils.isValidLDAPName(attributeName, false, invalidReason))
+      {
+        throw new ArgumentException(ERR_SORT_LDIF_INVALID_SORT_ORDER.get(
+             sortOrder.getIdentifierString()));
+      }
+
+      sortKeys.add(new SortKey(attributeName, matchingRuleID, (! ascending)));
+    }
+
+    if (sortKeys.isEmpty())
+    {
+      throw new ArgumentException(ERR_SORT_LDIF_INVALID_SORT_ORDER.get(
+           sortOrder.getIdentifierString()));
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public ResultCode doToolProcessing()
+  {
+    // Get the schema to use during processing.
+    final Schema schema;
+    try
+    {
+      schema = getSchema();
+    }
+    catch (final LDAPException le)
+    {
+      wrapErr(0, MAX_OUTPUT_LINE_LENGTH, le.getMessage());
+      return le.getResultCode();
+    }
+
+
+    // Create the LDIF reader and writer.
+    final List<File> sourceFiles = sourceLDIF.getValues();
+    final LDIFReader ldifReader;
+    try
+    {
+      final File[] sourceFileArray = new File[sourceFiles.size()];
+      ldifReader = new LDIFReader(sourceFiles.toArray(sourceFileArray), 0,
+           null);
+      if (schema != null)
+      {
+        ldifReader.setSchema(schema);
+      }
+    }
+    catch (final Exception e)
+    {
+      Debug.debugException(e);
+      wrapErr(0, MAX_OUTPUT_LINE_LENGTH,
+           ERR_SORT_LDIF_ERROR_CREATING_LDIF_READER.get(
+                StaticUtils.getExceptionMessage(e)));
+      return ResultCode.LOCAL_ERROR;
+    }
+
+    final File targetFile = targetLDIF.getValue();
+    final LDIFWriter ldifWriter;
+    try
+    {
+      ldifWriter = new LDIFWriter(targetFile);
+    }
+    catch (final Exception e)
+    {
+      Debug.debugException(e);
+      wrapErr(0, MAX_OUTPUT_LINE_LENGTH,
+           ERR_SORT_LDIF_CANNOT_OPEN_OUTPUT_FILE.get(
+                targetFile.getAbsolutePath(),
+                StaticUtils.getExceptionMessage(e)));
+
+      try
+      {
+        ldifReader.close();
+      }
+      catch (final Exception e2)
+      {
+        Debug.debugException(e2);
+      }
+
+      return ResultCode.LOCAL_ERROR;
+    }
+
+
+    // Sort the entries.  An entry sorter that combines hierarchical ordering
+    // with sort keys only orders ancestors before their descendants when the
+    // two are compared directly, which is not enough to guarantee that
+    // property when merging separately-sorted runs, so in that case order
+    // entries by depth first.
+    final Comparator<Entry> comparator;
+    if (sortByHierarchy.isPresent() && (! sortKeys.isEmpty()))
+    {
+      comparator = new DepthComparator(
+           new EntrySorter(false, schema, sortKeys));
+    }
+    else
+    {
+      comparator = new EntrySorter(sortByHierarchy.isPresent(), schema,
+           sortKeys);
+    }
+
+    final LDIFExternalSorter sorter = new LDIFExternalSorter(comparator);
+    sorter.setMaxBytesInMemory(maxMemoryMB.getValue() * 1024L * 1024L);
+    sorter.setNumThreads(numThreads.getValue());
+    if (tempDirectory.isPresent())
+    {
+      sorter.setTempDirectory(tempDirectory.getValue());
+    }
+
+    ResultCode resultCode = ResultCode.SUCCESS;
+    try
+    {
+      final long entriesWritten = sorter.sort(ldifReader, ldifWriter);
+      wrapOut(0, MAX_OUTPUT_LINE_LENGTH,
+           INFO_SORT_LDIF_PROCESSING_COMPLETE.get(entriesWritten,
+                targetFile.getAbsolutePath()));
+    }
+    catch (final LDIFException le)
+    {
+      Debug.debugException(le);
+      resultCode = ResultCode.DECODING_ERROR;
+      wrapErr(0, MAX_OUTPUT_LINE_LENGTH,
+           ERR_SORT_LDIF_INVALID_LDIF_RECORD.get(
+                StaticUtils.getExceptionMessage(le)));
+    }
+    catch (final Exception e)
+    {
+      Debug.debugException(e);
+      resultCode = ResultCode.LOCAL_ERROR;
+      wrapErr(0, MAX_OUTPUT_LINE_LENGTH,
+           ERR_SORT_LDIF_ERROR_SORTING.get(
+                StaticUtils.getExceptionMessage(e)));
+    }
+    finally
+    {
+      try
+      {
+        ldifReader.close();
+      }
+      catch (final Exception e)
+      {
+        Debug.debugException(e);
+      }
+
+      try
+      {
+        ldifWriter.close();
+      }
+      catch (final Exception e)
+      {
+        Debug.debugException(e);
+        resultCode = ResultCode.LOCAL_ERROR;
+        wrapErr(0, MAX_OUTPUT_LINE_LENGTH,
+             ERR_SORT_LDIF_ERROR_CLOSING_FILE.get(targetFile.getAbsolutePath(),
+                  StaticUtils.getExceptionMessage(e)));
+      }
+    }
+
+    return resultCode;
+  }
+
+
+
+  /**
+   * Retrieves the schema that should be used for processing.
+   *
+   * @return  The schema that was created, or {@code null} if no schema path
+   *          was provided.
+   *
+   * @throws  LDAPException  If a problem is encountered while retrieving the
+   *                         schema.
+   */
+  private Schema getSchema()
+          throws LDAPException
+  {
+    if (! schemaPath.isPresent())
+    {
+      return null;
+    }
+
+    final ArrayList<File> schemaFiles = new ArrayList<File>(10);
+    for (final File path : schemaPath.getValues())
+    {
+      if (path.isFile())
+      {
+        schemaFiles.add(path);
+      }
+      else
+      {
+        final TreeMap<String,File> fileMap = new TreeMap<String,File>();
+        for (final File schemaDirFile : path.listFiles())
+        {
+          final String name = schemaDirFile.getName();
+          if (schemaDirFile.isFile() && name.toLowerCase().endsWith(".ldif"))
+          {
+            fileMap.put(name, schemaDirFile);
+          }
+        }
+        schemaFiles.addAll(fileMap.values());
+      }
+    }
+
+    if (schemaFiles.isEmpty())
+    {
+      throw new LDAPException(ResultCode.PARAM_ERROR,
+           ERR_SORT_LDIF_NO_SCHEMA_FILES.get(
+                schemaPath.getIdentifierString()));
+    }
+
+    try
+    {
+      return Schema.getSchema(schemaFiles);
+    }
+    catch (final Exception e)
+    {
+      Debug.debugException(e);
+      throw new LDAPException(ResultCode.LOCAL_ERROR,
+           ERR_SORT_LDIF_ERROR_LOADING_SCHEMA.get(
+                StaticUtils.getExceptionMessage(e)));
+    }
+  }
+
+
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override()
+  public LinkedHashMap<String[],String> getExampleUsages()
+  {
+    final LinkedHashMap<String[],String> exampleMap =
+         new LinkedHashMap<String[],String>(2);
+
+    exampleMap.put(
+         new String[]
+         {
+           "--sourceLDIF", "unsorted.ldif",
+           "--targetLDIF", "sorted.ldif",
+           "--sortByHierarchy",
+           "--maxMemoryMB", "1024",
+           "--numThreads", "4"
+         },
+         INFO_SORT_LDIF_EXAMPLE_HIERARCHY.get());
+
+    exampleMap.put(
+         new String[]
+         {
+           "--sourceLDIF", "unsorted.ldif",
+           "--targetLDIF", "sorted.ldif",
+           "--sortOrder", "sn,givenName",
+           "--schemaPath", "config/schema"
+         },
+         INFO_SORT_LDIF_EXAMPLE_SORT_ORDER.get());
+
+    return exampleMap;
+  }
+
+
+
+  /**
+   * This class provides a comparator that orders entries by the number of
+   * components in their DNs, so that every entry will be ordered after all of
+   * its ancestors, and then uses another comparator to order entries at the
+   * same depth.
+   */
+  @ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+  private static final class DepthComparator
+          implements Comparator<Entry>
+  {
+    // The comparator to use for entries at the same depth.
+    private final Comparator<Entry> comparator;
+
+
+
+    /**
+     * Creates a new depth comparator.
+     *
+     * @param  comparator  The comparator to use for entries at the same depth.
+     */
+    private DepthComparator(final Comparator<Entry> comparator)
+    {
+      this.comparator = comparator;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public int compare(final Entry e1, final Entry e2)
+    {
+      try
+      {
+        final int depth1 = e1.getParsedDN().getRDNs().length;
+        final int depth2 = e2.getParsedDN().getRDNs().length;
+        if (depth1 != depth2)
+        {
+          return (depth1 < depth2) ? -1 : 1;
+        }
+      }
+      catch (final LDAPException le)
+      {
+        Debug.debugException(le);
+      }
+
+      return comparator.compare(e1, e2);
+    }
+  }
+}
@@ -0,0 +1,919 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldif;
+
+
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.EntrySorter;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.Modification;
+import com.unboundid.util.LDAPSDKThreadFactory;
+import com.unboundid.util.Mutable;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+import static com.unboundid.ldif.LDIFMessages.*;
+import static com.unboundid.util.Debug.*;
+import static com.unboundid.util.StaticUtils.*;
+import static com.unboundid.util.Validator.*;
+
+
+
+/**
+ * This class provides a mechanism for identifying the differences between two
+ * LDIF sources that may be too large to hold in memory, and for writing them
+ * as a set of change records that may be applied to the source data to make it
+ * match the target data.  The entries in each source must be ordered by DN so
+ * that every entry appears after all of its ancestors (as when sorting with an
+ * {@link com.unboundid.ldap.sdk.EntrySorter} that orders entries only by
+ * hierarchy).  If the data is not already in that order, then the differ may
+ * be configured to sort it first using an {@link LDIFExternalSorter}.
+ * <BR><BR>
+ * The two sources are read in parallel, and their entries are matched by DN.
+ * An entry that only exists in the target will result in an add change
+ * record, and an entry that exists in both will result in a modify change
+ * record containing the set of modifications obtained from the
+ * {@link Entry#diff} method (if the entries differ at all).  Add and modify
+ * change records are written in the order in which their entries appear in the
+ * target data, so each entry will be added after its parent.  Entries that
+ * only exist in the source will result in delete change records, which are
+ * written after all of the other change records in the reverse order, so that
+ * each entry will be deleted before its parent.
+ * <BR><BR>
+ * Multiple threads may be used to compare entries that exist in both sources.
+ * Only a bounded number of comparisons may be pending at any time, and the DNs
+ * of the entries to delete are spooled to a temporary file, so the amount of
+ * memory required does not depend on the size of the data.
+ * <BR><BR>
+ * <H2>Example</H2>
+ * The following example writes the changes between two LDIF files that have
+ * not been sorted, using four threads:
+ * <PRE>
+ * LDIFDiffer differ = new LDIFDiffer();
+ * differ.setSortInputs(true);
+ * differ.setNumThreads(4);
+ * long changesWritten = differ.diff(oldLDIFFile, newLDIFFile, changesFile);
+ * </PRE>
+ */
+@Mutable()
+@ThreadSafety(level=ThreadSafetyLevel.NOT_THREADSAFE)
+public final class LDIFDiffer
+{
+  /**
+   * The maximum number of entry comparisons that may be pending for each
+   * thread.
+   */
+  private static final int MAX_PENDING_DIFFS_PER_THREAD = 100;
+
+
+
+  // Indicates whether the inputs should be sorted before they are compared.
+  private boolean sortInputs;
+
+  // Indicates whether modifications should be generated in reversible form.
+  private boolean reversible;
+
+  // The directory in which temporary files should be created.
+  private File tempDirectory;
+
+  // The number of threads to use to compare entries.
+  private int numThreads;
+
+  // The maximum number of bytes that may be used to hold entries in memory
+  // when sorting.
+  private long maxBytesInMemory;
+
+
+
+  /**
+   * Creates a new LDIF differ with the default settings.  The inputs will not
+   * be sorted, modifications will be generated in reversible form, and a
+   * single thread will be used.
+   */
+  public LDIFDiffer()
+  {
+    sortInputs       = false;
+    reversible       = true;
+    tempDirectory    = null;
+    numThreads       = 1;
+    maxBytesInMemory = LDIFExternalSorter.DEFAULT_MAX_BYTES_IN_MEMORY;
+  }
+
+
+
+  /**
+   * Indicates whether the inputs will be sorted before they are compared.
+   *
+   * @return  {@code true} if the inputs will be sorted before they are
+   *          compared, or {@code false} if they must already be sorted.
+   */
+  public boolean sortInputs()
+  {
+    return sortInputs;
+  }
+
+
+
+  /**
+   * Specifies whether the inputs should be sorted before they are compared.
+   *
+   * @param  sortInputs  Indicates whether the inputs should be sorted before
+   *                     they are compared.
+   */
+  public void setSortInputs(final boolean sortInputs)
+  {
+    this.sortInputs = sortInputs;
+  }
+
+
+
+  /**
+   * Indicates whether modifications will be generated in reversible form, so
+   * that only the add and delete modification types are used.
+   *
+   * @return  {@code true} if modifications will be generated in reversible
+   *          form, or {@code false} if replace modifications may be used.
+   */
+  public boolean isReversible()
+  {
+    return reversible;
+  }
+
+
+
+  /**
+   * Specifies whether modifications should be generated in reversible form, so
+   * that only the add and delete modification types are used.  Reversible
+   * modifications only include the values that differ, while non-reversible
+   * modifications may replace all values of an attribute.
+   *
+   * @param  reversible  Indicates whether modifications should be generated in
+   *                     reversible form.
+   */
+  public void setReversible(final boolean reversible)
+  {
+    this.reversible = reversible;
+  }
+
+
+
+  /**
+   * Retrieves the number of threads that will be used to compare entries and
+   * to sort the inputs.
+   *
+   * @return  The number of threads that will be used to compare entries and to
+   *          sort the inputs.
+   */
+  public int getNumThreads()
+  {
+    return numThreads;
+  }
+
+
+
+  /**
+   * Specifies the number of threads that should be used to compare entries and
+   * to sort the inputs.
+   *
+   * @param  numThreads  The number of threads that should be used.  It must be
+   *                     greater than zero.
+   */
+  public void setNumThreads(final int numThreads)
+  {
+    ensureTrue((numThreads > 0),
+         "LDIFDiffer.numThreads must be greater than zero.");
+    this.numThreads = numThreads;
+  }
+
+
+
+  /**
+   * Retrieves the maximum number of bytes that may be used to hold entries in
+   * memory when sorting the inputs or the entries to delete.
+   *
+   * @return  The maximum number of bytes that may be used to hold entries in
+   *          memory when sorting.
+   */
+  public long getMaxBytesInMemory()
+  {
+    return maxBytesInMemory;
+  }
+
+
+
+  /**
+   * Specifies the maximum number of bytes that may be used to hold entries in
+   * memory when sorting the inputs or the entries to delete.
+   *
+   * @param  maxBytesInMemory  The maximum number of bytes that may be used to
+   *                           hold entries in memory when sorting.  It must be
+   *                           greater than zero.
+   */
+  public void setMaxBytesInMemory(final long maxBytesInMemory)
+  {
+    ensureTrue((maxBytesInMemory > 0L),
+         "LDIFDiffer.maxBytesInMemory must be greater than zero.");
+    this.maxBytesInMemory = maxBytesInMemory;
+  }
+
+
+
+  /**
+   * Retrieves the directory in which temporary files will be created.
+   *
+   * @return  The directory in which temporary files will be created, or
+   *          {@code null} if the JVM's default temporary directory will be
+   *          used.
+   */
+  public File getTempDirectory()
+  {
+    return tempDirectory;
+  }
+
+
+
+  /**
+   * Specifies the directory in which temporary files should be created.
+   *
+   * @param  tempDirectory  The directory in which temporary files should be
+   *                        created.  It may be {@code null} if the JVM's
+   *                        default temporary directory should be used.
+   */
+  public void setTempDirectory(final File tempDirectory)
+  {
+    this.tempDirectory = tempDirectory;
+  }
+
+
+
+  /**
+   * Compares the entries in the specified source and target files and writes
+   * change records describing the differences to the specified output file.
+   *
+   * @param  sourceFile  The LDIF file containing the original entries.  It
+   *                     must not be {@code null}.
+   * @param  targetFile  The LDIF file containing the updated entries.  It must
+   *                     not be {@code null}.
+   * @param  outputFile  The file to which the change records should be
+   *                     written.  It must not be {@code null}.
+   *
+   * @return  The number of change records that were written.
+   *
+   * @throws  IOException  If a problem occurs while reading or writing data.
+   *
+   * @throws  LDIFException  If a problem occurs while parsing an LDIF record,
+   *                         or if the inputs are not sorted and the differ is
+   *                         not configured to sort them.
+   */
+  public long diff(final File sourceFile, final File targetFile,
+                   final File outputFile)
+         throws IOException, LDIFException
+  {
+    ensureNotNull(sourceFile, targetFile, outputFile);
+
+    final LDIFReader sourceReader = new LDIFReader(sourceFile);
+    try
+    {
+      final LDIFReader targetReader = new LDIFReader(targetFile);
+      try
+      {
+        final LDIFWriter writer = new LDIFWriter(outputFile);
+        try
+        {
+          return diff(sourceReader, targetReader, writer);
+        }
+        finally
+        {
+          writer.close();
+        }
+      }
+      finally
+      {
+        targetReader.close();
+      }
+    }
+    finally
+    {
+      sourceReader.close();
+    }
+  }
+
+
+
+  /**
+   * Compares the entries read from the provided source and target readers and
+   * writes change records describing the differences to the provided writer.
+   * None of the readers or writers will be closed.
+   *
+   * @param  sourceReader  The LDIF reader from which to read the original
+   *                       entries.  It must not be {@code null}, and it must
+   *                       only contain entries.
+   * @param  targetReader  The LDIF reader from which to read the updated
+   *                       entries.  It must not be {@code null}, and it must
+   *                       only contain entries.
+   * @param  writer        The LDIF writer to which the change records should
+   *                       be written.  It must not be {@code null}.
+   *
+   * @return  The number of change records that were written.
+   *
+   * @throws  IOException  If a problem occurs while reading or writing data.
+   *
+   * @throws  LDIFException  If a problem occurs while parsing an LDIF record,
+   *                         or if the inputs are not sorted and the differ is
+   *                         not configured to sort them.
+   */
+  public long diff(final LDIFReader sourceReader,
+                   final LDIFReader targetReader, final LDIFWriter writer)
+         throws IOException, LDIFException
+  {
+    ensureNotNull(sourceReader, targetReader, writer);
+
+    final ArrayList<File> tempFiles = new ArrayList<File>(4);
+    final ArrayList<LDIFReader> tempReaders = new ArrayList<LDIFReader>(2);
+    try
+    {
+      final LDIFReader sortedSourceReader;
+      final LDIFReader sortedTargetReader;
+      if (sortInputs)
+      {
+        sortedSourceReader = sort(sourceReader, tempFiles, tempReaders);
+        sortedTargetReader = sort(targetReader, tempFiles, tempReaders);
+      }
+      else
+      {
+        sortedSourceReader = sourceReader;
+        sortedTargetReader = targetReader;
+      }
+
+      final File deleteFile = createTempFile();
+      tempFiles.add(deleteFile);
+
+      final LDIFWriter deleteWriter = new LDIFWriter(deleteFile);
+      long changesWritten;
+      try
+      {
+        changesWritten = mergeJoin(sortedSourceReader, sortedTargetReader,
+             writer, deleteWriter);
+      }
+      finally
+      {
+        deleteWriter.close();
+      }
+
+      changesWritten += writeDeletes(deleteFile, tempFiles, writer);
+      return changesWritten;
+    }
+    finally
+    {
+      for (final LDIFReader r : tempReaders)
+      {
+        try
+        {
+          r.close();
+        }
+        catch (final Exception e)
+        {
+          debugException(e);
+        }
+      }
+
+      for (final File f : tempFiles)
+      {
+        if (! f.delete())
+        {
+          f.deleteOnExit();
+        }
+      }
+    }
+  }
+
+
+
+  /**
+   * Reads the entries from the provided sorted readers, matching them by DN,
+   * and writes add and modify change records to the provided writer.  The DNs
+   * of entries that should be deleted will be written to the delete writer.
+   *
+   * @param  sourceReader  The reader for the sorted source entries.
+   * @param  targetReader  The reader for the sorted target entries.
+   * @param  writer        The writer to which add and modify change records
+   *                       should be written.
+   * @param  deleteWriter  The writer to which the entries to be deleted should
+   *                       be written.  Only the DNs of those entries will be
+   *                       written.
+   *
+   * @return  The number of add and modify change records that were written.
+   *
+   * @throws  IOException  If a problem occurs while reading or writing data.
+   *
+   * @throws  LDIFException  If a problem occurs while parsing an LDIF record,
+   *                         or if the inputs are not sorted.
+   */
+  private long mergeJoin(final LDIFReader sourceReader,
+                         final LDIFReader targetReader,
+                         final LDIFWriter writer,
+                         final LDIFWriter deleteWriter)
+          throws IOException, LDIFException
+  {
+    final ThreadPoolExecutor executor;
+    if (numThreads > 1)
+    {
+      executor = new ThreadPoolExecutor(numThreads, numThreads, 0L,
+           TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+           new LDAPSDKThreadFactory("LDIFDiffer Entry Comparer", true));
+    }
+    else
+    {
+      executor = null;
+    }
+
+    // Change records are held in the order in which they should be written,
+    // and entries that exist in both sources may still be being compared.
+    final int maxPending = numThreads * MAX_PENDING_DIFFS_PER_THREAD;
+    final ArrayDeque<Future<LDIFChangeRecord>> pending =
+         new ArrayDeque<Future<LDIFChangeRecord>>(maxPending);
+
+    try
+    {
+      final SortedEntryReader source = new SortedEntryReader(sourceReader);
+      final SortedEntryReader target = new SortedEntryReader(targetReader);
+      source.next();
+      target.next();
+
+      long changesWritten = 0L;
+      while ((source.getEntry() != null) || (target.getEntry() != null))
+      {
+        final int comparison;
+        if (source.getEntry() == null)
+        {
+          comparison = 1;
+        }
+        else if (target.getEntry() == null)
+        {
+          comparison = -1;
+        }
+        else
+        {
+          comparison = source.getDN().compareTo(target.getDN());
+        }
+
+        final FutureTask<LDIFChangeRecord> task;
+        if (comparison < 0)
+        {
+          deleteWriter.writeEntry(new Entry(source.getEntry().getDN()));
+          source.next();
+          continue;
+        }
+        else if (comparison > 0)
+        {
+          task = new FutureTask<LDIFChangeRecord>(
+               new AddTask(target.getEntry()));
+          task.run();
+          target.next();
+        }
+        else
+        {
+          task = new FutureTask<LDIFChangeRecord>(
+               new DiffTask(source.getEntry(), target.getEntry()));
+          if (executor == null)
+          {
+            task.run();
+          }
+          else
+          {
+            executor.execute(task);
+          }
+
+          source.next();
+          target.next();
+        }
+
+        pending.addLast(task);
+        while ((! pending.isEmpty()) &&
+               ((pending.size() >= maxPending) ||
+                pending.peekFirst().isDone()))
+        {
+          if (writeChangeRecord(pending.removeFirst(), writer))
+          {
+            changesWritten++;
+          }
+        }
+      }
+
+      while (! pending.isEmpty())
+      {
+        if (writeChangeRecord(pending.removeFirst(), writer))
+        {
+          changesWritten++;
+        }
+      }
+
+      return changesWritten;
+    }
+    finally
+    {
+      if (executor != null)
+      {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+
+
+  /**
+   * Writes the entries to be deleted, in reverse order, as delete change
+   * records.
+   *
+   * @param  deleteFile  The file containing the entries to be deleted, in
+   *                     sorted order.
+   * @param  tempFiles   The list to which any temporary files should be added
+   *                     so that they will be removed.
+   * @param  writer      The writer to which the delete change records should
+   *                     be written.
+   *
+   * @return  The number of delete change records that were written.
+   *
+   * @throws  IOException  If a problem occurs while reading or writing data.
+   *
+   * @throws  LDIFException  If a problem occurs while parsing an LDIF record.
+   */
+  private long writeDeletes(final File deleteFile, final List<File> tempFiles,
+                            final LDIFWriter writer)
+          throws IOException, LDIFException
+  {
+    final LDIFExternalSorter sorter = new LDIFExternalSorter(
+         Collections.reverseOrder(new EntrySorter(true)));
+    sorter.setMaxBytesInMemory(maxBytesInMemory);
+    sorter.setNumThreads(numThreads);
+    sorter.setTempDirectory(tempDirectory);
+
+    final File reversedFile = createTempFile();
+    tempFiles.add(reversedFile);
+    sorter.sort(deleteFile, reversedFile);
+
+    final LDIFReader reader = new LDIFReader(reversedFile);
+    try
+    {
+      long deletesWritten = 0L;
+      while (true)
+      {
+        final Entry e = reader.readEntry();
+        if (e == null)
+        {
+          return deletesWritten;
+        }
+
+        writer.writeChangeRecord(new LDIFDeleteChangeRecord(e.getDN()));
+        deletesWritten++;
+      }
+    }
+    finally
+    {
+      reader.close();
+    }
+  }
+
+
+
+  /**
+   * Sorts the entries read from the provided reader into a temporary file and
+   * creates a reader for that file.
+   *
+   * @param  reader       The reader from which to read the entries to sort.
+   * @param  tempFiles    The list to which the temporary file should be added.
+   * @param  tempReaders  The list to which the new reader should be added.
+   *
+   * @return  The reader for the sorted entries.
+   *
+   * @throws  IOException  If a problem occurs while reading or writing data.
+   *
+   * @throws  LDIFException  If a problem occurs while parsing an LDIF record.
+   */
+  private LDIFReader sort(final LDIFReader reader, final List<File> tempFiles,
+                          final List<LDIFReader> tempReaders)
+          throws IOException, LDIFException
+  {
+    final LDIFExternalSorter sorter =
+         new LDIFExternalSorter(new EntrySorter(true));
+    sorter.setMaxBytesInMemory(maxBytesInMemory);
+    sorter.setNumThreads(numThreads);
+    sorter.setTempDirectory(tempDirectory);
+
+    final File sortedFile = createTempFile();
+    tempFiles.add(sortedFile);
+
+    final LDIFWriter writer = new LDIFWriter(sortedFile);
+    try
+    {
+      sorter.sort(reader, writer);
+    }
+    finally
+    {
+      writer.close();
+    }
+
+    final LDIFReader sortedReader = new LDIFReader(sortedFile);
+    tempReaders.add(sortedReader);
+    return sortedReader;
+  }
+
+
+
+  /**
+   * Creates a new temporary file.
+   *
+   * @return  The temporary file that was created.
+   *
+   * @throws  IOException  If the file cannot be created.
+   */
+  private File createTempFile()
+          throws IOException
+  {
+    return File.createTempFile("ldif-diff-", ".ldif", tempDirectory);
+  }
+
+
+
+  /**
+   * Waits for the provided change record to be available and writes it to
+   * the given writer.
+   *
+   * @param  future  The future for the change record to write.
+   * @param  writer  The writer to which the change record should be written.
+   *
+   * @return  {@code true} if a change record was written, or {@code false} if
+   *          the entries being compared did not differ.
+   *
+   * @throws  IOException  If a problem occurs while writing the change record.
+   */
+  private static boolean writeChangeRecord(
+                              final Future<LDIFChangeRecord> future,
+                              final LDIFWriter writer)
+          throws IOException
+  {
+    final LDIFChangeRecord changeRecord;
+    try
+    {
+      changeRecord = future.get();
+    }
+    catch (final InterruptedException ie)
+    {
+      debugException(ie);
+      Thread.currentThread().interrupt();
+      throw new IOException(ie);
+    }
+    catch (final ExecutionException ee)
+    {
+      debugException(ee);
+
+      final Throwable cause = ee.getCause();
+      if (cause instanceof RuntimeException)
+      {
+        throw (RuntimeException) cause;
+      }
+      else if (cause instanceof Error)
+      {
+        throw (Error) cause;
+      }
+      else
+      {
+        throw new IOException(ERR_LDIF_DIFF_CANNOT_COMPARE.get(
+             getExceptionMessage(cause)), cause);
+      }
+    }
+
+    if (changeRecord == null)
+    {
+      return false;
+    }
+
+    writer.writeChangeRecord(changeRecord);
+    return true;
+  }
+
+
+
+  /**
+   * This class provides a wrapper around an LDIF reader that keeps track of
+   * the most recent entry and its parsed DN, and ensures that the entries are
+   * read in sorted order.
+   */
+  private static final class SortedEntryReader
+  {
+    // The parsed DN of the most recent entry.
+    private DN dn;
+
+    // The most recent entry.
+    private Entry entry;
+
+    // The reader from which the entries will be read.
+    private final LDIFReader reader;
+
+
+
+    /**
+     * Creates a new sorted entry reader for the provided LDIF reader.
+     *
+     * @param  reader  The reader from which the entries will be read.
+     */
+    private SortedEntryReader(final LDIFReader reader)
+    {
+      this.reader = reader;
+
+      dn    = null;
+      entry = null;
+    }
+
+
+
+    /**
+     * Reads the next entry.
+     *
+     * @throws  IOException  If a problem occurs while reading data.
+     *
+     * @throws  LDIFException  If a problem occurs while parsing an LDIF
+     *                         record, or if the entry is not in sorted order.
+     */
+    private void next()
+            throws IOException, LDIFException
+    {
+      final Entry nextEntry = reader.readEntry();
+      if (nextEntry == null)
+      {
+        entry = null;
+        return;
+      }
+
+      final DN nextDN;
+      try
+      {
+        nextDN = nextEntry.getParsedDN();
+      }
+      catch (final LDAPException le)
+      {
+        debugException(le);
+        throw new LDIFException(ERR_LDIF_DIFF_MALFORMED_DN.get(
+             nextEntry.getDN(), le.getMessage()), 0L, false, le);
+      }
+
+      if ((dn != null) && (nextDN.compareTo(dn) <= 0))
+      {
+        throw new LDIFException(ERR_LDIF_DIFF_UNSORTED_INPUT.get(
+             nextEntry.getDN(), entry.getDN()), 0L, false);
+      }
+
+      dn    = nextDN;
+      entry = nextEntry;
+    }
+
+
+
+    /**
+     * Retrieves the most recent entry.
+     *
+     * @return  The most recent entry, or {@code null} if there are no more
+     *          entries.
+     */
+    private Entry getEntry()
+    {
+      return entry;
+    }
+
+
+
+    /**
+     * Retrieves the parsed DN of the most recent entry.
+     *
+     * @return  The parsed DN of the most recent entry.
+     */
+    private DN getDN()
+    {
+      return dn;
+    }
+  }
+
+
+
+  /**
+   * This class provides a task that creates an add change record for an entry
+   * that only exists in the target data.
+   */
+  private static final class AddTask
+          implements Callable<LDIFChangeRecord>
+  {
+    // The entry to be added.
+    private final Entry entry;
+
+
+
+    /**
+     * Creates a new add task for the provided entry.
+     *
+     * @param  entry  The entry to be added.
+     */
+    private AddTask(final Entry entry)
+    {
+      this.entry = entry;
+    }
+
+
+
+    /**
+     * Creates the add change record.
+     *
+     * @return  The add change record.
+     */
+    @Override()
+    public LDIFChangeRecord call()
+    {
+      return new LDIFAddChangeRecord(entry);
+    }
+  }
+
+
+
+  /**
+   * This class provides a task that compares an entry that exists in both the
+   * source and target data.
+   */
+  private final class DiffTask
+          implements Callable<LDIFChangeRecord>
+  {
+    // The entry from the source data.
+    private final Entry sourceEntry;
+
+    // The entry from the target data.
+    private final Entry targetEntry;
+
+
+
+    /**
+     * Creates a new diff task for the provided entries.
+     *
+     * @param  sourceEntry  The entry from the source data.
+     * @param  targetEntry  The entry from the target data.
+     */
+    private DiffTask(final Entry sourceEntry, final Entry targetEntry)
+    {
+      this.sourceEntry = sourceEntry;
+      this.targetEntry = targetEntry;
+    }
+
+
+
+    /**
+     * Compares the entries.
+     *
+     * @return  A modify change record with the differences between the
+     *          entries, or {@code null} if they do not differ.
+     */
+    @Override()
+    public LDIFChangeRecord call()
+    {
+      final List<Modification> mods =
+           Entry.diff(sourceEntry, targetEntry, true, reversible);
+      if (mods.isEmpty())
+      {
+        return null;
+      }
+
+      return new LDIFModifyChangeRecord(targetEntry.getDN(),
+           mods.toArray(new Modification[mods.size()]));
+    }
+  }
+}
@@ -0,0 +1,918 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldif;
+
+
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.util.LDAPSDKThreadFactory;
+import com.unboundid.util.Mutable;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+import static com.unboundid.ldif.LDIFMessages.*;
+import static com.unboundid.util.Debug.*;
+import static com.unboundid.util.StaticUtils.*;
+import static com.unboundid.util.Validator.*;
+
+
+
+/**
+ * This class provides a mechanism for sorting the entries read from an LDIF
+ * source that may be too large to hold in memory.  Entries will be read into
+ * memory until a configurable memory budget has been reached, and each such
+ * batch will be sorted and written to a temporary file (called a run).  Once
+ * all of the entries have been read, the runs will be merged to produce the
+ * sorted output.  If all of the entries fit within the memory budget, then
+ * they will be sorted in memory and no temporary files will be written.
+ * <BR><BR>
+ * Entries may be ordered using any comparator, but an
+ * {@link com.unboundid.ldap.sdk.EntrySorter} will normally be used so that
+ * entries may be ordered hierarchically (so that parent entries always appear
+ * before their children) and/or by the values of one or more attributes.
+ * Unlike the {@code EntrySorter.sort} method, entries that the comparator
+ * considers equivalent are not discarded, and they will appear in the output
+ * in the same order as in the input.  Because each run is sorted separately,
+ * the comparator must impose a consistent total ordering on the entries.  An
+ * entry sorter that combines hierarchical ordering with sort keys does not
+ * meet that requirement, since it only orders an ancestor before a descendant
+ * when those two entries are compared directly.
+ * <BR><BR>
+ * Multiple threads may be used to sort and write runs in parallel with reading
+ * the input.  The memory budget is shared across all of these threads, so the
+ * runs will be smaller when more threads are used.  The memory budget is
+ * enforced using an estimate of the size of each entry, so the actual amount
+ * of memory required may be somewhat different.
+ * <BR><BR>
+ * <H2>Example</H2>
+ * The following example sorts the entries in an LDIF file so that all parent
+ * entries will appear before their children, using up to 256 megabytes of
+ * memory and four threads:
+ * <PRE>
+ * LDIFExternalSorter sorter = new LDIFExternalSorter(new EntrySorter());
+ * sorter.setMaxBytesInMemory(256L * 1024L * 1024L);
+ * sorter.setNumThreads(4);
+ * long entriesWritten = sorter.sort(unsortedLDIFFile, sortedLDIFFile);
+ * </PRE>
+ */
+@Mutable()
+@ThreadSafety(level=ThreadSafetyLevel.NOT_THREADSAFE)
+public final class LDIFExternalSorter
+{
+  /**
+   * The default maximum number of bytes that may be used to hold entries in
+   * memory.
+   */
+  public static final long DEFAULT_MAX_BYTES_IN_MEMORY = 64L * 1024L * 1024L;
+
+
+
+  /**
+   * The default maximum number of runs that will be merged at the same time.
+   */
+  public static final int DEFAULT_MAX_RUNS_PER_MERGE = 100;
+
+
+
+  // The comparator that will be used to order the entries.
+  private final Comparator<Entry> comparator;
+
+  // The directory in which temporary files will be written.
+  private File tempDirectory;
+
+  // The maximum number of runs that will be merged at the same time.
+  private int maxRunsPerMerge;
+
+  // The number of threads to use to sort and write runs.
+  private int numThreads;
+
+  // The maximum number of bytes that may be used to hold entries in memory.
+  private long maxBytesInMemory;
+
+
+
+  /**
+   * Creates a new LDIF external sorter that will use the provided comparator
+   * and the default settings.
+   *
+   * @param  comparator  The comparator that will be used to order the entries.
+   *                     It must not be {@code null}, and it must be threadsafe
+   *                     if multiple threads will be used.
+   */
+  public LDIFExternalSorter(final Comparator<Entry> comparator)
+  {
+    ensureNotNull(comparator);
+
+    this.comparator = comparator;
+
+    tempDirectory    = null;
+    maxRunsPerMerge  = DEFAULT_MAX_RUNS_PER_MERGE;
+    numThreads       = 1;
+    maxBytesInMemory = DEFAULT_MAX_BYTES_IN_MEMORY;
+  }
+
+
+
+  /**
+   * Retrieves the comparator that will be used to order the entries.
+   *
+   * @return  The comparator that will be used to order the entries.
+   */
+  public Comparator<Entry> getComparator()
+  {
+    return comparator;
+  }
+
+
+
+  /**
+   * Retrieves the maximum number of bytes that may be used to hold entries in
+   * memory.
+   *
+   * @return  The maximum number of bytes that may be used to hold entries in
+   *          memory.
+   */
+  public long getMaxBytesInMemory()
+  {
+    return maxBytesInMemory;
+  }
+
+
+
+  /**
+   * Specifies the maximum number of bytes that may be used to hold entries in
+   * memory.  This is based on an estimate of the size of each entry, so the
+   * actual amount of memory used may differ somewhat.
+   *
+   * @param  maxBytesInMemory  The maximum number of bytes that may be used to
+   *                           hold entries in memory.  It must be greater than
+   *                           zero.
+   */
+  public void setMaxBytesInMemory(final long maxBytesInMemory)
+  {
+    ensureTrue(maxBytesInMemory > 0L,
+         "LDIFExternalSorter.maxBytesInMemory must be greater than zero.");
+
+    this.maxBytesInMemory = maxBytesInMemory;
+  }
+
+
+
+  /**
+   * Retrieves the number of threads that will be used to sort and write runs.
+   *
+   * @return  The number of threads that will be used to sort and write runs.
+   */
+  public int getNumThreads()
+  {
+    return numThreads;
+  }
+
+
+
+  /**
+   * Specifies the number of threads that will be used to sort and write runs.
+   *
+   * @param  numThreads  The number of threads that will be used to sort and
+   *                     write runs.  It must be greater than zero.
+   */
+  public void setNumThreads(final int numThreads)
+  {
+    ensureTrue(numThreads > 0,
+         "LDIFExternalSorter.numThreads must be greater than zero.");
+
+    this.numThreads = numThreads;
+  }
+
+
+
+  /**
+   * Retrieves the maximum number of runs that will be merged at the same time.
+   * If there are more runs than this, then groups of runs will be merged into
+   * larger runs until the number of runs is small enough to be merged at once.
+   *
+   * @return  The maximum number of runs that will be merged at the same time.
+   */
+  public int getMaxRunsPerMerge()
+  {
+    return maxRunsPerMerge;
+  }
+
+
+
+  /**
+   * Specifies the maximum number of runs that will be merged at the same time.
+   * Each run that is being merged requires an open file.
+   *
+   * @param  maxRunsPerMerge  The maximum number of runs that will be merged at
+   *                          the same time.  It must be at least two.
+   */
+  public void setMaxRunsPerMerge(final int maxRunsPerMerge)
+  {
+    ensureTrue(maxRunsPerMerge >= 2,
+         "LDIFExternalSorter.maxRunsPerMerge must be at least two.");
+
+    this.maxRunsPerMerge = maxRunsPerMerge;
+  }
+
+
+
+  /**
+   * Retrieves the directory in which temporary files will be written.
+   *
+   * @return  The directory in which temporary files will be written, or
+   *          {@code null} if the JVM's default temporary directory will be
+   *          used.
+   */
+  public File getTempDirectory()
+  {
+    return tempDirectory;
+  }
+
+
+
+  /**
+   * Specifies the directory in which temporary files will be written.
+   *
+   * @param  tempDirectory  The directory in which temporary files will be
+   *                        written.  It may be {@code null} if the JVM's
+   *                        default temporary directory should be used.
+   */
+  public void setTempDirectory(final File tempDirectory)
+  {
+    this.tempDirectory = tempDirectory;
+  }
+
+
+
+  /**
+   * Reads all of the entries from the specified source file and writes them
+   * in sorted order to the specified target file.
+   *
+   * @param  sourceFile  The LDIF file containing the entries to be sorted.  It
+   *                     must not be {@code null}.
+   * @param  targetFile  The file to which the sorted entries should be
+   *                     written.  It must not be {@code null}, and it must be
+   *                     different from the source file.
+   *
+   * @return  The number of entries that were written.
+   *
+   * @throws  IOException  If a problem occurs while reading or writing data.
+   *
+   * @throws  LDIFException  If a problem occurs while parsing an LDIF record.
+   */
+  public long sort(final File sourceFile, final File targetFile)
+         throws IOException, LDIFException
+  {
+    ensureNotNull(sourceFile, targetFile);
+
+    final LDIFReader reader = new LDIFReader(sourceFile);
+    try
+    {
+      final LDIFWriter writer = new LDIFWriter(targetFile);
+      try
+      {
+        return sort(reader, writer);
+      }
+      finally
+      {
+        writer.close();
+      }
+    }
+    finally
+    {
+      reader.close();
+    }
+  }
+
+
+
+  /**
+   * Reads all of the entries from the provided LDIF reader and writes them in
+   * sorted order to the provided LDIF writer.  Neither the reader nor the
+   * writer will be closed.
+   *
+   * @param  reader  The LDIF reader from which to read the entries to be
+   *                 sorted.  It must not be {@code null}, and it must only
+   *                 contain entries.
+   * @param  writer  The LDIF writer to which the sorted entries should be
+   *                 written.  It must not be {@code null}.
+   *
+   * @return  The number of entries that were written.
+   *
+   * @throws  IOException  If a problem occurs while reading or writing data.
+   *
+   * @throws  LDIFException  If a problem occurs while parsing an LDIF record.
+   */
+  public long sort(final LDIFReader reader, final LDIFWriter writer)
+         throws IOException, LDIFException
+  {
+    ensureNotNull(reader, writer);
+
+    final ArrayList<File> runFiles = new ArrayList<File>(10);
+    try
+    {
+      final List<Entry> entries = createRuns(reader, runFiles);
+      if (entries != null)
+      {
+        // All of the entries fit into memory, so there's no need to merge.
+        Collections.sort(entries, comparator);
+        for (final Entry e : entries)
+        {
+          writer.writeEntry(e);
+        }
+
+        return entries.size();
+      }
+
+      while (runFiles.size() > maxRunsPerMerge)
+      {
+        mergeRuns(runFiles);
+      }
+
+      return merge(runFiles, writer);
+    }
+    finally
+    {
+      for (final File f : runFiles)
+      {
+        if (! f.delete())
+        {
+          f.deleteOnExit();
+        }
+      }
+    }
+  }
+
+
+
+  /**
+   * Reads all of the entries from the provided reader and writes them into
+   * sorted runs.
+   *
+   * @param  reader    The LDIF reader from which to read the entries.
+   * @param  runFiles  The list to which the run files will be added, in the
+   *                   order in which the entries they contain were read.
+   *
+   * @return  The complete set of entries if they all fit within the memory
+   *          budget (in which case no runs will have been written), or
+   *          {@code null} if the entries were written into runs.
+   *
+   * @throws  IOException  If a problem occurs while reading or writing data.
+   *
+   * @throws  LDIFException  If a problem occurs while parsing an LDIF record.
+   */
+  private List<Entry> createRuns(final LDIFReader reader,
+                                 final List<File> runFiles)
+          throws IOException, LDIFException
+  {
+    // Each thread may hold a batch of entries, and the reader will not start a
+    // new batch until a thread is available to process it, so the memory
+    // budget is divided among the threads.
+    final long maxBytesPerRun = Math.max(1L, (maxBytesInMemory / numThreads));
+    final Semaphore batchPermits = new Semaphore(numThreads);
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(numThreads,
+         numThreads, 0L, TimeUnit.MILLISECONDS,
+         new LinkedBlockingQueue<Runnable>(),
+         new LDAPSDKThreadFactory("LDIFExternalSorter Run Writer", true));
+
+    final ArrayList<Future<File>> runFutures = new ArrayList<Future<File>>(10);
+    boolean successful = false;
+    try
+    {
+      ArrayList<Entry> batch = new ArrayList<Entry>(1000);
+      long batchBytes = 0L;
+      acquirePermit(batchPermits);
+      while (true)
+      {
+        final Entry entry = reader.readEntry();
+        if (entry == null)
+        {
+          break;
+        }
+
+        batch.add(entry);
+        batchBytes += estimateSize(entry);
+        if (batchBytes >= maxBytesPerRun)
+        {
+          runFutures.add(executor.submit(new RunWriter(batch, batchPermits)));
+          batch = new ArrayList<Entry>(batch.size());
+          batchBytes = 0L;
+          acquirePermit(batchPermits);
+        }
+      }
+
+      if (runFutures.isEmpty())
+      {
+        batchPermits.release();
+        successful = true;
+        return batch;
+      }
+
+      if (batch.isEmpty())
+      {
+        batchPermits.release();
+      }
+      else
+      {
+        runFutures.add(executor.submit(new RunWriter(batch, batchPermits)));
+      }
+
+      for (final Future<File> f : runFutures)
+      {
+        runFiles.add(getRunFile(f));
+      }
+
+      successful = true;
+      return null;
+    }
+    finally
+    {
+      if (! successful)
+      {
+        // Wait for any runs that are still being written so that they can be
+        // removed.
+        for (final Future<File> f : runFutures)
+        {
+          try
+          {
+            final File runFile = f.get();
+            if (! runFiles.contains(runFile))
+            {
+              runFiles.add(runFile);
+            }
+          }
+          catch (final Exception e)
+          {
+            debugException(e);
+          }
+        }
+      }
+
+      executor.shutdown();
+    }
+  }
+
+
+
+  /**
+   * Merges groups of runs into larger runs so that the total number of runs
+   * is reduced.
+   *
+   * @param  runFiles  The list of run files.  Upon returning, it will have
+   *                   been updated to contain the merged runs.
+   *
+   * @throws  IOException  If a problem occurs while reading or writing data.
+   *
+   * @throws  LDIFException  If a problem occurs while parsing an LDIF record.
+   */
+  private void mergeRuns(final List<File> runFiles)
+          throws IOException, LDIFException
+  {
+    final ArrayList<File> mergedRuns =
+         new ArrayList<File>((runFiles.size() / maxRunsPerMerge) + 1);
+    for (int start=0; start < runFiles.size(); start += maxRunsPerMerge)
+    {
+      final int end = Math.min(runFiles.size(), (start + maxRunsPerMerge));
+      if ((end - start) == 1)
+      {
+        mergedRuns.add(runFiles.get(start));
+        continue;
+      }
+
+      final File mergedFile = createRunFile();
+      boolean successful = false;
+      try
+      {
+        final LDIFWriter writer = new LDIFWriter(mergedFile);
+        try
+        {
+          merge(runFiles.subList(start, end), writer);
+        }
+        finally
+        {
+          writer.close();
+        }
+
+        successful = true;
+      }
+      finally
+      {
+        if (! successful)
+        {
+          // Make sure that the merged runs will be cleaned up along with the
+          // runs that haven't been merged yet.
+          mergedRuns.add(mergedFile);
+          for (int i=start; i < runFiles.size(); i++)
+          {
+            mergedRuns.add(runFiles.get(i));
+          }
+
+          runFiles.clear();
+          runFiles.addAll(mergedRuns);
+        }
+      }
+
+      mergedRuns.add(mergedFile);
+      for (int i=start; i < end; i++)
+      {
+        runFiles.get(i).delete();
+      }
+    }
+
+    runFiles.clear();
+    runFiles.addAll(mergedRuns);
+  }
+
+
+
+  /**
+   * Merges the entries in the provided runs and writes them to the given
+   * writer.
+   *
+   * @param  runFiles  The run files to be merged.
+   * @param  writer    The LDIF writer to which the merged entries should be
+   *                   written.
+   *
+   * @return  The number of entries that were written.
+   *
+   * @throws  IOException  If a problem occurs while reading or writing data.
+   *
+   * @throws  LDIFException  If a problem occurs while parsing an LDIF record.
+   */
+  private long merge(final List<File> runFiles, final LDIFWriter writer)
+          throws IOException, LDIFException
+  {
+    final ArrayList<LDIFReader> readers =
+         new ArrayList<LDIFReader>(runFiles.size());
+    try
+    {
+      final PriorityQueue<RunCursor> queue =
+           new PriorityQueue<RunCursor>(Math.max(1, runFiles.size()));
+      for (int i=0; i < runFiles.size(); i++)
+      {
+        final LDIFReader reader = new LDIFReader(runFiles.get(i));
+        readers.add(reader);
+
+        final RunCursor cursor = new RunCursor(reader, i);
+        if (cursor.next())
+        {
+          queue.add(cursor);
+        }
+      }
+
+      long entriesWritten = 0L;
+      while (! queue.isEmpty())
+      {
+        final RunCursor cursor = queue.poll();
+        writer.writeEntry(cursor.getEntry());
+        entriesWritten++;
+
+        if (cursor.next())
+        {
+          queue.add(cursor);
+        }
+      }
+
+      return entriesWritten;
+    }
+    finally
+    {
+      for (final LDIFReader reader : readers)
+      {
+        try
+        {
+          reader.close();
+        }
+        catch (final Exception e)
+        {
+          debugException(e);
+        }
+      }
+    }
+  }
+
+
+
+  /**
+   * Creates a new temporary file to hold a run.
+   *
+   * @return  The temporary file that was created.
+   *
+   * @throws  IOException  If the file cannot be created.
+   */
+  private File createRunFile()
+          throws IOException
+  {
+    return File.createTempFile("ldif-sort-run-", ".ldif", tempDirectory);
+  }
+
+
+
+  /**
+   * Acquires a permit from the provided semaphore, waiting if necessary.
+   *
+   * @param  semaphore  The semaphore from which to acquire the permit.
+   *
+   * @throws  IOException  If the thread is interrupted while waiting.
+   */
+  private static void acquirePermit(final Semaphore semaphore)
+          throws IOException
+  {
+    try
+    {
+      semaphore.acquire();
+    }
+    catch (final InterruptedException ie)
+    {
+      debugException(ie);
+      Thread.currentThread().interrupt();
+      throw new IOException(ie);
+    }
+  }
+
+
+
+  /**
+   * Waits for the provided run to be written and retrieves the file that holds
+   * it.
+   *
+   * @param  future  The future for the run.
+   *
+   * @return  The file that holds the run.
+   *
+   * @throws  IOException  If a problem occurred while writing the run.
+   */
+  private static File getRunFile(final Future<File> future)
+          throws IOException
+  {
+    try
+    {
+      return future.get();
+    }
+    catch (final InterruptedException ie)
+    {
+      debugException(ie);
+      Thread.currentThread().interrupt();
+      throw new IOException(ie);
+    }
+    catch (final ExecutionException ee)
+    {
+      debugException(ee);
+
+      final Throwable cause = ee.getCause();
+      if (cause instanceof IOException)
+      {
+        throw (IOException) cause;
+      }
+      else if (cause instanceof RuntimeException)
+      {
+        throw (RuntimeException) cause;
+      }
+      else if (cause instanceof Error)
+      {
+        throw (Error) cause;
+      }
+      else
+      {
+        throw new IOException(ERR_EXTERNAL_SORTER_CANNOT_WRITE_RUN.get(
+             getExceptionMessage(cause)), cause);
+      }
+    }
+  }
+
+
+
+  /**
+   * Retrieves an estimate of the amount of memory required to hold the
+   * provided entry.
+   *
+   * @param  entry  The entry for which to make the determination.
+   *
+   * @return  An estimate of the amount of memory required to hold the provided
+   *          entry.
+   */
+  static long estimateSize(final Entry entry)
+  {
+    long size = 64L + (2L * entry.getDN().length());
+    for (final Attribute a : entry.getAttributes())
+    {
+      size += 64L + (2L * a.getName().length());
+      for (final ASN1OctetString v : a.getRawValues())
+      {
+        size += 32L + v.getValueLength();
+      }
+    }
+
+    return size;
+  }
+
+
+
+  /**
+   * This class provides a task that sorts a batch of entries and writes them
+   * to a temporary file.
+   */
+  private final class RunWriter
+          implements Callable<File>
+  {
+    // The entries to be sorted and written.
+    private final List<Entry> entries;
+
+    // The semaphore to release once the entries have been written.
+    private final Semaphore batchPermits;
+
+
+
+    /**
+     * Creates a new run writer with the provided information.
+     *
+     * @param  entries       The entries to be sorted and written.
+     * @param  batchPermits  The semaphore to release once the entries have been
+     *                       written.
+     */
+    private RunWriter(final List<Entry> entries,
+                      final Semaphore batchPermits)
+    {
+      this.entries      = entries;
+      this.batchPermits = batchPermits;
+    }
+
+
+
+    /**
+     * Sorts the entries and writes them to a new temporary file.
+     *
+     * @return  The file to which the entries were written.
+     *
+     * @throws  IOException  If a problem occurs while writing the entries.
+     */
+    @Override()
+    public File call()
+           throws IOException
+    {
+      try
+      {
+        Collections.sort(entries, comparator);
+
+        final File runFile = createRunFile();
+        boolean successful = false;
+        try
+        {
+          final LDIFWriter writer = new LDIFWriter(runFile);
+          try
+          {
+            for (final Entry e : entries)
+            {
+              writer.writeEntry(e);
+            }
+          }
+          finally
+          {
+            writer.close();
+          }
+
+          successful = true;
+          return runFile;
+        }
+        finally
+        {
+          if (! successful)
+          {
+            runFile.delete();
+          }
+        }
+      }
+      finally
+      {
+        entries.clear();
+        batchPermits.release();
+      }
+    }
+  }
+
+
+
+  /**
+   * This class provides a cursor that holds the next entry to be merged from
+   * a run.  Cursors are ordered by their entries, and by the order of their
+   * runs for entries that are equivalent, so that the merge is stable.
+   */
+  private final class RunCursor
+          implements Comparable<RunCursor>
+  {
+    // The index of the run.
+    private final int runIndex;
+
+    // The reader used to read the run.
+    private final LDIFReader reader;
+
+    // The next entry from the run.
+    private Entry entry;
+
+
+
+    /**
+     * Creates a new run cursor with the provided information.
+     *
+     * @param  reader    The reader used to read the run.
+     * @param  runIndex  The index of the run.
+     */
+    private RunCursor(final LDIFReader reader, final int runIndex)
+    {
+      this.reader   = reader;
+      this.runIndex = runIndex;
+
+      entry = null;
+    }
+
+
+
+    /**
+     * Reads the next entry from the run.
+     *
+     * @return  {@code true} if another entry was read, or {@code false} if the
+     *          end of the run has been reached.
+     *
+     * @throws  IOException  If a problem occurs while reading the run.
+     *
+     * @throws  LDIFException  If a problem occurs while parsing an entry.
+     */
+    private boolean next()
+            throws IOException, LDIFException
+    {
+      entry = reader.readEntry();
+      return (entry != null);
+    }
+
+
+
+    /**
+     * Retrieves the current entry from the run.
+     *
+     * @return  The current entry from the run.
+     */
+    private Entry getEntry()
+    {
+      return entry;
+    }
+
+
+
+    /**
+     * Compares this cursor with the provided cursor.
+     *
+     * @param  c  The cursor to compare with this cursor.
+     *
+     * @return  A negative value if this cursor should be ordered before the
+     *          provided cursor, or a positive value if it should be ordered
+     *          after it.
+     */
+    @Override()
+    public int compareTo(final RunCursor c)
+    {
+      final int entryCompare = comparator.compare(entry, c.entry);
+      if (entryCompare != 0)
+      {
+        return entryCompare;
+      }
+
+      return (runIndex - c.runIndex);
+    }
+  }
+}
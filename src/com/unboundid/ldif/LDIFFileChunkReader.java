@@ -0,0 +1,397 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldif;
+
+
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.unboundid.util.Mutable;
+import com.unboundid.util.ThreadSafety;
+import com.unboundid.util.ThreadSafetyLevel;
+
+
+
+/**
+ * This class provides a mechanism for reading an LDIF file in chunks of bytes
+ * that each end at a record boundary (that is, immediately after a blank
+ * line), so that the records contained in different chunks can be identified
+ * and parsed in parallel.  The data is read through a {@code FileChannel} and
+ * is not decoded in any way, so the only per-byte work done by the reading
+ * thread is locating the end of the last complete record in each chunk and
+ * counting line breaks so that the line number of the first line in each chunk
+ * will be known.
+ * <BR><BR>
+ * Lines must end with either a line feed or a carriage return followed by a
+ * line feed.  A chunk will be larger than the configured chunk size only if it
+ * is necessary to hold a single record that is larger than that size.
+ * <BR><BR>
+ * The {@code LDIFReader} parsing threads decode entries directly from the
+ * bytes in each chunk, reading attribute descriptions from the bytes before
+ * each colon and decoding base64-encoded values without creating strings for
+ * them.  Change records, and entries with comments, URL-referenced values,
+ * trailing spaces, non-ASCII bytes outside of base64-encoded values, or
+ * anything else that the line-based parser would reject or handle specially,
+ * are converted to lines and decoded by the line-based parser.  Those records
+ * are rare in bulk data, and reusing the existing parser for them guarantees
+ * the same results and error messages as when reading the file line by line.
+ */
+@Mutable()
+@ThreadSafety(level=ThreadSafetyLevel.NOT_THREADSAFE)
+final class LDIFFileChunkReader
+      implements Closeable
+{
+  /**
+   * The default size in bytes for each chunk.
+   */
+  static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+
+
+  // The data read past the end of the last chunk that was returned.
+  private byte[] remainingData;
+
+  // The channel used to read the file.
+  private final FileChannel channel;
+
+  // The preferred size in bytes for each chunk.
+  private final int chunkSize;
+
+  // The number of bytes of data in the remainingData array.
+  private int remainingLength;
+
+  // The line number for the first line of the next chunk.
+  private long nextLineNumber;
+
+  // Indicates whether the end of the file has been reached.
+  private boolean endOfFile;
+
+
+
+  /**
+   * Creates a new chunk reader for the specified file.
+   *
+   * @param  file       The file to be read.  It must not be {@code null}.
+   * @param  chunkSize  The preferred size in bytes for each chunk.  It must be
+   *                    greater than zero.
+   *
+   * @throws  IOException  If the file cannot be opened for reading.
+   */
+  LDIFFileChunkReader(final File file, final int chunkSize)
+       throws IOException
+  {
+    this.chunkSize = chunkSize;
+
+    channel = new FileInputStream(file).getChannel();
+    remainingData = new byte[0];
+    remainingLength = 0;
+    nextLineNumber = 1L;
+    endOfFile = false;
+  }
+
+
+
+  /**
+   * Reads the next chunk from the file.
+   *
+   * @return  The next chunk from the file, or {@code null} if the end of the
+   *          file has been reached.
+   *
+   * @throws  IOException  If a problem occurs while reading from the file.
+   */
+  Chunk readChunk()
+        throws IOException
+  {
+    if (endOfFile && (remainingLength == 0))
+    {
+      return null;
+    }
+
+    byte[] data = new byte[Math.max(chunkSize, remainingLength * 2)];
+    System.arraycopy(remainingData, 0, data, 0, remainingLength);
+    int length = remainingLength;
+    int searchStartPos = 0;
+
+    while (true)
+    {
+      length = fill(data, length);
+      if (endOfFile)
+      {
+        remainingData = new byte[0];
+        remainingLength = 0;
+        return createChunk(data, length);
+      }
+
+      final int boundary = findLastRecordBoundary(data, searchStartPos, length);
+      if (boundary > 0)
+      {
+        remainingLength = length - boundary;
+        remainingData = new byte[remainingLength];
+        System.arraycopy(data, boundary, remainingData, 0, remainingLength);
+        return createChunk(data, boundary);
+      }
+
+      // The buffer doesn't contain a complete record, so expand it and read
+      // more data.  There is no need to search the data that has already been
+      // examined, with the exception of the last couple of bytes, which could
+      // be part of a boundary.
+      searchStartPos = Math.max(0, length - 2);
+      final byte[] newData = new byte[data.length * 2];
+      System.arraycopy(data, 0, newData, 0, length);
+      data = newData;
+    }
+  }
+
+
+
+  /**
+   * Reads data from the file into the provided array until the array is full
+   * or the end of the file is reached.
+   *
+   * @param  data    The array into which the data should be read.
+   * @param  length  The number of bytes already held in the array.
+   *
+   * @return  The number of bytes held in the array after reading.
+   *
+   * @throws  IOException  If a problem occurs while reading from the file.
+   */
+  private int fill(final byte[] data, final int length)
+          throws IOException
+  {
+    final ByteBuffer buffer = ByteBuffer.wrap(data, length,
+         data.length - length);
+    while (buffer.hasRemaining())
+    {
+      if (channel.read(buffer) < 0)
+      {
+        endOfFile = true;
+        break;
+      }
+    }
+
+    return buffer.position();
+  }
+
+
+
+  /**
+   * Identifies the end of the last blank line in the provided data.
+   *
+   * @param  data      The data to examine.
+   * @param  startPos  The position at which to stop searching.
+   * @param  length    The number of bytes of data to examine.
+   *
+   * @return  The position immediately after the end of the last blank line in
+   *          the provided data, or -1 if the data does not contain a blank
+   *          line.
+   */
+  static int findLastRecordBoundary(final byte[] data, final int startPos,
+                                    final int length)
+  {
+    for (int i=length-1; i > startPos; i--)
+    {
+      if (data[i] != '\n')
+      {
+        continue;
+      }
+
+      if (data[i-1] == '\n')
+      {
+        return (i + 1);
+      }
+
+      if ((data[i-1] == '\r') && (i >= 2) && (data[i-2] == '\n'))
+      {
+        return (i + 1);
+      }
+    }
+
+    return -1;
+  }
+
+
+
+  /**
+   * Creates a chunk with the provided data and updates the line number for
+   * the next chunk.
+   *
+   * @param  data    The data for the chunk.
+   * @param  length  The number of bytes of data in the chunk.
+   *
+   * @return  The chunk that was created.
+   */
+  private Chunk createChunk(final byte[] data, final int length)
+  {
+    final Chunk chunk = new Chunk(data, length, nextLineNumber);
+
+    for (int i=0; i < length; i++)
+    {
+      if (data[i] == '\n')
+      {
+        nextLineNumber++;
+      }
+    }
+
+    return chunk;
+  }
+
+
+
+  /**
+   * Closes the file.
+   *
+   * @throws  IOException  If a problem occurs while closing the file.
+   */
+  @Override()
+  public void close()
+         throws IOException
+  {
+    channel.close();
+  }
+
+
+
+  /**
+   * This class represents a chunk of data read from an LDIF file.  A chunk
+   * may also be used to indicate that the end of the file has been reached or
+   * that an error occurred while reading the file.
+   */
+  static final class Chunk
+  {
+    // The data contained in the chunk.
+    private final byte[] data;
+
+    // The error that occurred while reading the file, if any.
+    private final Exception failureCause;
+
+    // The number of bytes of data in the chunk.
+    private final int length;
+
+    // The line number of the first line in the chunk.
+    private final long firstLineNumber;
+
+
+
+    /**
+     * Creates a new chunk with the provided data.
+     *
+     * @param  data             The data contained in the chunk.
+     * @param  length           The number of bytes of data in the chunk.
+     * @param  firstLineNumber  The line number of the first line in the chunk.
+     */
+    Chunk(final byte[] data, final int length, final long firstLineNumber)
+    {
+      this.data            = data;
+      this.length          = length;
+      this.firstLineNumber = firstLineNumber;
+
+      failureCause = null;
+    }
+
+
+
+    /**
+     * Creates a new chunk that indicates that the end of the file has been
+     * reached (if the provided failure cause is {@code null}) or that an error
+     * occurred while reading the file.
+     *
+     * @param  failureCause  The error that occurred while reading the file, or
+     *                       {@code null} if the end of the file was reached.
+     */
+    Chunk(final Exception failureCause)
+    {
+      this.failureCause = failureCause;
+
+      data            = null;
+      length          = 0;
+      firstLineNumber = -1L;
+    }
+
+
+
+    /**
+     * Retrieves the data contained in the chunk.
+     *
+     * @return  The data contained in the chunk, or {@code null} if this chunk
+     *          indicates the end of the file or a read error.
+     */
+    byte[] getData()
+    {
+      return data;
+    }
+
+
+
+    /**
+     * Retrieves the number of bytes of data in the chunk.
+     *
+     * @return  The number of bytes of data in the chunk.
+     */
+    int getLength()
+    {
+      return length;
+    }
+
+
+
+    /**
+     * Retrieves the line number of the first line in the chunk.
+     *
+     * @return  The line number of the first line in the chunk.
+     */
+    long getFirstLineNumber()
+    {
+      return firstLineNumber;
+    }
+
+
+
+    /**
+     * Retrieves the error that occurred while reading the file, if any.
+     *
+     * @return  The error that occurred while reading the file, or {@code null}
+     *          if there was no error.
+     */
+    Exception getFailureCause()
+    {
+      return failureCause;
+    }
+
+
+
+    /**
+     * Indicates whether this chunk indicates that the end of the file has been
+     * reached.
+     *
+     * @return  {@code true} if this chunk indicates that the end of the file
+     *          has been reached, or {@code false} if not.
+     */
+    boolean isEOF()
+    {
+      return ((data == null) && (failureCause == null));
+    }
+  }
+}
@@ -58,6 +58,7 @@ import com.unboundid.ldap.sdk.schema.AttributeTypeDefinition;
 import com.unboundid.ldap.sdk.schema.Schema;
 import com.unboundid.util.AggregateInputStream;
 import com.unboundid.util.Base64;
+import com.unboundid.util.ByteStringBuffer;
 import com.unboundid.util.LDAPSDKThreadFactory;
 import com.unboundid.util.ThreadSafety;
 import com.unboundid.util.ThreadSafetyLevel;
@@ -65,6 +66,7 @@ import com.unboundid.util.parallel.AsynchronousParallelProcessor;
 import com.unboundid.util.parallel.Result;
 import com.unboundid.util.parallel.ParallelProcessor;
 import com.unboundid.util.parallel.Processor;
+import com.unboundid.util.parallel.ResultProcessor;
 
 import static com.unboundid.ldif.LDIFMessages.*;
 import static com.unboundid.util.Debug.*;
@@ -79,6 +81,13 @@ import static com.unboundid.util.Validator.*;
  * This class is not synchronized.  If multiple threads read from the
  * LDIFReader, they must be synchronized externally.
  * <BR><BR>
+ * When reading very large files with multiple parsing threads, the
+ * {@link #LDIFReader(File,int,LDIFReaderEntryTranslator,
+ * LDIFReaderChangeRecordTranslator,boolean)} constructor may be used to also
+ * have the parsing threads take care of decoding the raw file content and
+ * splitting it into individual records, so that a single reader thread does
+ * not become a bottleneck.
+ * <BR><BR>
  * <H2>Example</H2>
  * The following example iterates through all entries contained in an LDIF file
  * and attempts to add them to a directory server:
@@ -219,6 +228,10 @@ public final class LDIFReader
   // The buffered reader that will be used to read LDIF data.
   private final BufferedReader reader;
 
+  // The reader that will be used to read chunks of LDIF data from a file when
+  // records should be split in parallel.
+  private final LDIFFileChunkReader chunkReader;
+
   // The behavior that should be exhibited when encountering duplicate attribute
   // values.
   private volatile DuplicateValueBehavior duplicateValueBehavior;
@@ -261,6 +274,14 @@ public final class LDIFReader
   private final BlockingQueue<Result<UnparsedLDIFRecord, LDIFRecord>>
        asyncParsedRecords;
 
+  // Splits chunks of LDIF data into records and parses them asynchronously.
+  // This will only be used if a chunk reader is in use.
+  private final AsynchronousParallelProcessor<LDIFFileChunkReader.Chunk,
+       List<Result<UnparsedLDIFRecord, LDIFRecord>>> asyncChunkParser;
+
+  // Indicates whether this reader has been closed.
+  private volatile boolean closed;
+
 
 
   /**
@@ -344,6 +365,57 @@ public final class LDIFReader
 
 
 
+  /**
+   * Creates a new LDIF reader that will read data from the specified file
+   * and optionally parses the LDIF records asynchronously using the specified
+   * number of threads.  If {@code splitRecordsInParallel} is {@code true} and
+   * {@code numParseThreads} is greater than zero, then the file will be read
+   * in large chunks of raw bytes that each end on a record boundary, and the
+   * work of decoding those bytes and splitting them into individual records
+   * will also be performed by the parsing threads rather than by a single
+   * reader thread.  Entries are decoded directly from those bytes when
+   * possible, and any other records are decoded in the same way as for the
+   * other constructors.  Records will still be returned in the order in which
+   * they appear in the file.  This can substantially improve throughput for
+   * very large files, but it requires that each line end with either a line
+   * feed or a carriage return followed by a line feed.
+   *
+   * @param  file                    The file from which the data is to be
+   *                                 read.  It must not be {@code null}.
+   * @param  numParseThreads         If this value is greater than zero, then
+   *                                 the specified number of threads will be
+   *                                 used to asynchronously read and parse the
+   *                                 LDIF file.
+   * @param  entryTranslator         The LDIFReaderEntryTranslator to apply to
+   *                                 entries before they are returned.  This is
+   *                                 normally {@code null}, which causes entries
+   *                                 to be returned unaltered.
+   * @param  changeRecordTranslator  The LDIFReaderChangeRecordTranslator to
+   *                                 apply to change records before they are
+   *                                 returned.  This is normally {@code null},
+   *                                 which causes change records to be returned
+   *                                 unaltered.
+   * @param  splitRecordsInParallel  Indicates whether the parsing threads
+   *                                 should also be used to split the file into
+   *                                 records.  This will be ignored if
+   *                                 {@code numParseThreads} is zero.
+   *
+   * @throws  IOException  If a problem occurs while opening the file for
+   *                       reading.
+   */
+  public LDIFReader(final File file, final int numParseThreads,
+              final LDIFReaderEntryTranslator entryTranslator,
+              final LDIFReaderChangeRecordTranslator changeRecordTranslator,
+              final boolean splitRecordsInParallel)
+         throws IOException
+  {
+    this(createBufferedReader(file, numParseThreads, splitRecordsInParallel),
+         createChunkReader(file, numParseThreads, splitRecordsInParallel),
+         numParseThreads, entryTranslator, changeRecordTranslator);
+  }
+
+
+
   /**
    * Creates a new LDIF reader that will read data from the specified files in
    * the order in which they are provided and optionally parses the LDIF records
@@ -782,11 +854,48 @@ public final class LDIFReader
               final LDIFReaderEntryTranslator entryTranslator,
               final LDIFReaderChangeRecordTranslator changeRecordTranslator)
   {
-    ensureNotNull(reader);
+    this(reader, null, numParseThreads, entryTranslator,
+         changeRecordTranslator);
+  }
+
+
+
+  /**
+   * Creates a new LDIF reader that will read data from either the provided
+   * buffered reader or the provided chunk reader.
+   *
+   * @param  reader                  The buffered reader that will be used to
+   *                                 read the LDIF data.  It must be
+   *                                 {@code null} if and only if a chunk reader
+   *                                 is provided.
+   * @param  chunkReader             The chunk reader that will be used to read
+   *                                 the LDIF data.  If this is
+   *                                 non-{@code null}, then
+   *                                 {@code numParseThreads} must be greater
+   *                                 than zero.
+   * @param  numParseThreads         The number of threads to use to parse the
+   *                                 LDIF data.
+   * @param  entryTranslator         The LDIFReaderEntryTranslator to apply to
+   *                                 entries before they are returned, if any.
+   * @param  changeRecordTranslator  The LDIFReaderChangeRecordTranslator to
+   *                                 apply to change records before they are
+   *                                 returned, if any.
+   */
+  private LDIFReader(final BufferedReader reader,
+               final LDIFFileChunkReader chunkReader,
+               final int numParseThreads,
+               final LDIFReaderEntryTranslator entryTranslator,
+               final LDIFReaderChangeRecordTranslator changeRecordTranslator)
+  {
+    if (chunkReader == null)
+    {
+      ensureNotNull(reader);
+    }
     ensureTrue(numParseThreads >= 0,
                "LDIFReader.numParseThreads must not be negative.");
 
     this.reader = reader;
+    this.chunkReader = chunkReader;
     this.entryTranslator = entryTranslator;
     this.changeRecordTranslator = changeRecordTranslator;
 
@@ -799,12 +908,45 @@ public final class LDIFReader
     {
       isAsync = false;
       asyncParser = null;
+      asyncChunkParser = null;
       asyncParsingComplete = null;
       asyncParsedRecords = null;
     }
+    else if (chunkReader != null)
+    {
+      isAsync = true;
+      asyncParser = null;
+      asyncParsingComplete = new AtomicBoolean(false);
+      asyncParsedRecords = new ArrayBlockingQueue
+           <Result<UnparsedLDIFRecord, LDIFRecord>>(2 * ASYNC_QUEUE_SIZE + 100);
+
+      // Splits chunks into records and parses them in parallel.  Each chunk
+      // may hold a large number of records, so there is no need to hold very
+      // many of them in the pending queue.
+      final LDAPSDKThreadFactory threadFactory =
+           new LDAPSDKThreadFactory("LDIFReader Worker", true, null);
+      final ParallelProcessor<LDIFFileChunkReader.Chunk,
+           List<Result<UnparsedLDIFRecord, LDIFRecord>>> parallelParser =
+           new ParallelProcessor<LDIFFileChunkReader.Chunk,
+                List<Result<UnparsedLDIFRecord, LDIFRecord>>>(
+                new ChunkParser(), threadFactory, numParseThreads, 1);
+
+      final BlockingQueue<LDIFFileChunkReader.Chunk> pendingQueue =
+           new ArrayBlockingQueue<LDIFFileChunkReader.Chunk>(
+                2 * numParseThreads);
+
+      asyncChunkParser = new AsynchronousParallelProcessor
+           <LDIFFileChunkReader.Chunk,
+                List<Result<UnparsedLDIFRecord, LDIFRecord>>>(pendingQueue,
+                parallelParser, new ChunkResultEnqueuer());
+
+      final ChunkReaderThread chunkReaderThread = new ChunkReaderThread();
+      chunkReaderThread.start();
+    }
     else
     {
       isAsync = true;
+      asyncChunkParser = null;
       asyncParsingComplete = new AtomicBoolean(false);
 
       // Decodes entries in parallel.
@@ -835,6 +977,76 @@ public final class LDIFReader
 
 
 
+  /**
+   * Creates the buffered reader to use to read from the specified file, if
+   * appropriate.
+   *
+   * @param  file                    The file from which the data is to be
+   *                                 read.
+   * @param  numParseThreads         The number of threads to use to parse the
+   *                                 LDIF data.
+   * @param  splitRecordsInParallel  Indicates whether the parsing threads
+   *                                 should also be used to split the file into
+   *                                 records.
+   *
+   * @return  The buffered reader to use to read from the specified file, or
+   *          {@code null} if a chunk reader should be used instead.
+   *
+   * @throws  IOException  If a problem occurs while opening the file for
+   *                       reading.
+   */
+  private static BufferedReader createBufferedReader(final File file,
+                                     final int numParseThreads,
+                                     final boolean splitRecordsInParallel)
+          throws IOException
+  {
+    ensureNotNull(file);
+
+    if (splitRecordsInParallel && (numParseThreads > 0))
+    {
+      return null;
+    }
+
+    return new BufferedReader(new InputStreamReader(new FileInputStream(file),
+         Charset.forName("UTF-8")), DEFAULT_BUFFER_SIZE);
+  }
+
+
+
+  /**
+   * Creates the chunk reader to use to read from the specified file, if
+   * appropriate.
+   *
+   * @param  file                    The file from which the data is to be
+   *                                 read.
+   * @param  numParseThreads         The number of threads to use to parse the
+   *                                 LDIF data.
+   * @param  splitRecordsInParallel  Indicates whether the parsing threads
+   *                                 should also be used to split the file into
+   *                                 records.
+   *
+   * @return  The chunk reader to use to read from the specified file, or
+   *          {@code null} if a buffered reader should be used instead.
+   *
+   * @throws  IOException  If a problem occurs while opening the file for
+   *                       reading.
+   */
+  private static LDIFFileChunkReader createChunkReader(final File file,
+                                          final int numParseThreads,
+                                          final boolean splitRecordsInParallel)
+          throws IOException
+  {
+    if (splitRecordsInParallel && (numParseThreads > 0))
+    {
+      return new LDIFFileChunkReader(file,
+           LDIFFileChunkReader.DEFAULT_CHUNK_SIZE);
+    }
+
+    return null;
+  }
+
+
+
   /**
    * Reads entries from the LDIF file with the specified path and returns them
    * as a {@code List}.  This is a convenience method that should only be used
@@ -960,7 +1172,16 @@ public final class LDIFReader
   public void close()
          throws IOException
   {
-    reader.close();
+    closed = true;
+
+    if (chunkReader == null)
+    {
+      reader.close();
+    }
+    else
+    {
+      chunkReader.close();
+    }
 
     if (isAsync())
     {
@@ -4156,6 +4377,9 @@ public final class LDIFReader
      * Constructor.
      *
      * @param  lineList                The lines that comprise the LDIF record.
+     *                                 This will be {@code null} if the record
+     *                                 was decoded directly from the bytes of
+     *                                 a chunk.
      * @param  duplicateValueBehavior  The behavior to exhibit if the entry
      *                                 contains duplicate attribute values.
      * @param  trailingSpaceBehavior   Specifies the behavior to exhibit when
@@ -4387,6 +4611,89 @@ public final class LDIFReader
 
 
 
+  /**
+   * When splitting records in parallel, this thread is responsible for reading
+   * chunks of raw data from the input file and submitting them for
+   * processing.
+   */
+  private final class ChunkReaderThread
+       extends Thread
+  {
+    /**
+     * Constructor.
+     */
+    private ChunkReaderThread()
+    {
+      super("Asynchronous LDIF chunk reader");
+      setDaemon(true);
+    }
+
+
+
+    /**
+     * Reads chunks of data from the input and submits them for processing
+     * until the input is finished or closed.
+     */
+    @Override()
+    public void run()
+    {
+      try
+      {
+        boolean stopProcessing = false;
+        while (!stopProcessing)
+        {
+          LDIFFileChunkReader.Chunk chunk;
+          try
+          {
+            chunk = chunkReader.readChunk();
+            if (chunk == null)
+            {
+              chunk = new LDIFFileChunkReader.Chunk(null);
+              stopProcessing = true;
+            }
+          }
+          catch (final Exception e)
+          {
+            debugException(e);
+            chunk = new LDIFFileChunkReader.Chunk(e);
+            stopProcessing = true;
+          }
+
+          try
+          {
+            asyncChunkParser.submit(chunk);
+          }
+          catch (final InterruptedException e)
+          {
+            debugException(e);
+            // If this thread is interrupted, then someone wants us to stop
+            // processing, so that's what we'll do.
+            Thread.currentThread().interrupt();
+            stopProcessing = true;
+          }
+        }
+      }
+      finally
+      {
+        try
+        {
+          asyncChunkParser.shutdown();
+        }
+        catch (final InterruptedException e)
+        {
+          debugException(e);
+          Thread.currentThread().interrupt();
+        }
+        finally
+        {
+          asyncParsingComplete.set(true);
+        }
+      }
+    }
+  }
+
+
+
   /**
    * Used to parse Records asynchronously.
    */
@@ -4400,12 +4707,34 @@ public final class LDIFReader
     public LDIFRecord process(final UnparsedLDIFRecord input)
            throws LDIFException
     {
-      LDIFRecord record = decodeRecord(input, relativeBasePath, schema);
+      return translate(decodeRecord(input, relativeBasePath, schema),
+           input.getFirstLineNumber());
+    }
+
+
+
+    /**
+     * Applies any entry or change record translator to the provided record.
+     *
+     * @param  decodedRecord    The record that was decoded.  It may be
+     *                          {@code null} if the end of the input has been
+     *                          reached.
+     * @param  firstLineNumber  The line number for the start of the record.
+     *
+     * @return  The translated record, or {@link #SKIP_ENTRY} if a translator
+     *          indicated that the record should be skipped.
+     *
+     * @throws  LDIFException  If a translator rejected the record.
+     */
+    private LDIFRecord translate(final LDIFRecord decodedRecord,
+                                 final long firstLineNumber)
+            throws LDIFException
+    {
+      LDIFRecord record = decodedRecord;
 
       if ((record instanceof Entry) && (entryTranslator != null))
       {
-        record = entryTranslator.translate((Entry) record,
-             input.getFirstLineNumber());
+        record = entryTranslator.translate((Entry) record, firstLineNumber);
 
         if (record == null)
         {
@@ -4416,7 +4745,7 @@ public final class LDIFReader
           (changeRecordTranslator != null))
       {
         record = changeRecordTranslator.translate((LDIFChangeRecord) record,
-             input.getFirstLineNumber());
+             firstLineNumber);
 
         if (record == null)
         {
@@ -4426,4 +4755,828 @@ public final class LDIFReader
       return record;
     }
   }
+
+
+
+  /**
+   * Used to split chunks of data into records and parse those records
+   * asynchronously.  The records in each chunk are identified in the same way
+   * as for the {@code readUnparsedRecord} method, with the exception that each
+   * chunk is known to start at the beginning of a record.
+   * <BR><BR>
+   * Entries are decoded directly from the bytes in the chunk, so that
+   * attribute descriptions and base64-encoded values are parsed without first
+   * converting each line to a string.  This is only done for records that can
+   * be decoded exactly as the line-based parser would decode them.  Any record
+   * that does not start with a "dn:" line, that is a change record, that
+   * contains comments, URL-referenced values, trailing spaces, or non-ASCII
+   * bytes outside of base64-encoded values, or that cannot be decoded for any
+   * reason is handed to the line-based parser instead, so that it gets exactly
+   * the same result, line numbers, and error messages.
+   */
+  private final class ChunkParser
+          implements Processor<LDIFFileChunkReader.Chunk,
+                               List<Result<UnparsedLDIFRecord, LDIFRecord>>>
+  {
+    // The parser used for each of the records in the chunk.
+    private final RecordParser recordParser = new RecordParser();
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public List<Result<UnparsedLDIFRecord, LDIFRecord>> process(
+                final LDIFFileChunkReader.Chunk input)
+    {
+      final ArrayList<Result<UnparsedLDIFRecord, LDIFRecord>> results =
+           new ArrayList<Result<UnparsedLDIFRecord, LDIFRecord>>(100);
+
+      final DuplicateValueBehavior dvb = duplicateValueBehavior;
+      final TrailingSpaceBehavior tsb = trailingSpaceBehavior;
+      final Schema s = schema;
+
+      if (input.getFailureCause() != null)
+      {
+        parseRecord(new UnparsedLDIFRecord(input.getFailureCause()), results);
+        return results;
+      }
+
+      if (input.isEOF())
+      {
+        parseRecord(new UnparsedLDIFRecord(new ArrayList<StringBuilder>(0),
+             dvb, tsb, s, -1), results);
+        return results;
+      }
+
+      final byte[] data = input.getData();
+      final int length = input.getLength();
+
+      final ByteStringBuffer buffer = new ByteStringBuffer();
+      ArrayList<StringBuilder> lineList = new ArrayList<StringBuilder>(20);
+      boolean lastWasComment = false;
+      long lineNumber = input.getFirstLineNumber() - 1L;
+      long firstLineNumber = input.getFirstLineNumber();
+
+      int pos = 0;
+      while (pos < length)
+      {
+        int endPos = pos;
+        while ((endPos < length) && (data[endPos] != '\n'))
+        {
+          endPos++;
+        }
+
+        final int nextPos = endPos + 1;
+        if ((endPos > pos) && (data[endPos-1] == '\r'))
+        {
+          endPos--;
+        }
+
+        lineNumber++;
+        if (endPos == pos)
+        {
+          // It's a blank line, which either ends the current record or is an
+          // extra line between records.
+          lastWasComment = false;
+          if (lineList.isEmpty())
+          {
+            firstLineNumber++;
+          }
+          else
+          {
+            parseRecord(new UnparsedLDIFRecord(lineList, dvb, tsb, s,
+                 firstLineNumber), results);
+            lineList = new ArrayList<StringBuilder>(20);
+            firstLineNumber = lineNumber + 1L;
+          }
+        }
+        else if (data[pos] == ' ')
+        {
+          if (lastWasComment)
+          {
+            // What we've read is part of a comment, so we don't care about its
+            // content.
+          }
+          else if (lineList.isEmpty())
+          {
+            parseRecord(new UnparsedLDIFRecord(new LDIFException(
+                 ERR_READ_UNEXPECTED_FIRST_SPACE.get(lineNumber), lineNumber,
+                 false)), results);
+            firstLineNumber = lineNumber + 1L;
+          }
+          else
+          {
+            lineList.get(lineList.size() - 1).append(
+                 toUTF8String(data, (pos + 1), (endPos - pos - 1)));
+          }
+        }
+        else if (data[pos] == '#')
+        {
+          lastWasComment = true;
+        }
+        else
+        {
+          if (lineList.isEmpty())
+          {
+            // This is the first line of a record, so see if the entire record
+            // can be decoded as an entry without converting it to strings.
+            final int recordEndPos = findRecordEnd(data, pos, length);
+            final Entry entry =
+                 decodeEntry(data, pos, recordEndPos, dvb, s, buffer);
+            if (entry != null)
+            {
+              addEntry(entry,
+                   new UnparsedLDIFRecord(null, dvb, tsb, s, firstLineNumber),
+                   results);
+              lineNumber += countLines(data, pos, recordEndPos) - 1L;
+              firstLineNumber = lineNumber + 1L;
+              lastWasComment = false;
+              pos = recordEndPos;
+              continue;
+            }
+          }
+
+          final String line = toUTF8String(data, pos, (endPos - pos));
+          if (lineList.isEmpty() && line.startsWith("version:"))
+          {
+            lastWasComment = true;
+          }
+          else
+          {
+            lineList.add(new StringBuilder(line));
+            lastWasComment = false;
+          }
+        }
+
+        pos = nextPos;
+      }
+
+      // A chunk will only end in the middle of a record if it's the last chunk
+      // in the file and the last record isn't followed by a blank line.
+      if (! lineList.isEmpty())
+      {
+        parseRecord(new UnparsedLDIFRecord(lineList, dvb, tsb, s,
+             firstLineNumber), results);
+      }
+
+      return results;
+    }
+
+
+
+    /**
+     * Parses the provided record and adds the result to the given list.
+     *
+     * @param  unparsedRecord  The record to be parsed.
+     * @param  results         The list to which the result should be added.
+     */
+    private void parseRecord(final UnparsedLDIFRecord unparsedRecord,
+                  final List<Result<UnparsedLDIFRecord, LDIFRecord>> results)
+    {
+      LDIFRecord record = null;
+      Throwable failureCause = null;
+      try
+      {
+        record = recordParser.process(unparsedRecord);
+      }
+      catch (final Throwable t)
+      {
+        debugException(t);
+        failureCause = t;
+      }
+
+      results.add(new ChunkRecordResult(unparsedRecord, record, failureCause));
+    }
+
+
+
+    /**
+     * Applies any entry translator to the provided entry, which has already
+     * been decoded, and adds the result to the given list.
+     *
+     * @param  entry           The entry that was decoded.
+     * @param  unparsedRecord  The record from which the entry was decoded.
+     * @param  results         The list to which the result should be added.
+     */
+    private void addEntry(final Entry entry,
+                  final UnparsedLDIFRecord unparsedRecord,
+                  final List<Result<UnparsedLDIFRecord, LDIFRecord>> results)
+    {
+      debugLDIFRead(entry);
+
+      LDIFRecord record = null;
+      Throwable failureCause = null;
+      try
+      {
+        record = recordParser.translate(entry,
+             unparsedRecord.getFirstLineNumber());
+      }
+      catch (final Throwable t)
+      {
+        debugException(t);
+        failureCause = t;
+      }
+
+      results.add(new ChunkRecordResult(unparsedRecord, record, failureCause));
+    }
+
+
+
+    /**
+     * Finds the end of the record that starts at the specified position.
+     *
+     * @param  data      The data for the chunk.
+     * @param  startPos  The position of the first byte of the record.
+     * @param  length    The number of bytes of data in the chunk.
+     *
+     * @return  The position of the blank line that ends the record, or the
+     *          length of the chunk if the record is not followed by a blank
+     *          line.
+     */
+    private int findRecordEnd(final byte[] data, final int startPos,
+                              final int length)
+    {
+      int pos = startPos;
+      while (pos < length)
+      {
+        int endPos = pos;
+        while ((endPos < length) && (data[endPos] != '\n'))
+        {
+          endPos++;
+        }
+
+        if ((endPos == pos) || ((endPos == (pos + 1)) && (data[pos] == '\r')))
+        {
+          return pos;
+        }
+
+        pos = endPos + 1;
+      }
+
+      return length;
+    }
+
+
+
+    /**
+     * Counts the lines in the specified portion of the chunk.
+     *
+     * @param  data      The data for the chunk.
+     * @param  startPos  The position at which the first line starts.
+     * @param  endPos    The position immediately after the last line.
+     *
+     * @return  The number of lines in the specified portion of the chunk.
+     */
+    private long countLines(final byte[] data, final int startPos,
+                            final int endPos)
+    {
+      long numLines = 0L;
+      for (int i=startPos; i < endPos; i++)
+      {
+        if (data[i] == '\n')
+        {
+          numLines++;
+        }
+      }
+
+      if ((endPos > startPos) && (data[endPos-1] != '\n'))
+      {
+        numLines++;
+      }
+
+      return numLines;
+    }
+
+
+
+    /**
+     * Attempts to decode the specified portion of the chunk as an entry
+     * without converting it to strings.  Attribute descriptions are read from
+     * the bytes preceding the colon on each line, and base64-encoded values
+     * are decoded directly from the bytes that follow it.  This will only
+     * return an entry if the line-based parser would have returned an equal
+     * entry for the same data.
+     *
+     * @param  data                    The data for the chunk.
+     * @param  startPos                The position of the first byte of the
+     *                                 record.
+     * @param  endPos                  The position immediately after the last
+     *                                 line of the record.
+     * @param  duplicateValueBehavior  The behavior to exhibit if the entry
+     *                                 contains duplicate attribute values.
+     * @param  schema                  The schema to use when parsing, if
+     *                                 applicable.
+     * @param  buffer                  A buffer that may be used to hold lines
+     *                                 that have been wrapped.
+     *
+     * @return  The decoded entry, or {@code null} if the record must be
+     *          handled by the line-based parser.
+     */
+    private Entry decodeEntry(final byte[] data, final int startPos,
+                         final int endPos,
+                         final DuplicateValueBehavior duplicateValueBehavior,
+                         final Schema schema, final ByteStringBuffer buffer)
+    {
+      String dn = null;
+      final LinkedHashMap<String,Object> attributes =
+           new LinkedHashMap<String,Object>(20);
+
+      int pos = startPos;
+      while (pos < endPos)
+      {
+        if ((data[pos] == '#') || (data[pos] == ' '))
+        {
+          return null;
+        }
+
+        // Find the end of the line, and append any continuation lines to it.
+        final int lineFeedPos = findLineEnd(data, pos, endPos);
+        final int lineEndPos = stripCarriageReturn(data, pos, lineFeedPos);
+        int nextPos = lineFeedPos + 1;
+
+        byte[] line = data;
+        int lineStart = pos;
+        int lineEnd = lineEndPos;
+        if ((nextPos < endPos) && (data[nextPos] == ' '))
+        {
+          buffer.clear();
+          buffer.append(data, pos, (lineEndPos - pos));
+          while ((nextPos < endPos) && (data[nextPos] == ' '))
+          {
+            final int continuationStart = nextPos + 1;
+            final int continuationFeed =
+                 findLineEnd(data, continuationStart, endPos);
+            final int continuationEnd = stripCarriageReturn(data,
+                 continuationStart, continuationFeed);
+            nextPos = continuationFeed + 1;
+
+            buffer.append(data, continuationStart,
+                 (continuationEnd - continuationStart));
+          }
+
+          line = buffer.getBackingArray();
+          lineStart = 0;
+          lineEnd = buffer.length();
+        }
+        pos = nextPos;
+
+        // Values with trailing spaces may need to be stripped or rejected.
+        if ((lineEnd == lineStart) || (line[lineEnd-1] == ' '))
+        {
+          return null;
+        }
+
+        int colonPos = -1;
+        for (int i=lineStart; i < lineEnd; i++)
+        {
+          if (line[i] == ':')
+          {
+            colonPos = i;
+            break;
+          }
+          else if ((line[i] & 0x80) != 0x00)
+          {
+            return null;
+          }
+        }
+
+        if (colonPos <= lineStart)
+        {
+          return null;
+        }
+
+        final String name = toUTF8String(line, lineStart,
+             (colonPos - lineStart));
+        final byte[] value = decodeValue(line, (colonPos + 1), lineEnd);
+        if (value == null)
+        {
+          return null;
+        }
+
+        if (dn == null)
+        {
+          if (! name.equalsIgnoreCase("dn"))
+          {
+            return null;
+          }
+
+          dn = toUTF8String(value);
+          continue;
+        }
+
+        if (attributes.isEmpty() &&
+            (name.equalsIgnoreCase("changetype") ||
+             name.equalsIgnoreCase("control")))
+        {
+          return null;
+        }
+
+        final String lowerName = toLowerCase(name);
+        final MatchingRule matchingRule;
+        if (schema == null)
+        {
+          matchingRule = CaseIgnoreStringMatchingRule.getInstance();
+        }
+        else
+        {
+          matchingRule = MatchingRule.selectEqualityMatchingRule(name, schema);
+        }
+
+        final Object attrObject = attributes.get(lowerName);
+        if (attrObject == null)
+        {
+          attributes.put(lowerName, new Attribute(name, matchingRule, value));
+          continue;
+        }
+
+        final LDIFAttribute ldifAttr;
+        if (attrObject instanceof Attribute)
+        {
+          final Attribute attr = (Attribute) attrObject;
+          ldifAttr = new LDIFAttribute(attr.getName(), matchingRule,
+                                       attr.getRawValues()[0]);
+          attributes.put(lowerName, ldifAttr);
+        }
+        else
+        {
+          ldifAttr = (LDIFAttribute) attrObject;
+        }
+
+        try
+        {
+          if ((! ldifAttr.addValue(new ASN1OctetString(value),
+                      duplicateValueBehavior)) &&
+              (duplicateValueBehavior != DuplicateValueBehavior.STRIP))
+          {
+            return null;
+          }
+        }
+        catch (final LDAPException le)
+        {
+          debugException(le);
+          return null;
+        }
+      }
+
+      if (dn == null)
+      {
+        return null;
+      }
+
+      if (attributes.isEmpty())
+      {
+        return new Entry(dn, schema);
+      }
+
+      final ArrayList<Attribute> attrList =
+           new ArrayList<Attribute>(attributes.size());
+      for (final Object o : attributes.values())
+      {
+        if (o instanceof Attribute)
+        {
+          attrList.add((Attribute) o);
+        }
+        else
+        {
+          attrList.add(((LDIFAttribute) o).toAttribute());
+        }
+      }
+
+      return new Entry(dn, schema, attrList);
+    }
+
+
+
+    /**
+     * Finds the position of the line feed that ends the line starting at the
+     * specified position.
+     *
+     * @param  data      The data for the chunk.
+     * @param  startPos  The position at which the line starts.
+     * @param  endPos    The position at which to stop looking.
+     *
+     * @return  The position of the line feed that ends the line, or the
+     *          provided end position if there is no line feed before it.
+     */
+    private int findLineEnd(final byte[] data, final int startPos,
+                            final int endPos)
+    {
+      int pos = startPos;
+      while ((pos < endPos) && (data[pos] != '\n'))
+      {
+        pos++;
+      }
+
+      return pos;
+    }
+
+
+
+    /**
+     * Excludes any carriage return at the end of a line.
+     *
+     * @param  data        The data for the chunk.
+     * @param  startPos    The position at which the line starts.
+     * @param  lineEndPos  The position of the line feed that ends the line, or
+     *                     the end of the data if there is no line feed.
+     *
+     * @return  The position of the carriage return at the end of the line, or
+     *          the provided line end position if there isn't one.
+     */
+    private int stripCarriageReturn(final byte[] data, final int startPos,
+                                    final int lineEndPos)
+    {
+      if ((lineEndPos > startPos) && (data[lineEndPos-1] == '\r'))
+      {
+        return lineEndPos - 1;
+      }
+
+      return lineEndPos;
+    }
+
+
+
+    /**
+     * Decodes the value that follows the colon on an LDIF line.
+     *
+     * @param  line      The array containing the line.
+     * @param  startPos  The position immediately after the colon.
+     * @param  endPos    The position immediately after the end of the line.
+     *
+     * @return  The decoded value, or {@code null} if the value is a URL, if it
+     *          contains non-ASCII bytes without being base64-encoded, or if it
+     *          is not valid base64.
+     */
+    private byte[] decodeValue(final byte[] line, final int startPos,
+                               final int endPos)
+    {
+      if (startPos == endPos)
+      {
+        return new byte[0];
+      }
+
+      final boolean isBase64;
+      int pos = startPos;
+      if (line[pos] == ':')
+      {
+        isBase64 = true;
+        pos++;
+      }
+      else if (line[pos] == '<')
+      {
+        return null;
+      }
+      else
+      {
+        isBase64 = false;
+      }
+
+      while ((pos < endPos) && (line[pos] == ' '))
+      {
+        pos++;
+      }
+
+      if (isBase64)
+      {
+        return decodeBase64(line, pos, endPos);
+      }
+
+      for (int i=pos; i < endPos; i++)
+      {
+        if ((line[i] & 0x80) != 0x00)
+        {
+          return null;
+        }
+      }
+
+      final byte[] value = new byte[endPos - pos];
+      System.arraycopy(line, pos, value, 0, value.length);
+      return value;
+    }
+
+
+
+    /**
+     * Decodes the specified base64-encoded portion of an LDIF line.  The data
+     * must be valid base64 with padding only at the end, as for
+     * {@link Base64#decode(String)}.
+     *
+     * @param  line      The array containing the line.
+     * @param  startPos  The position at which the encoded value starts.
+     * @param  endPos    The position immediately after the encoded value.
+     *
+     * @return  The decoded value, or {@code null} if the data is not valid
+     *          base64.
+     */
+    private byte[] decodeBase64(final byte[] line, final int startPos,
+                                final int endPos)
+    {
+      final int length = endPos - startPos;
+      if ((length % 4) != 0)
+      {
+        return null;
+      }
+
+      int numPadding = 0;
+      if ((length > 0) && (line[endPos-1] == '='))
+      {
+        numPadding = (line[endPos-2] == '=') ? 2 : 1;
+      }
+
+      final byte[] value = new byte[((length / 4) * 3) - numPadding];
+      int valuePos = 0;
+      for (int pos=startPos; pos < endPos; pos += 4)
+      {
+        int intValue = 0x00;
+        for (int i=0; i < 4; i++)
+        {
+          intValue <<= 6;
+          if ((pos + i) >= (endPos - numPadding))
+          {
+            // This is padding, which contributes no bits.
+            continue;
+          }
+
+          final int digit = base64Digit(line[pos+i]);
+          if (digit < 0)
+          {
+            return null;
+          }
+          intValue |= digit;
+        }
+
+        value[valuePos++] = (byte) ((intValue >> 16) & 0xFF);
+        if (valuePos < value.length)
+        {
+          value[valuePos++] = (byte) ((intValue >> 8) & 0xFF);
+        }
+        if (valuePos < value.length)
+        {
+          value[valuePos++] = (byte) (intValue & 0xFF);
+        }
+      }
+
+      return value;
+    }
+
+
+
+    /**
+     * Retrieves the value of the provided base64 digit.
+     *
+     * @param  b  The byte containing the base64 digit.
+     *
+     * @return  The value of the base64 digit, or -1 if the byte is not a
+     *          base64 digit.
+     */
+    private int base64Digit(final byte b)
+    {
+      if ((b >= 'A') && (b <= 'Z'))
+      {
+        return b - 'A';
+      }
+      else if ((b >= 'a') && (b <= 'z'))
+      {
+        return b - 'a' + 26;
+      }
+      else if ((b >= '0') && (b <= '9'))
+      {
+        return b - '0' + 52;
+      }
+      else if (b == '+')
+      {
+        return 62;
+      }
+      else if (b == '/')
+      {
+        return 63;
+      }
+      else
+      {
+        return -1;
+      }
+    }
+  }
+
+
+
+  /**
+   * Used to add the records parsed from each chunk to the queue of parsed
+   * records in the order in which they appeared in the file.
+   */
+  private final class ChunkResultEnqueuer
+          implements ResultProcessor<LDIFFileChunkReader.Chunk,
+                          List<Result<UnparsedLDIFRecord, LDIFRecord>>>
+  {
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public void processResult(final Result<LDIFFileChunkReader.Chunk,
+                                   List<Result<UnparsedLDIFRecord, LDIFRecord>>>
+                                   chunkResult)
+           throws InterruptedException
+    {
+      if (closed)
+      {
+        return;
+      }
+
+      final Throwable failureCause = chunkResult.getFailureCause();
+      if (failureCause != null)
+      {
+        asyncParsedRecords.put(new ChunkRecordResult(
+             new UnparsedLDIFRecord(new LDIFException(
+                  getExceptionMessage(failureCause), -1L, false,
+                  failureCause)),
+             null, failureCause));
+        return;
+      }
+
+      for (final Result<UnparsedLDIFRecord, LDIFRecord> r :
+           chunkResult.getOutput())
+      {
+        // Once the reader has been closed, there is no need to hold on to any
+        // more records, and doing so could cause this thread to block.
+        if (closed)
+        {
+          return;
+        }
+
+        asyncParsedRecords.put(r);
+      }
+    }
+  }
+
+
+
+  /**
+   * The result of parsing a single record from a chunk.
+   */
+  private static final class ChunkRecordResult
+          implements Result<UnparsedLDIFRecord, LDIFRecord>
+  {
+    // The record that was parsed.
+    private final LDIFRecord output;
+
+    // The exception thrown while parsing the record, if any.
+    private final Throwable failureCause;
+
+    // The unparsed record.
+    private final UnparsedLDIFRecord input;
+
+
+
+    /**
+     * Creates a new result with the provided information.
+     *
+     * @param  input         The unparsed record.
+     * @param  output        The record that was parsed, if any.
+     * @param  failureCause  The exception thrown while parsing the record, if
+     *                       any.
+     */
+    private ChunkRecordResult(final UnparsedLDIFRecord input,
+                              final LDIFRecord output,
+                              final Throwable failureCause)
+    {
+      this.input        = input;
+      this.output       = output;
+      this.failureCause = failureCause;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public UnparsedLDIFRecord getInput()
+    {
+      return input;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public LDIFRecord getOutput()
+    {
+      return output;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public Throwable getFailureCause()
+    {
+      return failureCause;
+    }
+  }
 }
@@ -64,6 +64,15 @@ import static com.unboundid.util.Debug.*;
  * time is R times the target per interval.  That is, 10% of the way through
  * the interval, approximately 10% of the actions have been performed, and
  * 80% of the way through the interval, 80% of the actions have been performed.
+ * <p>
+ * A barrier may alternately be created with a burst size, in which case it
+ * will use a lock-free token bucket rather than synchronizing all callers on
+ * the barrier.  In that mode, callers claim permits with a compare-and-set
+ * operation (leasing several at a time when the rate is high), and callers
+ * that are ahead of schedule park until just before their release time rather
+ * than spinning or sleeping for the platform's minimum sleep duration.  If the
+ * callers fall behind schedule, then no more than the burst size of them will
+ * be released immediately in an attempt to catch up.
  */
 @ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
 public final class FixedRateBarrier
@@ -128,6 +137,10 @@ public final class FixedRateBarrier
   // true.
   private volatile boolean shutdownRequested = false;
 
+  // The token bucket used to release callers, if this barrier was created
+  // with a burst size.
+  private final TokenBucketRateLimiter tokenBucket;
+
 
   //
   // The following class variables are guarded by synchronized(this).
@@ -168,11 +181,38 @@ public final class FixedRateBarrier
    */
   public FixedRateBarrier(final long intervalDurationMs, final int perInterval)
   {
+    tokenBucket = null;
     setRate(intervalDurationMs, perInterval);
   }
 
 
 
+  /**
+   * Constructs a new FixedRateBarrier that uses a lock-free token bucket to
+   * release callers, and which is active until {@link #shutdownRequested} is
+   * called.
+   *
+   * @param  intervalDurationMs  The duration of the interval in milliseconds.
+   * @param  perInterval  The target number of times that {@link #await} should
+   *                      return per interval.
+   * @param  burstSize    The maximum number of times that {@link #await} may
+   *                      return immediately in an attempt to catch up after
+   *                      falling behind schedule.  It must be greater than
+   *                      zero.
+   */
+  public FixedRateBarrier(final long intervalDurationMs, final int perInterval,
+                          final int burstSize)
+  {
+    validateRate(intervalDurationMs, perInterval);
+    Validator.ensureTrue(burstSize > 0,
+         "FixedRateBarrier.burstSize must be at least 1.");
+
+    tokenBucket =
+         new TokenBucketRateLimiter(intervalDurationMs, perInterval, burstSize);
+  }
+
+
+
   /**
    * Updates the rates associated with this FixedRateBarrier.  The new rate
    * will be in effect when this method returns.
@@ -181,14 +221,50 @@ public final class FixedRateBarrier
    * @param  perInterval  The target number of times that {@link #await} should
    *                      return per interval.
    */
-  public synchronized void setRate(final long intervalDurationMs,
+  public void setRate(final long intervalDurationMs, final int perInterval)
+  {
+    validateRate(intervalDurationMs, perInterval);
+
+    if (tokenBucket == null)
+    {
+      setClassicRate(intervalDurationMs, perInterval);
+    }
+    else
+    {
+      tokenBucket.setRate(intervalDurationMs, perInterval);
+    }
+  }
+
+
+
+  /**
+   * Ensures that the provided rate settings are valid.
+   *
+   * @param  intervalDurationMs  The duration of the interval in milliseconds.
+   * @param  perInterval  The target number of times that {@link #await} should
+   *                      return per interval.
+   */
+  private static void validateRate(final long intervalDurationMs,
                                    final int perInterval)
   {
     Validator.ensureTrue(intervalDurationMs > 0,
          "FixedRateBarrier.intervalDurationMs must be at least 1.");
     Validator.ensureTrue(perInterval > 0,
          "FixedRateBarrier.perInterval must be at least 1.");
+  }
 
+
+
+  /**
+   * Updates the rates used when this barrier does not use a token bucket.
+   *
+   * @param  intervalDurationMs  The duration of the interval in milliseconds.
+   * @param  perInterval  The target number of times that {@link #await} should
+   *                      return per interval.
+   */
+  private synchronized void setClassicRate(final long intervalDurationMs,
+                                           final int perInterval)
+  {
     this.perInterval = perInterval;
 
     intervalDurationNanos = 1000L * 1000L * intervalDurationMs;
@@ -212,7 +288,56 @@ public final class FixedRateBarrier
    * @return  {@code true} if shutdown has been requested and {@code} false
    *          otherwise.
    */
-  public synchronized boolean await()
+  public boolean await()
+  {
+    if (tokenBucket == null)
+    {
+      return classicAwait();
+    }
+
+    tokenBucket.await(this);
+    return shutdownRequested;
+  }
+
+
+
+  /**
+   * Waits until it is time for the next 'action' to be performed in the same
+   * way as the {@link #await} method, and retrieves the time at which that
+   * action was scheduled to be performed.  Measuring latency from the
+   * scheduled time rather than from the time the caller was actually released
+   * ensures that any delay in releasing callers (e.g., because all of them
+   * were waiting on a slow server) is reflected in the measurement.  The
+   * scheduled time is only tracked for barriers created with a burst size.
+   * For other barriers, the time that the caller was released will be
+   * returned.
+   *
+   * @return  The time, in terms of {@code System.nanoTime()}, at which the
+   *          caller was scheduled to be released.  If shutdown has been
+   *          requested, then the current time will be returned and
+   *          {@link #isShutdownRequested} will return {@code true}.
+   */
+  public long awaitAndGetScheduledTime()
+  {
+    if (tokenBucket == null)
+    {
+      classicAwait();
+      return System.nanoTime();
+    }
+
+    return tokenBucket.await(this);
+  }
+
+
+
+  /**
+   * Waits until it is time for the next 'action' to be performed when this
+   * barrier does not use a token bucket.
+   *
+   * @return  {@code true} if shutdown has been requested and {@code} false
+   *          otherwise.
+   */
+  private synchronized boolean classicAwait()
   {
     // Loop forever until we are requested to shutdown or it is time to perform
     // the next 'action' in which case we break from the loop.
@@ -321,11 +446,38 @@ public final class FixedRateBarrier
    *
    * @return  Information about hte current target rate for this barrier.
    */
-  public synchronized ObjectPair<Long,Integer> getTargetRate()
+  public ObjectPair<Long,Integer> getTargetRate()
+  {
+    if (tokenBucket != null)
+    {
+      return tokenBucket.getTargetRate();
+    }
+
+    synchronized (this)
+    {
+      return new ObjectPair<Long,Integer>(
+           (intervalDurationNanos / (1000L * 1000L)),
+           perInterval);
+    }
+  }
+
+
+
+  /**
+   * Retrieves the maximum number of times that {@link #await} may return
+   * immediately in an attempt to catch up after falling behind schedule.
+   *
+   * @return  The burst size for this barrier, or -1 if this barrier does not
+   *          use a token bucket.
+   */
+  public int getBurstSize()
   {
-    return new ObjectPair<Long,Integer>(
-         (intervalDurationNanos / (1000L * 1000L)),
-         perInterval);
+    if (tokenBucket == null)
+    {
+      return -1;
+    }
+
+    return tokenBucket.getBurstSize();
   }
 
 
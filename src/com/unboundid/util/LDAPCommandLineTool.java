@@ -1284,7 +1284,7 @@ public abstract class LDAPCommandLineTool
         }
 
         trustManager = new TrustStoreTrustManager(trustStorePath.getValue(), pw,
-             trustStoreFormat.getValue(), true);
+             trustStoreFormat.getValue(), true, true);
       }
       else
       {
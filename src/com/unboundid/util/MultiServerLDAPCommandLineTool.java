@@ -810,7 +810,7 @@ public abstract class MultiServerLDAPCommandLineTool
 
         trustManager = new TrustStoreTrustManager(
              trustStorePath[serverIndex].getValue(), pw,
-             trustStoreFormat[serverIndex].getValue(), true);
+             trustStoreFormat[serverIndex].getValue(), true, true);
       }
       else
       {
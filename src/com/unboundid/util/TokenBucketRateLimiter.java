@@ -0,0 +1,393 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.util;
+
+
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+
+
+/**
+ * This class provides a lock-free token bucket that may be used by a
+ * {@link FixedRateBarrier} to release callers at a fixed rate without
+ * requiring them to synchronize on a common monitor.
+ * <BR><BR>
+ * Each permit (i.e., each release of a caller) is assigned a sequential index,
+ * and the permit with index i is scheduled to be released at a fixed offset of
+ * i times the permit interval from the start of the schedule.  Permits are
+ * claimed with a compare-and-set on a single counter.  To reduce contention at
+ * high rates, each thread leases a small block of consecutive permits at once
+ * and then consumes them without touching the shared counter.  If callers
+ * fall behind schedule, then permits that are older than the burst size are
+ * discarded so that no more than that number of callers will be released
+ * immediately to catch up.
+ * <BR><BR>
+ * Callers that are ahead of schedule park until shortly before their release
+ * time and then yield until it arrives, since parking is not precise enough to
+ * hit the target time on its own, and sleeping has a coarse minimum duration
+ * on many platforms.
+ */
+@ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
+final class TokenBucketRateLimiter
+      implements Serializable
+{
+  /**
+   * The maximum length of time in nanoseconds covered by the permits in a
+   * single lease.
+   */
+  private static final long MAX_LEASE_NANOS = 100000L;
+
+
+
+  /**
+   * The maximum number of permits that a thread may lease at once.
+   */
+  private static final long MAX_LEASE_SIZE = 64L;
+
+
+
+  /**
+   * The maximum length of time in nanoseconds that a thread will park at once,
+   * so that it can respond to a change in the rate or a shutdown request
+   * without too much delay.
+   */
+  private static final long MAX_PARK_NANOS = 10000000L;
+
+
+
+  /**
+   * The length of time in nanoseconds before the release time at which a
+   * waiting thread will stop parking and start yielding.
+   */
+  private static final long SPIN_THRESHOLD_NANOS = 100000L;
+
+
+
+  /**
+   * The serial version UID for this serializable class.
+   */
+  private static final long serialVersionUID = 6022853467095364547L;
+
+
+
+  // The current schedule for releasing permits.
+  private final AtomicReference<Schedule> schedule;
+
+  // The maximum number of permits that may be released immediately after
+  // falling behind schedule.
+  private final int burstSize;
+
+  // The permits leased by each thread.
+  private transient volatile ThreadLocal<Lease> leases;
+
+
+
+  /**
+   * Creates a new token bucket rate limiter with the provided settings.
+   *
+   * @param  intervalDurationMs  The duration of the interval in milliseconds.
+   * @param  perInterval         The target number of permits to release per
+   *                             interval.
+   * @param  burstSize           The maximum number of permits that may be
+   *                             released immediately after falling behind
+   *                             schedule.
+   */
+  TokenBucketRateLimiter(final long intervalDurationMs, final int perInterval,
+                         final int burstSize)
+  {
+    this.burstSize = burstSize;
+
+    schedule = new AtomicReference<Schedule>(
+         new Schedule(intervalDurationMs, perInterval));
+  }
+
+
+
+  /**
+   * Updates the rate for this limiter.  The new rate will be in effect when
+   * this method returns.
+   *
+   * @param  intervalDurationMs  The duration of the interval in milliseconds.
+   * @param  perInterval         The target number of permits to release per
+   *                             interval.
+   */
+  void setRate(final long intervalDurationMs, final int perInterval)
+  {
+    schedule.set(new Schedule(intervalDurationMs, perInterval));
+  }
+
+
+
+  /**
+   * Retrieves the current target rate for this limiter.
+   *
+   * @return  An object pair with the duration of the interval in milliseconds
+   *          and the number of permits to release per interval.
+   */
+  ObjectPair<Long,Integer> getTargetRate()
+  {
+    final Schedule s = schedule.get();
+    return new ObjectPair<Long,Integer>(s.intervalDurationMs, s.perInterval);
+  }
+
+
+
+  /**
+   * Retrieves the maximum number of permits that may be released immediately
+   * after falling behind schedule.
+   *
+   * @return  The maximum number of permits that may be released immediately
+   *          after falling behind schedule.
+   */
+  int getBurstSize()
+  {
+    return burstSize;
+  }
+
+
+
+  /**
+   * Waits until it is time for the calling thread to be released.
+   *
+   * @param  barrier  The barrier with which this limiter is associated.  It
+   *                  will be used to determine whether shutdown has been
+   *                  requested.
+   *
+   * @return  The time, in terms of {@code System.nanoTime()}, at which the
+   *          calling thread was scheduled to be released, or the current time
+   *          if it was released early because shutdown was requested or the
+   *          thread was interrupted.
+   */
+  long await(final FixedRateBarrier barrier)
+  {
+    final Lease lease = getLeases().get();
+
+    while (! barrier.isShutdownRequested())
+    {
+      final Schedule s = schedule.get();
+
+      final long permit;
+      if ((lease.schedule == s) && (lease.nextPermit < lease.endPermit))
+      {
+        permit = lease.nextPermit++;
+      }
+      else
+      {
+        final long first = s.leasePermits(burstSize);
+        lease.schedule   = s;
+        lease.nextPermit = first + 1L;
+        lease.endPermit  = first + s.leaseSize;
+        permit = first;
+      }
+
+      final long releaseNanos = s.getReleaseNanos(permit);
+      while (true)
+      {
+        final long remainingNanos = releaseNanos - System.nanoTime();
+        if (remainingNanos <= 0L)
+        {
+          return releaseNanos;
+        }
+        else if (remainingNanos > SPIN_THRESHOLD_NANOS)
+        {
+          LockSupport.parkNanos(Math.min(
+               (remainingNanos - SPIN_THRESHOLD_NANOS), MAX_PARK_NANOS));
+          if (Thread.currentThread().isInterrupted())
+          {
+            return System.nanoTime();
+          }
+        }
+        else
+        {
+          Thread.yield();
+        }
+
+        if (barrier.isShutdownRequested())
+        {
+          return System.nanoTime();
+        }
+        else if (schedule.get() != s)
+        {
+          // The rate has changed, so the permit needs to be obtained from the
+          // new schedule.
+          break;
+        }
+      }
+    }
+
+    return System.nanoTime();
+  }
+
+
+
+  /**
+   * Retrieves the thread-local leases for this limiter, creating them if
+   * necessary (e.g., after this limiter has been deserialized).
+   *
+   * @return  The thread-local leases for this limiter.
+   */
+  private ThreadLocal<Lease> getLeases()
+  {
+    ThreadLocal<Lease> l = leases;
+    if (l == null)
+    {
+      synchronized (this)
+      {
+        l = leases;
+        if (l == null)
+        {
+          l = new ThreadLocal<Lease>()
+          {
+            @Override()
+            protected Lease initialValue()
+            {
+              return new Lease();
+            }
+          };
+          leases = l;
+        }
+      }
+    }
+
+    return l;
+  }
+
+
+
+  /**
+   * This class defines the schedule for releasing permits at a given rate.
+   */
+  private static final class Schedule
+          implements Serializable
+  {
+    /**
+     * The serial version UID for this serializable class.
+     */
+    private static final long serialVersionUID = -4937129571069375634L;
+
+
+
+    // The index of the next permit that has not been leased.
+    private final AtomicLong nextPermit;
+
+    // The number of nanoseconds between the release of consecutive permits.
+    private final double nanosPerPermit;
+
+    // The target number of permits per interval.
+    private final int perInterval;
+
+    // The duration of the interval in milliseconds.
+    private final long intervalDurationMs;
+
+    // The number of permits that a thread should lease at once.
+    private final long leaseSize;
+
+    // The time that the first permit is to be released, in terms of
+    // System.nanoTime().
+    private final long startNanos;
+
+
+
+    /**
+     * Creates a new schedule with the provided rate, starting now.
+     *
+     * @param  intervalDurationMs  The duration of the interval in
+     *                             milliseconds.
+     * @param  perInterval         The target number of permits to release per
+     *                             interval.
+     */
+    private Schedule(final long intervalDurationMs, final int perInterval)
+    {
+      this.intervalDurationMs = intervalDurationMs;
+      this.perInterval        = perInterval;
+
+      nanosPerPermit = (1000000.0d * intervalDurationMs) / perInterval;
+      leaseSize = Math.max(1L, Math.min(MAX_LEASE_SIZE,
+           (long) (MAX_LEASE_NANOS / nanosPerPermit)));
+      nextPermit = new AtomicLong(0L);
+      startNanos = System.nanoTime();
+    }
+
+
+
+    /**
+     * Leases a block of {@code leaseSize} consecutive permits.
+     *
+     * @param  burstSize  The maximum number of permits that may be released
+     *                    immediately after falling behind schedule.
+     *
+     * @return  The index of the first permit in the block.
+     */
+    private long leasePermits(final int burstSize)
+    {
+      final long currentPermit =
+           (long) ((System.nanoTime() - startNanos) / nanosPerPermit);
+      final long earliestPermit = currentPermit - burstSize + 1L;
+
+      while (true)
+      {
+        final long next = nextPermit.get();
+        final long first = Math.max(next, earliestPermit);
+        if (nextPermit.compareAndSet(next, (first + leaseSize)))
+        {
+          return first;
+        }
+      }
+    }
+
+
+
+    /**
+     * Retrieves the time that the specified permit is to be released.
+     *
+     * @param  permit  The index of the permit.
+     *
+     * @return  The time that the specified permit is to be released, in terms
+     *          of System.nanoTime().
+     */
+    private long getReleaseNanos(final long permit)
+    {
+      return startNanos + (long) (permit * nanosPerPermit);
+    }
+  }
+
+
+
+  /**
+   * This class holds the block of permits leased by a single thread.  It is
+   * only accessed by that thread.
+   */
+  private static final class Lease
+  {
+    // The schedule from which the permits were leased.
+    private Schedule schedule;
+
+    // The index of the next leased permit to be used.
+    private long nextPermit;
+
+    // The index just past the last leased permit.
+    private long endPermit;
+  }
+}
@@ -35,10 +35,14 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.SSLServerSocketFactory;
@@ -144,6 +148,50 @@ public final class SSLUtil
 
 
 
+  /**
+   * The name of the system property that can be used to indicate whether SSL
+   * contexts should be cached and shared by {@code SSLUtil} instances that use
+   * the same key managers, trust managers, protocol, and provider.  If this is
+   * not set, then SSL contexts will not be cached.  This can be overridden via
+   * the {@link #setCacheSSLContexts(boolean)} method.
+   */
+  public static final String PROPERTY_CACHE_SSL_CONTEXTS =
+       "com.unboundid.util.SSLUtil.cacheSSLContexts";
+
+
+
+  /**
+   * The name of the system property that can be used to specify the maximum
+   * number of sessions to hold in the client session cache for SSL contexts
+   * created by this class.  If this is not set, then the JVM-default size will
+   * be used.  This can be overridden via the
+   * {@link #setClientSessionCacheSize(int)} method.
+   */
+  public static final String PROPERTY_CLIENT_SESSION_CACHE_SIZE =
+       "com.unboundid.util.SSLUtil.clientSessionCacheSize";
+
+
+
+  /**
+   * The name of the system property that can be used to specify the length of
+   * time in seconds that sessions may be held in the client session cache for
+   * SSL contexts created by this class.  If this is not set, then the
+   * JVM-default timeout will be used.  This can be overridden via the
+   * {@link #setClientSessionTimeoutSeconds(int)} method.
+   */
+  public static final String PROPERTY_CLIENT_SESSION_TIMEOUT_SECONDS =
+       "com.unboundid.util.SSLUtil.clientSessionTimeoutSeconds";
+
+
+
+  /**
+   * The maximum number of SSL contexts that will be held in the cache.  If
+   * this is exceeded, then the cache will be cleared.
+   */
+  private static final int MAX_CACHED_SSL_CONTEXTS = 100;
+
+
+
   /**
    * The default protocol string that will be used to create SSL contexts when
    * no explicit protocol is specified.
@@ -162,6 +210,43 @@ public final class SSLUtil
 
 
 
+  /**
+   * Indicates whether SSL contexts should be cached and shared by instances
+   * with the same key managers, trust managers, protocol, and provider.
+   */
+  private static final AtomicBoolean CACHE_SSL_CONTEXTS =
+       new AtomicBoolean(false);
+
+
+
+  /**
+   * The maximum number of sessions to hold in the client session cache for SSL
+   * contexts created by this class, or -1 to use the JVM default.
+   */
+  private static final AtomicInteger CLIENT_SESSION_CACHE_SIZE =
+       new AtomicInteger(-1);
+
+
+
+  /**
+   * The length of time in seconds that sessions may be held in the client
+   * session cache for SSL contexts created by this class, or -1 to use the JVM
+   * default.
+   */
+  private static final AtomicInteger CLIENT_SESSION_TIMEOUT_SECONDS =
+       new AtomicInteger(-1);
+
+
+
+  /**
+   * The cache of SSL contexts that have been created, if caching is enabled.
+   */
+  private static final ConcurrentHashMap<SSLContextCacheKey,SSLContext>
+       SSL_CONTEXT_CACHE =
+            new ConcurrentHashMap<SSLContextCacheKey,SSLContext>();
+
+
+
   static
   {
     configureSSLDefaults();
@@ -369,7 +454,10 @@ public final class SSLUtil
 
   /**
    * Creates an initialized SSL context created with the configured key and
-   * trust managers.  It will use the default provider.
+   * trust managers.  It will use the default provider.  If SSL context caching
+   * is enabled (as per the {@link #cacheSSLContexts} method), then this may
+   * return a context that was previously created for the same protocol and the
+   * same key and trust manager instances.
    *
    * @param  protocol  The protocol to use.  As per the Java SE 6 Cryptography
    *                   Architecture document, the set of supported protocols
@@ -386,16 +474,17 @@ public final class SSLUtil
   {
     ensureNotNull(protocol);
 
-    final SSLContext sslContext = SSLContext.getInstance(protocol);
-    sslContext.init(keyManagers, trustManagers, null);
-    return sslContext;
+    return getSSLContext(protocol, null);
   }
 
 
 
   /**
    * Creates an initialized SSL context created with the configured key and
-   * trust managers.
+   * trust managers.  If SSL context caching is enabled (as per the
+   * {@link #cacheSSLContexts} method), then this may return a context that was
+   * previously created for the same protocol and provider and the same key and
+   * trust manager instances.
    *
    * @param  protocol  The protocol to use.  As per the Java SE 6 Cryptography
    *                   Architecture document, the set of supported protocols
@@ -415,8 +504,110 @@ public final class SSLUtil
   {
     ensureNotNull(protocol, provider);
 
-    final SSLContext sslContext = SSLContext.getInstance(protocol, provider);
+    return getSSLContext(protocol, provider);
+  }
+
+
+
+  /**
+   * Retrieves an initialized SSL context with the configured key and trust
+   * managers, either from the cache (if caching is enabled and an appropriate
+   * context is available) or by creating a new one.
+   *
+   * @param  protocol  The protocol to use.  It must not be {@code null}.
+   * @param  provider  The name of the provider to use for cryptographic
+   *                   operations.  It may be {@code null} if the default
+   *                   provider should be used.
+   *
+   * @return  The SSL context.
+   *
+   * @throws  GeneralSecurityException  If a problem occurs while creating or
+   *                                    initializing the SSL context.
+   */
+  private SSLContext getSSLContext(final String protocol,
+                                   final String provider)
+          throws GeneralSecurityException
+  {
+    if (! CACHE_SSL_CONTEXTS.get())
+    {
+      return newSSLContext(protocol, provider);
+    }
+
+    final SSLContextCacheKey key =
+         new SSLContextCacheKey(protocol, provider, keyManagers, trustManagers);
+    final SSLContext cachedContext = SSL_CONTEXT_CACHE.get(key);
+    if (cachedContext != null)
+    {
+      return cachedContext;
+    }
+
+    final SSLContext sslContext = newSSLContext(protocol, provider);
+    if (SSL_CONTEXT_CACHE.size() >= MAX_CACHED_SSL_CONTEXTS)
+    {
+      SSL_CONTEXT_CACHE.clear();
+    }
+
+    final SSLContext existingContext =
+         SSL_CONTEXT_CACHE.putIfAbsent(key, sslContext);
+    if (existingContext == null)
+    {
+      return sslContext;
+    }
+    else
+    {
+      return existingContext;
+    }
+  }
+
+
+
+  /**
+   * Creates a new initialized SSL context with the configured key and trust
+   * managers, and applies the configured client session cache settings to it.
+   *
+   * @param  protocol  The protocol to use.  It must not be {@code null}.
+   * @param  provider  The name of the provider to use for cryptographic
+   *                   operations.  It may be {@code null} if the default
+   *                   provider should be used.
+   *
+   * @return  The SSL context that was created.
+   *
+   * @throws  GeneralSecurityException  If a problem occurs while creating or
+   *                                    initializing the SSL context.
+   */
+  private SSLContext newSSLContext(final String protocol,
+                                   final String provider)
+          throws GeneralSecurityException
+  {
+    final SSLContext sslContext;
+    if (provider == null)
+    {
+      sslContext = SSLContext.getInstance(protocol);
+    }
+    else
+    {
+      sslContext = SSLContext.getInstance(protocol, provider);
+    }
+
     sslContext.init(keyManagers, trustManagers, null);
+
+    final SSLSessionContext sessionContext =
+         sslContext.getClientSessionContext();
+    if (sessionContext != null)
+    {
+      final int cacheSize = CLIENT_SESSION_CACHE_SIZE.get();
+      if (cacheSize >= 0)
+      {
+        sessionContext.setSessionCacheSize(cacheSize);
+      }
+
+      final int timeoutSeconds = CLIENT_SESSION_TIMEOUT_SECONDS.get();
+      if (timeoutSeconds >= 0)
+      {
+        sessionContext.setSessionTimeout(timeoutSeconds);
+      }
+    }
+
     return sslContext;
   }
 
@@ -642,6 +833,127 @@ public final class SSLUtil
 
 
 
+  /**
+   * Indicates whether SSL contexts should be cached and shared by
+   * {@code SSLUtil} instances that use the same key manager and trust manager
+   * instances, protocol, and provider.  Sharing an SSL context avoids the cost
+   * of creating and initializing a new context, and also allows connections
+   * created with different socket factories to resume TLS sessions from the
+   * same client session cache.
+   *
+   * @return  {@code true} if SSL contexts should be cached, or {@code false}
+   *          if a new SSL context should be created for each call.
+   */
+  public static boolean cacheSSLContexts()
+  {
+    return CACHE_SSL_CONTEXTS.get();
+  }
+
+
+
+  /**
+   * Specifies whether SSL contexts should be cached and shared by
+   * {@code SSLUtil} instances that use the same key manager and trust manager
+   * instances, protocol, and provider.  Disabling caching will also clear any
+   * contexts that have already been cached.
+   *
+   * @param  cacheSSLContexts  Indicates whether SSL contexts should be cached.
+   */
+  public static void setCacheSSLContexts(final boolean cacheSSLContexts)
+  {
+    CACHE_SSL_CONTEXTS.set(cacheSSLContexts);
+    if (! cacheSSLContexts)
+    {
+      SSL_CONTEXT_CACHE.clear();
+    }
+  }
+
+
+
+  /**
+   * Clears the cache of SSL contexts, so that subsequent calls will create new
+   * contexts.  This may be useful if the configured client session cache
+   * settings have been altered.
+   */
+  public static void clearSSLContextCache()
+  {
+    SSL_CONTEXT_CACHE.clear();
+  }
+
+
+
+  /**
+   * Retrieves the maximum number of sessions that will be held in the client
+   * session cache for SSL contexts created by this class.
+   *
+   * @return  The maximum number of sessions that will be held in the client
+   *          session cache for SSL contexts created by this class, zero if
+   *          there is no limit, or -1 if the JVM-default size will be used.
+   */
+  public static int getClientSessionCacheSize()
+  {
+    return CLIENT_SESSION_CACHE_SIZE.get();
+  }
+
+
+
+  /**
+   * Specifies the maximum number of sessions that will be held in the client
+   * session cache for SSL contexts created by this class.  This will only
+   * affect SSL contexts created after this method is called.
+   *
+   * @param  clientSessionCacheSize  The maximum number of sessions that will
+   *                                 be held in the client session cache.  A
+   *                                 value of zero indicates that there should
+   *                                 be no limit, and a negative value indicates
+   *                                 that the JVM-default size should be used.
+   */
+  public static void setClientSessionCacheSize(
+                          final int clientSessionCacheSize)
+  {
+    CLIENT_SESSION_CACHE_SIZE.set(Math.max(-1, clientSessionCacheSize));
+  }
+
+
+
+  /**
+   * Retrieves the length of time in seconds that sessions may be held in the
+   * client session cache for SSL contexts created by this class.
+   *
+   * @return  The length of time in seconds that sessions may be held in the
+   *          client session cache for SSL contexts created by this class, zero
+   *          if there is no limit, or -1 if the JVM-default timeout will be
+   *          used.
+   */
+  public static int getClientSessionTimeoutSeconds()
+  {
+    return CLIENT_SESSION_TIMEOUT_SECONDS.get();
+  }
+
+
+
+  /**
+   * Specifies the length of time in seconds that sessions may be held in the
+   * client session cache for SSL contexts created by this class.  This will
+   * only affect SSL contexts created after this method is called.
+   *
+   * @param  clientSessionTimeoutSeconds  The length of time in seconds that
+   *                                      sessions may be held in the client
+   *                                      session cache.  A value of zero
+   *                                      indicates that there should be no
+   *                                      limit, and a negative value indicates
+   *                                      that the JVM-default timeout should
+   *                                      be used.
+   */
+  public static void setClientSessionTimeoutSeconds(
+                          final int clientSessionTimeoutSeconds)
+  {
+    CLIENT_SESSION_TIMEOUT_SECONDS.set(
+         Math.max(-1, clientSessionTimeoutSeconds));
+  }
+
+
+
   /**
    * Updates the provided socket to apply the appropriate set of enabled SSL
    * protocols.  This will only have any effect for sockets that are instances
@@ -920,6 +1232,45 @@ public final class SSLUtil
     }
 
     ENABLED_SSL_PROTOCOLS.set(Collections.unmodifiableSet(enabledProtocols));
+
+    // Configure SSL context caching and client session cache settings from
+    // system properties, if they are defined.
+    CACHE_SSL_CONTEXTS.set(Boolean.parseBoolean(
+         System.getProperty(PROPERTY_CACHE_SSL_CONTEXTS)));
+    CLIENT_SESSION_CACHE_SIZE.set(
+         getIntProperty(PROPERTY_CLIENT_SESSION_CACHE_SIZE));
+    CLIENT_SESSION_TIMEOUT_SECONDS.set(
+         getIntProperty(PROPERTY_CLIENT_SESSION_TIMEOUT_SECONDS));
+    SSL_CONTEXT_CACHE.clear();
+  }
+
+
+
+  /**
+   * Retrieves the non-negative integer value of the specified system property.
+   *
+   * @param  propertyName  The name of the system property to retrieve.
+   *
+   * @return  The non-negative integer value of the specified system property,
+   *          or -1 if the property is not set or does not have a valid value.
+   */
+  private static int getIntProperty(final String propertyName)
+  {
+    final String propertyValue = System.getProperty(propertyName);
+    if ((propertyValue == null) || (propertyValue.length() == 0))
+    {
+      return -1;
+    }
+
+    try
+    {
+      return Math.max(-1, Integer.parseInt(propertyValue.trim()));
+    }
+    catch (final Exception e)
+    {
+      Debug.debugException(e);
+      return -1;
+    }
   }
 
 
@@ -971,4 +1322,159 @@ public final class SSLUtil
          certificate.getIssuerX500Principal().getName(X500Principal.RFC2253));
     buffer.append("')");
   }
+
+
+  /**
+   * This class provides the key used to identify SSL contexts in the cache.
+   * Key and trust managers are compared by identity, since they are not
+   * generally expected to implement {@code equals}.
+   */
+  private static final class SSLContextCacheKey
+  {
+    // The hash code for this key.
+    private final int hashCode;
+
+    // The key managers for the SSL context.
+    private final KeyManager[] keyManagers;
+
+    // The protocol for the SSL context.
+    private final String protocol;
+
+    // The provider for the SSL context.
+    private final String provider;
+
+    // The trust managers for the SSL context.
+    private final TrustManager[] trustManagers;
+
+
+
+    /**
+     * Creates a new cache key with the provided information.
+     *
+     * @param  protocol       The protocol for the SSL context.
+     * @param  provider       The provider for the SSL context, if any.
+     * @param  keyManagers    The key managers for the SSL context, if any.
+     * @param  trustManagers  The trust managers for the SSL context, if any.
+     */
+    private SSLContextCacheKey(final String protocol, final String provider,
+                               final KeyManager[] keyManagers,
+                               final TrustManager[] trustManagers)
+    {
+      this.protocol = protocol;
+      this.provider = provider;
+      this.keyManagers = (keyManagers == null) ? null : keyManagers.clone();
+      this.trustManagers =
+           (trustManagers == null) ? null : trustManagers.clone();
+
+      int h = protocol.hashCode();
+      if (provider != null)
+      {
+        h = (31 * h) + provider.hashCode();
+      }
+
+      if (keyManagers != null)
+      {
+        for (final KeyManager m : keyManagers)
+        {
+          h = (31 * h) + System.identityHashCode(m);
+        }
+      }
+
+      if (trustManagers != null)
+      {
+        for (final TrustManager m : trustManagers)
+        {
+          h = (31 * h) + System.identityHashCode(m);
+        }
+      }
+
+      hashCode = h;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public int hashCode()
+    {
+      return hashCode;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public boolean equals(final Object o)
+    {
+      if (o == this)
+      {
+        return true;
+      }
+
+      if (! (o instanceof SSLContextCacheKey))
+      {
+        return false;
+      }
+
+      final SSLContextCacheKey k = (SSLContextCacheKey) o;
+      if ((hashCode != k.hashCode) || (! protocol.equals(k.protocol)))
+      {
+        return false;
+      }
+
+      if (provider == null)
+      {
+        if (k.provider != null)
+        {
+          return false;
+        }
+      }
+      else if (! provider.equals(k.provider))
+      {
+        return false;
+      }
+
+      return sameInstances(keyManagers, k.keyManagers) &&
+           sameInstances(trustManagers, k.trustManagers);
+    }
+
+
+
+    /**
+     * Indicates whether the provided arrays contain the same object instances
+     * in the same order.
+     *
+     * @param  a1  The first array to compare.  It may be {@code null}.
+     * @param  a2  The second array to compare.  It may be {@code null}.
+     *
+     * @return  {@code true} if the arrays contain the same object instances,
+     *          or {@code false} if not.
+     */
+    private static boolean sameInstances(final Object[] a1, final Object[] a2)
+    {
+      if ((a1 == null) || (a2 == null))
+      {
+        return (a1 == a2);
+      }
+
+      if (a1.length != a2.length)
+      {
+        return false;
+      }
+
+      for (int i=0; i < a1.length; i++)
+      {
+        if (a1[i] != a2[i])
+        {
+          return false;
+        }
+      }
+
+      return true;
+    }
+  }
 }
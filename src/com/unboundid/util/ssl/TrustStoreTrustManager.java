@@ -22,13 +22,19 @@ package com.unboundid.util.ssl;
 
 
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.InputStream;
 import java.io.Serializable;
 import java.security.KeyStore;
+import java.security.MessageDigest;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
@@ -38,6 +44,7 @@ import com.unboundid.util.ThreadSafety;
 import com.unboundid.util.ThreadSafetyLevel;
 
 import static com.unboundid.util.Debug.*;
+import static com.unboundid.util.StaticUtils.*;
 import static com.unboundid.util.Validator.*;
 import static com.unboundid.util.ssl.SSLMessages.*;
 
@@ -49,6 +56,17 @@ import static com.unboundid.util.ssl.SSLMessages.*;
  * it.  By default, it will use the default trust store format for the JVM
  * (e.g., "JKS" for Sun-provided Java implementations), but alternate formats
  * like PKCS12 may be used.
+ * <BR><BR>
+ * By default, the trust store file will be read each time a certificate chain
+ * is presented.  Alternately, the trust manager may be configured to cache the
+ * contents of the trust store, in which case the file will only be read again
+ * if its modification time or size changes (and the cached information will
+ * only be discarded if the contents of the file have actually changed).  When
+ * caching is enabled, the trust manager will also remember a limited number of
+ * certificate chains that have recently been trusted, so that they do not need
+ * to be validated again until the trust store changes or one of the
+ * certificates in the chain expires, and it will allow multiple chains to be
+ * examined concurrently.
  */
 @NotMutable()
 @ThreadSafety(level=ThreadSafetyLevel.COMPLETELY_THREADSAFE)
@@ -62,6 +80,17 @@ public final class TrustStoreTrustManager
 
 
 
+  /**
+   * The maximum number of trusted certificate chains to cache.
+   */
+  private static final int MAX_CACHED_CHAINS = 1000;
+
+
+
+  // Indicates whether to cache the contents of the trust store rather than
+  // reading the file for each certificate chain to examine.
+  private final boolean cacheTrustStore;
+
   // Indicates whether to automatically trust expired or not-yet-valid
   // certificates.
   private final boolean examineValidityDates;
@@ -75,6 +104,10 @@ public final class TrustStoreTrustManager
   // The format to use for the trust store file.
   private final String trustStoreFormat;
 
+  // The cached trust store information, if the trust store should be cached
+  // and it has been read.
+  private transient volatile CachedTrustStore cachedTrustStore;
+
 
 
   /**
@@ -131,7 +164,40 @@ public final class TrustStoreTrustManager
                                 final boolean examineValidityDates)
   {
     this(trustStoreFile.getAbsolutePath(), trustStorePIN, trustStoreFormat,
-         examineValidityDates);
+         examineValidityDates, false);
+  }
+
+
+
+  /**
+   * Creates a new instance of this trust store trust manager that will trust
+   * all certificates in the specified file with the specified constraints.
+   *
+   * @param  trustStoreFile        The path to the trust store file to use.  It
+   *                               must not be {@code null}.
+   * @param  trustStorePIN         The PIN to use to access the contents of the
+   *                               trust store.  It may be {@code null} if no
+   *                               PIN is required.
+   * @param  trustStoreFormat      The format to use for the trust store.  It
+   *                               may be {@code null} if the default format
+   *                               should be used.
+   * @param  examineValidityDates  Indicates whether to reject certificates if
+   *                               the current time is outside the validity
+   *                               window for the certificate.
+   * @param  cacheTrustStore       Indicates whether to cache the contents of
+   *                               the trust store and recently-trusted
+   *                               certificate chains, rather than reading the
+   *                               trust store file for each certificate chain
+   *                               to examine.
+   */
+  public TrustStoreTrustManager(final File trustStoreFile,
+                                final char[] trustStorePIN,
+                                final String trustStoreFormat,
+                                final boolean examineValidityDates,
+                                final boolean cacheTrustStore)
+  {
+    this(trustStoreFile.getAbsolutePath(), trustStorePIN, trustStoreFormat,
+         examineValidityDates, cacheTrustStore);
   }
 
 
@@ -156,12 +222,48 @@ public final class TrustStoreTrustManager
                                 final char[] trustStorePIN,
                                 final String trustStoreFormat,
                                 final boolean examineValidityDates)
+  {
+    this(trustStoreFile, trustStorePIN, trustStoreFormat, examineValidityDates,
+         false);
+  }
+
+
+
+  /**
+   * Creates a new instance of this trust store trust manager that will trust
+   * all certificates in the specified file with the specified constraints.
+   *
+   * @param  trustStoreFile        The path to the trust store file to use.  It
+   *                               must not be {@code null}.
+   * @param  trustStorePIN         The PIN to use to access the contents of the
+   *                               trust store.  It may be {@code null} if no
+   *                               PIN is required.
+   * @param  trustStoreFormat      The format to use for the trust store.  It
+   *                               may be {@code null} if the default format
+   *                               should be used.
+   * @param  examineValidityDates  Indicates whether to reject certificates if
+   *                               the current time is outside the validity
+   *                               window for the certificate.
+   * @param  cacheTrustStore       Indicates whether to cache the contents of
+   *                               the trust store and recently-trusted
+   *                               certificate chains, rather than reading the
+   *                               trust store file for each certificate chain
+   *                               to examine.
+   */
+  public TrustStoreTrustManager(final String trustStoreFile,
+                                final char[] trustStorePIN,
+                                final String trustStoreFormat,
+                                final boolean examineValidityDates,
+                                final boolean cacheTrustStore)
   {
     ensureNotNull(trustStoreFile);
 
     this.trustStoreFile       = trustStoreFile;
     this.trustStorePIN        = trustStorePIN;
     this.examineValidityDates = examineValidityDates;
+    this.cacheTrustStore      = cacheTrustStore;
+
+    cachedTrustStore = null;
 
     if (trustStoreFormat == null)
     {
@@ -215,6 +317,22 @@ public final class TrustStoreTrustManager
 
 
 
+  /**
+   * Indicates whether the contents of the trust store and recently-trusted
+   * certificate chains will be cached, rather than reading the trust store
+   * file for each certificate chain to examine.
+   *
+   * @return  {@code true} if the contents of the trust store will be cached, or
+   *          {@code false} if the trust store file will be read for each
+   *          certificate chain to examine.
+   */
+  public boolean cacheTrustStore()
+  {
+    return cacheTrustStore;
+  }
+
+
+
   /**
    * Retrieves a set of trust managers that may be used to determine whether the
    * provided certificate chain should be trusted.  It will also check the
@@ -234,11 +352,7 @@ public final class TrustStoreTrustManager
   {
     if (examineValidityDates)
     {
-      final Date d = new Date();
-      for (final X509Certificate c : chain)
-      {
-        c.checkValidity(d);
-      }
+      checkValidityDates(chain);
     }
 
     final File f = new File(trustStoreFile);
@@ -248,24 +362,16 @@ public final class TrustStoreTrustManager
            ERR_TRUSTSTORE_NO_SUCH_FILE.get(trustStoreFile));
     }
 
-    final KeyStore ks;
-    try
-    {
-      ks = KeyStore.getInstance(trustStoreFormat);
-    }
-    catch (final Exception e)
-    {
-      debugException(e);
-
-      throw new CertificateException(
-           ERR_TRUSTSTORE_UNSUPPORTED_FORMAT.get(trustStoreFormat), e);
-    }
-
     FileInputStream inputStream = null;
     try
     {
       inputStream = new FileInputStream(f);
-      ks.load(inputStream, trustStorePIN);
+      return createTrustManagers(inputStream);
+    }
+    catch (final CertificateException ce)
+    {
+      debugException(ce);
+      throw ce;
     }
     catch (final Exception e)
     {
@@ -290,6 +396,71 @@ public final class TrustStoreTrustManager
         }
       }
     }
+  }
+
+
+
+  /**
+   * Ensures that the current time is within the validity window for all of the
+   * certificates in the provided chain.
+   *
+   * @param  chain  The certificate chain to examine.
+   *
+   * @throws  CertificateException  If any of the certificates is expired or not
+   *                                yet valid.
+   */
+  private static void checkValidityDates(final X509Certificate[] chain)
+          throws CertificateException
+  {
+    final Date d = new Date();
+    for (final X509Certificate c : chain)
+    {
+      c.checkValidity(d);
+    }
+  }
+
+
+
+  /**
+   * Reads a trust store from the provided input stream and creates a set of
+   * trust managers that will use it.
+   *
+   * @param  inputStream  The input stream from which to read the trust store.
+   *
+   * @return  The set of trust managers that were created.
+   *
+   * @throws  CertificateException  If a problem occurs while reading the trust
+   *                                store or creating the trust managers.
+   */
+  private X509TrustManager[] createTrustManagers(final InputStream inputStream)
+          throws CertificateException
+  {
+    final KeyStore ks;
+    try
+    {
+      ks = KeyStore.getInstance(trustStoreFormat);
+    }
+    catch (final Exception e)
+    {
+      debugException(e);
+
+      throw new CertificateException(
+           ERR_TRUSTSTORE_UNSUPPORTED_FORMAT.get(trustStoreFormat), e);
+    }
+
+    try
+    {
+      ks.load(inputStream, trustStorePIN);
+    }
+    catch (final Exception e)
+    {
+      debugException(e);
+
+      throw new CertificateException(
+           ERR_TRUSTSTORE_CANNOT_LOAD.get(trustStoreFile, trustStoreFormat,
+                                          String.valueOf(e)),
+           e);
+    }
 
     try
     {
@@ -318,6 +489,253 @@ public final class TrustStoreTrustManager
 
 
 
+  /**
+   * Retrieves the cached trust store information, reading the trust store file
+   * if it has not yet been read or if its modification time or size has
+   * changed since it was last read.
+   *
+   * @return  The cached trust store information.
+   *
+   * @throws  CertificateException  If a problem occurs while reading the trust
+   *                                store.
+   */
+  private CachedTrustStore getCachedTrustStore()
+          throws CertificateException
+  {
+    final File f = new File(trustStoreFile);
+    final long lastModified = f.lastModified();
+    final long length = f.length();
+
+    CachedTrustStore ts = cachedTrustStore;
+    if ((ts != null) && (ts.lastModified == lastModified) &&
+        (ts.length == length))
+    {
+      return ts;
+    }
+
+    synchronized (this)
+    {
+      ts = cachedTrustStore;
+      if ((ts != null) && (ts.lastModified == lastModified) &&
+          (ts.length == length))
+      {
+        return ts;
+      }
+
+      if (! f.exists())
+      {
+        throw new CertificateException(
+             ERR_TRUSTSTORE_NO_SUCH_FILE.get(trustStoreFile));
+      }
+
+      final byte[] trustStoreBytes;
+      final byte[] digest;
+      try
+      {
+        trustStoreBytes = readFile(f);
+        digest = MessageDigest.getInstance("SHA-256").digest(trustStoreBytes);
+      }
+      catch (final Exception e)
+      {
+        debugException(e);
+
+        throw new CertificateException(
+             ERR_TRUSTSTORE_CANNOT_LOAD.get(trustStoreFile, trustStoreFormat,
+                                            String.valueOf(e)),
+             e);
+      }
+
+      // If only the modification time has changed, then keep using the
+      // existing trust managers and trusted chains.
+      if ((ts != null) && Arrays.equals(ts.digest, digest))
+      {
+        ts = new CachedTrustStore(lastModified, length, digest,
+             ts.trustManagers, ts.trustedChains);
+      }
+      else
+      {
+        ts = new CachedTrustStore(lastModified, length, digest,
+             createTrustManagers(new ByteArrayInputStream(trustStoreBytes)),
+             new ConcurrentHashMap<String,Long>(100));
+      }
+
+      cachedTrustStore = ts;
+      return ts;
+    }
+  }
+
+
+
+  /**
+   * Reads the entire contents of the specified file.
+   *
+   * @param  f  The file to read.
+   *
+   * @return  The contents of the file.
+   *
+   * @throws  Exception  If a problem occurs while reading the file.
+   */
+  private static byte[] readFile(final File f)
+          throws Exception
+  {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    final FileInputStream inputStream = new FileInputStream(f);
+    try
+    {
+      final byte[] buffer = new byte[8192];
+      while (true)
+      {
+        final int bytesRead = inputStream.read(buffer);
+        if (bytesRead < 0)
+        {
+          return outputStream.toByteArray();
+        }
+
+        outputStream.write(buffer, 0, bytesRead);
+      }
+    }
+    finally
+    {
+      inputStream.close();
+    }
+  }
+
+
+
+  /**
+   * Determines whether the provided certificate chain should be trusted.
+   *
+   * @param  chain     The certificate chain for which to make the
+   *                   determination.
+   * @param  authType  The authentication type or key exchange algorithm.
+   * @param  isClient  Indicates whether the chain was presented by a client
+   *                   rather than a server.
+   *
+   * @throws  CertificateException  If the provided certificate chain should not
+   *                                be trusted.
+   */
+  private void checkTrusted(final X509Certificate[] chain,
+                            final String authType, final boolean isClient)
+          throws CertificateException
+  {
+    if (! cacheTrustStore)
+    {
+      for (final X509TrustManager m : getTrustManagers(chain))
+      {
+        if (isClient)
+        {
+          m.checkClientTrusted(chain, authType);
+        }
+        else
+        {
+          m.checkServerTrusted(chain, authType);
+        }
+      }
+      return;
+    }
+
+
+    // See if the chain has already been trusted.  A cached chain will only be
+    // used until the first of its certificates expires.
+    final CachedTrustStore ts = getCachedTrustStore();
+    final String key = getChainKey(chain, authType, isClient);
+    if (key != null)
+    {
+      final Long expirationTime = ts.trustedChains.get(key);
+      if (expirationTime != null)
+      {
+        if (System.currentTimeMillis() < expirationTime)
+        {
+          return;
+        }
+
+        ts.trustedChains.remove(key);
+      }
+    }
+
+    if (examineValidityDates)
+    {
+      checkValidityDates(chain);
+    }
+
+    for (final X509TrustManager m : ts.trustManagers)
+    {
+      if (isClient)
+      {
+        m.checkClientTrusted(chain, authType);
+      }
+      else
+      {
+        m.checkServerTrusted(chain, authType);
+      }
+    }
+
+    if (key != null)
+    {
+      long expirationTime = Long.MAX_VALUE;
+      for (final X509Certificate c : chain)
+      {
+        expirationTime = Math.min(expirationTime, c.getNotAfter().getTime());
+      }
+
+      if (ts.trustedChains.size() >= MAX_CACHED_CHAINS)
+      {
+        ts.trustedChains.clear();
+      }
+
+      ts.trustedChains.put(key, expirationTime);
+    }
+  }
+
+
+
+  /**
+   * Retrieves a key that may be used to identify the provided certificate chain
+   * in the cache of trusted chains.  It will be based on a SHA-256 fingerprint
+   * of the certificates in the chain.
+   *
+   * @param  chain     The certificate chain for which to obtain the key.
+   * @param  authType  The authentication type or key exchange algorithm.
+   * @param  isClient  Indicates whether the chain was presented by a client
+   *                   rather than a server.
+   *
+   * @return  The key for the provided chain, or {@code null} if it cannot be
+   *          determined.
+   */
+  private static String getChainKey(final X509Certificate[] chain,
+                                    final String authType,
+                                    final boolean isClient)
+  {
+    if ((chain == null) || (chain.length == 0))
+    {
+      return null;
+    }
+
+    try
+    {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      for (final X509Certificate c : chain)
+      {
+        digest.update(c.getEncoded());
+      }
+
+      final StringBuilder buffer = new StringBuilder(80);
+      buffer.append(isClient ? 'c' : 's');
+      buffer.append(':');
+      buffer.append(authType);
+      buffer.append(':');
+      toHex(digest.digest(), buffer);
+      return buffer.toString();
+    }
+    catch (final Exception e)
+    {
+      debugException(e);
+      return null;
+    }
+  }
+
+
+
   /**
    * Checks to determine whether the provided client certificate chain should be
    * trusted.
@@ -329,14 +747,11 @@ public final class TrustStoreTrustManager
    * @throws  CertificateException  If the provided client certificate chain
    *                                should not be trusted.
    */
-  public synchronized void checkClientTrusted(final X509Certificate[] chain,
-                                final String authType)
+  public void checkClientTrusted(final X509Certificate[] chain,
+                                 final String authType)
          throws CertificateException
   {
-    for (final X509TrustManager m : getTrustManagers(chain))
-    {
-      m.checkClientTrusted(chain, authType);
-    }
+    checkTrusted(chain, authType, true);
   }
 
 
@@ -352,14 +767,11 @@ public final class TrustStoreTrustManager
    * @throws  CertificateException  If the provided server certificate chain
    *                                should not be trusted.
    */
-  public synchronized void checkServerTrusted(final X509Certificate[] chain,
-                                final String authType)
+  public void checkServerTrusted(final X509Certificate[] chain,
+                                 final String authType)
          throws CertificateException
   {
-    for (final X509TrustManager m : getTrustManagers(chain))
-    {
-      m.checkServerTrusted(chain, authType);
-    }
+    checkTrusted(chain, authType, false);
   }
 
 
@@ -374,4 +786,52 @@ public final class TrustStoreTrustManager
   {
     return new X509Certificate[0];
   }
+
+
+
+  /**
+   * This class holds information read from the trust store file when caching
+   * is enabled.
+   */
+  private static final class CachedTrustStore
+  {
+    // A SHA-256 digest of the contents of the trust store file.
+    private final byte[] digest;
+
+    // The trusted certificate chains, mapped from the key for each chain to
+    // the time that the first certificate in that chain expires.
+    private final ConcurrentHashMap<String,Long> trustedChains;
+
+    // The modification time of the trust store file when it was read.
+    private final long lastModified;
+
+    // The size of the trust store file when it was read.
+    private final long length;
+
+    // The trust managers created from the trust store.
+    private final X509TrustManager[] trustManagers;
+
+
+
+    /**
+     * Creates a new cached trust store with the provided information.
+     *
+     * @param  lastModified   The modification time of the trust store file.
+     * @param  length         The size of the trust store file.
+     * @param  digest         A SHA-256 digest of the contents of the trust
+     *                        store file.
+     * @param  trustManagers  The trust managers created from the trust store.
+     * @param  trustedChains  The trusted certificate chains.
+     */
+    private CachedTrustStore(final long lastModified, final long length,
+                 final byte[] digest, final X509TrustManager[] trustManagers,
+                 final ConcurrentHashMap<String,Long> trustedChains)
+    {
+      this.lastModified  = lastModified;
+      this.length        = length;
+      this.digest        = digest;
+      this.trustManagers = trustManagers;
+      this.trustedChains = trustedChains;
+    }
+  }
 }
@@ -29,6 +29,7 @@ import java.util.List;
 
 import org.testng.annotations.Test;
 
+import com.unboundid.asn1.ASN1Integer;
 import com.unboundid.asn1.ASN1OctetString;
 import com.unboundid.ldap.sdk.AddRequest;
 import com.unboundid.ldap.sdk.Attribute;
@@ -2267,6 +2268,129 @@ public final class InMemoryDirectoryControlsTestCase
 
 
 
+  /**
+   * Tests to ensure that subsequent pages of a simple paged results search are
+   * retrieved from the cursor created for the first page, so that changes made
+   * to the data after the first page has been returned will not affect the
+   * results.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSimplePagedResultsCursor()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, true);
+
+    final LDAPConnection conn = ds.getConnection();
+
+    for (int i=0; i < 50; i++)
+    {
+      conn.add(generateUserEntry("paged." + i, "ou=People,dc=example,dc=com",
+           "Test", String.valueOf(i), "password"));
+    }
+
+    final SearchRequest searchRequest = new SearchRequest("dc=example,dc=com",
+         SearchScope.SUB, "(uid=paged.*)");
+    searchRequest.addControl(new SimplePagedResultsControl(10, true));
+
+    SearchResult searchResult = conn.search(searchRequest);
+    assertEquals(searchResult.getEntryCount(), 10);
+
+    final HashSet<DN> returnedEntries = new HashSet<DN>(50);
+    for (final SearchResultEntry e : searchResult.getSearchEntries())
+    {
+      returnedEntries.add(e.getParsedDN());
+    }
+
+    final ASN1OctetString firstCookie =
+         SimplePagedResultsControl.get(searchResult).getCookie();
+    assertTrue(firstCookie.getValueLength() > 0);
+
+
+    // Add and remove matching entries.  This should not affect the remaining
+    // pages, which will come from the cursor.
+    conn.add(generateUserEntry("paged.new", "ou=People,dc=example,dc=com",
+         "Test", "new", "password"));
+    DN deletedDN = null;
+    for (int i=0; i < 50; i++)
+    {
+      final DN dn = new DN("uid=paged." + i + ",ou=People,dc=example,dc=com");
+      if (! returnedEntries.contains(dn))
+      {
+        conn.delete(dn.toString());
+        deletedDN = dn;
+        break;
+      }
+    }
+    assertNotNull(deletedDN);
+
+    ASN1OctetString cookie = firstCookie;
+    while (cookie.getValueLength() > 0)
+    {
+      searchRequest.setControls(new SimplePagedResultsControl(10, cookie,
+           true));
+      searchResult = conn.search(searchRequest);
+      assertEquals(searchResult.getResultCode(), ResultCode.SUCCESS);
+
+      for (final SearchResultEntry e : searchResult.getSearchEntries())
+      {
+        assertTrue(returnedEntries.add(e.getParsedDN()));
+      }
+
+      final SimplePagedResultsControl responseControl =
+           SimplePagedResultsControl.get(searchResult);
+      assertEquals(responseControl.getSize(), 50);
+      cookie = responseControl.getCookie();
+    }
+
+    assertEquals(returnedEntries.size(), 50);
+    assertTrue(returnedEntries.contains(deletedDN));
+    assertFalse(returnedEntries.contains(
+         new DN("uid=paged.new,ou=People,dc=example,dc=com")));
+
+
+    // The cursor should have been discarded after the last page, so reusing
+    // the first cookie will search again, starting at the same offset.
+    searchRequest.setControls(new SimplePagedResultsControl(100, firstCookie,
+         true));
+    searchResult = conn.search(searchRequest);
+    assertEquals(searchResult.getResultCode(), ResultCode.SUCCESS);
+    assertEquals(searchResult.getEntryCount(), 40);
+    assertEquals(SimplePagedResultsControl.get(searchResult).getSize(), 50);
+
+
+    // A cookie that is just an encoded integer offset should also work.
+    searchRequest.setControls(new SimplePagedResultsControl(100,
+         new ASN1OctetString(new ASN1Integer(45).encode()), true));
+    searchResult = conn.search(searchRequest);
+    assertEquals(searchResult.getResultCode(), ResultCode.SUCCESS);
+    assertEquals(searchResult.getEntryCount(), 5);
+
+
+    // A cookie for a cursor created for a different search should not use that
+    // cursor.
+    searchRequest.setControls(new SimplePagedResultsControl(1, true));
+    searchResult = conn.search(searchRequest);
+    cookie = SimplePagedResultsControl.get(searchResult).getCookie();
+
+    final SearchRequest otherRequest = new SearchRequest("dc=example,dc=com",
+         SearchScope.SUB, "(uid=paged.1*)");
+    otherRequest.setControls(new SimplePagedResultsControl(100, cookie, true));
+    searchResult = conn.search(otherRequest);
+    assertEquals(searchResult.getResultCode(), ResultCode.SUCCESS);
+    assertEquals(searchResult.getEntryCount(), 10);
+    for (final SearchResultEntry e : searchResult.getSearchEntries())
+    {
+      assertTrue(e.getAttributeValue("uid").startsWith("paged.1"));
+    }
+
+    conn.close();
+  }
+
+
+
+
   /**
    * Provides test coverage for the subentries request control.
    *
@@ -2603,7 +2727,7 @@ public final class InMemoryDirectoryControlsTestCase
     assertEquals(vlvResponse.getResultCode(), ResultCode.SUCCESS);
     assertEquals(vlvResponse.getContentCount(), 100);
     assertEquals(vlvResponse.getTargetPosition(), 1);
-    assertNull(vlvResponse.getContextID());
+    assertNotNull(vlvResponse.getContextID());
 
 
     // Use VLV to retrieve entries from the beginning of the list, with the
@@ -2638,7 +2762,7 @@ public final class InMemoryDirectoryControlsTestCase
     assertEquals(vlvResponse.getResultCode(), ResultCode.SUCCESS);
     assertEquals(vlvResponse.getContentCount(), 100);
     assertEquals(vlvResponse.getTargetPosition(), 3);
-    assertNull(vlvResponse.getContextID());
+    assertNotNull(vlvResponse.getContextID());
 
 
     // Use VLV to retrieve entries from near the end of the list, with the after
@@ -2675,7 +2799,7 @@ public final class InMemoryDirectoryControlsTestCase
     assertEquals(vlvResponse.getResultCode(), ResultCode.SUCCESS);
     assertEquals(vlvResponse.getContentCount(), 100);
     assertEquals(vlvResponse.getTargetPosition(), 95);
-    assertNull(vlvResponse.getContextID());
+    assertNotNull(vlvResponse.getContextID());
 
 
     // Use VLV with an offset beyond the end of the list and no before count.
@@ -2695,7 +2819,7 @@ public final class InMemoryDirectoryControlsTestCase
     assertEquals(vlvResponse.getResultCode(), ResultCode.SUCCESS);
     assertEquals(vlvResponse.getContentCount(), 100);
     assertEquals(vlvResponse.getTargetPosition(), 101);
-    assertNull(vlvResponse.getContextID());
+    assertNotNull(vlvResponse.getContextID());
 
 
     // Use VLV with an assertion value in the middle of the list and the entire
@@ -2736,7 +2860,7 @@ public final class InMemoryDirectoryControlsTestCase
     assertEquals(vlvResponse.getResultCode(), ResultCode.SUCCESS);
     assertEquals(vlvResponse.getContentCount(), 100);
     assertEquals(vlvResponse.getTargetPosition(), 46);
-    assertNull(vlvResponse.getContextID());
+    assertNotNull(vlvResponse.getContextID());
 
 
     // Use VLV with an assertion value in the middle of the list and the before
@@ -2771,7 +2895,7 @@ public final class InMemoryDirectoryControlsTestCase
     assertEquals(vlvResponse.getResultCode(), ResultCode.SUCCESS);
     assertEquals(vlvResponse.getContentCount(), 100);
     assertEquals(vlvResponse.getTargetPosition(), 4);
-    assertNull(vlvResponse.getContextID());
+    assertNotNull(vlvResponse.getContextID());
 
 
     // Use VLV with an assertion value before the beginning of the list.
@@ -2803,7 +2927,7 @@ public final class InMemoryDirectoryControlsTestCase
     assertEquals(vlvResponse.getResultCode(), ResultCode.SUCCESS);
     assertEquals(vlvResponse.getContentCount(), 100);
     assertEquals(vlvResponse.getTargetPosition(), 1);
-    assertNull(vlvResponse.getContextID());
+    assertNotNull(vlvResponse.getContextID());
 
 
     // Use VLV with an assertion value beyond the end of the list.
@@ -2823,8 +2947,100 @@ public final class InMemoryDirectoryControlsTestCase
     assertEquals(vlvResponse.getResultCode(), ResultCode.SUCCESS);
     assertEquals(vlvResponse.getContentCount(), 100);
     assertEquals(vlvResponse.getTargetPosition(), 101);
-    assertNull(vlvResponse.getContextID());
+    assertNotNull(vlvResponse.getContextID());
+
+
+    conn.close();
+  }
+
+
+
+  /**
+   * Tests to ensure that a virtual list view request that includes the context
+   * ID from an earlier response will use the results from the cursor created
+   * for that earlier request.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testVirtualListViewContextID()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, true);
+
+    final LDAPConnection conn = ds.getConnection();
+
+    for (int i=10; i < 40; i++)
+    {
+      conn.add(generateUserEntry("vlv." + i, "ou=People,dc=example,dc=com",
+           "Test", String.valueOf(i), "password"));
+    }
+
+    final ServerSideSortRequestControl sortControl =
+         new ServerSideSortRequestControl(true, new SortKey("sn"));
+    final SearchRequest searchRequest = new SearchRequest("dc=example,dc=com",
+         SearchScope.SUB, "(uid=vlv.*)");
+    searchRequest.setControls(sortControl,
+         new VirtualListViewRequestControl(1, 0, 4, 0, null));
+
+    SearchResult searchResult = conn.search(searchRequest);
+    assertEquals(searchResult.getResultCode(), ResultCode.SUCCESS);
+    assertEquals(searchResult.getEntryCount(), 5);
 
+    VirtualListViewResponseControl vlvResponse =
+         VirtualListViewResponseControl.get(searchResult);
+    assertEquals(vlvResponse.getContentCount(), 30);
+    final ASN1OctetString contextID = vlvResponse.getContextID();
+    assertNotNull(contextID);
+
+
+    // Remove an entry.  Requests that include the context ID should still see
+    // the original set of entries.
+    conn.delete("uid=vlv.20,ou=People,dc=example,dc=com");
+
+    searchRequest.setControls(sortControl,
+         new VirtualListViewRequestControl(11, 0, 0, 0, contextID));
+    searchResult = conn.search(searchRequest);
+    assertEquals(searchResult.getResultCode(), ResultCode.SUCCESS);
+    assertEquals(searchResult.getEntryCount(), 1);
+    assertEquals(searchResult.getSearchEntries().get(0).getParsedDN(),
+         new DN("uid=vlv.20,ou=People,dc=example,dc=com"));
+
+    vlvResponse = VirtualListViewResponseControl.get(searchResult);
+    assertEquals(vlvResponse.getContentCount(), 30);
+
+    searchRequest.setControls(sortControl,
+         new VirtualListViewRequestControl("35", 1, 1, contextID));
+    searchResult = conn.search(searchRequest);
+    assertEquals(searchResult.getResultCode(), ResultCode.SUCCESS);
+    assertEquals(searchResult.getEntryCount(), 3);
+    assertEquals(searchResult.getSearchEntries().get(1).getParsedDN(),
+         new DN("uid=vlv.35,ou=People,dc=example,dc=com"));
+
+    vlvResponse = VirtualListViewResponseControl.get(searchResult);
+    assertEquals(vlvResponse.getTargetPosition(), 26);
+    assertEquals(vlvResponse.getContentCount(), 30);
+
+
+    // A request without the context ID should search again.
+    searchRequest.setControls(sortControl,
+         new VirtualListViewRequestControl(11, 0, 0, 0, null));
+    searchResult = conn.search(searchRequest);
+    assertEquals(searchResult.getResultCode(), ResultCode.SUCCESS);
+    assertEquals(searchResult.getSearchEntries().get(0).getParsedDN(),
+         new DN("uid=vlv.21,ou=People,dc=example,dc=com"));
+
+    vlvResponse = VirtualListViewResponseControl.get(searchResult);
+    assertEquals(vlvResponse.getContentCount(), 29);
+
+
+    // A malformed context ID should be ignored.
+    searchRequest.setControls(sortControl,
+         new VirtualListViewRequestControl(1, 0, 0, 0,
+              new ASN1OctetString("malformed")));
+    searchResult = conn.search(searchRequest);
+    assertEquals(searchResult.getResultCode(), ResultCode.SUCCESS);
+    assertEquals(searchResult.getEntryCount(), 1);
 
     conn.close();
   }
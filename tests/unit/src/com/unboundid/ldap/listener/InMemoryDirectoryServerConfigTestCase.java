@@ -1075,6 +1075,162 @@ public final class InMemoryDirectoryServerConfigTestCase
 
 
 
+  /**
+   * Tests the behavior of the methods for interacting with the presence index
+   * attributes.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testPresenceIndexAttributes()
+         throws Exception
+  {
+    final InMemoryDirectoryServerConfig cfg =
+         new InMemoryDirectoryServerConfig("dc=example,dc=com");
+
+    assertNotNull(cfg.getPresenceIndexAttributes());
+    assertTrue(cfg.getPresenceIndexAttributes().isEmpty());
+
+    assertNotNull(cfg.toString());
+
+    cfg.setPresenceIndexAttributes("member");
+    assertNotNull(cfg.getPresenceIndexAttributes());
+    assertEquals(cfg.getPresenceIndexAttributes().size(), 1);
+    assertTrue(cfg.getPresenceIndexAttributes().contains("member"));
+
+    assertNotNull(cfg.toString());
+
+    cfg.setPresenceIndexAttributes((String[]) null);
+    assertNotNull(cfg.getPresenceIndexAttributes());
+    assertTrue(cfg.getPresenceIndexAttributes().isEmpty());
+
+    assertNotNull(cfg.toString());
+
+    cfg.setPresenceIndexAttributes("member", "uniqueMember", "owner",
+         "seeAlso");
+    assertNotNull(cfg.getPresenceIndexAttributes());
+    assertEquals(cfg.getPresenceIndexAttributes().size(), 4);
+    assertTrue(cfg.getPresenceIndexAttributes().contains("member"));
+    assertTrue(
+         cfg.getPresenceIndexAttributes().contains("uniqueMember"));
+    assertTrue(cfg.getPresenceIndexAttributes().contains("owner"));
+    assertTrue(cfg.getPresenceIndexAttributes().contains("seeAlso"));
+
+    assertNotNull(cfg.toString());
+
+    cfg.setPresenceIndexAttributes();
+    assertNotNull(cfg.getPresenceIndexAttributes());
+    assertTrue(cfg.getPresenceIndexAttributes().isEmpty());
+
+    assertNotNull(cfg.toString());
+  }
+
+
+
+  /**
+   * Tests the behavior of the methods for interacting with the substring index
+   * attributes.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSubstringIndexAttributes()
+         throws Exception
+  {
+    final InMemoryDirectoryServerConfig cfg =
+         new InMemoryDirectoryServerConfig("dc=example,dc=com");
+
+    assertNotNull(cfg.getSubstringIndexAttributes());
+    assertTrue(cfg.getSubstringIndexAttributes().isEmpty());
+
+    assertNotNull(cfg.toString());
+
+    cfg.setSubstringIndexAttributes("member");
+    assertNotNull(cfg.getSubstringIndexAttributes());
+    assertEquals(cfg.getSubstringIndexAttributes().size(), 1);
+    assertTrue(cfg.getSubstringIndexAttributes().contains("member"));
+
+    assertNotNull(cfg.toString());
+
+    cfg.setSubstringIndexAttributes((String[]) null);
+    assertNotNull(cfg.getSubstringIndexAttributes());
+    assertTrue(cfg.getSubstringIndexAttributes().isEmpty());
+
+    assertNotNull(cfg.toString());
+
+    cfg.setSubstringIndexAttributes("member", "uniqueMember", "owner",
+         "seeAlso");
+    assertNotNull(cfg.getSubstringIndexAttributes());
+    assertEquals(cfg.getSubstringIndexAttributes().size(), 4);
+    assertTrue(cfg.getSubstringIndexAttributes().contains("member"));
+    assertTrue(
+         cfg.getSubstringIndexAttributes().contains("uniqueMember"));
+    assertTrue(cfg.getSubstringIndexAttributes().contains("owner"));
+    assertTrue(cfg.getSubstringIndexAttributes().contains("seeAlso"));
+
+    assertNotNull(cfg.toString());
+
+    cfg.setSubstringIndexAttributes();
+    assertNotNull(cfg.getSubstringIndexAttributes());
+    assertTrue(cfg.getSubstringIndexAttributes().isEmpty());
+
+    assertNotNull(cfg.toString());
+  }
+
+
+
+  /**
+   * Tests the behavior of the methods for interacting with the ordering index
+   * attributes.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testOrderingIndexAttributes()
+         throws Exception
+  {
+    final InMemoryDirectoryServerConfig cfg =
+         new InMemoryDirectoryServerConfig("dc=example,dc=com");
+
+    assertNotNull(cfg.getOrderingIndexAttributes());
+    assertTrue(cfg.getOrderingIndexAttributes().isEmpty());
+
+    assertNotNull(cfg.toString());
+
+    cfg.setOrderingIndexAttributes("member");
+    assertNotNull(cfg.getOrderingIndexAttributes());
+    assertEquals(cfg.getOrderingIndexAttributes().size(), 1);
+    assertTrue(cfg.getOrderingIndexAttributes().contains("member"));
+
+    assertNotNull(cfg.toString());
+
+    cfg.setOrderingIndexAttributes((String[]) null);
+    assertNotNull(cfg.getOrderingIndexAttributes());
+    assertTrue(cfg.getOrderingIndexAttributes().isEmpty());
+
+    assertNotNull(cfg.toString());
+
+    cfg.setOrderingIndexAttributes("member", "uniqueMember", "owner",
+         "seeAlso");
+    assertNotNull(cfg.getOrderingIndexAttributes());
+    assertEquals(cfg.getOrderingIndexAttributes().size(), 4);
+    assertTrue(cfg.getOrderingIndexAttributes().contains("member"));
+    assertTrue(
+         cfg.getOrderingIndexAttributes().contains("uniqueMember"));
+    assertTrue(cfg.getOrderingIndexAttributes().contains("owner"));
+    assertTrue(cfg.getOrderingIndexAttributes().contains("seeAlso"));
+
+    assertNotNull(cfg.toString());
+
+    cfg.setOrderingIndexAttributes();
+    assertNotNull(cfg.getOrderingIndexAttributes());
+    assertTrue(cfg.getOrderingIndexAttributes().isEmpty());
+
+    assertNotNull(cfg.toString());
+  }
+
+
+
   /**
    * Tests the behavior of the methods for interacting with the referential
    * integrity attributes.
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.LDAPSDKTestCase;
+import com.unboundid.ldap.sdk.schema.Schema;
+
+
+
+/**
+ * This class provides a set of test cases for the
+ * InMemoryDirectoryServerOrderingAttributeIndex class.
+ */
+public final class InMemoryDirectoryServerOrderingAttributeIndexTestCase
+       extends LDAPSDKTestCase
+{
+  /**
+   * Tests the behavior when trying to create an index when no schema is
+   * available.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { LDAPException.class })
+  public void testIndexWithoutSchema()
+         throws Exception
+  {
+    new InMemoryDirectoryServerOrderingAttributeIndex("changeNumber", null);
+  }
+
+
+
+  /**
+   * Tests the behavior when trying to create an index for an undefined
+   * attribute type.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { LDAPException.class })
+  public void testIndexWithUndefinedAttribute()
+         throws Exception
+  {
+    new InMemoryDirectoryServerOrderingAttributeIndex("undefined",
+         Schema.getDefaultStandardSchema());
+  }
+
+
+
+  /**
+   * Tests the behavior for an attribute with integer values, which should be
+   * ordered numerically rather than lexicographically.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testIntegerValues()
+         throws Exception
+  {
+    final InMemoryDirectoryServerOrderingAttributeIndex index =
+         new InMemoryDirectoryServerOrderingAttributeIndex("changeNumber",
+              Schema.getDefaultStandardSchema());
+    assertEquals(index.getIndexType(), "ordering");
+
+    for (int i=1; i <= 20; i++)
+    {
+      index.processAdd(new Entry(
+           "dn: changeNumber=" + i + ",dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: changeLogEntry",
+           "changeNumber: " + i));
+    }
+
+    Set<DN> dnSet = index.getMatchingEntries(new ASN1OctetString("15"), true);
+    assertEquals(dnSet.size(), 6);
+    assertTrue(dnSet.contains(new DN("changeNumber=15,dc=example,dc=com")));
+    assertTrue(dnSet.contains(new DN("changeNumber=20,dc=example,dc=com")));
+
+    dnSet = index.getMatchingEntries(new ASN1OctetString("9"), false);
+    assertEquals(dnSet.size(), 9);
+    assertTrue(dnSet.contains(new DN("changeNumber=1,dc=example,dc=com")));
+    assertFalse(dnSet.contains(new DN("changeNumber=10,dc=example,dc=com")));
+
+    assertTrue(
+         index.getMatchingEntries(new ASN1OctetString("21"), true).isEmpty());
+    assertTrue(
+         index.getMatchingEntries(new ASN1OctetString("0"), false).isEmpty());
+
+    index.processDelete(new Entry(
+         "dn: changeNumber=20,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: changeLogEntry",
+         "changeNumber: 20"));
+    assertEquals(
+         index.getMatchingEntries(new ASN1OctetString("15"), true).size(), 5);
+
+    index.clear();
+    assertTrue(
+         index.getMatchingEntries(new ASN1OctetString("0"), true).isEmpty());
+  }
+
+
+
+  /**
+   * Tests the behavior for values that cannot be ordered by the matching rule.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testInvalidValues()
+         throws Exception
+  {
+    final InMemoryDirectoryServerOrderingAttributeIndex index =
+         new InMemoryDirectoryServerOrderingAttributeIndex("changeNumber",
+              Schema.getDefaultStandardSchema());
+
+    final Entry e = new Entry(
+         "dn: cn=test,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: changeLogEntry",
+         "changeNumber: not a number",
+         "changeNumber: 5");
+    index.processAdd(e);
+
+    assertEquals(
+         index.getMatchingEntries(new ASN1OctetString("1"), true).size(), 1);
+
+    try
+    {
+      index.getMatchingEntries(new ASN1OctetString("not a number"), true);
+      fail("Expected an exception for an invalid assertion value");
+    }
+    catch (final LDAPException le)
+    {
+      // This was expected.
+    }
+
+    index.processDelete(e);
+    assertTrue(
+         index.getMatchingEntries(new ASN1OctetString("1"), true).isEmpty());
+  }
+}
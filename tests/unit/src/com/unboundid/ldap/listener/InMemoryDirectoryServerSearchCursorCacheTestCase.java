@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.unboundid.asn1.ASN1Integer;
+import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.Filter;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.LDAPSDKTestCase;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.SearchResultReference;
+import com.unboundid.ldap.sdk.SearchScope;
+import com.unboundid.ldap.sdk.controls.ServerSideSortRequestControl;
+import com.unboundid.ldap.sdk.controls.SortKey;
+import com.unboundid.util.ObjectPair;
+
+
+
+/**
+ * This class provides a set of test cases for the in-memory directory server
+ * search cursor and search cursor cache.
+ */
+public final class InMemoryDirectoryServerSearchCursorCacheTestCase
+       extends LDAPSDKTestCase
+{
+  /**
+   * Tests the basic behavior of the cursor cache.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testGetPutAndRemove()
+         throws Exception
+  {
+    final InMemoryDirectoryServerSearchCursorCache cache =
+         new InMemoryDirectoryServerSearchCursorCache();
+    assertEquals(cache.size(), 0);
+
+    final InMemoryDirectoryServerSearchCursor cursor = createCursor("key");
+    assertNull(cache.get(cursor.getCursorID(), "key"));
+
+    cache.put(cursor);
+    assertEquals(cache.size(), 1);
+    assertSame(cache.get(cursor.getCursorID(), "key"), cursor);
+    assertNull(cache.get(cursor.getCursorID(), "different key"));
+    assertNull(cache.get((cursor.getCursorID() + 1L), "key"));
+
+    cache.remove(cursor);
+    assertEquals(cache.size(), 0);
+    assertNull(cache.get(cursor.getCursorID(), "key"));
+
+    cache.put(cursor);
+    cache.clear();
+    assertEquals(cache.size(), 0);
+  }
+
+
+
+  /**
+   * Tests to ensure that the least recently used cursor will be discarded when
+   * the maximum number of cursors is reached.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testMaxCursors()
+         throws Exception
+  {
+    final InMemoryDirectoryServerSearchCursorCache cache =
+         new InMemoryDirectoryServerSearchCursorCache(3, 60000L);
+
+    final InMemoryDirectoryServerSearchCursor c1 = createCursor("key");
+    final InMemoryDirectoryServerSearchCursor c2 = createCursor("key");
+    final InMemoryDirectoryServerSearchCursor c3 = createCursor("key");
+    final InMemoryDirectoryServerSearchCursor c4 = createCursor("key");
+
+    cache.put(c1);
+    cache.put(c2);
+    cache.put(c3);
+    assertEquals(cache.size(), 3);
+
+    // Access the first cursor so that the second will be the least recently
+    // used.
+    assertNotNull(cache.get(c1.getCursorID(), "key"));
+
+    cache.put(c4);
+    assertEquals(cache.size(), 3);
+    assertNotNull(cache.get(c1.getCursorID(), "key"));
+    assertNull(cache.get(c2.getCursorID(), "key"));
+    assertNotNull(cache.get(c3.getCursorID(), "key"));
+    assertNotNull(cache.get(c4.getCursorID(), "key"));
+
+
+    // A cache with a maximum of zero cursors should never hold anything.
+    final InMemoryDirectoryServerSearchCursorCache emptyCache =
+         new InMemoryDirectoryServerSearchCursorCache(0, 60000L);
+    emptyCache.put(c1);
+    assertEquals(emptyCache.size(), 0);
+  }
+
+
+
+  /**
+   * Tests to ensure that cursors that have not been accessed within the
+   * timeout will be discarded.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testCursorTimeout()
+         throws Exception
+  {
+    final InMemoryDirectoryServerSearchCursorCache cache =
+         new InMemoryDirectoryServerSearchCursorCache(10, 50L);
+
+    final InMemoryDirectoryServerSearchCursor cursor = createCursor("key");
+    cache.put(cursor);
+    assertNotNull(cache.get(cursor.getCursorID(), "key"));
+
+    Thread.sleep(100L);
+
+    assertNull(cache.get(cursor.getCursorID(), "key"));
+    assertEquals(cache.size(), 0);
+  }
+
+
+
+  /**
+   * Tests the methods used to encode and decode cookies.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testCookies()
+         throws Exception
+  {
+    final InMemoryDirectoryServerSearchCursor cursor = createCursor("key");
+
+    ObjectPair<Long,Integer> p = InMemoryDirectoryServerSearchCursor.
+         decodeCookie(cursor.encodeCookie(1234));
+    assertEquals(p.getFirst(), Long.valueOf(cursor.getCursorID()));
+    assertEquals(p.getSecond(), Integer.valueOf(1234));
+
+    p = InMemoryDirectoryServerSearchCursor.decodeCookie(
+         new ASN1OctetString(new ASN1Integer(5678).encode()));
+    assertNull(p.getFirst());
+    assertEquals(p.getSecond(), Integer.valueOf(5678));
+
+    try
+    {
+      InMemoryDirectoryServerSearchCursor.decodeCookie(
+           new ASN1OctetString("malformed"));
+      fail("Expected an exception when decoding a malformed cookie");
+    }
+    catch (final LDAPException le)
+    {
+      assertEquals(le.getResultCode(), ResultCode.PROTOCOL_ERROR);
+    }
+  }
+
+
+
+  /**
+   * Tests the method used to generate request keys.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testGetRequestKey()
+         throws Exception
+  {
+    final DN baseDN = new DN("dc=example,dc=com");
+    final Filter filter = Filter.create("(objectClass=*)");
+    final ServerSideSortRequestControl sortControl =
+         new ServerSideSortRequestControl(new SortKey("sn"));
+
+    final String key = InMemoryDirectoryServerSearchCursor.getRequestKey(
+         baseDN, SearchScope.SUB, filter, sortControl, false, false);
+    assertEquals(InMemoryDirectoryServerSearchCursor.getRequestKey(
+         new DN("DC=Example,DC=Com"), SearchScope.SUB,
+         Filter.create("(OBJECTCLASS=*)"), sortControl, false, false),
+         key);
+
+    assertFalse(InMemoryDirectoryServerSearchCursor.getRequestKey(
+         baseDN, SearchScope.ONE, filter, sortControl, false,
+         false).equals(key));
+    assertFalse(InMemoryDirectoryServerSearchCursor.getRequestKey(
+         baseDN, SearchScope.SUB, Filter.create("(cn=*)"), sortControl,
+         false, false).equals(key));
+    assertFalse(InMemoryDirectoryServerSearchCursor.getRequestKey(
+         baseDN, SearchScope.SUB, filter, null, false, false).equals(key));
+    assertFalse(InMemoryDirectoryServerSearchCursor.getRequestKey(
+         baseDN, SearchScope.SUB, filter,
+         new ServerSideSortRequestControl(new SortKey("sn", true)), false,
+         false).equals(key));
+    assertFalse(InMemoryDirectoryServerSearchCursor.getRequestKey(
+         baseDN, SearchScope.SUB, filter, sortControl, true,
+         false).equals(key));
+    assertFalse(InMemoryDirectoryServerSearchCursor.getRequestKey(
+         baseDN, SearchScope.SUB, filter, sortControl, false,
+         true).equals(key));
+  }
+
+
+
+  /**
+   * Creates a search cursor with the provided key.
+   *
+   * @param  key  The request key for the cursor.
+   *
+   * @return  The cursor that was created.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static InMemoryDirectoryServerSearchCursor createCursor(
+                      final String key)
+          throws Exception
+  {
+    final List<Entry> entries = new ArrayList<Entry>(1);
+    entries.add(new Entry("dc=example,dc=com"));
+    return new InMemoryDirectoryServerSearchCursor(key, entries,
+         Collections.<SearchResultReference>emptyList());
+  }
+}
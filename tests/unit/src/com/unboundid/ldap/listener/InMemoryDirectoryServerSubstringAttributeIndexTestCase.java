@@ -0,0 +1,185 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.listener;
+
+
+
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.LDAPSDKTestCase;
+import com.unboundid.ldap.sdk.schema.Schema;
+
+
+
+/**
+ * This class provides a set of test cases for the
+ * InMemoryDirectoryServerSubstringAttributeIndex class.
+ */
+public final class InMemoryDirectoryServerSubstringAttributeIndexTestCase
+       extends LDAPSDKTestCase
+{
+  /**
+   * Tests the behavior when trying to create an index when no schema is
+   * available.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { LDAPException.class })
+  public void testIndexWithoutSchema()
+         throws Exception
+  {
+    new InMemoryDirectoryServerSubstringAttributeIndex("mail", null);
+  }
+
+
+
+  /**
+   * Tests the behavior when trying to create an index for an undefined
+   * attribute type.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { LDAPException.class })
+  public void testIndexWithUndefinedAttribute()
+         throws Exception
+  {
+    new InMemoryDirectoryServerSubstringAttributeIndex("undefined",
+         Schema.getDefaultStandardSchema());
+  }
+
+
+
+  /**
+   * Tests the process of obtaining candidate entries for various kinds of
+   * substring components.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testGetCandidateEntries()
+         throws Exception
+  {
+    final InMemoryDirectoryServerSubstringAttributeIndex index =
+         new InMemoryDirectoryServerSubstringAttributeIndex("cn",
+              Schema.getDefaultStandardSchema());
+    assertEquals(index.getIndexType(), "substring");
+
+    final Entry e1 = createEntry("1", "John Doe");
+    final Entry e2 = createEntry("2", "Jane Doe");
+    final Entry e3 = createEntry("3", "Doe John");
+    index.processAdd(e1);
+    index.processAdd(e2);
+    index.processAdd(e3);
+
+    final DN dn1 = e1.getParsedDN();
+    final DN dn2 = e2.getParsedDN();
+    final DN dn3 = e3.getParsedDN();
+
+
+    // A subInitial component is only matched at the start of a value.
+    Set<DN> dnSet = index.getCandidateEntries(s("JOHN"), null, null);
+    assertEquals(dnSet.size(), 1);
+    assertTrue(dnSet.contains(dn1));
+
+    // A subFinal component is only matched at the end of a value.
+    dnSet = index.getCandidateEntries(null, null, s("doe"));
+    assertEquals(dnSet.size(), 2);
+    assertTrue(dnSet.contains(dn1));
+    assertTrue(dnSet.contains(dn2));
+
+    // A subAny component may be matched anywhere.
+    dnSet = index.getCandidateEntries(null, new ASN1OctetString[] { s("ohn") },
+         null);
+    assertEquals(dnSet.size(), 2);
+    assertTrue(dnSet.contains(dn1));
+    assertTrue(dnSet.contains(dn3));
+
+    // Two-character components can still be used when anchored.
+    dnSet = index.getCandidateEntries(s("ja"), null, s("oe"));
+    assertEquals(dnSet.size(), 1);
+    assertTrue(dnSet.contains(dn2));
+
+    // Components that are too short to narrow the candidates.
+    assertNull(index.getCandidateEntries(s("j"),
+         new ASN1OctetString[] { s("o") }, s("e")));
+
+    // A trigram that doesn't appear in any value.
+    assertTrue(index.getCandidateEntries(null,
+         new ASN1OctetString[] { s("xyz") }, null).isEmpty());
+
+    index.processDelete(e1);
+    dnSet = index.getCandidateEntries(s("john"), null, null);
+    assertTrue(dnSet.isEmpty());
+
+    index.processDelete(e2);
+    index.processDelete(e3);
+    assertEquals(index.getNumTrigrams(), 0);
+
+    index.processAdd(e1);
+    assertTrue(index.getNumTrigrams() > 0);
+    index.clear();
+    assertEquals(index.getNumTrigrams(), 0);
+  }
+
+
+
+  /**
+   * Creates an entry with the provided information.
+   *
+   * @param  uid  The uid value for the entry.
+   * @param  cn   The cn value for the entry.
+   *
+   * @return  The entry that was created.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static Entry createEntry(final String uid, final String cn)
+          throws Exception
+  {
+    return new Entry(
+         "dn: uid=" + uid + ",dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: person",
+         "uid: " + uid,
+         "cn: " + cn,
+         "sn: Doe");
+  }
+
+
+
+  /**
+   * Creates an octet string with the provided value.
+   *
+   * @param  value  The value to use.
+   *
+   * @return  The octet string that was created.
+   */
+  private static ASN1OctetString s(final String value)
+  {
+    return new ASN1OctetString(value);
+  }
+}
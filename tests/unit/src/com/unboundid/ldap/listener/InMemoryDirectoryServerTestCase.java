@@ -25,9 +25,11 @@ package com.unboundid.ldap.listener;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.testng.annotations.Test;
 
@@ -68,12 +70,15 @@ import com.unboundid.ldap.sdk.SimpleBindRequest;
 import com.unboundid.ldap.sdk.TestUnsolicitedNotificationHandler;
 import com.unboundid.ldap.sdk.controls.AuthorizationIdentityRequestControl;
 import com.unboundid.ldap.sdk.controls.AuthorizationIdentityResponseControl;
+import com.unboundid.ldap.sdk.controls.SubtreeDeleteRequestControl;
+import com.unboundid.ldap.sdk.examples.SearchRate;
 import com.unboundid.ldap.sdk.schema.AttributeTypeDefinition;
 import com.unboundid.ldap.sdk.schema.Schema;
 import com.unboundid.ldap.sdk.extensions.StartTLSExtendedRequest;
 import com.unboundid.ldap.sdk.extensions.WhoAmIExtendedRequest;
 import com.unboundid.ldif.LDIFException;
 import com.unboundid.util.MemoryBasedLogHandler;
+import com.unboundid.util.ValuePattern;
 import com.unboundid.util.ssl.KeyStoreKeyManager;
 import com.unboundid.util.ssl.SSLUtil;
 import com.unboundid.util.ssl.TrustAllTrustManager;
@@ -5817,4 +5822,565 @@ public final class InMemoryDirectoryServerTestCase
 
     ds.shutDown(true);
   }
+
+
+
+  /**
+   * Tests to ensure that operations that only read data may be processed
+   * concurrently by the in-memory directory server.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testConcurrentReads()
+         throws Exception
+  {
+    final InMemoryDirectoryServerConfig cfg =
+         new InMemoryDirectoryServerConfig("dc=example,dc=com");
+    final InMemoryDirectoryServer ds = new InMemoryDirectoryServer(cfg);
+    ds.startListening();
+    ds.add(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example");
+
+    final LDAPConnection[] conns = new LDAPConnection[4];
+    final Thread[] threads = new Thread[conns.length];
+    final ResultCode[] resultCodes = new ResultCode[conns.length];
+    for (int i=0; i < conns.length; i++)
+    {
+      final int index = i;
+      conns[i] = ds.getConnection();
+      threads[i] = new Thread()
+      {
+        @Override()
+        public void run()
+        {
+          try
+          {
+            if ((index % 2) == 0)
+            {
+              resultCodes[index] = conns[index].search("dc=example,dc=com",
+                   SearchScope.BASE, "(objectClass=*)").getResultCode();
+            }
+            else
+            {
+              resultCodes[index] = conns[index].compare("dc=example,dc=com",
+                   "dc", "example").getResultCode();
+            }
+          }
+          catch (final LDAPException le)
+          {
+            resultCodes[index] = le.getResultCode();
+          }
+        }
+      };
+    }
+
+    ds.setProcessingDelayMillis(500L);
+
+    try
+    {
+      final long startTime = System.currentTimeMillis();
+      for (final Thread t : threads)
+      {
+        t.start();
+      }
+
+      for (final Thread t : threads)
+      {
+        t.join();
+      }
+
+      // If the operations had been processed one at a time, then it would have
+      // taken at least two seconds to complete all of them.
+      final long elapsedTime = System.currentTimeMillis() - startTime;
+      assertTrue(elapsedTime < 1500L,
+           "Concurrent reads took " + elapsedTime + "ms");
+
+      for (int i=0; i < resultCodes.length; i++)
+      {
+        if ((i % 2) == 0)
+        {
+          assertEquals(resultCodes[i], ResultCode.SUCCESS);
+        }
+        else
+        {
+          assertEquals(resultCodes[i], ResultCode.COMPARE_TRUE);
+        }
+      }
+
+      ds.setProcessingDelayMillis(0L);
+      assertEquals(conns[0].modify("dc=example,dc=com",
+           new Modification(ModificationType.REPLACE, "description",
+                "foo")).getResultCode(),
+           ResultCode.SUCCESS);
+      assertTrue(conns[1].compare("dc=example,dc=com", "description",
+           "foo").compareMatched());
+    }
+    finally
+    {
+      ds.setProcessingDelayMillis(0L);
+      for (final LDAPConnection c : conns)
+      {
+        c.close();
+      }
+
+      ds.shutDown(true);
+    }
+  }
+
+
+
+  /**
+   * Runs a searchrate-style load against the in-memory directory server to
+   * ensure that read throughput scales with the number of concurrent clients.
+   * Each search is given a fixed processing delay that is incurred while the
+   * server is holding its read lock, so if searches were serialized, then
+   * adding threads would not increase the rate at which they complete.  It
+   * also runs the searchrate tool itself against the server.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testReadScaling()
+         throws Exception
+  {
+    final InMemoryDirectoryServerConfig cfg =
+         new InMemoryDirectoryServerConfig("dc=example,dc=com");
+    final InMemoryDirectoryServer ds = new InMemoryDirectoryServer(cfg);
+    ds.startListening();
+
+    try
+    {
+      ds.add(
+           "dn: dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: domain",
+           "dc: example");
+      ds.add(
+           "dn: ou=People,dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: organizationalUnit",
+           "ou: People");
+      for (int i=0; i < 100; i++)
+      {
+        ds.add(
+             "dn: uid=user." + i + ",ou=People,dc=example,dc=com",
+             "objectClass: top",
+             "objectClass: person",
+             "objectClass: organizationalPerson",
+             "objectClass: inetOrgPerson",
+             "uid: user." + i,
+             "givenName: User",
+             "sn: " + i,
+             "cn: User " + i);
+      }
+
+      ds.setProcessingDelayMillis(5L);
+
+      final int searchesPerThread = 40;
+      final long singleThreadMillis =
+           runSearchLoad(ds, 1, searchesPerThread);
+      final long multiThreadMillis = runSearchLoad(ds, 8, searchesPerThread);
+
+      // Eight threads perform eight times as many searches as one thread.  If
+      // reads were serialized, then that would take at least eight times as
+      // long.  With concurrent reads, it should take about the same time.
+      assertTrue((multiThreadMillis < (4L * singleThreadMillis)),
+           "Eight search threads took " + multiThreadMillis +
+                "ms, but a single search thread took " + singleThreadMillis +
+                "ms");
+
+      final String[] args =
+      {
+        "-h", "127.0.0.1",
+        "-p", String.valueOf(ds.getListenPort()),
+        "-b", "uid=user.[0-99],ou=People,dc=example,dc=com",
+        "-s", "base",
+        "-f", "(objectClass=*)",
+        "-t", "8",
+        "-i", "1",
+        "-I", "2"
+      };
+      assertEquals(SearchRate.main(args, null, null), ResultCode.SUCCESS);
+    }
+    finally
+    {
+      ds.setProcessingDelayMillis(0L);
+      ds.shutDown(true);
+    }
+  }
+
+
+
+  /**
+   * Uses the specified number of threads, each with its own connection, to
+   * perform base-level searches of user entries in the provided server.
+   *
+   * @param  ds                 The server to search.
+   * @param  numThreads         The number of threads to use.
+   * @param  searchesPerThread  The number of searches each thread should
+   *                            perform.
+   *
+   * @return  The length of time in milliseconds required for all of the
+   *          searches to complete.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static long runSearchLoad(final InMemoryDirectoryServer ds,
+                                    final int numThreads,
+                                    final int searchesPerThread)
+          throws Exception
+  {
+    final LDAPConnection[] conns = new LDAPConnection[numThreads];
+    final Thread[] threads = new Thread[numThreads];
+    final AtomicInteger numSuccessful = new AtomicInteger(0);
+    for (int i=0; i < numThreads; i++)
+    {
+      final LDAPConnection conn = ds.getConnection();
+      final ValuePattern dnPattern = new ValuePattern(
+           "uid=user.[0-99],ou=People,dc=example,dc=com", (long) i);
+      conns[i] = conn;
+      threads[i] = new Thread()
+      {
+        @Override()
+        public void run()
+        {
+          try
+          {
+            for (int j=0; j < searchesPerThread; j++)
+            {
+              final SearchResult result = conn.search(dnPattern.nextValue(),
+                   SearchScope.BASE, "(objectClass=*)", "1.1");
+              if ((result.getResultCode() == ResultCode.SUCCESS) &&
+                  (result.getEntryCount() == 1))
+              {
+                numSuccessful.incrementAndGet();
+              }
+            }
+          }
+          catch (final LDAPException le)
+          {
+            // This will be detected by the success count.
+          }
+        }
+      };
+    }
+
+    try
+    {
+      final long startTime = System.currentTimeMillis();
+      for (final Thread t : threads)
+      {
+        t.start();
+      }
+
+      for (final Thread t : threads)
+      {
+        t.join();
+      }
+
+      final long elapsedTime = System.currentTimeMillis() - startTime;
+      assertEquals(numSuccessful.get(), (numThreads * searchesPerThread));
+      return elapsedTime;
+    }
+    finally
+    {
+      for (final LDAPConnection c : conns)
+      {
+        c.close();
+      }
+    }
+  }
+
+
+
+  /**
+   * Tests the behavior of operations that target a subtree when there are
+   * several sibling subtrees with similar names.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSubtreeOperations()
+         throws Exception
+  {
+    final InMemoryDirectoryServerConfig cfg =
+         new InMemoryDirectoryServerConfig("dc=example,dc=com", "o=test");
+    final InMemoryDirectoryServer ds = new InMemoryDirectoryServer(cfg);
+    ds.startListening();
+    ds.add(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example");
+    ds.add(
+         "dn: o=test",
+         "objectClass: top",
+         "objectClass: organization",
+         "o: test");
+
+    for (final String ou : new String[] { "a", "a b", "b", "aa" })
+    {
+      ds.add(
+           "dn: ou=" + ou + ",dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: organizationalUnit",
+           "ou: " + ou);
+      for (int i=0; i < 3; i++)
+      {
+        ds.add(
+             "dn: ou=" + i + ",ou=" + ou + ",dc=example,dc=com",
+             "objectClass: top",
+             "objectClass: organizationalUnit",
+             "ou: " + i);
+        ds.add(
+             "dn: cn=user,ou=" + i + ",ou=" + ou + ",dc=example,dc=com",
+             "objectClass: top",
+             "objectClass: person",
+             "cn: user",
+             "sn: user");
+      }
+    }
+
+    assertEquals(ds.countEntriesBelow("dc=example,dc=com"), 29);
+    assertEquals(ds.countEntriesBelow("ou=a,dc=example,dc=com"), 7);
+    assertEquals(ds.countEntriesBelow("ou=0,ou=a,dc=example,dc=com"), 2);
+    assertEquals(ds.countEntriesBelow("o=test"), 1);
+
+    assertEquals(ds.search("ou=a,dc=example,dc=com", SearchScope.ONE,
+         "(objectClass=*)").getEntryCount(), 3);
+    assertEquals(ds.search("ou=a,dc=example,dc=com", SearchScope.SUB,
+         "(objectClass=*)").getEntryCount(), 7);
+    assertEquals(ds.search("ou=a,dc=example,dc=com",
+         SearchScope.SUBORDINATE_SUBTREE, "(objectClass=*)").getEntryCount(),
+         6);
+    assertEquals(ds.search("", SearchScope.SUB,
+         "(objectClass=*)").getEntryCount(), 30);
+
+    final LDAPConnection conn = ds.getConnection();
+    try
+    {
+      assertEquals(conn.search("ou=a,dc=example,dc=com", SearchScope.ONE,
+           "(objectClass=*)").getEntryCount(), 3);
+      assertEquals(conn.search("ou=a,dc=example,dc=com", SearchScope.SUB,
+           "(cn=user)").getEntryCount(), 3);
+      assertEquals(conn.search("ou=a b,dc=example,dc=com", SearchScope.SUB,
+           "(objectClass=*)").getEntryCount(), 7);
+      assertEquals(conn.search("o=test", SearchScope.SUB,
+           "(objectClass=*)").getEntryCount(), 1);
+
+      try
+      {
+        conn.delete("ou=a,dc=example,dc=com");
+        fail("Expected an exception when deleting a non-leaf entry");
+      }
+      catch (final LDAPException le)
+      {
+        assertEquals(le.getResultCode(), ResultCode.NOT_ALLOWED_ON_NONLEAF);
+      }
+
+      assertEquals(conn.modifyDN("ou=a,dc=example,dc=com", "ou=c", true,
+           "o=test").getResultCode(), ResultCode.SUCCESS);
+      assertEquals(ds.countEntriesBelow("ou=c,o=test"), 7);
+      assertEquals(ds.countEntriesBelow("dc=example,dc=com"), 22);
+      assertNotNull(ds.getEntry("cn=user,ou=2,ou=c,o=test"));
+      assertNull(ds.getEntry("cn=user,ou=2,ou=a,dc=example,dc=com"));
+
+      final DeleteRequest deleteRequest =
+           new DeleteRequest("ou=aa,dc=example,dc=com");
+      deleteRequest.addControl(new SubtreeDeleteRequestControl());
+      assertEquals(conn.delete(deleteRequest).getResultCode(),
+           ResultCode.SUCCESS);
+      assertEquals(ds.countEntriesBelow("dc=example,dc=com"), 15);
+
+      assertEquals(ds.deleteSubtree("ou=a b,dc=example,dc=com"), 7);
+      assertEquals(ds.countEntriesBelow("dc=example,dc=com"), 8);
+      assertEquals(ds.countEntriesBelow("ou=b,dc=example,dc=com"), 7);
+      assertEquals(ds.countEntriesBelow("o=test"), 8);
+    }
+    finally
+    {
+      conn.close();
+      ds.shutDown(true);
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that presence, substring, and ordering indexes, alone and
+   * combined with each other and with equality indexes, yield the same results
+   * as searches processed without any indexes, and that the index hit and miss
+   * counters are updated.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testPresenceSubstringAndOrderingIndexes()
+         throws Exception
+  {
+    final InMemoryDirectoryServerConfig indexedConfig =
+         new InMemoryDirectoryServerConfig("dc=example,dc=com");
+    indexedConfig.setEqualityIndexAttributes("objectClass", "sn");
+    indexedConfig.setPresenceIndexAttributes("description", "mail");
+    indexedConfig.setSubstringIndexAttributes("mail", "cn");
+    indexedConfig.setOrderingIndexAttributes("employeeNumber");
+
+    final InMemoryDirectoryServer indexedDS =
+         new InMemoryDirectoryServer(indexedConfig);
+    final InMemoryDirectoryServer unindexedDS = new InMemoryDirectoryServer(
+         new InMemoryDirectoryServerConfig("dc=example,dc=com"));
+
+    final ArrayList<Entry> entries = new ArrayList<Entry>(102);
+    entries.add(new Entry(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example"));
+    entries.add(new Entry(
+         "dn: ou=People,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: People"));
+
+    for (int i=0; i < 100; i++)
+    {
+      final Entry e = new Entry(
+           "dn: uid=user." + i + ",ou=People,dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: person",
+           "objectClass: organizationalPerson",
+           "objectClass: inetOrgPerson",
+           "uid: user." + i,
+           "givenName: User",
+           "sn: " + ((i % 2) == 0 ? "Even" : "Odd"),
+           "cn: User " + i,
+           "employeeNumber: " + String.format("%03d", i));
+      if ((i % 3) == 0)
+      {
+        e.addAttribute("mail", "user." + i + "@corp.example.com");
+      }
+      else
+      {
+        e.addAttribute("mail", "user." + i + "@example.net");
+      }
+
+      if ((i % 5) == 0)
+      {
+        e.addAttribute("description", "Entry " + i);
+      }
+
+      entries.add(e);
+    }
+
+    indexedDS.addEntries(entries);
+    unindexedDS.addEntries(entries);
+
+    final String[] filters =
+    {
+      "(mail=*)",
+      "(description=*)",
+      "(mail=*@corp.example.com)",
+      "(mail=user.1*)",
+      "(cn=*ser 4*)",
+      "(cn=User 1*0)",
+      "(cn=*r*)",
+      "(employeeNumber>=090)",
+      "(employeeNumber<=009)",
+      "(&(employeeNumber>=010)(employeeNumber<=019))",
+      "(&(sn=Even)(mail=*@corp.example.com))",
+      "(&(objectClass=person)(!(description=*)))",
+      "(&(employeeNumber>=050)(!(sn=Odd)))",
+      "(&(mail=*@example.net)(!(employeeNumber>=010)))",
+      "(|(description=*)(employeeNumber<=003))",
+      "(|(description=*)(givenName=User))",
+      "(!(description=*))",
+      "(employeeNumber>=zzz)"
+    };
+
+    for (final String filter : filters)
+    {
+      assertEquals(getDNs(indexedDS, filter), getDNs(unindexedDS, filter),
+           filter);
+    }
+
+    assertEquals(indexedDS.getIndexHitCount(), 15L);
+    assertEquals(indexedDS.getIndexMissCount(), 3L);
+    assertEquals(unindexedDS.getIndexHitCount(), 0L);
+    assertEquals(unindexedDS.getIndexMissCount(), (long) filters.length);
+
+    assertTrue(indexedDS.getIndexHitCounts().get("presence:mail") > 0L);
+    assertTrue(indexedDS.getIndexHitCounts().get("substring:cn") > 0L);
+    assertTrue(
+         indexedDS.getIndexHitCounts().get("ordering:employeeNumber") > 0L);
+    assertEquals(indexedDS.getIndexHitCounts().size(), 7);
+    assertTrue(unindexedDS.getIndexHitCounts().isEmpty());
+
+
+    // Make changes to the data and verify that the results are still the same.
+    for (final InMemoryDirectoryServer ds :
+         new InMemoryDirectoryServer[] { indexedDS, unindexedDS })
+    {
+      ds.modify("uid=user.1,ou=People,dc=example,dc=com",
+           new Modification(ModificationType.REPLACE, "mail",
+                "changed@corp.example.com"),
+           new Modification(ModificationType.ADD, "description", "new"),
+           new Modification(ModificationType.REPLACE, "employeeNumber", "999"));
+      ds.delete("uid=user.3,ou=People,dc=example,dc=com");
+      ds.modifyDN("uid=user.6,ou=People,dc=example,dc=com", "uid=renamed",
+           true);
+    }
+
+    for (final String filter : filters)
+    {
+      assertEquals(getDNs(indexedDS, filter), getDNs(unindexedDS, filter),
+           filter);
+    }
+
+
+    // Restore a snapshot and verify that the indexes are updated.
+    final InMemoryDirectoryServerSnapshot snapshot =
+         unindexedDS.createSnapshot();
+    indexedDS.clear();
+    assertEquals(indexedDS.countEntries(), 0);
+
+    indexedDS.restoreSnapshot(snapshot);
+    for (final String filter : filters)
+    {
+      assertEquals(getDNs(indexedDS, filter), getDNs(unindexedDS, filter),
+           filter);
+    }
+  }
+
+
+
+  /**
+   * Retrieves the DNs of the entries below dc=example,dc=com that match the
+   * provided filter.
+   *
+   * @param  ds      The server to search.
+   * @param  filter  The filter to use.
+   *
+   * @return  The DNs of the matching entries.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static List<DN> getDNs(final InMemoryDirectoryServer ds,
+                                 final String filter)
+          throws Exception
+  {
+    final ArrayList<DN> dnList = new ArrayList<DN>(100);
+    for (final SearchResultEntry e :
+         ds.search("dc=example,dc=com", SearchScope.SUB, filter).
+              getSearchEntries())
+    {
+      dnList.add(e.getParsedDN());
+    }
+
+    Collections.sort(dnList);
+    return dnList;
+  }
 }
@@ -24,6 +24,8 @@ package com.unboundid.ldap.listener;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.testng.annotations.Test;
 
@@ -434,6 +436,83 @@ public final class LDAPListenerConfigTestCase
 
 
 
+  /**
+   * Provides test coverage for the maximum concurrent operations per
+   * connection configuration.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testMaxConcurrentOperationsPerConnection()
+         throws Exception
+  {
+    LDAPListenerConfig c = new LDAPListenerConfig(1234,
+         new CannedResponseRequestHandler());
+    assertEquals(c.getMaxConcurrentOperationsPerConnection(), 1);
+    c = c.duplicate();
+    assertEquals(c.getMaxConcurrentOperationsPerConnection(), 1);
+
+    assertNotNull(c.toString());
+
+    c.setMaxConcurrentOperationsPerConnection(10);
+    assertEquals(c.getMaxConcurrentOperationsPerConnection(), 10);
+    c = c.duplicate();
+    assertEquals(c.getMaxConcurrentOperationsPerConnection(), 10);
+
+    assertNotNull(c.toString());
+
+    c.setMaxConcurrentOperationsPerConnection(0);
+    assertEquals(c.getMaxConcurrentOperationsPerConnection(), 1);
+    c = c.duplicate();
+    assertEquals(c.getMaxConcurrentOperationsPerConnection(), 1);
+
+    assertNotNull(c.toString());
+  }
+
+
+
+  /**
+   * Provides test coverage for the request executor configuration.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testRequestExecutor()
+         throws Exception
+  {
+    LDAPListenerConfig c = new LDAPListenerConfig(1234,
+         new CannedResponseRequestHandler());
+    assertNull(c.getRequestExecutor());
+    c = c.duplicate();
+    assertNull(c.getRequestExecutor());
+
+    assertNotNull(c.toString());
+
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try
+    {
+      c.setRequestExecutor(executor);
+      assertSame(c.getRequestExecutor(), executor);
+      c = c.duplicate();
+      assertSame(c.getRequestExecutor(), executor);
+
+      assertNotNull(c.toString());
+
+      c.setRequestExecutor(null);
+      assertNull(c.getRequestExecutor());
+      c = c.duplicate();
+      assertNull(c.getRequestExecutor());
+
+      assertNotNull(c.toString());
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+
+
+
   /**
    * Provides test coverage for the receive buffer size configuration.
    *
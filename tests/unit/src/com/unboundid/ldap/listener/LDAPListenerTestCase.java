@@ -23,12 +23,39 @@ package com.unboundid.ldap.listener;
 
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.testng.annotations.Test;
 
+import com.unboundid.asn1.ASN1StreamReader;
+import com.unboundid.ldap.protocol.ExtendedResponseProtocolOp;
+import com.unboundid.ldap.protocol.LDAPMessage;
+import com.unboundid.ldap.protocol.SearchRequestProtocolOp;
+import com.unboundid.ldap.sdk.AsyncRequestID;
+import com.unboundid.ldap.sdk.BasicAsyncSearchResultListener;
+import com.unboundid.ldap.sdk.DereferencePolicy;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.ExtendedResult;
+import com.unboundid.ldap.sdk.Filter;
 import com.unboundid.ldap.sdk.LDAPConnection;
+import com.unboundid.ldap.sdk.LDAPResult;
 import com.unboundid.ldap.sdk.LDAPSDKTestCase;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.SearchRequest;
+import com.unboundid.ldap.sdk.SearchResult;
+import com.unboundid.ldap.sdk.SearchScope;
+import com.unboundid.ldap.sdk.SingleServerSet;
+import com.unboundid.ldap.sdk.extensions.CancelExtendedRequest;
+import com.unboundid.ldap.sdk.extensions.NoticeOfDisconnectionExtendedResult;
 import com.unboundid.util.ThrowsOnAcceptServerSocketFactory;
 import com.unboundid.util.ThrowsOnCreateServerSocketFactory;
 
@@ -143,4 +170,445 @@ public final class LDAPListenerTestCase
 
     listener.shutDown(true);
   }
+
+
+
+  /**
+   * Tests to ensure that multiple requests sent on the same connection may be
+   * processed concurrently when the listener is configured to allow it.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testConcurrentOperationsPerConnection()
+         throws Exception
+  {
+    final InMemoryRequestHandler requestHandler = createRequestHandler();
+    requestHandler.setProcessingDelayMillis(1000L);
+
+    final LDAPListenerConfig config = new LDAPListenerConfig(0,
+         requestHandler);
+    config.setMaxConcurrentOperationsPerConnection(4);
+
+    final LDAPListener listener = new LDAPListener(config);
+    listener.startListening();
+
+    final LDAPConnection conn =
+         new LDAPConnection("localhost", listener.getListenPort());
+
+    try
+    {
+      final long startTime = System.currentTimeMillis();
+
+      final List<AsyncRequestID> requestIDs = new ArrayList<AsyncRequestID>(4);
+      for (int i=0; i < 4; i++)
+      {
+        requestIDs.add(conn.asyncSearch(new SearchRequest(
+             new BasicAsyncSearchResultListener(), "dc=example,dc=com",
+             SearchScope.SUB, "(objectClass=*)")));
+      }
+
+      for (final AsyncRequestID requestID : requestIDs)
+      {
+        final SearchResult searchResult = (SearchResult) requestID.get();
+        assertEquals(searchResult.getResultCode(), ResultCode.SUCCESS);
+        assertEquals(searchResult.getEntryCount(), 4);
+      }
+
+      // If the requests had been processed one at a time, then it would have
+      // taken at least four seconds.
+      assertTrue((System.currentTimeMillis() - startTime) < 3500L);
+
+      // Make sure that operations which may not be processed concurrently
+      // still work as expected.
+      requestHandler.setProcessingDelayMillis(0L);
+      assertEquals(conn.bind("", "").getResultCode(), ResultCode.SUCCESS);
+      assertNotNull(conn.getEntry("dc=example,dc=com"));
+    }
+    finally
+    {
+      conn.close();
+      listener.shutDown(true);
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that an executor created by the listener is shut down when
+   * the listener is shut down without closing existing connections, and that
+   * those connections remain usable afterward.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testShutDownWithoutClosingStopsListenerExecutor()
+         throws Exception
+  {
+    final LDAPListenerConfig config = new LDAPListenerConfig(0,
+         createRequestHandler());
+    config.setMaxConcurrentOperationsPerConnection(2);
+
+    final LDAPListener listener = new LDAPListener(config);
+    listener.startListening();
+
+    final ExecutorService executor =
+         (ExecutorService) listener.getRequestExecutor();
+    assertNotNull(executor);
+
+    final LDAPConnection conn =
+         new LDAPConnection("localhost", listener.getListenPort());
+
+    try
+    {
+      assertNotNull(conn.getEntry("dc=example,dc=com"));
+
+      listener.shutDown(false);
+      assertTrue(executor.isShutdown());
+      assertTrue(executor.awaitTermination(10L, TimeUnit.SECONDS));
+
+      // The connection should still work, with requests processed by the
+      // connection's own thread.
+      assertTrue(conn.isConnected());
+      final SearchResult searchResult = conn.search("dc=example,dc=com",
+           SearchScope.SUB, "(objectClass=*)");
+      assertEquals(searchResult.getResultCode(), ResultCode.SUCCESS);
+      assertEquals(searchResult.getEntryCount(), 4);
+    }
+    finally
+    {
+      conn.close();
+      listener.shutDown(true);
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that an executor provided in the listener configuration is
+   * not shut down when the listener is shut down.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testShutDownLeavesProvidedExecutorRunning()
+         throws Exception
+  {
+    final ExecutorService executor = Executors.newCachedThreadPool();
+
+    try
+    {
+      final LDAPListenerConfig config = new LDAPListenerConfig(0,
+           createRequestHandler());
+      config.setMaxConcurrentOperationsPerConnection(2);
+      config.setRequestExecutor(executor);
+
+      final LDAPListener listener = new LDAPListener(config);
+      listener.startListening();
+      assertSame(listener.getRequestExecutor(), executor);
+
+      final LDAPConnection conn =
+           new LDAPConnection("localhost", listener.getListenPort());
+      assertNotNull(conn.getEntry("dc=example,dc=com"));
+
+      listener.shutDown(false);
+      assertFalse(executor.isShutdown());
+
+      conn.close();
+      listener.shutDown(true);
+      assertFalse(executor.isShutdown());
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that the listener terminates a connection with a protocol
+   * error if a client reuses the message ID of an operation that is still in
+   * progress.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testDuplicateOutstandingMessageID()
+         throws Exception
+  {
+    final InMemoryRequestHandler requestHandler = createRequestHandler();
+    requestHandler.setProcessingDelayMillis(500L);
+
+    final LDAPListenerConfig config = new LDAPListenerConfig(0,
+         requestHandler);
+    config.setMaxConcurrentOperationsPerConnection(2);
+
+    final LDAPListener listener = new LDAPListener(config);
+    listener.startListening();
+
+    final Socket socket = new Socket("localhost", listener.getListenPort());
+
+    try
+    {
+      socket.setSoTimeout(10000);
+
+      final LDAPMessage searchRequest = new LDAPMessage(1,
+           new SearchRequestProtocolOp("dc=example,dc=com", SearchScope.BASE,
+                DereferencePolicy.NEVER, 0, 0, false,
+                Filter.createPresenceFilter("objectClass"),
+                Collections.<String>emptyList()));
+
+      final OutputStream outputStream = socket.getOutputStream();
+      outputStream.write(searchRequest.encode().encode());
+      outputStream.write(searchRequest.encode().encode());
+      outputStream.flush();
+
+      final ASN1StreamReader reader =
+           new ASN1StreamReader(socket.getInputStream());
+      final LDAPMessage response = LDAPMessage.readFrom(reader, true);
+      assertNotNull(response);
+      assertEquals(response.getMessageID(), 0);
+      assertEquals(response.getProtocolOpType(),
+           LDAPMessage.PROTOCOL_OP_TYPE_EXTENDED_RESPONSE);
+
+      final ExtendedResponseProtocolOp noticeOfDisconnection =
+           response.getExtendedResponseProtocolOp();
+      assertEquals(noticeOfDisconnection.getResponseOID(),
+           NoticeOfDisconnectionExtendedResult.
+                NOTICE_OF_DISCONNECTION_RESULT_OID);
+      assertEquals(noticeOfDisconnection.getResultCode(),
+           ResultCode.PROTOCOL_ERROR_INT_VALUE);
+
+      // The connection should have been closed, so no response should be sent
+      // for either search.
+      assertNull(LDAPMessage.readFrom(reader, true));
+    }
+    finally
+    {
+      socket.close();
+      listener.shutDown(true);
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that an in-progress search can be abandoned when the
+   * listener is configured to allow concurrent operations per connection, and
+   * that the connection remains usable afterward.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testAbandonConcurrentSearch()
+         throws Exception
+  {
+    final InMemoryRequestHandler requestHandler = createRequestHandler();
+    requestHandler.setProcessingDelayMillis(500L);
+
+    final LDAPListenerConfig config = new LDAPListenerConfig(0,
+         requestHandler);
+    config.setMaxConcurrentOperationsPerConnection(2);
+
+    final LDAPListener listener = new LDAPListener(config);
+    listener.startListening();
+
+    final LDAPConnection conn =
+         new LDAPConnection("localhost", listener.getListenPort());
+
+    try
+    {
+      final BasicAsyncSearchResultListener searchListener =
+           new BasicAsyncSearchResultListener();
+      final AsyncRequestID requestID = conn.asyncSearch(new SearchRequest(
+           searchListener, "dc=example,dc=com", SearchScope.SUB,
+           "(objectClass=*)"));
+      conn.abandon(requestID);
+
+      final SearchResult searchResult = conn.search("dc=example,dc=com",
+           SearchScope.SUB, "(objectClass=*)");
+      assertEquals(searchResult.getResultCode(), ResultCode.SUCCESS);
+      assertEquals(searchResult.getEntryCount(), 4);
+
+      assertTrue(searchListener.getSearchEntries().isEmpty());
+      assertTrue(conn.isConnected());
+    }
+    finally
+    {
+      conn.close();
+      listener.shutDown(true);
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that an in-progress search can be canceled when the
+   * listener is configured to allow concurrent operations per connection.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testCancelConcurrentSearch()
+         throws Exception
+  {
+    final InMemoryRequestHandler requestHandler = createRequestHandler();
+
+    final LDAPListenerConfig config = new LDAPListenerConfig(0,
+         requestHandler);
+    config.setMaxConcurrentOperationsPerConnection(2);
+
+    final LDAPListener listener = new LDAPListener(config);
+    listener.startListening();
+
+    final LDAPConnection conn =
+         new LDAPConnection("localhost", listener.getListenPort());
+
+    try
+    {
+      // There is no search in progress, so the cancel should be rejected.
+      ExtendedResult cancelResult =
+           conn.processExtendedOperation(new CancelExtendedRequest(12345));
+      assertEquals(cancelResult.getResultCode(), ResultCode.NO_SUCH_OPERATION);
+
+      requestHandler.setProcessingDelayMillis(2000L);
+      final AsyncRequestID requestID = conn.asyncSearch(new SearchRequest(
+           new BasicAsyncSearchResultListener(), "dc=example,dc=com",
+           SearchScope.SUB, "(objectClass=*)"));
+
+      // Give the search a chance to start before trying to cancel it.
+      Thread.sleep(500L);
+
+      cancelResult =
+           conn.processExtendedOperation(new CancelExtendedRequest(requestID));
+      assertEquals(cancelResult.getResultCode(), ResultCode.SUCCESS);
+
+      final LDAPResult searchResult = requestID.get();
+      assertEquals(searchResult.getResultCode(), ResultCode.CANCELED);
+      assertEquals(((SearchResult) searchResult).getEntryCount(), 0);
+    }
+    finally
+    {
+      requestHandler.setProcessingDelayMillis(0L);
+      conn.close();
+      listener.shutDown(true);
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that searches forwarded by the proxy request handler can
+   * be abandoned and canceled when the listener is configured to allow
+   * concurrent operations per connection.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testProxyAbandonAndCancel()
+         throws Exception
+  {
+    final InMemoryRequestHandler requestHandler = createRequestHandler();
+
+    final LDAPListenerConfig backendConfig = new LDAPListenerConfig(0,
+         requestHandler);
+    backendConfig.setMaxConcurrentOperationsPerConnection(4);
+
+    final LDAPListener backendListener = new LDAPListener(backendConfig);
+    backendListener.startListening();
+
+    final LDAPListenerConfig proxyConfig = new LDAPListenerConfig(0,
+         new ProxyRequestHandler(new SingleServerSet("localhost",
+              backendListener.getListenPort())));
+    proxyConfig.setMaxConcurrentOperationsPerConnection(2);
+
+    final LDAPListener proxyListener = new LDAPListener(proxyConfig);
+    proxyListener.startListening();
+
+    final LDAPConnection conn =
+         new LDAPConnection("localhost", proxyListener.getListenPort());
+
+    try
+    {
+      SearchResult searchResult = conn.search("dc=example,dc=com",
+           SearchScope.SUB, "(objectClass=*)");
+      assertEquals(searchResult.getResultCode(), ResultCode.SUCCESS);
+      assertEquals(searchResult.getEntryCount(), 4);
+
+      ExtendedResult cancelResult =
+           conn.processExtendedOperation(new CancelExtendedRequest(12345));
+      assertEquals(cancelResult.getResultCode(), ResultCode.NO_SUCH_OPERATION);
+
+      requestHandler.setProcessingDelayMillis(2000L);
+
+      final AsyncRequestID abandonedID = conn.asyncSearch(new SearchRequest(
+           new BasicAsyncSearchResultListener(), "dc=example,dc=com",
+           SearchScope.SUB, "(objectClass=*)"));
+      conn.abandon(abandonedID);
+
+      final AsyncRequestID canceledID = conn.asyncSearch(new SearchRequest(
+           new BasicAsyncSearchResultListener(), "dc=example,dc=com",
+           SearchScope.SUB, "(objectClass=*)"));
+
+      // Give the search a chance to start before trying to cancel it.
+      Thread.sleep(500L);
+
+      cancelResult =
+           conn.processExtendedOperation(new CancelExtendedRequest(canceledID));
+      assertEquals(cancelResult.getResultCode(), ResultCode.SUCCESS);
+      assertEquals(canceledID.get().getResultCode(), ResultCode.CANCELED);
+
+      requestHandler.setProcessingDelayMillis(0L);
+      searchResult = conn.search("dc=example,dc=com", SearchScope.SUB,
+           "(objectClass=*)");
+      assertEquals(searchResult.getResultCode(), ResultCode.SUCCESS);
+      assertEquals(searchResult.getEntryCount(), 4);
+    }
+    finally
+    {
+      requestHandler.setProcessingDelayMillis(0L);
+      conn.close();
+      proxyListener.shutDown(true);
+      backendListener.shutDown(true);
+    }
+  }
+
+
+
+  /**
+   * Creates an in-memory request handler with a small set of entries.
+   *
+   * @return  The in-memory request handler that was created.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static InMemoryRequestHandler createRequestHandler()
+          throws Exception
+  {
+    final InMemoryRequestHandler requestHandler = new InMemoryRequestHandler(
+         new InMemoryDirectoryServerConfig("dc=example,dc=com"));
+    requestHandler.addEntries(Arrays.<Entry>asList(
+         new Entry(
+              "dn: dc=example,dc=com",
+              "objectClass: top",
+              "objectClass: domain",
+              "dc: example"),
+         new Entry(
+              "dn: ou=People,dc=example,dc=com",
+              "objectClass: top",
+              "objectClass: organizationalUnit",
+              "ou: People"),
+         new Entry(
+              "dn: uid=test.1,ou=People,dc=example,dc=com",
+              "objectClass: top",
+              "objectClass: account",
+              "uid: test.1"),
+         new Entry(
+              "dn: uid=test.2,ou=People,dc=example,dc=com",
+              "objectClass: top",
+              "objectClass: account",
+              "uid: test.2")));
+    return requestHandler;
+  }
 }
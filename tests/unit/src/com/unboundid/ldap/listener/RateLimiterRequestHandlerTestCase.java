@@ -106,6 +106,53 @@ public final class RateLimiterRequestHandlerTestCase
 
 
 
+  /**
+   * Tests the behavior of the rate limiter when created with a specified rate
+   * per second and a burst size.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testRateLimiterCreatedWithRatePerSecondAndBurstSize()
+         throws Exception
+  {
+    final InMemoryDirectoryServerConfig inMemoryConfig =
+         new InMemoryDirectoryServerConfig("dc=example,dc=com");
+    inMemoryConfig.addAdditionalBindCredentials("cn=Directory Manager",
+         "password");
+    final InMemoryRequestHandler inMemoryRequestHandler =
+         new InMemoryRequestHandler(inMemoryConfig);
+
+    final RateLimiterRequestHandler rateLimiterRequestHandler =
+         new RateLimiterRequestHandler(inMemoryRequestHandler, 100, 10);
+
+    final LDAPListenerConfig listenerConfig =
+         new LDAPListenerConfig(0, rateLimiterRequestHandler);
+
+    final LDAPListener listener = new LDAPListener(listenerConfig);
+    listener.startListening();
+
+    final LDAPConnection conn = new LDAPConnection("127.0.0.1",
+         listener.getListenPort());
+    conn.bind("cn=Directory Manager", "password");
+
+    conn.add(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example");
+
+    conn.search("dc=example,dc=com", SearchScope.SUB, "(objectClass=*)");
+
+    conn.delete("dc=example,dc=com");
+
+    conn.close();
+
+    listener.shutDown(true);
+  }
+
+
+
   /**
    * Tests the behavior of the rate limiter when created with a fixed-rate
    * barrier for the default set of operation types.
@@ -461,6 +461,90 @@ public final class ReadOnlyInMemoryDirectoryServerConfigTestCase
     }
 
 
+    // Test methods related to presence index attributes.
+    assertNotNull(readOnlyConfig.getPresenceIndexAttributes());
+    assertTrue(readOnlyConfig.getPresenceIndexAttributes().isEmpty());
+
+    try
+    {
+      readOnlyConfig.setPresenceIndexAttributes("member");
+      fail("Expected an exception when trying to call " +
+           "setPresenceIndexAttributes");
+    }
+    catch (final UnsupportedOperationException e)
+    {
+      // This was expected
+    }
+
+    try
+    {
+      readOnlyConfig.setPresenceIndexAttributes(Arrays.asList(
+           "member", "uniqueMember", "owner", "seeAlso"));
+      fail("Expected an exception when trying to call " +
+           "setPresenceIndexAttributes");
+    }
+    catch (final UnsupportedOperationException e)
+    {
+      // This was expected
+    }
+
+
+    // Test methods related to substring index attributes.
+    assertNotNull(readOnlyConfig.getSubstringIndexAttributes());
+    assertTrue(readOnlyConfig.getSubstringIndexAttributes().isEmpty());
+
+    try
+    {
+      readOnlyConfig.setSubstringIndexAttributes("member");
+      fail("Expected an exception when trying to call " +
+           "setSubstringIndexAttributes");
+    }
+    catch (final UnsupportedOperationException e)
+    {
+      // This was expected
+    }
+
+    try
+    {
+      readOnlyConfig.setSubstringIndexAttributes(Arrays.asList(
+           "member", "uniqueMember", "owner", "seeAlso"));
+      fail("Expected an exception when trying to call " +
+           "setSubstringIndexAttributes");
+    }
+    catch (final UnsupportedOperationException e)
+    {
+      // This was expected
+    }
+
+
+    // Test methods related to ordering index attributes.
+    assertNotNull(readOnlyConfig.getOrderingIndexAttributes());
+    assertTrue(readOnlyConfig.getOrderingIndexAttributes().isEmpty());
+
+    try
+    {
+      readOnlyConfig.setOrderingIndexAttributes("member");
+      fail("Expected an exception when trying to call " +
+           "setOrderingIndexAttributes");
+    }
+    catch (final UnsupportedOperationException e)
+    {
+      // This was expected
+    }
+
+    try
+    {
+      readOnlyConfig.setOrderingIndexAttributes(Arrays.asList(
+           "member", "uniqueMember", "owner", "seeAlso"));
+      fail("Expected an exception when trying to call " +
+           "setOrderingIndexAttributes");
+    }
+    catch (final UnsupportedOperationException e)
+    {
+      // This was expected
+    }
+
+
     // Test methods related to referential integrity attributes.
     assertNotNull(readOnlyConfig.getReferentialIntegrityAttributes());
     assertTrue(readOnlyConfig.getReferentialIntegrityAttributes().isEmpty());
@@ -563,6 +647,9 @@ public final class ReadOnlyInMemoryDirectoryServerConfigTestCase
     config.setGenerateOperationalAttributes(false);
     config.setMaxChangeLogEntries(100);
     config.setEqualityIndexAttributes("uid", "cn");
+    config.setPresenceIndexAttributes("description");
+    config.setSubstringIndexAttributes("mail");
+    config.setOrderingIndexAttributes("createTimestamp");
     config.setReferentialIntegrityAttributes("member", "uniqueMember", "owner",
          "seeAlso");
 
@@ -956,6 +1043,27 @@ public final class ReadOnlyInMemoryDirectoryServerConfigTestCase
     assertTrue(readOnlyConfig.getEqualityIndexAttributes().contains("cn"));
 
 
+    // Test methods related to presence index attributes.
+    assertNotNull(readOnlyConfig.getPresenceIndexAttributes());
+    assertEquals(readOnlyConfig.getPresenceIndexAttributes().size(), 1);
+    assertTrue(readOnlyConfig.getPresenceIndexAttributes().contains(
+         "description"));
+
+
+    // Test methods related to substring index attributes.
+    assertNotNull(readOnlyConfig.getSubstringIndexAttributes());
+    assertEquals(readOnlyConfig.getSubstringIndexAttributes().size(), 1);
+    assertTrue(readOnlyConfig.getSubstringIndexAttributes().contains(
+         "mail"));
+
+
+    // Test methods related to ordering index attributes.
+    assertNotNull(readOnlyConfig.getOrderingIndexAttributes());
+    assertEquals(readOnlyConfig.getOrderingIndexAttributes().size(), 1);
+    assertTrue(readOnlyConfig.getOrderingIndexAttributes().contains(
+         "createTimestamp"));
+
+
     // Test methods related to referential integrity attributes.
     assertNotNull(readOnlyConfig.getReferentialIntegrityAttributes());
     assertFalse(readOnlyConfig.getReferentialIntegrityAttributes().isEmpty());
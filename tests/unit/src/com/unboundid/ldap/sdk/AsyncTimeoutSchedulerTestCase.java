@@ -0,0 +1,410 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedModifyRequest;
+import com.unboundid.ldap.listener.interceptor.InMemoryOperationInterceptor;
+
+
+
+/**
+ * This class provides a set of test cases for the async timeout scheduler.
+ */
+public final class AsyncTimeoutSchedulerTestCase
+       extends LDAPSDKTestCase
+{
+  /**
+   * Tests to ensure that a scheduled task will be invoked, and that it will not
+   * be invoked before its deadline.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testTaskInvoked()
+         throws Exception
+  {
+    final AsyncTimeoutScheduler scheduler =
+         new AsyncTimeoutScheduler("testTaskInvoked", 5L, 8);
+
+    final long startTime = System.nanoTime();
+    final TestTask task = new TestTask();
+    scheduler.schedule(task, 50L);
+    assertEquals(scheduler.getNumPendingTasks(), 1L);
+
+    assertTrue(task.latch.await(10L, TimeUnit.SECONDS));
+    assertTrue((task.invokeTime - startTime) >=
+         TimeUnit.MILLISECONDS.toNanos(50L));
+    assertTrue(task.isExpired());
+    assertFalse(task.isCancelled());
+    assertFalse(task.cancel());
+    assertEquals(task.count.get(), 1);
+    assertEquals(scheduler.getNumPendingTasks(), 0L);
+  }
+
+
+
+  /**
+   * Tests to ensure that tasks whose delays span multiple rotations of the
+   * wheel will be invoked at the correct time.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testMultipleRotations()
+         throws Exception
+  {
+    final AsyncTimeoutScheduler scheduler =
+         new AsyncTimeoutScheduler("testMultipleRotations", 1L, 4);
+
+    final long startTime = System.nanoTime();
+    final List<TestTask> tasks = new ArrayList<TestTask>(10);
+    for (int i=0; i < 10; i++)
+    {
+      final TestTask task = new TestTask();
+      tasks.add(task);
+      scheduler.schedule(task, (i * 7L));
+    }
+
+    for (int i=0; i < 10; i++)
+    {
+      final TestTask task = tasks.get(i);
+      assertTrue(task.latch.await(10L, TimeUnit.SECONDS));
+      assertTrue((task.invokeTime - startTime) >=
+           TimeUnit.MILLISECONDS.toNanos(i * 7L));
+      assertEquals(task.count.get(), 1);
+    }
+
+    assertEquals(scheduler.getNumPendingTasks(), 0L);
+  }
+
+
+
+  /**
+   * Tests to ensure that a cancelled task will not be invoked.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testCancel()
+         throws Exception
+  {
+    final AsyncTimeoutScheduler scheduler =
+         new AsyncTimeoutScheduler("testCancel", 1L, 16);
+
+    final TestTask cancelledTask = new TestTask();
+    scheduler.schedule(cancelledTask, 20L);
+
+    final TestTask invokedTask = new TestTask();
+    scheduler.schedule(invokedTask, 40L);
+    assertEquals(scheduler.getNumPendingTasks(), 2L);
+
+    assertTrue(cancelledTask.cancel());
+    assertTrue(cancelledTask.isCancelled());
+    assertFalse(cancelledTask.cancel());
+    assertEquals(scheduler.getNumPendingTasks(), 1L);
+
+    assertTrue(invokedTask.latch.await(10L, TimeUnit.SECONDS));
+    assertEquals(cancelledTask.count.get(), 0);
+    assertFalse(cancelledTask.isExpired());
+    assertEquals(scheduler.getNumPendingTasks(), 0L);
+  }
+
+
+
+  /**
+   * Tests the behavior when scheduling and cancelling a large number of tasks
+   * from multiple threads.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testManyTasks()
+         throws Exception
+  {
+    final AsyncTimeoutScheduler scheduler =
+         new AsyncTimeoutScheduler("testManyTasks", 1L, 64);
+
+    final AtomicInteger invokeCount = new AtomicInteger(0);
+    final Thread[] threads = new Thread[4];
+    for (int i=0; i < threads.length; i++)
+    {
+      threads[i] = new Thread()
+      {
+        @Override()
+        public void run()
+        {
+          for (int j=0; j < 10000; j++)
+          {
+            final AsyncTimeoutScheduler.Task task =
+                 new AsyncTimeoutScheduler.Task()
+                 {
+                   @Override()
+                   public void run()
+                   {
+                     invokeCount.incrementAndGet();
+                   }
+                 };
+
+            scheduler.schedule(task, (j % 100));
+            if ((j % 2) == 0)
+            {
+              task.cancel();
+            }
+          }
+        }
+      };
+      threads[i].start();
+    }
+
+    for (final Thread t : threads)
+    {
+      t.join();
+    }
+
+    final long stopTime = System.currentTimeMillis() + 10000L;
+    while ((scheduler.getNumPendingTasks() > 0L) &&
+           (System.currentTimeMillis() < stopTime))
+    {
+      Thread.sleep(10L);
+    }
+
+    assertEquals(scheduler.getNumPendingTasks(), 0L);
+    assertTrue(invokeCount.get() <= 40000);
+    assertTrue(invokeCount.get() >= 20000);
+  }
+
+
+
+  /**
+   * Tests to ensure that the scheduler continues to work properly after it has
+   * been idle.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testScheduleAfterIdle()
+         throws Exception
+  {
+    final AsyncTimeoutScheduler scheduler =
+         new AsyncTimeoutScheduler("testScheduleAfterIdle", 1L, 8);
+
+    final TestTask firstTask = new TestTask();
+    scheduler.schedule(firstTask, 0L);
+    assertTrue(firstTask.latch.await(10L, TimeUnit.SECONDS));
+
+    Thread.sleep(50L);
+
+    final long startTime = System.nanoTime();
+    final TestTask secondTask = new TestTask();
+    scheduler.schedule(secondTask, 20L);
+    assertTrue(secondTask.latch.await(10L, TimeUnit.SECONDS));
+    assertTrue((secondTask.invokeTime - startTime) >=
+         TimeUnit.MILLISECONDS.toNanos(20L));
+  }
+
+
+
+  /**
+   * Tests to ensure that a task cannot be scheduled more than once, and cannot
+   * be scheduled after it has been cancelled.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testInvalidSchedule()
+         throws Exception
+  {
+    final AsyncTimeoutScheduler scheduler =
+         new AsyncTimeoutScheduler("testInvalidSchedule", 10L, 8);
+
+    final TestTask task = new TestTask();
+    scheduler.schedule(task, 60000L);
+
+    try
+    {
+      scheduler.schedule(task, 60000L);
+      fail("Expected an exception when scheduling a task twice");
+    }
+    catch (final IllegalStateException ise)
+    {
+      // This was expected.
+    }
+
+    assertEquals(scheduler.getNumPendingTasks(), 1L);
+    assertTrue(task.cancel());
+    assertEquals(scheduler.getNumPendingTasks(), 0L);
+
+    final TestTask unscheduledTask = new TestTask();
+    assertTrue(unscheduledTask.cancel());
+
+    try
+    {
+      scheduler.schedule(unscheduledTask, 1L);
+      fail("Expected an exception when scheduling a cancelled task");
+    }
+    catch (final IllegalStateException ise)
+    {
+      // This was expected.
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that the process-wide scheduler is used to enforce the
+   * response timeout for an asynchronous operation.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testAsyncOperationTimeout()
+         throws Exception
+  {
+    final LDAPConnection conn = getTestDS().getConnection();
+
+    final ModifyRequest modifyRequest = new ModifyRequest(
+         "dc=example,dc=com",
+         new Modification(ModificationType.REPLACE, "description", "foo"));
+    modifyRequest.setResponseTimeoutMillis(60000L);
+
+    try
+    {
+      for (int i=0; i < 100; i++)
+      {
+        final AsyncRequestID requestID =
+             conn.asyncModify(modifyRequest.duplicate(), null);
+        assertFalse(
+             requestID.get().getResultCode().equals(ResultCode.TIMEOUT));
+        assertEquals(conn.getNumPendingAsyncTimeouts(), 0);
+      }
+    }
+    finally
+    {
+      conn.close();
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that the timeouts for any outstanding asynchronous
+   * operations are cancelled when the connection is closed.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testAsyncTimeoutCancelledOnClose()
+         throws Exception
+  {
+    final CountDownLatch modifyReceived = new CountDownLatch(1);
+    final CountDownLatch releaseModify = new CountDownLatch(1);
+
+    final InMemoryDirectoryServerConfig cfg =
+         new InMemoryDirectoryServerConfig("dc=example,dc=com");
+    cfg.addInMemoryOperationInterceptor(new InMemoryOperationInterceptor()
+    {
+      @Override()
+      public void processModifyRequest(
+                       final InMemoryInterceptedModifyRequest request)
+      {
+        modifyReceived.countDown();
+
+        try
+        {
+          releaseModify.await(60L, TimeUnit.SECONDS);
+        }
+        catch (final InterruptedException ie)
+        {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+
+    final InMemoryDirectoryServer ds = new InMemoryDirectoryServer(cfg);
+    ds.startListening();
+    final LDAPConnection conn = ds.getConnection();
+
+    try
+    {
+      final ModifyRequest modifyRequest = new ModifyRequest(
+           "dc=example,dc=com",
+           new Modification(ModificationType.REPLACE, "description", "foo"));
+      modifyRequest.setResponseTimeoutMillis(60000L);
+
+      final AsyncRequestID requestID = conn.asyncModify(modifyRequest, null);
+      assertTrue(modifyReceived.await(60L, TimeUnit.SECONDS));
+      assertEquals(conn.getNumPendingAsyncTimeouts(), 1);
+
+      conn.close();
+      assertEquals(conn.getNumPendingAsyncTimeouts(), 0);
+      assertFalse(requestID.get().getResultCode().equals(ResultCode.TIMEOUT));
+    }
+    finally
+    {
+      releaseModify.countDown();
+      conn.close();
+      ds.shutDown(true);
+    }
+  }
+
+
+
+  /**
+   * A task that records when it was invoked.
+   */
+  private static final class TestTask
+          extends AsyncTimeoutScheduler.Task
+  {
+    // The number of times this task has been invoked.
+    private final AtomicInteger count = new AtomicInteger(0);
+
+    // A latch that will be released when this task is invoked.
+    private final CountDownLatch latch = new CountDownLatch(1);
+
+    // The time this task was invoked.
+    private volatile long invokeTime = -1L;
+
+
+
+    /**
+     * Records that this task has been invoked.
+     */
+    @Override()
+    public void run()
+    {
+      invokeTime = System.nanoTime();
+      count.incrementAndGet();
+      latch.countDown();
+    }
+  }
+}
@@ -2066,6 +2066,221 @@ public class AttributeTestCase
 
 
 
+  /**
+   * Tests the behavior of the methods that look for matching values when the
+   * attribute has enough values for a hash set of normalized values to be used.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testManyDNValues()
+         throws Exception
+  {
+    final DistinguishedNameMatchingRule mr =
+         DistinguishedNameMatchingRule.getInstance();
+
+    final String[] values = new String[1000];
+    for (int i=0; i < values.length; i++)
+    {
+      values[i] = "uid=user." + i + ",ou=People,dc=example,dc=com";
+    }
+
+    Attribute a = new Attribute("member", mr, values);
+    assertEquals(a.size(), 1000);
+    assertTrue(a.hasValue("UID=User.0, ou=People, dc=example, dc=com"));
+    assertTrue(a.hasValue("uid=user.999,ou=people,dc=example,dc=com"));
+    assertFalse(a.hasValue("uid=user.1000,ou=People,dc=example,dc=com"));
+    assertFalse(a.hasValue("not a valid DN"));
+
+    // Make sure that the values can be checked with a different matching rule.
+    assertFalse(a.hasValue("UID=User.0,ou=People,dc=example,dc=com",
+         CaseExactStringMatchingRule.getInstance()));
+    assertTrue(a.hasValue("uid=user.0,ou=People,dc=example,dc=com",
+         CaseExactStringMatchingRule.getInstance()));
+    assertTrue(a.hasValue("UID=User.0,ou=People,dc=example,dc=com"));
+
+    // Merge in a set of values, some of which are already present.
+    a = Attribute.mergeAttributes(a, new Attribute("member", mr,
+         "UID=User.5,ou=People,dc=example,dc=com",
+         "uid=user.1000,ou=People,dc=example,dc=com",
+         "uid=user.1001,ou=People,dc=example,dc=com"));
+    assertEquals(a.size(), 1002);
+    assertTrue(a.hasValue("uid=user.5,ou=People,dc=example,dc=com"));
+    assertTrue(a.hasValue("uid=user.1000,ou=People,dc=example,dc=com"));
+    assertTrue(a.hasValue("UID=USER.1001,OU=PEOPLE,DC=EXAMPLE,DC=COM"));
+    assertEquals(a.getValues()[1000],
+         "uid=user.1000,ou=People,dc=example,dc=com");
+
+    // Remove a set of values, some of which are not present.
+    a = Attribute.removeValues(a, new Attribute("member", mr,
+         "UID=User.0,ou=People,dc=example,dc=com",
+         "uid=user.1001,ou=People,dc=example,dc=com",
+         "uid=user.5000,ou=People,dc=example,dc=com"));
+    assertEquals(a.size(), 1000);
+    assertFalse(a.hasValue("uid=user.0,ou=People,dc=example,dc=com"));
+    assertFalse(a.hasValue("uid=user.1001,ou=People,dc=example,dc=com"));
+    assertTrue(a.hasValue("uid=user.1,ou=People,dc=example,dc=com"));
+    assertEquals(a.getValues()[0], "uid=user.1,ou=People,dc=example,dc=com");
+
+    // Make sure that removing all values works as expected.
+    a = Attribute.removeValues(a, a);
+    assertEquals(a.size(), 0);
+    assertFalse(a.hasValue("uid=user.1,ou=People,dc=example,dc=com"));
+  }
+
+
+
+  /**
+   * Tests the behavior of the methods that look for matching values when the
+   * attribute has enough values for a hash set of normalized values to be used
+   * and some of the values cannot be normalized.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testManyValuesWithUnnormalizableValues()
+         throws Exception
+  {
+    final DistinguishedNameMatchingRule mr =
+         DistinguishedNameMatchingRule.getInstance();
+
+    final String[] values = new String[100];
+    for (int i=0; i < values.length; i++)
+    {
+      if ((i % 10) == 0)
+      {
+        values[i] = "invalid " + i;
+      }
+      else
+      {
+        values[i] = "cn=" + i;
+      }
+    }
+
+    Attribute a = new Attribute("member", mr, values);
+    assertTrue(a.hasValue("invalid 10"));
+    assertFalse(a.hasValue("INVALID 10"));
+    assertFalse(a.hasValue("invalid 11"));
+    assertTrue(a.hasValue("CN=11"));
+    assertFalse(a.hasValue("cn=10"));
+
+    a = Attribute.mergeAttributes(a,
+         new Attribute("member", mr, "invalid 20", "invalid 21", "CN=22"));
+    assertEquals(a.size(), 101);
+    assertTrue(a.hasValue("invalid 21"));
+
+    a = Attribute.removeValues(a,
+         new Attribute("member", mr, "invalid 30", "invalid 31", "CN=32"));
+    assertEquals(a.size(), 99);
+    assertFalse(a.hasValue("invalid 30"));
+    assertFalse(a.hasValue("cn=32"));
+    assertTrue(a.hasValue("invalid 40"));
+    assertTrue(a.hasValue("cn=33"));
+  }
+
+
+
+  /**
+   * Tests to ensure that the methods that look for matching values provide the
+   * same results for attributes with many values as they do for attributes
+   * with a small number of values.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testManyValuesConsistentWithFewValues()
+         throws Exception
+  {
+    final int numValues = Attribute.NORMALIZED_VALUE_SET_THRESHOLD * 2;
+    final String[] values = new String[numValues];
+    for (int i=0; i < numValues; i++)
+    {
+      values[i] = "Value  " + i;
+    }
+
+    final Attribute large = new Attribute("description", values);
+    final String[] candidates =
+    {
+      "value 0",
+      "VALUE  1",
+      " value 2 ",
+      "value 3x",
+      "value " + (numValues - 1),
+      "value " + numValues
+    };
+
+    for (final String c : candidates)
+    {
+      boolean linearMatch = false;
+      for (final String v : values)
+      {
+        if (new Attribute("description", v).hasValue(c))
+        {
+          linearMatch = true;
+          break;
+        }
+      }
+
+      assertEquals(large.hasValue(c), linearMatch, c);
+    }
+
+    final Attribute small = new Attribute("description", candidates);
+    assertEquals(Attribute.removeValues(large, small).size(),
+         (numValues - 4));
+    assertEquals(Attribute.mergeAttributes(large, small).size(),
+         (numValues + 2));
+    assertEquals(Attribute.mergeAttributes(small, large).size(),
+         (numValues + 2));
+    assertEquals(Attribute.removeValues(small, large).size(), 2);
+  }
+
+
+
+  /**
+   * Tests the behavior when applying modifications to an entry with an
+   * attribute that has a large number of values.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testModifyManyValues()
+         throws Exception
+  {
+    final Entry e = new Entry("cn=group,dc=example,dc=com");
+    e.addAttribute("objectClass", "top", "groupOfNames");
+    e.addAttribute("cn", "group");
+    for (int i=0; i < 1000; i++)
+    {
+      e.addAttribute("member", "uid=user." + i + ",dc=example,dc=com");
+    }
+
+    final Schema schema = Schema.getDefaultStandardSchema();
+    final Entry modified = Entry.applyModifications(e, false,
+         new Modification(ModificationType.ADD, "member",
+              "uid=user.1000,dc=example,dc=com"),
+         new Modification(ModificationType.DELETE, "member",
+              "UID=User.0,DC=Example,DC=Com"));
+    assertEquals(modified.getAttribute("member", schema).size(), 1000);
+    assertTrue(modified.hasAttributeValue("member",
+         "uid=user.1000,dc=example,dc=com"));
+    assertFalse(modified.hasAttributeValue("member",
+         "uid=user.0,dc=example,dc=com"));
+
+    try
+    {
+      Entry.applyModifications(e, false,
+           new Modification(ModificationType.ADD, "member",
+                "UID=User.10,DC=Example,DC=Com"));
+      fail("Expected an exception when adding an existing value");
+    }
+    catch (final LDAPException le)
+    {
+      assertEquals(le.getResultCode(), ResultCode.ATTRIBUTE_OR_VALUE_EXISTS);
+    }
+  }
+
+
+
   /**
    * Provides a set of test values for the {@code testBase64} method.
    *
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.unboundid.ldap.sdk.schema.Schema;
+
+
+
+/**
+ * This class provides a set of test cases for the CompiledFilter class.
+ */
+public class CompiledFilterTestCase
+       extends LDAPSDKTestCase
+{
+  /**
+   * Retrieves a set of entries that may be used for testing.
+   *
+   * @return  A set of entries that may be used for testing.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static List<Entry> getTestEntries()
+          throws Exception
+  {
+    final List<Entry> entries = new ArrayList<Entry>(10);
+
+    entries.add(new Entry(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example"));
+    entries.add(new Entry(
+         "dn: ou=People,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: People",
+         "description: The People Container"));
+    entries.add(new Entry(
+         "dn: uid=john.doe,ou=People,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: person",
+         "objectClass: organizationalPerson",
+         "objectClass: inetOrgPerson",
+         "uid: john.doe",
+         "givenName: John",
+         "sn: Doe",
+         "cn: John Doe",
+         "commonName: Johnny Doe",
+         "mail: john.doe@example.com",
+         "telephoneNumber: +1 512 555 1234",
+         "employeeNumber: 12",
+         "manager: uid=jane.doe,ou=People,dc=example,dc=com",
+         "createTimestamp: 20170101120000Z",
+         "description;lang-en: An English description"));
+    entries.add(new Entry(
+         "dn: uid=jane.doe,ou=People,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: person",
+         "objectClass: organizationalPerson",
+         "objectClass: inetOrgPerson",
+         "uid: jane.doe",
+         "givenName: Jane",
+         "sn: Doe",
+         "cn: Jane Doe",
+         "telephoneNumber: 5125555678",
+         "employeeNumber: 9",
+         "manager: UID=John.Doe, OU=People, DC=Example, DC=Com",
+         "createTimestamp: 20170615083000.000Z"));
+    entries.add(new Entry(
+         "dn: cn=Group,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: groupOfNames",
+         "cn: Group",
+         "member: uid=john.doe,ou=People,dc=example,dc=com",
+         "member: not a valid DN"));
+
+    final Entry largeGroup = new Entry(
+         "dn: cn=Large Group,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: groupOfNames",
+         "cn: Large Group");
+    final String[] members = new String[100];
+    for (int i=0; i < members.length; i++)
+    {
+      members[i] = "uid=user." + i + ",ou=People,dc=example,dc=com";
+    }
+    largeGroup.addAttribute("member", members);
+    entries.add(largeGroup);
+
+    return entries;
+  }
+
+
+
+  /**
+   * Retrieves a set of filters that may be used for testing.
+   *
+   * @return  A set of filters that may be used for testing.
+   */
+  @DataProvider(name="testFilters")
+  public Object[][] getTestFilters()
+  {
+    return new Object[][]
+    {
+      new Object[] { "(&)" },
+      new Object[] { "(|)" },
+      new Object[] { "(objectClass=*)" },
+      new Object[] { "(objectClass=person)" },
+      new Object[] { "(OBJECTCLASS=PERSON)" },
+      new Object[] { "(!(objectClass=person))" },
+      new Object[] { "(uid=john.doe)" },
+      new Object[] { "(cn=*)" },
+      new Object[] { "(commonName=*)" },
+      new Object[] { "(cn=john doe)" },
+      new Object[] { "(commonName=  JOHN   DOE )" },
+      new Object[] { "(2.5.4.3=Jane Doe)" },
+      new Object[] { "(cn=J*)" },
+      new Object[] { "(cn=*doe)" },
+      new Object[] { "(cn=*o*n*)" },
+      new Object[] { "(cn=j*n*d*e)" },
+      new Object[] { "(cn=*x*)" },
+      new Object[] { "(description=*)" },
+      new Object[] { "(description;lang-en=*english*)" },
+      new Object[] { "(description;lang-en=*)" },
+      new Object[] { "(telephoneNumber=+15125551234)" },
+      new Object[] { "(telephoneNumber=512-555-5678)" },
+      new Object[] { "(telephoneNumber=*555*)" },
+      new Object[] { "(employeeNumber>=10)" },
+      new Object[] { "(employeeNumber<=10)" },
+      new Object[] { "(createTimestamp>=20170301000000Z)" },
+      new Object[] { "(createTimestamp<=20170301000000Z)" },
+      new Object[] { "(createTimestamp=20170615083000Z)" },
+      new Object[] { "(manager=uid=john.doe,ou=people,dc=example,dc=com)" },
+      new Object[] { "(manager=uid=jane.doe,ou=people,dc=example,dc=com)" },
+      new Object[] { "(member=uid=john.doe,ou=people,dc=example,dc=com)" },
+      new Object[] { "(member=UID=User.50,OU=People,DC=Example,DC=Com)" },
+      new Object[] { "(member=uid=user.500,ou=People,dc=example,dc=com)" },
+      new Object[] { "(member=not a valid DN)" },
+      new Object[] { "(member=*User.5*)" },
+      new Object[] { "(&(objectClass=person)(sn=doe)(givenName=J*))" },
+      new Object[] { "(&(cn=*doe)(uid=jane.doe))" },
+      new Object[] { "(|(cn=*jane*)(uid=john.doe))" },
+      new Object[] { "(|(sn=smith)(!(objectClass=person)))" },
+      new Object[] { "(&(|(uid=jane.doe)(uid=john.doe))(!(cn=*jane*)))" },
+      new Object[] { "(&(uid=nobody)(cn~=john))" },
+      new Object[] { "(|(uid=john.doe)(cn:=john))" },
+      new Object[] { "(cn~=john)" },
+      new Object[] { "(cn:caseExactMatch:=John Doe)" }
+    };
+  }
+
+
+
+  /**
+   * Tests to ensure that a compiled filter provides the same results as the
+   * filter from which it was created, both with and without a schema.
+   *
+   * @param  filterString  The string representation of the filter to test.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(dataProvider="testFilters")
+  public void testConsistentWithFilter(final String filterString)
+         throws Exception
+  {
+    final Filter filter = Filter.create(filterString);
+    final Schema schema = Schema.getDefaultStandardSchema();
+
+    for (final Schema s : new Schema[] { null, schema })
+    {
+      final CompiledFilter compiledFilter = filter.compile(s);
+      assertSame(compiledFilter.getFilter(), filter);
+      assertSame(compiledFilter.getSchema(), s);
+      assertNotNull(compiledFilter.toString());
+
+      for (final Entry e : getTestEntries())
+      {
+        Boolean expected;
+        try
+        {
+          expected = filter.matchesEntry(e, s);
+        }
+        catch (final LDAPException le)
+        {
+          expected = null;
+        }
+
+        Boolean compiledResult;
+        try
+        {
+          compiledResult = compiledFilter.matchesEntry(e);
+        }
+        catch (final LDAPException le)
+        {
+          compiledResult = null;
+        }
+
+        assertEquals(compiledResult, expected,
+             "Filter " + filterString + " with schema " + (s != null) +
+                  " for entry " + e.getDN());
+      }
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that the components of AND and OR filters will be
+   * evaluated so that cheaper components come first.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testComponentOrdering()
+         throws Exception
+  {
+    final CompiledFilter compiledFilter = Filter.create(
+         "(&(cn=*doe*)(|(sn>=a)(sn=doe))(!(uid=x))(objectClass=*)(sn=doe)" +
+              "(cn~=doe))").compile(null);
+    assertEquals(compiledFilter.toString(),
+         "(&(objectClass=*)(sn=doe)(!(uid=x))(cn=*doe*)(|(sn=doe)(sn>=a))" +
+              "(cn~=doe))");
+    assertEquals(compiledFilter.getFilter().toString(),
+         "(&(cn=*doe*)(|(sn>=a)(sn=doe))(!(uid=x))(objectClass=*)(sn=doe)" +
+              "(cn~=doe))");
+  }
+
+
+
+  /**
+   * Tests the behavior for a filter that cannot be evaluated because it uses
+   * approximate matching.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions={ LDAPException.class })
+  public void testApproximateMatch()
+         throws Exception
+  {
+    Filter.create("(cn~=john)").compile(null).matchesEntry(
+         getTestEntries().get(2));
+  }
+
+
+
+  /**
+   * Tests to ensure that an unnormalizable assertion value will result in the
+   * same exception that would be thrown by the filter.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testInvalidAssertionValue()
+         throws Exception
+  {
+    final Schema schema = Schema.getDefaultStandardSchema();
+    final Filter filter = Filter.create("(manager=invalid)");
+    final Entry e = getTestEntries().get(2);
+
+    try
+    {
+      filter.matchesEntry(e, schema);
+      fail("Expected an exception from the filter");
+    }
+    catch (final LDAPException le)
+    {
+      try
+      {
+        filter.compile(schema).matchesEntry(e);
+        fail("Expected an exception from the compiled filter");
+      }
+      catch (final LDAPException le2)
+      {
+        assertEquals(le2.getResultCode(), le.getResultCode());
+      }
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that a compiled filter can be used concurrently by
+   * multiple threads.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testConcurrentUse()
+         throws Exception
+  {
+    final CompiledFilter compiledFilter = Filter.create(
+         "(&(objectClass=person)(|(cn=*doe)(member=uid=user.5,ou=People," +
+              "dc=example,dc=com)))").compile(
+         Schema.getDefaultStandardSchema());
+    final List<Entry> entries = getTestEntries();
+
+    final List<Throwable> errors = new ArrayList<Throwable>(1);
+    final Thread[] threads = new Thread[4];
+    for (int i=0; i < threads.length; i++)
+    {
+      threads[i] = new Thread()
+      {
+        @Override()
+        public void run()
+        {
+          try
+          {
+            for (int j=0; j < 1000; j++)
+            {
+              int matches = 0;
+              for (final Entry e : entries)
+              {
+                if (compiledFilter.matchesEntry(e))
+                {
+                  matches++;
+                }
+              }
+
+              assertEquals(matches, 2);
+            }
+          }
+          catch (final Throwable t)
+          {
+            synchronized (errors)
+            {
+              errors.add(t);
+            }
+          }
+        }
+      };
+      threads[i].start();
+    }
+
+    for (final Thread t : threads)
+    {
+      t.join();
+    }
+
+    assertTrue(errors.isEmpty(), String.valueOf(errors));
+  }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.unboundid.asn1.ASN1Element;
+import com.unboundid.asn1.ASN1Sequence;
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.sdk.schema.Schema;
+
+
+
+/**
+ * This class provides a set of test cases for the encoded entry attributes
+ * class and for search result entries that are lazily decoded.
+ */
+public final class EncodedEntryAttributesTestCase
+       extends LDAPSDKTestCase
+{
+  /**
+   * Tests the behavior when retrieving individual attributes and then decoding
+   * all of them.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testGetAttributeAndDecodeAll()
+         throws Exception
+  {
+    final EncodedEntryAttributes encoded = new EncodedEntryAttributes(
+         encode(
+              new Attribute("objectClass", "top", "person"),
+              new Attribute("cn", "Test User"),
+              new Attribute("sn", "User"),
+              new Attribute("description", new byte[1000]),
+              new Attribute("CN", "Another Value")),
+         null);
+
+    assertEquals(encoded.getNumAttributes(), 5);
+    assertFalse(encoded.isFullyDecoded());
+
+    assertTrue(encoded.containsAttribute("objectclass"));
+    assertTrue(encoded.containsAttribute("cn"));
+    assertTrue(encoded.containsAttribute("description"));
+    assertFalse(encoded.containsAttribute("objectClass"));
+    assertFalse(encoded.containsAttribute("givenname"));
+
+    final Attribute sn = encoded.getAttribute("sn");
+    assertNotNull(sn);
+    assertEquals(sn, new Attribute("sn", "User"));
+    assertSame(encoded.getAttribute("sn"), sn);
+
+    assertNull(encoded.getAttribute("givenname"));
+
+    final Attribute cn = encoded.getAttribute("cn");
+    assertNotNull(cn);
+    assertEquals(cn.getValues().length, 2);
+    assertTrue(cn.hasValue("Test User"));
+    assertTrue(cn.hasValue("Another Value"));
+
+    final LinkedHashMap<String,Attribute> attrMap =
+         new LinkedHashMap<String,Attribute>(10);
+    encoded.decodeAll(attrMap);
+    assertTrue(encoded.isFullyDecoded());
+    assertEquals(new ArrayList<String>(attrMap.keySet()),
+         Arrays.asList("objectclass", "cn", "sn", "description"));
+    assertSame(attrMap.get("sn"), sn);
+    assertEquals(attrMap.get("description").getValueByteArray().length, 1000);
+
+    encoded.decodeAll(attrMap);
+    assertEquals(attrMap.size(), 4);
+  }
+
+
+
+  /**
+   * Tests the behavior with an empty set of attributes.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testNoAttributes()
+         throws Exception
+  {
+    final EncodedEntryAttributes encoded =
+         new EncodedEntryAttributes(new byte[0], null);
+    assertEquals(encoded.getNumAttributes(), 0);
+    assertFalse(encoded.containsAttribute("cn"));
+    assertNull(encoded.getAttribute("cn"));
+
+    final LinkedHashMap<String,Attribute> attrMap =
+         new LinkedHashMap<String,Attribute>(10);
+    encoded.decodeAll(attrMap);
+    assertTrue(attrMap.isEmpty());
+  }
+
+
+
+  /**
+   * Tests the behavior with malformed encoded attributes.
+   *
+   * @param  encodedAttributes  The malformed encoded attributes.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(dataProvider = "malformedAttributes",
+       expectedExceptions = { LDAPException.class })
+  public void testMalformedAttributes(final byte[] encodedAttributes)
+         throws Exception
+  {
+    new EncodedEntryAttributes(encodedAttributes, null);
+  }
+
+
+
+  /**
+   * Retrieves a set of malformed encoded attribute lists.
+   *
+   * @return  A set of malformed encoded attribute lists.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @DataProvider(name = "malformedAttributes")
+  public Object[][] getMalformedAttributes()
+         throws Exception
+  {
+    final byte[] valid = encode(new Attribute("cn", "Test User"));
+
+    return new Object[][]
+    {
+      new Object[] { new byte[] { 0x30 } },
+      new Object[] { new byte[] { 0x30, 0x05, 0x04, 0x01 } },
+      new Object[] { new byte[] { 0x30, (byte) 0x85, 0, 0, 0, 0, 0 } },
+      new Object[] { new byte[] { 0x30, 0x00 } },
+      new Object[] { new byte[] { 0x30, 0x03, 0x04, 0x01, 0x61 } },
+      new Object[] { new byte[] { 0x30, 0x06, 0x04, 0x01, 0x61, 0x31, 0x02,
+           0x04 } },
+      new Object[] { Arrays.copyOf(valid, valid.length - 1) },
+      new Object[] { Arrays.copyOf(valid, valid.length + 1) }
+    };
+  }
+
+
+
+  /**
+   * Tests to ensure that lazily-decoded search result entries read from a
+   * directory server are equivalent to those that are decoded immediately.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testLazilyDecodedSearchResultEntries()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, true);
+
+    final LDAPConnection eagerConn = ds.getConnection();
+
+    final LDAPConnectionOptions options = new LDAPConnectionOptions();
+    options.setLazilyDecodeSearchResultEntries(true);
+    final LDAPConnection lazyConn = ds.getConnection(options);
+
+    final SearchResult eagerResult = eagerConn.search("dc=example,dc=com",
+         SearchScope.SUB, "(objectClass=*)");
+    final SearchResult lazyResult = lazyConn.search("dc=example,dc=com",
+         SearchScope.SUB, "(objectClass=*)");
+    assertEquals(lazyResult.getEntryCount(), eagerResult.getEntryCount());
+    assertEquals(lazyResult.getEntryCount(), 3);
+
+    for (int i=0; i < eagerResult.getEntryCount(); i++)
+    {
+      final SearchResultEntry eagerEntry =
+           eagerResult.getSearchEntries().get(i);
+      final SearchResultEntry lazyEntry = lazyResult.getSearchEntries().get(i);
+
+      assertEquals(lazyEntry.getDN(), eagerEntry.getDN());
+      assertTrue(lazyEntry.hasAttribute("objectClass"));
+      assertTrue(lazyEntry.hasObjectClass("top"));
+      assertEquals(lazyEntry.getObjectClassAttribute(),
+           eagerEntry.getObjectClassAttribute());
+      assertEquals(lazyEntry.getAttributeValue("uid"),
+           eagerEntry.getAttributeValue("uid"));
+      assertFalse(lazyEntry.hasAttribute("undefined"));
+
+      assertEquals(lazyEntry, eagerEntry);
+      assertEquals(lazyEntry.hashCode(), eagerEntry.hashCode());
+      assertEquals(lazyEntry.getAttributes().size(),
+           eagerEntry.getAttributes().size());
+      assertEquals(lazyEntry.toLDIFString(), eagerEntry.toLDIFString());
+    }
+
+    final SearchResultEntry lazyUser =
+         lazyConn.getEntry("uid=test.user,ou=People,dc=example,dc=com");
+    assertNotNull(lazyUser);
+    assertEquals(lazyUser.getAttributeValue("givenName"), "Test");
+
+    final Entry duplicate = lazyUser.duplicate();
+    duplicate.addAttribute("description", "foo");
+    assertTrue(duplicate.hasAttributeValue("description", "foo"));
+    assertFalse(lazyUser.hasAttribute("description"));
+
+    eagerConn.close();
+    lazyConn.close();
+  }
+
+
+
+  /**
+   * Tests to ensure that the static methods that operate on multiple entries
+   * behave correctly for lazily-decoded search result entries whose attributes
+   * have not yet been decoded.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testMultiEntryMethodsWithLazilyDecodedEntries()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, true);
+
+    final LDAPConnectionOptions options = new LDAPConnectionOptions();
+    options.setLazilyDecodeSearchResultEntries(true);
+    final LDAPConnection lazyConn = ds.getConnection(options);
+
+    try
+    {
+      final Entry eagerEntry = new Entry(
+           "dn: dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: domain",
+           "dc: example");
+
+      assertTrue(Entry.diff(lazyConn.getEntry("dc=example,dc=com"),
+           eagerEntry, false).isEmpty());
+      assertTrue(Entry.diff(eagerEntry, lazyConn.getEntry("dc=example,dc=com"),
+           false).isEmpty());
+      assertTrue(Entry.diff(lazyConn.getEntry("dc=example,dc=com"),
+           lazyConn.getEntry("dc=example,dc=com"), false).isEmpty());
+
+      final Entry mergeSource = new Entry(
+           "dn: dc=example,dc=com",
+           "objectClass: top",
+           "description: foo");
+      final Entry merged = Entry.mergeEntries(mergeSource,
+           lazyConn.getEntry("dc=example,dc=com"));
+      assertTrue(merged.hasAttributeValue("objectClass", "domain"));
+      assertTrue(merged.hasAttributeValue("dc", "example"));
+      assertTrue(merged.hasAttributeValue("description", "foo"));
+
+      final Entry intersected = Entry.intersectEntries(
+           lazyConn.getEntry("dc=example,dc=com"), mergeSource);
+      assertEquals(intersected, new Entry(
+           "dn: dc=example,dc=com",
+           "objectClass: top"));
+    }
+    finally
+    {
+      lazyConn.close();
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that lazily-decoded search result entries use the schema
+   * when retrieving attributes by an alternate name.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testLazilyDecodedEntryWithSchema()
+         throws Exception
+  {
+    final Schema schema = Schema.getDefaultStandardSchema();
+    final EncodedEntryAttributes encoded = new EncodedEntryAttributes(
+         encode(
+              new Attribute("objectClass", "top", "person"),
+              new Attribute("2.5.4.3", "Test User"),
+              new Attribute("sn", "User")),
+         schema);
+
+    final ReadOnlyEntry e =
+         new ReadOnlyEntry("cn=Test User,dc=example,dc=com", schema, encoded);
+    assertTrue(e.hasAttribute("cn"));
+    assertNotNull(e.getAttribute("cn"));
+    assertTrue(e.hasAttributeValue("2.5.4.3", "test user"));
+    assertEquals(e.getAttribute("CN").getValue(), "Test User");
+    assertEquals(e.getAttributes().size(), 3);
+  }
+
+
+
+  /**
+   * Encodes the provided attributes in the form of the value of an LDAP
+   * attribute list sequence.
+   *
+   * @param  attributes  The attributes to encode.
+   *
+   * @return  The encoded attributes.
+   */
+  private static byte[] encode(final Attribute... attributes)
+  {
+    final List<ASN1Element> elements =
+         new ArrayList<ASN1Element>(attributes.length);
+    for (final Attribute a : attributes)
+    {
+      elements.add(a.encode());
+    }
+
+    return new ASN1Sequence(elements).getValue();
+  }
+}
@@ -609,6 +609,101 @@ public class LDAPConnectionOptionsTestCase
 
 
 
+  /**
+   * Tests the ability to get and set the options that control whether to use
+   * shared connection readers.
+   */
+  @Test()
+  public void testUseSharedConnectionReaders()
+  {
+    final LDAPConnectionOptions opts = new LDAPConnectionOptions();
+
+    assertFalse(opts.useSharedConnectionReaders());
+    assertEquals(opts.getSharedConnectionReaderThreadCount(),
+         LDAPConnectionOptions.DEFAULT_SHARED_CONNECTION_READER_THREAD_COUNT);
+    assertTrue(opts.getSharedConnectionReaderThreadCount() >= 1);
+    assertNotNull(opts.toString());
+
+    opts.setUseSharedConnectionReaders(true);
+    assertTrue(opts.useSharedConnectionReaders());
+    assertNotNull(opts.toString());
+
+    opts.setSharedConnectionReaderThreadCount(3);
+    assertEquals(opts.getSharedConnectionReaderThreadCount(), 3);
+    assertNotNull(opts.toString());
+
+    final LDAPConnectionOptions dup = opts.duplicate();
+    assertTrue(dup.useSharedConnectionReaders());
+    assertEquals(dup.getSharedConnectionReaderThreadCount(), 3);
+
+    opts.setSharedConnectionReaderThreadCount(0);
+    assertEquals(opts.getSharedConnectionReaderThreadCount(),
+         LDAPConnectionOptions.DEFAULT_SHARED_CONNECTION_READER_THREAD_COUNT);
+
+    opts.setUseSharedConnectionReaders(false);
+    assertFalse(opts.useSharedConnectionReaders());
+    assertNotNull(opts.toString());
+  }
+
+
+
+  /**
+   * Tests the ability to get and set the flag that controls whether to lazily
+   * decode search result entries.
+   */
+  @Test()
+  public void testLazilyDecodeSearchResultEntries()
+  {
+    final LDAPConnectionOptions opts = new LDAPConnectionOptions();
+
+    assertFalse(opts.lazilyDecodeSearchResultEntries());
+    assertNotNull(opts.toString());
+
+    opts.setLazilyDecodeSearchResultEntries(true);
+    assertTrue(opts.lazilyDecodeSearchResultEntries());
+    assertTrue(opts.duplicate().lazilyDecodeSearchResultEntries());
+    assertNotNull(opts.toString());
+
+    opts.setLazilyDecodeSearchResultEntries(false);
+    assertFalse(opts.lazilyDecodeSearchResultEntries());
+    assertFalse(opts.duplicate().lazilyDecodeSearchResultEntries());
+    assertNotNull(opts.toString());
+  }
+
+
+
+  /**
+   * Tests the ability to get and set the options that control write
+   * coalescing.
+   */
+  @Test()
+  public void testWriteCoalescing()
+  {
+    final LDAPConnectionOptions opts = new LDAPConnectionOptions();
+
+    assertFalse(opts.useWriteCoalescing());
+    assertEquals(opts.getWriteCoalescingMaxDelayMicros(), 0L);
+    assertNotNull(opts.toString());
+
+    opts.setUseWriteCoalescing(true);
+    opts.setWriteCoalescingMaxDelayMicros(5L);
+    assertTrue(opts.useWriteCoalescing());
+    assertEquals(opts.getWriteCoalescingMaxDelayMicros(), 5L);
+    assertTrue(opts.duplicate().useWriteCoalescing());
+    assertEquals(opts.duplicate().getWriteCoalescingMaxDelayMicros(), 5L);
+    assertTrue(opts.toString().contains("writeCoalescingMaxDelayMicros=5"));
+
+    opts.setWriteCoalescingMaxDelayMicros(-1L);
+    assertEquals(opts.getWriteCoalescingMaxDelayMicros(), 0L);
+
+    opts.setUseWriteCoalescing(false);
+    assertFalse(opts.useWriteCoalescing());
+    assertFalse(opts.duplicate().useWriteCoalescing());
+    assertNotNull(opts.toString());
+  }
+
+
+
   /**
    * Tests the ability to get and set the flag that controls whether to use
    * schema information when reading data from the server.
@@ -26,6 +26,10 @@ import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.util.ssl.SSLUtil;
+import com.unboundid.util.ssl.TrustAllTrustManager;
+
 
 
 /**
@@ -145,6 +149,14 @@ public class LDAPConnectionPoolStatisticsTestCase
     stats.incrementNumReleasedValid();
     assertEquals(stats.getNumReleasedValid(), 1L);
 
+    assertEquals(stats.getNumFullTLSHandshakes(), 0L);
+    stats.incrementNumFullTLSHandshakes();
+    assertEquals(stats.getNumFullTLSHandshakes(), 1L);
+
+    assertEquals(stats.getNumAbbreviatedTLSHandshakes(), 0L);
+    stats.incrementNumAbbreviatedTLSHandshakes();
+    assertEquals(stats.getNumAbbreviatedTLSHandshakes(), 1L);
+
 
     stats.reset();
 
@@ -160,6 +172,9 @@ public class LDAPConnectionPoolStatisticsTestCase
     assertEquals(stats.getNumFailedCheckouts(), 0L);
 
     assertEquals(stats.getNumReleasedValid(), 0L);
+
+    assertEquals(stats.getNumFullTLSHandshakes(), 0L);
+    assertEquals(stats.getNumAbbreviatedTLSHandshakes(), 0L);
   }
 
 
@@ -276,4 +291,123 @@ public class LDAPConnectionPoolStatisticsTestCase
 
     assertNotNull(stats.toString());
   }
+
+
+
+  /**
+   * Tests to ensure that response times for operations processed on
+   * connections in the pool are aggregated in the pool statistics.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testResponseTimeHistograms()
+         throws Exception
+  {
+    final LDAPConnectionPool pool = getTestDS().getConnectionPool(4);
+    final LDAPConnectionPoolStatistics stats =
+         pool.getConnectionPoolStatistics();
+
+    try
+    {
+      assertEquals(stats.getResponseTimeHistogram(null).getTotalCount(), 0L);
+
+      final LDAPConnection[] conns = new LDAPConnection[4];
+      for (int i=0; i < conns.length; i++)
+      {
+        conns[i] = pool.getConnection();
+      }
+
+      for (final LDAPConnection c : conns)
+      {
+        c.getEntry("dc=example,dc=com");
+        c.getEntry("dc=example,dc=com");
+        pool.releaseConnection(c);
+      }
+
+      final ResponseTimeHistogram searchHistogram =
+           stats.getResponseTimeHistogram(OperationType.SEARCH);
+      assertEquals(searchHistogram.getTotalCount(), 8L);
+      assertTrue(searchHistogram.getValueAtPercentile(99.9d) > 0L);
+      assertEquals(stats.getResponseTimeHistogram(
+           OperationType.ADD).getTotalCount(), 0L);
+
+      assertEquals(stats.getAndResetResponseTimeHistogram(
+           null).getTotalCount(), 8L);
+      assertEquals(stats.getResponseTimeHistogram(null).getTotalCount(), 0L);
+
+      pool.getEntry("dc=example,dc=com");
+      assertEquals(stats.getResponseTimeHistogram(null).getTotalCount(), 1L);
+
+      stats.reset();
+      assertEquals(stats.getResponseTimeHistogram(null).getTotalCount(), 0L);
+    }
+    finally
+    {
+      pool.close();
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that the pool statistics keep track of full and
+   * abbreviated TLS handshakes for connections created for use in the pool, and
+   * that a pool that prefers session resumption will resume the session when
+   * replacing a defunct connection.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testTLSHandshakes()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDSWithSSL(true, false);
+
+    final SSLUtil sslUtil = new SSLUtil(new TrustAllTrustManager());
+    final SingleServerSet serverSet = new SingleServerSet("localhost",
+         ds.getListenPort("LDAPS"), sslUtil.createSSLSocketFactory("TLSv1.2"));
+    final LDAPConnectionPool pool = new LDAPConnectionPool(serverSet, null, 1);
+    final LDAPConnectionPoolStatistics stats =
+         pool.getConnectionPoolStatistics();
+
+    try
+    {
+      assertFalse(pool.preferSessionResumption());
+      pool.setPreferSessionResumption(true);
+      assertTrue(pool.preferSessionResumption());
+
+      assertEquals(stats.getNumFullTLSHandshakes(), 1L);
+      assertEquals(stats.getNumAbbreviatedTLSHandshakes(), 0L);
+
+      final LDAPConnection conn = pool.getConnection();
+      assertNotNull(conn.getSSLSession());
+
+      final LDAPConnection newConn = pool.replaceDefunctConnection(conn);
+      assertNotNull(newConn.getEntry("dc=example,dc=com"));
+      pool.releaseConnection(newConn);
+
+      assertEquals(stats.getNumFullTLSHandshakes(), 1L);
+      assertEquals(stats.getNumAbbreviatedTLSHandshakes(), 1L);
+      assertTrue(stats.toString().contains("numFullTLSHandshakes="));
+      assertTrue(stats.toString().contains("numAbbreviatedTLSHandshakes="));
+    }
+    finally
+    {
+      pool.close();
+    }
+
+    final LDAPConnectionPool plainPool = getTestDS().getConnectionPool(1);
+    try
+    {
+      assertEquals(plainPool.getConnectionPoolStatistics().
+           getNumFullTLSHandshakes(), 0L);
+      assertEquals(plainPool.getConnectionPoolStatistics().
+           getNumAbbreviatedTLSHandshakes(), 0L);
+    }
+    finally
+    {
+      plainPool.close();
+    }
+  }
 }
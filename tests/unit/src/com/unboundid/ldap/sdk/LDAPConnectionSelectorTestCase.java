@@ -0,0 +1,491 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.InMemoryListenerConfig;
+import com.unboundid.ldap.sdk.extensions.StartTLSExtendedRequest;
+import com.unboundid.util.ssl.KeyStoreKeyManager;
+import com.unboundid.util.ssl.SSLUtil;
+import com.unboundid.util.ssl.TrustAllTrustManager;
+
+
+
+/**
+ * This class provides a set of test cases for connections that use shared
+ * selector threads to read responses from the server.
+ */
+public final class LDAPConnectionSelectorTestCase
+       extends LDAPSDKTestCase
+{
+  // The in-memory directory server instance that will be used for testing.
+  private InMemoryDirectoryServer ds = null;
+
+  // The SSL util that may be used to create client-side socket factories.
+  private SSLUtil clientSSLUtil = null;
+
+
+
+  /**
+   * Sets up an in-memory directory server instance for testing.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @BeforeClass()
+  public void setUp()
+         throws Exception
+  {
+    final File resourceDir = new File(System.getProperty("unit.resource.dir"));
+    final File serverKeyStore = new File(resourceDir, "server.keystore");
+
+    final SSLUtil serverSSLUtil = new SSLUtil(
+         new KeyStoreKeyManager(serverKeyStore, "password".toCharArray(),
+              "JKS", "server-cert"),
+         new TrustAllTrustManager());
+    clientSSLUtil = new SSLUtil(new TrustAllTrustManager());
+
+    final InMemoryDirectoryServerConfig cfg =
+         new InMemoryDirectoryServerConfig("dc=example,dc=com");
+    cfg.addAdditionalBindCredentials("cn=Directory Manager", "password");
+    cfg.setListenerConfigs(
+         InMemoryListenerConfig.createLDAPConfig("LDAP", null, 0,
+              serverSSLUtil.createSSLSocketFactory()),
+         InMemoryListenerConfig.createLDAPSConfig("LDAPS", null, 0,
+              serverSSLUtil.createSSLServerSocketFactory(),
+              clientSSLUtil.createSSLSocketFactory()));
+
+    ds = new InMemoryDirectoryServer(cfg);
+    ds.startListening();
+    ds.add(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example");
+  }
+
+
+
+  /**
+   * Cleans up after testing has completed.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @AfterClass()
+  public void cleanUp()
+         throws Exception
+  {
+    ds.shutDown(true);
+  }
+
+
+
+  /**
+   * Retrieves a set of connection options that will use shared connection
+   * readers.
+   *
+   * @return  A set of connection options that will use shared connection
+   *          readers.
+   */
+  private static LDAPConnectionOptions getSharedReaderOptions()
+  {
+    final LDAPConnectionOptions options = new LDAPConnectionOptions();
+    options.setUseSharedConnectionReaders(true);
+    options.setSharedConnectionReaderThreadCount(2);
+    return options;
+  }
+
+
+
+  /**
+   * Tests the behavior when processing a variety of operations, including
+   * operations with responses that are larger than the initial read buffer, on
+   * connections that use a shared selector thread.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testOperations()
+         throws Exception
+  {
+    final LDAPConnection conn = new LDAPConnection(getSharedReaderOptions(),
+         "localhost", ds.getListenPort("LDAP"));
+
+    final LDAPConnectionReader reader =
+         conn.getConnectionInternals(true).getConnectionReader();
+    assertNotNull(reader.getSocketChannel());
+    assertFalse(reader.isAlive());
+    assertTrue(LDAPConnectionSelector.getNumSelectorThreads() >= 1);
+
+    conn.bind("cn=Directory Manager", "password");
+
+    final char[] largeValue = new char[100000];
+    Arrays.fill(largeValue, 'x');
+    conn.add(
+         "dn: ou=Large,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: Large",
+         "description: " + new String(largeValue));
+
+    for (int i=0; i < 50; i++)
+    {
+      conn.add(
+           "dn: ou=test " + i + ",dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: organizationalUnit",
+           "ou: test " + i);
+    }
+
+    final SearchResult searchResult = conn.search("dc=example,dc=com",
+         SearchScope.SUB, "(objectClass=*)");
+    assertEquals(searchResult.getEntryCount(), 52);
+
+    final SearchResultEntry largeEntry =
+         conn.getEntry("ou=Large,dc=example,dc=com");
+    assertNotNull(largeEntry);
+    assertEquals(largeEntry.getAttributeValue("description").length(),
+         largeValue.length);
+
+    final List<AsyncRequestID> requestIDs = new ArrayList<AsyncRequestID>(50);
+    for (int i=0; i < 50; i++)
+    {
+      requestIDs.add(conn.asyncModify(new ModifyRequest(
+           "ou=test " + i + ",dc=example,dc=com",
+           new Modification(ModificationType.REPLACE, "description",
+                String.valueOf(i))), null));
+    }
+
+    for (final AsyncRequestID requestID : requestIDs)
+    {
+      assertEquals(requestID.get().getResultCode(), ResultCode.SUCCESS);
+    }
+
+    assertEquals(conn.getActiveOperationCount(), 0);
+    assertFalse(reader.isAlive());
+
+    conn.close();
+    assertFalse(conn.isConnected());
+    assertFalse(reader.getSocketChannel().isOpen());
+  }
+
+
+
+  /**
+   * Tests the behavior for a connection that is secured with StartTLS after
+   * having initially used a shared selector thread.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testStartTLS()
+         throws Exception
+  {
+    final LDAPConnection conn = new LDAPConnection(getSharedReaderOptions(),
+         "localhost", ds.getListenPort("LDAP"));
+
+    final LDAPConnectionReader reader =
+         conn.getConnectionInternals(true).getConnectionReader();
+    assertNotNull(reader.getSocketChannel());
+    assertFalse(reader.isAlive());
+
+    assertNotNull(conn.getRootDSE());
+
+    final ExtendedResult startTLSResult = conn.processExtendedOperation(
+         new StartTLSExtendedRequest(clientSSLUtil.createSSLContext()));
+    assertEquals(startTLSResult.getResultCode(), ResultCode.SUCCESS);
+
+    assertNull(reader.getSocketChannel());
+    assertTrue(reader.isAlive());
+
+    assertNotNull(conn.getRootDSE());
+    assertEquals(conn.bind("cn=Directory Manager", "password").getResultCode(),
+         ResultCode.SUCCESS);
+
+    conn.close();
+  }
+
+
+
+  /**
+   * Tests to ensure that a dedicated reader thread will be used for a
+   * connection whose socket is not backed by a channel.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSSLSocketFactoryUsesDedicatedThread()
+         throws Exception
+  {
+    final LDAPConnection conn = new LDAPConnection(
+         clientSSLUtil.createSSLSocketFactory(), getSharedReaderOptions(),
+         "localhost", ds.getListenPort("LDAPS"));
+
+    final LDAPConnectionReader reader =
+         conn.getConnectionInternals(true).getConnectionReader();
+    assertNull(reader.getSocketChannel());
+    assertTrue(reader.isAlive());
+
+    assertNotNull(conn.getRootDSE());
+
+    conn.close();
+  }
+
+
+
+  /**
+   * Tests to ensure that shared connection readers will not be used for a
+   * connection operating in synchronous mode.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSynchronousMode()
+         throws Exception
+  {
+    final LDAPConnectionOptions options = getSharedReaderOptions();
+    options.setUseSynchronousMode(true);
+
+    final LDAPConnection conn = new LDAPConnection(options, "localhost",
+         ds.getListenPort("LDAP"));
+
+    final LDAPConnectionReader reader =
+         conn.getConnectionInternals(true).getConnectionReader();
+    assertNull(reader.getSocketChannel());
+    assertFalse(reader.isAlive());
+
+    assertNotNull(conn.getRootDSE());
+
+    conn.close();
+  }
+
+
+
+  /**
+   * Tests to ensure that a search result listener that blocks, and that
+   * processes an operation on another connection, does not prevent responses
+   * from being delivered for other connections that are managed by the same
+   * selector thread.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testBlockedListenerDoesNotBlockOtherConnections()
+         throws Exception
+  {
+    // Use a single selector thread so that both connections will share it.
+    // A response timeout ensures that a blocked delivery will fail rather
+    // than hang.
+    final LDAPConnectionOptions options = getSharedReaderOptions();
+    options.setSharedConnectionReaderThreadCount(1);
+    options.setResponseTimeoutMillis(30000L);
+
+    final InMemoryDirectoryServerConfig cfg =
+         new InMemoryDirectoryServerConfig("dc=example,dc=com");
+    final InMemoryDirectoryServer server = new InMemoryDirectoryServer(cfg);
+    server.startListening();
+    server.add(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example");
+
+    // Add enough entries that the selector thread will need to stop reading
+    // from the first connection while its listener is blocked.
+    for (int i=0; i < 1000; i++)
+    {
+      server.add(
+           "dn: cn=entry " + i + ",dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: device",
+           "cn: entry " + i);
+    }
+
+    final LDAPConnection conn1 = new LDAPConnection(options, "localhost",
+         server.getListenPort());
+    final LDAPConnection conn2 = new LDAPConnection(options, "localhost",
+         server.getListenPort());
+
+    final CountDownLatch listenerBlocked = new CountDownLatch(1);
+    final CountDownLatch releaseListener = new CountDownLatch(1);
+    final AtomicReference<SearchResultEntry> otherConnEntry =
+         new AtomicReference<SearchResultEntry>();
+    final AtomicInteger entriesReturned = new AtomicInteger(0);
+    final AsyncSearchResultListener listener = new AsyncSearchResultListener()
+    {
+      public void searchEntryReturned(final SearchResultEntry searchEntry)
+      {
+        if (entriesReturned.incrementAndGet() == 1)
+        {
+          try
+          {
+            otherConnEntry.set(conn2.getEntry("dc=example,dc=com"));
+            listenerBlocked.countDown();
+            releaseListener.await(30L, TimeUnit.SECONDS);
+          }
+          catch (final Exception e)
+          {
+            // The assertions below will fail.
+          }
+        }
+      }
+
+      public void searchReferenceReturned(
+                       final SearchResultReference searchReference)
+      {
+        // No implementation required.
+      }
+
+      public void searchResultReceived(final AsyncRequestID requestID,
+                                       final SearchResult searchResult)
+      {
+        // No implementation required.
+      }
+    };
+
+    final AsyncRequestID requestID = conn1.asyncSearch(new SearchRequest(
+         listener, "dc=example,dc=com", SearchScope.ONE,
+         Filter.createPresenceFilter("objectClass")));
+
+    assertTrue(listenerBlocked.await(30L, TimeUnit.SECONDS));
+    assertNotNull(otherConnEntry.get());
+
+    // While the first connection's listener is blocked, the second connection
+    // must still get its responses.
+    for (int i=0; i < 20; i++)
+    {
+      assertEquals(conn2.search("dc=example,dc=com", SearchScope.BASE,
+           "(objectClass=*)").getEntryCount(), 1);
+    }
+    assertFalse(requestID.isDone());
+
+    releaseListener.countDown();
+    final LDAPResult result = requestID.get(30L, TimeUnit.SECONDS);
+    assertEquals(result.getResultCode(), ResultCode.SUCCESS);
+    assertEquals(entriesReturned.get(), 1000);
+
+    conn1.close();
+    conn2.close();
+    server.shutDown(true);
+  }
+
+
+
+  /**
+   * Tests the behavior when the server closes a connection that is using a
+   * shared selector thread.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testServerClosesConnection()
+         throws Exception
+  {
+    final InMemoryDirectoryServerConfig cfg =
+         new InMemoryDirectoryServerConfig("dc=example,dc=com");
+    final InMemoryDirectoryServer server = new InMemoryDirectoryServer(cfg);
+    server.startListening();
+
+    final LDAPConnection conn = new LDAPConnection(getSharedReaderOptions(),
+         "localhost", server.getListenPort());
+    assertNotNull(conn.getRootDSE());
+
+    server.closeAllConnections(false);
+
+    for (int i=0; i < 100; i++)
+    {
+      if (! conn.isConnected())
+      {
+        break;
+      }
+
+      Thread.sleep(10L);
+    }
+
+    assertFalse(conn.isConnected());
+    assertNotNull(conn.getDisconnectType());
+
+    conn.close();
+    server.shutDown(true);
+  }
+
+
+
+  /**
+   * Tests the method used to determine the length of an encoded message.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testGetMessageLength()
+         throws Exception
+  {
+    assertEquals(LDAPConnectionSelector.getMessageLength(
+         ByteBuffer.wrap(new byte[0]), 100), -1);
+    assertEquals(LDAPConnectionSelector.getMessageLength(
+         ByteBuffer.wrap(new byte[] { 0x30 }), 100), -1);
+    assertEquals(LDAPConnectionSelector.getMessageLength(
+         ByteBuffer.wrap(new byte[] { 0x30, 0x05 }), 100), 7);
+    assertEquals(LDAPConnectionSelector.getMessageLength(
+         ByteBuffer.wrap(new byte[] { 0x30, (byte) 0x82, 0x01 }), 1000), -1);
+    assertEquals(LDAPConnectionSelector.getMessageLength(
+         ByteBuffer.wrap(new byte[] { 0x30, (byte) 0x82, 0x01, 0x00 }), 1000),
+         260);
+
+    try
+    {
+      LDAPConnectionSelector.getMessageLength(
+           ByteBuffer.wrap(new byte[] { 0x30, (byte) 0x82, 0x01, 0x00 }), 100);
+      fail("Expected an exception for a message that is too large");
+    }
+    catch (final LDAPException le)
+    {
+      assertEquals(le.getResultCode(), ResultCode.DECODING_ERROR);
+    }
+
+    try
+    {
+      LDAPConnectionSelector.getMessageLength(
+           ByteBuffer.wrap(new byte[] { 0x30, (byte) 0x85, 0x01 }), 100);
+      fail("Expected an exception for an invalid number of length bytes");
+    }
+    catch (final LDAPException le)
+    {
+      assertEquals(le.getResultCode(), ResultCode.DECODING_ERROR);
+    }
+  }
+}
@@ -830,4 +830,71 @@ public class LDAPConnectionStatisticsTestCase
 
     conn.close();
   }
+
+
+
+  /**
+   * Tests to ensure that response time histograms are properly maintained.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testResponseTimeHistograms()
+         throws Exception
+  {
+    final LDAPConnection conn = getTestDS().getConnection();
+    final LDAPConnectionStatistics stats = conn.getConnectionStatistics();
+
+    try
+    {
+      assertEquals(stats.getResponseTimeHistogram(null).getTotalCount(), 0L);
+
+      for (int i=0; i < 10; i++)
+      {
+        conn.getEntry("dc=example,dc=com");
+      }
+
+      // The compare will fail because the entry does not exist, but its
+      // response time should still be recorded.
+      try
+      {
+        conn.compare("dc=example,dc=com", "dc", "example");
+      }
+      catch (final LDAPException le)
+      {
+        assertEquals(le.getResultCode(), ResultCode.NO_SUCH_OBJECT);
+      }
+
+      final ResponseTimeHistogram searchHistogram =
+           stats.getResponseTimeHistogram(OperationType.SEARCH);
+      assertEquals(searchHistogram.getTotalCount(), 10L);
+      assertTrue(searchHistogram.getValueAtPercentile(99.0d) > 0L);
+      assertTrue(searchHistogram.getMaxValue() >=
+           searchHistogram.getValueAtPercentile(50.0d));
+
+      assertEquals(stats.getResponseTimeHistogram(
+           OperationType.COMPARE).getTotalCount(), 1L);
+      assertEquals(stats.getResponseTimeHistogram(
+           OperationType.MODIFY).getTotalCount(), 0L);
+      assertEquals(stats.getResponseTimeHistogram(null).getTotalCount(), 11L);
+
+      // Make sure that interval snapshots only include operations completed
+      // since the previous snapshot.
+      assertEquals(stats.getAndResetResponseTimeHistogram(
+           OperationType.SEARCH).getTotalCount(), 10L);
+      assertEquals(stats.getAndResetResponseTimeHistogram(
+           OperationType.SEARCH).getTotalCount(), 0L);
+      conn.getEntry("dc=example,dc=com");
+      assertEquals(stats.getAndResetResponseTimeHistogram(
+           OperationType.SEARCH).getTotalCount(), 1L);
+      assertEquals(stats.getResponseTimeHistogram(null).getTotalCount(), 1L);
+
+      stats.reset();
+      assertEquals(stats.getResponseTimeHistogram(null).getTotalCount(), 0L);
+    }
+    finally
+    {
+      conn.close();
+    }
+  }
 }
@@ -0,0 +1,667 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.security.sasl.Sasl;
+import javax.security.sasl.SaslClient;
+import javax.security.sasl.SaslException;
+
+import org.testng.annotations.Test;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+
+
+
+/**
+ * This class provides a set of test cases for the
+ * {@code LDAPConnectionWriteCoalescer} class.
+ */
+public final class LDAPConnectionWriteCoalescerTestCase
+       extends LDAPSDKTestCase
+{
+  /**
+   * Tests the behavior when writing requests from a single thread.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSingleThread()
+         throws Exception
+  {
+    final LDAPConnectionWriteCoalescer coalescer =
+         new LDAPConnectionWriteCoalescer(0L);
+    final CountingOutputStream os = new CountingOutputStream();
+
+    coalescer.write(new byte[] { 0x01, 0x02 }, os, null);
+    coalescer.write(new byte[] { 0x03 }, os, null);
+
+    assertEquals(os.toByteArray(), new byte[] { 0x01, 0x02, 0x03 });
+    assertEquals(os.numFlushes, 2);
+    assertEquals(coalescer.getNumRequests(), 2L);
+    assertEquals(coalescer.getNumBatches(), 2L);
+  }
+
+
+
+  /**
+   * Tests the behavior when writing requests concurrently from multiple
+   * threads, with and without an added delay.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testMultipleThreads()
+         throws Exception
+  {
+    for (final long maxDelayMicros : new long[] { 0L, 5L })
+    {
+      final LDAPConnectionWriteCoalescer coalescer =
+           new LDAPConnectionWriteCoalescer(maxDelayMicros);
+      final CountingOutputStream os = new CountingOutputStream();
+      final AtomicReference<Throwable> failure =
+           new AtomicReference<Throwable>();
+
+      final Thread[] threads = new Thread[8];
+      for (int i=0; i < threads.length; i++)
+      {
+        final int threadNumber = i;
+        threads[i] = new Thread()
+        {
+          @Override()
+          public void run()
+          {
+            try
+            {
+              for (int j=0; j < 1000; j++)
+              {
+                coalescer.write(
+                     ByteBuffer.allocate(8).putInt(threadNumber).
+                          putInt(j).array(),
+                     os, null);
+              }
+            }
+            catch (final Throwable t)
+            {
+              failure.compareAndSet(null, t);
+            }
+          }
+        };
+        threads[i].start();
+      }
+
+      for (final Thread t : threads)
+      {
+        t.join();
+      }
+
+      assertNull(failure.get());
+      assertEquals(coalescer.getNumRequests(), 8000L);
+      assertEquals(os.numFlushes, coalescer.getNumBatches());
+      assertTrue(coalescer.getNumBatches() <= 8000L);
+
+
+      // Make sure that every request was written intact, and that the requests
+      // from each thread were written in order.
+      final ByteBuffer written = ByteBuffer.wrap(os.toByteArray());
+      assertEquals(written.remaining(), 64000);
+
+      final int[] nextSequence = new int[threads.length];
+      while (written.hasRemaining())
+      {
+        final int threadNumber = written.getInt();
+        final int sequence = written.getInt();
+        assertEquals(sequence, nextSequence[threadNumber]);
+        nextSequence[threadNumber]++;
+      }
+    }
+  }
+
+
+
+  /**
+   * Tests the behavior when a problem is encountered while writing.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testWriteFailure()
+         throws Exception
+  {
+    final LDAPConnectionWriteCoalescer coalescer =
+         new LDAPConnectionWriteCoalescer(0L);
+
+    final OutputStream os = new OutputStream()
+    {
+      @Override()
+      public void write(final int b)
+             throws IOException
+      {
+        throw new IOException("write failure");
+      }
+    };
+
+    try
+    {
+      coalescer.write(new byte[] { 0x01 }, os, null);
+      fail("Expected an exception when the write failed");
+    }
+    catch (final IOException ioe)
+    {
+      assertEquals(ioe.getMessage(), "write failure");
+    }
+
+    assertEquals(coalescer.getNumBatches(), 1L);
+  }
+
+
+
+  /**
+   * Tests the behavior when writing requests that need to be wrapped by a SASL
+   * client.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSASLWrapped()
+         throws Exception
+  {
+    final TestSaslClient saslClient = new TestSaslClient("10");
+    assertEquals(LDAPConnectionWriteCoalescer.getMaxRawSendSize(saslClient),
+         10);
+    assertEquals(
+         LDAPConnectionWriteCoalescer.getMaxRawSendSize(
+              new TestSaslClient(null)),
+         0);
+
+    final LDAPConnectionWriteCoalescer coalescer =
+         new LDAPConnectionWriteCoalescer(0L);
+    final CountingOutputStream os = new CountingOutputStream();
+
+    coalescer.write(new byte[] { 0x01, 0x02, 0x03 }, os, saslClient);
+    coalescer.write(new byte[20], os, saslClient);
+
+    final ByteBuffer written = ByteBuffer.wrap(os.toByteArray());
+    assertEquals(written.getInt(), 3);
+    assertEquals(written.get(), (byte) 0x01);
+    assertEquals(written.get(), (byte) 0x02);
+    assertEquals(written.get(), (byte) 0x03);
+    assertEquals(written.getInt(), 20);
+    written.position(written.position() + 20);
+    assertFalse(written.hasRemaining());
+    assertEquals(saslClient.wrapSizes.size(), 2);
+  }
+
+
+
+  /**
+   * Tests to ensure that queued requests will be combined into SASL-wrapped
+   * units that do not exceed the negotiated maximum raw send size.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSASLWrappedConcurrent()
+         throws Exception
+  {
+    final TestSaslClient saslClient = new TestSaslClient("64");
+    final LDAPConnectionWriteCoalescer coalescer =
+         new LDAPConnectionWriteCoalescer(5L);
+    final CountingOutputStream os = new CountingOutputStream();
+    final AtomicReference<Throwable> failure =
+         new AtomicReference<Throwable>();
+
+    final Thread[] threads = new Thread[4];
+    for (int i=0; i < threads.length; i++)
+    {
+      threads[i] = new Thread()
+      {
+        @Override()
+        public void run()
+        {
+          try
+          {
+            for (int j=0; j < 500; j++)
+            {
+              coalescer.write(new byte[10], os, saslClient);
+            }
+          }
+          catch (final Throwable t)
+          {
+            failure.compareAndSet(null, t);
+          }
+        }
+      };
+      threads[i].start();
+    }
+
+    for (final Thread t : threads)
+    {
+      t.join();
+    }
+
+    assertNull(failure.get());
+
+    int totalClearBytes = 0;
+    synchronized (saslClient.wrapSizes)
+    {
+      for (final Integer size : saslClient.wrapSizes)
+      {
+        assertTrue(size <= 64);
+        assertEquals((size % 10), 0);
+        totalClearBytes += size;
+      }
+    }
+
+    assertEquals(totalClearBytes, 20000);
+    assertEquals(os.toByteArray().length,
+         (20000 + (4 * saslClient.wrapSizes.size())));
+  }
+
+
+
+  /**
+   * Tests the use of write coalescing with a connection to an in-memory
+   * directory server that is shared by multiple threads.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testConnectionWithWriteCoalescing()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, true);
+
+    final LDAPConnectionOptions options = new LDAPConnectionOptions();
+    options.setUseWriteCoalescing(true);
+
+    final LDAPConnection conn =
+         new LDAPConnection(options, "localhost", ds.getListenPort());
+    final AtomicReference<Throwable> failure =
+         new AtomicReference<Throwable>();
+
+    try
+    {
+      final LDAPConnectionWriteCoalescer coalescer =
+           conn.getConnectionInternals(true).getWriteCoalescer();
+      assertNotNull(coalescer);
+
+      final Thread[] threads = new Thread[8];
+      for (int i=0; i < threads.length; i++)
+      {
+        threads[i] = new Thread()
+        {
+          @Override()
+          public void run()
+          {
+            try
+            {
+              final List<AsyncRequestID> requestIDs =
+                   new ArrayList<AsyncRequestID>(50);
+              for (int j=0; j < 50; j++)
+              {
+                requestIDs.add(conn.asyncSearch(new SearchRequest(
+                     new TestAsyncListener(), "dc=example,dc=com",
+                     SearchScope.SUB, "(objectClass=*)")));
+              }
+
+              for (final AsyncRequestID requestID : requestIDs)
+              {
+                final LDAPResult result = requestID.get();
+                if (result.getResultCode() != ResultCode.SUCCESS)
+                {
+                  throw new AssertionError(String.valueOf(result));
+                }
+              }
+            }
+            catch (final Throwable t)
+            {
+              failure.compareAndSet(null, t);
+            }
+          }
+        };
+        threads[i].start();
+      }
+
+      for (final Thread t : threads)
+      {
+        t.join();
+      }
+
+      assertNull(failure.get());
+      assertEquals(coalescer.getNumRequests(), 400L);
+      assertTrue(coalescer.getNumBatches() <= 400L);
+      assertNotNull(conn.getRootDSE());
+    }
+    finally
+    {
+      conn.close();
+    }
+
+
+    // Make sure that write coalescing is not used unless it is enabled.
+    final LDAPConnection defaultConn = ds.getConnection();
+    try
+    {
+      assertNull(defaultConn.getConnectionInternals(true).getWriteCoalescer());
+    }
+    finally
+    {
+      defaultConn.close();
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that a writing thread does not spin while waiting for
+   * additional requests to be queued, even if its interrupt flag is set, and
+   * that its interrupt status is preserved.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testDelayWithInterruptedWriter()
+         throws Exception
+  {
+    final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    final LDAPConnectionWriteCoalescer coalescer =
+         new LDAPConnectionWriteCoalescer(200000L);
+    final CountingOutputStream os = new CountingOutputStream();
+
+    Thread.currentThread().interrupt();
+    final long startCPUNanos = threadMXBean.getCurrentThreadCpuTime();
+    final long startNanos = System.nanoTime();
+    coalescer.write(new byte[] { 0x01 }, os, null);
+    final long elapsedNanos = System.nanoTime() - startNanos;
+    final long cpuNanos =
+         threadMXBean.getCurrentThreadCpuTime() - startCPUNanos;
+
+    assertTrue(Thread.interrupted());
+    assertEquals(os.toByteArray(), new byte[] { 0x01 });
+    assertTrue((elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(150L)),
+         "elapsedNanos=" + elapsedNanos);
+    assertTrue((cpuNanos < TimeUnit.MILLISECONDS.toNanos(100L)),
+         "cpuNanos=" + cpuNanos);
+  }
+
+
+
+  /**
+   * Tests to ensure that a sending thread does not spin while waiting for its
+   * request to be written by another thread, even if its interrupt flag is
+   * set, and that its interrupt status is preserved.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testWaitWithInterruptedSender()
+         throws Exception
+  {
+    final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    final LDAPConnectionWriteCoalescer coalescer =
+         new LDAPConnectionWriteCoalescer(0L);
+
+    final CountDownLatch writeStarted = new CountDownLatch(1);
+    final CountDownLatch releaseWrite = new CountDownLatch(1);
+    final ByteArrayOutputStream os = new ByteArrayOutputStream()
+    {
+      @Override()
+      public synchronized void write(final byte[] b)
+             throws IOException
+      {
+        super.write(b);
+        writeStarted.countDown();
+
+        try
+        {
+          releaseWrite.await(60L, TimeUnit.SECONDS);
+        }
+        catch (final InterruptedException ie)
+        {
+          throw new IOException(ie);
+        }
+      }
+    };
+
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    final Thread blockedWriter = new Thread()
+    {
+      @Override()
+      public void run()
+      {
+        try
+        {
+          coalescer.write(new byte[] { 0x01 }, os, null);
+        }
+        catch (final Throwable t)
+        {
+          failure.compareAndSet(null, t);
+        }
+      }
+    };
+    blockedWriter.start();
+    assertTrue(writeStarted.await(60L, TimeUnit.SECONDS));
+
+    final AtomicBoolean interruptPreserved = new AtomicBoolean(false);
+    final Thread interruptedSender = new Thread()
+    {
+      @Override()
+      public void run()
+      {
+        try
+        {
+          Thread.currentThread().interrupt();
+          coalescer.write(new byte[] { 0x02 }, os, null);
+          interruptPreserved.set(Thread.currentThread().isInterrupted());
+        }
+        catch (final Throwable t)
+        {
+          failure.compareAndSet(null, t);
+        }
+      }
+    };
+    interruptedSender.start();
+
+    Thread.sleep(200L);
+    final long cpuNanos =
+         threadMXBean.getThreadCpuTime(interruptedSender.getId());
+    releaseWrite.countDown();
+
+    blockedWriter.join();
+    interruptedSender.join();
+
+    assertNull(failure.get());
+    assertTrue(interruptPreserved.get());
+    assertEquals(os.toByteArray(), new byte[] { 0x01, 0x02 });
+    assertTrue((cpuNanos < TimeUnit.MILLISECONDS.toNanos(100L)),
+         "cpuNanos=" + cpuNanos);
+  }
+
+
+
+  /**
+   * An output stream that captures the data written to it and counts the
+   * number of times that it has been flushed.
+   */
+  private static final class CountingOutputStream
+          extends ByteArrayOutputStream
+  {
+    // The number of times this output stream has been flushed.
+    private volatile long numFlushes = 0L;
+
+
+
+    /**
+     * Increments the number of times this output stream has been flushed.
+     */
+    @Override()
+    public void flush()
+    {
+      numFlushes++;
+    }
+  }
+
+
+
+  /**
+   * A SASL client that does not alter the data that it wraps, but records the
+   * size of each unit that it wraps.
+   */
+  private static final class TestSaslClient
+          implements SaslClient
+  {
+    // The sizes of the units that have been wrapped.
+    private final List<Integer> wrapSizes = new ArrayList<Integer>();
+
+    // The value to return for the raw send size property.
+    private final String rawSendSize;
+
+
+
+    /**
+     * Creates a new test SASL client with the provided raw send size.
+     *
+     * @param  rawSendSize  The value to return for the raw send size property.
+     */
+    private TestSaslClient(final String rawSendSize)
+    {
+      this.rawSendSize = rawSendSize;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public String getMechanismName()
+    {
+      return "TEST";
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public boolean hasInitialResponse()
+    {
+      return false;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public byte[] evaluateChallenge(final byte[] challenge)
+    {
+      return null;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public boolean isComplete()
+    {
+      return true;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public byte[] unwrap(final byte[] incoming, final int offset,
+                         final int len)
+    {
+      final byte[] b = new byte[len];
+      System.arraycopy(incoming, offset, b, 0, len);
+      return b;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public byte[] wrap(final byte[] outgoing, final int offset, final int len)
+           throws SaslException
+    {
+      synchronized (wrapSizes)
+      {
+        wrapSizes.add(len);
+      }
+
+      final byte[] b = new byte[len];
+      System.arraycopy(outgoing, offset, b, 0, len);
+      return b;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public Object getNegotiatedProperty(final String propName)
+    {
+      if (propName.equals(Sasl.RAW_SEND_SIZE))
+      {
+        return rawSendSize;
+      }
+
+      return null;
+    }
+
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override()
+    public void dispose()
+    {
+      // No implementation is required.
+    }
+  }
+}
@@ -0,0 +1,683 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.annotations.Test;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.sdk.extensions.StartTLSExtendedRequest;
+
+
+
+/**
+ * This class provides a set of test cases for the
+ * {@code LDAPMultiplexedConnectionPool} class.
+ */
+public final class LDAPMultiplexedConnectionPoolTestCase
+       extends LDAPSDKTestCase
+{
+  /**
+   * Tests the ability to create a connection pool using an existing connection
+   * and use it to process operations.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testCreateWithConnection()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, true);
+
+    final LDAPConnection c = ds.getConnection();
+    final LDAPMultiplexedConnectionPool p =
+         new LDAPMultiplexedConnectionPool(c, 2, 10);
+
+    assertNull(p.getConnectionPoolName());
+    p.setConnectionPoolName("test");
+    assertEquals(p.getConnectionPoolName(), "test");
+
+    assertEquals(p.getNumConnections(), 2);
+    assertEquals(p.getMaxOutstandingOperationsPerConnection(), 10);
+    assertEquals(p.getCurrentOutstandingOperations(), 0);
+    assertEquals(p.getCurrentAvailableConnections(), 2);
+    assertEquals(p.getMaximumAvailableConnections(), 2);
+
+    assertEquals(p.getMaxWaitTimeMillis(), 60000L);
+    p.setMaxWaitTimeMillis(-1L);
+    assertEquals(p.getMaxWaitTimeMillis(), 0L);
+    p.setMaxWaitTimeMillis(1000L);
+    assertEquals(p.getMaxWaitTimeMillis(), 1000L);
+
+    assertEquals(p.getMaxConnectionAgeMillis(), 0L);
+    p.setMaxConnectionAgeMillis(1000L);
+    assertEquals(p.getMaxConnectionAgeMillis(), 1000L);
+    p.setMaxConnectionAgeMillis(-1L);
+    assertEquals(p.getMaxConnectionAgeMillis(), 0L);
+
+    assertEquals(p.getMinDisconnectIntervalMillis(), 0L);
+    p.setMinDisconnectIntervalMillis(10L);
+    assertEquals(p.getMinDisconnectIntervalMillis(), 10L);
+    p.setMinDisconnectIntervalMillis(-1L);
+    assertEquals(p.getMinDisconnectIntervalMillis(), 0L);
+
+    assertNotNull(p.getHealthCheck());
+    p.setHealthCheck(p.getHealthCheck());
+    p.setHealthCheckIntervalMillis(60000L);
+    assertEquals(p.getHealthCheckIntervalMillis(), 60000L);
+
+    assertNotNull(p.getConnectionPoolStatistics());
+    assertNotNull(p.toString());
+
+    assertNotNull(p.getRootDSE());
+    assertNotNull(p.getEntry("dc=example,dc=com"));
+    assertEquals(
+         p.modify("dc=example,dc=com",
+              new Modification(ModificationType.REPLACE, "description",
+                   "foo")).getResultCode(),
+         ResultCode.SUCCESS);
+
+    final LDAPConnection conn = p.getConnection();
+    assertEquals(conn.getConnectionPoolName(), "test");
+    assertEquals(p.getCurrentOutstandingOperations(), 1);
+    p.releaseConnection(conn);
+    p.releaseConnection(null);
+    p.releaseDefunctConnection(null);
+    assertEquals(p.getCurrentOutstandingOperations(), 0);
+
+    p.doHealthCheck();
+
+    assertFalse(p.isClosed());
+    p.close();
+    assertTrue(p.isClosed());
+    assertFalse(c.isConnected());
+
+    try
+    {
+      p.getConnection();
+      fail("Expected an exception when trying to get a connection after the " +
+           "pool has been closed.");
+    }
+    catch (final LDAPException le)
+    {
+      // This was expected.
+    }
+  }
+
+
+
+  /**
+   * Tests the behavior when trying to create a connection pool using a
+   * connection that is not established.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { LDAPException.class })
+  public void testCreateWithConnectionNotEstablished()
+         throws Exception
+  {
+    new LDAPMultiplexedConnectionPool(new LDAPConnection(), 2, 10);
+  }
+
+
+
+  /**
+   * Tests to ensure that connections operating in synchronous mode are
+   * rejected.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSynchronousModeRejected()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS();
+
+    final LDAPConnectionOptions options = new LDAPConnectionOptions();
+    options.setUseSynchronousMode(true);
+
+    final LDAPConnection c =
+         new LDAPConnection(options, "localhost", ds.getListenPort());
+    try
+    {
+      new LDAPMultiplexedConnectionPool(c, 2, 10);
+      fail("Expected an exception when creating a pool with a connection " +
+           "operating in synchronous mode.");
+    }
+    catch (final LDAPException le)
+    {
+      assertEquals(le.getResultCode(), ResultCode.PARAM_ERROR);
+    }
+    finally
+    {
+      c.close();
+    }
+
+    try
+    {
+      new LDAPMultiplexedConnectionPool(
+           new SingleServerSet("localhost", ds.getListenPort(), options), null,
+           2, 10);
+      fail("Expected an exception when creating a pool with a server set " +
+           "that creates connections operating in synchronous mode.");
+    }
+    catch (final LDAPException le)
+    {
+      // This was expected.
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that connections are selected based on the number of
+   * outstanding operations, and that the maximum number of outstanding
+   * operations per connection is enforced.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testLeastOutstandingSelection()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS();
+
+    final LDAPMultiplexedConnectionPool p = new LDAPMultiplexedConnectionPool(
+         new SingleServerSet("localhost", ds.getListenPort()), null, 2, 2);
+    p.setMaxWaitTimeMillis(0L);
+
+    try
+    {
+      final LDAPConnection conn1 = p.getConnection();
+      final LDAPConnection conn2 = p.getConnection();
+      assertNotSame(conn1, conn2);
+      assertEquals(p.getCurrentAvailableConnections(), 2);
+
+      final LDAPConnection conn3 = p.getConnection();
+      assertTrue((conn3 == conn1) || (conn3 == conn2));
+      assertEquals(p.getCurrentAvailableConnections(), 1);
+
+      final LDAPConnection conn4 = p.getConnection();
+      assertTrue((conn4 == conn1) || (conn4 == conn2));
+      assertNotSame(conn3, conn4);
+      assertEquals(p.getCurrentAvailableConnections(), 0);
+      assertEquals(p.getCurrentOutstandingOperations(), 4);
+
+      try
+      {
+        p.getConnection();
+        fail("Expected an exception when all connections have the maximum " +
+             "number of outstanding operations.");
+      }
+      catch (final LDAPException le)
+      {
+        assertEquals(le.getResultCode(), ResultCode.CONNECT_ERROR);
+      }
+
+      p.releaseConnection(conn4);
+      assertSame(p.getConnection(), conn4);
+
+      p.releaseConnection(conn1);
+      p.releaseConnection(conn2);
+      p.releaseConnection(conn3);
+      p.releaseConnection(conn4);
+      assertEquals(p.getCurrentOutstandingOperations(), 0);
+
+      final LDAPConnectionPoolStatistics stats =
+           p.getConnectionPoolStatistics();
+      assertEquals(stats.getNumSuccessfulCheckoutsWithoutWaiting(), 5L);
+      assertEquals(stats.getNumFailedCheckouts(), 1L);
+      assertEquals(stats.getNumReleasedValid(), 5L);
+      assertEquals(stats.getNumSuccessfulConnectionAttempts(), 2L);
+    }
+    finally
+    {
+      p.close();
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that an attempt to obtain a connection will wait for an
+   * operation to complete if all connections have the maximum number of
+   * outstanding operations.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testWaitForAvailableConnection()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS();
+
+    final LDAPMultiplexedConnectionPool p = new LDAPMultiplexedConnectionPool(
+         new SingleServerSet("localhost", ds.getListenPort()), null, 1, 1);
+
+    try
+    {
+      final LDAPConnection conn = p.getConnection();
+
+      final Thread releaseThread = new Thread()
+      {
+        @Override()
+        public void run()
+        {
+          try
+          {
+            Thread.sleep(100L);
+          }
+          catch (final Exception e)
+          {
+            // Ignore this.
+          }
+
+          p.releaseConnection(conn);
+        }
+      };
+      releaseThread.start();
+
+      assertSame(p.getConnection(), conn);
+      releaseThread.join();
+      p.releaseConnection(conn);
+
+      assertEquals(
+           p.getConnectionPoolStatistics().
+                getNumSuccessfulCheckoutsAfterWaiting(),
+           1L);
+    }
+    finally
+    {
+      p.close();
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that operations from multiple threads can be processed
+   * concurrently using a small number of shared connections.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testConcurrentOperations()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, true);
+
+    final LDAPMultiplexedConnectionPool p = new LDAPMultiplexedConnectionPool(
+         new SingleServerSet("localhost", ds.getListenPort()), null, 2, 4);
+
+    final Map<LDAPConnection,Boolean> connectionsUsed =
+         Collections.synchronizedMap(
+              new IdentityHashMap<LDAPConnection,Boolean>());
+    final AtomicReference<Throwable> failure =
+         new AtomicReference<Throwable>();
+
+    try
+    {
+      final Thread[] threads = new Thread[10];
+      for (int i=0; i < threads.length; i++)
+      {
+        threads[i] = new Thread()
+        {
+          @Override()
+          public void run()
+          {
+            try
+            {
+              for (int j=0; j < 50; j++)
+              {
+                final LDAPConnection conn = p.getConnection();
+                connectionsUsed.put(conn, Boolean.TRUE);
+                p.releaseConnection(conn);
+
+                final SearchResult result = p.search("dc=example,dc=com",
+                     SearchScope.SUB, "(objectClass=*)");
+                if (result.getEntryCount() != 3)
+                {
+                  throw new AssertionError("Unexpected entry count " +
+                       result.getEntryCount());
+                }
+              }
+            }
+            catch (final Throwable t)
+            {
+              failure.compareAndSet(null, t);
+            }
+          }
+        };
+        threads[i].start();
+      }
+
+      for (final Thread t : threads)
+      {
+        t.join();
+      }
+
+      assertNull(failure.get());
+      assertTrue(connectionsUsed.size() <= 2);
+      assertEquals(p.getCurrentOutstandingOperations(), 0);
+
+      final LDAPConnectionPoolStatistics stats =
+           p.getConnectionPoolStatistics();
+      assertEquals(stats.getNumSuccessfulConnectionAttempts(), 2L);
+      assertEquals(stats.getNumReleasedValid(), 1000L);
+      assertEquals(stats.getNumFailedCheckouts(), 0L);
+    }
+    finally
+    {
+      p.close();
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that bind and StartTLS operations are rejected for
+   * connections that belong to the pool, whether they are processed through
+   * the pool or on a connection obtained from it, while the pool is still able
+   * to authenticate its own connections.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testBindAndStartTLSRejected()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS(true, true);
+
+    final LDAPMultiplexedConnectionPool p = new LDAPMultiplexedConnectionPool(
+         new SingleServerSet("localhost", ds.getListenPort()),
+         new SimpleBindRequest("cn=Directory Manager", "password"), 1, 10);
+
+    try
+    {
+      try
+      {
+        p.bind("uid=test.user,ou=People,dc=example,dc=com", "password");
+        fail("Expected an exception when binding through the pool");
+      }
+      catch (final LDAPException le)
+      {
+        assertEquals(le.getResultCode(), ResultCode.NOT_SUPPORTED);
+      }
+
+      try
+      {
+        p.processExtendedOperation(new StartTLSExtendedRequest());
+        fail("Expected an exception when using StartTLS through the pool");
+      }
+      catch (final LDAPException le)
+      {
+        assertEquals(le.getResultCode(), ResultCode.NOT_SUPPORTED);
+      }
+
+      final List<LDAPResult> results = p.processRequests(
+           Arrays.<LDAPRequest>asList(new SimpleBindRequest(
+                "uid=test.user,ou=People,dc=example,dc=com", "password")),
+           true);
+      assertEquals(results.size(), 1);
+      assertEquals(results.get(0).getResultCode(), ResultCode.NOT_SUPPORTED);
+
+      final LDAPConnection conn = p.getConnection();
+      try
+      {
+        try
+        {
+          conn.bind("uid=test.user,ou=People,dc=example,dc=com", "password");
+          fail("Expected an exception when binding on a pooled connection");
+        }
+        catch (final LDAPException le)
+        {
+          assertEquals(le.getResultCode(), ResultCode.NOT_SUPPORTED);
+        }
+
+        try
+        {
+          conn.processExtendedOperation(new StartTLSExtendedRequest());
+          fail("Expected an exception when using StartTLS on a pooled " +
+               "connection");
+        }
+        catch (final LDAPException le)
+        {
+          assertEquals(le.getResultCode(), ResultCode.NOT_SUPPORTED);
+        }
+
+        try
+        {
+          conn.processOperation(new SimpleBindRequest());
+          fail("Expected an exception when processing a bind request on a " +
+               "pooled connection");
+        }
+        catch (final LDAPException le)
+        {
+          assertEquals(le.getResultCode(), ResultCode.NOT_SUPPORTED);
+        }
+
+        // The connection must still be authenticated as the pool's bind DN.
+        assertEquals(conn.getLastBindRequest().getBindType(), "SIMPLE");
+        assertEquals(((SimpleBindRequest) conn.getLastBindRequest()).
+             getBindDN(), "cn=Directory Manager");
+        assertTrue(conn.isConnected());
+      }
+      finally
+      {
+        p.releaseConnection(conn);
+      }
+
+      assertEquals(p.getCurrentOutstandingOperations(), 0);
+      assertEquals(
+           p.getConnectionPoolStatistics().getNumConnectionsClosedDefunct(),
+           0L);
+    }
+    finally
+    {
+      p.close();
+    }
+  }
+
+
+
+  /**
+   * Tests the behavior when releasing a defunct connection that does not have
+   * any other outstanding operations.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testReleaseDefunctConnection()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS();
+
+    final LDAPMultiplexedConnectionPool p = new LDAPMultiplexedConnectionPool(
+         new SingleServerSet("localhost", ds.getListenPort()), null, 1, 10);
+
+    try
+    {
+      final LDAPConnection conn = p.getConnection();
+      p.releaseDefunctConnection(conn);
+      assertFalse(conn.isConnected());
+
+      final LDAPConnection newConn = p.getConnection();
+      assertNotSame(newConn, conn);
+      assertTrue(newConn.isConnected());
+      p.releaseConnection(newConn);
+
+      final LDAPConnectionPoolStatistics stats =
+           p.getConnectionPoolStatistics();
+      assertEquals(stats.getNumConnectionsClosedDefunct(), 1L);
+      assertEquals(stats.getNumSuccessfulConnectionAttempts(), 2L);
+      assertEquals(p.getCurrentOutstandingOperations(), 0);
+    }
+    finally
+    {
+      p.close();
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that a connection released as defunct while it still has
+   * other operations in progress will not be closed until those operations
+   * have completed, and will not be selected for any new operations.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testDefunctConnectionWithOutstandingOperations()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS();
+
+    final LDAPMultiplexedConnectionPool p = new LDAPMultiplexedConnectionPool(
+         new SingleServerSet("localhost", ds.getListenPort()), null, 1, 10);
+
+    try
+    {
+      final LDAPConnection conn1 = p.getConnection();
+      final LDAPConnection conn2 = p.getConnection();
+      assertSame(conn1, conn2);
+
+      p.releaseDefunctConnection(conn1);
+      assertTrue(conn2.isConnected());
+      assertNotNull(conn2.getRootDSE());
+
+      final LDAPConnection newConn = p.getConnection();
+      assertNotSame(newConn, conn2);
+      assertEquals(p.getCurrentOutstandingOperations(), 2);
+
+      p.releaseConnection(conn2);
+      assertFalse(conn2.isConnected());
+
+      p.releaseConnection(newConn);
+      assertTrue(newConn.isConnected());
+      assertEquals(p.getCurrentOutstandingOperations(), 0);
+    }
+    finally
+    {
+      p.close();
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that a defunct connection can be replaced so that an
+   * operation can be retried.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testReplaceDefunctConnection()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS();
+
+    final LDAPMultiplexedConnectionPool p = new LDAPMultiplexedConnectionPool(
+         new SingleServerSet("localhost", ds.getListenPort()), null, 1, 1);
+    p.setMaxWaitTimeMillis(0L);
+
+    try
+    {
+      final LDAPConnection conn = p.getConnection();
+      final LDAPConnection newConn = p.replaceDefunctConnection(conn);
+      assertNotSame(newConn, conn);
+      assertFalse(conn.isConnected());
+      assertTrue(newConn.isConnected());
+      assertEquals(p.getCurrentOutstandingOperations(), 1);
+
+      p.releaseConnection(newConn);
+      assertEquals(p.getCurrentOutstandingOperations(), 0);
+    }
+    finally
+    {
+      p.close();
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that the health check will replace connections that are no
+   * longer established and connections that have exceeded the maximum age.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testHealthCheck()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds = getTestDS();
+
+    final LDAPMultiplexedConnectionPool p = new LDAPMultiplexedConnectionPool(
+         new SingleServerSet("localhost", ds.getListenPort()), null, 2, 10);
+
+    try
+    {
+      final LDAPConnection conn = p.getConnection();
+      p.releaseConnection(conn);
+      conn.setDisconnectInfo(DisconnectType.OTHER, null, null);
+      conn.terminate(null);
+
+      LDAPConnectionPoolHealthCheckResult result =
+           p.invokeHealthCheck(null, true);
+      assertEquals(result.getNumExamined(), 2);
+      assertEquals(result.getNumDefunct(), 1);
+      assertEquals(result.getNumExpired(), 0);
+
+      assertEquals(
+           p.getConnectionPoolStatistics().getNumConnectionsClosedDefunct(),
+           1L);
+      assertEquals(p.getCurrentAvailableConnections(), 2);
+
+      p.setMaxConnectionAgeMillis(1L);
+      Thread.sleep(10L);
+
+      result = p.invokeHealthCheck(null, true);
+      assertEquals(result.getNumExamined(), 2);
+      assertEquals(result.getNumDefunct(), 0);
+      assertEquals(result.getNumExpired(), 2);
+      assertEquals(
+           p.getConnectionPoolStatistics().getNumConnectionsClosedExpired(),
+           2L);
+      assertEquals(p.getCurrentAvailableConnections(), 2);
+
+      p.setMaxConnectionAgeMillis(0L);
+      assertNotNull(p.getRootDSE());
+    }
+    finally
+    {
+      p.close();
+    }
+  }
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.util.LDAPSDKUsageException;
+
+
+
+/**
+ * This class provides a set of test cases for the latency-aware server set.
+ */
+public final class LatencyAwareServerSetTestCase
+       extends LDAPSDKTestCase
+{
+  // The first directory server instance that will be used for testing.
+  private InMemoryDirectoryServer ds1 = null;
+
+  // The second directory server instance that will be used for testing.
+  private InMemoryDirectoryServer ds2 = null;
+
+  // The ports of the directory server instances.
+  private final int[] ports = new int[2];
+
+  // The addresses of the directory server instances.
+  private final String[] addresses = new String[2];
+
+
+
+  /**
+   * Prepares a couple of directory server instances to use in the testing.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @BeforeClass()
+  public void setUp()
+         throws Exception
+  {
+    ds1 = new InMemoryDirectoryServer("dc=example,dc=com");
+    ds1.startListening();
+
+    ds2 = new InMemoryDirectoryServer("dc=example,dc=com");
+    ds2.startListening();
+
+    addresses[0] = "localhost";
+    addresses[1] = "localhost";
+
+    ports[0] = ds1.getListenPort();
+    ports[1] = ds2.getListenPort();
+  }
+
+
+
+  /**
+   * Cleans up after testing has completed.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @AfterClass()
+  public void cleanUp()
+         throws Exception
+  {
+    ds1.shutDown(true);
+    ds2.shutDown(true);
+  }
+
+
+
+  /**
+   * Tests the behavior of the latency-aware server set using the constructor
+   * that takes only addresses and ports.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testBasicConstructor()
+         throws Exception
+  {
+    final LatencyAwareServerSet set =
+         new LatencyAwareServerSet(addresses, ports);
+
+    assertEquals(set.getAddresses(), addresses);
+    assertEquals(set.getPorts(), ports);
+    assertNotNull(set.getSocketFactory());
+    assertNotNull(set.getConnectionOptions());
+    assertEquals(set.getDecayHalfLifeMillis(),
+         LatencyAwareServerSet.DEFAULT_DECAY_HALF_LIFE_MILLIS);
+
+    final double[] scores = set.getLatencyScoresMillis();
+    assertEquals(scores.length, 2);
+    assertEquals(scores[0], 0.0d);
+    assertEquals(scores[1], 0.0d);
+
+    assertNotNull(set.toString());
+    assertTrue(set.toString().contains("decayHalfLifeMillis="));
+  }
+
+
+
+  /**
+   * Tests the behavior of the latency-aware server set using the constructor
+   * that takes all of the arguments.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testFullConstructor()
+         throws Exception
+  {
+    final LDAPConnectionOptions options = new LDAPConnectionOptions();
+    final LatencyAwareServerSet set = new LatencyAwareServerSet(addresses,
+         ports, null, options, 1234L);
+
+    assertNotNull(set.getSocketFactory());
+    assertSame(set.getConnectionOptions(), options);
+    assertEquals(set.getDecayHalfLifeMillis(), 1234L);
+  }
+
+
+
+  /**
+   * Tests to ensure that an invalid decay half-life will be rejected.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { LDAPSDKUsageException.class })
+  public void testInvalidDecayHalfLife()
+         throws Exception
+  {
+    new LatencyAwareServerSet(addresses, ports, null, null, 0L);
+  }
+
+
+
+  /**
+   * Tests the behavior of the latency tracker when recording response times.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testLatencyTracker()
+         throws Exception
+  {
+    final LatencyAwareServerSetLatencyTracker tracker =
+         new LatencyAwareServerSetLatencyTracker("localhost", 389, 1000L);
+    final long halfLife = TimeUnit.MILLISECONDS.toNanos(1000L);
+    final long t = System.nanoTime();
+
+    assertEquals(tracker.getNumSamples(), 0L);
+    assertEquals(tracker.getScoreNanos(t), 0.0d);
+
+    // The first sample should set the score.
+    tracker.recordResponseTime(1000L, t);
+    assertEquals(tracker.getNumSamples(), 1L);
+    assertTrue(Math.abs(tracker.getScoreNanos(t) - 1000.0d) < 0.001d);
+
+    // A higher sample should replace the score immediately.
+    tracker.recordResponseTime(5000L, t);
+    assertTrue(Math.abs(tracker.getScoreNanos(t) - 5000.0d) < 0.001d);
+
+    // With no new samples, the score should decay by half every half-life.
+    assertTrue(
+         Math.abs(tracker.getScoreNanos(t + halfLife) - 2500.0d) < 0.001d);
+    assertTrue(Math.abs(
+         tracker.getScoreNanos(t + (2L * halfLife)) - 1250.0d) < 0.001d);
+
+    // A lower sample should be blended into the decayed score.
+    tracker.recordResponseTime(1000L, t + halfLife);
+    assertTrue(
+         Math.abs(tracker.getScoreNanos(t + halfLife) - 3000.0d) < 0.001d);
+    assertEquals(tracker.getNumSamples(), 3L);
+
+    // Non-positive response times should be ignored.
+    tracker.responseTimeRecorded(0L);
+    tracker.responseTimeRecorded(-1L);
+    assertEquals(tracker.getNumSamples(), 3L);
+  }
+
+
+
+  /**
+   * Tests the power-of-two-choices server selection.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSelectServer()
+         throws Exception
+  {
+    final Random random = new Random(12345L);
+
+    assertEquals(LatencyAwareServerSet.selectServer(new double[] { 5.0d },
+         random), 0);
+
+    // With two servers, the faster one should always be chosen.
+    for (int i=0; i < 100; i++)
+    {
+      assertEquals(LatencyAwareServerSet.selectServer(
+           new double[] { 100.0d, 1.0d }, random), 1);
+    }
+
+    // With more servers, the slowest one should never be chosen, and all of
+    // the others should be chosen at least sometimes.
+    final int[] counts = new int[4];
+    for (int i=0; i < 1000; i++)
+    {
+      counts[LatencyAwareServerSet.selectServer(
+           new double[] { 1.0d, 2.0d, 100.0d, 3.0d }, random)]++;
+    }
+
+    assertEquals(counts[2], 0);
+    assertTrue(counts[0] > counts[1]);
+    assertTrue(counts[1] > 0);
+    assertTrue(counts[3] > 0);
+  }
+
+
+
+  /**
+   * Tests to ensure that the response times for operations processed on
+   * connections created by the server set are recorded, and that new
+   * connections will be established to the server with the lower latency
+   * score.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testConnectionsAvoidSlowServer()
+         throws Exception
+  {
+    final LatencyAwareServerSet set =
+         new LatencyAwareServerSet(addresses, ports);
+    final LatencyAwareServerSetLatencyTracker[] trackers =
+         set.getLatencyTrackers();
+
+    final LDAPConnection conn = set.getConnection();
+    try
+    {
+      final int slot = (conn.getConnectedPort() == ports[0]) ? 0 : 1;
+      assertNotNull(conn.getRootDSE());
+      assertEquals(trackers[slot].getNumSamples(), 1L);
+      assertEquals(trackers[1 - slot].getNumSamples(), 0L);
+      assertTrue(set.getLatencyScoresMillis()[slot] > 0.0d);
+    }
+    finally
+    {
+      conn.close();
+    }
+
+    // Make the first server appear to be very slow, and make sure that all
+    // new connections are established to the second server.
+    trackers[0].responseTimeRecorded(TimeUnit.SECONDS.toNanos(60L));
+    trackers[1].responseTimeRecorded(TimeUnit.MILLISECONDS.toNanos(1L));
+
+    for (int i=0; i < 20; i++)
+    {
+      final LDAPConnection c = set.getConnection();
+      try
+      {
+        assertEquals(c.getConnectedPort(), ports[1]);
+      }
+      finally
+      {
+        c.close();
+      }
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that replacement connections in a connection pool will be
+   * established to the server with the lower latency score.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testConnectionPool()
+         throws Exception
+  {
+    final LatencyAwareServerSet set =
+         new LatencyAwareServerSet(addresses, ports);
+    final LatencyAwareServerSetLatencyTracker[] trackers =
+         set.getLatencyTrackers();
+
+    final LDAPConnectionPool pool = new LDAPConnectionPool(set, null, 4);
+    try
+    {
+      assertNotNull(pool.getRootDSE());
+
+      trackers[1].responseTimeRecorded(TimeUnit.SECONDS.toNanos(60L));
+      trackers[0].responseTimeRecorded(TimeUnit.MILLISECONDS.toNanos(1L));
+
+      for (int i=0; i < 4; i++)
+      {
+        final LDAPConnection c = pool.getConnection();
+        pool.releaseDefunctConnection(c);
+      }
+
+      for (int i=0; i < 4; i++)
+      {
+        final LDAPConnection c = pool.getConnection();
+        try
+        {
+          assertEquals(c.getConnectedPort(), ports[0]);
+        }
+        finally
+        {
+          pool.releaseConnection(c);
+        }
+      }
+    }
+    finally
+    {
+      pool.close();
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that connections can still be established if the server
+   * with the lowest score is unavailable.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testUnavailableServer()
+         throws Exception
+  {
+    final InMemoryDirectoryServer ds3 =
+         new InMemoryDirectoryServer("dc=example,dc=com");
+    ds3.startListening();
+    final int unavailablePort = ds3.getListenPort();
+    ds3.shutDown(true);
+
+    final LatencyAwareServerSet set = new LatencyAwareServerSet(
+         new String[] { "localhost", "localhost" },
+         new int[] { unavailablePort, ports[1] });
+    set.getLatencyTrackers()[1].responseTimeRecorded(
+         TimeUnit.SECONDS.toNanos(60L));
+
+    for (int i=0; i < 5; i++)
+    {
+      final LDAPConnection conn = set.getConnection();
+      try
+      {
+        assertEquals(conn.getConnectedPort(), ports[1]);
+      }
+      finally
+      {
+        conn.close();
+      }
+    }
+  }
+}
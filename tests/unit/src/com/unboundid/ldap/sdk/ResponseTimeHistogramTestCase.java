@@ -0,0 +1,371 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk;
+
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.testng.annotations.Test;
+
+import com.unboundid.util.LDAPSDKUsageException;
+
+
+
+/**
+ * This class provides a set of test cases for the response time histogram.
+ */
+public final class ResponseTimeHistogramTestCase
+       extends LDAPSDKTestCase
+{
+  /**
+   * Tests the behavior of an empty histogram.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testEmptyHistogram()
+         throws Exception
+  {
+    final ResponseTimeHistogram h = new ResponseTimeHistogram();
+
+    assertEquals(h.getTotalCount(), 0L);
+    assertEquals(h.getValueAtPercentile(50.0d), 0L);
+    assertEquals(h.getValueAtPercentile(100.0d), 0L);
+    assertEquals(h.getMaxValue(), 0L);
+    assertNotNull(h.toString());
+  }
+
+
+
+  /**
+   * Tests to ensure that the bucket boundaries are contiguous and that every
+   * value is recorded in a bucket whose bounds contain it.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testBucketBoundaries()
+         throws Exception
+  {
+    final ResponseTimeHistogram h = new ResponseTimeHistogram();
+
+    assertEquals(h.getBucketLowerBound(0), 0L);
+    for (int i=1; i < h.getNumBuckets(); i++)
+    {
+      assertEquals(h.getBucketLowerBound(i), (h.getBucketUpperBound(i-1) + 1L));
+    }
+
+    assertEquals(h.getBucketUpperBound(h.getNumBuckets() - 1),
+         ResponseTimeHistogram.MAX_TRACKABLE_VALUE_NANOS);
+
+    long value = 1L;
+    while (value <= ResponseTimeHistogram.MAX_TRACKABLE_VALUE_NANOS)
+    {
+      for (final long v : new long[] { value - 1L, value, value + 1L })
+      {
+        final int index = ResponseTimeHistogram.getBucketIndex(v);
+        assertTrue(h.getBucketLowerBound(index) <= v);
+        assertTrue(h.getBucketUpperBound(index) >= v);
+
+        // The bucket width must be within about three percent of the value.
+        assertTrue((h.getBucketUpperBound(index) -
+             h.getBucketLowerBound(index)) <= ((v / 32L) + 1L));
+      }
+
+      value = (value * 3L) / 2L + 1L;
+    }
+
+    assertEquals(ResponseTimeHistogram.getBucketIndex(-5L), 0);
+    assertEquals(ResponseTimeHistogram.getBucketIndex(Long.MAX_VALUE),
+         (h.getNumBuckets() - 1));
+  }
+
+
+
+  /**
+   * Tests the percentile calculations.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testPercentiles()
+         throws Exception
+  {
+    final ResponseTimeHistogram h = new ResponseTimeHistogram();
+
+    // Record 1000 values between 1 and 1000 microseconds.
+    for (long i=1L; i <= 1000L; i++)
+    {
+      h.recordValue(i * 1000L);
+    }
+
+    assertEquals(h.getTotalCount(), 1000L);
+    assertApproximately(h.getValueAtPercentile(50.0d), 500000L);
+    assertApproximately(h.getValueAtPercentile(90.0d), 900000L);
+    assertApproximately(h.getValueAtPercentile(99.0d), 990000L);
+    assertApproximately(h.getValueAtPercentile(99.9d), 999000L);
+    assertApproximately(h.getValueAtPercentile(100.0d), 1000000L);
+    assertApproximately(h.getMaxValue(), 1000000L);
+    assertApproximately(h.getValueAtPercentile(0.0d), 1000L);
+    assertTrue(Math.abs(h.getValueAtPercentileMillis(50.0d) - 0.5d) < 0.02d);
+
+    // A single outlier should be visible in the maximum and the 100th
+    // percentile, but not in the median.
+    h.recordValue(5000000000L);
+    assertApproximately(h.getMaxValue(), 5000000000L);
+    assertApproximately(h.getValueAtPercentile(100.0d), 5000000000L);
+    assertApproximately(h.getValueAtPercentile(50.0d), 501000L);
+  }
+
+
+
+  /**
+   * Tests to ensure that an invalid percentile will be rejected.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { LDAPSDKUsageException.class })
+  public void testInvalidPercentile()
+         throws Exception
+  {
+    new ResponseTimeHistogram().getValueAtPercentile(100.1d);
+  }
+
+
+
+  /**
+   * Tests the methods for merging, copying, and resetting histograms.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testAddSnapshotAndReset()
+         throws Exception
+  {
+    final ResponseTimeHistogram h1 = new ResponseTimeHistogram();
+    final ResponseTimeHistogram h2 = new ResponseTimeHistogram();
+
+    for (int i=0; i < 10; i++)
+    {
+      h1.recordValue(1000L);
+      h2.recordValue(1000000L);
+    }
+
+    h1.add(h2);
+    assertEquals(h1.getTotalCount(), 20L);
+    assertEquals(h2.getTotalCount(), 10L);
+    assertApproximately(h1.getValueAtPercentile(50.0d), 1000L);
+    assertApproximately(h1.getMaxValue(), 1000000L);
+
+    final ResponseTimeHistogram snapshot = h1.getSnapshot();
+    h1.recordValue(1000L);
+    assertEquals(snapshot.getTotalCount(), 20L);
+    assertEquals(h1.getTotalCount(), 21L);
+
+    final ResponseTimeHistogram interval = h1.getSnapshotAndReset();
+    assertEquals(interval.getTotalCount(), 21L);
+    assertEquals(h1.getTotalCount(), 0L);
+
+    h1.recordValue(1000L);
+    assertEquals(h1.getSnapshotAndReset().getTotalCount(), 1L);
+    assertEquals(h1.getSnapshotAndReset().getTotalCount(), 0L);
+
+    h2.reset();
+    assertEquals(h2.getTotalCount(), 0L);
+    assertEquals(h2.getMaxValue(), 0L);
+  }
+
+
+
+  /**
+   * Tests to ensure that no values are lost when interval snapshots are taken
+   * while values are being recorded concurrently.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testConcurrentSnapshotAndReset()
+         throws Exception
+  {
+    final ResponseTimeHistogram h = new ResponseTimeHistogram();
+    final Thread[] threads = new Thread[4];
+    for (int i=0; i < threads.length; i++)
+    {
+      threads[i] = new Thread()
+      {
+        @Override()
+        public void run()
+        {
+          for (int j=0; j < 100000; j++)
+          {
+            h.recordValue(j);
+          }
+        }
+      };
+      threads[i].start();
+    }
+
+    long total = 0L;
+    boolean running = true;
+    while (running)
+    {
+      running = false;
+      for (final Thread t : threads)
+      {
+        running |= t.isAlive();
+      }
+
+      total += h.getSnapshotAndReset().getTotalCount();
+    }
+
+    total += h.getSnapshotAndReset().getTotalCount();
+    assertEquals(total, 400000L);
+  }
+
+
+
+  /**
+   * Tests the behavior when writing the percentile distribution for an empty
+   * histogram.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testWriteEmptyPercentileDistribution()
+         throws Exception
+  {
+    final String[] lines =
+         getPercentileDistribution(new ResponseTimeHistogram());
+
+    assertEquals(lines.length, 5);
+    assertTrue(lines[0].trim().startsWith("Value"));
+    assertTrue(lines[0].contains("1/(1-Percentile)"));
+    assertEquals(lines[1], "");
+    assertTrue(lines[2].startsWith("#[Mean"));
+    assertTrue(lines[3].startsWith("#[Max"));
+    assertTrue(lines[3].trim().endsWith("0]"));
+    assertTrue(lines[4].startsWith("#[Buckets"));
+  }
+
+
+
+  /**
+   * Tests the behavior when writing the percentile distribution for a
+   * histogram that contains values.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testWritePercentileDistribution()
+         throws Exception
+  {
+    final ResponseTimeHistogram h = new ResponseTimeHistogram();
+    for (long i=1L; i <= 1000L; i++)
+    {
+      h.recordValue(i * 1000000L);
+    }
+
+    final String[] lines = getPercentileDistribution(h);
+    assertTrue(lines.length > 10);
+    assertTrue(lines[0].trim().startsWith("Value"));
+    assertEquals(lines[1], "");
+
+    // Make sure that the percentile lines are in order and end with the 100th
+    // percentile.
+    double lastValue = -1.0d;
+    double lastPercentile = -1.0d;
+    long lastCount = -1L;
+    int footerStart = -1;
+    for (int i=2; i < lines.length; i++)
+    {
+      if (lines[i].startsWith("#"))
+      {
+        footerStart = i;
+        break;
+      }
+
+      final String[] fields = lines[i].trim().split("\\s+");
+      assertTrue((fields.length == 3) || (fields.length == 4), lines[i]);
+
+      final double value = Double.parseDouble(fields[0]);
+      final double percentile = Double.parseDouble(fields[1]);
+      final long count = Long.parseLong(fields[2]);
+      assertTrue(value >= lastValue, lines[i]);
+      assertTrue(percentile > lastPercentile, lines[i]);
+      assertTrue(count >= lastCount, lines[i]);
+
+      lastValue = value;
+      lastPercentile = percentile;
+      lastCount = count;
+    }
+
+    assertEquals(footerStart, (lines.length - 3));
+    assertEquals(lastPercentile, 1.0d);
+    assertEquals(lastCount, 1000L);
+    assertTrue(lines[footerStart - 1].contains("1.000000000000"));
+    assertApproximately((long) lastValue, 1000L);
+
+    assertTrue(lines[footerStart].startsWith("#[Mean"));
+    assertTrue(lines[footerStart + 1].trim().endsWith("1000]"));
+  }
+
+
+
+  /**
+   * Retrieves the lines of the percentile distribution for the provided
+   * histogram.
+   *
+   * @param  h  The histogram for which to retrieve the distribution.
+   *
+   * @return  The lines of the percentile distribution.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static String[] getPercentileDistribution(
+                               final ResponseTimeHistogram h)
+          throws Exception
+  {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final PrintStream printStream = new PrintStream(out, true, "UTF-8");
+    h.writePercentileDistribution(printStream);
+    printStream.close();
+
+    return out.toString("UTF-8").split("\n");
+  }
+
+
+
+  /**
+   * Ensures that the provided value is within the precision of the histogram
+   * of the expected value.
+   *
+   * @param  value     The value to check.
+   * @param  expected  The expected value.
+   */
+  private static void assertApproximately(final long value,
+                                          final long expected)
+  {
+    assertTrue((Math.abs(value - expected) <= ((expected / 32L) + 1L)),
+         "Value " + value + " is not approximately " + expected);
+  }
+}
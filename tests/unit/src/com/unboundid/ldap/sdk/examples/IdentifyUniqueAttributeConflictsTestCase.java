@@ -22,15 +22,19 @@ package com.unboundid.ldap.sdk.examples;
 
 
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.testng.annotations.Test;
 
 import com.unboundid.ldap.listener.InMemoryDirectoryServer;
 import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.sdk.Entry;
 import com.unboundid.ldap.sdk.LDAPConnection;
 import com.unboundid.ldap.sdk.LDAPSDKTestCase;
 import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldif.LDIFWriter;
 
 
 
@@ -404,6 +408,257 @@ public final class IdentifyUniqueAttributeConflictsTestCase
 
 
 
+  /**
+   * Tests the behavior when identifying conflicts in a single pass over entries
+   * retrieved from a directory server.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSinglePassWithServer()
+         throws Exception
+  {
+    final InMemoryDirectoryServerConfig cfg =
+         new InMemoryDirectoryServerConfig("dc=example,dc=com");
+    final InMemoryDirectoryServer ds = new InMemoryDirectoryServer(cfg);
+    ds.startListening();
+
+    final LDAPConnection conn = ds.getConnection();
+
+    conn.add(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example");
+
+    conn.add(
+         "dn: ou=People,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: People");
+
+    for (int i=0; i < 100; i++)
+    {
+      conn.add(
+           "dn: uid=user." + i + ",ou=People,dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: person",
+           "objectClass: organizationalPerson",
+           "objectClass: inetOrgPerson",
+           "uid: user." + i,
+           "givenName: User",
+           "sn: " + i,
+           "cn: User " + i);
+    }
+
+
+    // Verify that there are no conflicts.
+    IdentifyUniqueAttributeConflicts tool =
+         new IdentifyUniqueAttributeConflicts(null, null);
+    ResultCode resultCode = tool.runTool(
+         "--port", String.valueOf(ds.getListenPort()),
+         "--baseDN", "dc=example,dc=com",
+         "--attribute", "uid",
+         "--simplePageSize", "10",
+         "--singlePass");
+    assertEquals(resultCode, ResultCode.SUCCESS);
+
+    assertNotNull(tool.getConflictCounts());
+    assertFalse(tool.getConflictCounts().isEmpty());
+    for (final AtomicLong l : tool.getConflictCounts().values())
+    {
+      assertEquals(l.get(), 0L);
+    }
+
+
+    // Add an entry with a uid value that differs from an existing value only
+    // in capitalization, and verify that both entries are reported, just as
+    // when searching for each value.
+    conn.add(
+         "dn: cn=Conflict,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: person",
+         "objectClass: uidObject",
+         "cn: Conflict",
+         "sn: Conflict",
+         "uid: USER.50");
+
+    tool = new IdentifyUniqueAttributeConflicts(null, null);
+    resultCode = tool.runTool(
+         "--port", String.valueOf(ds.getListenPort()),
+         "--baseDN", "dc=example,dc=com",
+         "--attribute", "uid",
+         "--singlePass",
+         "--numThreads", "4");
+    assertEquals(resultCode, ResultCode.CONSTRAINT_VIOLATION);
+
+    assertNotNull(tool.getConflictCounts());
+    assertFalse(tool.getConflictCounts().isEmpty());
+    for (final AtomicLong l : tool.getConflictCounts().values())
+    {
+      assertEquals(l.get(), 2L);
+    }
+
+
+    // Verify that values in different attributes are only treated as
+    // conflicts when they need to be unique across attributes.
+    conn.modify(
+         "dn: uid=user.1,ou=People,dc=example,dc=com",
+         "changetype: modify",
+         "add: displayName",
+         "displayName: User 2");
+
+    tool = new IdentifyUniqueAttributeConflicts(null, null);
+    resultCode = tool.runTool(
+         "--port", String.valueOf(ds.getListenPort()),
+         "--baseDN", "dc=example,dc=com",
+         "--attribute", "cn",
+         "--attribute", "displayName",
+         "--multipleAttributeBehavior", "unique-within-each-attribute",
+         "--singlePass");
+    assertEquals(resultCode, ResultCode.SUCCESS);
+
+    tool = new IdentifyUniqueAttributeConflicts(null, null);
+    resultCode = tool.runTool(
+         "--port", String.valueOf(ds.getListenPort()),
+         "--baseDN", "dc=example,dc=com",
+         "--attribute", "cn",
+         "--attribute", "displayName",
+         "--multipleAttributeBehavior",
+              "unique-across-all-attributes-except-in-same-entry",
+         "--singlePass");
+    assertEquals(resultCode, ResultCode.CONSTRAINT_VIOLATION);
+    assertEquals(tool.getConflictCounts().get("cn").get(), 1L);
+    assertEquals(tool.getConflictCounts().get("displayName").get(), 1L);
+
+    conn.close();
+    ds.shutDown(true);
+  }
+
+
+
+  /**
+   * Tests the behavior when identifying conflicts in entries read from an LDIF
+   * file, including when there are too many values to hold in memory.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testLDIFFile()
+         throws Exception
+  {
+    final File ldifFile = createTempFile();
+    final LDIFWriter ldifWriter = new LDIFWriter(ldifFile);
+    ldifWriter.writeEntry(new Entry(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example"));
+    ldifWriter.writeEntry(new Entry(
+         "dn: ou=People,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: People"));
+    for (int i=0; i < 10000; i++)
+    {
+      ldifWriter.writeEntry(new Entry(
+           "dn: uid=user." + i + ",ou=People,dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: person",
+           "objectClass: organizationalPerson",
+           "objectClass: inetOrgPerson",
+           "uid: user." + i,
+           "givenName: User",
+           "sn: " + i,
+           "cn: User " + i));
+    }
+    ldifWriter.close();
+
+
+    // Verify that there are no conflicts, both with the values held in memory
+    // and with values written to temporary files.
+    IdentifyUniqueAttributeConflicts tool =
+         new IdentifyUniqueAttributeConflicts(null, null);
+    ResultCode resultCode = tool.runTool(
+         "--ldifFile", ldifFile.getAbsolutePath(),
+         "--baseDN", "dc=example,dc=com",
+         "--attribute", "uid");
+    assertEquals(resultCode, ResultCode.SUCCESS);
+    assertEquals(tool.getConflictCounts().get("uid").get(), 0L);
+
+    tool = new IdentifyUniqueAttributeConflicts(null, null);
+    resultCode = tool.runTool(
+         "--ldifFile", ldifFile.getAbsolutePath(),
+         "--baseDN", "dc=example,dc=com",
+         "--attribute", "uid",
+         "--maxMemoryMB", "1",
+         "--numThreads", "4");
+    assertEquals(resultCode, ResultCode.SUCCESS);
+    assertEquals(tool.getConflictCounts().get("uid").get(), 0L);
+
+
+    // Add entries that conflict with the first and last user entries, and one
+    // that is outside the base DN.
+    final LDIFWriter appendWriter = new LDIFWriter(
+         new FileOutputStream(ldifFile, true));
+    appendWriter.writeEntry(new Entry(
+         "dn: cn=First Conflict,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: person",
+         "objectClass: uidObject",
+         "cn: First Conflict",
+         "sn: Conflict",
+         "uid: user.0"));
+    appendWriter.writeEntry(new Entry(
+         "dn: cn=Last Conflict,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: person",
+         "objectClass: uidObject",
+         "cn: Last Conflict",
+         "sn: Conflict",
+         "uid: User.9999"));
+    appendWriter.writeEntry(new Entry(
+         "dn: cn=Out Of Scope,o=example.com",
+         "objectClass: top",
+         "objectClass: person",
+         "objectClass: uidObject",
+         "cn: Out Of Scope",
+         "sn: Conflict",
+         "uid: user.1"));
+    appendWriter.close();
+
+    tool = new IdentifyUniqueAttributeConflicts(null, null);
+    resultCode = tool.runTool(
+         "--ldifFile", ldifFile.getAbsolutePath(),
+         "--baseDN", "dc=example,dc=com",
+         "--attribute", "uid");
+    assertEquals(resultCode, ResultCode.CONSTRAINT_VIOLATION);
+    assertEquals(tool.getConflictCounts().get("uid").get(), 4L);
+
+    tool = new IdentifyUniqueAttributeConflicts(null, null);
+    resultCode = tool.runTool(
+         "--ldifFile", ldifFile.getAbsolutePath(),
+         "--baseDN", "dc=example,dc=com",
+         "--attribute", "uid",
+         "--maxMemoryMB", "1",
+         "--tempDirectory", ldifFile.getParentFile().getAbsolutePath(),
+         "--numThreads", "4");
+    assertEquals(resultCode, ResultCode.CONSTRAINT_VIOLATION);
+    assertEquals(tool.getConflictCounts().get("uid").get(), 4L);
+
+    tool = new IdentifyUniqueAttributeConflicts(null, null);
+    resultCode = tool.runTool(
+         "--ldifFile", ldifFile.getAbsolutePath(),
+         "--baseDN", "dc=example,dc=com",
+         "--attribute", "uid",
+         "--filter", "(objectClass=inetOrgPerson)");
+    assertEquals(resultCode, ResultCode.SUCCESS);
+
+    assertTrue(ldifFile.delete());
+  }
+
+
+
   /**
    * Tests for a number of error conditions.
    *
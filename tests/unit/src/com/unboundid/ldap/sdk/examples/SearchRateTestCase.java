@@ -26,11 +26,13 @@ import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
 import com.unboundid.ldap.sdk.LDAPConnection;
 import com.unboundid.ldap.sdk.LDAPSDKTestCase;
 import com.unboundid.ldap.sdk.ResultCode;
 
 import java.io.File;
+import java.nio.file.Files;
 
 
 /**
@@ -923,4 +925,44 @@ public class SearchRateTestCase
 
     assertEquals(searchRate.runTool(args), ResultCode.SUCCESS);
   }
+
+
+
+  /**
+   * Performs a test that uses open-loop mode and writes the distribution of
+   * response times to a latency histogram file.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testOpenLoopWithLatencyHistogram()
+         throws Exception
+  {
+    final File histogramFile = createTempFile();
+    assertTrue(histogramFile.delete());
+
+    final InMemoryDirectoryServer ds = getTestDS(true, true);
+    final String[] args =
+    {
+      "-h", "localhost",
+      "-p", String.valueOf(ds.getListenPort()),
+      "-b", "dc=example,dc=com",
+      "-s", "base",
+      "-f", "(objectClass=*)",
+      "-t", "2",
+      "-i", "1",
+      "-I", "1",
+      "-r", "100",
+      "--openLoop",
+      "--maxOutstandingRequests", "10",
+      "--latencyHistogramFile", histogramFile.getAbsolutePath()
+    };
+    assertEquals(SearchRate.main(args, null, null), ResultCode.SUCCESS);
+
+    assertTrue(histogramFile.exists());
+    final String histogram = new String(
+         Files.readAllBytes(histogramFile.toPath()), "UTF-8");
+    assertTrue(histogram.contains("Percentile"));
+    assertTrue(histogram.contains("#[Max"));
+  }
 }
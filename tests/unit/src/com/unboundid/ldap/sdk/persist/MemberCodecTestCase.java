@@ -0,0 +1,305 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk.persist;
+
+
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.LDAPSDKTestCase;
+
+
+
+/**
+ * This class provides test coverage for the {@code MemberCodec} class.
+ */
+public final class MemberCodecTestCase
+       extends LDAPSDKTestCase
+{
+  // A primitive field.
+  private int intField;
+
+  // A simple object field.
+  private String stringField;
+
+  // A primitive array field.
+  private int[] intArrayField;
+
+  // An object array field.
+  private String[] stringArrayField;
+
+  // A generic list field.
+  private List<String> listField;
+
+  // A generic set field.
+  private Set<Integer> setField;
+
+  // A field with a type that is not supported by the default encoder.
+  private HashMap<String,String> mapField;
+
+  // The value passed to the most recent call to the setter method.
+  private Object setterValue;
+
+
+
+  /**
+   * Retrieves a set of fields along with attributes that may be decoded into
+   * those fields.
+   *
+   * @return  A set of fields along with attributes that may be decoded into
+   *          those fields.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @DataProvider(name="fields")
+  public Object[][] getFields()
+         throws Exception
+  {
+    return new Object[][]
+    {
+      new Object[]
+      {
+        getField("intField"),
+        new Attribute("intField", "1234")
+      },
+
+      new Object[]
+      {
+        getField("stringField"),
+        new Attribute("stringField", "foo")
+      },
+
+      new Object[]
+      {
+        getField("intArrayField"),
+        new Attribute("intArrayField", "1", "2", "3")
+      },
+
+      new Object[]
+      {
+        getField("stringArrayField"),
+        new Attribute("stringArrayField", "a", "b", "c")
+      },
+
+      new Object[]
+      {
+        getField("listField"),
+        new Attribute("listField", "a", "b", "c")
+      },
+
+      new Object[]
+      {
+        getField("setField"),
+        new Attribute("setField", "1", "2", "3")
+      }
+    };
+  }
+
+
+
+  /**
+   * Tests that a codec for a field decodes and encodes values in the same way
+   * as the reflective default object encoder API.
+   *
+   * @param  f  The field to test.
+   * @param  a  An attribute that may be decoded into the field.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(dataProvider="fields")
+  public void testFieldCodec(final Field f, final Attribute a)
+         throws Exception
+  {
+    final DefaultObjectEncoder encoder = new DefaultObjectEncoder();
+    final MemberCodec codec = MemberCodec.forField(f, encoder);
+    assertNotNull(codec);
+
+    final MemberCodecTestCase reflectiveObject = new MemberCodecTestCase();
+    encoder.decodeField(f, reflectiveObject, a);
+
+    final MemberCodecTestCase codecObject = new MemberCodecTestCase();
+    codec.decode(codecObject, a);
+
+    final Object reflectiveValue = f.get(reflectiveObject);
+    final Object codecValue = codec.read(codecObject);
+    assertNotNull(codecValue);
+    assertEquals(codecValue.getClass(), reflectiveValue.getClass());
+
+    if (codecValue instanceof int[])
+    {
+      assertTrue(Arrays.equals((int[]) codecValue, (int[]) reflectiveValue));
+    }
+    else if (codecValue instanceof Object[])
+    {
+      assertEquals((Object[]) codecValue, (Object[]) reflectiveValue);
+    }
+    else
+    {
+      assertEquals(codecValue, reflectiveValue);
+    }
+
+    assertEquals(codec.encode(codecValue, a.getName()),
+         encoder.encodeFieldValue(f, reflectiveValue, a.getName()));
+    assertEquals(codec.encode(codecValue, a.getName()), a);
+  }
+
+
+
+  /**
+   * Tests the behavior when trying to create a codec for a field whose type is
+   * not supported by the default object encoder.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testUnsupportedFieldType()
+         throws Exception
+  {
+    assertNull(MemberCodec.forField(getField("mapField"),
+         new DefaultObjectEncoder()));
+  }
+
+
+
+  /**
+   * Tests that an attempt to decode an invalid value fails with the same
+   * exception type as the reflective API, and doesn't alter the field.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { LDAPPersistException.class })
+  public void testDecodeInvalidValue()
+         throws Exception
+  {
+    final MemberCodec codec =
+         MemberCodec.forField(getField("intField"), new DefaultObjectEncoder());
+    assertNotNull(codec);
+
+    final MemberCodecTestCase o = new MemberCodecTestCase();
+    o.intField = 5;
+    try
+    {
+      codec.decode(o, new Attribute("intField", "not an integer"));
+    }
+    finally
+    {
+      assertEquals(o.intField, 5);
+    }
+  }
+
+
+
+  /**
+   * Tests codecs for getter and setter methods.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testMethodCodecs()
+         throws Exception
+  {
+    final Method getter =
+         MemberCodecTestCase.class.getDeclaredMethod("getSetValue");
+    getter.setAccessible(true);
+
+    final Method setter = MemberCodecTestCase.class.getDeclaredMethod(
+         "setSetValue", LinkedHashSet.class);
+    setter.setAccessible(true);
+
+    final DefaultObjectEncoder encoder = new DefaultObjectEncoder();
+    final MemberCodec getterCodec = MemberCodec.forGetter(getter, encoder);
+    assertNotNull(getterCodec);
+
+    final MemberCodec setterCodec = MemberCodec.forSetter(setter, encoder);
+    assertNotNull(setterCodec);
+
+    final Attribute a = new Attribute("setValue", "foo", "bar");
+
+    final MemberCodecTestCase o = new MemberCodecTestCase();
+    assertNull(getterCodec.read(o));
+
+    setterCodec.decode(o, a);
+    assertNotNull(o.setterValue);
+    assertTrue(o.setterValue instanceof LinkedHashSet);
+    assertEquals(o.setterValue,
+         new LinkedHashSet<String>(Arrays.asList("foo", "bar")));
+
+    final Object value = getterCodec.read(o);
+    assertSame(value, o.setterValue);
+    assertEquals(getterCodec.encode(value, "setValue"),
+         encoder.encodeMethodValue(getter, value, "setValue"));
+    assertEquals(getterCodec.encode(value, "setValue"), a);
+  }
+
+
+
+  /**
+   * Retrieves the specified field from this class and makes it accessible.
+   *
+   * @param  name  The name of the field to retrieve.
+   *
+   * @return  The requested field.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static Field getField(final String name)
+          throws Exception
+  {
+    final Field f = MemberCodecTestCase.class.getDeclaredField(name);
+    f.setAccessible(true);
+    return f;
+  }
+
+
+
+  /**
+   * Retrieves the value passed to the most recent call to the setter method.
+   *
+   * @return  The value passed to the most recent call to the setter method.
+   */
+  @SuppressWarnings("unchecked")
+  private LinkedHashSet<String> getSetValue()
+  {
+    return (LinkedHashSet<String>) setterValue;
+  }
+
+
+
+  /**
+   * Stores the provided value.
+   *
+   * @param  value  The value to store.
+   */
+  private void setSetValue(final LinkedHashSet<String> value)
+  {
+    setterValue = value;
+  }
+}
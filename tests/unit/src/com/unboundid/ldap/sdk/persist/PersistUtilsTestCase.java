@@ -22,6 +22,8 @@ package com.unboundid.ldap.sdk.persist;
 
 
 
+import java.lang.reflect.Field;
+
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -316,4 +318,28 @@ public class PersistUtilsTestCase
       conn.close();
     }
   }
+
+
+
+  /**
+   * Tests the behavior of the {@code makeAccessible} method.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testMakeAccessible()
+         throws Exception
+  {
+    final Field f = TestBasicObject.class.getDeclaredField("a");
+    assertNotNull(f);
+
+    PersistUtils.makeAccessible(f);
+
+    final TestBasicObject o = new TestBasicObject();
+    f.set(o, "foo");
+    assertEquals(f.get(o), "foo");
+
+    PersistUtils.makeAccessible(f);
+    assertEquals(f.get(o), "foo");
+  }
 }
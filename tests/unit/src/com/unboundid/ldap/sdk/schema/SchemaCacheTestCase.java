@@ -0,0 +1,260 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk.schema;
+
+
+
+import java.io.File;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.sdk.LDAPConnection;
+import com.unboundid.ldap.sdk.LDAPConnectionOptions;
+import com.unboundid.ldap.sdk.LDAPSDKTestCase;
+
+
+
+/**
+ * This class provides a set of test cases for the {@code SchemaCache} class.
+ */
+public class SchemaCacheTestCase
+       extends LDAPSDKTestCase
+{
+  /**
+   * Restores the default schema cache configuration after each test.
+   */
+  @AfterMethod()
+  public void resetSchemaCache()
+  {
+    SchemaCache.setEnabled(false);
+    SchemaCache.setCacheDirectory(null);
+  }
+
+
+
+  /**
+   * Tests the behavior when the schema cache is disabled.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testCacheDisabled()
+         throws Exception
+  {
+    assertFalse(SchemaCache.isEnabled());
+    assertNull(SchemaCache.getCacheDirectory());
+
+    final InMemoryDirectoryServer ds = createDS();
+    final LDAPConnection conn = ds.getConnection();
+
+    try
+    {
+      final Schema schema1 = SchemaCache.getSchema(conn);
+      assertNotNull(schema1);
+
+      final Schema schema2 = SchemaCache.getSchema(conn);
+      assertNotNull(schema2);
+      assertNotSame(schema2, schema1);
+      assertEquals(schema2, schema1);
+    }
+    finally
+    {
+      conn.close();
+      ds.shutDown(true);
+    }
+  }
+
+
+
+  /**
+   * Tests the behavior when the schema cache is enabled, including ensuring
+   * that cached schema is shared across connections and that it is read again
+   * after the server schema is changed.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testCacheEnabled()
+         throws Exception
+  {
+    SchemaCache.setEnabled(true);
+    assertTrue(SchemaCache.isEnabled());
+
+    final InMemoryDirectoryServer ds = createDS();
+    final LDAPConnection conn1 = ds.getConnection();
+    final LDAPConnection conn2 = ds.getConnection();
+
+    try
+    {
+      final Schema schema1 = SchemaCache.getSchema(conn1);
+      assertNotNull(schema1);
+      assertNull(schema1.getAttributeType("testAttr"));
+
+      assertSame(SchemaCache.getSchema(conn1), schema1);
+      assertSame(SchemaCache.getSchema(conn2), schema1);
+
+      ds.modify(
+           "dn: cn=schema",
+           "changetype: modify",
+           "add: attributeTypes",
+           "attributeTypes: ( 1.2.3.4 NAME 'testAttr' )");
+
+      final Schema schema2 = SchemaCache.getSchema(conn2);
+      assertNotNull(schema2);
+      assertNotSame(schema2, schema1);
+      assertNotNull(schema2.getAttributeType("testAttr"));
+      assertSame(SchemaCache.getSchema(conn1), schema2);
+
+      SchemaCache.clear();
+      final Schema schema3 = SchemaCache.getSchema(conn1);
+      assertNotSame(schema3, schema2);
+      assertEquals(schema3, schema2);
+    }
+    finally
+    {
+      conn1.close();
+      conn2.close();
+      ds.shutDown(true);
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that connections configured to use schema will obtain it
+   * from the schema cache.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testConnectionUseSchema()
+         throws Exception
+  {
+    SchemaCache.setEnabled(true);
+
+    final InMemoryDirectoryServer ds = createDS();
+    final LDAPConnectionOptions options = new LDAPConnectionOptions();
+    options.setUseSchema(true);
+
+    final LDAPConnection conn1 = new LDAPConnection(options, "localhost",
+         ds.getListenPort());
+    final LDAPConnection conn2 = new LDAPConnection(options, "localhost",
+         ds.getListenPort());
+
+    try
+    {
+      final Schema schema = SchemaCache.getSchema(conn1);
+      assertNotNull(schema);
+      assertSame(SchemaCache.getSchema(conn2), schema);
+    }
+    finally
+    {
+      conn1.close();
+      conn2.close();
+      ds.shutDown(true);
+    }
+  }
+
+
+
+  /**
+   * Tests the ability to persist cached schema to disk and to use the
+   * persisted schema after the in-memory cache has been cleared.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testPersistedCache()
+         throws Exception
+  {
+    final File cacheDir = new File(createTempDir(), "cache");
+    SchemaCache.setEnabled(true);
+    SchemaCache.setCacheDirectory(cacheDir);
+    assertEquals(SchemaCache.getCacheDirectory(), cacheDir);
+
+    final InMemoryDirectoryServer ds = createDS();
+    final LDAPConnection conn = ds.getConnection();
+
+    try
+    {
+      final Schema schema1 = SchemaCache.getSchema(conn);
+      assertNotNull(schema1);
+
+      final File cacheFile = SchemaCache.getCacheFile(
+           conn.getConnectedAddress() + ':' + conn.getConnectedPort());
+      assertNotNull(cacheFile);
+      assertTrue(cacheFile.exists());
+      assertEquals(cacheDir.listFiles().length, 1);
+
+      // Set the modification time of the cache file to a time in the past so
+      // that it is possible to tell whether it has been rewritten.
+      assertTrue(cacheFile.setLastModified(1000000000L));
+
+      SchemaCache.clear();
+      final Schema schema2 = SchemaCache.getSchema(conn);
+      assertNotSame(schema2, schema1);
+      assertEquals(schema2, schema1);
+      assertEquals(cacheFile.lastModified(), 1000000000L);
+
+      // Change the schema so that the persisted copy is no longer current.
+      ds.modify(
+           "dn: cn=schema",
+           "changetype: modify",
+           "add: attributeTypes",
+           "attributeTypes: ( 1.2.3.4 NAME 'testAttr' )");
+
+      SchemaCache.clear();
+      final Schema schema3 = SchemaCache.getSchema(conn);
+      assertNotNull(schema3.getAttributeType("testAttr"));
+      assertFalse(cacheFile.lastModified() == 1000000000L);
+
+      SchemaCache.clear();
+      final Schema schema4 = SchemaCache.getSchema(conn);
+      assertNotNull(schema4.getAttributeType("testAttr"));
+    }
+    finally
+    {
+      conn.close();
+      ds.shutDown(true);
+    }
+  }
+
+
+
+  /**
+   * Creates and starts a new in-memory directory server instance.
+   *
+   * @return  The in-memory directory server instance that was created.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static InMemoryDirectoryServer createDS()
+          throws Exception
+  {
+    final InMemoryDirectoryServer ds = new InMemoryDirectoryServer(
+         new InMemoryDirectoryServerConfig("dc=example,dc=com"));
+    ds.startListening();
+    return ds;
+  }
+}
@@ -133,12 +133,14 @@ public final class LauncherTestCase
       new Object[] { "ldapmodify" },
       new Object[] { "ldapsearch" },
       new Object[] { "ldap-debugger" },
+      new Object[] { "ldif-diff" },
       new Object[] { "manage-account" },
       new Object[] { "modrate" },
       new Object[] { "move-subtree" },
       new Object[] { "register-yubikey-otp-device" },
       new Object[] { "searchrate" },
       new Object[] { "search-and-mod-rate" },
+      new Object[] { "sort-ldif" },
       new Object[] { "split-ldif" },
       new Object[] { "subtree-accessibility" },
       new Object[] { "summarize-access-log" },
@@ -25,6 +25,7 @@ package com.unboundid.ldap.sdk.unboundidds.tools;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.util.ArrayList;
 
 import org.testng.annotations.Test;
 
@@ -2231,6 +2232,210 @@ public final class LDAPModifyTestCase
 
 
 
+  /**
+   * Tests the behavior of the tool when using multiple threads to apply a set
+   * of hierarchical changes, in which many changes depend on earlier changes to
+   * the same entry or to its parent or children.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testParallelHierarchicalOperations()
+         throws Exception
+  {
+    // Get an in-memory directory server instance to use for testing.
+    final InMemoryDirectoryServer ds = getTestDS(true, false);
+
+
+    // Create an LDIF file that adds a subtree, modifies and renames entries
+    // within it, and then deletes it.
+    final ArrayList<String> ldifLines = new ArrayList<String>(500);
+    ldifLines.add("dn: ou=Parallel,dc=example,dc=com");
+    ldifLines.add("changetype: add");
+    ldifLines.add("objectClass: top");
+    ldifLines.add("objectClass: organizationalUnit");
+    ldifLines.add("ou: Parallel");
+    ldifLines.add("");
+
+    for (int i=0; i < 20; i++)
+    {
+      ldifLines.add("dn: ou=" + i + ",ou=Parallel,dc=example,dc=com");
+      ldifLines.add("changetype: add");
+      ldifLines.add("objectClass: top");
+      ldifLines.add("objectClass: organizationalUnit");
+      ldifLines.add("ou: " + i);
+      ldifLines.add("");
+
+      ldifLines.add("dn: cn=" + i + ",ou=" + i +
+           ",ou=Parallel,dc=example,dc=com");
+      ldifLines.add("changetype: add");
+      ldifLines.add("objectClass: top");
+      ldifLines.add("objectClass: device");
+      ldifLines.add("cn: " + i);
+      ldifLines.add("");
+    }
+
+    for (int i=0; i < 20; i++)
+    {
+      ldifLines.add("dn: cn=" + i + ",ou=" + i +
+           ",ou=Parallel,dc=example,dc=com");
+      ldifLines.add("changetype: modify");
+      ldifLines.add("replace: description");
+      ldifLines.add("description: " + i);
+      ldifLines.add("");
+
+      ldifLines.add("dn: cn=" + i + ",ou=" + i +
+           ",ou=Parallel,dc=example,dc=com");
+      ldifLines.add("changetype: moddn");
+      ldifLines.add("newrdn: cn=renamed-" + i);
+      ldifLines.add("deleteoldrdn: 1");
+      ldifLines.add("");
+
+      ldifLines.add("dn: cn=renamed-" + i + ",ou=" + i +
+           ",ou=Parallel,dc=example,dc=com");
+      ldifLines.add("changetype: delete");
+      ldifLines.add("");
+
+      ldifLines.add("dn: ou=" + i + ",ou=Parallel,dc=example,dc=com");
+      ldifLines.add("changetype: delete");
+      ldifLines.add("");
+    }
+
+    ldifLines.add("dn: ou=Parallel,dc=example,dc=com");
+    ldifLines.add("changetype: delete");
+    ldifLines.add("");
+
+    ldifLines.add("dn: ou=Parallel Done,dc=example,dc=com");
+    ldifLines.add("changetype: add");
+    ldifLines.add("objectClass: top");
+    ldifLines.add("objectClass: organizationalUnit");
+    ldifLines.add("ou: Parallel Done");
+
+    final File ldifFile =
+         createTempFile(ldifLines.toArray(new String[ldifLines.size()]));
+
+
+    // Run the tool with multiple threads and verify the result.
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ResultCode resultCode = LDAPModify.main(getInputStream(), out, out,
+         "--hostname", "localhost",
+         "--port", String.valueOf(ds.getListenPort()),
+         "--bindDN", "cn=Directory Manager",
+         "--bindPassword", "password",
+         "--ldifFile", ldifFile.getAbsolutePath(),
+         "--numThreads", "4");
+    assertEquals(resultCode, ResultCode.SUCCESS,
+         new String(out.toByteArray(), "UTF-8"));
+
+    ds.assertEntryMissing("ou=Parallel,dc=example,dc=com");
+    ds.assertEntryExists("ou=Parallel Done,dc=example,dc=com");
+  }
+
+
+
+  /**
+   * Tests the behavior of the tool when using multiple threads with an
+   * operation that fails, both with and without the continue on error flag.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testParallelOperationFailureWithRejectFile()
+         throws Exception
+  {
+    // Get an in-memory directory server instance to use for testing.
+    final InMemoryDirectoryServer ds = getTestDS(true, false);
+    ds.assertAttributeMissing("dc=example,dc=com", "description");
+
+
+    // Create an LDIF file with three changes.  The first and third will be
+    // valid, and the second will be invalid.  Each change depends on the one
+    // before it, so they will be processed in order.
+    final File ldifFile = createTempFile(
+         "dn: dc=example,dc=com",
+         "changetype: modify",
+         "replace: description",
+         "description: before",
+         "",
+         "dn: ou=missing,dc=example,dc=com",
+         "changetype: modify",
+         "replace: description",
+         "description: missing",
+         "",
+         "dn: dc=example,dc=com",
+         "changetype: modify",
+         "replace: description",
+         "description: after");
+
+
+    // Create a reject file.
+    final File rejectFile = createTempFile();
+    assertTrue(rejectFile.delete());
+
+
+    // Run the tool without the continue on error flag.
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ResultCode resultCode = LDAPModify.main(getInputStream(), out, out,
+         "--hostname", "localhost",
+         "--port", String.valueOf(ds.getListenPort()),
+         "--bindDN", "cn=Directory Manager",
+         "--bindPassword", "password",
+         "--ldifFile", ldifFile.getAbsolutePath(),
+         "--rejectFile", rejectFile.getAbsolutePath(),
+         "--numThreads", "4");
+    assertEquals(resultCode, ResultCode.NO_SUCH_OBJECT,
+         new String(out.toByteArray(), "UTF-8"));
+
+    ds.assertValueExists("dc=example,dc=com", "description", "before");
+    assertTrue(rejectFile.exists());
+    assertTrue(rejectFile.length() > 0L);
+    assertTrue(rejectFile.delete());
+
+
+    // Run the tool with the continue on error flag.
+    out.reset();
+    resultCode = LDAPModify.main(getInputStream(), out, out,
+         "--hostname", "localhost",
+         "--port", String.valueOf(ds.getListenPort()),
+         "--bindDN", "cn=Directory Manager",
+         "--bindPassword", "password",
+         "--ldifFile", ldifFile.getAbsolutePath(),
+         "--rejectFile", rejectFile.getAbsolutePath(),
+         "--continueOnError",
+         "--numThreads", "4");
+    assertEquals(resultCode, ResultCode.NO_SUCH_OBJECT,
+         new String(out.toByteArray(), "UTF-8"));
+
+    ds.assertValueExists("dc=example,dc=com", "description", "after");
+    assertTrue(rejectFile.exists());
+    assertTrue(rejectFile.length() > 0L);
+    assertTrue(rejectFile.delete());
+  }
+
+
+
+  /**
+   * Tests to ensure that the tool will not allow multiple threads to be used in
+   * conjunction with a transaction.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testParallelWithTransaction()
+         throws Exception
+  {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertEquals(
+         LDAPModify.main(getInputStream(), out, out,
+              "--hostname", "localhost",
+              "--port", "389",
+              "--useTransaction",
+              "--numThreads", "4"),
+         ResultCode.PARAM_ERROR);
+  }
+
+
+
   /**
    * Retrieves an input stream that may be used to read the provided lines.
    *
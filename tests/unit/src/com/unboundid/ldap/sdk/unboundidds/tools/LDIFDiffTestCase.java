@@ -0,0 +1,206 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk.unboundidds.tools;
+
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+
+import org.testng.annotations.Test;
+
+import com.unboundid.ldap.sdk.LDAPSDKTestCase;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.Version;
+import com.unboundid.ldif.LDIFAddChangeRecord;
+import com.unboundid.ldif.LDIFChangeRecord;
+import com.unboundid.ldif.LDIFDeleteChangeRecord;
+import com.unboundid.ldif.LDIFModifyChangeRecord;
+import com.unboundid.ldif.LDIFReader;
+
+
+
+/**
+ * This class provides a set of test cases to cover the LDIFDiff tool.
+ */
+public final class LDIFDiffTestCase
+       extends LDAPSDKTestCase
+{
+  /**
+   * Provides basic test coverage for the LDIFDiff tool methods that can be
+   * covered without running the tool.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testBasicMethods()
+         throws Exception
+  {
+    final LDIFDiff tool = new LDIFDiff(null, null);
+
+    assertNotNull(tool.getToolName());
+    assertEquals(tool.getToolName(), "ldif-diff");
+
+    assertNotNull(tool.getToolDescription());
+
+    assertNotNull(tool.getToolVersion());
+    assertEquals(tool.getToolVersion(), Version.NUMERIC_VERSION_STRING);
+
+    assertTrue(tool.supportsInteractiveMode());
+
+    assertTrue(tool.defaultsToInteractiveMode());
+
+    assertTrue(tool.supportsPropertiesFile());
+
+    assertNotNull(tool.getExampleUsages());
+    assertFalse(tool.getExampleUsages().isEmpty());
+  }
+
+
+
+  /**
+   * Provides test coverage for the LDIFDiff tool when simply used to obtain
+   * usage information.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testUsage()
+         throws Exception
+  {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ResultCode rc = LDIFDiff.main(out, out, "--help");
+    assertEquals(rc, ResultCode.SUCCESS);
+    assertTrue(out.toByteArray().length > 0);
+  }
+
+
+
+  /**
+   * Tests the tool with unsorted input files that have entries to add,
+   * delete, and modify.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testDiffUnsorted()
+         throws Exception
+  {
+    final File sourceFile = createTempFile(
+         "dn: ou=People,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: People",
+         "",
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example",
+         "",
+         "dn: ou=Groups,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: Groups");
+    final File targetFile = createTempFile(
+         "dn: uid=test.user,ou=People,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: person",
+         "uid: test.user",
+         "cn: Test User",
+         "sn: User",
+         "",
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example",
+         "description: changed",
+         "",
+         "dn: ou=People,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: People");
+    final File outputFile = createTempFile();
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ResultCode rc = LDIFDiff.main(out, out,
+         "--sourceLDIF", sourceFile.getAbsolutePath(),
+         "--targetLDIF", targetFile.getAbsolutePath(),
+         "--outputLDIF", outputFile.getAbsolutePath(),
+         "--sortInputs",
+         "--numThreads", "2");
+    assertEquals(rc, ResultCode.SUCCESS, out.toString("UTF-8"));
+
+    final LDIFReader reader = new LDIFReader(outputFile);
+    try
+    {
+      LDIFChangeRecord r = reader.readChangeRecord();
+      assertTrue(r instanceof LDIFModifyChangeRecord);
+      assertEquals(r.getDN(), "dc=example,dc=com");
+
+      r = reader.readChangeRecord();
+      assertTrue(r instanceof LDIFAddChangeRecord);
+      assertEquals(r.getDN(), "uid=test.user,ou=People,dc=example,dc=com");
+
+      r = reader.readChangeRecord();
+      assertTrue(r instanceof LDIFDeleteChangeRecord);
+      assertEquals(r.getDN(), "ou=Groups,dc=example,dc=com");
+
+      assertNull(reader.readChangeRecord());
+    }
+    finally
+    {
+      reader.close();
+    }
+  }
+
+
+
+  /**
+   * Tests the tool with an unsorted input file when it is not asked to sort
+   * the data.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testUnsortedNotAllowed()
+         throws Exception
+  {
+    final File sourceFile = createTempFile(
+         "dn: ou=People,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: People",
+         "",
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example");
+    final File targetFile = createTempFile();
+    final File outputFile = createTempFile();
+
+    final ResultCode rc = LDIFDiff.main((OutputStream) null, null,
+         "--sourceLDIF", sourceFile.getAbsolutePath(),
+         "--targetLDIF", targetFile.getAbsolutePath(),
+         "--outputLDIF", outputFile.getAbsolutePath());
+    assertEquals(rc, ResultCode.DECODING_ERROR);
+  }
+}
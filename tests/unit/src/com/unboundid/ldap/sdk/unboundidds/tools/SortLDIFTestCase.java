@@ -0,0 +1,412 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldap.sdk.unboundidds.tools;
+
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPSDKTestCase;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.Version;
+import com.unboundid.ldap.sdk.schema.Schema;
+import com.unboundid.ldif.LDIFReader;
+import com.unboundid.ldif.LDIFWriter;
+
+
+
+/**
+ * This class provides a set of test cases to cover the SortLDIF tool.
+ */
+public final class SortLDIFTestCase
+       extends LDAPSDKTestCase
+{
+  /**
+   * Provides basic test coverage for the SortLDIF tool methods that can be
+   * covered without running the tool.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testBasicMethods()
+         throws Exception
+  {
+    final SortLDIF tool = new SortLDIF(null, null);
+
+    assertNotNull(tool.getToolName());
+    assertEquals(tool.getToolName(), "sort-ldif");
+
+    assertNotNull(tool.getToolDescription());
+
+    assertNotNull(tool.getToolVersion());
+    assertEquals(tool.getToolVersion(), Version.NUMERIC_VERSION_STRING);
+
+    assertTrue(tool.supportsInteractiveMode());
+
+    assertTrue(tool.defaultsToInteractiveMode());
+
+    assertTrue(tool.supportsPropertiesFile());
+
+    assertNotNull(tool.getExampleUsages());
+    assertFalse(tool.getExampleUsages().isEmpty());
+  }
+
+
+
+  /**
+   * Provides test coverage for the SortLDIF tool when simply used to obtain
+   * usage information.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testUsage()
+         throws Exception
+  {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ResultCode rc = SortLDIF.main(out, out, "--help");
+    assertEquals(rc, ResultCode.SUCCESS);
+    assertTrue(out.toByteArray().length > 0);
+  }
+
+
+
+  /**
+   * Tests the tool when sorting entries hierarchically from multiple source
+   * files with a memory limit small enough to require temporary files.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSortByHierarchy()
+         throws Exception
+  {
+    final File sourceFile1 = createTempFile(
+         "dn: uid=user.2,ou=People,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: person",
+         "uid: user.2",
+         "cn: User 2",
+         "sn: 2",
+         "",
+         "dn: ou=People,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: People");
+    final File sourceFile2 = createTempFile(
+         "dn: uid=user.1,ou=People,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: person",
+         "uid: user.1",
+         "cn: User 1",
+         "sn: 1",
+         "",
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example");
+
+    final File targetFile = createTempFile();
+    assertTrue(targetFile.delete());
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ResultCode rc = SortLDIF.main(out, out,
+         "--sourceLDIF", sourceFile1.getAbsolutePath(),
+         "--sourceLDIF", sourceFile2.getAbsolutePath(),
+         "--targetLDIF", targetFile.getAbsolutePath(),
+         "--sortByHierarchy",
+         "--maxMemoryMB", "1",
+         "--numThreads", "2",
+         "--tempDirectory", createTempDir().getAbsolutePath());
+    assertEquals(rc, ResultCode.SUCCESS, out.toString("UTF-8"));
+
+    final List<Entry> entries = readEntries(targetFile);
+    assertEquals(entries.size(), 4);
+    assertEquals(entries.get(0).getParsedDN(), new DN("dc=example,dc=com"));
+    assertEquals(entries.get(1).getParsedDN(),
+         new DN("ou=People,dc=example,dc=com"));
+    assertEquals(entries.get(2).getParsedDN(),
+         new DN("uid=user.1,ou=People,dc=example,dc=com"));
+    assertEquals(entries.get(3).getParsedDN(),
+         new DN("uid=user.2,ou=People,dc=example,dc=com"));
+  }
+
+
+
+  /**
+   * Tests the tool when sorting entries by attribute value using a schema
+   * read from a directory.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSortBySortOrderWithSchema()
+         throws Exception
+  {
+    final File sourceFile = createTempFile(
+         "dn: uid=a,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: person",
+         "uid: a",
+         "cn: A",
+         "sn: Smith",
+         "",
+         "dn: uid=b,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: person",
+         "uid: b",
+         "cn: B",
+         "sn: jones",
+         "",
+         "dn: uid=c,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: person",
+         "uid: c",
+         "cn: C",
+         "sn: Brown");
+
+    final File schemaDir = createTempDir();
+    final LDIFWriter schemaWriter =
+         new LDIFWriter(new File(schemaDir, "00-schema.ldif"));
+    schemaWriter.writeEntry(Schema.getDefaultStandardSchema().getSchemaEntry());
+    schemaWriter.close();
+
+    final File targetFile = createTempFile();
+    assertTrue(targetFile.delete());
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ResultCode rc = SortLDIF.main(out, out,
+         "--sourceLDIF", sourceFile.getAbsolutePath(),
+         "--targetLDIF", targetFile.getAbsolutePath(),
+         "--sortOrder", "-sn",
+         "--schemaPath", schemaDir.getAbsolutePath());
+    assertEquals(rc, ResultCode.SUCCESS, out.toString("UTF-8"));
+
+    final List<Entry> entries = readEntries(targetFile);
+    assertEquals(entries.size(), 3);
+    assertEquals(entries.get(0).getAttributeValue("uid"), "a");
+    assertEquals(entries.get(1).getAttributeValue("uid"), "b");
+    assertEquals(entries.get(2).getAttributeValue("uid"), "c");
+  }
+
+
+
+  /**
+   * Tests the tool when sorting entries both hierarchically and by attribute
+   * value, with a memory limit small enough to require temporary files.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSortByHierarchyAndSortOrder()
+         throws Exception
+  {
+    final List<String> lines = new ArrayList<String>(10000);
+    for (int i=0; i < 2000; i++)
+    {
+      lines.add("dn: uid=user." + i + ",ou=ou" + (i % 10) +
+           ",dc=example,dc=com");
+      lines.add("objectClass: top");
+      lines.add("objectClass: person");
+      lines.add("uid: user." + i);
+      lines.add("cn: " + new String(new char[500]).replace('\u0000', 'x'));
+      lines.add("sn: " + ((i * 7) % 13));
+      lines.add("");
+    }
+
+    for (int i=0; i < 10; i++)
+    {
+      lines.add("dn: ou=ou" + i + ",dc=example,dc=com");
+      lines.add("objectClass: top");
+      lines.add("objectClass: organizationalUnit");
+      lines.add("ou: ou" + i);
+      lines.add("sn: " + i);
+      lines.add("");
+    }
+
+    lines.add("dn: dc=example,dc=com");
+    lines.add("objectClass: top");
+    lines.add("objectClass: domain");
+    lines.add("dc: example");
+
+    final File sourceFile =
+         createTempFile(lines.toArray(new String[lines.size()]));
+    final File targetFile = createTempFile();
+    assertTrue(targetFile.delete());
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ResultCode rc = SortLDIF.main(out, out,
+         "--sourceLDIF", sourceFile.getAbsolutePath(),
+         "--targetLDIF", targetFile.getAbsolutePath(),
+         "--sortByHierarchy",
+         "--sortOrder", "sn",
+         "--maxMemoryMB", "1",
+         "--numThreads", "2");
+    assertEquals(rc, ResultCode.SUCCESS, out.toString("UTF-8"));
+
+    final List<Entry> entries = readEntries(targetFile);
+    assertEquals(entries.size(), 2011);
+
+    final Set<DN> writtenDNs = new HashSet<DN>(entries.size());
+    String previousSN = null;
+    for (final Entry e : entries)
+    {
+      final DN dn = e.getParsedDN();
+      if (dn.getRDNs().length == 5)
+      {
+        final String sn = e.getAttributeValue("sn");
+        if (previousSN != null)
+        {
+          assertTrue(previousSN.compareTo(sn) <= 0);
+        }
+        previousSN = sn;
+      }
+
+      if (writtenDNs.size() > 0)
+      {
+        assertTrue(writtenDNs.contains(dn.getParent()),
+             "Entry " + dn + " was written before its parent");
+      }
+      writtenDNs.add(dn);
+    }
+  }
+
+
+
+  /**
+   * Tests the tool when neither a hierarchical sort nor a sort order was
+   * requested.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testNoSortCriteria()
+         throws Exception
+  {
+    final File sourceFile = createTempFile(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example");
+    final File targetFile = createTempFile();
+
+    final ResultCode rc = SortLDIF.main((OutputStream) null, null,
+         "--sourceLDIF", sourceFile.getAbsolutePath(),
+         "--targetLDIF", targetFile.getAbsolutePath());
+    assertEquals(rc, ResultCode.PARAM_ERROR);
+  }
+
+
+
+  /**
+   * Tests the tool with an invalid sort order.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testInvalidSortOrder()
+         throws Exception
+  {
+    final File sourceFile = createTempFile(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example");
+    final File targetFile = createTempFile();
+
+    final ResultCode rc = SortLDIF.main((OutputStream) null, null,
+         "--sourceLDIF", sourceFile.getAbsolutePath(),
+         "--targetLDIF", targetFile.getAbsolutePath(),
+         "--sortOrder", "+invalid_name!");
+    assertEquals(rc, ResultCode.PARAM_ERROR);
+  }
+
+
+
+  /**
+   * Tests the tool when the source data contains a malformed record.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testMalformedRecord()
+         throws Exception
+  {
+    final File sourceFile = createTempFile(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example",
+         "",
+         "malformed");
+    final File targetFile = createTempFile();
+
+    final ResultCode rc = SortLDIF.main((OutputStream) null, null,
+         "--sourceLDIF", sourceFile.getAbsolutePath(),
+         "--targetLDIF", targetFile.getAbsolutePath(),
+         "--sortByHierarchy");
+    assertEquals(rc, ResultCode.DECODING_ERROR);
+  }
+
+
+
+  /**
+   * Reads all of the entries from the specified file.
+   *
+   * @param  f  The file to read.
+   *
+   * @return  The entries that were read.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static List<Entry> readEntries(final File f)
+          throws Exception
+  {
+    final List<Entry> entries = new ArrayList<Entry>(10);
+    final LDIFReader reader = new LDIFReader(f);
+    try
+    {
+      while (true)
+      {
+        final Entry e = reader.readEntry();
+        if (e == null)
+        {
+          return entries;
+        }
+        entries.add(e);
+      }
+    }
+    finally
+    {
+      reader.close();
+    }
+  }
+}
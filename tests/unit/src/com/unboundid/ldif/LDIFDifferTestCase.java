@@ -0,0 +1,499 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldif;
+
+
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.EntrySorter;
+import com.unboundid.ldap.sdk.Modification;
+import com.unboundid.ldap.sdk.ModificationType;
+
+
+
+/**
+ * This class provides a set of test cases for the LDIF differ.
+ */
+public final class LDIFDifferTestCase
+       extends LDIFTestCase
+{
+  /**
+   * Tests the default settings and the methods used to alter them.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSettings()
+         throws Exception
+  {
+    final LDIFDiffer differ = new LDIFDiffer();
+    assertFalse(differ.sortInputs());
+    assertTrue(differ.isReversible());
+    assertEquals(differ.getNumThreads(), 1);
+    assertEquals(differ.getMaxBytesInMemory(),
+         LDIFExternalSorter.DEFAULT_MAX_BYTES_IN_MEMORY);
+    assertNull(differ.getTempDirectory());
+
+    final File tempDir = createTempDir();
+    differ.setSortInputs(true);
+    differ.setReversible(false);
+    differ.setNumThreads(4);
+    differ.setMaxBytesInMemory(1234L);
+    differ.setTempDirectory(tempDir);
+
+    assertTrue(differ.sortInputs());
+    assertFalse(differ.isReversible());
+    assertEquals(differ.getNumThreads(), 4);
+    assertEquals(differ.getMaxBytesInMemory(), 1234L);
+    assertEquals(differ.getTempDirectory(), tempDir);
+
+    try
+    {
+      differ.setNumThreads(0);
+      fail("Expected an exception for zero threads");
+    }
+    catch (final Exception e)
+    {
+      // This was expected.
+    }
+
+    try
+    {
+      differ.setMaxBytesInMemory(0L);
+      fail("Expected an exception for a zero memory budget");
+    }
+    catch (final Exception e)
+    {
+      // This was expected.
+    }
+  }
+
+
+
+  /**
+   * Retrieves sets of differ settings to use for testing.
+   *
+   * @return  Sets of differ settings to use for testing.
+   */
+  @DataProvider(name="differSettings")
+  public Object[][] getDifferSettings()
+  {
+    return new Object[][]
+    {
+      new Object[] { 1, true, LDIFExternalSorter.DEFAULT_MAX_BYTES_IN_MEMORY },
+      new Object[] { 4, true, LDIFExternalSorter.DEFAULT_MAX_BYTES_IN_MEMORY },
+      new Object[] { 1, false, 10000L },
+      new Object[] { 3, false, 10000L }
+    };
+  }
+
+
+
+  /**
+   * Tests to ensure that applying the change records generated for sorted
+   * input data to the source entries yields the target entries.
+   *
+   * @param  numThreads        The number of threads to use.
+   * @param  reversible        Indicates whether to use reversible form.
+   * @param  maxBytesInMemory  The memory budget to use.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(dataProvider="differSettings")
+  public void testDiffSorted(final int numThreads, final boolean reversible,
+                             final long maxBytesInMemory)
+         throws Exception
+  {
+    final List<Entry> sourceEntries = createEntries(0);
+    final List<Entry> targetEntries = createEntries(1);
+    final File sourceFile = writeEntries(sourceEntries, false);
+    final File targetFile = writeEntries(targetEntries, false);
+    final File outputFile = createTempFile();
+
+    final LDIFDiffer differ = new LDIFDiffer();
+    differ.setNumThreads(numThreads);
+    differ.setReversible(reversible);
+    differ.setMaxBytesInMemory(maxBytesInMemory);
+
+    final long changesWritten =
+         differ.diff(sourceFile, targetFile, outputFile);
+    assertTrue(changesWritten > 0L);
+
+    assertChangesApply(sourceEntries, targetEntries, outputFile,
+         changesWritten);
+  }
+
+
+
+  /**
+   * Tests to ensure that unsorted input data can be compared when the differ
+   * is configured to sort it.
+   *
+   * @param  numThreads        The number of threads to use.
+   * @param  reversible        Indicates whether to use reversible form.
+   * @param  maxBytesInMemory  The memory budget to use.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(dataProvider="differSettings")
+  public void testDiffUnsorted(final int numThreads, final boolean reversible,
+                               final long maxBytesInMemory)
+         throws Exception
+  {
+    final List<Entry> sourceEntries = createEntries(0);
+    final List<Entry> targetEntries = createEntries(1);
+    final File sourceFile = writeEntries(sourceEntries, true);
+    final File targetFile = writeEntries(targetEntries, true);
+    final File outputFile = createTempFile();
+    final File tempDir = createTempDir();
+
+    final LDIFDiffer differ = new LDIFDiffer();
+    differ.setSortInputs(true);
+    differ.setNumThreads(numThreads);
+    differ.setReversible(reversible);
+    differ.setMaxBytesInMemory(maxBytesInMemory);
+    differ.setTempDirectory(tempDir);
+
+    final long changesWritten =
+         differ.diff(sourceFile, targetFile, outputFile);
+    assertChangesApply(sourceEntries, targetEntries, outputFile,
+         changesWritten);
+
+    // Make sure that all of the temporary files have been removed.
+    assertEquals(tempDir.listFiles().length, 0);
+  }
+
+
+
+  /**
+   * Tests the behavior when comparing identical files.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testDiffIdentical()
+         throws Exception
+  {
+    final File f = writeEntries(createEntries(0), false);
+    final File outputFile = createTempFile();
+
+    final LDIFDiffer differ = new LDIFDiffer();
+    differ.setNumThreads(2);
+    assertEquals(differ.diff(f, f, outputFile), 0L);
+    assertEquals(outputFile.length(), 0L);
+  }
+
+
+
+  /**
+   * Tests to ensure that unsorted input is rejected when the differ is not
+   * configured to sort it.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { LDIFException.class })
+  public void testDiffUnsortedNotAllowed()
+         throws Exception
+  {
+    final File sourceFile = createTempFile(
+         "dn: ou=People,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: organizationalUnit",
+         "ou: People",
+         "",
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example");
+    final File targetFile = createTempFile();
+
+    new LDIFDiffer().diff(sourceFile, targetFile, createTempFile());
+  }
+
+
+
+  /**
+   * Tests to ensure that duplicate DNs are rejected.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { LDIFException.class })
+  public void testDiffDuplicateDN()
+         throws Exception
+  {
+    final File sourceFile = createTempFile();
+    final File targetFile = createTempFile(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example",
+         "",
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example");
+
+    new LDIFDiffer().diff(sourceFile, targetFile, createTempFile());
+  }
+
+
+
+  /**
+   * Tests to ensure that reversible modifications only include the values
+   * that differ.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testReversibleModifications()
+         throws Exception
+  {
+    final File sourceFile = createTempFile(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example",
+         "description: a",
+         "description: b");
+    final File targetFile = createTempFile(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example",
+         "description: b",
+         "description: c");
+    final File outputFile = createTempFile();
+
+    assertEquals(new LDIFDiffer().diff(sourceFile, targetFile, outputFile),
+         1L);
+
+    final LDIFReader reader = new LDIFReader(outputFile);
+    final LDIFModifyChangeRecord r =
+         (LDIFModifyChangeRecord) reader.readChangeRecord();
+    assertNull(reader.readChangeRecord());
+    reader.close();
+
+    assertEquals(r.getModifications().length, 2);
+    for (final Modification m : r.getModifications())
+    {
+      assertEquals(m.getValues().length, 1);
+      if (m.getModificationType() == ModificationType.ADD)
+      {
+        assertEquals(m.getValues()[0], "c");
+      }
+      else
+      {
+        assertEquals(m.getModificationType(), ModificationType.DELETE);
+        assertEquals(m.getValues()[0], "a");
+      }
+    }
+  }
+
+
+
+  /**
+   * Reads the change records from the provided file, ensures that they are
+   * ordered so that they could be applied to a server, applies them to the
+   * source entries, and verifies that the result matches the target entries.
+   *
+   * @param  sourceEntries   The source entries.
+   * @param  targetEntries   The target entries.
+   * @param  changesFile     The file containing the change records.
+   * @param  expectedCount   The expected number of change records.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static void assertChangesApply(final List<Entry> sourceEntries,
+                                         final List<Entry> targetEntries,
+                                         final File changesFile,
+                                         final long expectedCount)
+          throws Exception
+  {
+    final Map<DN,Entry> entries = new LinkedHashMap<DN,Entry>(100);
+    for (final Entry e : sourceEntries)
+    {
+      entries.put(e.getParsedDN(), e);
+    }
+
+    long count = 0L;
+    final LDIFReader reader = new LDIFReader(changesFile);
+    try
+    {
+      while (true)
+      {
+        final LDIFChangeRecord r = reader.readChangeRecord();
+        if (r == null)
+        {
+          break;
+        }
+
+        count++;
+        final DN dn = r.getParsedDN();
+        if (r instanceof LDIFAddChangeRecord)
+        {
+          assertFalse(entries.containsKey(dn));
+          assertTrue(entries.containsKey(dn.getParent()) ||
+               dn.getParent().isNullDN() ||
+               dn.equals(new DN("dc=example,dc=com")));
+          entries.put(dn, ((LDIFAddChangeRecord) r).getEntryToAdd());
+        }
+        else if (r instanceof LDIFDeleteChangeRecord)
+        {
+          assertTrue(entries.containsKey(dn));
+          for (final DN d : entries.keySet())
+          {
+            assertFalse(dn.isAncestorOf(d, false),
+                 "Entry " + dn + " was deleted before " + d);
+          }
+          entries.remove(dn);
+        }
+        else
+        {
+          final LDIFModifyChangeRecord m = (LDIFModifyChangeRecord) r;
+          assertTrue(entries.containsKey(dn));
+          entries.put(dn, Entry.applyModifications(entries.get(dn), false,
+               m.getModifications()));
+        }
+      }
+    }
+    finally
+    {
+      reader.close();
+    }
+
+    assertEquals(count, expectedCount);
+    assertEquals(entries.size(), targetEntries.size());
+    for (final Entry e : targetEntries)
+    {
+      assertEquals(entries.get(e.getParsedDN()), e);
+    }
+  }
+
+
+
+  /**
+   * Creates a set of entries in hierarchical order.  Different generations
+   * will have some entries in common, some entries that differ, and some
+   * entries that only exist in one of them (including entire subtrees).
+   *
+   * @param  generation  The generation of the data to create.
+   *
+   * @return  The entries that were created.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static List<Entry> createEntries(final int generation)
+          throws Exception
+  {
+    final List<Entry> entries = new ArrayList<Entry>(300);
+    entries.add(new Entry(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example"));
+
+    for (int ou=generation; ou < (5 + generation); ou++)
+    {
+      entries.add(new Entry(
+           "dn: ou=ou" + ou + ",dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: organizationalUnit",
+           "ou: ou" + ou));
+
+      for (int i=0; i < 50; i++)
+      {
+        if ((i % 7) == generation)
+        {
+          // Skip some of the users in each generation.
+          continue;
+        }
+
+        final Entry e = new Entry(
+             "dn: uid=user." + i + ",ou=ou" + ou + ",dc=example,dc=com",
+             "objectClass: top",
+             "objectClass: person",
+             "uid: user." + i,
+             "cn: User " + i,
+             "sn: " + i);
+        if ((i % 3) == 0)
+        {
+          e.addAttribute("description", "generation " + generation);
+        }
+        if ((i % 5) == generation)
+        {
+          e.addAttribute("telephoneNumber", "+1 555 555 " + (1000 + i));
+        }
+        entries.add(e);
+      }
+    }
+
+    return entries;
+  }
+
+
+
+  /**
+   * Writes the provided entries to a new temporary file.
+   *
+   * @param  entries  The entries to write.
+   * @param  shuffle  Indicates whether to write the entries in random order
+   *                  rather than hierarchical order.
+   *
+   * @return  The file that was written.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static File writeEntries(final List<Entry> entries,
+                                   final boolean shuffle)
+          throws Exception
+  {
+    final List<Entry> entriesToWrite = new ArrayList<Entry>(entries);
+    if (shuffle)
+    {
+      Collections.shuffle(entriesToWrite, new Random(12345L));
+    }
+    else
+    {
+      Collections.sort(entriesToWrite, new EntrySorter(true));
+    }
+
+    final File f = createTempFile();
+    final LDIFWriter writer = new LDIFWriter(f);
+    for (final Entry e : entriesToWrite)
+    {
+      writer.writeEntry(e);
+    }
+    writer.close();
+    return f;
+  }
+}
@@ -0,0 +1,485 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldif;
+
+
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.EntrySorter;
+import com.unboundid.ldap.sdk.controls.SortKey;
+
+
+
+/**
+ * This class provides a set of test cases for the LDIF external sorter.
+ */
+public final class LDIFExternalSorterTestCase
+       extends LDIFTestCase
+{
+  /**
+   * Tests the default settings and the methods used to alter them.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSettings()
+         throws Exception
+  {
+    final EntrySorter entrySorter = new EntrySorter();
+    final LDIFExternalSorter sorter = new LDIFExternalSorter(entrySorter);
+
+    assertSame(sorter.getComparator(), entrySorter);
+    assertEquals(sorter.getMaxBytesInMemory(),
+         LDIFExternalSorter.DEFAULT_MAX_BYTES_IN_MEMORY);
+    assertEquals(sorter.getNumThreads(), 1);
+    assertEquals(sorter.getMaxRunsPerMerge(),
+         LDIFExternalSorter.DEFAULT_MAX_RUNS_PER_MERGE);
+    assertNull(sorter.getTempDirectory());
+
+    final File tempDir = createTempDir();
+    sorter.setMaxBytesInMemory(1234L);
+    sorter.setNumThreads(3);
+    sorter.setMaxRunsPerMerge(2);
+    sorter.setTempDirectory(tempDir);
+
+    assertEquals(sorter.getMaxBytesInMemory(), 1234L);
+    assertEquals(sorter.getNumThreads(), 3);
+    assertEquals(sorter.getMaxRunsPerMerge(), 2);
+    assertEquals(sorter.getTempDirectory(), tempDir);
+
+    sorter.setTempDirectory(null);
+    assertNull(sorter.getTempDirectory());
+  }
+
+
+
+  /**
+   * Tests to ensure that invalid settings are rejected.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testInvalidSettings()
+         throws Exception
+  {
+    final LDIFExternalSorter sorter =
+         new LDIFExternalSorter(new EntrySorter());
+
+    try
+    {
+      sorter.setMaxBytesInMemory(0L);
+      fail("Expected an exception for a zero memory budget");
+    }
+    catch (final Exception e)
+    {
+      // This was expected.
+    }
+
+    try
+    {
+      sorter.setNumThreads(0);
+      fail("Expected an exception for zero threads");
+    }
+    catch (final Exception e)
+    {
+      // This was expected.
+    }
+
+    try
+    {
+      sorter.setMaxRunsPerMerge(1);
+      fail("Expected an exception for a single run per merge");
+    }
+    catch (final Exception e)
+    {
+      // This was expected.
+    }
+  }
+
+
+
+  /**
+   * Retrieves sets of sorter settings to use for testing.
+   *
+   * @return  Sets of sorter settings to use for testing.
+   */
+  @DataProvider(name="sorterSettings")
+  public Object[][] getSorterSettings()
+  {
+    return new Object[][]
+    {
+      // Everything fits in memory.
+      new Object[] { LDIFExternalSorter.DEFAULT_MAX_BYTES_IN_MEMORY, 1, 100 },
+      new Object[] { LDIFExternalSorter.DEFAULT_MAX_BYTES_IN_MEMORY, 4, 100 },
+
+      // Many runs, merged in a single pass.
+      new Object[] { 20000L, 1, 100 },
+      new Object[] { 20000L, 4, 100 },
+
+      // Many runs, merged in multiple passes.
+      new Object[] { 20000L, 1, 2 },
+      new Object[] { 20000L, 3, 3 },
+
+      // A memory budget too small to hold even a single entry.
+      new Object[] { 1L, 1, 100 },
+      new Object[] { 1L, 2, 4 }
+    };
+  }
+
+
+
+  /**
+   * Tests sorting entries by attribute value, using a variety of settings, to
+   * ensure that the result matches an in-memory sort.
+   *
+   * @param  maxBytesInMemory  The memory budget to use.
+   * @param  numThreads        The number of threads to use.
+   * @param  maxRunsPerMerge   The maximum number of runs to merge at once.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(dataProvider="sorterSettings")
+  public void testSort(final long maxBytesInMemory, final int numThreads,
+                       final int maxRunsPerMerge)
+         throws Exception
+  {
+    final List<Entry> entries = createEntries(1000);
+    final File sourceFile = writeEntries(entries);
+    final File targetFile = createTempFile();
+    final File tempDir = createTempDir();
+
+    final EntrySorter entrySorter = new EntrySorter(false,
+         new SortKey("description"), new SortKey("cn"));
+    final LDIFExternalSorter sorter = new LDIFExternalSorter(entrySorter);
+    sorter.setMaxBytesInMemory(maxBytesInMemory);
+    sorter.setNumThreads(numThreads);
+    sorter.setMaxRunsPerMerge(maxRunsPerMerge);
+    sorter.setTempDirectory(tempDir);
+
+    assertEquals(sorter.sort(sourceFile, targetFile), entries.size());
+
+    final List<Entry> expected = new ArrayList<Entry>(entries);
+    Collections.sort(expected, entrySorter);
+    assertEquals(readEntries(targetFile), expected);
+
+    // Make sure that all of the temporary run files have been removed.
+    assertEquals(tempDir.listFiles().length, 0);
+  }
+
+
+
+  /**
+   * Tests sorting entries hierarchically, using a variety of settings, to
+   * ensure that the result matches an in-memory sort and that every entry is
+   * written after its parent.
+   *
+   * @param  maxBytesInMemory  The memory budget to use.
+   * @param  numThreads        The number of threads to use.
+   * @param  maxRunsPerMerge   The maximum number of runs to merge at once.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(dataProvider="sorterSettings")
+  public void testSortByHierarchy(final long maxBytesInMemory,
+                                  final int numThreads,
+                                  final int maxRunsPerMerge)
+         throws Exception
+  {
+    final List<Entry> entries = createEntries(500);
+    final File sourceFile = writeEntries(entries);
+    final File targetFile = createTempFile();
+
+    final EntrySorter entrySorter = new EntrySorter(true);
+    final LDIFExternalSorter sorter = new LDIFExternalSorter(entrySorter);
+    sorter.setMaxBytesInMemory(maxBytesInMemory);
+    sorter.setNumThreads(numThreads);
+    sorter.setMaxRunsPerMerge(maxRunsPerMerge);
+
+    assertEquals(sorter.sort(sourceFile, targetFile), entries.size());
+
+    final List<Entry> expected = new ArrayList<Entry>(entries);
+    Collections.sort(expected, entrySorter);
+
+    final List<Entry> sortedEntries = readEntries(targetFile);
+    assertEquals(sortedEntries, expected);
+
+    final Set<DN> writtenDNs = new HashSet<DN>(sortedEntries.size());
+    for (final Entry e : sortedEntries)
+    {
+      final DN parentDN = e.getParentDN();
+      if (! parentDN.equals(new DN("dc=com")))
+      {
+        assertTrue(writtenDNs.contains(parentDN),
+             "Entry " + e.getDN() + " was written before its parent");
+      }
+      writtenDNs.add(e.getParsedDN());
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that entries the comparator considers equivalent are
+   * retained and kept in the order in which they were read.  The comparator
+   * used here only examines the sn attribute, since an entry sorter would
+   * fall back to comparing DNs.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testEquivalentEntriesStable()
+         throws Exception
+  {
+    final List<Entry> entries = new ArrayList<Entry>(200);
+    for (int i=0; i < 200; i++)
+    {
+      entries.add(new Entry(
+           "dn: cn=user." + i + ",dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: person",
+           "cn: user." + i,
+           "sn: " + (i % 3)));
+    }
+
+    final File sourceFile = writeEntries(entries);
+    final File targetFile = createTempFile();
+
+    final LDIFExternalSorter sorter = new LDIFExternalSorter(
+         new Comparator<Entry>()
+         {
+           @Override()
+           public int compare(final Entry e1, final Entry e2)
+           {
+             return e1.getAttributeValue("sn").compareTo(
+                  e2.getAttributeValue("sn"));
+           }
+         });
+    sorter.setMaxBytesInMemory(2000L);
+    sorter.setNumThreads(2);
+    sorter.setMaxRunsPerMerge(3);
+    assertEquals(sorter.sort(sourceFile, targetFile), 200L);
+
+    final List<Entry> sortedEntries = readEntries(targetFile);
+    assertEquals(sortedEntries.size(), 200);
+
+    int pos = 0;
+    for (int sn=0; sn < 3; sn++)
+    {
+      for (int i=sn; i < 200; i += 3)
+      {
+        assertEquals(sortedEntries.get(pos++), entries.get(i));
+      }
+    }
+  }
+
+
+
+  /**
+   * Tests the behavior when sorting an empty file.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSortEmpty()
+         throws Exception
+  {
+    final File sourceFile = createTempFile();
+    final File targetFile = createTempFile();
+
+    final LDIFExternalSorter sorter =
+         new LDIFExternalSorter(new EntrySorter());
+    sorter.setMaxBytesInMemory(1L);
+    assertEquals(sorter.sort(sourceFile, targetFile), 0L);
+    assertTrue(readEntries(targetFile).isEmpty());
+  }
+
+
+
+  /**
+   * Tests the behavior when the source file contains a malformed record.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(expectedExceptions = { LDIFException.class })
+  public void testSortMalformedRecord()
+         throws Exception
+  {
+    final File sourceFile = createTempFile(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example",
+         "",
+         "this is not a valid record");
+    final File targetFile = createTempFile();
+
+    final LDIFExternalSorter sorter =
+         new LDIFExternalSorter(new EntrySorter());
+    sorter.setMaxBytesInMemory(1L);
+    sorter.sort(sourceFile, targetFile);
+  }
+
+
+
+  /**
+   * Tests the method used to estimate the size of an entry.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testEstimateSize()
+         throws Exception
+  {
+    final Entry smallEntry = new Entry(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example");
+    final Entry largeEntry = new Entry(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example",
+         "description: " + new String(new char[1000]).replace('\u0000', 'x'));
+
+    assertTrue(LDIFExternalSorter.estimateSize(smallEntry) > 0L);
+    assertTrue(LDIFExternalSorter.estimateSize(largeEntry) >
+         (LDIFExternalSorter.estimateSize(smallEntry) + 1000L));
+  }
+
+
+
+  /**
+   * Creates a list of entries in a branched hierarchy, in random order, with
+   * description values that will cause them to be ordered differently by
+   * attribute value than by DN.
+   *
+   * @param  numUsers  The number of user entries to create.
+   *
+   * @return  The list of entries that was created.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static List<Entry> createEntries(final int numUsers)
+          throws Exception
+  {
+    final List<Entry> entries = new ArrayList<Entry>(numUsers + 10);
+    entries.add(new Entry(
+         "dn: dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: domain",
+         "dc: example"));
+
+    for (int i=0; i < 5; i++)
+    {
+      entries.add(new Entry(
+           "dn: ou=ou" + i + ",dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: organizationalUnit",
+           "ou: ou" + i));
+    }
+
+    for (int i=0; i < numUsers; i++)
+    {
+      entries.add(new Entry(
+           "dn: cn=user." + i + ",ou=ou" + (i % 5) + ",dc=example,dc=com",
+           "objectClass: top",
+           "objectClass: person",
+           "cn: user." + i,
+           "sn: " + i,
+           "description: " + ((i * 7919) % 101)));
+    }
+
+    Collections.shuffle(entries, new Random(12345L));
+    return entries;
+  }
+
+
+
+  /**
+   * Writes the provided entries to a new temporary file.
+   *
+   * @param  entries  The entries to write.
+   *
+   * @return  The file that was written.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static File writeEntries(final List<Entry> entries)
+          throws Exception
+  {
+    final File f = createTempFile();
+    final LDIFWriter writer = new LDIFWriter(f);
+    for (final Entry e : entries)
+    {
+      writer.writeEntry(e);
+    }
+    writer.close();
+    return f;
+  }
+
+
+
+  /**
+   * Reads all of the entries from the specified file.
+   *
+   * @param  f  The file to read.
+   *
+   * @return  The entries that were read.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static List<Entry> readEntries(final File f)
+          throws Exception
+  {
+    final List<Entry> entries = new ArrayList<Entry>(100);
+    final LDIFReader reader = new LDIFReader(f);
+    try
+    {
+      while (true)
+      {
+        final Entry e = reader.readEntry();
+        if (e == null)
+        {
+          return entries;
+        }
+        entries.add(e);
+      }
+    }
+    finally
+    {
+      reader.close();
+    }
+  }
+}
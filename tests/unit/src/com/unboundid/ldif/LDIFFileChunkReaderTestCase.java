@@ -0,0 +1,273 @@
+/*
+ * Copyright 2017 Ping Identity Corporation
+ * All Rights Reserved.
+ */
+/*
+ * Copyright (C) 2017 Ping Identity Corporation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License (GPLv2 only)
+ * or the terms of the GNU Lesser General Public License (LGPLv2.1 only)
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ */
+package com.unboundid.ldif;
+
+
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.testng.annotations.Test;
+
+import com.unboundid.util.StaticUtils;
+
+
+
+/**
+ * This class provides a set of test cases for the LDIFFileChunkReader class.
+ */
+public class LDIFFileChunkReaderTestCase
+       extends LDIFTestCase
+{
+  /**
+   * Tests the behavior when reading an empty file.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testEmptyFile()
+         throws Exception
+  {
+    final LDIFFileChunkReader reader =
+         new LDIFFileChunkReader(createTempFile(), 16);
+
+    LDIFFileChunkReader.Chunk chunk = reader.readChunk();
+    while (chunk != null)
+    {
+      assertEquals(chunk.getLength(), 0);
+      chunk = reader.readChunk();
+    }
+
+    reader.close();
+  }
+
+
+
+  /**
+   * Tests to ensure that every chunk ends at a record boundary, that no data
+   * is lost or duplicated, and that the first line number for each chunk is
+   * correct.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testChunkBoundaries()
+         throws Exception
+  {
+    for (final String eol : new String[] { "\n", "\r\n" })
+    {
+      final StringBuilder buffer = new StringBuilder();
+      for (int i=0; i < 100; i++)
+      {
+        buffer.append("dn: dc=").append(i).append(eol);
+        buffer.append("dc: ").append(i).append(eol);
+        buffer.append(eol);
+
+        if ((i % 3) == 0)
+        {
+          buffer.append(eol);
+        }
+      }
+
+      buffer.append("dn: dc=last").append(eol);
+      buffer.append("dc: last");
+
+      final String content = buffer.toString();
+      final File f = writeFile(content);
+
+      final LDIFFileChunkReader reader = new LDIFFileChunkReader(f, 32);
+      final StringBuilder readContent = new StringBuilder();
+      long expectedLineNumber = 1L;
+      int numChunks = 0;
+      while (true)
+      {
+        final LDIFFileChunkReader.Chunk chunk = reader.readChunk();
+        if (chunk == null)
+        {
+          break;
+        }
+
+        numChunks++;
+        assertEquals(chunk.getFirstLineNumber(), expectedLineNumber);
+        assertFalse(chunk.isEOF());
+        assertNull(chunk.getFailureCause());
+
+        final String s = StaticUtils.toUTF8String(chunk.getData(), 0,
+             chunk.getLength());
+        readContent.append(s);
+        if (readContent.length() < content.length())
+        {
+          assertTrue(s.endsWith(eol + eol), s);
+        }
+
+        for (int i=0; i < s.length(); i++)
+        {
+          if (s.charAt(i) == '\n')
+          {
+            expectedLineNumber++;
+          }
+        }
+      }
+
+      reader.close();
+      assertTrue(numChunks > 10);
+      assertEquals(readContent.toString(), content);
+      f.delete();
+    }
+  }
+
+
+
+  /**
+   * Tests the behavior when a single record is larger than the chunk size.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testRecordLargerThanChunk()
+         throws Exception
+  {
+    final StringBuilder buffer = new StringBuilder();
+    buffer.append("dn: dc=small\n\n");
+    buffer.append("dn: dc=large\n");
+    for (int i=0; i < 100; i++)
+    {
+      buffer.append("description: value ").append(i).append('\n');
+    }
+    buffer.append('\n');
+    buffer.append("dn: dc=small2\n\n");
+
+    final File f = writeFile(buffer.toString());
+    final LDIFFileChunkReader reader = new LDIFFileChunkReader(f, 16);
+
+    final LDIFFileChunkReader.Chunk firstChunk = reader.readChunk();
+    assertNotNull(firstChunk);
+    assertEquals(StaticUtils.toUTF8String(firstChunk.getData(), 0,
+         firstChunk.getLength()), "dn: dc=small\n\n");
+
+    final LDIFFileChunkReader.Chunk secondChunk = reader.readChunk();
+    assertNotNull(secondChunk);
+    assertEquals(secondChunk.getFirstLineNumber(), 3L);
+
+    final String s = StaticUtils.toUTF8String(secondChunk.getData(), 0,
+         secondChunk.getLength());
+    assertTrue(s.startsWith("dn: dc=large\n"));
+    assertTrue(s.contains("description: value 99\n\n"));
+
+    LDIFFileChunkReader.Chunk chunk = reader.readChunk();
+    while (chunk != null)
+    {
+      chunk = reader.readChunk();
+    }
+
+    reader.close();
+    f.delete();
+  }
+
+
+
+  /**
+   * Tests the {@code findLastRecordBoundary} method.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testFindLastRecordBoundary()
+         throws Exception
+  {
+    assertEquals(findBoundary(""), -1);
+    assertEquals(findBoundary("\n"), -1);
+    assertEquals(findBoundary("dn: dc=a\n"), -1);
+    assertEquals(findBoundary("dn: dc=a\n\n"), 10);
+    assertEquals(findBoundary("dn: dc=a\r\n\r\n"), 12);
+    assertEquals(findBoundary("dn: dc=a\n\ndn: dc=b\n"), 10);
+    assertEquals(findBoundary("dn: dc=a\n\ndn: dc=b\n\ndn"), 20);
+    assertEquals(findBoundary("dn: dc=a\r\ndc: a\r\n"), -1);
+  }
+
+
+
+  /**
+   * Tests the constructors and methods of the chunk class for chunks that
+   * indicate the end of the file or a read error.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSpecialChunks()
+         throws Exception
+  {
+    final LDIFFileChunkReader.Chunk eofChunk =
+         new LDIFFileChunkReader.Chunk(null);
+    assertTrue(eofChunk.isEOF());
+    assertNull(eofChunk.getData());
+    assertNull(eofChunk.getFailureCause());
+
+    final LDIFFileChunkReader.Chunk errorChunk =
+         new LDIFFileChunkReader.Chunk(new Exception("read error"));
+    assertFalse(errorChunk.isEOF());
+    assertNull(errorChunk.getData());
+    assertNotNull(errorChunk.getFailureCause());
+  }
+
+
+
+  /**
+   * Invokes the {@code findLastRecordBoundary} method on the provided string.
+   *
+   * @param  s  The string to examine.
+   *
+   * @return  The result of invoking the method.
+   */
+  private static int findBoundary(final String s)
+  {
+    final byte[] b = StaticUtils.getBytes(s);
+    return LDIFFileChunkReader.findLastRecordBoundary(b, 0, b.length);
+  }
+
+
+
+  /**
+   * Writes the provided content to a temporary file.
+   *
+   * @param  content  The content to write.
+   *
+   * @return  The file that was written.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static File writeFile(final String content)
+          throws Exception
+  {
+    final File f = createTempFile();
+    final FileOutputStream outputStream = new FileOutputStream(f);
+    try
+    {
+      outputStream.write(StaticUtils.getBytes(content));
+    }
+    finally
+    {
+      outputStream.close();
+    }
+
+    return f;
+  }
+}
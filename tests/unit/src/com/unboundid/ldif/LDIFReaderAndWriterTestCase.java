@@ -9559,4 +9559,465 @@ public class LDIFReaderAndWriterTestCase
          "objectClass: domain",
          "dc: example");
   }
+
+
+
+  /**
+   * Provides test parameters for the tests that split records in parallel.
+   *
+   * @return  Parameters for the tests that split records in parallel.
+   */
+  @DataProvider
+  public Object[][] parallelSplittingParams()
+  {
+    return new Object[][]{
+         new Object[]{ "\n", 1 },
+         new Object[]{ "\n", 4 },
+         new Object[]{ "\r\n", 1 },
+         new Object[]{ "\r\n", 4 },
+    };
+  }
+
+
+
+  /**
+   * Tests to ensure that reading a file with records split in parallel yields
+   * exactly the same records and errors, in the same order, as reading the
+   * file with a single line reader thread.  The file is large enough to span
+   * several chunks.
+   *
+   * @param  eol         The end-of-line sequence to use in the file.
+   * @param  numThreads  The number of threads to use for parsing.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(dataProvider = "parallelSplittingParams")
+  public void testParallelRecordSplitting(String eol, int numThreads)
+         throws Exception
+  {
+    File ldifFile = createParallelSplittingTestFile(eol, 10000);
+
+    // Use an entry translator that records the line number for each entry and
+    // skips some of them.
+    LDIFReaderEntryTranslator entryTranslator = new LDIFReaderEntryTranslator()
+    {
+      public Entry translate(Entry original, long firstLineNumber)
+      {
+        if (original.getDN().startsWith("uid=user.7"))
+        {
+          return null;
+        }
+
+        original.setAttribute("description", "line " + firstLineNumber);
+        return original;
+      }
+    };
+
+    LDIFReader lineReader =
+         new LDIFReader(ldifFile, numThreads, entryTranslator, this, false);
+    List<String> expected = readAllRecords(lineReader);
+
+    LDIFReader parallelReader =
+         new LDIFReader(ldifFile, numThreads, entryTranslator, this, true);
+    List<String> actual = readAllRecords(parallelReader);
+
+    assertTrue(expected.size() > 25000);
+    assertEquals(actual.size(), expected.size());
+    for (int i=0; i < expected.size(); i++)
+    {
+      assertEquals(actual.get(i), expected.get(i), "Mismatch at index " + i);
+    }
+
+    // Without any translators, the results should also be the same as when
+    // reading the file serially.
+    expected = readAllRecords(new LDIFReader(ldifFile, 0, null, null, false));
+    actual = readAllRecords(
+         new LDIFReader(ldifFile, numThreads, null, null, true));
+    assertEquals(actual, expected);
+
+    ldifFile.delete();
+  }
+
+
+
+  /**
+   * Tests to ensure that requesting parallel record splitting without any
+   * parse threads will fall back to reading the file serially.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testParallelRecordSplittingWithoutThreads()
+         throws Exception
+  {
+    File ldifFile = createParallelSplittingTestFile("\n", 10);
+
+    LDIFReader serialReader = new LDIFReader(ldifFile, 0, null, null, false);
+    List<String> expected = readAllRecords(serialReader);
+
+    LDIFReader reader = new LDIFReader(ldifFile, 0, null, null, true);
+    assertEquals(readAllRecords(reader), expected);
+
+    ldifFile.delete();
+  }
+
+
+
+  /**
+   * Tests the behavior when reading files with records split in parallel for
+   * files that don't contain any records.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testParallelRecordSplittingNoRecords()
+         throws Exception
+  {
+    File emptyFile = createTempFile();
+    LDIFReader reader = new LDIFReader(emptyFile, 2, null, null, true);
+    assertNull(reader.readLDIFRecord());
+    assertNull(reader.readLDIFRecord());
+    reader.close();
+
+    File commentFile = createTempFile(
+         "version: 1",
+         "",
+         "# This is a comment",
+         " which is continued",
+         "",
+         "");
+    reader = new LDIFReader(commentFile, 2, null, null, true);
+    assertNull(reader.readEntry());
+    reader.close();
+  }
+
+
+
+  /**
+   * Tests that closing an LDIF reader that is splitting records in parallel
+   * before all of the records have been read stops all of its threads.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testParallelRecordSplittingClose()
+         throws Exception
+  {
+    File ldifFile = createParallelSplittingTestFile("\n", 20000);
+
+    Set<Thread> threadsBefore = Thread.getAllStackTraces().keySet();
+
+    LDIFReader ldifReader = new LDIFReader(ldifFile, 2, null, null, true);
+    for (int i = 0; i < 10; i++)
+    {
+      try
+      {
+        assertNotNull(ldifReader.readLDIFRecord());
+      }
+      catch (LDIFException le)
+      {
+        // This is expected for some of the records in the file.
+      }
+    }
+
+    ldifReader.close();
+
+    long failAtMs = System.currentTimeMillis() + 10 * 1000;
+    while (System.currentTimeMillis() < failAtMs)
+    {
+      Set<Thread> threadsAfter = Thread.getAllStackTraces().keySet();
+      if (threadsBefore.containsAll(threadsAfter))
+      {
+        ldifFile.delete();
+        return; // Success
+      }
+      Thread.sleep(10);
+    }
+
+    fail("LDIFReader#close() should have stopped all new Threads");
+  }
+
+
+
+  /**
+   * Tests to ensure that entries decoded directly from the bytes of each chunk
+   * when splitting records in parallel are the same as those decoded by the
+   * line-based parser, and that records which can't be decoded that way are
+   * still handled exactly like the line-based parser handles them.
+   *
+   * @param  eol         The end-of-line sequence to use in the file.
+   * @param  numThreads  The number of threads to use for parsing.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(dataProvider = "parallelSplittingParams")
+  public void testParallelRecordSplittingByteLevelDecoding(String eol,
+                                                           int numThreads)
+         throws Exception
+  {
+    File valueFile = createTempFile("value from a file");
+    String nonASCIIDN = "cn=J\u00f6rg,dc=example,dc=com";
+
+    StringBuilder buffer = new StringBuilder();
+    for (int i=0; i < 500; i++)
+    {
+      buffer.append("dn: uid=user.").append(i).append(",dc=example,dc=com");
+      buffer.append(eol);
+      buffer.append("objectClass: top").append(eol);
+      buffer.append("objectClass: person").append(eol);
+      buffer.append("OBJECTCLASS: Person").append(eol);
+      buffer.append("uid: user.").append(i).append(eol);
+      buffer.append("c").append(eol);
+      buffer.append(" n;lang-en: wrapped name").append(eol);
+      buffer.append("sn:: ").append(Base64.encode("\u00dcser")).append(eol);
+      buffer.append("description::").append(Base64.encode("a")).append(eol);
+      buffer.append("description:: ").append(Base64.encode("ab")).append(eol);
+      buffer.append("description:: ").append(Base64.encode("abc")).append(eol);
+      buffer.append("description:: ").append(Base64.encode("abc")).append(eol);
+      buffer.append("userPassword:: cGFzc3d").append(eol);
+      buffer.append(" vcmQ=").append(eol);
+      buffer.append("telephoneNumber:").append(eol);
+      buffer.append("mail:user.").append(i).append("@example.com").append(eol);
+      buffer.append(eol);
+
+      buffer.append("DN:: ").append(Base64.encode(nonASCIIDN)).append(eol);
+      buffer.append(eol);
+
+      buffer.append("dn:").append(eol);
+      buffer.append("objectClass: top").append(eol);
+      buffer.append(eol);
+
+      buffer.append("dn: cn=trailing space").append(eol);
+      buffer.append("cn: trailing space ").append(eol);
+      buffer.append(eol);
+
+      buffer.append("dn: cn=bad base64").append(eol);
+      buffer.append("cn:: A===").append(eol);
+      buffer.append(eol);
+
+      buffer.append("dn: cn=odd base64").append(eol);
+      buffer.append("cn:: YW=j").append(eol);
+      buffer.append(eol);
+
+      buffer.append("dn: cn=url").append(eol);
+      buffer.append("description:< file://").append(valueFile.getAbsolutePath());
+      buffer.append(eol);
+      buffer.append(eol);
+
+      buffer.append("dn: cn=non-ASCII").append(eol);
+      buffer.append("cn: \u00dcser").append(eol);
+      buffer.append(eol);
+
+      buffer.append("dn: cn=comment").append(eol);
+      buffer.append("# A comment").append(eol);
+      buffer.append("cn: comment").append(eol);
+      buffer.append(eol);
+
+      buffer.append("dn: cn=no colon").append(eol);
+      buffer.append("cn").append(eol);
+      buffer.append(eol);
+
+      buffer.append("dn: cn=change,dc=example,dc=com").append(eol);
+      buffer.append("changeType: add").append(eol);
+      buffer.append("cn: change").append(eol);
+      buffer.append(eol);
+
+      buffer.append("cn: no dn").append(eol);
+      buffer.append(eol);
+    }
+
+    File ldifFile = createTempFile();
+    FileOutputStream outputStream = new FileOutputStream(ldifFile);
+    try
+    {
+      outputStream.write(StaticUtils.getBytes(buffer.toString()));
+    }
+    finally
+    {
+      outputStream.close();
+    }
+
+    // Use an entry translator that records the line number for each entry, so
+    // that line numbers will be compared as well.
+    LDIFReaderEntryTranslator entryTranslator = new LDIFReaderEntryTranslator()
+    {
+      public Entry translate(Entry original, long firstLineNumber)
+      {
+        original.addAttribute("description", "line " + firstLineNumber);
+        return original;
+      }
+    };
+
+    List<String> expected = readAllRecords(
+         new LDIFReader(ldifFile, numThreads, entryTranslator, null, false));
+    List<String> actual = readAllRecords(
+         new LDIFReader(ldifFile, numThreads, entryTranslator, null, true));
+    assertEquals(actual, expected);
+
+    expected = readAllRecords(new LDIFReader(ldifFile, 0, null, null, false));
+    actual = readAllRecords(
+         new LDIFReader(ldifFile, numThreads, null, null, true));
+    assertEquals(actual, expected);
+
+    LDIFReader reader = new LDIFReader(ldifFile, numThreads, null, null, true);
+    Entry e = reader.readEntry();
+    assertEquals(e, new Entry(
+         "dn: uid=user.0,dc=example,dc=com",
+         "objectClass: top",
+         "objectClass: person",
+         "uid: user.0",
+         "cn;lang-en: wrapped name",
+         "sn: \u00dcser",
+         "description: a",
+         "description: ab",
+         "description: abc",
+         "userPassword: password",
+         "telephoneNumber:",
+         "mail: user.0@example.com"));
+
+    e = reader.readEntry();
+    assertEquals(e.getDN(), nonASCIIDN);
+    assertFalse(e.getAttributes().iterator().hasNext());
+    reader.close();
+
+    ldifFile.delete();
+    valueFile.delete();
+  }
+
+
+
+  /**
+   * Creates an LDIF file containing entries, change records, comments,
+   * wrapped lines, and malformed records for use in testing parallel record
+   * splitting.
+   *
+   * @param  eol         The end-of-line sequence to use in the file.
+   * @param  numBatches  The number of batches of records to include.
+   *
+   * @return  The file that was created.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static File createParallelSplittingTestFile(String eol,
+                                                      int numBatches)
+          throws Exception
+  {
+    StringBuilder buffer = new StringBuilder();
+    buffer.append("version: 1").append(eol);
+    buffer.append(eol);
+    buffer.append(eol);
+
+    for (int i=0; i < numBatches; i++)
+    {
+      buffer.append("# Entry ").append(i).append(eol);
+      buffer.append(" with a wrapped comment").append(eol);
+      buffer.append("dn: uid=user.").append(i).append(",dc=example,dc=com");
+      buffer.append(eol);
+      buffer.append("objectClass: person").append(eol);
+      buffer.append("uid: user.").append(i).append(eol);
+      buffer.append("cn: User ").append(i).append(eol);
+      buffer.append("sn: \u00dcser").append(eol);
+      buffer.append("description: a long description that is wrapped onto");
+      buffer.append(eol);
+      buffer.append("  a second line and a third").append(eol);
+      buffer.append(" line").append(eol);
+      buffer.append("userPassword:: cGFzc3dvcmQ=").append(eol);
+      buffer.append(eol);
+
+      buffer.append("dn: uid=user.").append(i).append(",dc=example,dc=com");
+      buffer.append(eol);
+      buffer.append("changetype: modify").append(eol);
+      buffer.append("replace: description").append(eol);
+      buffer.append("description: changed ").append(i).append(eol);
+      buffer.append("-").append(eol);
+      buffer.append(eol);
+      buffer.append(eol);
+
+      switch (i % 4)
+      {
+        case 0:
+          buffer.append(" unexpected leading space").append(eol);
+          buffer.append(eol);
+          break;
+        case 1:
+          buffer.append("dn: not a valid dn").append(eol);
+          buffer.append("objectClass: top").append(eol);
+          buffer.append(eol);
+          break;
+        case 2:
+          buffer.append("objectClass: top").append(eol);
+          buffer.append(eol);
+          break;
+        default:
+          buffer.append("dn: uid=user.").append(i).append(",dc=example,dc=com");
+          buffer.append(eol);
+          buffer.append("changetype: delete").append(eol);
+          buffer.append(eol);
+          break;
+      }
+    }
+
+    // Make sure that the last record isn't followed by a blank line.
+    buffer.append("dn: dc=last").append(eol);
+    buffer.append("dc: last");
+
+    File f = createTempFile();
+    FileOutputStream outputStream = new FileOutputStream(f);
+    try
+    {
+      outputStream.write(StaticUtils.getBytes(buffer.toString()));
+    }
+    finally
+    {
+      outputStream.close();
+    }
+
+    return f;
+  }
+
+
+
+  /**
+   * Reads all of the records from the provided LDIF reader and closes it.
+   *
+   * @param  reader  The LDIF reader from which to read the records.
+   *
+   * @return  A list with a string representation of each record or error
+   *          that was read, in the order in which they were read.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static List<String> readAllRecords(LDIFReader reader)
+          throws Exception
+  {
+    ArrayList<String> records = new ArrayList<String>();
+    try
+    {
+      while (true)
+      {
+        try
+        {
+          LDIFRecord record = reader.readLDIFRecord();
+          if (record == null)
+          {
+            break;
+          }
+
+          records.add(record.toLDIFString());
+        }
+        catch (LDIFException le)
+        {
+          records.add("error at line " + le.getLineNumber() + ":  " +
+               le.getMessage() + ", mayContinueReading=" +
+               le.mayContinueReading());
+        }
+      }
+    }
+    finally
+    {
+      reader.close();
+    }
+
+    return records;
+  }
 }
@@ -101,6 +101,280 @@ public class FixedRateBarrierTestCase
 
 
 
+  /**
+   * Tests that {@code await} operates at the proper rate when the barrier uses
+   * a token bucket.
+   *
+   * @param  intervalDurationMS  The interval duration to use when constructing
+   *                             the FixedRateBarrier.
+   * @param  perInterval         The per interval value to use when constructing
+   *                             the FixedRateBarrier.
+   * @param  numAwaitCalls       The number of times to call await.
+   * @param  minTimeMS           The minimum number of milliseconds that calling
+   *                             await for the specified amount of time should
+   *                             take.
+   * @param  maxTimeMS           The maximum number of milliseconds that calling
+   *                             await for the specified amount of time should
+   *                             take.
+   */
+  @Test(dataProvider = "getTestAwaitParams")
+  public void testTokenBucketAwait(final long intervalDurationMS,
+                                   final int perInterval,
+                                   final int numAwaitCalls,
+                                   final long minTimeMS,
+                                   final long maxTimeMS)
+  {
+    final FixedRateBarrier barrier =
+         new FixedRateBarrier(intervalDurationMS, perInterval, 1);
+    assertEquals(barrier.getTargetRate().getFirst().longValue(),
+         intervalDurationMS);
+    assertEquals(barrier.getTargetRate().getSecond().intValue(), perInterval);
+    assertEquals(barrier.getBurstSize(), 1);
+
+    final long startMS = System.currentTimeMillis();
+
+    for (int i = 0; i < numAwaitCalls; i++)
+    {
+      assertFalse(barrier.await());
+    }
+
+    final long durationMS = System.currentTimeMillis() - startMS;
+
+    assertTrue(durationMS >= minTimeMS, "durationMS=" + durationMS);
+    assertTrue(durationMS <= maxTimeMS, "durationMS=" + durationMS);
+
+    assertFalse(barrier.isShutdownRequested());
+    barrier.shutdownRequested();
+    assertTrue(barrier.isShutdownRequested());
+
+    assertTrue(barrier.await());
+  }
+
+
+
+  /**
+   * Tests that a barrier that uses a token bucket will release no more than
+   * the burst size of callers at once after falling behind schedule.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testTokenBucketBurst()
+         throws Exception
+  {
+    final FixedRateBarrier barrier = new FixedRateBarrier(1000L, 100, 5);
+    assertEquals(barrier.getBurstSize(), 5);
+
+    Thread.sleep(200L);
+
+    long startMS = System.currentTimeMillis();
+    for (int i = 0; i < 5; i++)
+    {
+      assertFalse(barrier.await());
+    }
+
+    long durationMS = System.currentTimeMillis() - startMS;
+    assertTrue(durationMS < 50L, "durationMS=" + durationMS);
+
+    startMS = System.currentTimeMillis();
+    for (int i = 0; i < 10; i++)
+    {
+      assertFalse(barrier.await());
+    }
+
+    durationMS = System.currentTimeMillis() - startMS;
+    assertTrue(durationMS >= 50L, "durationMS=" + durationMS);
+    assertTrue(durationMS <= 500L, "durationMS=" + durationMS);
+  }
+
+
+
+  /**
+   * Tests that {@code setRate} takes effect immediately for a barrier that
+   * uses a token bucket.
+   */
+  @Test()
+  public void testTokenBucketSetRate()
+  {
+    final FixedRateBarrier barrier = new FixedRateBarrier(10000L, 1, 1);
+    assertFalse(barrier.await());
+
+    barrier.setRate(100L, 100);
+    assertEquals(barrier.getTargetRate().getFirst().longValue(), 100L);
+    assertEquals(barrier.getTargetRate().getSecond().intValue(), 100);
+
+    final long startMS = System.currentTimeMillis();
+    for (int i = 0; i < 100; i++)
+    {
+      assertFalse(barrier.await());
+    }
+
+    final long durationMS = System.currentTimeMillis() - startMS;
+    assertTrue(durationMS >= 50L, "durationMS=" + durationMS);
+    assertTrue(durationMS <= 500L, "durationMS=" + durationMS);
+  }
+
+
+
+  /**
+   * Tests that {@code awaitAndGetScheduledTime} returns the time that the
+   * caller was scheduled to be released for a barrier that uses a token
+   * bucket, even when the caller has fallen behind schedule.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testTokenBucketAwaitAndGetScheduledTime()
+         throws Exception
+  {
+    final FixedRateBarrier barrier =
+         new FixedRateBarrier(1000L, 100, Integer.MAX_VALUE);
+
+    long lastScheduledTime = barrier.awaitAndGetScheduledTime();
+    for (int i = 0; i < 5; i++)
+    {
+      final long scheduledTime = barrier.awaitAndGetScheduledTime();
+      assertTrue(scheduledTime > lastScheduledTime);
+      assertTrue(scheduledTime <= System.nanoTime());
+      lastScheduledTime = scheduledTime;
+    }
+
+    // Fall behind schedule.  The next caller should be released immediately,
+    // but with a scheduled time that reflects when it should have started.
+    Thread.sleep(200L);
+
+    final long beforeNanos = System.nanoTime();
+    final long scheduledTime = barrier.awaitAndGetScheduledTime();
+    assertTrue(((beforeNanos - scheduledTime) >= 100000000L),
+         "lagNanos=" + (beforeNanos - scheduledTime));
+    assertTrue(scheduledTime > lastScheduledTime);
+  }
+
+
+
+  /**
+   * Tests that {@code awaitAndGetScheduledTime} returns the current time for a
+   * barrier that does not use a token bucket.
+   */
+  @Test()
+  public void testClassicAwaitAndGetScheduledTime()
+  {
+    final FixedRateBarrier barrier = new FixedRateBarrier(1000L, 100);
+
+    for (int i = 0; i < 5; i++)
+    {
+      final long beforeNanos = System.nanoTime();
+      final long scheduledTime = barrier.awaitAndGetScheduledTime();
+      assertTrue(scheduledTime >= beforeNanos);
+      assertTrue(scheduledTime <= System.nanoTime());
+    }
+
+    barrier.shutdownRequested();
+    final long beforeNanos = System.nanoTime();
+    assertTrue(barrier.awaitAndGetScheduledTime() >= beforeNanos);
+  }
+
+
+
+  /**
+   * Tests that a barrier that uses a token bucket enforces the target rate
+   * across multiple threads, including at a rate high enough that threads
+   * lease several permits at once.
+   *
+   * @param  perSecond        The target number of releases per second.
+   * @param  awaitsPerThread  The number of times each thread should call
+   *                          await.
+   * @param  minTimeMS        The minimum number of milliseconds that the
+   *                          awaits should take.
+   * @param  maxTimeMS        The maximum number of milliseconds that the
+   *                          awaits should take.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test(dataProvider = "getTestTokenBucketMultipleThreadsParams")
+  public void testTokenBucketMultipleThreads(final int perSecond,
+                                             final int awaitsPerThread,
+                                             final long minTimeMS,
+                                             final long maxTimeMS)
+         throws Exception
+  {
+    final FixedRateBarrier barrier = new FixedRateBarrier(1000L, perSecond, 1);
+
+    final Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++)
+    {
+      threads[i] = new Thread()
+      {
+        @Override()
+        public void run()
+        {
+          for (int j = 0; j < awaitsPerThread; j++)
+          {
+            barrier.await();
+          }
+        }
+      };
+    }
+
+    final long startMS = System.currentTimeMillis();
+    for (final Thread t : threads)
+    {
+      t.start();
+    }
+
+    for (final Thread t : threads)
+    {
+      t.join();
+    }
+
+    final long durationMS = System.currentTimeMillis() - startMS;
+    assertTrue(durationMS >= minTimeMS, "durationMS=" + durationMS);
+    assertTrue(durationMS <= maxTimeMS, "durationMS=" + durationMS);
+  }
+
+
+
+  /**
+   * Constructs the parameters to use for the
+   * {@code testTokenBucketMultipleThreads} method.
+   *
+   * @return  A set of test cases that can be used to call
+   *          {@code testTokenBucketMultipleThreads}.
+   */
+  @DataProvider
+  public Object[][] getTestTokenBucketMultipleThreadsParams()
+  {
+    return new Object[][]{
+         new Object[]{1000,     50, 150, 1000},
+         new Object[]{100000, 2500,  50, 1000},
+    };
+  }
+
+
+
+  /**
+   * Tests the behavior when trying to create a barrier with an invalid burst
+   * size.
+   */
+  @Test(expectedExceptions = { LDAPSDKUsageException.class })
+  public void testInvalidBurstSize()
+  {
+    new FixedRateBarrier(1000L, 100, 0);
+  }
+
+
+
+  /**
+   * Tests the burst size for a barrier that does not use a token bucket.
+   */
+  @Test()
+  public void testClassicBurstSize()
+  {
+    assertEquals(new FixedRateBarrier(1000L, 100).getBurstSize(), -1);
+  }
+
+
+
   /**
    * Tests that {@code setRate} operates at the proper rate.
    *
@@ -80,6 +80,13 @@ public class SSLUtilTestCase
   {
     SSLUtil.setDefaultSSLProtocol(originalDefaultSSLProtocol);
     SSLUtil.setEnabledSSLProtocols(originalEnabledSSLProtocols);
+    SSLUtil.setCacheSSLContexts(false);
+    SSLUtil.setClientSessionCacheSize(-1);
+    SSLUtil.setClientSessionTimeoutSeconds(-1);
+
+    System.clearProperty(SSLUtil.PROPERTY_CACHE_SSL_CONTEXTS);
+    System.clearProperty(SSLUtil.PROPERTY_CLIENT_SESSION_CACHE_SIZE);
+    System.clearProperty(SSLUtil.PROPERTY_CLIENT_SESSION_TIMEOUT_SECONDS);
 
     if (originalPropertyDefaultSSLProtocol == null)
     {
@@ -687,6 +694,41 @@ public class SSLUtilTestCase
 
 
 
+  /**
+   * Tests the behavior of the {@code configureSSLDefault} method when the
+   * properties used to configure SSL context caching and the client session
+   * cache are set.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testConfigureSSLDefaultsCacheProperties()
+         throws Exception
+  {
+    System.setProperty(SSLUtil.PROPERTY_CACHE_SSL_CONTEXTS, "true");
+    System.setProperty(SSLUtil.PROPERTY_CLIENT_SESSION_CACHE_SIZE, "123");
+    System.setProperty(SSLUtil.PROPERTY_CLIENT_SESSION_TIMEOUT_SECONDS,
+         "invalid");
+
+    SSLUtil.configureSSLDefaults();
+
+    assertTrue(SSLUtil.cacheSSLContexts());
+    assertEquals(SSLUtil.getClientSessionCacheSize(), 123);
+    assertEquals(SSLUtil.getClientSessionTimeoutSeconds(), -1);
+
+    System.clearProperty(SSLUtil.PROPERTY_CACHE_SSL_CONTEXTS);
+    System.clearProperty(SSLUtil.PROPERTY_CLIENT_SESSION_CACHE_SIZE);
+    System.clearProperty(SSLUtil.PROPERTY_CLIENT_SESSION_TIMEOUT_SECONDS);
+
+    SSLUtil.configureSSLDefaults();
+
+    assertFalse(SSLUtil.cacheSSLContexts());
+    assertEquals(SSLUtil.getClientSessionCacheSize(), -1);
+    assertEquals(SSLUtil.getClientSessionTimeoutSeconds(), -1);
+  }
+
+
+
   /**
    * Tests the behavior of the {@code configureSSLDefault} method when both
    * properties are set.
@@ -1135,4 +1177,75 @@ public class SSLUtilTestCase
       s.close();
     }
   }
+
+
+
+  /**
+   * Tests the behavior of SSL context caching.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testSSLContextCaching()
+         throws Exception
+  {
+    final TrustManager trustManager = new TrustAllTrustManager();
+    final SSLUtil sslUtil1 = new SSLUtil(trustManager);
+    final SSLUtil sslUtil2 = new SSLUtil(new TrustManager[] { trustManager });
+    final SSLUtil sslUtil3 = new SSLUtil(new TrustAllTrustManager());
+
+    assertFalse(SSLUtil.cacheSSLContexts());
+    assertNotSame(sslUtil1.createSSLContext("TLSv1.2"),
+         sslUtil1.createSSLContext("TLSv1.2"));
+
+    SSLUtil.setCacheSSLContexts(true);
+    assertTrue(SSLUtil.cacheSSLContexts());
+
+    final SSLContext context = sslUtil1.createSSLContext("TLSv1.2");
+    assertSame(sslUtil1.createSSLContext("TLSv1.2"), context);
+    assertSame(sslUtil2.createSSLContext("TLSv1.2"), context);
+    assertNotSame(sslUtil3.createSSLContext("TLSv1.2"), context);
+    assertNotSame(sslUtil1.createSSLContext("TLS"), context);
+    assertNotSame(sslUtil1.createSSLContext("TLSv1.2", "SunJSSE"), context);
+    assertSame(sslUtil1.createSSLContext("TLSv1.2", "SunJSSE"),
+         sslUtil1.createSSLContext("TLSv1.2", "SunJSSE"));
+
+    SSLUtil.clearSSLContextCache();
+    assertNotSame(sslUtil1.createSSLContext("TLSv1.2"), context);
+
+    SSLUtil.setCacheSSLContexts(false);
+    assertFalse(SSLUtil.cacheSSLContexts());
+    assertNotSame(sslUtil1.createSSLContext("TLSv1.2"),
+         sslUtil1.createSSLContext("TLSv1.2"));
+  }
+
+
+
+  /**
+   * Tests the ability to configure the client session cache for SSL contexts.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testClientSessionCacheSettings()
+         throws Exception
+  {
+    assertEquals(SSLUtil.getClientSessionCacheSize(), -1);
+    assertEquals(SSLUtil.getClientSessionTimeoutSeconds(), -1);
+
+    SSLUtil.setClientSessionCacheSize(5);
+    SSLUtil.setClientSessionTimeoutSeconds(60);
+    assertEquals(SSLUtil.getClientSessionCacheSize(), 5);
+    assertEquals(SSLUtil.getClientSessionTimeoutSeconds(), 60);
+
+    final SSLContext context =
+         new SSLUtil(new TrustAllTrustManager()).createSSLContext();
+    assertEquals(context.getClientSessionContext().getSessionCacheSize(), 5);
+    assertEquals(context.getClientSessionContext().getSessionTimeout(), 60);
+
+    SSLUtil.setClientSessionCacheSize(-5);
+    SSLUtil.setClientSessionTimeoutSeconds(-5);
+    assertEquals(SSLUtil.getClientSessionCacheSize(), -1);
+    assertEquals(SSLUtil.getClientSessionTimeoutSeconds(), -1);
+  }
 }
@@ -23,12 +23,16 @@ package com.unboundid.util.ssl;
 
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.testng.annotations.Test;
 
 import com.unboundid.util.LDAPSDKUsageException;
+import com.unboundid.util.StaticUtils;
 
 
 
@@ -330,4 +334,167 @@ public class TrustStoreTrustManagerTestCase
 
     m.checkServerTrusted(chain, "RSA");
   }
+
+
+
+  /**
+   * Tests the behavior of a trust manager that caches the contents of the
+   * trust store, including when the trust store file is updated.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testCachedTrustStore()
+         throws Exception
+  {
+    final File trustStoreFile = createTempFile();
+    assertTrue(trustStoreFile.delete());
+    copyFile(new File(getJKSKeyStorePath()), trustStoreFile);
+
+    final TrustStoreTrustManager m = new TrustStoreTrustManager(trustStoreFile,
+         getJKSKeyStorePIN(), "JKS", true, true);
+    assertTrue(m.cacheTrustStore());
+    assertFalse(new TrustStoreTrustManager(trustStoreFile).cacheTrustStore());
+
+    final KeyStoreKeyManager ksManager =
+         new KeyStoreKeyManager(getJKSKeyStorePath(), getJKSKeyStorePIN());
+    final X509Certificate[] chain =
+         ksManager.getCertificateChain(getJKSKeyStoreAlias());
+    assertNotNull(chain);
+    assertFalse(chain.length == 0);
+
+    m.checkClientTrusted(chain, "RSA");
+    m.checkServerTrusted(chain, "RSA");
+    m.checkServerTrusted(chain, "RSA");
+
+
+    // Update the modification time without changing the contents and verify
+    // that the chain is still trusted.
+    assertTrue(trustStoreFile.setLastModified(
+         trustStoreFile.lastModified() - 10000L));
+    m.checkServerTrusted(chain, "RSA");
+
+
+    // Replace the trust store with a file that isn't a valid trust store and
+    // verify that the chain is no longer trusted.
+    final FileOutputStream outputStream = new FileOutputStream(trustStoreFile);
+    outputStream.write(StaticUtils.getBytes("this is not a valid trust store"));
+    outputStream.close();
+
+    try
+    {
+      m.checkServerTrusted(chain, "RSA");
+      fail("Expected an exception when the trust store is not valid");
+    }
+    catch (final CertificateException ce)
+    {
+      // This was expected.
+    }
+
+
+    // Restore the original trust store and verify that the chain is trusted
+    // again.
+    copyFile(new File(getJKSKeyStorePath()), trustStoreFile);
+    assertTrue(trustStoreFile.setLastModified(
+         trustStoreFile.lastModified() - 30000L));
+    m.checkServerTrusted(chain, "RSA");
+
+
+    // Remove the trust store and verify that the chain is no longer trusted.
+    assertTrue(trustStoreFile.delete());
+    try
+    {
+      m.checkServerTrusted(chain, "RSA");
+      fail("Expected an exception when the trust store does not exist");
+    }
+    catch (final CertificateException ce)
+    {
+      // This was expected.
+    }
+  }
+
+
+
+  /**
+   * Tests to ensure that a trust manager that caches the contents of the trust
+   * store can be used by multiple threads at the same time.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @Test()
+  public void testCachedTrustStoreConcurrentAccess()
+         throws Exception
+  {
+    final TrustStoreTrustManager m = new TrustStoreTrustManager(
+         getJKSKeyStorePath(), getJKSKeyStorePIN(), "JKS", true, true);
+
+    final KeyStoreKeyManager ksManager =
+         new KeyStoreKeyManager(getJKSKeyStorePath(), getJKSKeyStorePIN());
+    final X509Certificate[] chain =
+         ksManager.getCertificateChain(getJKSKeyStoreAlias());
+
+    final AtomicReference<Throwable> failure =
+         new AtomicReference<Throwable>();
+    final Thread[] threads = new Thread[8];
+    for (int i=0; i < threads.length; i++)
+    {
+      threads[i] = new Thread()
+      {
+        @Override()
+        public void run()
+        {
+          try
+          {
+            for (int j=0; j < 100; j++)
+            {
+              m.checkServerTrusted(chain, "RSA");
+            }
+          }
+          catch (final Throwable t)
+          {
+            failure.compareAndSet(null, t);
+          }
+        }
+      };
+      threads[i].start();
+    }
+
+    for (final Thread t : threads)
+    {
+      t.join();
+    }
+
+    assertNull(failure.get());
+  }
+
+
+
+  /**
+   * Copies the contents of one file to another.
+   *
+   * @param  source  The file to copy.
+   * @param  target  The file to create or overwrite.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  private static void copyFile(final File source, final File target)
+          throws Exception
+  {
+    final FileInputStream inputStream = new FileInputStream(source);
+    final FileOutputStream outputStream = new FileOutputStream(target);
+    final byte[] buffer = new byte[8192];
+    while (true)
+    {
+      final int bytesRead = inputStream.read(buffer);
+      if (bytesRead < 0)
+      {
+        break;
+      }
+
+      outputStream.write(buffer, 0, bytesRead);
+    }
+
+    inputStream.close();
+    outputStream.close();
+  }
 }